@@ -33,9 +33,13 @@ import eu.excitementproject.eop.alignmentedas.p1eda.subs.ParameterValue;
 import eu.excitementproject.eop.common.DecisionLabel;
 //import eu.excitementproject.eop.alignmentedas.p1eda.subs.ParameterValue;
 import eu.excitementproject.eop.common.EDABasic;
+import eu.excitementproject.eop.common.EDAConcurrentProcessing;
+import eu.excitementproject.eop.common.EDAConcurrentRunner;
 import eu.excitementproject.eop.common.EDAException;
+import eu.excitementproject.eop.common.TEDecision;
 import eu.excitementproject.eop.common.configuration.CommonConfig;
 import eu.excitementproject.eop.common.configuration.NameValueTable;
+import eu.excitementproject.eop.common.exception.ComponentException;
 import eu.excitementproject.eop.common.exception.ConfigurationException;
 import eu.excitementproject.eop.lap.LAPException;
 import eu.excitementproject.eop.lap.PlatformCASProber;
@@ -83,11 +87,20 @@ import static eu.excitementproject.eop.lap.PlatformCASProber.probeCas;
  * Please see the following document for more info: 
  * TODO fill in URL 
  * 
+ * <H3> Concurrent processing </H3> 
+ * <P> 
+ * The template also implements EDAConcurrentProcessing. For that, it makes additional 
+ * instances of the actual EDA class (by its no-argument constructor), each one with its own 
+ * aligners and scorers, and initialize them with the same classifier model. Thus, the actual 
+ * EDA class needs a public no-argument constructor to be processed concurrently. The number 
+ * of threads can be given as "numberOfThreads" in the EDA configuration section 
+ * (default: the number of available processors). 
+ * 
  * @author Tae-Gil Noh
  *
  */
 
-public abstract class P1EDATemplate implements EDABasic<TEDecisionWithAlignment> {
+public abstract class P1EDATemplate implements EDABasic<TEDecisionWithAlignment>, EDAConcurrentProcessing {
 	
 	/**
 	 * the language
@@ -149,6 +162,7 @@ public abstract class P1EDATemplate implements EDABasic<TEDecisionWithAlignment>
 		this.logger = Logger.getLogger(getClass()); 
 		this.classifier = prepareClassifier();  
 		this.evaluateAlignmentParameters = evaluateAlignmentParameter; 
+		this.numberOfThreads = EDAConcurrentRunner.getNumberOfThreads(null); 
 	}
 		
 	public TEDecisionWithAlignment process(JCas eopJCas) throws EDAException 
@@ -201,6 +215,7 @@ public abstract class P1EDATemplate implements EDABasic<TEDecisionWithAlignment>
 		try {
 			nameValueTable = conf.getSection(this.getClass().getCanonicalName());	
 			File modelFile = nameValueTable.getFile("modelFile"); 
+			numberOfThreads = EDAConcurrentRunner.getNumberOfThreads(nameValueTable); 
 			initialize(modelFile);
 		} catch (ConfigurationException e) {
 			throw new EDAException ("Reading configuration data failed: " + e.getMessage(), e); 
@@ -212,12 +227,29 @@ public abstract class P1EDATemplate implements EDABasic<TEDecisionWithAlignment>
 		try 
 		{
 			classifier.loadClassifierModel(classifierModelFile); 
+			loadedClassifierModelFile = classifierModelFile; 
 		}
 		catch (ClassifierException ce)
 		{
 			throw new EDAException("Loading classifier model and/or parameter failed: ", ce); 
 		}
 	}
+	
+	public List<TEDecision> processDataSetConcurrently(List<JCas> casList) throws EDAException 
+	{
+		if (concurrentRunner == null)
+		{
+			initializeConcurrentProcessing(); 
+		}
+		
+		try {
+			return concurrentRunner.processDataSetConcurrently(casList);
+		}
+		catch (ComponentException ce)
+		{
+			throw new EDAException("Underlying component raised an exception while processing concurrently", ce); 
+		}
+	}
 
 	public void startTraining(CommonConfig conf) throws EDAException 
 	{
@@ -266,11 +298,15 @@ public abstract class P1EDATemplate implements EDABasic<TEDecisionWithAlignment>
 		try 
 		{
 			classifier.storeClassifierModel(classifierModelToStore);
+			loadedClassifierModelFile = classifierModelToStore; 
 		}
 		catch (ClassifierException ce)
 		{
 			throw new EDAException("Underlying classifier thrown exception while deserializing a model", ce); 
 		}
+		
+		// the instances used so far for concurrent processing have the old model 
+		shutdownConcurrentProcessing(); 
 	}
 	
 	/**
@@ -322,7 +358,67 @@ public abstract class P1EDATemplate implements EDABasic<TEDecisionWithAlignment>
 	
 	public void shutdown()
 	{
-		// This template itself has nothing to close down. 
+		// This template itself has nothing to close down, but the additional 
+		// instances that were made for concurrent processing. 
+		shutdownConcurrentProcessing(); 
+	}
+	
+	/**
+	 * Makes the additional instances of the EDA (one for each thread, but the first thread 
+	 * that uses this instance), and the runner that uses them. Each instance is made by the 
+	 * no-argument constructor of the actual EDA class, gets the same evaluateAlignments 
+	 * parameters, and loads the same classifier model. 
+	 * 
+	 * @throws EDAException
+	 */
+	protected void initializeConcurrentProcessing() throws EDAException 
+	{
+		if (loadedClassifierModelFile == null)
+		{
+			throw new EDAException("The EDA has to be initialized (or trained) before processing a data set concurrently."); 
+		}
+		
+		logger.info("Making " + (numberOfThreads - 1) + " additional instances for concurrent processing"); 
+		List<P1EDATemplate> edas = new ArrayList<P1EDATemplate>(); 
+		edas.add(this); 
+		concurrentInstances = new ArrayList<P1EDATemplate>(); 
+		try {
+			for (int i = 1; i < numberOfThreads; i++)
+			{
+				P1EDATemplate instance = this.getClass().getConstructor().newInstance(); 
+				concurrentInstances.add(instance); 
+				instance.evaluateAlignmentParameters = this.evaluateAlignmentParameters; 
+				instance.initialize(loadedClassifierModelFile); 
+				edas.add(instance); 
+			}
+		}
+		catch (ReflectiveOperationException re)
+		{
+			shutdownConcurrentProcessing(); 
+			throw new EDAException("Making an additional instance of " + this.getClass().getName() + " failed (a public no-argument constructor is needed)", re); 
+		}
+		catch (EDAException ee)
+		{
+			shutdownConcurrentProcessing(); 
+			throw ee; 
+		}
+		concurrentRunner = new EDAConcurrentRunner(edas); 
+	}
+	
+	/**
+	 * Shuts down the additional instances of the EDA that were made for concurrent processing. 
+	 */
+	protected void shutdownConcurrentProcessing()
+	{
+		if (concurrentInstances != null)
+		{
+			for (P1EDATemplate instance : concurrentInstances)
+			{
+				instance.shutdown(); 
+			}
+		}
+		concurrentInstances = null; 
+		concurrentRunner = null; 
 	}
 			
 	
@@ -602,6 +698,24 @@ public abstract class P1EDATemplate implements EDABasic<TEDecisionWithAlignment>
 	 */
 	protected Vector<ParameterValue> internalParameters = null; 
 	
+	/**
+	 * Number of threads to be used by processDataSetConcurrently() 
+	 */
+	protected int numberOfThreads; 
+	
+	/**
+	 * The classifier model file that has been loaded (or stored by training) lastly. 
+	 * The additional instances for concurrent processing load this model. 
+	 */
+	private File loadedClassifierModelFile = null; 
+	
+	/**
+	 * The runner for concurrent processing, and the additional instances that it uses. 
+	 * (Made on the first call of processDataSetConcurrently().) 
+	 */
+	private EDAConcurrentRunner concurrentRunner = null; 
+	private List<P1EDATemplate> concurrentInstances = null; 
+	
 	//
 	// private final fields... 
 	//
@@ -0,0 +1,371 @@
+package eu.excitementproject.eop.biutee.classifiers;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * A feature-vector, backed by a primitive array of values, indexed by the feature-index.
+ * <P>
+ * During the search, the feature-vector of each generated tree is the feature-vector
+ * of its parent, with one or two features updated. Copying a feature-vector by
+ * {@link #FeatureVector(Map)} is cheap, since the original and the copy share
+ * their arrays, until one of them is changed (copy-on-write).
+ * <P>
+ * This class implements <code>Map&lt;Integer,Double&gt;</code>, so it can be used
+ * wherever a feature-vector is expected. The iteration order is the order of the
+ * feature-indexes. Code that is sensitive to performance should use the primitive
+ * methods {@link #getValue(int)}, {@link #setValue(int, double)} and
+ * {@link #addToValue(int, double)}, and {@link LinearClassifier#getProduct(FeatureVector)}.
+ * <P>
+ * Thread-safety: a feature-vector that is not changed can be read and copied
+ * concurrently. Changing a feature-vector is not thread-safe.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class FeatureVector extends AbstractMap<Integer, Double> implements Serializable
+{
+	private static final long serialVersionUID = -2377069423845316527L;
+
+	public FeatureVector()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	public FeatureVector(int capacity)
+	{
+		this.values = new double[capacity];
+		this.defined = new boolean[capacity];
+		this.size = 0;
+		this.shared = false;
+	}
+
+	/**
+	 * Constructs a copy of the given feature-vector. If the given feature-vector is
+	 * a {@link FeatureVector}, its arrays are not copied, but shared until one of the
+	 * two feature-vectors is changed.
+	 *
+	 * @param featureVector
+	 */
+	public FeatureVector(Map<Integer, Double> featureVector)
+	{
+		if (featureVector instanceof FeatureVector)
+		{
+			FeatureVector original = (FeatureVector) featureVector;
+			this.values = original.values;
+			this.defined = original.defined;
+			this.size = original.size;
+			this.shared = true;
+			original.shared = true;
+		}
+		else
+		{
+			int capacity = DEFAULT_CAPACITY;
+			for (Integer index : featureVector.keySet())
+			{
+				if (index.intValue()>=capacity)
+				{
+					capacity = index.intValue()+1;
+				}
+			}
+			this.values = new double[capacity];
+			this.defined = new boolean[capacity];
+			this.size = 0;
+			this.shared = false;
+			putAll(featureVector);
+		}
+	}
+
+	/**
+	 * Returns the given feature-vector if it is a {@link FeatureVector}, or a
+	 * {@link FeatureVector} copy of it otherwise.
+	 *
+	 * @param featureVector
+	 * @return
+	 */
+	public static FeatureVector asFeatureVector(Map<Integer, Double> featureVector)
+	{
+		if (featureVector instanceof FeatureVector)
+			return (FeatureVector) featureVector;
+		else
+			return new FeatureVector(featureVector);
+	}
+
+
+	/**
+	 * Returns the value of the given feature, or 0 if it is not in this feature-vector.
+	 * @param index
+	 * @return
+	 */
+	public double getValue(int index)
+	{
+		if ( (index>=0) && (index<defined.length) && (defined[index]) )
+			return values[index];
+		else
+			return 0.0;
+	}
+
+	public boolean isDefined(int index)
+	{
+		return ( (index>=0) && (index<defined.length) && (defined[index]) );
+	}
+
+	public void setValue(int index, double value)
+	{
+		if (index<0) throw new IllegalArgumentException("Negative feature index: "+index);
+		prepareForChange(index);
+		if (!defined[index])
+		{
+			defined[index] = true;
+			++size;
+		}
+		values[index] = value;
+	}
+
+	/**
+	 * Adds the given value to the value of the given feature, which is assumed
+	 * to be 0 if it is not in this feature-vector.
+	 * @param index
+	 * @param valueToAdd
+	 */
+	public void addToValue(int index, double valueToAdd)
+	{
+		setValue(index, getValue(index)+valueToAdd);
+	}
+
+	/**
+	 * Returns an upper bound of the feature-indexes of this feature-vector, i.e.,
+	 * all the indexes in this feature-vector are smaller than the returned value.
+	 * @return
+	 */
+	public int getIndexesBound()
+	{
+		return defined.length;
+	}
+
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#size()
+	 */
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#containsKey(java.lang.Object)
+	 */
+	@Override
+	public boolean containsKey(Object key)
+	{
+		if (key instanceof Integer)
+			return isDefined(((Integer) key).intValue());
+		else
+			return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#get(java.lang.Object)
+	 */
+	@Override
+	public Double get(Object key)
+	{
+		if (containsKey(key))
+			return values[((Integer) key).intValue()];
+		else
+			return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#put(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public Double put(Integer key, Double value)
+	{
+		if (null==key) throw new NullPointerException("Null feature index");
+		if (null==value) throw new NullPointerException("Null value for feature index: "+key);
+		Double ret = get(key);
+		setValue(key.intValue(), value.doubleValue());
+		return ret;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#remove(java.lang.Object)
+	 */
+	@Override
+	public Double remove(Object key)
+	{
+		Double ret = get(key);
+		if (ret!=null)
+		{
+			int index = ((Integer) key).intValue();
+			prepareForChange(index);
+			defined[index] = false;
+			values[index] = 0.0;
+			--size;
+		}
+		return ret;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#clear()
+	 */
+	@Override
+	public void clear()
+	{
+		this.values = new double[values.length];
+		this.defined = new boolean[defined.length];
+		this.size = 0;
+		this.shared = false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#entrySet()
+	 */
+	@Override
+	public Set<Map.Entry<Integer, Double>> entrySet()
+	{
+		return new AbstractSet<Map.Entry<Integer,Double>>()
+		{
+			@Override
+			public Iterator<Map.Entry<Integer, Double>> iterator()
+			{
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size()
+			{
+				return size;
+			}
+		};
+	}
+
+
+	/////////////////////// PRIVATE ///////////////////////
+
+	private final class EntryIterator implements Iterator<Map.Entry<Integer, Double>>
+	{
+		@Override
+		public boolean hasNext()
+		{
+			return nextIndex(current+1)>=0;
+		}
+
+		@Override
+		public Map.Entry<Integer, Double> next()
+		{
+			int next = nextIndex(current+1);
+			if (next<0) throw new NoSuchElementException();
+			current = next;
+			return new Entry(current);
+		}
+
+		@Override
+		public void remove()
+		{
+			if ( (current<0) || (!isDefined(current)) ) throw new IllegalStateException();
+			FeatureVector.this.remove(current);
+		}
+
+		private int nextIndex(int from)
+		{
+			for (int index=from;index<defined.length;++index)
+			{
+				if (defined[index]) return index;
+			}
+			return -1;
+		}
+
+		private int current = -1;
+	}
+
+	private final class Entry implements Map.Entry<Integer, Double>
+	{
+		public Entry(int index)
+		{
+			this.index = index;
+		}
+
+		@Override
+		public Integer getKey()
+		{
+			return index;
+		}
+
+		@Override
+		public Double getValue()
+		{
+			return FeatureVector.this.getValue(index);
+		}
+
+		@Override
+		public Double setValue(Double value)
+		{
+			return put(index, value);
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Map.Entry)) return false;
+			Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+			return getKey().equals(other.getKey()) && getValue().equals(other.getValue());
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return getKey().hashCode() ^ getValue().hashCode();
+		}
+
+		@Override
+		public String toString()
+		{
+			return index+"="+FeatureVector.this.getValue(index);
+		}
+
+		private final int index;
+	}
+
+	/**
+	 * Makes the arrays private to this feature-vector, and large enough to hold
+	 * the given index.
+	 */
+	private void prepareForChange(int index)
+	{
+		if ( (shared) || (index>=values.length) )
+		{
+			int capacity = values.length;
+			while (index>=capacity)
+			{
+				capacity = Math.max(capacity*2, DEFAULT_CAPACITY);
+			}
+			values = Arrays.copyOf(values, capacity);
+			defined = Arrays.copyOf(defined, capacity);
+			shared = false;
+		}
+	}
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private double[] values;
+	private boolean[] defined;
+	private int size;
+	private boolean shared;
+}
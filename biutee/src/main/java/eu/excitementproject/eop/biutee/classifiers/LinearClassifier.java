@@ -17,8 +17,8 @@ import eu.excitementproject.eop.common.datastructures.immutable.ImmutableMap;
  * 
  * Thread-safety: Please read the comment about thread-safety in {@link TrainableClassifier}.<BR>
  * As for the methods added in this interface: the "get" methods, i.e.,
- * {@link #getWeights()}, {@link #getThreshold()} and {@link #getProduct(Map)},
- * are thread-safe.
+ * {@link #getWeights()}, {@link #getThreshold()}, {@link #getProduct(Map)} and
+ * {@link #getProduct(FeatureVector)}, are thread-safe.
  * 
  * 
  * @author Asher Stern
@@ -50,4 +50,15 @@ import eu.excitementproject.eop.common.datastructures.immutable.ImmutableMap;
 	 * @throws ClassifierException
 	 */
 	public double getProduct(Map<Integer,Double> featureVector) throws ClassifierException;
+	
+	/**
+	 * Same as {@link #getProduct(Map)}, for a {@link FeatureVector}.
+	 * This method is called for each tree generated during the search, and
+	 * implementations should avoid creating temporary maps in it.
+	 * 
+	 * @param featureVector
+	 * @return
+	 * @throws ClassifierException
+	 */
+	public double getProduct(FeatureVector featureVector) throws ClassifierException;
 }
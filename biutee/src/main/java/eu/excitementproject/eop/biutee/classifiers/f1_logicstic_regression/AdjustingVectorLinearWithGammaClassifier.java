@@ -6,6 +6,7 @@ import java.util.Set;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
 import eu.excitementproject.eop.biutee.classifiers.ClassifierUtils;
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.classifiers.LabeledSample;
 import eu.excitementproject.eop.biutee.classifiers.LinearClassifier;
 import eu.excitementproject.eop.common.datastructures.immutable.ImmutableMap;
@@ -88,6 +89,38 @@ public abstract class AdjustingVectorLinearWithGammaClassifier implements Linear
 		return sum;
 	}
 	
+	/*
+	 * (non-Javadoc)
+	 * @see eu.excitementproject.eop.biutee.classifiers.LinearClassifier#getProduct(eu.excitementproject.eop.biutee.classifiers.FeatureVector)
+	 */
+	@Override
+	public double getProduct(FeatureVector featureVector) throws ClassifierException
+	{
+		// Equivalent to getProduct(Map), without creating the adjusted vector:
+		// the adjusted vector is the feature vector shifted by one, with 1.0 at index 0,
+		// and with 0.0 for the missing indexes up to the largest index.
+		int maxIndex = -1;
+		for (int index=featureVector.getIndexesBound()-1;index>=0;--index)
+		{
+			if (featureVector.isDefined(index))
+			{
+				maxIndex = index;
+				break;
+			}
+		}
+		int adjustedLength = maxIndex+2;
+		if (adjustedLength!=this.weights.length) throw new ClassifierException("Bad feature vector. Length = "+adjustedLength+" while length should be "+this.weights.length);
+		// getProduct(Map) sums the adjusted array in the order of its indexes (not in the
+		// iteration order of the map), so the additions below are done in the same order,
+		// and the result is identical.
+		double sum = 0.0;
+		for (int index=1;index<this.weights.length;++index)
+		{
+			sum += this.weights[index]*featureVector.getValue(index-1);
+		}
+		return sum;
+	}
+	
 	@Override
 	public String descriptionOfTraining()
 	{
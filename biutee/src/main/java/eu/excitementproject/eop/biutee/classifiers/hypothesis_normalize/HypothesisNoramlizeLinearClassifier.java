@@ -4,6 +4,7 @@ import java.util.Map;
 import java.util.Vector;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.classifiers.LabeledSample;
 import eu.excitementproject.eop.biutee.classifiers.LinearClassifier;
 import eu.excitementproject.eop.biutee.rteflow.macro.Feature;
@@ -82,6 +83,12 @@ public abstract class HypothesisNoramlizeLinearClassifier implements LinearClass
 		return realClassifier.getProduct(normalizeFeatureVector(featureVector));
 	}
 	
+	@Override
+	public double getProduct(FeatureVector featureVector) throws ClassifierException
+	{
+		return realClassifier.getProduct(normalizeFeatureVector(featureVector));
+	}
+	
 	
 	//////////////////////// PROTECTED AND PRIVATE //////////////////////// 
 	
@@ -108,6 +115,32 @@ public abstract class HypothesisNoramlizeLinearClassifier implements LinearClass
 		return ret;
 	}
 	
+	protected FeatureVector normalizeFeatureVector(FeatureVector originalFeaureVector) throws ClassifierException
+	{
+		int inverseHypothesisLengthIndex = Feature.INVERSE_HYPOTHESIS_LENGTH.getFeatureIndex();
+		if (!originalFeaureVector.isDefined(inverseHypothesisLengthIndex)) throw new ClassifierException("null inverse hypothesis length");
+		double inverseHypothesisLengthPrimitive = originalFeaureVector.getValue(inverseHypothesisLengthIndex);
+		if (inverseHypothesisLengthPrimitive==0) throw new ClassifierException("0 inverse hypothesis length");
+		
+		FeatureVector ret = new FeatureVector(originalFeaureVector.getIndexesBound());
+		for (int index=0;index<originalFeaureVector.getIndexesBound();++index)
+		{
+			if (originalFeaureVector.isDefined(index))
+			{
+				if (inverseHypothesisLengthIndex==index)
+				{
+					ret.setValue(index, 0.0);
+				}
+				else
+				{
+					ret.setValue(index, originalFeaureVector.getValue(index)*inverseHypothesisLengthPrimitive);
+				}
+			}
+		}
+		
+		return ret;
+	}
+	
 	protected LabeledSample normalizeLabeledSample(LabeledSample sample) throws ClassifierException
 	{
 		return new LabeledSample(normalizeFeatureVector(sample.getFeatures()), sample.getLabel());
@@ -3,6 +3,7 @@ import java.util.Map;
 import java.util.Vector;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.classifiers.LabeledSample;
 import eu.excitementproject.eop.biutee.classifiers.LinearTrainableStorableClassifier;
 import eu.excitementproject.eop.biutee.classifiers.io.LearningModel;
@@ -99,6 +100,12 @@ public class LinearClassifierByPool<T extends LinearTrainableStorableClassifier>
 	{
 		return this.realClassifier.getProduct(featureVector);
 	}
+	
+	@Override
+	public double getProduct(FeatureVector featureVector) throws ClassifierException
+	{
+		return this.realClassifier.getProduct(featureVector);
+	}
 
 	
 	public Map<Integer, String> getFeatureNames() throws ClassifierException
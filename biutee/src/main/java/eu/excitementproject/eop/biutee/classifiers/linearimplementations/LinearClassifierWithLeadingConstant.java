@@ -7,6 +7,7 @@ import java.util.Map;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
 import eu.excitementproject.eop.biutee.classifiers.ClassifierUtils;
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.classifiers.LabeledSample;
 import eu.excitementproject.eop.biutee.classifiers.LinearClassifier;
 import eu.excitementproject.eop.common.datastructures.immutable.ImmutableMap;
@@ -156,6 +157,28 @@ public class LinearClassifierWithLeadingConstant implements LinearClassifier
 		}
 		return sum;
 	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see eu.excitementproject.eop.biutee.classifiers.LinearClassifier#getProduct(eu.excitementproject.eop.biutee.classifiers.FeatureVector)
+	 */
+	@Override
+	public double getProduct(FeatureVector featureVector) throws ClassifierException
+	{
+		// Same as getProduct(Map), but reads the feature vector directly, instead of
+		// copying it into a new map with the constant feature.
+		double sum = 0;
+		for (Map.Entry<Integer, Double> parameter : parameters.entrySet())
+		{
+			int featureIndex = parameter.getKey().intValue();
+			if (featureIndex!=0) // does not include the threshold
+			{
+				if (!featureVector.isDefined(featureIndex-1)) throw new ClassifierException("Feature "+(featureIndex-1)+" does not exist in the feature vector.");
+				sum += parameter.getValue().doubleValue()*featureVector.getValue(featureIndex-1);
+			}
+		}
+		return sum;
+	}
 
 	
 	
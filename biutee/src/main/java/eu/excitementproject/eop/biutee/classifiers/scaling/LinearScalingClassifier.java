@@ -2,6 +2,7 @@ package eu.excitementproject.eop.biutee.classifiers.scaling;
 import java.util.Map;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.classifiers.LinearClassifier;
 import eu.excitementproject.eop.biutee.classifiers.LinearTrainableStorableClassifier;
 import eu.excitementproject.eop.common.datastructures.immutable.ImmutableMap;
@@ -35,6 +36,13 @@ public class LinearScalingClassifier extends ScalingClassifier implements Linear
 		featureVector = getScaledFeatureVector(featureVector);
 		return realLinearClassifier.getProduct(featureVector);
 	}
+	
+	@Override
+	public double getProduct(FeatureVector featureVector) throws ClassifierException
+	{
+		// Scaling creates a new feature vector anyway.
+		return getProduct((Map<Integer, Double>)featureVector);
+	}
 
 	@Override
 	public LinearClassifier getRealClassifier()
@@ -2,12 +2,12 @@ package eu.excitementproject.eop.biutee.rteflow.macro;
 
 import static eu.excitementproject.eop.biutee.utilities.BiuteeConstants.USE_MLE_FOR_INSERTION_COST;
 
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.operations.updater.FeatureVectorUpdater;
 import eu.excitementproject.eop.biutee.rteflow.micro.PathObservations;
 import eu.excitementproject.eop.biutee.rteflow.systems.FeatureVectorStructureOrganizer;
@@ -49,6 +49,10 @@ import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeUti
  * to one of its features, and creates a new feature-vector with the required
  * addition to the appropriate feature. The method is {@link #createAndUpdateFeatureVector(Map, int, double)}.
  * <P>
+ * The feature-vectors created by this class are {@link FeatureVector}s, which
+ * share their values with the original feature-vector until they are updated,
+ * so no boxing and no map-copying take place for each generated tree.
+ * <P>
  * In addition, this class contains many methods that change a given feature-vector,
  * as follows:<BR>
  * Given a feature-vector of the original tree, and an operation that has been
@@ -125,18 +129,11 @@ public class FeatureUpdate
 	 * @return
 	 * @throws TeEngineMlException
 	 */
-	public final Map<Integer,Double> createAndUpdateFeatureVector(Map<Integer,Double> originalFeatureVector, int featureIndex, double valueToAdd) throws TeEngineMlException
+	public final FeatureVector createAndUpdateFeatureVector(Map<Integer,Double> originalFeatureVector, int featureIndex, double valueToAdd) throws TeEngineMlException
 	{
 		if (valueToAdd>=0) throw new TeEngineMlException("non-negative value added for feature: "+featureIndex+". valueToAdd is: "+String.format("%3.3f", valueToAdd));
-		Map<Integer,Double> featureVector = new LinkedHashMap<Integer, Double>();
-		featureVector.putAll(originalFeatureVector);
-		double valueToSet = 0.0;
-		if (null!=originalFeatureVector.get(featureIndex))
-		{
-			valueToSet = originalFeatureVector.get(featureIndex).doubleValue();
-		}
-		valueToSet += valueToAdd;
-		featureVector.put(featureIndex, valueToSet);
+		FeatureVector featureVector = new FeatureVector(originalFeatureVector);
+		featureVector.addToValue(featureIndex, valueToAdd);
 		
 		return featureVector;
 	}
@@ -146,47 +143,42 @@ public class FeatureUpdate
 	////////// Methods that update a feature-vector //////////
 	
 
-	public Map<Integer,Double> forRuleWithConfidence(Map<Integer,Double> originalFeatureVector, String ruleBaseName, double confidence) throws TeEngineMlException
+	public FeatureVector forRuleWithConfidence(Map<Integer,Double> originalFeatureVector, String ruleBaseName, double confidence) throws TeEngineMlException
 	{
-		Map<Integer,Double> featureVector = new LinkedHashMap<Integer, Double>();
-		featureVector.putAll(originalFeatureVector);
+		FeatureVector featureVector = new FeatureVector(originalFeatureVector);
 		if (!imMapRuleBaseNameToFeatureIndex.containsKey(ruleBaseName)) throw new TeEngineMlException("Rule base: "+ruleBaseName+" is unrecognized.");
 		Integer featureIndex = imMapRuleBaseNameToFeatureIndex.get(ruleBaseName);
 		if (null==featureIndex) throw new TeEngineMlException("Rule base: "+ruleBaseName+" has null index, which is an anomaly.");
-		Double origValue = originalFeatureVector.get(featureIndex);
-		if (null==origValue) origValue=0.0;
+		double origValue = featureVector.getValue(featureIndex);
 		double valueToAdd = Math.log(confidence);
 		if (valueToAdd>=0)throw new TeEngineMlException("Non-negative value to feature value for feature: "+featureIndex+". Value is: "+String.format("%3.3f", valueToAdd) );
-		Double newValue = origValue+valueToAdd;
+		double newValue = origValue+valueToAdd;
 		if (newValue>=0) throw new TeEngineMlException("Non-negative value to feature value for feature: "+featureIndex+". Value is: "+String.format("%3.3f", newValue) );
-		featureVector.put(featureIndex,newValue);
+		featureVector.setValue(featureIndex,newValue);
 		return featureVector;
 	}
 
-	public Map<Integer, Double> forChainOfRules(Map<Integer, Double> originalFeatureVector, ImmutableList<ConfidenceChainItem> chain) throws TeEngineMlException
+	public FeatureVector forChainOfRules(Map<Integer, Double> originalFeatureVector, ImmutableList<ConfidenceChainItem> chain) throws TeEngineMlException
 	{
-		Map<Integer, Double> featureVector = new LinkedHashMap<Integer, Double>();
-		featureVector.putAll(originalFeatureVector);
+		FeatureVector featureVector = new FeatureVector(originalFeatureVector);
 		for (ConfidenceChainItem item : chain)
 		{
 			if (!imMapRuleBaseNameToFeatureIndex.containsKey(item.getRuleBaseName()))throw new TeEngineMlException("rule base: "+item.getRuleBaseName()+" does not exist.");
 			Integer featureIndex = imMapRuleBaseNameToFeatureIndex.get(item.getRuleBaseName());
 			if (null==featureIndex)throw new TeEngineMlException("rule base: "+item.getRuleBaseName()+" does not exist.");
-			Double origValue = featureVector.get(featureIndex);
-			if (null==origValue)origValue=0.0;
+			double origValue = featureVector.getValue(featureIndex);
 			double valueToAdd = Math.log(item.getConfidence());
 			if (valueToAdd>=0)throw new TeEngineMlException("Non-negative value to feature value for feature: "+featureIndex+" of rule-base: "+item.getRuleBaseName()+". Value is: "+String.format("%3.3f", valueToAdd) );
-			Double newValue = origValue+valueToAdd;
+			double newValue = origValue+valueToAdd;
 			if (newValue>=0) throw new TeEngineMlException("Non-negative value to feature value for feature: "+featureIndex+". Value is: "+String.format("%3.3f", newValue) );
-			featureVector.put(featureIndex, newValue);
+			featureVector.setValue(featureIndex, newValue);
 		}
 		return featureVector;
 	}
 	
-	public Map<Integer,Double> forInsert(InsertNodeSpecification insertSpec, Map<Integer,Double> originalFeatureVector) throws TeEngineMlException
+	public FeatureVector forInsert(InsertNodeSpecification insertSpec, Map<Integer,Double> originalFeatureVector) throws TeEngineMlException
 	{
-		Map<Integer,Double> featureVector = new LinkedHashMap<Integer, Double>();
-		featureVector.putAll(originalFeatureVector);
+		FeatureVector featureVector = new FeatureVector(originalFeatureVector);
 
 		if (InfoObservations.infoHasLemma(insertSpec.getHypothesisNodeToInsert().getInfo()))
 		{
@@ -322,10 +314,9 @@ public class FeatureUpdate
 	}
 	
 	
-	public Map<Integer,Double> forMove(Map<Integer,Double> originalFeatureVector, PathInTree path, TreeAndParentMap<ExtendedInfo,ExtendedNode> textTreeAndParentMap, MoveNodeSpecification moveSpec, ExtendedNode theNodeInTheGenerated) throws TeEngineMlException
+	public FeatureVector forMove(Map<Integer,Double> originalFeatureVector, PathInTree path, TreeAndParentMap<ExtendedInfo,ExtendedNode> textTreeAndParentMap, MoveNodeSpecification moveSpec, ExtendedNode theNodeInTheGenerated) throws TeEngineMlException
 	{
-		Map<Integer,Double> featureVector = new LinkedHashMap<Integer, Double>();
-		featureVector.putAll(originalFeatureVector);
+		FeatureVector featureVector = new FeatureVector(originalFeatureVector);
 
 		double featureValue = -1.0;
 
@@ -403,10 +394,9 @@ public class FeatureUpdate
 		return featureVector;
 	}
 	
-	public Map<Integer,Double> forSubstitutionMultiWord(Map<Integer,Double> originalFeatureVector, SubstituteNodeSpecificationMultiWord spec) throws TeEngineMlException
+	public FeatureVector forSubstitutionMultiWord(Map<Integer,Double> originalFeatureVector, SubstituteNodeSpecificationMultiWord spec) throws TeEngineMlException
 	{
-		Map<Integer,Double> featureVector = new LinkedHashMap<Integer, Double>();
-		featureVector.putAll(originalFeatureVector);
+		FeatureVector featureVector = new FeatureVector(originalFeatureVector);
 		
 		spec.addDescription("Multi-Word");
 
@@ -438,10 +428,9 @@ public class FeatureUpdate
 	 * @return
 	 * @throws TeEngineMlException
 	 */
-	public Map<Integer,Double> forSubstitutionMultiWordAsRule(Map<Integer,Double> originalFeatureVector, RuleSpecification spec) throws TeEngineMlException
+	public FeatureVector forSubstitutionMultiWordAsRule(Map<Integer,Double> originalFeatureVector, RuleSpecification spec) throws TeEngineMlException
 	{
-		Map<Integer,Double> featureVector = new LinkedHashMap<Integer, Double>();
-		featureVector.putAll(originalFeatureVector);
+		FeatureVector featureVector = new FeatureVector(originalFeatureVector);
 
 		boolean namedEntity = false;
 		Set<String> addedHypothesisWord = new LinkedHashSet<String>();
@@ -461,50 +450,45 @@ public class FeatureUpdate
 		return updateFeatureVectorForSubstitutionMultiWord(featureVector,spec,namedEntity,addedHypothesisWord);
 	}
 
-	public Map<Integer,Double> byName(Map<Integer,Double> originalFeatureVector, String customFeatureName) throws TeEngineMlException
+	public FeatureVector byName(Map<Integer,Double> originalFeatureVector, String customFeatureName) throws TeEngineMlException
 	{
 		return byName(originalFeatureVector, customFeatureName, -1.0);
 	}
 	
-	public Map<Integer,Double> byName(Map<Integer,Double> originalFeatureVector, String customFeatureName, double valueToAdd) throws TeEngineMlException
+	public FeatureVector byName(Map<Integer,Double> originalFeatureVector, String customFeatureName, double valueToAdd) throws TeEngineMlException
 	{
-		Map<Integer,Double> featureVector = new LinkedHashMap<Integer, Double>();
-		featureVector.putAll(originalFeatureVector);
+		FeatureVector featureVector = new FeatureVector(originalFeatureVector);
 		Integer customfeatureIndex = imMapCustomFeatureToFeatureIndex.get(customFeatureName);
 		updateFeatureVector(featureVector, customfeatureIndex, valueToAdd);
 		return featureVector;
 	}
 	
 
-	public Map<Integer,Double> forSubstitutionFlipPos(Map<Integer,Double> originalFeatureVector) throws TeEngineMlException
+	public FeatureVector forSubstitutionFlipPos(Map<Integer,Double> originalFeatureVector) throws TeEngineMlException
 	{
-		Map<Integer,Double> featureVector = new LinkedHashMap<Integer, Double>();
-		featureVector.putAll(originalFeatureVector);
+		FeatureVector featureVector = new FeatureVector(originalFeatureVector);
 		updateFeatureVector(featureVector, Feature.SUBSTITUTION_FLIP_POS, -1.0);
 		return featureVector;
 	}
 	
 
-	public Map<Integer,Double> forSubstitutionParserAntecedent(Map<Integer,Double> originalFeatureVector) throws TeEngineMlException
+	public FeatureVector forSubstitutionParserAntecedent(Map<Integer,Double> originalFeatureVector) throws TeEngineMlException
 	{
-		Map<Integer,Double> featureVector = new LinkedHashMap<Integer, Double>();
-		featureVector.putAll(originalFeatureVector);
+		FeatureVector featureVector = new FeatureVector(originalFeatureVector);
 		updateFeatureVector(featureVector, Feature.SUBSTITUTION_PARSER_ANTECEDENT, -1.0);
 		return featureVector;
 	}
 	
-	public Map<Integer, Double> forSubstitutionCoreference(Map<Integer,Double> originalFeatureVector) throws TeEngineMlException
+	public FeatureVector forSubstitutionCoreference(Map<Integer,Double> originalFeatureVector) throws TeEngineMlException
 	{
-		Map<Integer,Double> featureVector = new LinkedHashMap<Integer, Double>();
-		featureVector.putAll(originalFeatureVector);
+		FeatureVector featureVector = new FeatureVector(originalFeatureVector);
 		updateFeatureVector(featureVector, Feature.SUBSTITUTION_COREFERENCE, -1.0);
 		return featureVector;
 	}
 	
-	public Map<Integer,Double> forChangePredicateTruth(Map<Integer,Double> originalFeatureVector) throws TeEngineMlException
+	public FeatureVector forChangePredicateTruth(Map<Integer,Double> originalFeatureVector) throws TeEngineMlException
 	{
-		Map<Integer,Double> featureVector = new LinkedHashMap<Integer, Double>();
-		featureVector.putAll(originalFeatureVector);
+		FeatureVector featureVector = new FeatureVector(originalFeatureVector);
 		updateFeatureVector(featureVector, Feature.CHANGE_PREDICATE_TRUTH, -1.0);
 		return featureVector;
 	}
@@ -520,13 +504,27 @@ public class FeatureUpdate
 		if (valueToAdd>=0) throw new TeEngineMlException("non-negative value added for feature with index: "+featureIndex+". valueToAdd is: "+String.format("%3.3f", valueToAdd));
 		featureVector.put(featureIndex, featureVector.get(featureIndex)+valueToAdd);
 	}
+	
+	public final static void updateFeatureVector(FeatureVector featureVector, Feature feature, double valueToAdd) throws TeEngineMlException
+	{
+		if (valueToAdd>=0) throw new TeEngineMlException("non-negative value added for feature: "+feature.name()+". valueToAdd is: "+String.format("%3.3f", valueToAdd));
+		updateFeatureVector(featureVector, feature.getFeatureIndex(), valueToAdd);
+	}
+
+	public final static void updateFeatureVector(FeatureVector featureVector, Integer featureIndex, double valueToAdd) throws TeEngineMlException
+	{
+		if (valueToAdd>=0) throw new TeEngineMlException("non-negative value added for feature with index: "+featureIndex+". valueToAdd is: "+String.format("%3.3f", valueToAdd));
+		if (null==featureIndex) throw new TeEngineMlException("null feature index");
+		if (!featureVector.isDefined(featureIndex)) throw new TeEngineMlException("feature with index: "+featureIndex+" does not exist in the feature vector.");
+		featureVector.addToValue(featureIndex, valueToAdd);
+	}
 
 	
 	
 	///////////////// PRIVATE /////////////////
 
 	
-	private  Map<Integer,Double> updateFeatureVectorForSubstitutionMultiWord(Map<Integer,Double> copiedOriginalFeatureVector, Specification spec, boolean namedEntity, Set<String> addedHypothesisWord) throws TeEngineMlException
+	private FeatureVector updateFeatureVectorForSubstitutionMultiWord(FeatureVector copiedOriginalFeatureVector, Specification spec, boolean namedEntity, Set<String> addedHypothesisWord) throws TeEngineMlException
 	{
 		if (addedHypothesisWord.size()==0)
 		{
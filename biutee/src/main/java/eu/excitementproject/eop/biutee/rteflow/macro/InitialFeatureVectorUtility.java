@@ -1,10 +1,8 @@
 package eu.excitementproject.eop.biutee.rteflow.macro;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
-
 import org.apache.log4j.Logger;
 
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.plugin.PluginAdministrationException;
 import eu.excitementproject.eop.biutee.rteflow.systems.FeatureVectorStructureOrganizer;
 import eu.excitementproject.eop.biutee.utilities.BiuteeConstants;
@@ -49,9 +47,9 @@ public class InitialFeatureVectorUtility
 		this.globalPairInformation = information;
 	}
 	
-	public Map<Integer, Double> initialFeatureVector() throws PluginAdministrationException, TeEngineMlException
+	public FeatureVector initialFeatureVector() throws PluginAdministrationException, TeEngineMlException
 	{
-		Map<Integer,Double> ret = new LinkedHashMap<Integer, Double>();
+		FeatureVector ret = new FeatureVector();
 		// ret.put(0,0.0); - NO!!! There is no feature 0!
 		for (Integer key : featureVectorStructure.getAllIndexesOfFeatures())
 		{
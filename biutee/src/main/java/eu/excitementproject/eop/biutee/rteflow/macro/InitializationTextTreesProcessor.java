@@ -4,6 +4,7 @@ import static eu.excitementproject.eop.biutee.utilities.BiuteeConstants.CACHE_SI
 import static eu.excitementproject.eop.transformations.utilities.Constants.HANDLE_LEXICAL_MULTI_WORD;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -12,6 +13,7 @@ import java.util.Set;
 
 import org.apache.log4j.Logger;
 
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.classifiers.LinearClassifier;
 import eu.excitementproject.eop.biutee.plugin.InstanceBasedPlugin;
 import eu.excitementproject.eop.biutee.plugin.PluginAdministrationException;
@@ -40,8 +42,7 @@ import eu.excitementproject.eop.common.representation.parse.tree.TreeCopier;
 import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
 import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNodeConstructor;
 import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
-import eu.excitementproject.eop.common.utilities.Cache;
-import eu.excitementproject.eop.common.utilities.CacheFactory;
+import eu.excitementproject.eop.common.utilities.ComputeOnceCache;
 import eu.excitementproject.eop.common.utilities.SealedObject;
 import eu.excitementproject.eop.common.utilities.StringUtil;
 import eu.excitementproject.eop.lap.biu.lemmatizer.Lemmatizer;
@@ -175,7 +176,7 @@ public class InitializationTextTreesProcessor
 	 */
 	protected void init() throws TeEngineMlException, OperationException, TreeAndParentMapException, AnnotatorException
 	{
-		// the object sealedOriginalHypothesisTree is used as a key in the cache "cacheHypothesisToTemplates" (a static member in this class)
+		// the object sealedOriginalHypothesisTree is used as a key in the cache "cacheHypothesisData" (a static member in this class)
 		sealedOriginalHypothesisTree = new SealedObject<ExtendedNode>(this.hypothesisTree);
 		
 		// Start with a small verification
@@ -235,15 +236,15 @@ public class InitializationTextTreesProcessor
 		hypothesisNumberOfNodes = AbstractNodeUtils.treeToLinkedHashSet(this.hypothesisTree).size();
 		
 		// Creates a set of "LemmaAndPos" of all hypothesis tree's nodes
-		// and set of lemmas (with out pos)
-		this.hypothesisLemmas = new ImmutableSetWrapper<LemmaAndPos>(lemmasAndPosesInTree(this.hypothesisTree));
-		ImmutableSet<CanonicalLemmaAndPos> hypothesisLemmasAndCanonicalPos = convertToCanonicalSet(hypothesisLemmas);
-		this.hypothesisLemmasOnly = new ImmutableSetWrapper<String>(extractOnlyLemmas(this.hypothesisLemmas));
-		this.hypothesisLemmasLowerCase = TreeUtilities.constructSetLemmasLowerCase(hypothesis);
-		
-		logger.debug("creating hypothesis templates for DIRT-like resources...");
-		hypothesisTemplates = getHypothesisTemplates();
-		logger.debug("creating hypothesis templates for DIRT-like resources done.");
+		// and set of lemmas (with out pos), as well as the hypothesis templates
+		// for DIRT-like resources. They are taken from the cache if the same
+		// hypothesis has already been processed (e.g., in RTE-Sum).
+		HypothesisData hypothesisData = getHypothesisData();
+		this.hypothesisLemmas = hypothesisData.getLemmas();
+		ImmutableSet<CanonicalLemmaAndPos> hypothesisLemmasAndCanonicalPos = hypothesisData.getLemmasAndCanonicalPos();
+		this.hypothesisLemmasOnly = hypothesisData.getLemmasOnly();
+		this.hypothesisLemmasLowerCase = hypothesisData.getLemmasLowerCase();
+		this.hypothesisTemplates = hypothesisData.getTemplates();
 		
 		
 		// Initialize this finder with the hypothesis
@@ -311,7 +312,8 @@ public class InitializationTextTreesProcessor
 			tree.seal();
 		}
 		// Stores many objects that were created during initialization.
-		operationsEnvironment = new OperationsEnvironment(this.featureUpdate,this.hypothesis,this.hypothesisLemmas,hypothesisLemmasAndCanonicalPos,this.hypothesisLemmasOnly,this.hypothesisLemmasLowerCase,this.hypothesisNumberOfNodes,this.substitutionMultiWordFinder,this.lemmatizer,this.coreferenceInformation,this.mapRuleBasesForLexicalMultiWord,this.hypothesisTemplates, this.multiWordNamedEntityRuleBase, this.richInformationInTreeHistory, teSystemEnvironment.getAlignmentCriteria(),teSystemEnvironment.getStopWords(),teSystemEnvironment.getParser(),teSystemEnvironment.isCollapseMode(),hypothesisTreeAsBasicNode);
+		operationsEnvironment = new OperationsEnvironment(this.featureUpdate,this.hypothesis,this.hypothesisLemmas,hypothesisLemmasAndCanonicalPos,this.hypothesisLemmasOnly,this.hypothesisLemmasLowerCase,this.hypothesisNumberOfNodes,this.substitutionMultiWordFinder,this.lemmatizer,this.coreferenceInformation,this.mapRuleBasesForLexicalMultiWord,this.hypothesisTemplates, this.multiWordNamedEntityRuleBase, this.richInformationInTreeHistory, teSystemEnvironment.getAlignmentCriteria(),teSystemEnvironment.getStopWords(),teSystemEnvironment.getParser(),teSystemEnvironment.isCollapseMode(),hypothesisTreeAsBasicNode,teSystemEnvironment.getGenerationExecutor(),
+				(teSystemEnvironment.getSpecificationsCache()==null)?null:teSystemEnvironment.getSpecificationsCache().forPair(this.hypothesis.getTree(), this.originalTextTrees));
 	}
 	
 	public OriginalTreesAfterInitialization getOriginalTreesAfterInitialization()
@@ -324,38 +326,33 @@ public class InitializationTextTreesProcessor
 	{
 	}
 	
-	private ImmutableSet<String> getHypothesisTemplates() throws TeEngineMlException
+	/**
+	 * Returns the data derived from the hypothesis tree, which is the same for all the pairs that
+	 * share the same hypothesis. The data is calculated only once per hypothesis, even if several
+	 * threads process pairs with the same hypothesis at the same time.
+	 */
+	private HypothesisData getHypothesisData() throws TeEngineMlException
 	{
-		ImmutableSet<String> ret = null;
-		boolean foundInCache = false;
-		if (cacheHypothesisToTemplates.containsKey(sealedOriginalHypothesisTree))
-		{
-			synchronized (cacheHypothesisToTemplates)
-			{
-				if (cacheHypothesisToTemplates.containsKey(sealedOriginalHypothesisTree)) // double-check
-				{
-					ret = cacheHypothesisToTemplates.get(sealedOriginalHypothesisTree);
-					foundInCache = true;
-					logger.debug("hypothesis templates found in cache");
-				}
-			}
-		}
-		if (!foundInCache)
+		final ExtendedNode tree = this.hypothesisTree;
+		final TreeAndParentMap<ExtendedInfo, ExtendedNode> treeAndParentMap = this.hypothesis;
+		HypothesisData ret = cacheHypothesisData.get(sealedOriginalHypothesisTree, new ComputeOnceCache.Computation<SealedObject<ExtendedNode>, HypothesisData, TeEngineMlException>()
 		{
-			TemplatesFromTree<ExtendedInfo, ExtendedNode> hypothesisTemplatesFromTree = new TemplatesFromTree<ExtendedInfo, ExtendedNode>(this.hypothesisTree);
-			hypothesisTemplatesFromTree.createTemplate();
-			ret = new ImmutableSetWrapper<String>(hypothesisTemplatesFromTree.getTemplates());
-			synchronized(cacheHypothesisToTemplates)
+			@Override
+			public HypothesisData compute(SealedObject<ExtendedNode> key) throws TeEngineMlException
 			{
-				cacheHypothesisToTemplates.put(sealedOriginalHypothesisTree, ret);
+				logger.debug("creating hypothesis data (lemmas and templates for DIRT-like resources)...");
+				HypothesisData data = createHypothesisData(tree, treeAndParentMap);
+				logger.debug("creating hypothesis data done.");
+				return data;
 			}
-		}
+		});
 		if (logger.isDebugEnabled())
 		{
+			logger.debug("Hypothesis data cache: "+cacheHypothesisData.getStatistics());
 			StringBuffer sb = new StringBuffer();
-			sb.append("Number of hypothesis templates = "+ret.size());
+			sb.append("Number of hypothesis templates = "+ret.getTemplates().size());
 			sb.append("\n");
-			for (String template : ret)
+			for (String template : ret.getTemplates())
 			{
 				sb.append(template);
 				sb.append("\n");
@@ -365,7 +362,21 @@ public class InitializationTextTreesProcessor
 		return ret;
 	}
 	
-	private ImmutableSet<CanonicalLemmaAndPos> convertToCanonicalSet(ImmutableSet<LemmaAndPos> setLemmaAndPos) throws TeEngineMlException
+	private static HypothesisData createHypothesisData(ExtendedNode tree, TreeAndParentMap<ExtendedInfo, ExtendedNode> treeAndParentMap) throws TeEngineMlException
+	{
+		ImmutableSet<LemmaAndPos> lemmas = new ImmutableSetWrapper<LemmaAndPos>(lemmasAndPosesInTree(tree));
+		ImmutableSet<CanonicalLemmaAndPos> lemmasAndCanonicalPos = convertToCanonicalSet(lemmas);
+		ImmutableSet<String> lemmasOnly = new ImmutableSetWrapper<String>(extractOnlyLemmas(lemmas));
+		Set<String> lemmasLowerCase = Collections.unmodifiableSet(TreeUtilities.constructSetLemmasLowerCase(treeAndParentMap));
+
+		TemplatesFromTree<ExtendedInfo, ExtendedNode> hypothesisTemplatesFromTree = new TemplatesFromTree<ExtendedInfo, ExtendedNode>(tree);
+		hypothesisTemplatesFromTree.createTemplate();
+		ImmutableSet<String> templates = new ImmutableSetWrapper<String>(hypothesisTemplatesFromTree.getTemplates());
+		
+		return new HypothesisData(lemmas, lemmasAndCanonicalPos, lemmasOnly, lemmasLowerCase, templates);
+	}
+	
+	private static ImmutableSet<CanonicalLemmaAndPos> convertToCanonicalSet(ImmutableSet<LemmaAndPos> setLemmaAndPos) throws TeEngineMlException
 	{
 		Set<CanonicalLemmaAndPos> set = new LinkedHashSet<CanonicalLemmaAndPos>();
 		for (LemmaAndPos lemmaAndPos : setLemmaAndPos)
@@ -702,7 +713,7 @@ public class InitializationTextTreesProcessor
 		return ret;
 	}
 	
-	protected Map<Integer, Double> initialFeatureVector() throws TeEngineMlException
+	protected FeatureVector initialFeatureVector() throws TeEngineMlException
 	{
 		try
 		{
@@ -804,8 +815,55 @@ public class InitializationTextTreesProcessor
 	protected GapEnvironment<ExtendedInfo, ExtendedNode> gapEnvironment;
 	protected OriginalTreesAfterInitialization originalTreesAfterInitialization = null;
 	
-	private static final Cache<SealedObject<ExtendedNode>, ImmutableSet<String>> cacheHypothesisToTemplates =
-			new CacheFactory<SealedObject<ExtendedNode>, ImmutableSet<String>>().getCache(CACHE_SIZE_HYPOTHESIS_TEMPLATES);
+	/**
+	 * Data derived from the hypothesis tree, shared by all the pairs with the same hypothesis.
+	 * All the sets are immutable.
+	 */
+	private static final class HypothesisData
+	{
+		public HypothesisData(ImmutableSet<LemmaAndPos> lemmas,
+				ImmutableSet<CanonicalLemmaAndPos> lemmasAndCanonicalPos,
+				ImmutableSet<String> lemmasOnly, Set<String> lemmasLowerCase,
+				ImmutableSet<String> templates)
+		{
+			super();
+			this.lemmas = lemmas;
+			this.lemmasAndCanonicalPos = lemmasAndCanonicalPos;
+			this.lemmasOnly = lemmasOnly;
+			this.lemmasLowerCase = lemmasLowerCase;
+			this.templates = templates;
+		}
+		
+		public ImmutableSet<LemmaAndPos> getLemmas()
+		{
+			return lemmas;
+		}
+		public ImmutableSet<CanonicalLemmaAndPos> getLemmasAndCanonicalPos()
+		{
+			return lemmasAndCanonicalPos;
+		}
+		public ImmutableSet<String> getLemmasOnly()
+		{
+			return lemmasOnly;
+		}
+		public Set<String> getLemmasLowerCase()
+		{
+			return lemmasLowerCase;
+		}
+		public ImmutableSet<String> getTemplates()
+		{
+			return templates;
+		}
+		
+		private final ImmutableSet<LemmaAndPos> lemmas;
+		private final ImmutableSet<CanonicalLemmaAndPos> lemmasAndCanonicalPos;
+		private final ImmutableSet<String> lemmasOnly;
+		private final Set<String> lemmasLowerCase;
+		private final ImmutableSet<String> templates;
+	}
+	
+	private static final ComputeOnceCache<SealedObject<ExtendedNode>, HypothesisData> cacheHypothesisData =
+			new ComputeOnceCache<SealedObject<ExtendedNode>, HypothesisData>(CACHE_SIZE_HYPOTHESIS_TEMPLATES);
 
 	/**
 	 * This field will hold a mapping from the {@link #originalTextTrees} nodes - to
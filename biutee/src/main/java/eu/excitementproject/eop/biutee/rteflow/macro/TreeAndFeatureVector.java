@@ -2,12 +2,16 @@ package eu.excitementproject.eop.biutee.rteflow.macro;
 import java.io.Serializable;
 import java.util.Map;
 
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
 import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
 
 
 /**
  * Encapsulates a tree and a feature-vector.
+ * <P>
+ * The feature-vector is held as a {@link FeatureVector}. A feature-vector given
+ * as another type of map is copied into a {@link FeatureVector}.
  * 
  * @author Asher Stern
  * 
@@ -22,7 +26,7 @@ public class TreeAndFeatureVector implements Serializable
 		if (null==tree) throw new TeEngineMlException("Null tree");
 		if (null==featureVector) throw new TeEngineMlException("Null featureVector");
 		this.tree = tree;
-		this.featureVector = featureVector;
+		this.featureVector = FeatureVector.asFeatureVector(featureVector);
 	}
 	
 	
@@ -31,7 +35,7 @@ public class TreeAndFeatureVector implements Serializable
 	{
 		return tree;
 	}
-	public Map<Integer, Double> getFeatureVector()
+	public FeatureVector getFeatureVector()
 	{
 		return featureVector;
 	}
@@ -39,6 +43,6 @@ public class TreeAndFeatureVector implements Serializable
 
 
 	private ExtendedNode tree;
-	private Map<Integer, Double> featureVector;
+	private FeatureVector featureVector;
 
 }
@@ -1,9 +1,13 @@
 package eu.excitementproject.eop.biutee.rteflow.macro.gap.pastabased;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
 import eu.excitementproject.eop.biutee.classifiers.LinearClassifier;
@@ -12,6 +16,7 @@ import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapEnvironment;
 import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapException;
 import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapFeaturesUpdate;
 import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapHeuristicMeasure;
+import eu.excitementproject.eop.biutee.utilities.BiuteeConstants;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
 import eu.excitementproject.eop.common.representation.parse.tree.AbstractNode;
 import eu.excitementproject.eop.common.representation.parse.tree.AbstractNodeUtils;
@@ -29,6 +34,17 @@ import eu.excitementproject.eop.lap.biu.pasta.identification.PredicateArgumentSt
  * <P>
  * Note that {@link GapHeuristicMeasure} is fully implemented here. The implementation takes the
  * difference between cost-with-gap and cost-without-gap as the measure of the gap.
+ * <P>
+ * The calculator of each tree is cached, so the gap of a tree is calculated only once, even if it is
+ * required several times. Since a calculator holds its tree and the tree's predicate-argument structures,
+ * the cache is bounded by the total number of nodes of the cached trees
+ * ({@link BiuteeConstants#PASTA_GAP_CALCULATORS_CACHE_MAX_NODES}), and the least recently used calculators
+ * are dropped first. The gap tools are created per T-H pair, so the cache is dropped with the pair.
+ * The predicate-argument structures of the surrounding context are built only once per surrounding tree.
+ * <P>
+ * The methods of this class do not lock the object while calculating the gap, so the
+ * gap tools can be used concurrently by several threads (e.g., several search threads).
+ * Sub-classes should keep this property.
  * 
  * @author Asher Stern
  * @since Aug 20, 2013
@@ -52,7 +68,7 @@ public abstract class AbstractPastaBasedGapTools<I extends Info, S extends Abstr
 	}
 	
 	@Override
-	public synchronized double measure(TreeAndParentMap<I, S> tree, Map<Integer, Double> featureVector, GapEnvironment<I, S> environment) throws GapException
+	public double measure(TreeAndParentMap<I, S> tree, Map<Integer, Double> featureVector, GapEnvironment<I, S> environment) throws GapException
 	{
 		try
 		{
@@ -72,40 +88,30 @@ public abstract class AbstractPastaBasedGapTools<I extends Info, S extends Abstr
 	protected abstract C constructCalculator(TreeAndParentMap<I, S> tree, Set<PredicateArgumentStructure<I, S>> textStructures, List<Set<PredicateArgumentStructure<I, S>>> surroundingStructures, Set<String> wholeTextLemmas) throws GapException;
 
 	
-	protected synchronized boolean lastTreeIsTheGivenOne(TreeAndParentMap<I, S> tree)
+	protected C createAndGetCalculator(TreeAndParentMap<I, S> tree, GapEnvironment<I, S> gapEnvironment) throws GapException
 	{
-		if (tree.getTree()==lastTree)
+		CalculatorOfTree<I, S, C> cached;
+		synchronized(calculators)
 		{
-			// extra check
-			if (AbstractNodeUtils.treeSize(tree.getTree())==AbstractNodeUtils.treeSize(lastTree))
-			{
-				return true;
-			}
+			cached = calculators.get(tree.getTree());
 		}
-		return false;
-	}
-	
-	protected synchronized C createAndGetCalculator(TreeAndParentMap<I, S> tree, GapEnvironment<I, S> gapEnvironment) throws GapException
-	{
-		if (calculator!=null)
+		if (cached!=null)
 		{
-			if (lastTreeIsTheGivenOne(tree))
+			if (cached.isFor(tree.getTree(), gapEnvironment))
 			{
-				return calculator;
+				return cached.getCalculator();
 			}
 		}
 
 		try
 		{
-			lastTree = null;
-			lastGapEnvironment = null;
 //			PredicateArgumentStructureBuilder<I, S> builder = builderFactory.createBuilder(tree);
 //			builder.build();
-			calculator = constructCalculator(tree,buildStructuresForTree(tree),
+			C calculator = constructCalculator(tree,buildStructuresForTree(tree),
 					buildStructuresForSurrounding(gapEnvironment.getSurroundingsContext(),tree),
 					gapEnvironment.getWholeTextLemmas());
 			//calculator.calculate(); -- called in constructCalculator
-			lastTree = tree.getTree();
+			cacheCalculator(tree.getTree(), new CalculatorOfTree<I, S, C>(calculator, tree.getTree(), gapEnvironment));
 			return calculator;
 		}
 		catch (PredicateArgumentIdentificationException | TreeAndParentMapException e)
@@ -114,6 +120,52 @@ public abstract class AbstractPastaBasedGapTools<I extends Info, S extends Abstr
 		}
 	}
 	
+	/**
+	 * Puts the given calculator in the cache, and drops the least recently used calculators while
+	 * the cached trees have more than {@link BiuteeConstants#PASTA_GAP_CALCULATORS_CACHE_MAX_NODES}
+	 * nodes. The given calculator itself is kept even if its tree alone is larger.
+	 */
+	private void cacheCalculator(S tree, CalculatorOfTree<I, S, C> calculatorOfTree)
+	{
+		synchronized(calculators)
+		{
+			CalculatorOfTree<I, S, C> replaced = calculators.put(tree, calculatorOfTree);
+			if (replaced!=null)
+			{
+				numberOfCachedNodes -= replaced.getTreeSize();
+			}
+			numberOfCachedNodes += calculatorOfTree.getTreeSize();
+			Iterator<CalculatorOfTree<I, S, C>> iterator = calculators.values().iterator();
+			while ( (numberOfCachedNodes>BiuteeConstants.PASTA_GAP_CALCULATORS_CACHE_MAX_NODES) && (calculators.size()>1) )
+			{
+				numberOfCachedNodes -= iterator.next().getTreeSize();
+				iterator.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of the calculators currently in the cache.
+	 */
+	protected int getNumberOfCachedCalculators()
+	{
+		synchronized(calculators)
+		{
+			return calculators.size();
+		}
+	}
+	
+	/**
+	 * Returns the total number of nodes of the trees of the calculators currently in the cache.
+	 */
+	protected int getNumberOfCachedNodes()
+	{
+		synchronized(calculators)
+		{
+			return numberOfCachedNodes;
+		}
+	}
+	
 	private Set<PredicateArgumentStructure<I, S>> buildStructuresForTree(TreeAndParentMap<I, S> treeAndParentMap) throws PredicateArgumentIdentificationException
 	{
 		PredicateArgumentStructureBuilder<I, S> builder = builderFactory.createBuilder(treeAndParentMap);
@@ -121,6 +173,11 @@ public abstract class AbstractPastaBasedGapTools<I extends Info, S extends Abstr
 		return builder.getPredicateArgumentStructures();
 	}
 
+	/**
+	 * Returns the structures of the given surrounding trees, excluding the given tree.
+	 * The structures of each surrounding tree are built once, so the same set object is
+	 * returned for the same surrounding tree in all the calls.
+	 */
 	private List<Set<PredicateArgumentStructure<I, S>>> buildStructuresForSurrounding(List<S> surrounding, TreeAndParentMap<I, S> exclude) throws PredicateArgumentIdentificationException, TreeAndParentMapException
 	{
 		if (null==surrounding) return null;
@@ -130,11 +187,60 @@ public abstract class AbstractPastaBasedGapTools<I extends Info, S extends Abstr
 		{
 			if (exclude.getTree()!=surroundingTree)
 			{
-				ret.add(buildStructuresForTree(new TreeAndParentMap<I, S>(surroundingTree)));
+				Set<PredicateArgumentStructure<I, S>> structures = structuresOfSurroundingTrees.get(surroundingTree);
+				if (null==structures)
+				{
+					structures = buildStructuresForTree(new TreeAndParentMap<I, S>(surroundingTree));
+					Set<PredicateArgumentStructure<I, S>> existing = structuresOfSurroundingTrees.putIfAbsent(surroundingTree, structures);
+					if (existing!=null) {structures = existing;}
+				}
+				ret.add(structures);
 			}
 		}
 		return ret;
 	}
+	
+	/**
+	 * A calculator, together with the tree and the environment for which it was constructed.
+	 */
+	private static final class CalculatorOfTree<I, S extends AbstractNode<I, S>, C>
+	{
+		public CalculatorOfTree(C calculator, S tree, GapEnvironment<I, S> gapEnvironment)
+		{
+			this.calculator = calculator;
+			this.tree = tree;
+			this.treeSize = AbstractNodeUtils.treeSize(tree);
+			this.gapEnvironment = gapEnvironment;
+		}
+		
+		public C getCalculator()
+		{
+			return calculator;
+		}
+		
+		public int getTreeSize()
+		{
+			return treeSize;
+		}
+		
+		public boolean isFor(S tree, GapEnvironment<I, S> gapEnvironment)
+		{
+			if (tree!=this.tree) return false;
+			// extra check
+			if (AbstractNodeUtils.treeSize(tree)!=treeSize) return false;
+			if (gapEnvironment!=this.gapEnvironment)
+			{
+				if ( (null==gapEnvironment) || (null==this.gapEnvironment) ) return false;
+				if (!gapEnvironment.identical(this.gapEnvironment)) return false;
+			}
+			return true;
+		}
+		
+		private final C calculator;
+		private final S tree;
+		private final int treeSize;
+		private final GapEnvironment<I, S> gapEnvironment;
+	}
 
 
 	
@@ -145,8 +251,11 @@ public abstract class AbstractPastaBasedGapTools<I extends Info, S extends Abstr
 	protected final LinearClassifier classifierForSearch;
 	
 	// internals
-	protected S lastTree = null;
-	protected GapEnvironment<I, S> lastGapEnvironment = null;
-	private C calculator = null;
+	/**
+	 * The cached calculators, in access order (least recently used first). Guarded by itself.
+	 */
+	private final LinkedHashMap<S, CalculatorOfTree<I, S, C>> calculators = new LinkedHashMap<S, CalculatorOfTree<I, S, C>>(16, 0.75f, true);
+	private int numberOfCachedNodes = 0;
+	private final ConcurrentMap<S, Set<PredicateArgumentStructure<I, S>>> structuresOfSurroundingTrees = new ConcurrentHashMap<S, Set<PredicateArgumentStructure<I, S>>>();
 
 }
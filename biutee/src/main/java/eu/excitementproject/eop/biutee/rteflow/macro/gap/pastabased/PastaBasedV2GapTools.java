@@ -12,7 +12,7 @@ import eu.excitementproject.eop.biutee.rteflow.macro.Feature;
 import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapDescription;
 import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapEnvironment;
 import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapException;
-import eu.excitementproject.eop.common.codeannotations.NotThreadSafe;
+import eu.excitementproject.eop.common.codeannotations.ThreadSafe;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
 import eu.excitementproject.eop.common.representation.parse.tree.AbstractNode;
@@ -28,7 +28,7 @@ import eu.excitementproject.eop.lap.biu.en.pasta.PredicateArgumentStructureBuild
  * @param <I>
  * @param <S>
  */
-@NotThreadSafe
+@ThreadSafe
 public class PastaBasedV2GapTools<I extends Info, S extends AbstractNode<I, S>> extends AbstractPastaBasedGapTools<I,S, PastaGapFeaturesV2Calculator<I, S>>
 {
 	public PastaBasedV2GapTools(
@@ -43,7 +43,7 @@ public class PastaBasedV2GapTools<I extends Info, S extends AbstractNode<I, S>>
 
 
 	@Override
-	public synchronized Map<Integer, Double> updateForGap(TreeAndParentMap<I, S> tree,
+	public Map<Integer, Double> updateForGap(TreeAndParentMap<I, S> tree,
 			Map<Integer, Double> featureVector, GapEnvironment<I, S> environment) throws GapException
 	{
 		Map<Integer, Double> ret = new LinkedHashMap<>();
@@ -62,7 +62,7 @@ public class PastaBasedV2GapTools<I extends Info, S extends AbstractNode<I, S>>
 
 	
 	@Override
-	public synchronized GapDescription describeGap(TreeAndParentMap<I, S> tree, GapEnvironment<I, S> environment) throws GapException
+	public GapDescription describeGap(TreeAndParentMap<I, S> tree, GapEnvironment<I, S> environment) throws GapException
 	{
 		PastaGapFeaturesV2Calculator<I, S> theCalculator = createAndGetCalculator(tree,environment);
 		StringBuilder sb = new StringBuilder();
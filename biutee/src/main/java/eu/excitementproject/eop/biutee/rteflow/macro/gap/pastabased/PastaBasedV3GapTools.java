@@ -1,6 +1,8 @@
 package eu.excitementproject.eop.biutee.rteflow.macro.gap.pastabased;
 
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -11,7 +13,7 @@ import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapDescription;
 import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapEnvironment;
 import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapException;
 import eu.excitementproject.eop.biutee.utilities.BiuteeConstants;
-import eu.excitementproject.eop.common.codeannotations.NotThreadSafe;
+import eu.excitementproject.eop.common.codeannotations.ThreadSafe;
 import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
@@ -23,6 +25,11 @@ import eu.excitementproject.eop.lap.biu.en.pasta.PredicateArgumentStructureBuild
 import eu.excitementproject.eop.transformations.utilities.UnigramProbabilityEstimation;
 
 /**
+ * Gap tools based on {@link PastaGapFeaturesV3Calculator}.
+ * <P>
+ * The part of the calculation that does not depend on the text tree is calculated once (as
+ * {@link PastaGapFeaturesV3FixedState}), and shared by the calculators of all the trees.
+ * This class can be used concurrently by several threads.
  * 
  * @author Asher Stern
  * @since Aug 20, 2013
@@ -30,7 +37,7 @@ import eu.excitementproject.eop.transformations.utilities.UnigramProbabilityEsti
  * @param <I>
  * @param <S>
  */
-@NotThreadSafe
+@ThreadSafe
 public class PastaBasedV3GapTools<I extends Info, S extends AbstractNode<I, S>> extends AbstractPastaBasedGapTools<I,S, PastaGapFeaturesV3Calculator<I,S>>
 {
 	public PastaBasedV3GapTools(
@@ -52,7 +59,7 @@ public class PastaBasedV3GapTools<I extends Info, S extends AbstractNode<I, S>>
 	 * @see eu.excitementproject.eop.biutee.rteflow.macro.gap.GapFeaturesUpdate#updateForGap(eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap, java.util.Map, eu.excitementproject.eop.biutee.rteflow.macro.gap.GapEnvironment)
 	 */
 	@Override
-	public synchronized Map<Integer, Double> updateForGap(TreeAndParentMap<I, S> tree,
+	public Map<Integer, Double> updateForGap(TreeAndParentMap<I, S> tree,
 			Map<Integer, Double> featureVector, GapEnvironment<I, S> environment) throws GapException
 	{
 		Map<Integer, Double> ret = new LinkedHashMap<>();
@@ -82,7 +89,7 @@ public class PastaBasedV3GapTools<I extends Info, S extends AbstractNode<I, S>>
 	 * @see eu.excitementproject.eop.biutee.rteflow.macro.gap.GapDescriptionGenerator#describeGap(eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap, eu.excitementproject.eop.biutee.rteflow.macro.gap.GapEnvironment)
 	 */
 	@Override
-	public synchronized GapDescription describeGap(TreeAndParentMap<I, S> tree,
+	public GapDescription describeGap(TreeAndParentMap<I, S> tree,
 			GapEnvironment<I, S> environment) throws GapException
 	{
 		PastaGapFeaturesV3Calculator<I, S> theCalculator = createAndGetCalculator(tree,environment);
@@ -107,10 +114,58 @@ public class PastaBasedV3GapTools<I extends Info, S extends AbstractNode<I, S>>
 	@Override
 	protected PastaGapFeaturesV3Calculator<I,S> constructCalculator(TreeAndParentMap<I, S> tree, Set<PredicateArgumentStructure<I, S>> textStructures, List<Set<PredicateArgumentStructure<I, S>>> surroundingStructures, Set<String> wholeTextLemmas) throws GapException
 	{
-		PastaGapFeaturesV3Calculator<I,S> ret = new PastaGapFeaturesV3Calculator<I,S>(hypothesisTree,hypothesisStructures,tree,textStructures, stopWords, surroundingStructures, wholeTextLemmas);
+		PastaGapFeaturesV3Calculator<I,S> ret = new PastaGapFeaturesV3Calculator<I,S>(getFixedState(surroundingStructures, wholeTextLemmas),tree,textStructures);
 		ret.calculate();
 		return ret;
 	}
+	
+	/**
+	 * Returns the fixed state for the given surrounding structures and whole-text lemmas.
+	 * The fixed state is re-calculated only if they are not the same objects (i.e., identical)
+	 * as those of the last calculated fixed state. Since {@link AbstractPastaBasedGapTools} builds the
+	 * structures of each surrounding tree only once, this happens only when the tree is itself
+	 * one of the surrounding trees (i.e., for the original text tree), or when the environment is changed.
+	 */
+	private PastaGapFeaturesV3FixedState<I, S> getFixedState(List<Set<PredicateArgumentStructure<I, S>>> surroundingStructures, Set<String> wholeTextLemmas)
+	{
+		synchronized(fixedStates)
+		{
+			for (PastaGapFeaturesV3FixedState<I, S> fixedState : fixedStates)
+			{
+				if ( (fixedState.getWholeTextLemmas()==wholeTextLemmas) && (identicalLists(fixedState.getSurroundingStructures(),surroundingStructures)) )
+				{
+					return fixedState;
+				}
+			}
+		}
+		
+		// Calculated without holding the lock. Two threads might calculate the same state, which is harmless.
+		PastaGapFeaturesV3FixedState<I, S> fixedState = new PastaGapFeaturesV3FixedState<I, S>(hypothesisTree, hypothesisStructures, stopWords, surroundingStructures, wholeTextLemmas);
+		fixedState.calculate();
+		synchronized(fixedStates)
+		{
+			fixedStates.addFirst(fixedState);
+			while (fixedStates.size()>NUMBER_OF_FIXED_STATES)
+			{
+				fixedStates.removeLast();
+			}
+		}
+		return fixedState;
+	}
+	
+	private static <T> boolean identicalLists(List<T> list1, List<T> list2)
+	{
+		if (list1==list2) return true;
+		if ( (null==list1) || (null==list2) ) return false;
+		if (list1.size()!=list2.size()) return false;
+		Iterator<T> iterator1 = list1.iterator();
+		Iterator<T> iterator2 = list2.iterator();
+		while (iterator1.hasNext())
+		{
+			if (iterator1.next()!=iterator2.next()) return false;
+		}
+		return true;
+	}
 
 	
 	private void updateFeature(Map<Integer, Double> featureVector, Feature feature, List<PredicateAndArgument<I, S>> listMismatch, boolean constantValue) throws GapException
@@ -263,4 +318,11 @@ public class PastaBasedV3GapTools<I extends Info, S extends AbstractNode<I, S>>
 
 	protected final UnigramProbabilityEstimation mleEstimation;
 	private final ImmutableSet<String> stopWords;
+	
+	/**
+	 * Usually two fixed states are used: one for the original text tree, which is one of the
+	 * surrounding trees, and one for all the other trees.
+	 */
+	private static final int NUMBER_OF_FIXED_STATES = 2;
+	private final LinkedList<PastaGapFeaturesV3FixedState<I, S>> fixedStates = new LinkedList<PastaGapFeaturesV3FixedState<I, S>>();
 }
@@ -7,10 +7,8 @@ import java.util.List;
 import java.util.Set;
 
 import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapException;
-import eu.excitementproject.eop.biutee.utilities.BiuteeConstants;
 import eu.excitementproject.eop.common.datastructures.SimpleValueSetMap;
 import eu.excitementproject.eop.common.datastructures.ValueSetMap;
-import eu.excitementproject.eop.common.datastructures.immutable.ImmutableList;
 import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
@@ -22,12 +20,14 @@ import eu.excitementproject.eop.common.representation.pasta.PredicateArgumentStr
 import eu.excitementproject.eop.common.representation.pasta.TypedArgument;
 import eu.excitementproject.eop.common.utilities.Utils;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
-import eu.excitementproject.eop.transformations.utilities.InfoObservations;
 import eu.excitementproject.eop.transformations.utilities.parsetreeutils.AdvancedEqualities;
-import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeUtilities;
 
 /**
  * Calculates data-structures from which gap features are retrieved.
+ * <P>
+ * The parts of the calculation that do not depend on the text tree are given
+ * as a {@link PastaGapFeaturesV3FixedState}, which is calculated once and shared by the
+ * calculators of all the trees.
  * 
  * @see PastaBasedV3GapTools
  * 
@@ -39,28 +39,20 @@ import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeUti
  */
 public class PastaGapFeaturesV3Calculator<I extends Info, S extends AbstractNode<I, S>>
 {
-	public PastaGapFeaturesV3Calculator(TreeAndParentMap<I, S> hypothesisTree,
-			Set<PredicateArgumentStructure<I, S>> hypothesisStructures,
+	public PastaGapFeaturesV3Calculator(PastaGapFeaturesV3FixedState<I, S> fixedState,
 			TreeAndParentMap<I, S> textTree,
-			Set<PredicateArgumentStructure<I, S>> textStructures,
-			ImmutableSet<String> stopWords,
-			List<Set<PredicateArgumentStructure<I, S>>> surroundingStructures,
-			Set<String> wholeTextLemmas)
+			Set<PredicateArgumentStructure<I, S>> textStructures)
 	{
 		super();
-		this.hypothesisTree = hypothesisTree;
-		this.hypothesisStructures = hypothesisStructures;
+		this.fixedState = fixedState;
+		this.hypothesisStructures = fixedState.getHypothesisStructures();
 		this.textTree = textTree;
 		this.textStructures = textStructures;
-		this.stopWords = stopWords;
-		this.surroundingStructures = surroundingStructures;
-		this.wholeTextLemmas = wholeTextLemmas;
 	}
 	
 	
 	public void calculate() throws GapException
 	{
-		buildContentLemmasOfHypothesis();
 		buildLemmasOfText();
 		buildArgumentMap();
 		buildMapPredicatesHypothesisToText();
@@ -125,29 +117,13 @@ public class PastaGapFeaturesV3Calculator<I extends Info, S extends AbstractNode
 	//////////////////// PRIVATE ////////////////////
 
 
-	private void buildContentLemmasOfHypothesis()
-	{
-		Set<S> hypothesisPredicateNodes = getPredicateNodes(hypothesisStructures);
-		contentLemmasOfHypothesisNonPredicates_lowerCase = contentLemmasOfNodes_lowerCase(TreeIterator.iterableTree(hypothesisTree.getTree()),hypothesisPredicateNodes);
-		contentLemmasOfHypothesisPredicates_lowerCase = contentLemmasOfNodes_lowerCase(hypothesisPredicateNodes);
-	}
-	
 	private void buildLemmasOfText()
 	{
 		lemmasOfText_lowerCase = new LinkedHashSet<>();
 		
 		addLemmasOfTextFromTree(textTree.getTree());
-		addLemmasOfTextFromStructures(textStructures);
-
-		if (surroundingStructures!=null)
-		{
-			for (Set<PredicateArgumentStructure<I, S>> structures : surroundingStructures)
-			{
-				addLemmasOfTextFromStructures(structures);
-			}
-		}
-		
-		lemmasOfText_lowerCase.addAll(wholeTextLemmas);
+		PastaGapFeaturesV3FixedState.addLemmasOfStructures(textStructures, lemmasOfText_lowerCase);
+		lemmasOfText_lowerCase.addAll(fixedState.getLemmasOfSurrounding_lowerCase());
 	}
 	
 	private void addLemmasOfTextFromTree(S tree)
@@ -158,74 +134,36 @@ public class PastaGapFeaturesV3Calculator<I extends Info, S extends AbstractNode
 		}
 	}
 	
-	private void addLemmasOfTextFromStructures(Set<PredicateArgumentStructure<I, S>> structures)
-	{
-		for (PredicateArgumentStructure<I, S> textStructure : structures)
-		{
-			ImmutableList<String> verbalForms = textStructure.getPredicate().getVerbsForNominal();
-			if (verbalForms!=null)
-			{
-				for (String verbal : verbalForms)
-				{
-					lemmasOfText_lowerCase.add(verbal);
-				}
-			}
-		}
-	}
-	
+	/**
+	 * Builds the map from hypothesis arguments to matching arguments of the text tree.
+	 * The matching arguments of the surrounding structures are taken from the fixed state.
+	 */
 	private void buildArgumentMap()
 	{
 		mapArgumentsHypothesisToText = new SimpleValueSetMap<>();
 		
-		hypothesisArguments = listOfArguments(hypothesisStructures);
+		hypothesisArguments = fixedState.getHypothesisArguments();
 		
-		textArguments = listOfArguments(textStructures);
-		
-		if (surroundingStructures!=null)
-		{
-			for (Set<PredicateArgumentStructure<I, S>> structures : surroundingStructures)
-			{
-				textArguments.addAll(listOfArguments(structures));
-			}
-		}
+		List<PredicateAndArgument<I, S>> textArguments = PastaGapFeaturesV3FixedState.listOfArguments(textStructures);
 		
+		ValueSetMap<PredicateAndArgument<I, S>, PredicateAndArgument<I, S>> mapArgumentsHypothesisToSurrounding = fixedState.getMapArgumentsHypothesisToSurrounding();
 		for (PredicateAndArgument<I, S> hypothesisArgument : hypothesisArguments)
 		{
 			for (PredicateAndArgument<I, S> textArgument : textArguments)
 			{
-				if (argumentsMatch(textArgument,hypothesisArgument))
+				if (PastaGapFeaturesV3FixedState.argumentsMatch(textArgument,hypothesisArgument))
 				{
 					mapArgumentsHypothesisToText.put(hypothesisArgument, textArgument);	
 				}
 			}
-		}
-	}
-	
-	private boolean argumentsMatch(PredicateAndArgument<I, S> textArgument, PredicateAndArgument<I, S> hypothesisArgument)
-	{
-		String hypothesisLemma = InfoGetFields.getLemma(hypothesisArgument.getArgument().getArgument().getSemanticHead().getInfo()).toLowerCase();
-		if (BiuteeConstants.PASTA_GAP_STRICT_ARGUMENT_HEAD_MODE)
-		{
-			String textLemma = InfoGetFields.getLemma(textArgument.getArgument().getArgument().getSemanticHead().getInfo()).toLowerCase();
-			return textLemma.equals(hypothesisLemma);
-		}
-		else
-		{
-			return (TreeUtilities.lemmasLowerCaseOfNodes(textArgument.getArgument().getArgument().getNodes()).contains(hypothesisLemma));
-		}
-	}
-	
-	private List<PredicateAndArgument<I, S>> listOfArguments(Set<PredicateArgumentStructure<I, S>> structures)
-	{
-		List<PredicateAndArgument<I, S>> ret = new LinkedList<>();
-		for (PredicateArgumentStructure<I, S> structure : structures)
-		{
-			for (TypedArgument<I, S> argument : structure.getArguments())
+			if (mapArgumentsHypothesisToSurrounding.containsKey(hypothesisArgument))
 			{
-				ret.add(new PredicateAndArgument<I,S>(structure, argument));
+				for (PredicateAndArgument<I, S> surroundingArgument : mapArgumentsHypothesisToSurrounding.get(hypothesisArgument))
+				{
+					mapArgumentsHypothesisToText.put(hypothesisArgument, surroundingArgument);
+				}
 			}
 		}
-		return ret;
 	}
 	
 	private void buildMapPredicatesHypothesisToText()
@@ -259,8 +197,10 @@ public class PastaGapFeaturesV3Calculator<I extends Info, S extends AbstractNode
 		calculatedMatchMissingWords = new LinkedList<>();
 		calculatedMatch = new LinkedList<>();
 
+		int hypothesisArgumentIndex = -1;
 		for (PredicateAndArgument<I, S> hypothesisArgument : hypothesisArguments)
 		{
+			++hypothesisArgumentIndex;
 			//if (!mapArgumentsHypothesisToText.containsKey(hypothesisArgument))
 
 			String hypothesisArgumentLemma_lowerCase = InfoGetFields.getLemma(hypothesisArgument.getArgument().getArgument().getSemanticHead().getInfo()).toLowerCase();
@@ -281,7 +221,7 @@ public class PastaGapFeaturesV3Calculator<I extends Info, S extends AbstractNode
 				boolean predicateOK = false;
 				boolean wordsOK = false;
 				
-				Set<String> hypothesisArgumentContentLemmas_lowerCase = contentLemmasOfArgument_lowerCase(hypothesisArgument.getArgument());
+				Set<String> hypothesisArgumentContentLemmas_lowerCase = fixedState.getContentLemmasOfHypothesisArgument_lowerCase(hypothesisArgumentIndex);
 				
 				if (mapArgumentsHypothesisToText.containsKey(hypothesisArgument))
 				{
@@ -308,8 +248,8 @@ public class PastaGapFeaturesV3Calculator<I extends Info, S extends AbstractNode
 //		private Set<String> calculatedTotallyOmittedHypothesisContentLemmasNonPredicates;
 //		private Set<String> calculatedTotallyOmittedHypothesisContentLemmasPredicates;
 
-		calculatedTotallyOmittedHypothesisContentLemmasNonPredicates = notIncludedInText(contentLemmasOfHypothesisNonPredicates_lowerCase);
-		calculatedTotallyOmittedHypothesisContentLemmasPredicates = notIncludedInText(contentLemmasOfHypothesisPredicates_lowerCase);
+		calculatedTotallyOmittedHypothesisContentLemmasNonPredicates = notIncludedInText(fixedState.getContentLemmasOfHypothesisNonPredicates_lowerCase());
+		calculatedTotallyOmittedHypothesisContentLemmasPredicates = notIncludedInText(fixedState.getContentLemmasOfHypothesisPredicates_lowerCase());
 		
 		calculatePredicateNoMatch();
 	}
@@ -400,56 +340,6 @@ public class PastaGapFeaturesV3Calculator<I extends Info, S extends AbstractNode
 	}
 	
 	
-	private Set<String> contentLemmasOfArgument_lowerCase(TypedArgument<I, S> argument)
-	{
-		return contentLemmasOfNodes_lowerCase(argument.getArgument().getNodes());
-	}
-
-	private Set<String> contentLemmasOfNodes_lowerCase(Iterable<S> nodes)
-	{
-		return contentLemmasOfNodes_lowerCase(nodes,null);
-	}
-
-	private Set<String> contentLemmasOfNodes_lowerCase(Iterable<S> nodes, Set<S> exclude)
-	{
-		Set<String> ret = new LinkedHashSet<>();
-		for (S node : nodes)
-		{
-			if (!setContains(exclude,node))
-			{
-				if (InfoObservations.infoIsContentWord(node.getInfo()))
-				{
-					String lemma = InfoGetFields.getLemma(node.getInfo()).toLowerCase();
-					if (!(stopWords.contains(lemma)))
-					{
-						ret.add(lemma);
-					}
-				}
-			}
-		}
-		return ret;
-	}
-	
-	private static final <T> boolean setContains(Set<T> set, T t)
-	{
-		if (null==set) return false;
-		else return (set.contains(t));
-	}
-	
-	
-	private Set<S> getPredicateNodes(Set<PredicateArgumentStructure<I, S>> structures)
-	{
-		Set<S> ret = new LinkedHashSet<>();
-		for (PredicateArgumentStructure<I, S> structure : structures)
-		{
-			ret.add(structure.getPredicate().getHead());
-			//ret.addAll(structure.getPredicate().getNodes()); - wrong. "not sell" makes "not" as a predicate node.
-		}
-		return ret;
-	}
-	
-
-	
 	
 //	private void fillContentWordSets(Iterable<S> nodes, Set<String> lemmas, Set<CanonicalLemmaAndPos> lemmaAndPoses) throws TeEngineMlException
 //	{
@@ -500,22 +390,16 @@ public class PastaGapFeaturesV3Calculator<I extends Info, S extends AbstractNode
 	
 	
 	// input
-	private final TreeAndParentMap<I, S> hypothesisTree;
+	private final PastaGapFeaturesV3FixedState<I, S> fixedState;
 	private final Set<PredicateArgumentStructure<I, S>> hypothesisStructures;
 	private final TreeAndParentMap<I, S> textTree;
 	private final Set<PredicateArgumentStructure<I, S>> textStructures;
-	private final ImmutableSet<String> stopWords;
-	private final List<Set<PredicateArgumentStructure<I, S>>> surroundingStructures;
-	private final Set<String> wholeTextLemmas;
 	
 	
 	// internals
-	private Set<String> contentLemmasOfHypothesisNonPredicates_lowerCase;
-	private Set<String> contentLemmasOfHypothesisPredicates_lowerCase;
 	private Set<String> lemmasOfText_lowerCase;
 	private ValueSetMap<PredicateAndArgument<I, S>, PredicateAndArgument<I, S>> mapArgumentsHypothesisToText;
 	private List<PredicateAndArgument<I, S>> hypothesisArguments;
-	private List<PredicateAndArgument<I, S>> textArguments;
 	/**
 	 * Map from hypothesis predicates to matching text predicates.
 	 * If the matching text predicate has matching truth-value, than its flag is true.
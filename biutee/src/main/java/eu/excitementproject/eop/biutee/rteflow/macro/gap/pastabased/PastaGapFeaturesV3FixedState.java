@@ -0,0 +1,274 @@
+package eu.excitementproject.eop.biutee.rteflow.macro.gap.pastabased;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import eu.excitementproject.eop.biutee.utilities.BiuteeConstants;
+import eu.excitementproject.eop.common.datastructures.SimpleValueSetMap;
+import eu.excitementproject.eop.common.datastructures.ValueSetMap;
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableList;
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
+import eu.excitementproject.eop.common.representation.parse.tree.AbstractNode;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeIterator;
+import eu.excitementproject.eop.common.representation.pasta.PredicateArgumentStructure;
+import eu.excitementproject.eop.common.representation.pasta.TypedArgument;
+import eu.excitementproject.eop.transformations.utilities.InfoObservations;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeUtilities;
+
+/**
+ * The part of the calculation of {@link PastaGapFeaturesV3Calculator} which does not depend
+ * on the text tree: the hypothesis arguments and content lemmas, and the lemmas and arguments
+ * of the surrounding context, as well as the matches between the hypothesis arguments and
+ * the arguments of the surrounding context.
+ * <P>
+ * This state is calculated once per T-H pair (see {@link PastaBasedV3GapTools}), and shared by
+ * the calculators of all the trees generated during the search. Thus, the calculation per tree
+ * involves only the text tree and its predicate-argument structures.
+ * <P>
+ * The state is not changed after {@link #calculate()}, so it can be used concurrently by several threads.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ * @param <I>
+ * @param <S>
+ */
+public class PastaGapFeaturesV3FixedState<I extends Info, S extends AbstractNode<I, S>>
+{
+	public PastaGapFeaturesV3FixedState(TreeAndParentMap<I, S> hypothesisTree,
+			Set<PredicateArgumentStructure<I, S>> hypothesisStructures,
+			ImmutableSet<String> stopWords,
+			List<Set<PredicateArgumentStructure<I, S>>> surroundingStructures,
+			Set<String> wholeTextLemmas)
+	{
+		super();
+		this.hypothesisTree = hypothesisTree;
+		this.hypothesisStructures = hypothesisStructures;
+		this.stopWords = stopWords;
+		this.surroundingStructures = surroundingStructures;
+		this.wholeTextLemmas = wholeTextLemmas;
+	}
+
+	public void calculate()
+	{
+		buildContentLemmasOfHypothesis();
+		buildHypothesisArguments();
+		buildLemmasOfSurrounding();
+		buildSurroundingArgumentMap();
+	}
+
+
+	public Set<PredicateArgumentStructure<I, S>> getHypothesisStructures()
+	{
+		return hypothesisStructures;
+	}
+
+	public ImmutableSet<String> getStopWords()
+	{
+		return stopWords;
+	}
+
+	public List<Set<PredicateArgumentStructure<I, S>>> getSurroundingStructures()
+	{
+		return surroundingStructures;
+	}
+
+	public Set<String> getWholeTextLemmas()
+	{
+		return wholeTextLemmas;
+	}
+
+	public Set<String> getContentLemmasOfHypothesisNonPredicates_lowerCase()
+	{
+		return contentLemmasOfHypothesisNonPredicates_lowerCase;
+	}
+
+	public Set<String> getContentLemmasOfHypothesisPredicates_lowerCase()
+	{
+		return contentLemmasOfHypothesisPredicates_lowerCase;
+	}
+
+	public List<PredicateAndArgument<I, S>> getHypothesisArguments()
+	{
+		return hypothesisArguments;
+	}
+
+	/**
+	 * Returns the content lemmas of the hypothesis argument at the given position
+	 * in {@link #getHypothesisArguments()}.
+	 */
+	public Set<String> getContentLemmasOfHypothesisArgument_lowerCase(int hypothesisArgumentIndex)
+	{
+		return contentLemmasOfHypothesisArguments_lowerCase.get(hypothesisArgumentIndex);
+	}
+
+	/**
+	 * Returns the lemmas of the surrounding context, i.e., the verbal forms of the predicates
+	 * of the surrounding structures, and the lemmas of the whole text.
+	 */
+	public Set<String> getLemmasOfSurrounding_lowerCase()
+	{
+		return lemmasOfSurrounding_lowerCase;
+	}
+
+	/**
+	 * Returns a map from hypothesis arguments to the matching arguments of the surrounding structures.
+	 */
+	public ValueSetMap<PredicateAndArgument<I, S>, PredicateAndArgument<I, S>> getMapArgumentsHypothesisToSurrounding()
+	{
+		return mapArgumentsHypothesisToSurrounding;
+	}
+
+
+
+	public static <I extends Info, S extends AbstractNode<I, S>> boolean argumentsMatch(PredicateAndArgument<I, S> textArgument, PredicateAndArgument<I, S> hypothesisArgument)
+	{
+		String hypothesisLemma = InfoGetFields.getLemma(hypothesisArgument.getArgument().getArgument().getSemanticHead().getInfo()).toLowerCase();
+		if (BiuteeConstants.PASTA_GAP_STRICT_ARGUMENT_HEAD_MODE)
+		{
+			String textLemma = InfoGetFields.getLemma(textArgument.getArgument().getArgument().getSemanticHead().getInfo()).toLowerCase();
+			return textLemma.equals(hypothesisLemma);
+		}
+		else
+		{
+			return (TreeUtilities.lemmasLowerCaseOfNodes(textArgument.getArgument().getArgument().getNodes()).contains(hypothesisLemma));
+		}
+	}
+
+	public static <I extends Info, S extends AbstractNode<I, S>> List<PredicateAndArgument<I, S>> listOfArguments(Set<PredicateArgumentStructure<I, S>> structures)
+	{
+		List<PredicateAndArgument<I, S>> ret = new LinkedList<>();
+		for (PredicateArgumentStructure<I, S> structure : structures)
+		{
+			for (TypedArgument<I, S> argument : structure.getArguments())
+			{
+				ret.add(new PredicateAndArgument<I,S>(structure, argument));
+			}
+		}
+		return ret;
+	}
+
+	public static <I extends Info, S extends AbstractNode<I, S>> void addLemmasOfStructures(Set<PredicateArgumentStructure<I, S>> structures, Set<String> lemmas)
+	{
+		for (PredicateArgumentStructure<I, S> structure : structures)
+		{
+			ImmutableList<String> verbalForms = structure.getPredicate().getVerbsForNominal();
+			if (verbalForms!=null)
+			{
+				for (String verbal : verbalForms)
+				{
+					lemmas.add(verbal);
+				}
+			}
+		}
+	}
+
+
+	//////////////////// PRIVATE ////////////////////
+
+	private void buildContentLemmasOfHypothesis()
+	{
+		Set<S> hypothesisPredicateNodes = getPredicateNodes(hypothesisStructures);
+		contentLemmasOfHypothesisNonPredicates_lowerCase = contentLemmasOfNodes_lowerCase(TreeIterator.iterableTree(hypothesisTree.getTree()),hypothesisPredicateNodes);
+		contentLemmasOfHypothesisPredicates_lowerCase = contentLemmasOfNodes_lowerCase(hypothesisPredicateNodes,null);
+	}
+
+	private void buildHypothesisArguments()
+	{
+		hypothesisArguments = new ArrayList<>(listOfArguments(hypothesisStructures));
+		contentLemmasOfHypothesisArguments_lowerCase = new ArrayList<>(hypothesisArguments.size());
+		for (PredicateAndArgument<I, S> hypothesisArgument : hypothesisArguments)
+		{
+			contentLemmasOfHypothesisArguments_lowerCase.add(contentLemmasOfNodes_lowerCase(hypothesisArgument.getArgument().getArgument().getNodes(),null));
+		}
+	}
+
+	private void buildLemmasOfSurrounding()
+	{
+		lemmasOfSurrounding_lowerCase = new LinkedHashSet<>();
+		if (surroundingStructures!=null)
+		{
+			for (Set<PredicateArgumentStructure<I, S>> structures : surroundingStructures)
+			{
+				addLemmasOfStructures(structures, lemmasOfSurrounding_lowerCase);
+			}
+		}
+		lemmasOfSurrounding_lowerCase.addAll(wholeTextLemmas);
+	}
+
+	private void buildSurroundingArgumentMap()
+	{
+		mapArgumentsHypothesisToSurrounding = new SimpleValueSetMap<>();
+		if (surroundingStructures!=null)
+		{
+			List<PredicateAndArgument<I, S>> surroundingArguments = new LinkedList<>();
+			for (Set<PredicateArgumentStructure<I, S>> structures : surroundingStructures)
+			{
+				surroundingArguments.addAll(listOfArguments(structures));
+			}
+			for (PredicateAndArgument<I, S> hypothesisArgument : hypothesisArguments)
+			{
+				for (PredicateAndArgument<I, S> surroundingArgument : surroundingArguments)
+				{
+					if (argumentsMatch(surroundingArgument,hypothesisArgument))
+					{
+						mapArgumentsHypothesisToSurrounding.put(hypothesisArgument, surroundingArgument);
+					}
+				}
+			}
+		}
+	}
+
+	private Set<String> contentLemmasOfNodes_lowerCase(Iterable<S> nodes, Set<S> exclude)
+	{
+		Set<String> ret = new LinkedHashSet<>();
+		for (S node : nodes)
+		{
+			if ( (null==exclude) || (!exclude.contains(node)) )
+			{
+				if (InfoObservations.infoIsContentWord(node.getInfo()))
+				{
+					String lemma = InfoGetFields.getLemma(node.getInfo()).toLowerCase();
+					if (!(stopWords.contains(lemma)))
+					{
+						ret.add(lemma);
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+	private Set<S> getPredicateNodes(Set<PredicateArgumentStructure<I, S>> structures)
+	{
+		Set<S> ret = new LinkedHashSet<>();
+		for (PredicateArgumentStructure<I, S> structure : structures)
+		{
+			ret.add(structure.getPredicate().getHead());
+			//ret.addAll(structure.getPredicate().getNodes()); - wrong. "not sell" makes "not" as a predicate node.
+		}
+		return ret;
+	}
+
+
+	// input
+	private final TreeAndParentMap<I, S> hypothesisTree;
+	private final Set<PredicateArgumentStructure<I, S>> hypothesisStructures;
+	private final ImmutableSet<String> stopWords;
+	private final List<Set<PredicateArgumentStructure<I, S>>> surroundingStructures;
+	private final Set<String> wholeTextLemmas;
+
+	// output
+	private Set<String> contentLemmasOfHypothesisNonPredicates_lowerCase;
+	private Set<String> contentLemmasOfHypothesisPredicates_lowerCase;
+	private List<PredicateAndArgument<I, S>> hypothesisArguments;
+	private List<Set<String>> contentLemmasOfHypothesisArguments_lowerCase;
+	private Set<String> lemmasOfSurrounding_lowerCase;
+	private ValueSetMap<PredicateAndArgument<I, S>, PredicateAndArgument<I, S>> mapArgumentsHypothesisToSurrounding;
+}
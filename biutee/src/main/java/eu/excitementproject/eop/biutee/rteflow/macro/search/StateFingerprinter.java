@@ -0,0 +1,18 @@
+package eu.excitementproject.eop.biutee.rteflow.macro.search;
+
+/**
+ * Calculates a fingerprint of a search state. Two states with the same fingerprint
+ * are considered duplicates, such that a search algorithm may keep only the best of them.
+ * 
+ * @see eu.excitementproject.eop.biutee.rteflow.macro.search.astar.AStarAlgorithm#setStateFingerprinter(StateFingerprinter)
+ * @see eu.excitementproject.eop.biutee.rteflow.macro.search.kstaged.KStagedAlgorithm#setStateFingerprinter(StateFingerprinter)
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ * @param <T> the type of the search states
+ */
+public interface StateFingerprinter<T>
+{
+	public long getFingerprint(T state);
+}
@@ -2,13 +2,17 @@ package eu.excitementproject.eop.biutee.rteflow.macro.search.astar;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
 
+import eu.excitementproject.eop.biutee.rteflow.macro.search.StateFingerprinter;
+
 /**
  * A generic implementation of A* algorithm, using priority queue.
  * 
@@ -201,6 +205,21 @@ public class AStarAlgorithm<T extends Comparable<T>>
 	{
 		this.whenEqualTakeAll = whenEqualTakeAll;
 	}
+	
+	/**
+	 * Directs the algorithm to eliminate duplicate states, i.e., states that have
+	 * the same fingerprint. A state is not inserted into the queue if a state with
+	 * the same fingerprint has already been expanded, or if a state with the same
+	 * fingerprint, which is not worse than it, is already in the queue.
+	 * <BR>
+	 * Default - null (no elimination of duplicate states).
+	 * 
+	 * @param stateFingerprinter
+	 */
+	public void setStateFingerprinter(StateFingerprinter<T> stateFingerprinter)
+	{
+		this.stateFingerprinter = stateFingerprinter;
+	}
 
 	/**
 	 * <B>This is the main method</B> - find the goal state by A* algorithm.
@@ -267,6 +286,17 @@ public class AStarAlgorithm<T extends Comparable<T>>
 		return numberOfExpansiveGeneratedElements;
 	}
 	
+	/**
+	 * Returns the number of states that were discarded since they are duplicates of
+	 * other states. Always 0 if {@link #setStateFingerprinter(StateFingerprinter)}
+	 * was not called.
+	 * @return the number of states that were discarded as duplicates.
+	 */
+	public long getNumberOfPrunedDuplicates()
+	{
+		return numberOfPrunedDuplicates;
+	}
+	
 	public boolean isEndedWithEmptyQueue()
 	{
 		return endedWithEmptyQueue;
@@ -282,7 +312,7 @@ public class AStarAlgorithm<T extends Comparable<T>>
 		createInitialQueue();
 		searchGivenQueue();
 		
-		logger.info("Search done. Queue size = "+priorityQueue.size()+". Number of goal states = "+foundGoalStates.size());
+		logger.info("Search done. Queue size = "+priorityQueue.size()+". Number of goal states = "+foundGoalStates.size()+". Number of pruned duplicates = "+numberOfPrunedDuplicates);
 		searchDone=true;
 	}
 	
@@ -335,10 +365,60 @@ public class AStarAlgorithm<T extends Comparable<T>>
 	protected void createInitialQueue()
 	{
 		priorityQueue = new PriorityQueue<T>();
+		closedFingerprints = new LinkedHashSet<Long>();
+		bestInQueueByFingerprint = new LinkedHashMap<Long, T>();
 		for (T startState : startStates)
 		{
-			priorityQueue.offer(startState);
+			offer(startState);
+		}
+	}
+	
+	/**
+	 * Inserts the given state into the queue, unless it is a duplicate of a state
+	 * that has already been expanded, or of a better (or equal) state in the queue.
+	 */
+	protected void offer(T state)
+	{
+		if (stateFingerprinter!=null)
+		{
+			Long fingerprint = stateFingerprinter.getFingerprint(state);
+			if (closedFingerprints.contains(fingerprint))
+			{
+				++numberOfPrunedDuplicates;
+				return;
+			}
+			T bestInQueue = bestInQueueByFingerprint.get(fingerprint);
+			if ( (bestInQueue!=null) && (bestInQueue.compareTo(state)<=0) )
+			{
+				++numberOfPrunedDuplicates;
+				return;
+			}
+			// If there is a worse duplicate in the queue, it will be discarded when polled,
+			// since this state will be polled (and closed) before it.
+			bestInQueueByFingerprint.put(fingerprint, state);
+		}
+		priorityQueue.offer(state);
+	}
+	
+	/**
+	 * Marks the given state as expanded. Returns <tt>false</tt> if a state with the
+	 * same fingerprint has already been expanded, in which case the given state should
+	 * not be expanded.
+	 */
+	protected boolean close(T state)
+	{
+		if (stateFingerprinter!=null)
+		{
+			Long fingerprint = stateFingerprinter.getFingerprint(state);
+			if (!closedFingerprints.add(fingerprint))
+			{
+				++numberOfPrunedDuplicates;
+				return false;
+			}
+			bestInQueueByFingerprint.remove(fingerprint);
 		}
+		closedSet.add(state);
+		return true;
 	}
 	
 	protected void searchGivenQueue() throws AStarException
@@ -392,8 +472,8 @@ public class AStarAlgorithm<T extends Comparable<T>>
 //					logger.debug(lastSpecDesc);
 //				}
 
+				if (!close(currentBestState)) continue;
 				++numberOfExpandedElements;
-				closedSet.add(currentBestState);
 				boolean currentIsGoal = false;
 				if (stateCalculations.isGoal(currentBestState))
 				{
@@ -414,7 +494,7 @@ public class AStarAlgorithm<T extends Comparable<T>>
 					}
 					for (T child : children)
 					{
-						priorityQueue.offer(child);
+						offer(child);
 					}
 				}
 			}
@@ -452,12 +532,15 @@ public class AStarAlgorithm<T extends Comparable<T>>
 	
 	private PriorityQueue<T> priorityQueue;
 	private Set<T> closedSet;
+	private Set<Long> closedFingerprints;
+	private Map<Long, T> bestInQueueByFingerprint;
 	private List<T> foundGoalStates;
 	private boolean found=false;
 	
 	private long numberOfExpandedElements = 0;
 	private long numberOfGeneratedElements = 0;
 	private long numberOfExpansiveGeneratedElements = 0;
+	private long numberOfPrunedDuplicates = 0;
 	private boolean endedWithEmptyQueue = false;
 	
 	
@@ -466,6 +549,7 @@ public class AStarAlgorithm<T extends Comparable<T>>
 	private long maxNumberOfGenerations = -1; 
 	private long maxNumberOfExpensiveGenerations = -1;
 	private boolean whenEqualTakeAll = false;
+	private StateFingerprinter<T> stateFingerprinter = null;
 	
 	private StateManipulator<T> stateManipulator = null;
 	
@@ -10,6 +10,7 @@ import java.util.Set;
 import org.apache.log4j.Logger;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.classifiers.LinearClassifier;
 import eu.excitementproject.eop.biutee.rteflow.macro.AbstractTextTreesProcessor;
 import eu.excitementproject.eop.biutee.rteflow.macro.TreeAndFeatureVector;
@@ -232,7 +233,7 @@ public class AStarLocalCreativeTextTreesProcessor extends AbstractTextTreesProce
 			boolean itIsGoal = (evaluations.getMissingRelations()==0);
 			double unweightedFutureEstimation = GeneratedTreeStateCalculations.generateUnweightedFutureEstimation(evaluations);
 			double futureEstimation = GeneratedTreeStateCalculations.generateFutureEstimation(evaluations,weightOfFuture);
-			Map<Integer,Double> initialFeatureVector = initialFeatureVector();
+			FeatureVector initialFeatureVector = initialFeatureVector();
 			double initialCost = GeneratedTreeStateCalculations.generateCost(this.classifier, initialFeatureVector, weightOfCost);
 			AStarLocalCreativeElement element = 
 				new AStarLocalCreativeElement(
@@ -10,6 +10,7 @@ import java.util.Set;
 import org.apache.log4j.Logger;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.classifiers.LinearClassifier;
 import eu.excitementproject.eop.biutee.rteflow.macro.AbstractTextTreesProcessor;
 import eu.excitementproject.eop.biutee.rteflow.macro.TreeAndFeatureVector;
@@ -20,6 +21,7 @@ import eu.excitementproject.eop.biutee.rteflow.macro.search.astar.AStarAlgorithm
 import eu.excitementproject.eop.biutee.rteflow.systems.TESystemEnvironment;
 import eu.excitementproject.eop.biutee.script.OperationsScript;
 import eu.excitementproject.eop.biutee.script.ScriptException;
+import eu.excitementproject.eop.biutee.utilities.BiuteeConstants;
 import eu.excitementproject.eop.common.representation.coreference.TreeCoreferenceInformation;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
 import eu.excitementproject.eop.common.representation.parse.tree.AbstractNodeUtils;
@@ -229,7 +231,7 @@ public class AStarTextTreesProcessor extends AbstractTextTreesProcessor implemen
 		{
 			TreeAndParentMap<ExtendedInfo, ExtendedNode> treeAndParentMap =
 				new TreeAndParentMap<ExtendedInfo, ExtendedNode>(textTree);
-			Map<Integer,Double> featureVector = initialFeatureVector();
+			FeatureVector featureVector = initialFeatureVector();
 			
 			double cost = GeneratedTreeStateCalculations.generateCost(classifier, featureVector, this.weightOfCost);
 			
@@ -263,6 +265,10 @@ public class AStarTextTreesProcessor extends AbstractTextTreesProcessor implemen
 
 				aStarAlgorithm = new AStarAlgorithm<AStarElement>(startStates,stateCalculations,comparatorByCostOnly);
 				aStarAlgorithm.setWhenEqualTakeAll(this.whenEqualTakeAll);
+				if (BiuteeConstants.SEARCH_ELIMINATE_DUPLICATE_STATES)
+				{
+					aStarAlgorithm.setStateFingerprinter(new AStarElementFingerprinter());
+				}
 
 				aStarAlgorithm.setK_expandInEachIteration(this.k_expandInEachIteration);
 				aStarAlgorithm.setAnyTime_numberOfGoalStates(this.anyTime_numberOfGoalStates);
@@ -317,6 +323,10 @@ public class AStarTextTreesProcessor extends AbstractTextTreesProcessor implemen
 			
 			aStarAlgorithm = new AStarAlgorithm<AStarElement>(startStates,stateCalculations,comparatorByCostOnly);
 			aStarAlgorithm.setWhenEqualTakeAll(this.whenEqualTakeAll);
+			if (BiuteeConstants.SEARCH_ELIMINATE_DUPLICATE_STATES)
+			{
+				aStarAlgorithm.setStateFingerprinter(new AStarElementFingerprinter());
+			}
 
 			aStarAlgorithm.setK_expandInEachIteration(this.k_expandInEachIteration);
 			aStarAlgorithm.setAnyTime_numberOfGoalStates(this.anyTime_numberOfGoalStates);
@@ -2,6 +2,7 @@ package eu.excitementproject.eop.biutee.rteflow.macro.search.astar;
 import java.util.List;
 import java.util.Map;
 
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.rteflow.macro.TreeHistory;
 import eu.excitementproject.eop.transformations.operations.specifications.Specification;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
@@ -24,7 +25,7 @@ public class AbstractAStarElement<S extends AbstractAStarElement<S>>
 		this.iteration = iteration;
 		this.tree = tree;
 		this.originalSentence = originalSentence;
-		this.featureVector = featureVector;
+		this.featureVector = FeatureVector.asFeatureVector(featureVector);
 		this.lastSpec = lastSpec;
 		this.history = history;
 		this.parent = parent;
@@ -61,7 +62,7 @@ public class AbstractAStarElement<S extends AbstractAStarElement<S>>
 	}
 
 
-	public Map<Integer, Double> getFeatureVector()
+	public FeatureVector getFeatureVector()
 	{
 		return featureVector;
 	}
@@ -142,7 +143,7 @@ public class AbstractAStarElement<S extends AbstractAStarElement<S>>
 	protected final int iteration;
 	protected final ExtendedNode tree;
 	protected final String originalSentence;
-	protected final Map<Integer,Double> featureVector;
+	protected final FeatureVector featureVector;
 	protected final Specification lastSpec;
 	protected final TreeHistory history;
 	protected final S parent;
@@ -9,6 +9,7 @@ import java.util.Set;
 import org.apache.log4j.Logger;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.classifiers.LinearClassifier;
 import eu.excitementproject.eop.biutee.rteflow.macro.TreeAndFeatureVector;
 import eu.excitementproject.eop.biutee.rteflow.macro.TreeHistory;
@@ -126,7 +127,7 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 	}
 	
 	
-	public static double generateCost(LinearClassifier linearClassifier, Map<Integer,Double> featureVector, double weightOfCost) throws ClassifierException
+	public static double generateCost(LinearClassifier linearClassifier, FeatureVector featureVector, double weightOfCost) throws ClassifierException
 	{
 		double cost = -linearClassifier.getProduct(featureVector);
 		cost = weightOfCost*cost;
@@ -11,6 +11,8 @@ import java.util.Set;
 
 import org.apache.log4j.Logger;
 
+import eu.excitementproject.eop.biutee.rteflow.macro.search.StateFingerprinter;
+
 
 
 /**
@@ -42,6 +44,20 @@ public class KStagedAlgorithm<T>
 		this.discardExpandedStates = discardExpandedStates;
 	}
 
+	/**
+	 * Directs the algorithm to eliminate duplicate states, i.e., states that have
+	 * the same fingerprint. When the new open-list is created, only the best state
+	 * (by the comparator-for-cut) of each fingerprint is retained.
+	 * <BR>
+	 * Default - null (no elimination of duplicate states).
+	 * 
+	 * @param stateFingerprinter
+	 */
+	public void setStateFingerprinter(StateFingerprinter<T> stateFingerprinter)
+	{
+		this.stateFingerprinter = stateFingerprinter;
+	}
+
 	public void find() throws KStagedAlgorithmException
 	{
 		cache = new HashMap<T, List<T>>();
@@ -101,10 +117,20 @@ public class KStagedAlgorithm<T>
 			if (logger.isDebugEnabled())logger.debug("newOpenList.size() = "+newOpenList.size());
 
 			openList = new ArrayList<T>(numberToRetain);
+			Set<Long> retainedFingerprints = new LinkedHashSet<Long>();
 			Iterator<T> newOpenListIterator = newOpenList.iterator();
-			for (int itemsIndex=0;itemsIndex<numberToRetain && newOpenListIterator.hasNext();++itemsIndex)
+			while ( (openList.size()<numberToRetain) && newOpenListIterator.hasNext() )
 			{
 				T currentElement = newOpenListIterator.next();
+				if (stateFingerprinter!=null)
+				{
+					// newOpenList is sorted, so the first of each fingerprint is the best.
+					if (!retainedFingerprints.add(stateFingerprinter.getFingerprint(currentElement)))
+					{
+						++numberOfPrunedDuplicates;
+						continue;
+					}
+				}
 				openList.add(currentElement);
 			}
 			if (logger.isDebugEnabled())logger.debug("End of while iteration. openList.size() = "+openList.size());
@@ -121,6 +147,7 @@ public class KStagedAlgorithm<T>
 //			Collections.sort(goals,bestGoalComparator);
 //			bestGoal = goals.iterator().next();
 		}
+		if (logger.isDebugEnabled())logger.debug("Number of pruned duplicates = "+numberOfPrunedDuplicates);
 		findDone=true;
 	}
 	
@@ -154,6 +181,19 @@ public class KStagedAlgorithm<T>
 		return numberOfGenerations;
 	}
 	
+	/**
+	 * Returns the number of states that were discarded since they are duplicates of
+	 * other states. Always 0 if {@link #setStateFingerprinter(StateFingerprinter)}
+	 * was not called.
+	 * @return the number of states that were discarded as duplicates.
+	 * @throws KStagedAlgorithmException
+	 */
+	public long getNumberOfPrunedDuplicates() throws KStagedAlgorithmException
+	{
+		if (!findDone) throw new KStagedAlgorithmException("find() was not called.");
+		return numberOfPrunedDuplicates;
+	}
+	
 	protected void cleanCache()
 	{
 		Map<T,List<T>> cleanedCache = new HashMap<T, List<T>>();
@@ -190,6 +230,7 @@ public class KStagedAlgorithm<T>
 	 * be part of the new open-list.
 	 */
 	protected boolean discardExpandedStates = false;
+	protected StateFingerprinter<T> stateFingerprinter = null;
 	
 	
 	
@@ -202,6 +243,7 @@ public class KStagedAlgorithm<T>
 	protected long numberOfExpansions = 0;
 	protected long numberOfExpensiveGenerations = 0;
 	protected long numberOfGenerations = 0;
+	protected long numberOfPrunedDuplicates = 0;
 	protected Map<T,List<T>> cache;
 	
 	private boolean findDone = false;
@@ -1,6 +1,7 @@
 package eu.excitementproject.eop.biutee.rteflow.macro.search.kstaged;
 import java.util.Map;
 
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.rteflow.macro.TreeHistory;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
 import eu.excitementproject.eop.transformations.utilities.SingleTreeEvaluations;
@@ -23,7 +24,7 @@ public class KStagedElement
 		super();
 		this.tree = tree;
 		this.history = history;
-		this.featureVector = featureVector;
+		this.featureVector = FeatureVector.asFeatureVector(featureVector);
 		this.originalSentence = originalSentence;
 		this.cost = cost;
 		this.evaluations = evaluations;
@@ -39,7 +40,7 @@ public class KStagedElement
 	{
 		return history;
 	}
-	public Map<Integer, Double> getFeatureVector()
+	public FeatureVector getFeatureVector()
 	{
 		return featureVector;
 	}
@@ -74,7 +75,7 @@ public class KStagedElement
 
 	private final ExtendedNode tree;
 	private final TreeHistory history;
-	private final Map<Integer, Double> featureVector;
+	private final FeatureVector featureVector;
 	private final String originalSentence;
 	private final double cost;
 	private final SingleTreeEvaluations evaluations;
@@ -0,0 +1,22 @@
+package eu.excitementproject.eop.biutee.rteflow.macro.search.kstaged;
+import eu.excitementproject.eop.biutee.rteflow.macro.search.StateFingerprinter;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeFingerprintCalculator;
+
+/**
+ * A {@link StateFingerprinter} of {@link KStagedElement}s, by their trees.
+ * A single instance should be used for a whole search, since it caches the
+ * fingerprints of the (shared) sub-trees.
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class KStagedElementFingerprinter implements StateFingerprinter<KStagedElement>
+{
+	public long getFingerprint(KStagedElement state)
+	{
+		return calculator.getFingerprint(state.getTree());
+	}
+
+	private final TreeFingerprintCalculator calculator = new TreeFingerprintCalculator();
+}
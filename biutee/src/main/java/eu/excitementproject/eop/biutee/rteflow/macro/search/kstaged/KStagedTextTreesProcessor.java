@@ -8,6 +8,7 @@ import java.util.Map;
 import org.apache.log4j.Logger;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.classifiers.LinearClassifier;
 import eu.excitementproject.eop.biutee.rteflow.macro.AbstractTextTreesProcessor;
 import eu.excitementproject.eop.biutee.rteflow.macro.TextTreesProcessor;
@@ -19,6 +20,7 @@ import eu.excitementproject.eop.biutee.rteflow.macro.search.old_beam_search.Beam
 import eu.excitementproject.eop.biutee.rteflow.systems.TESystemEnvironment;
 import eu.excitementproject.eop.biutee.script.OperationsScript;
 import eu.excitementproject.eop.biutee.script.ScriptException;
+import eu.excitementproject.eop.biutee.utilities.BiuteeConstants;
 import eu.excitementproject.eop.common.representation.coreference.TreeCoreferenceInformation;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
 import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
@@ -251,6 +253,11 @@ public class KStagedTextTreesProcessor extends AbstractTextTreesProcessor implem
 					new CostOnlyComparator(),
 					kStagedDiscardExpandedStates
 			);
+		// In local-creative mode a state is not determined by its tree only.
+		if ( (BiuteeConstants.SEARCH_ELIMINATE_DUPLICATE_STATES) && (!localCreativeMode) )
+		{
+			algorithm.setStateFingerprinter(new KStagedElementFingerprinter());
+		}
 		try
 		{
 			logger.debug("Running KStagedAlgorithm...");
@@ -275,7 +282,7 @@ public class KStagedTextTreesProcessor extends AbstractTextTreesProcessor implem
 		List<KStagedElement> initialStates = new ArrayList<KStagedElement>(originalTextTrees.size());
 		for (ExtendedNode tree : originalTextTrees)
 		{
-			Map<Integer,Double> featureVector = initialFeatureVector();
+			FeatureVector featureVector = initialFeatureVector();
 			double cost = -this.classifier.getProduct(featureVector);
 			TreeAndParentMap<ExtendedInfo, ExtendedNode> treeAndParentMap =
 				new TreeAndParentMap<ExtendedInfo, ExtendedNode>(tree);
@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.Set;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.classifiers.LinearClassifier;
 import eu.excitementproject.eop.biutee.rteflow.macro.AbstractTextTreesProcessor;
 import eu.excitementproject.eop.biutee.rteflow.macro.TreeAndFeatureVector;
@@ -164,7 +165,7 @@ public class KStagedLocalCreativeTextTreesProcessor extends AbstractTextTreesPro
 		return ret;
 	}
 	
-	private double costOf(Map<Integer,Double> featureVector) throws ClassifierException
+	private double costOf(FeatureVector featureVector) throws ClassifierException
 	{
 		return -this.classifier.getProduct(featureVector);
 	}
@@ -9,6 +9,7 @@ import java.util.Vector;
 import org.apache.log4j.Logger;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.classifiers.LinearClassifier;
 import eu.excitementproject.eop.biutee.rteflow.macro.AbstractFilterEnabledTextTreesProcessor;
 import eu.excitementproject.eop.biutee.rteflow.macro.TextTreesProcessingResult;
@@ -195,7 +196,7 @@ public abstract class LLGSTextTreesProcessor extends AbstractFilterEnabledTextTr
 		if (results.size()!=0) throw new TeEngineMlException("Internal bug in "+LLGSTextTreesProcessor.class.getSimpleName()+". results must not contain any element at the beginning of tree processing.");
 		int debug_resultsSize = results.size();
 		
-		Map<Integer,Double> noTransformationFeatureVector = initialFeatureVector();
+		FeatureVector noTransformationFeatureVector = initialFeatureVector();
 		debug_cost_noTransformations = getCost(noTransformationFeatureVector);
 		
 		TreeInProcess currentInProcess = new TreeInProcess(
@@ -416,7 +417,7 @@ public abstract class LLGSTextTreesProcessor extends AbstractFilterEnabledTextTr
 	
 	
 	
-	protected double getCost(Map<Integer,Double> featureVector) throws ClassifierException
+	protected double getCost(FeatureVector featureVector) throws ClassifierException
 	{
 		return -this.classifier.getProduct(featureVector);
 	}
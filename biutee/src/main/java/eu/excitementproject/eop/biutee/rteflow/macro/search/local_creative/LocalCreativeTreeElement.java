@@ -3,6 +3,7 @@ import java.io.Serializable;
 import java.util.Map;
 import java.util.Set;
 
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.rteflow.macro.TreeHistory;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
 
@@ -25,7 +26,7 @@ public class LocalCreativeTreeElement implements Serializable
 		super();
 		this.tree = tree;
 		this.history = history;
-		this.featureVector = featureVector;
+		this.featureVector = FeatureVector.asFeatureVector(featureVector);
 		this.localIteration = localIteration;
 		this.globalIteration = globalIteration;
 		this.affectedNodes = affectedNodes;
@@ -44,7 +45,7 @@ public class LocalCreativeTreeElement implements Serializable
 	{
 		return history;
 	}
-	public Map<Integer, Double> getFeatureVector()
+	public FeatureVector getFeatureVector()
 	{
 		return featureVector;
 	}
@@ -76,7 +77,7 @@ public class LocalCreativeTreeElement implements Serializable
 
 	private final ExtendedNode tree;
 	private final TreeHistory history;
-	private final Map<Integer, Double> featureVector;
+	private final FeatureVector featureVector;
 	private final int localIteration;
 	private final int globalIteration;
 	private final Set<ExtendedNode> affectedNodes;
@@ -1,6 +1,7 @@
 package eu.excitementproject.eop.biutee.rteflow.micro;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import eu.excitementproject.eop.biutee.rteflow.macro.FeatureUpdate;
 import eu.excitementproject.eop.biutee.rteflow.macro.InitializationTextTreesProcessor;
@@ -74,6 +75,11 @@ public class OperationsEnvironment
 	 * objects that will be built will contain rich information, not only
 	 * the {@link Specification} of the operation. This should be set to
 	 * <tt>true</tt> for GUI, but not for other systems.
+	 * @param generationExecutor A thread-pool, used by {@link TreesGeneratorByOperations}
+	 * to apply operations of different rule bases concurrently, or <code>null</code>
+	 * to apply all the operations sequentially.
+	 * @param specificationsCache The persistent cache of specifications found by rule bases,
+	 * for the current T-H pair, or <code>null</code> if no cache is used.
 	 */
 	public OperationsEnvironment(
 			FeatureUpdate featureUpdate,
@@ -94,7 +100,9 @@ public class OperationsEnvironment
 			ImmutableSet<String> stopWords,
 			PARSER parser,
 			boolean collapseMode,
-			BasicNode hypothesisTreeAsBasicNode)
+			BasicNode hypothesisTreeAsBasicNode,
+			ExecutorService generationExecutor,
+			PersistentSpecificationsCache.PairCache specificationsCache)
 	{
 		super();
 		this.featureUpdate = featureUpdate;
@@ -116,6 +124,8 @@ public class OperationsEnvironment
 		this.parser = parser;
 		this.collapseMode = collapseMode;
 		this.hypothesisTreeAsBasicNode = hypothesisTreeAsBasicNode;
+		this.generationExecutor = generationExecutor;
+		this.specificationsCache = specificationsCache;
 	}
 
 	
@@ -197,6 +207,14 @@ public class OperationsEnvironment
 	{
 		return hypothesisTreeAsBasicNode;
 	}
+	public ExecutorService getGenerationExecutor()
+	{
+		return generationExecutor;
+	}
+	public PersistentSpecificationsCache.PairCache getSpecificationsCache()
+	{
+		return specificationsCache;
+	}
 
 
 
@@ -222,4 +240,6 @@ public class OperationsEnvironment
 	private final PARSER parser;
 	private final boolean collapseMode;
 	private final BasicNode hypothesisTreeAsBasicNode;
+	private final ExecutorService generationExecutor;
+	private final PersistentSpecificationsCache.PairCache specificationsCache;
 }
@@ -0,0 +1,647 @@
+package eu.excitementproject.eop.biutee.rteflow.micro;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import eu.excitementproject.eop.biutee.script.SingleOperationItem;
+import eu.excitementproject.eop.biutee.script.SingleOperationType;
+import eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames;
+import eu.excitementproject.eop.common.codeannotations.ThreadSafe;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationException;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationFile;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.transformations.builtin_knowledge.KnowledgeResource;
+import eu.excitementproject.eop.transformations.operations.finders.Finder;
+import eu.excitementproject.eop.transformations.operations.specifications.Specification;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeFingerprintCalculator;
+
+
+/**
+ * A persistent cache of the specifications found by the {@link Finder}s of rule bases.
+ * The cache is stored in a file, such that it is used by all the iterations of training, and
+ * later by testing, on the same data-set, and the rule bases are queried only once for each
+ * text tree.
+ * <P>
+ * The key of each entry is:
+ * <UL>
+ * <LI>The T-H pair, identified by the ordered descriptions
+ * (see {@link TreeFingerprintCalculator#getOrderedDescription(ExtendedNode)}) of the
+ * hypothesis tree and the original text trees.</LI>
+ * <LI>The ordered description of the text tree on which the finder runs.</LI>
+ * <LI>The operation item (its type and rule base) and the finder (the perform-factory).</LI>
+ * </UL>
+ * The ordered fingerprints (see {@link TreeFingerprintCalculator#getOrderedFingerprint(ExtendedNode)})
+ * are used only as hash codes, and the keys are compared by the full descriptions, so different
+ * trees with the same fingerprint never share an entry.
+ * The value is the specifications, serialized such that each reference to a node of the text
+ * tree or of the hypothesis tree is stored as the position of that node in its tree. When the
+ * specifications are read from the cache, these references are resolved to the nodes of the
+ * given trees, so the specifications can be applied as if they were found by the finder.
+ * <P>
+ * The file starts with a signature of the configuration of the knowledge resources
+ * (see {@link #createConfigurationSignature(ConfigurationFile)}). If the configuration was changed,
+ * the file is discarded. New entries are appended to the file as soon as they are created.
+ * All the entries are held in memory.
+ * <P>
+ * Only operation items that use a rule base are cached (see {@link #isCacheable(SingleOperationItem)}
+ * and {@link SingleOperationItem#usesRuleBase()}), since the other finders are cheaper than reading
+ * their results from the cache.
+ * The cache counts hits and misses for each operation type (see {@link #getStatistics()}).
+ * <P>
+ * The file must not be used by two processes at the same time.
+ *
+ * @see TreesGeneratorByOperations
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+@ThreadSafe
+public class PersistentSpecificationsCache
+{
+	/**
+	 * The cache of a single T-H pair.
+	 */
+	public class PairCache
+	{
+		/**
+		 * Returns the specifications found by the finder of the given operation item
+		 * and perform-factory for the given text tree, or <code>null</code> if they are not in the cache.
+		 * @param textTree the text tree. Its nodes will be referred by the returned specifications.
+		 * @param item an operation item.
+		 * @param finderName the name of the perform-factory which created the finder.
+		 * @return the specifications, or <code>null</code>.
+		 */
+		public <T extends Specification> Set<T> get(ExtendedNode textTree, SingleOperationItem item, String finderName)
+		{
+			byte[] serialized = entries.get(createKey(textTree, item, finderName));
+			if (null==serialized)
+			{
+				misses.get(item.getType()).incrementAndGet();
+				return null;
+			}
+			try
+			{
+				Set<T> ret = deserialize(serialized, preorder(textTree), hypothesisNodes);
+				hits.get(item.getType()).incrementAndGet();
+				return ret;
+			}
+			catch (IOException | ClassNotFoundException | RuntimeException e)
+			{
+				logger.warn("Failed to read specifications from the cache. They will be found by the finder.",e);
+				misses.get(item.getType()).incrementAndGet();
+				return null;
+			}
+		}
+
+		/**
+		 * Stores the specifications found by the finder of the given operation item and
+		 * perform-factory for the given text tree. The specifications must be stored before
+		 * they are changed by any operation.
+		 */
+		public <T extends Specification> void put(ExtendedNode textTree, SingleOperationItem item, String finderName, Set<T> specifications)
+		{
+			Key key = createKey(textTree, item, finderName);
+			if (entries.containsKey(key)) return;
+			byte[] serialized;
+			try
+			{
+				serialized = serialize(new ArrayList<T>(specifications), preorder(textTree), hypothesisNodes);
+			}
+			catch (IOException | RuntimeException e)
+			{
+				if (logger.isDebugEnabled()){logger.debug("Specifications of "+item+" could not be serialized, so they are not cached.",e);}
+				return;
+			}
+			if (null==entries.putIfAbsent(key, serialized))
+			{
+				append(key, serialized);
+			}
+		}
+
+		private PairCache(long pairFingerprint, String pairDescription, ExtendedNode hypothesisTree)
+		{
+			this.pairFingerprint = pairFingerprint;
+			this.pairDescription = pairDescription;
+			this.hypothesisNodes = preorder(hypothesisTree);
+		}
+
+		private Key createKey(ExtendedNode textTree, SingleOperationItem item, String finderName)
+		{
+			return new Key(pairFingerprint, pairDescription,
+					TreeFingerprintCalculator.getOrderedFingerprint(textTree), TreeFingerprintCalculator.getOrderedDescription(textTree),
+					itemKey(item, finderName));
+		}
+
+		private final long pairFingerprint;
+		private final String pairDescription;
+		private final List<ExtendedNode> hypothesisNodes;
+	}
+
+
+	/**
+	 * Returns a signature of the configuration of the knowledge resources, i.e., the parameters
+	 * of the transformations module, and the parameters of the module of each knowledge resource.
+	 * @param configurationFile the configuration file.
+	 * @return a signature of the configuration of the knowledge resources.
+	 * @throws ConfigurationException
+	 * @throws TeEngineMlException
+	 */
+	public static String createConfigurationSignature(ConfigurationFile configurationFile) throws ConfigurationException, TeEngineMlException
+	{
+		StringBuilder sb = new StringBuilder();
+		ConfigurationParams transformationsParams = configurationFile.getModuleConfiguration(ConfigurationParametersNames.TRANSFORMATIONS_MODULE_NAME);
+		appendParams(sb, transformationsParams);
+		for (KnowledgeResource resource : transformationsParams.getEnumList(KnowledgeResource.class, ConfigurationParametersNames.KNOWLEDGE_RESOURCES_PARAMETER_NAME))
+		{
+			for (String moduleName : new String[]{resource.getModuleName(),resource.getInfrastructureModuleName()})
+			{
+				if ( (moduleName!=null) && (configurationFile.isModuleExist(moduleName)) )
+				{
+					appendParams(sb, configurationFile.getModuleConfiguration(moduleName));
+				}
+			}
+		}
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(UTF8));
+			StringBuilder ret = new StringBuilder();
+			for (byte b : digest)
+			{
+				ret.append(String.format("%02x", b));
+			}
+			return ret.toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new TeEngineMlException("Failed to create configuration signature.",e);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the specifications of the given operation item are cached,
+	 * i.e., if the item uses a rule base (see {@link SingleOperationItem#usesRuleBase()}).
+	 */
+	public static boolean isCacheable(SingleOperationItem item)
+	{
+		return item.usesRuleBase();
+	}
+
+
+	/**
+	 * Opens the cache stored in the given file, or creates a new one if the file does not exist,
+	 * or was created with a different configuration.
+	 * @param file the file of the cache.
+	 * @param configurationSignature signature of the configuration (see {@link #createConfigurationSignature(ConfigurationFile)}).
+	 * @throws TeEngineMlException
+	 */
+	public PersistentSpecificationsCache(File file, String configurationSignature) throws TeEngineMlException
+	{
+		super();
+		this.file = file;
+		for (SingleOperationType type : SingleOperationType.values())
+		{
+			hits.put(type, new AtomicLong());
+			misses.put(type, new AtomicLong());
+		}
+		try
+		{
+			boolean valid = false;
+			if (file.exists())
+			{
+				valid = load(configurationSignature);
+			}
+			if (valid)
+			{
+				output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+				logger.info("Specifications cache loaded from "+file.getPath()+": "+entries.size()+" entries.");
+			}
+			else
+			{
+				entries.clear();
+				output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false)));
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeUTF(configurationSignature);
+				output.flush();
+				logger.info("A new specifications cache was created in "+file.getPath());
+			}
+		}
+		catch (IOException e)
+		{
+			throw new TeEngineMlException("Failed to open the specifications cache: "+file.getPath(),e);
+		}
+	}
+
+	/**
+	 * Returns the cache of the T-H pair of the given hypothesis tree and original text trees.
+	 */
+	public PairCache forPair(ExtendedNode hypothesisTree, Iterable<ExtendedNode> originalTextTrees)
+	{
+		long pairFingerprint = TreeFingerprintCalculator.getOrderedFingerprint(hypothesisTree);
+		StringBuilder pairDescription = new StringBuilder(TreeFingerprintCalculator.getOrderedDescription(hypothesisTree));
+		for (ExtendedNode textTree : originalTextTrees)
+		{
+			pairFingerprint = pairFingerprint*PRIME + TreeFingerprintCalculator.getOrderedFingerprint(textTree);
+			pairDescription.append(TREES_SEPARATOR).append(TreeFingerprintCalculator.getOrderedDescription(textTree));
+		}
+		return new PairCache(pairFingerprint, pairDescription.toString(), hypothesisTree);
+	}
+
+	/**
+	 * Returns a description of the hit-rate of the cache for each operation type, to be printed in the log file.
+	 */
+	public String getStatistics()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("Specifications cache: ").append(entries.size()).append(" entries.");
+		for (SingleOperationType type : SingleOperationType.values())
+		{
+			long hitsOfType = hits.get(type).get();
+			long total = hitsOfType+misses.get(type).get();
+			if (total>0)
+			{
+				sb.append("\n").append(type.name()).append(": hits = ").append(hitsOfType).append(", misses = ").append(total-hitsOfType)
+				.append(", hit rate = ").append(String.format("%-4.4f", ((double)hitsOfType)/((double)total)));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Flushes and closes the file of the cache. The cache should not be used after calling this method.
+	 */
+	public void close()
+	{
+		synchronized(this)
+		{
+			if (null==output) return;
+			try
+			{
+				output.close();
+			}
+			catch (IOException e)
+			{
+				logger.warn("Failed to close the specifications cache: "+file.getPath(),e);
+			}
+			output = null;
+		}
+	}
+
+
+
+	///////////////////////// PRIVATE /////////////////////////
+
+	/**
+	 * The key of an entry. The fingerprints are used for the hash-code, and the
+	 * descriptions make the comparison exact.
+	 */
+	private static final class Key
+	{
+		public Key(long pairFingerprint, String pairDescription, long treeFingerprint, String treeDescription, String item)
+		{
+			this.pairFingerprint = pairFingerprint;
+			this.pairDescription = pairDescription;
+			this.treeFingerprint = treeFingerprint;
+			this.treeDescription = treeDescription;
+			this.item = item;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + (int) (pairFingerprint ^ (pairFingerprint >>> 32));
+			result = prime * result + (int) (treeFingerprint ^ (treeFingerprint >>> 32));
+			result = prime * result + item.hashCode();
+			return result;
+		}
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			Key other = (Key) obj;
+			if (pairFingerprint != other.pairFingerprint)
+				return false;
+			if (treeFingerprint != other.treeFingerprint)
+				return false;
+			if (!item.equals(other.item))
+				return false;
+			if (!treeDescription.equals(other.treeDescription))
+				return false;
+			if (!pairDescription.equals(other.pairDescription))
+				return false;
+			return true;
+		}
+
+		private final long pairFingerprint;
+		private final String pairDescription;
+		private final long treeFingerprint;
+		private final String treeDescription;
+		private final String item;
+	}
+
+	/**
+	 * Stored in the serialized specifications instead of a node of the text tree or of the
+	 * hypothesis tree.
+	 */
+	private static final class NodePosition implements Serializable
+	{
+		private static final long serialVersionUID = 2860375062452377386L;
+
+		public NodePosition(boolean hypothesis, int position)
+		{
+			this.hypothesis = hypothesis;
+			this.position = position;
+		}
+
+		private final boolean hypothesis;
+		private final int position;
+	}
+
+	private static final class NodesReplacingOutputStream extends ObjectOutputStream
+	{
+		public NodesReplacingOutputStream(OutputStream out, Map<ExtendedNode, NodePosition> positions) throws IOException
+		{
+			super(out);
+			this.positions = positions;
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) throws IOException
+		{
+			if (obj instanceof ExtendedNode)
+			{
+				NodePosition position = positions.get(obj);
+				if (position!=null) return position;
+			}
+			return obj;
+		}
+
+		private final Map<ExtendedNode, NodePosition> positions;
+	}
+
+	private static final class NodesResolvingInputStream extends ObjectInputStream
+	{
+		public NodesResolvingInputStream(InputStream in, List<ExtendedNode> textNodes, List<ExtendedNode> hypothesisNodes) throws IOException
+		{
+			super(in);
+			this.textNodes = textNodes;
+			this.hypothesisNodes = hypothesisNodes;
+			enableResolveObject(true);
+		}
+
+		@Override
+		protected Object resolveObject(Object obj) throws IOException
+		{
+			if (obj instanceof NodePosition)
+			{
+				NodePosition position = (NodePosition) obj;
+				List<ExtendedNode> nodes = position.hypothesis?hypothesisNodes:textNodes;
+				if (position.position>=nodes.size()) throw new IOException("Cached specifications do not match the tree.");
+				return nodes.get(position.position);
+			}
+			return obj;
+		}
+
+		private final List<ExtendedNode> textNodes;
+		private final List<ExtendedNode> hypothesisNodes;
+	}
+
+	private static byte[] serialize(List<? extends Specification> specifications, List<ExtendedNode> textNodes, List<ExtendedNode> hypothesisNodes) throws IOException
+	{
+		Map<ExtendedNode, NodePosition> positions = new IdentityHashMap<ExtendedNode, NodePosition>();
+		for (int index=0;index<hypothesisNodes.size();++index)
+		{
+			positions.put(hypothesisNodes.get(index), new NodePosition(true, index));
+		}
+		for (int index=0;index<textNodes.size();++index)
+		{
+			positions.put(textNodes.get(index), new NodePosition(false, index));
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream stream = new NodesReplacingOutputStream(bytes, positions);
+		try
+		{
+			stream.writeObject(specifications);
+		}
+		finally
+		{
+			stream.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Specification> Set<T> deserialize(byte[] serialized, List<ExtendedNode> textNodes, List<ExtendedNode> hypothesisNodes) throws IOException, ClassNotFoundException
+	{
+		ObjectInputStream stream = new NodesResolvingInputStream(new ByteArrayInputStream(serialized), textNodes, hypothesisNodes);
+		try
+		{
+			return new LinkedHashSet<T>((List<T>) stream.readObject());
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+
+	private static List<ExtendedNode> preorder(ExtendedNode tree)
+	{
+		List<ExtendedNode> ret = new ArrayList<ExtendedNode>();
+		addPreorder(tree, ret);
+		return ret;
+	}
+
+	private static void addPreorder(ExtendedNode subtree, List<ExtendedNode> nodes)
+	{
+		nodes.add(subtree);
+		if (subtree.getChildren()!=null)
+		{
+			for (ExtendedNode child : subtree.getChildren())
+			{
+				addPreorder(child, nodes);
+			}
+		}
+	}
+
+	private static String itemKey(SingleOperationItem item, String finderName)
+	{
+		return item.getType().name()+"/"+item.getRuleBaseName()+"/"+finderName;
+	}
+
+	private static void appendParams(StringBuilder sb, ConfigurationParams params) throws ConfigurationException
+	{
+		sb.append("[").append(params.getModuleName()).append("]\n");
+		for (String paramName : new TreeSet<String>(params.keySet()))
+		{
+			sb.append(paramName).append("=").append(params.get(paramName)).append("\n");
+		}
+	}
+
+	/**
+	 * Reads the entries from the file. Returns <code>false</code> if the file was created with
+	 * a different configuration or version. A partially written entry at the end of the file
+	 * (e.g., if the process was killed) is removed.
+	 */
+	private boolean load(String configurationSignature) throws IOException
+	{
+		long validLength = 0;
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try
+		{
+			try
+			{
+				if (input.readInt()!=MAGIC) return false;
+				if (input.readInt()!=VERSION) return false;
+				String signature = input.readUTF();
+				if (!signature.equals(configurationSignature))
+				{
+					logger.info("The configuration of the knowledge resources was changed. The specifications cache "+file.getPath()+" is discarded.");
+					return false;
+				}
+				validLength = 4+4+2+signature.getBytes(UTF8).length;
+			}
+			catch (EOFException e)
+			{
+				return false;
+			}
+
+			// All the entries of a pair share one description string.
+			Map<String, String> pairDescriptions = new HashMap<String, String>();
+			try
+			{
+				while (true)
+				{
+					long pairFingerprint = input.readLong();
+					byte[] pairDescriptionBytes = readBytes(input);
+					long treeFingerprint = input.readLong();
+					byte[] treeDescriptionBytes = readBytes(input);
+					byte[] itemBytes = readBytes(input);
+					byte[] serialized = readBytes(input);
+					String pairDescription = new String(pairDescriptionBytes, UTF8);
+					String sharedPairDescription = pairDescriptions.get(pairDescription);
+					if (null==sharedPairDescription)
+					{
+						pairDescriptions.put(pairDescription, pairDescription);
+						sharedPairDescription = pairDescription;
+					}
+					entries.put(new Key(pairFingerprint, sharedPairDescription, treeFingerprint, new String(treeDescriptionBytes, UTF8), new String(itemBytes, UTF8)), serialized);
+					validLength += 8+4+pairDescriptionBytes.length+8+4+treeDescriptionBytes.length+4+itemBytes.length+4+serialized.length;
+				}
+			}
+			catch (EOFException e)
+			{
+				// end of file
+			}
+		}
+		finally
+		{
+			input.close();
+		}
+
+		if (validLength<file.length())
+		{
+			logger.warn("The specifications cache "+file.getPath()+" ends with a partial entry, which is removed.");
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try
+			{
+				randomAccessFile.setLength(validLength);
+			}
+			finally
+			{
+				randomAccessFile.close();
+			}
+		}
+		return true;
+	}
+
+	private synchronized void append(Key key, byte[] serialized)
+	{
+		if (null==output) return;
+		try
+		{
+			output.writeLong(key.pairFingerprint);
+			writeBytes(output, key.pairDescription.getBytes(UTF8));
+			output.writeLong(key.treeFingerprint);
+			writeBytes(output, key.treeDescription.getBytes(UTF8));
+			writeBytes(output, key.item.getBytes(UTF8));
+			writeBytes(output, serialized);
+		}
+		catch (IOException e)
+		{
+			logger.warn("Failed to write to the specifications cache "+file.getPath()+". New entries will not be stored.",e);
+			close();
+		}
+	}
+
+
+	private static byte[] readBytes(DataInputStream input) throws IOException
+	{
+		int length = input.readInt();
+		if (length<0) throw new EOFException("Negative length: "+length);
+		byte[] ret = new byte[length];
+		input.readFully(ret);
+		return ret;
+	}
+
+	private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException
+	{
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int MAGIC = 0x53504543; // "SPEC"
+	private static final int VERSION = 2;
+	private static final char TREES_SEPARATOR = '\u0004';
+	private static final long PRIME = 31L;
+
+	private final File file;
+	private final ConcurrentHashMap<Key, byte[]> entries = new ConcurrentHashMap<Key, byte[]>();
+	private final Map<SingleOperationType, AtomicLong> hits = new EnumMap<SingleOperationType, AtomicLong>(SingleOperationType.class);
+	private final Map<SingleOperationType, AtomicLong> misses = new EnumMap<SingleOperationType, AtomicLong>(SingleOperationType.class);
+	private DataOutputStream output = null; // guarded by "this"
+
+	private static final Logger logger = Logger.getLogger(PersistentSpecificationsCache.class);
+}
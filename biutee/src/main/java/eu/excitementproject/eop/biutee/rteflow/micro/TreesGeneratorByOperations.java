@@ -1,9 +1,13 @@
 package eu.excitementproject.eop.biutee.rteflow.micro;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
@@ -57,6 +61,13 @@ import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
  * <LI>Call {@link #generateTrees()}</LI>
  * <LI>Collect the results by calling {@link #getGeneratedTrees()}, and {@link #getHistoryMap()}</LI>
  * </OL>
+ * <P>
+ * If {@link OperationsEnvironment#getGenerationExecutor()} is not <code>null</code>,
+ * operation-items of different rule bases are applied concurrently, using that thread-pool.
+ * Operation-items of the same rule base, and all the operation-items that do not use a
+ * rule base (e.g., on-the-fly operations and plugins), are applied sequentially by a
+ * single task. The results are merged in the order of the operation-items, so they are
+ * identical to the results of sequential application.
  * 
  * @see TextTreesProcessor
  * 
@@ -126,6 +137,7 @@ public class TreesGeneratorByOperations
 		
 		this.featureUpdate = operationsEnvironment.getFeatureUpdate();
 		this.hypothesis = operationsEnvironment.getHypothesis();
+		this.specificationsCache = operationsEnvironment.getSpecificationsCache();
 		this.historyWithTreeInformation = operationsEnvironment.isRichInformationInTreeHistory();
 		
 		this.performFactoryFactory = new PerformFactoryFactory(this.operationsEnvironment,this.ruleBasesContainer);
@@ -205,6 +217,12 @@ public class TreesGeneratorByOperations
 		this.mapAffectedNodes = new LinkedHashMap<ExtendedNode, Set<ExtendedNode>>();
 		TreeAndParentMap<ExtendedInfo,ExtendedNode> textTreeAndParentMap = new TreeAndParentMap<ExtendedInfo,ExtendedNode>(textTree.getTree());
 		
+		if ( (operationsEnvironment.getGenerationExecutor()!=null) && (null==cache) )
+		{
+			generateTreesConcurrently(textTreeAndParentMap);
+			return;
+		}
+		
 		// For each operation-item, generated the trees. 
 		for (SingleOperationItem item : operations)
 		{
@@ -235,7 +253,7 @@ public class TreesGeneratorByOperations
 			{
 				try
 				{
-					setGenerated = generateUsingPerformerFactory(item,textTree, textTreeAndParentMap);
+					setGenerated = generateUsingPerformerFactory(item,textTree, textTreeAndParentMap, this.historyMap, this.mapAffectedNodes);
 					if (null==setGenerated) throw new TeEngineMlException("Unsupported operation item: "+item.getType().name());
 
 					// The following few lines of code are no longer relevant,
@@ -345,6 +363,136 @@ public class TreesGeneratorByOperations
 	
 	////////////////////////////// PRIVATE /////////////////////////////
 
+	/**
+	 * The trees generated by applying a list of operation-items, that are applied
+	 * sequentially by a single task of {@link TreesGeneratorByOperations#generateTreesConcurrently(TreeAndParentMap)}.
+	 */
+	private static class GenerationTaskResult
+	{
+		private final Map<SingleOperationItem, Set<TreeAndFeatureVector>> mapGeneratedByOperation = new LinkedHashMap<SingleOperationItem, Set<TreeAndFeatureVector>>();
+		private final Map<TreeAndFeatureVector,TreeHistory> historyMap = new LinkedHashMap<TreeAndFeatureVector, TreeHistory>();
+		private final Map<ExtendedNode,Set<ExtendedNode>> mapAffectedNodes = new LinkedHashMap<ExtendedNode, Set<ExtendedNode>>();
+	}
+	
+	/**
+	 * Applies the operation-items of {@link #operations}, such that all the operation-items
+	 * that share a rule base are applied sequentially by a single task, and the tasks run
+	 * concurrently by the generation executor. Then, merges the results in the
+	 * order of {@link #operations}.
+	 */
+	private void generateTreesConcurrently(final TreeAndParentMap<ExtendedInfo,ExtendedNode> textTreeAndParentMap) throws TeEngineMlException, OperationException
+	{
+		// Group the items by their rule bases. Items that do not use a rule base are grouped together (key null).
+		Map<String, List<SingleOperationItem>> itemsByRuleBase = new LinkedHashMap<String, List<SingleOperationItem>>();
+		for (SingleOperationItem item : operations)
+		{
+			String key = ruleBaseOfItem(item);
+			List<SingleOperationItem> itemsOfRuleBase = itemsByRuleBase.get(key);
+			if (null==itemsOfRuleBase)
+			{
+				itemsOfRuleBase = new ArrayList<SingleOperationItem>();
+				itemsByRuleBase.put(key, itemsOfRuleBase);
+			}
+			itemsOfRuleBase.add(item);
+		}
+		
+		List<Future<GenerationTaskResult>> futures = new ArrayList<Future<GenerationTaskResult>>(itemsByRuleBase.size());
+		for (final List<SingleOperationItem> items : itemsByRuleBase.values())
+		{
+			futures.add(operationsEnvironment.getGenerationExecutor().submit(new Callable<GenerationTaskResult>()
+			{
+				@Override
+				public GenerationTaskResult call() throws TeEngineMlException, OperationException, PluginException
+				{
+					GenerationTaskResult result = new GenerationTaskResult();
+					for (SingleOperationItem item : items)
+					{
+						Set<TreeAndFeatureVector> setGenerated = generateUsingPerformerFactory(item, textTree, textTreeAndParentMap, result.historyMap, result.mapAffectedNodes);
+						if (null==setGenerated) throw new TeEngineMlException("Unsupported operation item: "+item.getType().name());
+						result.mapGeneratedByOperation.put(item, setGenerated);
+					}
+					return result;
+				}
+			}));
+		}
+		
+		// Wait for all the tasks (even if one of them fails), and collect their results.
+		Map<SingleOperationItem, Set<TreeAndFeatureVector>> mapGeneratedByAllTasks = new LinkedHashMap<SingleOperationItem, Set<TreeAndFeatureVector>>();
+		Map<TreeAndFeatureVector,TreeHistory> historyMapOfAllTasks = new LinkedHashMap<TreeAndFeatureVector, TreeHistory>();
+		Map<ExtendedNode,Set<ExtendedNode>> mapAffectedNodesOfAllTasks = new LinkedHashMap<ExtendedNode, Set<ExtendedNode>>();
+		Throwable failure = null;
+		for (Future<GenerationTaskResult> future : futures)
+		{
+			try
+			{
+				GenerationTaskResult result = future.get();
+				mapGeneratedByAllTasks.putAll(result.mapGeneratedByOperation);
+				historyMapOfAllTasks.putAll(result.historyMap);
+				mapAffectedNodesOfAllTasks.putAll(result.mapAffectedNodes);
+			}
+			catch (ExecutionException e)
+			{
+				if (null==failure) {failure = e.getCause();}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				for (Future<GenerationTaskResult> futureToCancel : futures)
+				{
+					futureToCancel.cancel(true);
+				}
+				throw new TeEngineMlException("Interrupted while waiting for the concurrent generation of trees.",e);
+			}
+		}
+		if (failure!=null)
+		{
+			if (failure instanceof OperationException) throw (OperationException) failure;
+			if (failure instanceof PluginException) throw new OperationException("Plugin failed.",failure);
+			throw new TeEngineMlException("Concurrent generation of trees failed.",failure);
+		}
+		
+		// Merge, in the order of the operation-items.
+		for (SingleOperationItem item : operations)
+		{
+			Set<TreeAndFeatureVector> setGenerated = mapGeneratedByAllTasks.get(item);
+			if (null==setGenerated) throw new TeEngineMlException("BUG: no result for operation item: "+item);
+			for (TreeAndFeatureVector tree : setGenerated)
+			{
+				TreeHistory history = historyMapOfAllTasks.get(tree);
+				if (null==history) throw new TeEngineMlException("Null history for generated tree");
+				this.historyMap.put(tree, history);
+				Set<ExtendedNode> affectedNodesOfTree = mapAffectedNodesOfAllTasks.get(tree.getTree());
+				if (affectedNodesOfTree!=null)
+				{
+					this.mapAffectedNodes.put(tree.getTree(), affectedNodesOfTree);
+				}
+			}
+			Set<TreeAndHistory> setGeneratedWithHistory = new LinkedHashSet<TreeAndHistory>();
+			for (TreeAndFeatureVector tree : setGenerated)
+			{
+				setGeneratedWithHistory.add(new TreeAndHistory(tree, this.historyMap.get(tree)));
+			}
+			this.generatedTreesAsMap.put(new TreeAndOperationItem(this.textTree, item), setGeneratedWithHistory);
+			mapGeneratedByOperation.put(item, setGenerated);
+			generatedTrees.addAll(setGenerated);
+		}
+	}
+	
+	/**
+	 * Returns the name of the rule base used by the given operation-item, or
+	 * <code>null</code> if it does not use a rule base (see {@link SingleOperationItem#usesRuleBase()}).
+	 * <P>
+	 * The resources of the other operation-items (e.g., the multi-word named-entity rule base
+	 * used by {@link SingleOperationType#MULTIWORD_SUBSTITUTION}) are used only by them, and they
+	 * are all applied by a single task.
+	 */
+	static String ruleBaseOfItem(SingleOperationItem item)
+	{
+		if (item.usesRuleBase())
+			return item.getRuleBaseName();
+		else
+			return null;
+	}
 	
 	
 	/**
@@ -354,12 +502,14 @@ public class TreesGeneratorByOperations
 	 * @param item
 	 * @param textTree
 	 * @param textTreeAndParentMap
+	 * @param historyMap the map into which the histories of the generated trees are put
+	 * @param mapAffectedNodes the map into which the affected nodes of the generated trees are put
 	 * @return
 	 * @throws TeEngineMlException
 	 * @throws OperationException
 	 * @throws PluginException 
 	 */
-	private Set<TreeAndFeatureVector> generateUsingPerformerFactory(SingleOperationItem item, TreeAndFeatureVector textTree, TreeAndParentMap<ExtendedInfo, ExtendedNode> textTreeAndParentMap) throws TeEngineMlException, OperationException, PluginException
+	private Set<TreeAndFeatureVector> generateUsingPerformerFactory(SingleOperationItem item, TreeAndFeatureVector textTree, TreeAndParentMap<ExtendedInfo, ExtendedNode> textTreeAndParentMap, Map<TreeAndFeatureVector,TreeHistory> historyMap, Map<ExtendedNode,Set<ExtendedNode>> mapAffectedNodes) throws TeEngineMlException, OperationException, PluginException
 	{
 		String errorIfPluginThrowsRuntimeException = SingleOperationType.PLUGIN_APPLICATION.equals(item.getType())?"Plugin has thrown a runtime-exception":null;
 		List<PerformFactory<? extends Specification>> listPerformFactories = this.performFactoryFactory.getFactory(item);
@@ -369,14 +519,14 @@ public class TreesGeneratorByOperations
 			Set<TreeAndFeatureVector> generated = null;
 			if (listPerformFactories.size()==1)
 			{
-				generated = generateUsingGivenPerformFactory(item, listPerformFactories.iterator().next(), textTree, textTreeAndParentMap,errorIfPluginThrowsRuntimeException);
+				generated = generateUsingGivenPerformFactory(item, listPerformFactories.iterator().next(), textTree, textTreeAndParentMap,errorIfPluginThrowsRuntimeException, historyMap, mapAffectedNodes);
 			}
 			else
 			{
 				generated = new LinkedHashSet<TreeAndFeatureVector>();
 				for (PerformFactory<? extends Specification> performerFactory : listPerformFactories)
 				{
-					generated.addAll(generateUsingGivenPerformFactory(item, performerFactory, textTree, textTreeAndParentMap,errorIfPluginThrowsRuntimeException));
+					generated.addAll(generateUsingGivenPerformFactory(item, performerFactory, textTree, textTreeAndParentMap,errorIfPluginThrowsRuntimeException, historyMap, mapAffectedNodes));
 				}
 			}
 			return generated;
@@ -396,11 +546,13 @@ public class TreesGeneratorByOperations
 	 * @param performFactory
 	 * @param textTree
 	 * @param textTreeAndParentMap
+	 * @param historyMap the map into which the histories of the generated trees are put
+	 * @param mapAffectedNodes the map into which the affected nodes of the generated trees are put
 	 * @return
 	 * @throws TeEngineMlException
 	 * @throws OperationException
 	 */
-	private <T extends Specification> Set<TreeAndFeatureVector> generateUsingGivenPerformFactory(SingleOperationItem item, PerformFactory<T> performFactory, TreeAndFeatureVector textTree, TreeAndParentMap<ExtendedInfo, ExtendedNode> textTreeAndParentMap, String errorIfRuntimeThrown) throws TeEngineMlException, OperationException
+	private <T extends Specification> Set<TreeAndFeatureVector> generateUsingGivenPerformFactory(SingleOperationItem item, PerformFactory<T> performFactory, TreeAndFeatureVector textTree, TreeAndParentMap<ExtendedInfo, ExtendedNode> textTreeAndParentMap, String errorIfRuntimeThrown, Map<TreeAndFeatureVector,TreeHistory> historyMap, Map<ExtendedNode,Set<ExtendedNode>> mapAffectedNodes) throws TeEngineMlException, OperationException
 	{
 		try
 		{
@@ -409,20 +561,42 @@ public class TreesGeneratorByOperations
 			// PerformFactory.
 			Set<TreeAndFeatureVector> ret = new LinkedHashSet<TreeAndFeatureVector>();
 
-			// Get a finder to find the operations that can be applied.
-			Finder<T> finder = getFinder(item, performFactory, textTree, textTreeAndParentMap);
-			if (null==finder) throw new TeEngineMlException("Could not get a finder.");
-
-			// Try to improve run-time: Let the finder know what is going to be filtered -
-			// so the finder will not even try to find operations that will be anyhow filtered.
-			if ( (filterSpecifications!=null) && (this.affectedNodes!=null) )
+			// Operations of rule bases might have been found already for this tree
+			// (in this run, or in a previous run on the same data-set).
+			PersistentSpecificationsCache.PairCache pairCache = null;
+			if (PersistentSpecificationsCache.isCacheable(item))
 			{
-				finder.optionallyOptimizeRuntimeByAffectedNodes(this.affectedNodes);
+				pairCache = this.specificationsCache;
+			}
+			String finderName = performFactory.getClass().getName();
+			Set<T> specs = null;
+			if (pairCache!=null)
+			{
+				specs = pairCache.get(textTree.getTree(), item, finderName);
 			}
 
-			// Find all the operations that can be applied.
-			finder.find();
-			Set<T> specs = finder.getSpecs();
+			if (null==specs)
+			{
+				// Get a finder to find the operations that can be applied.
+				Finder<T> finder = getFinder(item, performFactory, textTree, textTreeAndParentMap);
+				if (null==finder) throw new TeEngineMlException("Could not get a finder.");
+
+				// Try to improve run-time: Let the finder know what is going to be filtered -
+				// so the finder will not even try to find operations that will be anyhow filtered.
+				// Not done when the specifications are cached, since the cache should contain all of them.
+				if ( (filterSpecifications!=null) && (this.affectedNodes!=null) && (null==pairCache) )
+				{
+					finder.optionallyOptimizeRuntimeByAffectedNodes(this.affectedNodes);
+				}
+
+				// Find all the operations that can be applied.
+				finder.find();
+				specs = finder.getSpecs();
+				if (pairCache!=null)
+				{
+					pairCache.put(textTree.getTree(), item, finderName, specs);
+				}
+			}
 
 			// If we are in local-lookahead mode, filter the operations that can be applied
 			// such that only the operations that fit the local-lookahead will be applied,
@@ -468,7 +642,7 @@ public class TreesGeneratorByOperations
 
 						// Perform any post-processing required. Currently - only create a
 						// new TreeHistory object for this newly created tree.
-						postProcessOfTreeGeneration(textTree, spec, retTree,operation.getMapOriginalToGenerated());
+						postProcessOfTreeGeneration(textTree, spec, retTree,operation.getMapOriginalToGenerated(), historyMap, mapAffectedNodes);
 
 						// Add the newly created tree to the set of generated trees that will be returned by
 						// this function.
@@ -572,15 +746,18 @@ public class TreesGeneratorByOperations
 	
 	/**
 	 * Merely creates a new {@link TreeHistory} for the generated tree, and put this
-	 * newly created {@link TreeHistory} in the map {@link #historyMap}.
+	 * newly created {@link TreeHistory} in the given history map (which is {@link #historyMap},
+	 * unless trees are generated concurrently).
 	 * 
 	 * @param originalTree
 	 * @param specification
 	 * @param generatedTree
 	 * @param originalToGeneratedMapping
+	 * @param historyMap
+	 * @param mapAffectedNodes
 	 * @throws TeEngineMlException
 	 */
-	private void postProcessOfTreeGeneration(TreeAndFeatureVector originalTree, Specification specification, TreeAndFeatureVector generatedTree, ValueSetMap<ExtendedNode, ExtendedNode> originalToGeneratedMapping) throws TeEngineMlException
+	private void postProcessOfTreeGeneration(TreeAndFeatureVector originalTree, Specification specification, TreeAndFeatureVector generatedTree, ValueSetMap<ExtendedNode, ExtendedNode> originalToGeneratedMapping, Map<TreeAndFeatureVector,TreeHistory> historyMap, Map<ExtendedNode,Set<ExtendedNode>> mapAffectedNodes) throws TeEngineMlException
 	{
 		TreeHistory generatedTreeHistory;
 		generatedTreeHistory = new TreeHistory(treeHistory);
@@ -685,6 +862,12 @@ public class TreesGeneratorByOperations
 	
 	private PerformFactoryFactory performFactoryFactory = null;
 	
+	/**
+	 * Persistent cache of the specifications found by finders of rule bases,
+	 * or <code>null</code> if not used.
+	 */
+	private PersistentSpecificationsCache.PairCache specificationsCache = null;
+	
 	
 	private static final Logger logger = Logger.getLogger(TreesGeneratorByOperations.class);
 	
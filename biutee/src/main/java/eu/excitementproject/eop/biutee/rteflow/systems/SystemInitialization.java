@@ -9,6 +9,8 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.net.MalformedURLException;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.log4j.Logger;
 
@@ -20,6 +22,8 @@ import eu.excitementproject.eop.biutee.plugin.PluginRegistry;
 import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapException;
 import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapToolBox;
 import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapToolBoxFactory;
+import eu.excitementproject.eop.biutee.rteflow.micro.PersistentSpecificationsCache;
+import eu.excitementproject.eop.biutee.rteflow.micro.TreesGeneratorByOperations;
 import eu.excitementproject.eop.biutee.script.RuleBasesAndPluginsContainer;
 import eu.excitementproject.eop.biutee.utilities.BiuteeConstants;
 import eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames;
@@ -197,7 +201,10 @@ public class SystemInitialization
 		else{logger.info("System in pure transformations mode.");}
 		warnIfGapAndCollapseAreInconsistent(collapseMode,gapToolBox);
 		
-		teSystemEnvironment = new TESystemEnvironment(ruleBasesToRetrieveMultiWords, mleEstimation, syncAnnotator, pluginRegistry, featureVectorStructureOrganizer, alignmentCriteria, stopWords,parserMode, collapseMode, gapToolBox, classifierFactory);
+		generationExecutor = createGenerationExecutor();
+		specificationsCache = createSpecificationsCache();
+		
+		teSystemEnvironment = new TESystemEnvironment(ruleBasesToRetrieveMultiWords, mleEstimation, syncAnnotator, pluginRegistry, featureVectorStructureOrganizer, alignmentCriteria, stopWords,parserMode, collapseMode, gapToolBox, classifierFactory, generationExecutor, specificationsCache);
 	}
 	
 	protected void completeInitializationWithScript(RuleBasesAndPluginsContainer<?, ?> script) throws TeEngineMlException
@@ -212,6 +219,15 @@ public class SystemInitialization
 		{
 			lemmatizer.cleanUp();
 		}
+		if (this.generationExecutor!=null)
+		{
+			generationExecutor.shutdown();
+		}
+		if (this.specificationsCache!=null)
+		{
+			logger.info(specificationsCache.getStatistics());
+			specificationsCache.close();
+		}
 	}
 	
 	protected void registerPlugins(PluginRegistry pluginRegistry) throws TeEngineMlException, ConfigurationException
@@ -280,6 +296,42 @@ public class SystemInitialization
 			return null;
 	}
 	
+	/**
+	 * Creates the thread-pool used by {@link TreesGeneratorByOperations} to apply
+	 * operations concurrently, or returns <code>null</code> if the number of generation
+	 * threads is not specified in the configuration file, or is 1.
+	 */
+	private ExecutorService createGenerationExecutor() throws ConfigurationException, TeEngineMlException
+	{
+		ExecutorService ret = null;
+		if (configurationParams.containsKey(ConfigurationParametersNames.RTE_ENGINE_NUMBER_OF_GENERATION_THREADS_PARAMETER_NAME))
+		{
+			int numberOfThreads = configurationParams.getInt(ConfigurationParametersNames.RTE_ENGINE_NUMBER_OF_GENERATION_THREADS_PARAMETER_NAME);
+			if (numberOfThreads<1) throw new TeEngineMlException("Illegal number of generation threads: "+numberOfThreads);
+			if (numberOfThreads>1)
+			{
+				logger.info("Operations will be applied using "+numberOfThreads+" threads.");
+				ret = Executors.newFixedThreadPool(numberOfThreads);
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Opens the persistent cache of specifications found by rule bases, or returns
+	 * <code>null</code> if the cache file is not specified in the configuration file.
+	 */
+	private PersistentSpecificationsCache createSpecificationsCache() throws ConfigurationException, TeEngineMlException
+	{
+		PersistentSpecificationsCache ret = null;
+		if (configurationParams.containsKey(ConfigurationParametersNames.RTE_ENGINE_SPECIFICATIONS_CACHE_FILE_PARAMETER_NAME))
+		{
+			File cacheFile = configurationParams.getFile(ConfigurationParametersNames.RTE_ENGINE_SPECIFICATIONS_CACHE_FILE_PARAMETER_NAME);
+			ret = new PersistentSpecificationsCache(cacheFile, PersistentSpecificationsCache.createConfigurationSignature(configurationFile));
+		}
+		return ret;
+	}
+	
 	private Boolean readClassifierOptimizationParameter() throws ConfigurationException, TeEngineMlException
 	{
 		Boolean ret = null;
@@ -328,6 +380,8 @@ public class SystemInitialization
 	private SentenceAnnotator treeAnnotator;
 	
 	protected TESystemEnvironment teSystemEnvironment;
+	protected ExecutorService generationExecutor = null;
+	protected PersistentSpecificationsCache specificationsCache = null;
 
 	
 	private static final Logger logger = Logger.getLogger(SystemInitialization.class);
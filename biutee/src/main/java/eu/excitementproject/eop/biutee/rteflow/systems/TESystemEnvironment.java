@@ -1,10 +1,12 @@
 package eu.excitementproject.eop.biutee.rteflow.systems;
 
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierFactory;
 import eu.excitementproject.eop.biutee.plugin.PluginRegistry;
 import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapToolBox;
+import eu.excitementproject.eop.biutee.rteflow.micro.PersistentSpecificationsCache;
 import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
 import eu.excitementproject.eop.core.component.syntacticknowledge.utilities.PARSER;
 import eu.excitementproject.eop.transformations.alignment.AlignmentCriteria;
@@ -33,7 +35,9 @@ public class TESystemEnvironment
 			ImmutableSet<String> stopWords,
 			PARSER parser, boolean collapseMode,
 			GapToolBox<ExtendedInfo, ExtendedNode> gapToolBox,
-			ClassifierFactory classifierFactory)
+			ClassifierFactory classifierFactory,
+			ExecutorService generationExecutor,
+			PersistentSpecificationsCache specificationsCache)
 	{
 		super();
 		this.ruleBasesToRetrieveMultiWords = ruleBasesToRetrieveMultiWords;
@@ -47,6 +51,8 @@ public class TESystemEnvironment
 		this.collapseMode = collapseMode;
 		this.gapToolBox = gapToolBox;
 		this.classifierFactory = classifierFactory;
+		this.generationExecutor = generationExecutor;
+		this.specificationsCache = specificationsCache;
 	}
 	
 	
@@ -95,6 +101,22 @@ public class TESystemEnvironment
 	{
 		return classifierFactory;
 	}
+	/**
+	 * Returns a thread-pool used to apply operations on a single tree concurrently,
+	 * or <code>null</code> if operations should be applied sequentially.
+	 */
+	public ExecutorService getGenerationExecutor()
+	{
+		return generationExecutor;
+	}
+	/**
+	 * Returns the persistent cache of specifications found by rule bases, or
+	 * <code>null</code> if no cache is used.
+	 */
+	public PersistentSpecificationsCache getSpecificationsCache()
+	{
+		return specificationsCache;
+	}
 
 
 
@@ -118,4 +140,6 @@ public class TESystemEnvironment
 	private final boolean collapseMode;
 	private final GapToolBox<ExtendedInfo, ExtendedNode> gapToolBox;
 	private final ClassifierFactory classifierFactory;
+	private final ExecutorService generationExecutor;
+	private final PersistentSpecificationsCache specificationsCache;
 }
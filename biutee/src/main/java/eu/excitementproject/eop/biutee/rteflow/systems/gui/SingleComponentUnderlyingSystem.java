@@ -199,6 +199,10 @@ public class SingleComponentUnderlyingSystem extends SystemInitialization
 		{
 			script.cleanUp();
 		}
+		if (generationExecutor!=null)
+		{
+			generationExecutor.shutdown();
+		}
 	}
 	
 	
@@ -0,0 +1,403 @@
+package eu.excitementproject.eop.biutee.rteflow.systems.rtepairs;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.excitementproject.eop.common.codeannotations.ThreadSafe;
+import eu.excitementproject.eop.common.representation.coreference.TreeCoreferenceInformation;
+import eu.excitementproject.eop.common.representation.coreference.TreeCoreferenceInformationException;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.EdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.NamedEntity;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.NodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.SyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.utilities.datasets.rtepairs.TextHypothesisPair;
+
+
+/**
+ * Reads a file written by {@link BinaryPairsWriter}. Only the string table, the object table
+ * and the index of the records are read when the reader is constructed. Each pair is
+ * read from the file only when it is requested, by its position ({@link #read(int)}) or by its
+ * ID ({@link #readById(Integer)}). So, the pairs can be processed one by one, without holding the whole
+ * data-set in memory.
+ * <P>
+ * The reader can be used concurrently by several threads. Each call returns new objects.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+@ThreadSafe
+public class BinaryPairsReader implements Closeable
+{
+	/**
+	 * Returns <code>true</code> if the given file starts with the magic number of the
+	 * binary format (i.e., was written by {@link BinaryPairsWriter}), and <code>false</code> otherwise
+	 * (e.g., if it was written in the Java serialization format).
+	 */
+	public static boolean isBinaryPairsFile(File file) throws IOException
+	{
+		DataInputStream stream = new DataInputStream(new FileInputStream(file));
+		try
+		{
+			return (file.length()>=4) && (stream.readInt()==BinaryPairsWriter.MAGIC);
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+
+	public BinaryPairsReader(File file) throws IOException
+	{
+		this.file = file;
+		this.randomAccessFile = new RandomAccessFile(file, "r");
+		boolean ok = false;
+		try
+		{
+			this.channel = randomAccessFile.getChannel();
+			readHeaderAndFooter();
+			ok = true;
+		}
+		finally
+		{
+			if (!ok) {randomAccessFile.close();}
+		}
+	}
+
+	/**
+	 * Returns the number of pairs in the file.
+	 */
+	public int size()
+	{
+		return recordOffsets.length;
+	}
+
+	/**
+	 * Returns the IDs of the pairs, in the order in which they were written.
+	 */
+	public List<Integer> getPairIds()
+	{
+		return Collections.unmodifiableList(recordIds);
+	}
+
+	/**
+	 * Reads the pair in the given position (0 is the first pair written to the file).
+	 */
+	public PairData read(int index) throws IOException
+	{
+		if ( (index<0) || (index>=recordOffsets.length) ) throw new IndexOutOfBoundsException("Pair index "+index+" is not in the file "+file.getPath()+", which contains "+recordOffsets.length+" pairs.");
+		ByteBuffer lengthBuffer = readFully(recordOffsets[index], 4);
+		ByteBuffer recordBuffer = readFully(recordOffsets[index]+4, lengthBuffer.getInt());
+		DataInputStream stream = new DataInputStream(new ByteArrayInputStream(recordBuffer.array()));
+		try
+		{
+			int recordType = stream.readUnsignedByte();
+			if (BinaryPairsWriter.RECORD_JAVA_SERIALIZATION==recordType)
+			{
+				return (PairData) new ObjectInputStream(stream).readObject();
+			}
+			else if (BinaryPairsWriter.RECORD_BINARY==recordType)
+			{
+				return decode(stream);
+			}
+			else
+			{
+				throw new IOException("Malformed file: "+file.getPath()+". Unknown record type: "+recordType);
+			}
+		}
+		catch (ClassNotFoundException | TreeCoreferenceInformationException e)
+		{
+			throw new IOException("Failed to read pair #"+index+" from "+file.getPath(),e);
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+
+	/**
+	 * Reads the pair with the given ID, or returns <code>null</code> if there is no such pair in the file.
+	 */
+	public PairData readById(Integer pairId) throws IOException
+	{
+		Integer index = mapIdToIndex.get(pairId);
+		if (null==index) return null;
+		return read(index);
+	}
+
+	/**
+	 * Reads all the pairs. Should be used only when all of them should be held in memory anyway.
+	 */
+	public ArrayList<PairData> readAll() throws IOException
+	{
+		ArrayList<PairData> ret = new ArrayList<PairData>(size());
+		for (int index=0;index<size();++index)
+		{
+			ret.add(read(index));
+		}
+		return ret;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		randomAccessFile.close();
+	}
+
+
+
+	//////////////////////// PRIVATE ////////////////////////
+
+	private void readHeaderAndFooter() throws IOException
+	{
+		long fileLength = channel.size();
+		if (fileLength<8+12) throw new IOException("Malformed file: "+file.getPath()+". The file is too short.");
+		ByteBuffer header = readFully(0, 8);
+		if (header.getInt()!=BinaryPairsWriter.MAGIC) throw new IOException("The file "+file.getPath()+" was not written by "+BinaryPairsWriter.class.getSimpleName());
+		int version = header.getInt();
+		if (version!=BinaryPairsWriter.VERSION) throw new IOException("Unsupported version of file "+file.getPath()+": "+version);
+		ByteBuffer trailer = readFully(fileLength-12, 12);
+		long footerOffset = trailer.getLong();
+		if (trailer.getInt()!=BinaryPairsWriter.MAGIC) throw new IOException("Malformed file: "+file.getPath()+". The file was not closed properly.");
+
+		DataInputStream stream = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(footerOffset))));
+		// The stream is not closed, since closing it would close the channel.
+		int numberOfStrings = readVarInt(stream);
+		strings = new String[numberOfStrings];
+		for (int index=0;index<numberOfStrings;++index)
+		{
+			byte[] bytes = new byte[readVarInt(stream)];
+			stream.readFully(bytes);
+			strings[index] = new String(bytes, BinaryPairsWriter.UTF8);
+		}
+
+		byte[] objectsBytes = new byte[stream.readInt()];
+		stream.readFully(objectsBytes);
+		ObjectInputStream objectStream = new ObjectInputStream(new ByteArrayInputStream(objectsBytes));
+		try
+		{
+			objects = ((List<?>) objectStream.readObject()).toArray();
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new IOException("Failed to read the object table of "+file.getPath(),e);
+		}
+		finally
+		{
+			objectStream.close();
+		}
+
+		int numberOfRecords = readVarInt(stream);
+		recordOffsets = new long[numberOfRecords];
+		recordIds = new ArrayList<Integer>(numberOfRecords);
+		mapIdToIndex = new LinkedHashMap<Integer, Integer>();
+		for (int index=0;index<numberOfRecords;++index)
+		{
+			recordOffsets[index] = stream.readLong();
+			Integer id = null;
+			if (stream.readBoolean())
+			{
+				id = stream.readInt();
+				mapIdToIndex.put(id, index);
+			}
+			recordIds.add(id);
+		}
+	}
+
+	private ByteBuffer readFully(long position, int length) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining())
+		{
+			int read = channel.read(buffer, position+buffer.position());
+			if (read<0) throw new IOException("Malformed file: "+file.getPath()+". Unexpected end of file.");
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private PairData decode(DataInputStream stream) throws IOException, ClassNotFoundException, TreeCoreferenceInformationException
+	{
+		byte[] pairBytes = new byte[readVarInt(stream)];
+		stream.readFully(pairBytes);
+		ObjectInputStream pairStream = new ObjectInputStream(new ByteArrayInputStream(pairBytes));
+		TextHypothesisPair pair;
+		try
+		{
+			pair = (TextHypothesisPair) pairStream.readObject();
+		}
+		finally
+		{
+			pairStream.close();
+		}
+
+		String datasetName = readString(stream);
+
+		List<BasicNode> nodes = new ArrayList<BasicNode>();
+		int numberOfTextTrees = readVarInt(stream);
+		List<BasicNode> textTrees = new ArrayList<BasicNode>(numberOfTextTrees);
+		for (int index=0;index<numberOfTextTrees;++index)
+		{
+			textTrees.add(decodeTree(stream, nodes));
+		}
+		BasicNode hypothesisTree = null;
+		if (stream.readBoolean())
+		{
+			hypothesisTree = decodeTree(stream, nodes);
+		}
+
+		int numberOfAntecedents = readVarInt(stream);
+		for (int index=0;index<numberOfAntecedents;++index)
+		{
+			BasicNode node = nodes.get(readVarInt(stream));
+			node.setAntecedent(nodes.get(readVarInt(stream)));
+		}
+
+		Map<BasicNode, String> mapTreesToSentences = null;
+		if (stream.readBoolean())
+		{
+			int size = readVarInt(stream);
+			mapTreesToSentences = new LinkedHashMap<BasicNode, String>();
+			for (int index=0;index<size;++index)
+			{
+				BasicNode tree = nodes.get(readVarInt(stream));
+				byte[] sentence = new byte[readVarInt(stream)];
+				stream.readFully(sentence);
+				mapTreesToSentences.put(tree, new String(sentence, BinaryPairsWriter.UTF8));
+			}
+		}
+
+		TreeCoreferenceInformation<BasicNode> coreferenceInformation = null;
+		if (stream.readBoolean())
+		{
+			coreferenceInformation = new TreeCoreferenceInformation<BasicNode>();
+			int numberOfGroups = readVarInt(stream);
+			for (int groupIndex=0;groupIndex<numberOfGroups;++groupIndex)
+			{
+				Integer groupId = coreferenceInformation.createNewGroup();
+				int groupSize = readVarInt(stream);
+				for (int index=0;index<groupSize;++index)
+				{
+					coreferenceInformation.addNodeToGroup(groupId, nodes.get(readVarInt(stream)));
+				}
+			}
+		}
+
+		return new PairData(pair, textTrees, hypothesisTree, mapTreesToSentences, coreferenceInformation, datasetName);
+	}
+
+	private BasicNode decodeTree(DataInputStream stream, List<BasicNode> nodes) throws IOException
+	{
+		BasicNode node = new BasicNode(decodeInfo(stream));
+		nodes.add(node);
+		int numberOfChildrenPlusOne = readVarInt(stream);
+		for (int index=0;index<numberOfChildrenPlusOne-1;++index)
+		{
+			node.addChild(decodeTree(stream, nodes));
+		}
+		return node;
+	}
+
+	private Info decodeInfo(DataInputStream stream) throws IOException
+	{
+		if (!stream.readBoolean()) return null;
+		String id = readString(stream);
+
+		NodeInfo nodeInfo = null;
+		if (stream.readBoolean())
+		{
+			String word = readString(stream);
+			String lemma = readString(stream);
+			int serial = stream.readInt();
+			String namedEntityName = readString(stream);
+			NamedEntity namedEntity = (null==namedEntityName)?null:NamedEntity.valueOf(namedEntityName);
+			Integer variableId = null;
+			if (stream.readBoolean())
+			{
+				variableId = stream.readInt();
+			}
+			SyntacticInfo syntacticInfo = null;
+			if (stream.readBoolean())
+			{
+				syntacticInfo = new DefaultSyntacticInfo((PartOfSpeech) readObject(stream));
+			}
+			if (variableId!=null)
+			{
+				nodeInfo = DefaultNodeInfo.newVariableDefaultNodeInfo(variableId, lemma, serial, namedEntity, syntacticInfo);
+			}
+			else
+			{
+				nodeInfo = new DefaultNodeInfo(word, lemma, serial, namedEntity, syntacticInfo);
+			}
+		}
+
+		EdgeInfo edgeInfo = null;
+		if (stream.readBoolean())
+		{
+			edgeInfo = new DefaultEdgeInfo((DependencyRelation) readObject(stream));
+		}
+
+		return new DefaultInfo(id, nodeInfo, edgeInfo);
+	}
+
+	private String readString(DataInputStream stream) throws IOException
+	{
+		int indexPlusOne = readVarInt(stream);
+		if (0==indexPlusOne) return null;
+		return strings[indexPlusOne-1];
+	}
+
+	private Object readObject(DataInputStream stream) throws IOException
+	{
+		int indexPlusOne = readVarInt(stream);
+		if (0==indexPlusOne) return null;
+		return objects[indexPlusOne-1];
+	}
+
+	private static int readVarInt(DataInputStream stream) throws IOException
+	{
+		int ret = 0;
+		int shift = 0;
+		while (true)
+		{
+			int b = stream.readUnsignedByte();
+			ret |= (b & 0x7F) << shift;
+			if (0==(b & 0x80)) return ret;
+			shift += 7;
+			if (shift>28) throw new IOException("Malformed variable-length integer.");
+		}
+	}
+
+
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+
+	private String[] strings;
+	private Object[] objects;
+	private long[] recordOffsets;
+	private List<Integer> recordIds;
+	private Map<Integer, Integer> mapIdToIndex;
+}
@@ -0,0 +1,374 @@
+package eu.excitementproject.eop.biutee.rteflow.systems.rtepairs;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.excitementproject.eop.common.codeannotations.NotThreadSafe;
+import eu.excitementproject.eop.common.representation.coreference.TreeCoreferenceInformation;
+import eu.excitementproject.eop.common.representation.coreference.TreeCoreferenceInformationException;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.EdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.NodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.SyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
+
+
+/**
+ * Writes pre-processed pairs ( {@link PairData} ) in a compact binary format, which is
+ * read by {@link BinaryPairsReader}. This format is an alternative to the Java serialization
+ * format written by {@link RTEPairsPreProcessor}: it is smaller, faster to read, and the
+ * pairs can be read one by one, or by their IDs, without reading the whole file.
+ * <P>
+ * The file is built as follows:
+ * <UL>
+ * <LI>Header: magic number and format version.</LI>
+ * <LI>Records: one record for each pair, written by {@link #write(PairData)}, as its length
+ * followed by its content.</LI>
+ * <LI>Footer (written by {@link #close()}): the string table (words, lemmas, node IDs, etc. are
+ * stored in the records as indexes in this table), the object table (distinct parts-of-speech
+ * and dependency relations, stored once in Java serialization), and the index of the records
+ * (pair ID and file offset of each record).</LI>
+ * <LI>Trailer: the offset of the footer, and the magic number.</LI>
+ * </UL>
+ * A pair whose trees contain information which is not supported by the binary encoding
+ * (e.g., {@link Info} implementations other than {@link DefaultInfo}) is stored as a
+ * Java serialization record, so every {@link PairData} can be written.
+ * <P>
+ * Note that co-reference group IDs are not preserved. The groups are renumbered 1, 2, 3...
+ * in the order of {@link TreeCoreferenceInformation#getAllExistingGroupIds()}.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+@NotThreadSafe
+public class BinaryPairsWriter implements Closeable
+{
+	public BinaryPairsWriter(File file) throws IOException
+	{
+		this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		position = 8;
+	}
+
+	/**
+	 * Appends the given pair to the file.
+	 */
+	public void write(PairData pairData) throws IOException
+	{
+		byte[] record;
+		try
+		{
+			record = encode(pairData);
+		}
+		catch (UnsupportedContentException e)
+		{
+			// Fall back to Java serialization for this pair.
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			bytes.write(RECORD_JAVA_SERIALIZATION);
+			ObjectOutputStream objectStream = new ObjectOutputStream(bytes);
+			objectStream.writeObject(pairData);
+			objectStream.close();
+			record = bytes.toByteArray();
+		}
+
+		recordIds.add(pairData.getPair().getId());
+		recordOffsets.add(position);
+		output.writeInt(record.length);
+		output.write(record);
+		position += 4+record.length;
+	}
+
+	/**
+	 * Writes the footer and closes the file. The file cannot be read before this method is called.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (null==output) return;
+		try
+		{
+			long footerOffset = position;
+			writeVarInt(output, strings.size());
+			for (String string : strings.keySet())
+			{
+				byte[] bytes = string.getBytes(UTF8);
+				writeVarInt(output, bytes.length);
+				output.write(bytes);
+			}
+
+			ByteArrayOutputStream objectsBytes = new ByteArrayOutputStream();
+			ObjectOutputStream objectStream = new ObjectOutputStream(objectsBytes);
+			objectStream.writeObject(new ArrayList<Serializable>(objects.keySet()));
+			objectStream.close();
+			output.writeInt(objectsBytes.size());
+			objectsBytes.writeTo(output);
+
+			writeVarInt(output, recordOffsets.size());
+			for (int index=0;index<recordOffsets.size();++index)
+			{
+				output.writeLong(recordOffsets.get(index));
+				Integer id = recordIds.get(index);
+				output.writeBoolean(id!=null);
+				if (id!=null) {output.writeInt(id);}
+			}
+
+			output.writeLong(footerOffset);
+			output.writeInt(MAGIC);
+		}
+		finally
+		{
+			output.close();
+			output = null;
+		}
+	}
+
+
+
+	///////////////////// PACKAGE /////////////////////
+
+	static final int MAGIC = 0x42505253; // "BPRS"
+	static final int VERSION = 1;
+	static final int RECORD_BINARY = 0;
+	static final int RECORD_JAVA_SERIALIZATION = 1;
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	static void writeVarInt(DataOutputStream stream, int value) throws IOException
+	{
+		while ( (value & ~0x7F) != 0 )
+		{
+			stream.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		stream.writeByte(value);
+	}
+
+
+
+	///////////////////// PRIVATE /////////////////////
+
+	/**
+	 * Thrown when a pair contains information that cannot be encoded in the binary format.
+	 */
+	private static final class UnsupportedContentException extends Exception
+	{
+		private static final long serialVersionUID = -2167934883052457245L;
+		public UnsupportedContentException(String message)
+		{
+			super(message);
+		}
+	}
+
+	private byte[] encode(PairData pairData) throws IOException, UnsupportedContentException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream stream = new DataOutputStream(bytes);
+		stream.writeByte(RECORD_BINARY);
+
+		ByteArrayOutputStream pairBytes = new ByteArrayOutputStream();
+		ObjectOutputStream pairStream = new ObjectOutputStream(pairBytes);
+		pairStream.writeObject(pairData.getPair());
+		pairStream.close();
+		writeVarInt(stream, pairBytes.size());
+		pairBytes.writeTo(stream);
+
+		writeString(stream, pairData.getDatasetName());
+
+		// Nodes are numbered in pre-order, over all the trees of the pair.
+		Map<BasicNode, Integer> nodesIndexes = new IdentityHashMap<BasicNode, Integer>();
+		List<BasicNode> nodesWithAntecedent = new ArrayList<BasicNode>();
+		List<BasicNode> textTrees = pairData.getTextTrees();
+		writeVarInt(stream, textTrees.size());
+		for (BasicNode tree : textTrees)
+		{
+			encodeTree(stream, tree, nodesIndexes, nodesWithAntecedent);
+		}
+		stream.writeBoolean(pairData.getHypothesisTree()!=null);
+		if (pairData.getHypothesisTree()!=null)
+		{
+			encodeTree(stream, pairData.getHypothesisTree(), nodesIndexes, nodesWithAntecedent);
+		}
+
+		writeVarInt(stream, nodesWithAntecedent.size());
+		for (BasicNode node : nodesWithAntecedent)
+		{
+			writeVarInt(stream, nodesIndexes.get(node));
+			writeVarInt(stream, indexOf(nodesIndexes, node.getAntecedent()));
+		}
+
+		Map<BasicNode, String> mapTreesToSentences = pairData.getMapTreesToSentences();
+		stream.writeBoolean(mapTreesToSentences!=null);
+		if (mapTreesToSentences!=null)
+		{
+			writeVarInt(stream, mapTreesToSentences.size());
+			for (Map.Entry<BasicNode, String> entry : mapTreesToSentences.entrySet())
+			{
+				writeVarInt(stream, indexOf(nodesIndexes, entry.getKey()));
+				if (null==entry.getValue()) throw new UnsupportedContentException("null sentence");
+				byte[] sentence = entry.getValue().getBytes(UTF8);
+				writeVarInt(stream, sentence.length);
+				stream.write(sentence);
+			}
+		}
+
+		TreeCoreferenceInformation<BasicNode> coreferenceInformation = pairData.getCoreferenceInformation();
+		stream.writeBoolean(coreferenceInformation!=null);
+		if (coreferenceInformation!=null)
+		{
+			try
+			{
+				writeVarInt(stream, coreferenceInformation.getAllExistingGroupIds().size());
+				for (Integer groupId : coreferenceInformation.getAllExistingGroupIds())
+				{
+					writeVarInt(stream, coreferenceInformation.getGroup(groupId).size());
+					for (BasicNode node : coreferenceInformation.getGroup(groupId))
+					{
+						writeVarInt(stream, indexOf(nodesIndexes, node));
+					}
+				}
+			}
+			catch (TreeCoreferenceInformationException e)
+			{
+				throw new UnsupportedContentException("Malformed co-reference information: "+e.getMessage());
+			}
+		}
+
+		stream.close();
+		return bytes.toByteArray();
+	}
+
+	private void encodeTree(DataOutputStream stream, BasicNode node, Map<BasicNode, Integer> nodesIndexes, List<BasicNode> nodesWithAntecedent) throws IOException, UnsupportedContentException
+	{
+		if (nodesIndexes.containsKey(node)) throw new UnsupportedContentException("A node appears more than once.");
+		nodesIndexes.put(node, nodesIndexes.size());
+		if (node.getAntecedent()!=null)
+		{
+			nodesWithAntecedent.add(node);
+		}
+
+		encodeInfo(stream, node.getInfo());
+
+		List<BasicNode> children = node.getChildren();
+		// 0 means no list of children.
+		writeVarInt(stream, (null==children)?0:children.size()+1);
+		if (children!=null)
+		{
+			for (BasicNode child : children)
+			{
+				encodeTree(stream, child, nodesIndexes, nodesWithAntecedent);
+			}
+		}
+	}
+
+	private void encodeInfo(DataOutputStream stream, Info info) throws IOException, UnsupportedContentException
+	{
+		stream.writeBoolean(info!=null);
+		if (null==info) return;
+		if (info.getClass()!=DefaultInfo.class) throw new UnsupportedContentException("Unsupported info: "+info.getClass().getName());
+		writeString(stream, info.getId());
+
+		NodeInfo nodeInfo = info.getNodeInfo();
+		stream.writeBoolean(nodeInfo!=null);
+		if (nodeInfo!=null)
+		{
+			if (nodeInfo.getClass()!=DefaultNodeInfo.class) throw new UnsupportedContentException("Unsupported node info: "+nodeInfo.getClass().getName());
+			// Variable node-infos have no word (see DefaultNodeInfo.newVariableDefaultNodeInfo()).
+			if ( (nodeInfo.getVariableId()!=null) && (nodeInfo.getWord()!=null) ) throw new UnsupportedContentException("Variable with a word.");
+			writeString(stream, nodeInfo.getWord());
+			writeString(stream, nodeInfo.getWordLemma());
+			stream.writeInt(nodeInfo.getSerial());
+			writeString(stream, (nodeInfo.getNamedEntityAnnotation()==null)?null:nodeInfo.getNamedEntityAnnotation().name());
+			stream.writeBoolean(nodeInfo.getVariableId()!=null);
+			if (nodeInfo.getVariableId()!=null) {stream.writeInt(nodeInfo.getVariableId());}
+			SyntacticInfo syntacticInfo = nodeInfo.getSyntacticInfo();
+			stream.writeBoolean(syntacticInfo!=null);
+			if (syntacticInfo!=null)
+			{
+				if (syntacticInfo.getClass()!=DefaultSyntacticInfo.class) throw new UnsupportedContentException("Unsupported syntactic info: "+syntacticInfo.getClass().getName());
+				writeObject(stream, syntacticInfo.getPartOfSpeech());
+			}
+		}
+
+		EdgeInfo edgeInfo = info.getEdgeInfo();
+		stream.writeBoolean(edgeInfo!=null);
+		if (edgeInfo!=null)
+		{
+			if (edgeInfo.getClass()!=DefaultEdgeInfo.class) throw new UnsupportedContentException("Unsupported edge info: "+edgeInfo.getClass().getName());
+			writeObject(stream, edgeInfo.getDependencyRelation());
+		}
+	}
+
+	private static int indexOf(Map<BasicNode, Integer> nodesIndexes, BasicNode node) throws UnsupportedContentException
+	{
+		Integer ret = nodesIndexes.get(node);
+		if (null==ret) throw new UnsupportedContentException("Reference to a node which is not in the trees of the pair.");
+		return ret;
+	}
+
+	/**
+	 * Writes the index of the given string in the string table, plus one (0 is <code>null</code>).
+	 */
+	private void writeString(DataOutputStream stream, String string) throws IOException
+	{
+		if (null==string)
+		{
+			writeVarInt(stream, 0);
+		}
+		else
+		{
+			Integer index = strings.get(string);
+			if (null==index)
+			{
+				index = strings.size();
+				strings.put(string, index);
+			}
+			writeVarInt(stream, index+1);
+		}
+	}
+
+	/**
+	 * Writes the index of the given object in the object table, plus one (0 is <code>null</code>).
+	 */
+	private void writeObject(DataOutputStream stream, Serializable object) throws IOException
+	{
+		if (null==object)
+		{
+			writeVarInt(stream, 0);
+		}
+		else
+		{
+			Integer index = objects.get(object);
+			if (null==index)
+			{
+				index = objects.size();
+				objects.put(object, index);
+			}
+			writeVarInt(stream, index+1);
+		}
+	}
+
+
+	private DataOutputStream output;
+	private long position;
+	private final List<Integer> recordIds = new ArrayList<Integer>();
+	private final List<Long> recordOffsets = new ArrayList<Long>();
+	private final Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+	private final Map<Serializable, Integer> objects = new LinkedHashMap<Serializable, Integer>();
+}
@@ -0,0 +1,197 @@
+package eu.excitementproject.eop.biutee.rteflow.systems.rtepairs;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import eu.excitementproject.eop.common.utilities.datasets.rtepairs.TextHypothesisPair;
+import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
+
+
+/**
+ * A file into which each pre-processed pair is written as soon as its pre-processing
+ * is done, such that if the pre-processing is stopped (e.g., crashes), it can be resumed
+ * from the point it stopped, rather than from the beginning.
+ * <P>
+ * The file is a sequence of records, each of them is an <code>int</code> length followed by
+ * a serialized {@link PairData}. A record which was partially written (when the process was killed)
+ * is removed when the file is opened.
+ * <P>
+ * This file is not the output of the pre-processing. The output is written by {@link RTEPairsPreProcessor},
+ * which deletes the checkpoint file afterwards.
+ *
+ * @see PairsPreProcessor#setCheckpointFile(File)
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class PairsPreProcessingCheckpoint
+{
+	/**
+	 * Opens the given checkpoint file (or creates it if it does not exist), and reads the pairs
+	 * that were already pre-processed.
+	 */
+	public PairsPreProcessingCheckpoint(File file) throws TeEngineMlException
+	{
+		this.file = file;
+		try
+		{
+			if (file.exists())
+			{
+				load();
+			}
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+		}
+		catch (IOException | ClassNotFoundException e)
+		{
+			throw new TeEngineMlException("Failed to open the checkpoint file "+file.getPath(),e);
+		}
+		if (loaded.size()>0)
+		{
+			logger.info("Checkpoint file "+file.getPath()+" contains "+loaded.size()+" pre-processed pairs. They will not be pre-processed again.");
+		}
+	}
+
+	/**
+	 * Returns the pre-processed data of the given pair, if it is stored in the checkpoint file,
+	 * or <code>null</code> otherwise. The stored data is returned only if its text and hypothesis
+	 * are identical to those of the given pair.
+	 */
+	public PairData getPreProcessed(TextHypothesisPair pair)
+	{
+		PairData ret = loaded.get(pair.getId());
+		if (ret!=null)
+		{
+			TextHypothesisPair storedPair = ret.getPair();
+			if ( !(storedPair.getText().equals(pair.getText()) && storedPair.getHypothesis().equals(pair.getHypothesis())) )
+			{
+				logger.warn("Pair #"+pair.getId()+" in the checkpoint file differs from the pair in the data-set. It will be pre-processed again.");
+				ret = null;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Appends the given pre-processed pair to the checkpoint file. The file is flushed, such that
+	 * the pair is not lost if the process is killed later.
+	 */
+	public synchronized void add(PairData pairData) throws TeEngineMlException
+	{
+		try
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream objectStream = new ObjectOutputStream(bytes);
+			try
+			{
+				objectStream.writeObject(pairData);
+			}
+			finally
+			{
+				objectStream.close();
+			}
+			output.writeInt(bytes.size());
+			bytes.writeTo(output);
+			output.flush();
+		}
+		catch (IOException e)
+		{
+			throw new TeEngineMlException("Failed to write pair #"+pairData.getPair().getId()+" to the checkpoint file "+file.getPath(),e);
+		}
+	}
+
+	public synchronized void close()
+	{
+		try
+		{
+			output.close();
+		}
+		catch (IOException e)
+		{
+			logger.warn("Failed to close the checkpoint file "+file.getPath(),e);
+		}
+	}
+
+	/**
+	 * Closes and deletes the checkpoint file. Should be called after the output of the
+	 * pre-processing was written successfully.
+	 */
+	public void delete()
+	{
+		close();
+		if (!file.delete())
+		{
+			logger.warn("Failed to delete the checkpoint file "+file.getPath());
+		}
+	}
+
+
+
+	private void load() throws IOException, ClassNotFoundException
+	{
+		long validLength = 0;
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try
+		{
+			while (true)
+			{
+				byte[] record = new byte[input.readInt()];
+				input.readFully(record);
+				ObjectInputStream objectStream = new ObjectInputStream(new ByteArrayInputStream(record));
+				try
+				{
+					PairData pairData = (PairData) objectStream.readObject();
+					loaded.put(pairData.getPair().getId(), pairData);
+				}
+				finally
+				{
+					objectStream.close();
+				}
+				validLength += 4+record.length;
+			}
+		}
+		catch (EOFException e)
+		{
+			// end of file
+		}
+		finally
+		{
+			input.close();
+		}
+
+		if (validLength<file.length())
+		{
+			logger.warn("The checkpoint file "+file.getPath()+" ends with a partially written pair, which is removed.");
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try
+			{
+				randomAccessFile.setLength(validLength);
+			}
+			finally
+			{
+				randomAccessFile.close();
+			}
+		}
+	}
+
+	private final File file;
+	private final Map<Integer, PairData> loaded = new LinkedHashMap<Integer, PairData>();
+	private DataOutputStream output;
+
+	private static final Logger logger = Logger.getLogger(PairsPreProcessingCheckpoint.class);
+}
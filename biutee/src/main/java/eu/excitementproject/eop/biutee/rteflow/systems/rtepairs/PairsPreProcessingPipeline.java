@@ -0,0 +1,354 @@
+package eu.excitementproject.eop.biutee.rteflow.systems.rtepairs;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import eu.excitementproject.eop.biutee.rteflow.preprocess.Instruments;
+import eu.excitementproject.eop.biutee.rteflow.preprocess.InstrumentsFactory;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
+import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.common.utilities.datasets.rtepairs.TextHypothesisPair;
+import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
+
+
+/**
+ * Pre-processes pairs by a pipeline of three stages: sentence-splitting (with text normalization),
+ * parsing (with named-entity recognition) and co-reference resolution. Each stage has its
+ * own pool of worker threads, and the number of threads is given per stage, since the
+ * tools differ: parsers are typically clients of remote servers, while named-entity recognition
+ * and co-reference resolution are CPU-bound.
+ * <P>
+ * Each worker thread has its own {@link Instruments}, created by {@link InstrumentsFactory},
+ * and initializes only the tools of its own stage. So, the instruments are never used by
+ * two threads concurrently.
+ * <P>
+ * The pairs are given to the {@link PairPreProcessedListener} in the order in which their
+ * pre-processing is completed, which is not necessarily the order of the given list.
+ * Throughput of each stage is reported in the log file.
+ *
+ * @see PairsPreProcessor#setParallel(ConfigurationParams, Map)
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class PairsPreProcessingPipeline
+{
+	public static enum Stage
+	{
+		SENTENCE_SPLITTING,
+		PARSING,
+		COREFERENCE;
+	}
+
+	/**
+	 * Gets each pair when its pre-processing is completed. Called by the worker threads, but never
+	 * by two threads concurrently.
+	 */
+	public static interface PairPreProcessedListener
+	{
+		public void pairPreProcessed(PairData pairData) throws TeEngineMlException;
+	}
+
+	/**
+	 * @param instrumentsParams parameters from which the instruments of each worker thread are created.
+	 * @param makingTextNormalization
+	 * @param processingNamedEntities
+	 * @param numberOfThreads number of worker threads of each stage. A stage which is not in the map has one thread.
+	 */
+	public PairsPreProcessingPipeline(ConfigurationParams instrumentsParams,
+			boolean makingTextNormalization, boolean processingNamedEntities,
+			Map<Stage, Integer> numberOfThreads) throws TeEngineMlException
+	{
+		super();
+		this.instrumentsParams = instrumentsParams;
+		this.makingTextNormalization = makingTextNormalization;
+		this.processingNamedEntities = processingNamedEntities;
+		for (Stage stage : Stage.values())
+		{
+			int threads = 1;
+			if (numberOfThreads.containsKey(stage))
+			{
+				threads = numberOfThreads.get(stage);
+			}
+			if (threads<1) throw new TeEngineMlException("Illegal number of threads for stage "+stage.name()+": "+threads);
+			this.numberOfThreads.put(stage, threads);
+		}
+	}
+
+	/**
+	 * Pre-processes the given pairs, and returns when all of them are done.
+	 * @param pairs the pairs to pre-process.
+	 * @param listener gets each pair when its pre-processing is done.
+	 * @throws TeEngineMlException if the pre-processing of any pair failed. The nested exception is
+	 * the exception thrown by the failed stage.
+	 */
+	public void process(List<TextHypothesisPair> pairs, PairPreProcessedListener listener) throws TeEngineMlException
+	{
+		this.listener = listener;
+		failure = null;
+		startTime = System.currentTimeMillis();
+		numberOfPairs = pairs.size();
+		numberOfDonePairs = 0;
+		List<Thread> threads = new ArrayList<Thread>();
+		Map<Stage, BlockingQueue<SinglePairPreProcessor>> queues = new EnumMap<Stage, BlockingQueue<SinglePairPreProcessor>>(Stage.class);
+		for (Stage stage : Stage.values())
+		{
+			queues.put(stage, new LinkedBlockingQueue<SinglePairPreProcessor>());
+			processedCount.put(stage, new AtomicLong());
+			busyNanos.put(stage, new AtomicLong());
+			remainingWorkers.put(stage, new AtomicInteger(numberOfThreads.get(stage)));
+		}
+
+		for (Stage stage : Stage.values())
+		{
+			BlockingQueue<SinglePairPreProcessor> input = queues.get(stage);
+			BlockingQueue<SinglePairPreProcessor> output = (stage.ordinal()+1<Stage.values().length)?queues.get(Stage.values()[stage.ordinal()+1]):null;
+			for (int index=0;index<numberOfThreads.get(stage);++index)
+			{
+				Thread thread = new Thread(new Worker(stage, input, output), "preprocess-"+stage.name().toLowerCase()+"-"+(index+1));
+				threads.add(thread);
+			}
+		}
+
+		BlockingQueue<SinglePairPreProcessor> firstQueue = queues.get(Stage.values()[0]);
+		for (TextHypothesisPair pair : pairs)
+		{
+			firstQueue.add(new SinglePairPreProcessor(pair, makingTextNormalization, processingNamedEntities, null));
+		}
+		for (int index=0;index<numberOfThreads.get(Stage.values()[0]);++index)
+		{
+			firstQueue.add(END);
+		}
+
+		for (Thread thread : threads)
+		{
+			thread.start();
+		}
+		try
+		{
+			for (Thread thread : threads)
+			{
+				thread.join();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			for (Thread thread : threads) {thread.interrupt();}
+			Thread.currentThread().interrupt();
+			throw new TeEngineMlException("Interrupted while waiting for pre-processing to complete.",e);
+		}
+
+		logger.info("Pre-processing pipeline done.\n"+getThroughputReport());
+		if (failure!=null)
+		{
+			throw new TeEngineMlException("Pre-processing failed. See nested exception.",failure);
+		}
+	}
+
+
+
+	////////////////////// PRIVATE //////////////////////
+
+	private class Worker implements Runnable
+	{
+		public Worker(Stage stage, BlockingQueue<SinglePairPreProcessor> input, BlockingQueue<SinglePairPreProcessor> output)
+		{
+			this.stage = stage;
+			this.input = input;
+			this.output = output;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				Instruments<Info, BasicNode> instruments = createAndInitInstruments();
+				try
+				{
+					SinglePairPreProcessor preProcessor = input.take();
+					while ( (preProcessor!=END) && (null==failure) )
+					{
+						long start = System.nanoTime();
+						runStage(instruments, preProcessor);
+						busyNanos.get(stage).addAndGet(System.nanoTime()-start);
+						processedCount.get(stage).incrementAndGet();
+						if (output!=null)
+						{
+							output.add(preProcessor);
+						}
+						else
+						{
+							pairDone(preProcessor);
+						}
+						preProcessor = input.take();
+					}
+				}
+				finally
+				{
+					cleanUpInstruments(instruments);
+				}
+			}
+			catch (InterruptedException e)
+			{
+				if (null==failure) {fail(e);}
+			}
+			catch (Throwable t)
+			{
+				fail(t);
+			}
+			finally
+			{
+				// The last worker of this stage tells the workers of the next stage that there are no more pairs.
+				if ( (0==remainingWorkers.get(stage).decrementAndGet()) && (output!=null) )
+				{
+					Stage nextStage = Stage.values()[stage.ordinal()+1];
+					for (int index=0;index<numberOfThreads.get(nextStage);++index)
+					{
+						output.add(END);
+					}
+				}
+			}
+		}
+
+		private Instruments<Info, BasicNode> createAndInitInstruments() throws Exception
+		{
+			Instruments<Info, BasicNode> instruments = new InstrumentsFactory().getDefaultInstruments(instrumentsParams);
+			switch(stage)
+			{
+			case PARSING:
+				if (processingNamedEntities)
+				{
+					instruments.getNamedEntityRecognizer().init();
+				}
+				try
+				{
+					instruments.getParser().init();
+				}
+				catch (Exception e)
+				{
+					if (processingNamedEntities) {instruments.getNamedEntityRecognizer().cleanUp();}
+					throw e;
+				}
+				break;
+			case COREFERENCE:
+				instruments.getCoreferenceResolver().init();
+				break;
+			default:
+				break;
+			}
+			return instruments;
+		}
+
+		private void cleanUpInstruments(Instruments<Info, BasicNode> instruments)
+		{
+			switch(stage)
+			{
+			case PARSING:
+				instruments.getParser().cleanUp();
+				if (processingNamedEntities)
+				{
+					instruments.getNamedEntityRecognizer().cleanUp();
+				}
+				break;
+			case COREFERENCE:
+				instruments.getCoreferenceResolver().cleanUp();
+				break;
+			default:
+				break;
+			}
+		}
+
+		private void runStage(Instruments<Info, BasicNode> instruments, SinglePairPreProcessor preProcessor) throws Exception
+		{
+			switch(stage)
+			{
+			case SENTENCE_SPLITTING:
+				if (logger.isDebugEnabled()){logger.debug("Pre process of pair: "+preProcessor.getPair().getId());}
+				preProcessor.splitSentences(instruments);
+				break;
+			case PARSING:
+				preProcessor.parse(instruments);
+				break;
+			case COREFERENCE:
+				preProcessor.resolveCoreference(instruments);
+				break;
+			}
+		}
+
+		private final Stage stage;
+		private final BlockingQueue<SinglePairPreProcessor> input;
+		private final BlockingQueue<SinglePairPreProcessor> output;
+	}
+
+	private synchronized void pairDone(SinglePairPreProcessor preProcessor) throws TeEngineMlException
+	{
+		TextHypothesisPair pair = preProcessor.getPair();
+		listener.pairPreProcessed(new PairData(pair, preProcessor.getTextTrees(), preProcessor.getHypothesisTree(), preProcessor.getMapTreesToSentences(), preProcessor.getCoreferenceInformation()));
+		++numberOfDonePairs;
+		logger.info("pair #"+pair.getId()+" done. ("+numberOfDonePairs+" / "+numberOfPairs+")");
+		if (0==(numberOfDonePairs%REPORT_EVERY))
+		{
+			logger.info(getThroughputReport());
+		}
+	}
+
+	private synchronized void fail(Throwable t)
+	{
+		if (null==failure)
+		{
+			logger.error("Pre-processing failed in thread "+Thread.currentThread().getName()+". Stopping all stages.",t);
+			failure = t;
+		}
+	}
+
+	private String getThroughputReport()
+	{
+		double elapsedMinutes = ((double)(System.currentTimeMillis()-startTime))/60000.0;
+		StringBuilder sb = new StringBuilder();
+		sb.append("Pre-processing throughput (").append(String.format("%-4.2f", elapsedMinutes)).append(" minutes elapsed):");
+		for (Stage stage : Stage.values())
+		{
+			long count = processedCount.get(stage).get();
+			double busyMillis = ((double)busyNanos.get(stage).get())/1000000.0;
+			sb.append("\n").append(stage.name()).append(" (").append(numberOfThreads.get(stage)).append(" threads): ")
+			.append(count).append(" pairs, ")
+			.append(String.format("%-4.2f", (elapsedMinutes>0)?((double)count)/elapsedMinutes:0.0)).append(" pairs per minute, ")
+			.append(String.format("%-4.1f", (count>0)?busyMillis/((double)count):0.0)).append(" ms per pair per thread.");
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Marks the end of the pairs in the queue of a stage.
+	 */
+	private static final SinglePairPreProcessor END = new SinglePairPreProcessor(null, false, false, null);
+	private static final int REPORT_EVERY = 50;
+
+	private final ConfigurationParams instrumentsParams;
+	private final boolean makingTextNormalization;
+	private final boolean processingNamedEntities;
+	private final Map<Stage, Integer> numberOfThreads = new EnumMap<Stage, Integer>(Stage.class);
+
+	private final Map<Stage, AtomicLong> processedCount = new EnumMap<Stage, AtomicLong>(Stage.class);
+	private final Map<Stage, AtomicLong> busyNanos = new EnumMap<Stage, AtomicLong>(Stage.class);
+	private final Map<Stage, AtomicInteger> remainingWorkers = new EnumMap<Stage, AtomicInteger>(Stage.class);
+
+	private PairPreProcessedListener listener;
+	private volatile Throwable failure = null;
+	private long startTime;
+	private int numberOfPairs;
+	private int numberOfDonePairs = 0; // guarded by "this"
+
+	private static final Logger logger = Logger.getLogger(PairsPreProcessingPipeline.class);
+}
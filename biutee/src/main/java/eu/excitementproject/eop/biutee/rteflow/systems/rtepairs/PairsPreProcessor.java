@@ -1,7 +1,10 @@
 package eu.excitementproject.eop.biutee.rteflow.systems.rtepairs;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
@@ -11,6 +14,7 @@ import eu.excitementproject.eop.common.representation.parse.representation.basic
 import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
 import eu.excitementproject.eop.common.representation.parse.tree.dependency.view.TreeStringGenerator.TreeStringGeneratorException;
 import eu.excitementproject.eop.common.utilities.Utils;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
 import eu.excitementproject.eop.common.utilities.datasets.rtepairs.TextHypothesisPair;
 import eu.excitementproject.eop.common.utilities.text.TextPreprocessorException;
 import eu.excitementproject.eop.lap.biu.coreference.CoreferenceResolutionException;
@@ -23,6 +27,13 @@ import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
 /**
  * Gets a list of pairs ( {@link TextHypothesisPair} ) and returns list of {@link PairData}.
  * The pre-processing is sentence-splitting, parsing and co-reference resolution.
+ * <P>
+ * By default the pairs are pre-processed one by one, by the given {@link Instruments}.
+ * If {@link #setParallel(ConfigurationParams, Map)} is called, they are pre-processed by
+ * a {@link PairsPreProcessingPipeline}.
+ * If {@link #setCheckpointFile(File)} is called, each pair is written to the checkpoint file
+ * when its pre-processing is done, and pairs that already exist in that file are not
+ * pre-processed again.
  * @author Asher Stern
  * @since Jan 6, 2011
  *
@@ -57,12 +68,110 @@ public class PairsPreProcessor
 		this.makingTextNormalization = makingTextNormalization;
 	}
 
+	/**
+	 * Makes the pre-processing by a {@link PairsPreProcessingPipeline}, in which each stage
+	 * has the given number of threads. The instruments given in the constructor are not used.
+	 * @param instrumentsParams parameters from which the instruments of each thread are created.
+	 * @param numberOfThreads number of threads of each stage.
+	 */
+	public void setParallel(ConfigurationParams instrumentsParams, Map<PairsPreProcessingPipeline.Stage, Integer> numberOfThreads)
+	{
+		this.instrumentsParams = instrumentsParams;
+		this.numberOfThreads = numberOfThreads;
+	}
+	
+	/**
+	 * Sets a checkpoint file, to which each pair is written when its pre-processing is done.
+	 * Pairs that are already in that file (from a previous run which was stopped) are not pre-processed again.
+	 * @see PairsPreProcessingCheckpoint
+	 */
+	public void setCheckpointFile(File checkpointFile)
+	{
+		this.checkpointFile = checkpointFile;
+	}
+
 	public void process() throws TeEngineMlException, ParserRunException, SentenceSplitterException, CoreferenceResolutionException, TreeCoreferenceInformationException, TextPreprocessorException, NamedEntityRecognizerException, TreeStringGeneratorException
 	{
 		pairsData = new ArrayList<PairData>(pairs.size());
 		if (!processingNamedEntities)
 			logger.warn("Warning: does not perform Named-Entity recognition.");
-			
+		
+		mapPairsData = new LinkedHashMap<Integer, PairData>();
+		List<TextHypothesisPair> pairsToProcess = pairs;
+		if (checkpointFile!=null)
+		{
+			checkpoint = new PairsPreProcessingCheckpoint(checkpointFile);
+			pairsToProcess = new ArrayList<TextHypothesisPair>(pairs.size());
+			for (TextHypothesisPair pair : pairs)
+			{
+				PairData preProcessed = checkpoint.getPreProcessed(pair);
+				if (preProcessed!=null)
+				{
+					mapPairsData.put(pair.getId(), preProcessed);
+				}
+				else
+				{
+					pairsToProcess.add(pair);
+				}
+			}
+		}
+		try
+		{
+			if (numberOfThreads!=null)
+			{
+				new PairsPreProcessingPipeline(instrumentsParams, makingTextNormalization, processingNamedEntities, numberOfThreads).process(pairsToProcess, new PairsPreProcessingPipeline.PairPreProcessedListener()
+				{
+					@Override
+					public void pairPreProcessed(PairData pairData) throws TeEngineMlException
+					{
+						addPairData(pairData);
+					}
+				});
+			}
+			else
+			{
+				processSequentially(pairsToProcess);
+			}
+		}
+		finally
+		{
+			if (checkpoint!=null)
+			{
+				checkpoint.close();
+			}
+		}
+		
+		// The order of the returned pairs is the order of the given pairs.
+		for (TextHypothesisPair pair : pairs)
+		{
+			pairsData.add(mapPairsData.get(pair.getId()));
+		}
+	}
+	
+	/**
+	 * Deletes the checkpoint file, if exists. Should be called after the output of the pre-processing
+	 * was written successfully.
+	 */
+	public void deleteCheckpoint()
+	{
+		if (checkpoint!=null)
+		{
+			checkpoint.delete();
+		}
+	}
+
+	
+	
+	public List<PairData> getPairsData()
+	{
+		return pairsData;
+	}
+	
+	
+	/////////////////////////// PROTECTED AND PRIVATE /////////////////////////////////////////
+	
+	private void processSequentially(List<TextHypothesisPair> pairs) throws TeEngineMlException, ParserRunException, SentenceSplitterException, CoreferenceResolutionException, TreeCoreferenceInformationException, TextPreprocessorException, NamedEntityRecognizerException, TreeStringGeneratorException
+	{
 		//this.coreferenceResolver = new DummyCoreferenceResolver();
 		if (processingNamedEntities)
 		{
@@ -87,7 +196,7 @@ public class PairsPreProcessor
 
 						singlePreProcessor.preprocess();
 						
-						pairsData.add(new PairData(pair, singlePreProcessor.getTextTrees(), singlePreProcessor.getHypothesisTree(), singlePreProcessor.getMapTreesToSentences(), singlePreProcessor.getCoreferenceInformation()));
+						addPairData(new PairData(pair, singlePreProcessor.getTextTrees(), singlePreProcessor.getHypothesisTree(), singlePreProcessor.getMapTreesToSentences(), singlePreProcessor.getCoreferenceInformation()));
 						
 						logger.info("pair #"+pair.getId()+" done.");
 						logger.info("Current usage of memory: "+Utils.stringMemoryUsedInMB());
@@ -111,14 +220,14 @@ public class PairsPreProcessor
 	}
 
 	
-	
-	public List<PairData> getPairsData()
+	private void addPairData(PairData pairData) throws TeEngineMlException
 	{
-		return pairsData;
+		mapPairsData.put(pairData.getPair().getId(), pairData);
+		if (checkpoint!=null)
+		{
+			checkpoint.add(pairData);
+		}
 	}
-	
-	
-	/////////////////////////// PROTECTED AND PRIVATE /////////////////////////////////////////
 
 
 	private List<TextHypothesisPair> pairs;
@@ -126,6 +235,12 @@ public class PairsPreProcessor
 	private boolean makingTextNormalization = true;
 	
 	private List<PairData> pairsData;
+	private Map<Integer, PairData> mapPairsData;
+	
+	private ConfigurationParams instrumentsParams = null;
+	private Map<PairsPreProcessingPipeline.Stage, Integer> numberOfThreads = null;
+	private File checkpointFile = null;
+	private PairsPreProcessingCheckpoint checkpoint = null;
 	
 	private Instruments<Info, BasicNode> instruments;
 	
@@ -39,6 +39,10 @@ public class RTEPairsETEFactory
 		try
 		{
 			File serializedDataFile = configurationParams.getFile(parameterName);
+			if (BinaryPairsReader.isBinaryPairsFile(serializedDataFile))
+			{
+				return createDatasetFromBinaryFile(serializedDataFile, teSystemEnvironment);
+			}
 			logger.info("Loading dataset from serialization file :"+serializedDataFile.getPath());
 			RTESerializedPairsReader pairsReader = new RTESerializedPairsReader(
 					serializedDataFile.getPath()
@@ -53,22 +57,7 @@ public class RTEPairsETEFactory
 			for (PairData pair : pairs)
 			{
 				++pairCounter;
-				
-				// log
-				Integer idInt = pair.getPair().getId();
-				String id = "unknown id";
-				if (idInt!=null) id = String.valueOf(idInt.intValue());
-				logger.info("Converting a pair ("+pairCounter+" out of "+pairs_size+"), id = "+id+".");
-					
-				// convert
-				PairDataToExtendedPairDataConverter converter = new PairDataToExtendedPairDataConverter(pair,teSystemEnvironment);
-				converter.convert();
-				if (logger.isDebugEnabled())
-				{
-					logger.debug("Converting a pair - done. Memory in use = "+Utils.stringMemoryUsedInMB());
-				}
-				extendedPairs.add(converter.getExtendedPairData());
-
+				extendedPairs.add(convertPair(pair, pairCounter, pairs_size, teSystemEnvironment));
 			}
 			logger.info("All pairs have been converted.");
 			RtePairsDataset dataset = new RtePairsDataset(extendedPairs);
@@ -79,6 +68,48 @@ public class RTEPairsETEFactory
 			throw new BiuteeException("Failed to create dataset.",e);
 		}
 	}
+	
+	/**
+	 * Creates the data-set from a file written by {@link BinaryPairsWriter}. The pairs are read
+	 * one by one, such that only the converted pairs are held in memory.
+	 */
+	private static Dataset<THPairInstance> createDatasetFromBinaryFile(File serializedDataFile, TESystemEnvironment teSystemEnvironment) throws IOException, TeEngineMlException, AnnotatorException, TreeCoreferenceInformationException
+	{
+		logger.info("Loading and converting pairs from binary file: "+serializedDataFile.getPath()+". Annotation take place here. This might take some time...");
+		BinaryPairsReader reader = new BinaryPairsReader(serializedDataFile);
+		try
+		{
+			List<ExtendedPairData> extendedPairs = new ArrayList<>(reader.size());
+			for (int index=0;index<reader.size();++index)
+			{
+				extendedPairs.add(convertPair(reader.read(index), index+1, reader.size(), teSystemEnvironment));
+			}
+			logger.info("All pairs have been converted.");
+			return new RtePairsDataset(extendedPairs);
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+	
+	private static ExtendedPairData convertPair(PairData pair, int pairCounter, int pairs_size, TESystemEnvironment teSystemEnvironment) throws TeEngineMlException, AnnotatorException, TreeCoreferenceInformationException
+	{
+		// log
+		Integer idInt = pair.getPair().getId();
+		String id = "unknown id";
+		if (idInt!=null) id = String.valueOf(idInt.intValue());
+		logger.info("Converting a pair ("+pairCounter+" out of "+pairs_size+"), id = "+id+".");
+			
+		// convert
+		PairDataToExtendedPairDataConverter converter = new PairDataToExtendedPairDataConverter(pair,teSystemEnvironment);
+		converter.convert();
+		if (logger.isDebugEnabled())
+		{
+			logger.debug("Converting a pair - done. Memory in use = "+Utils.stringMemoryUsedInMB());
+		}
+		return converter.getExtendedPairData();
+	}
 
 	public static int retrieveNumberOfThreads(ConfigurationParams configurationParams) throws BiuteeException
 	{
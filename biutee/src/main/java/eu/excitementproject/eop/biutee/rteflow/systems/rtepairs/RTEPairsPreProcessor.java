@@ -1,8 +1,13 @@
 package eu.excitementproject.eop.biutee.rteflow.systems.rtepairs;
 
+import static eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames.PREPROCESS_COREFERENCE_THREADS;
 import static eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames.PREPROCESS_DO_NER;
 import static eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames.PREPROCESS_DO_TEXT_NORMALIZATION;
+import static eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames.PREPROCESS_PARSING_THREADS;
+import static eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames.PREPROCESS_SENTENCE_SPLITTING_THREADS;
 import static eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames.RTE_PAIRS_PREPROCESS_ANNOTATED;
+import static eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames.RTE_PAIRS_PREPROCESS_BINARY_SERIALIZATION;
+import static eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames.RTE_PAIRS_PREPROCESS_CHECKPOINT;
 import static eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames.RTE_PAIRS_PREPROCESS_DATASET_FILE_NAME;
 import static eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames.RTE_PAIRS_PREPROCESS_MODULE_NAME;
 import static eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames.RTE_PAIRS_PREPROCESS_SERIALIZATION_FILE_NAME;
@@ -20,6 +25,7 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -73,6 +79,16 @@ import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
  * "pair" is {@link PairData}. true/false are native booleans.
  * To read the file, read each time one object and one boolean. Continue reading until the boolean
  * is false.
+ * <BR>
+ * Alternatively, if the parameter {@link eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames#RTE_PAIRS_PREPROCESS_BINARY_SERIALIZATION}
+ * is true, the file is written by {@link BinaryPairsWriter}.
+ * <P>
+ * If the parameter {@link eu.excitementproject.eop.biutee.utilities.ConfigurationParametersNames#RTE_PAIRS_PREPROCESS_CHECKPOINT}
+ * is true, each pair is written also to a checkpoint file (the serialization file name
+ * followed by ".checkpoint") while pre-processing, such that if the pre-processing is stopped, the next run continues from
+ * the point it stopped. The checkpoint file is deleted when the serialization file is written.
+ * If the number of threads of any pre-processing stage is given in the configuration file, the pairs
+ * are pre-processed in parallel (see {@link PairsPreProcessingPipeline}).
  * 
  * @see RTESerializedPairsReader
  * 
@@ -211,6 +227,36 @@ public class RTEPairsPreProcessor
 			doTextNormalization = params.getBoolean(PREPROCESS_DO_TEXT_NORMALIZATION);
 		else 
 			doTextNormalization = true;
+		
+		readNumberOfThreads(params);
+		
+		if (params.containsKey(RTE_PAIRS_PREPROCESS_BINARY_SERIALIZATION))
+			binarySerialization = params.getBoolean(RTE_PAIRS_PREPROCESS_BINARY_SERIALIZATION);
+		else
+			binarySerialization = false;
+		
+		if (params.containsKey(RTE_PAIRS_PREPROCESS_CHECKPOINT))
+			checkpoint = params.getBoolean(RTE_PAIRS_PREPROCESS_CHECKPOINT);
+		else
+			checkpoint = false;
+	}
+	
+	private void readNumberOfThreads(ConfigurationParams params) throws ConfigurationException
+	{
+		Map<PairsPreProcessingPipeline.Stage, Integer> numberOfThreads = new EnumMap<PairsPreProcessingPipeline.Stage, Integer>(PairsPreProcessingPipeline.Stage.class);
+		if (params.containsKey(PREPROCESS_SENTENCE_SPLITTING_THREADS))
+			numberOfThreads.put(PairsPreProcessingPipeline.Stage.SENTENCE_SPLITTING, params.getInt(PREPROCESS_SENTENCE_SPLITTING_THREADS));
+		if (params.containsKey(PREPROCESS_PARSING_THREADS))
+			numberOfThreads.put(PairsPreProcessingPipeline.Stage.PARSING, params.getInt(PREPROCESS_PARSING_THREADS));
+		if (params.containsKey(PREPROCESS_COREFERENCE_THREADS))
+			numberOfThreads.put(PairsPreProcessingPipeline.Stage.COREFERENCE, params.getInt(PREPROCESS_COREFERENCE_THREADS));
+		
+		if (numberOfThreads.size()>0)
+		{
+			this.numberOfThreads = numberOfThreads;
+			this.instrumentsParams = params;
+			logger.info("Pre-processing in parallel. Number of threads: "+numberOfThreads);
+		}
 	}
 	
 	private String parameterName(String defaultName, String trainName, String testName)
@@ -256,9 +302,18 @@ public class RTEPairsPreProcessor
 		
 		preProcessor.setProcessingNamedEntities(doNer);
 		preProcessor.setMakingTextNormalization(doTextNormalization);
+		if (checkpoint)
+		{
+			preProcessor.setCheckpointFile(new File(preprocessedPairsSerFileName+CHECKPOINT_FILE_SUFFIX));
+		}
+		if (numberOfThreads!=null)
+		{
+			preProcessor.setParallel(instrumentsParams, numberOfThreads);
+		}
 		
 		preProcessor.process();
 		pairsData = preProcessor.getPairsData();
+		this.preProcessor = preProcessor;
 	}
 	
 	/**
@@ -270,6 +325,12 @@ public class RTEPairsPreProcessor
 	{
 		logger.info("Writing to serialization file...");
 		File serFile = new File(preprocessedPairsSerFileName);
+		if (binarySerialization)
+		{
+			writeToBinaryFile(serFile);
+			preProcessor.deleteCheckpoint();
+			return;
+		}
 		ObjectOutputStream outputStream = new ObjectOutputStream(new FileOutputStream(serFile));
 		try
 		{
@@ -298,10 +359,29 @@ public class RTEPairsPreProcessor
 			if (outputStream!=null)
 				outputStream.close();
 		}
+		preProcessor.deleteCheckpoint();
 		
 	}
 	
 	
+	private void writeToBinaryFile(File serFile) throws IOException
+	{
+		BinaryPairsWriter writer = new BinaryPairsWriter(serFile);
+		try
+		{
+			for (PairData pair : pairsData)
+			{
+				logger.info("Writing pair: "+pair.getPair().getId());
+				writer.write(pair);
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+		logger.info("Writing to serialization file done.");
+	}
+	
 	private static String namesOfEnum(Class<? extends Enum<?>> cls)
 	{
 		LinkedList<String> list = new LinkedList<String>();
@@ -323,9 +403,15 @@ public class RTEPairsPreProcessor
 	private String preprocessedPairsSerFileName;
 	private boolean doNer = true;
 	private boolean doTextNormalization = true;
+	private boolean binarySerialization = false;
+	private boolean checkpoint = false;
+	private Map<PairsPreProcessingPipeline.Stage, Integer> numberOfThreads = null;
+	private ConfigurationParams instrumentsParams = null;
+	private PairsPreProcessor preProcessor = null;
 	
 	private List<TextHypothesisPair> pairs = null;
 	private List<PairData> pairsData;
 
+	private static final String CHECKPOINT_FILE_SUFFIX = ".checkpoint";
 	private static Logger logger = null;
 }
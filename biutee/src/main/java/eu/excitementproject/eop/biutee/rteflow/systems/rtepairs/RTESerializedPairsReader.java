@@ -9,7 +9,8 @@ import java.util.ArrayList;
 
 
 /**
- * Reads a serialization file as created by {@link RTEPairsPreProcessor}
+ * Reads a serialization file as created by {@link RTEPairsPreProcessor}.
+ * Files in the binary format ({@link BinaryPairsWriter}) are read by {@link BinaryPairsReader}.
  * @author Asher Stern
  * @since Feb 3, 2011
  *
@@ -29,6 +30,20 @@ public class RTESerializedPairsReader
 	 */
 	public void read() throws FileNotFoundException, IOException, ClassNotFoundException
 	{
+		File file = new File(pairsSerializationFileName);
+		if (BinaryPairsReader.isBinaryPairsFile(file))
+		{
+			BinaryPairsReader reader = new BinaryPairsReader(file);
+			try
+			{
+				pairsData = reader.readAll();
+			}
+			finally
+			{
+				reader.close();
+			}
+			return;
+		}
 		pairsData = new ArrayList<PairData>();
 		ObjectInputStream inputStream = new ObjectInputStream(new FileInputStream(new File(pairsSerializationFileName)));
 		try
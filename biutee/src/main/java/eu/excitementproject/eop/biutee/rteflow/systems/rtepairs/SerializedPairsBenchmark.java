@@ -0,0 +1,97 @@
+package eu.excitementproject.eop.biutee.rteflow.systems.rtepairs;
+import java.io.File;
+import java.util.List;
+
+import eu.excitementproject.eop.common.utilities.Utils;
+
+
+/**
+ * A small stand-alone application that converts a serialization file of pre-processed pairs,
+ * written by Java serialization (by {@link RTEPairsPreProcessor}), into the binary format of
+ * {@link BinaryPairsWriter}, and compares the two formats: file size, load time and memory
+ * used by the loaded pairs.
+ * <P>
+ * Usage: <code>SerializedPairsBenchmark &lt;java-serialization-file&gt; &lt;binary-file&gt;</code>
+ * <BR>
+ * The binary file is created (or overwritten). It can be used instead of the original file
+ * by the train and test systems.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class SerializedPairsBenchmark
+{
+	public static void main(String[] args)
+	{
+		try
+		{
+			if (args.length<2) throw new IllegalArgumentException("Usage: SerializedPairsBenchmark <java-serialization-file> <binary-file>");
+			File javaFile = new File(args[0]);
+			File binaryFile = new File(args[1]);
+
+			System.out.println("Loading "+javaFile.getPath()+" ...");
+			long memoryBefore = usedMemory();
+			long start = System.currentTimeMillis();
+			RTESerializedPairsReader javaReader = new RTESerializedPairsReader(javaFile.getPath());
+			javaReader.read();
+			List<PairData> pairs = javaReader.getPairsData();
+			long javaTime = System.currentTimeMillis()-start;
+			long javaMemory = usedMemory()-memoryBefore;
+
+			System.out.println("Writing "+binaryFile.getPath()+" ...");
+			BinaryPairsWriter writer = new BinaryPairsWriter(binaryFile);
+			try
+			{
+				for (PairData pair : pairs)
+				{
+					writer.write(pair);
+				}
+			}
+			finally
+			{
+				writer.close();
+			}
+			int numberOfPairs = pairs.size();
+			pairs = null;
+			javaReader = null;
+
+			System.out.println("Loading "+binaryFile.getPath()+" ...");
+			memoryBefore = usedMemory();
+			start = System.currentTimeMillis();
+			BinaryPairsReader binaryReader = new BinaryPairsReader(binaryFile);
+			List<PairData> binaryPairs;
+			try
+			{
+				binaryPairs = binaryReader.readAll();
+			}
+			finally
+			{
+				binaryReader.close();
+			}
+			long binaryTime = System.currentTimeMillis()-start;
+			long binaryMemory = usedMemory()-memoryBefore;
+			if (binaryPairs.size()!=numberOfPairs) throw new RuntimeException("Bug: "+binaryPairs.size()+" pairs were read from the binary file, but "+numberOfPairs+" were written.");
+
+			System.out.println("Number of pairs: "+numberOfPairs);
+			System.out.println(String.format("%-22s%15s%15s%15s", "Format", "File size (KB)", "Load time (ms)", "Memory (MB)"));
+			System.out.println(String.format("%-22s%15d%15d%15d", "Java serialization", javaFile.length()/1024, javaTime, javaMemory/(1024*1024)));
+			System.out.println(String.format("%-22s%15d%15d%15d", "Binary", binaryFile.length()/1024, binaryTime, binaryMemory/(1024*1024)));
+			System.out.println("Memory in use: "+Utils.stringMemoryUsedInMB());
+		}
+		catch(Throwable t)
+		{
+			t.printStackTrace(System.out);
+		}
+	}
+
+	private static long usedMemory()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for (int index=0;index<3;++index)
+		{
+			System.gc();
+		}
+		return runtime.totalMemory()-runtime.freeMemory();
+	}
+}
@@ -78,6 +78,22 @@ public class SinglePairPreProcessor
 	{
 		logger.info("Pre process of pair: "+pair.getId());
 
+		splitSentences(initializedInstruments);
+		parse(initializedInstruments);
+		resolveCoreference(initializedInstruments);
+	}
+	
+	/**
+	 * First stage of {@link #preprocess()}: text normalization and sentence splitting.
+	 * Uses only the text-preprocessor and the sentence-splitter of the given instruments.
+	 * <P>
+	 * The three stages ({@link #splitSentences(Instruments)}, {@link #parse(Instruments)} and
+	 * {@link #resolveCoreference(Instruments)}) should be called in this order, but may be called
+	 * with different instruments, by different threads (see {@link PairsPreProcessingPipeline}).
+	 * @param instruments initialized instruments, which are not used concurrently by other threads.
+	 */
+	public void splitSentences(Instruments<Info, BasicNode> instruments) throws TextPreprocessorException, SentenceSplitterException
+	{
 //		if (makingTextNormalization)
 //		{
 //			messageFire.fire("Performing text normalization");
@@ -87,9 +103,9 @@ public class SinglePairPreProcessor
 		if (makingTextNormalization)
 		{
 			messageFire.fire("Normalizing hypothesis");
-			initializedInstruments.getTextPreprocessor().setText(pair.getHypothesis());
-			initializedInstruments.getTextPreprocessor().preprocess();
-			normalizedHypothesis = initializedInstruments.getTextPreprocessor().getPreprocessedText();
+			instruments.getTextPreprocessor().setText(pair.getHypothesis());
+			instruments.getTextPreprocessor().preprocess();
+			normalizedHypothesis = instruments.getTextPreprocessor().getPreprocessedText();
 			if (logger.isDebugEnabled())
 			{
 				logger.debug("Normalized hypotehsis");
@@ -99,7 +115,7 @@ public class SinglePairPreProcessor
 
 
 		messageFire.fire("Performing sentence split");
-		SentenceSplitter sentenceSplitter = initializedInstruments.getSentenceSplitter();
+		SentenceSplitter sentenceSplitter = instruments.getSentenceSplitter();
 		final String text = pair.getText();
 		sentenceSplitter.setDocument(text);
 		sentenceSplitter.split();
@@ -129,9 +145,9 @@ public class SinglePairPreProcessor
 			List<String> normalizedSentences = new ArrayList<String>(sentences.size());
 			for (String sentence : sentences)
 			{
-				initializedInstruments.getTextPreprocessor().setText(sentence);
-				initializedInstruments.getTextPreprocessor().preprocess();
-				normalizedSentences.add(initializedInstruments.getTextPreprocessor().getPreprocessedText());
+				instruments.getTextPreprocessor().setText(sentence);
+				instruments.getTextPreprocessor().preprocess();
+				normalizedSentences.add(instruments.getTextPreprocessor().getPreprocessedText());
 			}
 			sentences = normalizedSentences;
 			
@@ -143,9 +159,18 @@ public class SinglePairPreProcessor
 				{logger.debug("#"+index+": "+sentence);++index;}
 			}
 		}
-
-
-		
+		this.sentences = sentences;
+	}
+	
+	/**
+	 * Second stage of {@link #preprocess()}: parsing (and named-entity recognition) of the
+	 * text sentences and the hypothesis. Uses only the parser and the named-entity-recognizer
+	 * of the given instruments.
+	 * @param instruments initialized instruments, which are not used concurrently by other threads.
+	 */
+	public void parse(Instruments<Info, BasicNode> instruments) throws ParserRunException, NamedEntityRecognizerException
+	{
+		if (null==sentences) throw new ParserRunException("Sentences were not split. Seems that splitSentences() method was not called.");
 		textTrees = new ArrayList<BasicNode>(sentences.size());
 		mapTreesToSentences = new LinkedHashMap<BasicNode, String>();
 
@@ -153,13 +178,25 @@ public class SinglePairPreProcessor
 		for (String textSentence : sentences)
 		{
 			if (logger.isDebugEnabled()){logger.debug("Parsing sentence: \""+textSentence+"\"");}
-			BasicNode tree = PreprocessUtilities.generateParseTree(textSentence, initializedInstruments.getParser(), initializedInstruments.getNamedEntityRecognizer(), processingNamedEntities);
+			BasicNode tree = PreprocessUtilities.generateParseTree(textSentence, instruments.getParser(), instruments.getNamedEntityRecognizer(), processingNamedEntities);
 			textTrees.add(tree);
 			mapTreesToSentences.put(tree, textSentence);
 		}
 
+		messageFire.fire("Parsing hypothesis");
+		hypothesisTree = PreprocessUtilities.generateParseTree(normalizedHypothesis, instruments.getParser(), instruments.getNamedEntityRecognizer(), processingNamedEntities);
+	}
+	
+	/**
+	 * Third stage of {@link #preprocess()}: co-reference resolution of the text trees.
+	 * Uses only the co-reference resolver of the given instruments.
+	 * @param instruments initialized instruments, which are not used concurrently by other threads.
+	 */
+	public void resolveCoreference(Instruments<Info, BasicNode> instruments) throws CoreferenceResolutionException, TreeCoreferenceInformationException, TreeStringGeneratorException
+	{
+		if (null==textTrees) throw new CoreferenceResolutionException("Text was not parsed. Seems that parse() method was not called.");
 		messageFire.fire("Resolving coreference");
-		CoreferenceResolver<BasicNode> coreferenceResolver = initializedInstruments.getCoreferenceResolver();
+		CoreferenceResolver<BasicNode> coreferenceResolver = instruments.getCoreferenceResolver();
 		String textAfterNormalization = StringUtil.joinIterableToString(sentences, " ", true);
 		coreferenceResolver.setInput(textTrees, textAfterNormalization);
 		coreferenceResolver.resolve();
@@ -172,24 +209,6 @@ public class SinglePairPreProcessor
 		// the "virtual" node created by the parser.
 		PreprocessUtilities.integrateParserAntecedentToCoreference(textTrees, coreferenceInformation);
 
-		if (logger.isDebugEnabled())
-		{
-			StringBuilder sb = new StringBuilder();
-			for (Integer groupId : coreferenceInformation.getAllExistingGroupIds())
-			{
-				sb.append(groupId+": ");
-				for (BasicNode node : coreferenceInformation.getGroup(groupId))
-				{
-					sb.append(InfoGetFields.getLemma(node.getInfo())+", ");
-				}
-				sb.append("\n");
-			}
-
-		}
-		
-		messageFire.fire("Parsing hypothesis");
-		hypothesisTree = PreprocessUtilities.generateParseTree(normalizedHypothesis, initializedInstruments.getParser(), initializedInstruments.getNamedEntityRecognizer(), processingNamedEntities);
-		
 		// Log everything, if in debug mode
 		if (logger.isDebugEnabled())
 		{
@@ -197,6 +216,11 @@ public class SinglePairPreProcessor
 		}
 	}
 	
+	public TextHypothesisPair getPair()
+	{
+		return pair;
+	}
+	
 	
 	public List<BasicNode> getTextTrees() throws TeEngineMlException
 	{
@@ -316,6 +340,7 @@ public class SinglePairPreProcessor
 	
 	private ShortMessageFire messageFire;
 	
+	private List<String> sentences = null;
 	private List<BasicNode> textTrees = null;
 	private Map<BasicNode,String> mapTreesToSentences = null;
 	private TreeCoreferenceInformation<BasicNode> coreferenceInformation = null;
@@ -15,6 +15,7 @@ import java.util.Vector;
 
 import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
 import eu.excitementproject.eop.biutee.classifiers.ClassifierUtils;
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
 import eu.excitementproject.eop.biutee.classifiers.LabeledSample;
 import eu.excitementproject.eop.biutee.classifiers.LinearTrainableStorableClassifier;
 import eu.excitementproject.eop.biutee.classifiers.dummy.DummyAllTrueClassifier;
@@ -562,6 +563,13 @@ public class ExternalClassifierRunner
 			throw new ClassifierException("Not implemented");
 		}
 
+		@Override
+		public double getProduct(FeatureVector featureVector)
+				throws ClassifierException
+		{
+			throw new ClassifierException("Not implemented");
+		}
+
 		@Override
 		public LearningModel store() throws ClassifierException
 		{
@@ -252,7 +252,8 @@ public abstract class OperationsScriptForBuiltinKnowledge extends OperationsScri
 			if (resource.isDirtLikeDb())
 			{
 				// Handle all DIRT-like resources (orig-dirt, binary, Unary, Binc, Framenet, etc.)
-				DirtDBRuleBase ruleBase = DirtDBRuleBase.fromConfigurationParams(resource.getDisplayName(), configurationFile.getModuleConfiguration(resource.getModuleName()),parser);
+				// The rule base is shared by the scripts of all the threads.
+				DirtDBRuleBase ruleBase = DirtDBRuleBase.getShared(resource.getDisplayName(), configurationFile.getModuleConfiguration(resource.getModuleName()),parser);
 				listDirtDbRuleBases.add(ruleBase);
 				ruleBasesEnvelopes.put(resource.getDisplayName(),new RuleBaseEnvelope<Info, BasicNode>(ruleBase));
 				items.add(new ItemForKnowedgeResource(resource, new SingleOperationItem(SingleOperationType.RULE_APPLICATION, resource.getDisplayName())));
@@ -52,6 +52,17 @@ public class SingleOperationItem
 	{
 		return pluginId;
 	}
+	
+	/**
+	 * Returns <tt>true</tt> if this item applies the rules of a rule base, i.e., its type
+	 * is a rule application (see {@link SingleOperationType#isRuleApplication()}) and it
+	 * names a rule base (see {@link #getRuleBaseName()}).
+	 * @return <tt>true</tt> if this item applies the rules of a rule base.
+	 */
+	public boolean usesRuleBase()
+	{
+		return type.isRuleApplication() && (ruleBaseName!=null);
+	}
 
 	
 	public String toString()
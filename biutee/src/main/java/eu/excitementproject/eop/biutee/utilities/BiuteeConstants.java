@@ -6,6 +6,7 @@ import eu.excitementproject.eop.transformations.codeannotations.Workaround;
 import eu.excitementproject.eop.transformations.operations.finders.SubstitutionFlipPosFinder;
 import eu.excitementproject.eop.transformations.operations.specifications.Specification;
 import eu.excitementproject.eop.transformations.utilities.Constants;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeFingerprintCalculator;
 
 
 
@@ -24,6 +25,15 @@ public class BiuteeConstants
 	
 	public static final boolean PASTA_GAP_STRICT_ARGUMENT_HEAD_MODE = false;
 	
+	/**
+	 * The total number of tree nodes for which the PASTA-based gap tools of a T-H pair keep
+	 * the gap calculation, such that the gap of a tree is not re-calculated when it is required
+	 * again (e.g., first for the search heuristic, and later, at the end of the global iteration,
+	 * for the feature-vector of the tree). Nodes are counted rather than trees, since each
+	 * calculation holds its tree and the tree's predicate-argument structures.
+	 */
+	public static final int PASTA_GAP_CALCULATORS_CACHE_MAX_NODES = 30000;
+	
 	public static final boolean USE_NEGATIVES_FROM_PREVIOUS_ITERATIONS_IN_ACCURACY_TRAINING = false;
 	
 	/**
@@ -247,6 +257,17 @@ public class BiuteeConstants
 	
 	public static final boolean BEAM_SEARCH_USE_CACHE_OF_GENERATED_TREES = true;
 	
+	/**
+	 * Indicates if A* and K-staged search eliminate states whose trees are identical
+	 * to trees of other states (e.g., the same tree reached by different orders
+	 * of the same operations). Trees are compared by their fingerprints, calculated by
+	 * {@link TreeFingerprintCalculator}.
+	 * <BR>
+	 * Off by default, since two states with the same tree might still differ in their
+	 * history and feature-vectors.
+	 */
+	public static final boolean SEARCH_ELIMINATE_DUPLICATE_STATES = false;
+	
 	public static final boolean DEBUG_USE_DUMMY_COREF = false;
 	
 	/**
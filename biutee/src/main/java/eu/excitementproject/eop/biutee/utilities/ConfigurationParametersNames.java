@@ -41,6 +41,22 @@ public class ConfigurationParametersNames
 	public static final String RTE_PAIRS_PREPROCESS_TEST_ANNOTATED = "test_data_annotated";
 	@ConfigurationParameterAnnotation(RTE_PAIRS_PREPROCESS_MODULE_NAME)
 	public static final String RTE_PAIRS_PREPROCESS_TEST_SERIALIZATION_FILE_NAME = "test_serialization_filename";
+	/**
+	 * If true, the pre-processed pairs are written in the binary format of
+	 * {@link eu.excitementproject.eop.biutee.rteflow.systems.rtepairs.BinaryPairsWriter},
+	 * rather than by Java serialization. Default - false. Both formats are read by the
+	 * train and test systems.
+	 */
+	@ConfigurationParameterAnnotation(value=RTE_PAIRS_PREPROCESS_MODULE_NAME,mandatoryLevel=MandatoryLevel.OPTIONAL)
+	public static final String RTE_PAIRS_PREPROCESS_BINARY_SERIALIZATION = "binary_serialization";
+	/**
+	 * If true, each pre-processed pair is written also to a checkpoint file, such that a
+	 * pre-processing which was stopped continues from the point it stopped.
+	 * Default - false.
+	 * See {@link eu.excitementproject.eop.biutee.rteflow.systems.rtepairs.PairsPreProcessingCheckpoint}.
+	 */
+	@ConfigurationParameterAnnotation(value=RTE_PAIRS_PREPROCESS_MODULE_NAME,mandatoryLevel=MandatoryLevel.OPTIONAL)
+	public static final String RTE_PAIRS_PREPROCESS_CHECKPOINT = "checkpoint";
 	
 	@ConfigurationModuleAnnotation
 	public static final String RTE_SUM_PREPROCESS_MODULE_NAME = "rte_sum_preprocess";
@@ -73,6 +89,24 @@ public class ConfigurationParametersNames
 	public static final String PREPROCESS_COREFERENCE_RESOLUTION_ENGINE = "coreferencer";
 	@ConfigurationParameterAnnotation({RTE_PAIRS_PREPROCESS_MODULE_NAME,RTE_SUM_PREPROCESS_MODULE_NAME})
 	public static final String PREPROCESS_SENTENCE_SPLITTER_TYPE = "sentence_splitter";
+	/**
+	 * Number of threads for sentence splitting (and text normalization) of RTE pairs. If any of the three
+	 * "..._threads" parameters is given, the pairs are pre-processed in parallel, and a stage whose
+	 * parameter is not given has one thread.
+	 * See {@link eu.excitementproject.eop.biutee.rteflow.systems.rtepairs.PairsPreProcessingPipeline}.
+	 */
+	@ConfigurationParameterAnnotation(value=RTE_PAIRS_PREPROCESS_MODULE_NAME,mandatoryLevel=MandatoryLevel.OPTIONAL)
+	public static final String PREPROCESS_SENTENCE_SPLITTING_THREADS = "sentence_splitting_threads";
+	/**
+	 * Number of threads for parsing and named-entity recognition of RTE pairs.
+	 */
+	@ConfigurationParameterAnnotation(value=RTE_PAIRS_PREPROCESS_MODULE_NAME,mandatoryLevel=MandatoryLevel.OPTIONAL)
+	public static final String PREPROCESS_PARSING_THREADS = "parsing_threads";
+	/**
+	 * Number of threads for co-reference resolution of RTE pairs.
+	 */
+	@ConfigurationParameterAnnotation(value=RTE_PAIRS_PREPROCESS_MODULE_NAME,mandatoryLevel=MandatoryLevel.OPTIONAL)
+	public static final String PREPROCESS_COREFERENCE_THREADS = "coreference_threads";
 
 	
 	// Run RTE modules
@@ -103,6 +137,21 @@ public class ConfigurationParametersNames
 	public static final String RTE_ENGINE_CLASSIFIER_OPTIMIZATION_PARAMETER_NAME = "classifier-optimization";
 	@ConfigurationParameterAnnotation({RTE_PAIRS_TRAIN_AND_TEST_MODULE_NAME,RTE_SUM_TRAIN_AND_TEST_MODULE_NAME})
 	public static final String RTE_ENGINE_NUMBER_OF_THREADS_PARAMETER_NAME = "threads";
+	/**
+	 * Number of threads used to apply the operations (rule bases) on a single tree
+	 * concurrently. Helps the latency of a single pair. Default - 1 (no concurrency).
+	 * See {@link eu.excitementproject.eop.biutee.rteflow.micro.TreesGeneratorByOperations}.
+	 */
+	@ConfigurationParameterAnnotation(value={RTE_PAIRS_TRAIN_AND_TEST_MODULE_NAME,RTE_SUM_TRAIN_AND_TEST_MODULE_NAME},mandatoryLevel=MandatoryLevel.OPTIONAL)
+	public static final String RTE_ENGINE_NUMBER_OF_GENERATION_THREADS_PARAMETER_NAME = "generation-threads";
+	/**
+	 * A file in which the specifications found by the rule bases are stored, such that
+	 * they are reused by later training iterations and by testing on the same data-set.
+	 * Optional - no cache if not specified.
+	 * See {@link eu.excitementproject.eop.biutee.rteflow.micro.PersistentSpecificationsCache}.
+	 */
+	@ConfigurationParameterAnnotation(value={RTE_PAIRS_TRAIN_AND_TEST_MODULE_NAME,RTE_SUM_TRAIN_AND_TEST_MODULE_NAME},mandatoryLevel=MandatoryLevel.OPTIONAL)
+	public static final String RTE_ENGINE_SPECIFICATIONS_CACHE_FILE_PARAMETER_NAME = "specifications-cache-file";
 	@ConfigurationParameterAnnotation({RTE_PAIRS_TRAIN_AND_TEST_MODULE_NAME,RTE_SUM_TRAIN_AND_TEST_MODULE_NAME})
 	public static final String RTE_ENGINE_UNIGRAM_LIDSTON_SER_FILE = "unigram_lidston_ser_file";
 	@ConfigurationParameterAnnotation({RTE_PAIRS_TRAIN_AND_TEST_MODULE_NAME,RTE_SUM_TRAIN_AND_TEST_MODULE_NAME})
@@ -0,0 +1,122 @@
+package eu.excitementproject.eop.biutee.classifiers;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author Asher Stern
+ *
+ */
+public class FeatureVectorTest
+{
+	@Test
+	public void testCopyOnWrite()
+	{
+		FeatureVector original = new FeatureVector();
+		original.setValue(1, 1.0);
+		original.setValue(3, 3.0);
+
+		FeatureVector copy = new FeatureVector(original);
+		assertEquals(original, copy);
+
+		// changing the copy does not change the original
+		copy.setValue(1, 10.0);
+		copy.addToValue(5, 5.0);
+		assertEquals(1.0, original.getValue(1), 0.0);
+		assertFalse(original.isDefined(5));
+		assertEquals(2, original.size());
+		assertEquals(10.0, copy.getValue(1), 0.0);
+		assertEquals(5.0, copy.getValue(5), 0.0);
+		assertEquals(3, copy.size());
+
+		// changing the original does not change a copy
+		FeatureVector secondCopy = new FeatureVector(original);
+		original.remove(3);
+		original.put(2, 2.0);
+		assertEquals(3.0, secondCopy.getValue(3), 0.0);
+		assertFalse(secondCopy.isDefined(2));
+		assertEquals(2, secondCopy.size());
+
+		// a copy of a copy
+		FeatureVector copyOfCopy = new FeatureVector(secondCopy);
+		secondCopy.clear();
+		assertTrue(secondCopy.isEmpty());
+		assertEquals(2, copyOfCopy.size());
+		assertEquals(3.0, copyOfCopy.getValue(3), 0.0);
+	}
+
+	@Test
+	public void testGrowth()
+	{
+		FeatureVector vector = new FeatureVector(2);
+		FeatureVector copy = new FeatureVector(vector);
+		vector.setValue(1000, 1.0);
+		assertTrue(vector.getIndexesBound()>1000);
+		assertEquals(1.0, vector.getValue(1000), 0.0);
+		assertFalse(copy.isDefined(1000));
+		assertEquals(0.0, copy.getValue(1000), 0.0);
+		assertEquals(0, copy.size());
+	}
+
+	@Test
+	public void testMap()
+	{
+		Map<Integer,Double> map = new LinkedHashMap<Integer, Double>();
+		map.put(7, 7.0);
+		map.put(0, 0.5);
+		map.put(100, -1.0);
+
+		FeatureVector vector = new FeatureVector(map);
+		assertEquals(map, vector);
+		assertEquals(map.hashCode(), vector.hashCode());
+		assertNull(vector.get(1));
+		assertNull(vector.get("1"));
+		assertFalse(vector.containsKey(-1));
+
+		// the iteration order is the order of the indexes
+		assertEquals(Arrays.asList(0, 7, 100), new ArrayList<Integer>(vector.keySet()));
+
+		// changing through the entries and the iterator
+		for (Map.Entry<Integer, Double> entry : vector.entrySet())
+		{
+			entry.setValue(entry.getValue()*2);
+		}
+		assertEquals(14.0, vector.getValue(7), 0.0);
+		List<Integer> removed = new ArrayList<Integer>();
+		for (java.util.Iterator<Integer> iterator = vector.keySet().iterator(); iterator.hasNext();)
+		{
+			Integer index = iterator.next();
+			if (index.intValue()>0)
+			{
+				iterator.remove();
+				removed.add(index);
+			}
+		}
+		assertEquals(Arrays.asList(7, 100), removed);
+		assertEquals(1, vector.size());
+		assertEquals(3, map.size());
+
+		assertSame(vector, FeatureVector.asFeatureVector(vector));
+		assertEquals(map, FeatureVector.asFeatureVector(map));
+	}
+
+	@Test(expected=NullPointerException.class)
+	public void testNullValue()
+	{
+		new FeatureVector().put(1, null);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNegativeIndex()
+	{
+		new FeatureVector().setValue(-1, 1.0);
+	}
+}
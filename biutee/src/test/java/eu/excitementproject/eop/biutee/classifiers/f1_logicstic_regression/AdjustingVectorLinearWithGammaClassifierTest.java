@@ -0,0 +1,83 @@
+package eu.excitementproject.eop.biutee.classifiers.f1_logicstic_regression;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.biutee.classifiers.ClassifierException;
+import eu.excitementproject.eop.biutee.classifiers.FeatureVector;
+
+/**
+ * 
+ * @author Asher Stern
+ *
+ */
+public class AdjustingVectorLinearWithGammaClassifierTest
+{
+	@Test
+	public void testProductOfFeatureVector() throws ClassifierException
+	{
+		// weights of: the constant, features 0..3
+		AdjustingVectorLinearWithGammaClassifier classifier = classifier(new double[]{-0.5, 1e16, 1.0, 3.0, -1e16});
+
+		// inserted not in the order of the indexes; the values make the sum depend on the order of the additions
+		Map<Integer,Double> map = new LinkedHashMap<Integer, Double>();
+		map.put(3, 1.0);
+		map.put(1, 1.0);
+		map.put(0, 1.0);
+		map.put(2, 0.1);
+
+		double expected = classifier.getProduct(new LinkedHashMap<Integer, Double>(map));
+		assertEquals(expected, classifier.getProduct(new FeatureVector(map)), 0.0);
+
+		// a missing feature is 0
+		map.remove(2);
+		expected = classifier.getProduct(new LinkedHashMap<Integer, Double>(map));
+		assertEquals(expected, classifier.getProduct(new FeatureVector(map)), 0.0);
+	}
+
+	@Test
+	public void testBadLength() throws ClassifierException
+	{
+		AdjustingVectorLinearWithGammaClassifier classifier = classifier(new double[]{-0.5, 1.0, 2.0, 3.0});
+
+		FeatureVector shortVector = new FeatureVector();
+		shortVector.setValue(0, 1.0);
+		shortVector.setValue(1, 1.0);
+		assertBadLength(classifier, shortVector);
+
+		FeatureVector longVector = new FeatureVector();
+		longVector.setValue(0, 1.0);
+		longVector.setValue(3, 1.0);
+		assertBadLength(classifier, longVector);
+
+		assertBadLength(classifier, new FeatureVector());
+	}
+
+	private static void assertBadLength(AdjustingVectorLinearWithGammaClassifier classifier, FeatureVector featureVector)
+	{
+		try
+		{
+			classifier.getProduct(new LinkedHashMap<Integer, Double>(featureVector));
+			fail("getProduct(Map) accepted a vector of the wrong length");
+		}
+		catch(ClassifierException e){}
+		try
+		{
+			classifier.getProduct(featureVector);
+			fail("getProduct(FeatureVector) accepted a vector of the wrong length");
+		}
+		catch(ClassifierException e){}
+	}
+
+	private static AdjustingVectorLinearWithGammaClassifier classifier(double[] weights)
+	{
+		AdjustingVectorLinearWithGammaClassifier classifier = new AdjustingVectorLinearWithGammaClassifier(){};
+		classifier.weights = weights;
+		classifier.gammaCoefficientSigmoid = 1.0;
+		return classifier;
+	}
+}
@@ -0,0 +1,420 @@
+package eu.excitementproject.eop.biutee.rteflow.macro.gap.pastabased;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.biutee.classifiers.LinearClassifier;
+import eu.excitementproject.eop.biutee.classifiers.linearimplementations.LinearClassifierWithLeadingConstant;
+import eu.excitementproject.eop.biutee.rteflow.macro.Feature;
+import eu.excitementproject.eop.biutee.rteflow.macro.gap.GapEnvironment;
+import eu.excitementproject.eop.biutee.utilities.BiuteeConstants;
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableMapWrapper;
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSetWrapper;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.NamedEntity;
+import eu.excitementproject.eop.common.representation.parse.tree.AbstractNodeUtils;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeIterator;
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.pasta.PredicateArgumentStructure;
+import eu.excitementproject.eop.lap.biu.en.pasta.PredicateArgumentStructureBuilderFactory;
+import eu.excitementproject.eop.lap.biu.en.pasta.nomlex.Nominalization;
+import eu.excitementproject.eop.lap.biu.pasta.identification.PredicateArgumentStructureBuilder;
+import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
+import eu.excitementproject.eop.transformations.representation.AdditionalNodeInformation;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.representation.annotations.PredTruth;
+import eu.excitementproject.eop.transformations.utilities.UnigramProbabilityEstimation;
+
+/**
+ * Tests {@link PastaBasedV3GapTools} on a fixed T-H pair: the gap features of the trees
+ * are those calculated by the gap tools before the calculators were cached and the
+ * fixed state was shared, the results of concurrent calls are those of sequential calls,
+ * and the cache of the calculators is bounded by the number of nodes.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class PastaBasedV3GapToolsTest
+{
+	@Test
+	public void testFeaturesOfFixturePair() throws Exception
+	{
+		PastaBasedV3GapTools<ExtendedInfo, ExtendedNode> tools = createTools();
+		GapEnvironment<ExtendedInfo, ExtendedNode> environment = createEnvironment();
+		Map<String, ExtendedNode> trees = treesOfPair(environment);
+		for (int iteration=0;iteration<2;++iteration) // the second time, the cached calculators are used
+		{
+			for (Map.Entry<String, ExtendedNode> tree : trees.entrySet())
+			{
+				TreeAndParentMap<ExtendedInfo, ExtendedNode> tapm = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(tree.getValue());
+				Map<Integer, Double> features = tools.updateForGap(tapm, featureVector(), environment);
+				double[] expected = EXPECTED_FEATURES.get(tree.getKey());
+				for (int index=0;index<GAP_FEATURES.length;++index)
+				{
+					assertEquals(tree.getKey()+" "+GAP_FEATURES[index].name(), expected[index], features.get(GAP_FEATURES[index].getFeatureIndex()).doubleValue(), DELTA);
+				}
+				double gap = 0.0;
+				for (double value : expected) {gap -= value;}
+				assertEquals(tree.getKey(), gap, tools.measure(tapm, featureVector(), environment), DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentEqualsSequential() throws Exception
+	{
+		final GapEnvironment<ExtendedInfo, ExtendedNode> environment = createEnvironment();
+		Map<String, ExtendedNode> trees = treesOfPair(environment);
+		// the same trees several times, and copies of them
+		List<ExtendedNode> allTrees = new ArrayList<ExtendedNode>();
+		for (int copy=0;copy<5;++copy)
+		{
+			for (ExtendedNode tree : trees.values())
+			{
+				allTrees.add(tree);
+				allTrees.add(copy(tree));
+			}
+		}
+
+		PastaBasedV3GapTools<ExtendedInfo, ExtendedNode> sequentialTools = createTools();
+		Map<ExtendedNode, String> expected = new LinkedHashMap<ExtendedNode, String>();
+		int numberOfNodes = 0;
+		for (ExtendedNode tree : allTrees)
+		{
+			if (!expected.containsKey(tree))
+			{
+				numberOfNodes += AbstractNodeUtils.treeSize(tree);
+			}
+			expected.put(tree, gapOf(sequentialTools, tree, environment));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+		try
+		{
+			// new gap tools in each round, since most of the shared state is built by the first calls
+			for (int round=0;round<20;++round)
+			{
+				final PastaBasedV3GapTools<ExtendedInfo, ExtendedNode> concurrentTools = createTools();
+				final CyclicBarrier barrier = new CyclicBarrier(NUMBER_OF_THREADS);
+				List<Future<Map<ExtendedNode, String>>> futures = new ArrayList<Future<Map<ExtendedNode, String>>>();
+				for (int thread=0;thread<NUMBER_OF_THREADS;++thread)
+				{
+					final List<ExtendedNode> treesOfThread = new ArrayList<ExtendedNode>(allTrees);
+					Collections.shuffle(treesOfThread, new Random(round*NUMBER_OF_THREADS+thread));
+					futures.add(executor.submit(new Callable<Map<ExtendedNode, String>>()
+					{
+						@Override
+						public Map<ExtendedNode, String> call() throws Exception
+						{
+							barrier.await();
+							Map<ExtendedNode, String> ret = new LinkedHashMap<ExtendedNode, String>();
+							for (ExtendedNode tree : treesOfThread)
+							{
+								ret.put(tree, gapOf(concurrentTools, tree, environment));
+							}
+							return ret;
+						}
+					}));
+				}
+				for (Future<Map<ExtendedNode, String>> future : futures)
+				{
+					Map<ExtendedNode, String> actual = future.get();
+					for (ExtendedNode tree : allTrees)
+					{
+						assertEquals(expected.get(tree), actual.get(tree));
+					}
+				}
+				assertEquals(expected.size(), concurrentTools.getNumberOfCachedCalculators());
+				assertEquals(numberOfNodes, concurrentTools.getNumberOfCachedNodes());
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testCacheBoundedByNodes() throws Exception
+	{
+		PastaBasedV3GapTools<ExtendedInfo, ExtendedNode> tools = createTools();
+		GapEnvironment<ExtendedInfo, ExtendedNode> environment = createEnvironment();
+		ExtendedNode tree = treesOfPair(environment).get("near");
+		int treeSize = AbstractNodeUtils.treeSize(tree);
+		int capacity = BiuteeConstants.PASTA_GAP_CALCULATORS_CACHE_MAX_NODES/treeSize;
+		String expected = gapOf(tools, tree, environment);
+		for (int index=0;index<capacity+10;++index)
+		{
+			assertEquals(expected, gapOf(tools, copy(tree), environment));
+			assertTrue(tools.getNumberOfCachedNodes()<=BiuteeConstants.PASTA_GAP_CALCULATORS_CACHE_MAX_NODES);
+			assertEquals(tools.getNumberOfCachedCalculators()*treeSize, tools.getNumberOfCachedNodes());
+		}
+		assertEquals(capacity, tools.getNumberOfCachedCalculators());
+
+		// a tree larger than the bound is still cached (alone)
+		ExtendedNode large = node("buy", "V", null, null, AdditionalInformationServices.emptyInformation());
+		for (int index=0;index<BiuteeConstants.PASTA_GAP_CALCULATORS_CACHE_MAX_NODES;++index)
+		{
+			large.addChild(node("car", "N", "dobj", null, AdditionalInformationServices.emptyInformation()));
+		}
+		gapOf(tools, large, environment);
+		assertEquals(1, tools.getNumberOfCachedCalculators());
+		assertEquals(AbstractNodeUtils.treeSize(large), tools.getNumberOfCachedNodes());
+	}
+
+
+	/**
+	 * Returns the gap measure and the gap features of the given tree, with the features
+	 * rounded, such that results of different calls can be compared as strings.
+	 */
+	private static String gapOf(PastaBasedV3GapTools<ExtendedInfo, ExtendedNode> tools, ExtendedNode tree, GapEnvironment<ExtendedInfo, ExtendedNode> environment) throws Exception
+	{
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> tapm = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(tree);
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%.9f", tools.measure(tapm, featureVector(), environment)));
+		Map<Integer, Double> features = tools.updateForGap(tapm, featureVector(), environment);
+		for (Feature feature : GAP_FEATURES)
+		{
+			sb.append(" ").append(String.format("%.9f", features.get(feature.getFeatureIndex())));
+		}
+		return sb.toString();
+	}
+
+	private static PastaBasedV3GapTools<ExtendedInfo, ExtendedNode> createTools() throws Exception
+	{
+		PredicateArgumentStructureBuilderFactory<ExtendedInfo, ExtendedNode> builderFactory =
+				new PredicateArgumentStructureBuilderFactory<ExtendedInfo, ExtendedNode>(new ImmutableMapWrapper<String, Nominalization>(new HashMap<String, Nominalization>()));
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(hypothesisTree());
+		PredicateArgumentStructureBuilder<ExtendedInfo, ExtendedNode> builder = builderFactory.createBuilder(hypothesis);
+		builder.build();
+		Set<PredicateArgumentStructure<ExtendedInfo, ExtendedNode>> hypothesisStructures = builder.getPredicateArgumentStructures();
+		assertTrue(hypothesisStructures.size()>=2);
+
+		Set<String> stopWords = new LinkedHashSet<String>();
+		stopWords.add("a");
+		stopWords.add("the");
+		return new PastaBasedV3GapTools<ExtendedInfo, ExtendedNode>(builderFactory, hypothesisStructures, hypothesis, classifier(),
+				new UnigramProbabilityEstimation()
+				{
+					@Override
+					public double getEstimationFor(String word)
+					{
+						return 1.0/(2+word.length());
+					}
+				},
+				new ImmutableSetWrapper<String>(stopWords));
+	}
+
+	/**
+	 * A classifier with weight 1 for each of the gap features, so the gap measure is
+	 * minus the sum of the gap features.
+	 */
+	private static LinearClassifier classifier()
+	{
+		return new LinearClassifierWithLeadingConstant()
+		{{
+			parameters = new LinkedHashMap<Integer, Double>();
+			parameters.put(0, 0.0);
+			for (Feature feature : GAP_FEATURES)
+			{
+				parameters.put(feature.getFeatureIndex()+1, 1.0);
+			}
+			trainedOrModelLoaded = true;
+		}};
+	}
+
+	private static Map<Integer, Double> featureVector()
+	{
+		Map<Integer, Double> ret = new LinkedHashMap<Integer, Double>();
+		for (Feature feature : Feature.values())
+		{
+			ret.put(feature.getFeatureIndex(), 0.0);
+		}
+		return ret;
+	}
+
+	/**
+	 * Text: "John purchased a car. Mary lives in Paris."
+	 */
+	private static GapEnvironment<ExtendedInfo, ExtendedNode> createEnvironment() throws Exception
+	{
+		ExtendedNode first = node("purchase", "V", null, null, AdditionalInformationServices.emptyInformation());
+		first.addChild(node("John", "NP", "nsubj", NamedEntity.PERSON, AdditionalInformationServices.emptyInformation()));
+		ExtendedNode car = node("car", "N", "dobj", null, AdditionalInformationServices.emptyInformation());
+		car.addChild(node("a", "ART", "det", null, AdditionalInformationServices.emptyInformation()));
+		first.addChild(car);
+
+		ExtendedNode second = node("live", "V", null, null, AdditionalInformationServices.emptyInformation());
+		second.addChild(node("Mary", "NP", "nsubj", NamedEntity.PERSON, AdditionalInformationServices.emptyInformation()));
+		second.addChild(node("Paris", "NP", "prep_in", NamedEntity.LOCATION, AdditionalInformationServices.emptyInformation()));
+
+		List<ExtendedNode> surrounding = new ArrayList<ExtendedNode>();
+		surrounding.add(first);
+		surrounding.add(second);
+		Set<String> wholeTextLemmas = new LinkedHashSet<String>();
+		for (ExtendedNode tree : surrounding)
+		{
+			for (ExtendedNode node : TreeIterator.iterableTree(tree))
+			{
+				wholeTextLemmas.add(InfoGetFields.getLemma(node.getInfo()).toLowerCase());
+			}
+		}
+		Set<String> hypothesisLemmas = new LinkedHashSet<String>();
+		for (ExtendedNode node : TreeIterator.iterableTree(hypothesisTree()))
+		{
+			hypothesisLemmas.add(InfoGetFields.getLemma(node.getInfo()).toLowerCase());
+		}
+		return new GapEnvironment<ExtendedInfo, ExtendedNode>(surrounding, wholeTextLemmas, hypothesisLemmas);
+	}
+
+	/**
+	 * Hypothesis: "John bought a red car in Paris with cash, and Toyota sold his house."
+	 */
+	private static ExtendedNode hypothesisTree() throws Exception
+	{
+		AdditionalNodeInformation positive = AdditionalInformationServices.setPredTruth(AdditionalInformationServices.emptyInformation(), PredTruth.P);
+		ExtendedNode root = node("buy", "V", null, null, positive);
+		root.addChild(node("John", "NP", "nsubj", NamedEntity.PERSON, AdditionalInformationServices.emptyInformation()));
+		root.addChild(car(true));
+		root.addChild(node("Paris", "NP", "prep_in", NamedEntity.LOCATION, AdditionalInformationServices.emptyInformation()));
+		root.addChild(node("cash", "N", "prep_with", null, AdditionalInformationServices.emptyInformation()));
+		ExtendedNode sell = node("sell", "V", "conj", null, positive);
+		sell.addChild(node("Toyota", "NP", "nsubj", NamedEntity.ORGANIZATION, AdditionalInformationServices.emptyInformation()));
+		ExtendedNode house = node("house", "N", "dobj", null, AdditionalInformationServices.emptyInformation());
+		house.addChild(node("he", "PR", "poss", null, AdditionalInformationServices.emptyInformation()));
+		sell.addChild(house);
+		root.addChild(sell);
+		return root;
+	}
+
+	/**
+	 * Returns the original text trees, and trees that might be generated from them, by name.
+	 */
+	private static Map<String, ExtendedNode> treesOfPair(GapEnvironment<ExtendedInfo, ExtendedNode> environment) throws Exception
+	{
+		Map<String, ExtendedNode> ret = new LinkedHashMap<String, ExtendedNode>();
+		ret.put("original", environment.getSurroundingsContext().get(0));
+		ret.put("context", environment.getSurroundingsContext().get(1));
+
+		// "John bought a car"
+		ExtendedNode tree = node("buy", "V", null, null, AdditionalInformationServices.emptyInformation());
+		tree.addChild(node("John", "NP", "nsubj", NamedEntity.PERSON, AdditionalInformationServices.emptyInformation()));
+		tree.addChild(car(false));
+		ret.put("buy", tree);
+
+		// "John did not buy a red car"
+		tree = node("buy", "V", null, null, AdditionalInformationServices.setPredTruth(AdditionalInformationServices.emptyInformation(), PredTruth.N));
+		tree.addChild(node("John", "NP", "nsubj", NamedEntity.PERSON, AdditionalInformationServices.emptyInformation()));
+		tree.addChild(car(true));
+		ret.put("negated", tree);
+
+		// "Mary bought a car in Paris"
+		tree = node("buy", "V", null, null, AdditionalInformationServices.emptyInformation());
+		tree.addChild(node("Mary", "NP", "nsubj", NamedEntity.PERSON, AdditionalInformationServices.emptyInformation()));
+		tree.addChild(car(false));
+		tree.addChild(node("Paris", "NP", "prep_in", NamedEntity.LOCATION, AdditionalInformationServices.emptyInformation()));
+		ret.put("other-subject", tree);
+
+		// "John purchased a red car in Paris with cash, and sold a house"
+		tree = node("purchase", "V", null, null, AdditionalInformationServices.emptyInformation());
+		tree.addChild(node("John", "NP", "nsubj", NamedEntity.PERSON, AdditionalInformationServices.emptyInformation()));
+		tree.addChild(car(true));
+		tree.addChild(node("Paris", "NP", "prep_in", NamedEntity.LOCATION, AdditionalInformationServices.emptyInformation()));
+		tree.addChild(node("cash", "N", "prep_with", null, AdditionalInformationServices.emptyInformation()));
+		ExtendedNode sell = node("sell", "V", "conj", null, AdditionalInformationServices.emptyInformation());
+		ExtendedNode house = node("house", "N", "dobj", null, AdditionalInformationServices.emptyInformation());
+		house.addChild(node("a", "ART", "det", null, AdditionalInformationServices.emptyInformation()));
+		sell.addChild(house);
+		tree.addChild(sell);
+		ret.put("near", tree);
+		return ret;
+	}
+
+	private static ExtendedNode car(boolean red) throws Exception
+	{
+		ExtendedNode car = node("car", "N", "dobj", null, AdditionalInformationServices.emptyInformation());
+		car.addChild(node("a", "ART", "det", null, AdditionalInformationServices.emptyInformation()));
+		if (red)
+		{
+			car.addChild(node("red", "ADJ", "amod", null, AdditionalInformationServices.emptyInformation()));
+		}
+		return car;
+	}
+
+	private static ExtendedNode node(String lemma, String pos, String relation, NamedEntity namedEntity, AdditionalNodeInformation additionalInformation) throws Exception
+	{
+		++nodes;
+		return new ExtendedNode(new ExtendedInfo(String.valueOf(nodes),
+				new DefaultNodeInfo(lemma, lemma, nodes, namedEntity, new DefaultSyntacticInfo(new ByCanonicalPartOfSpeech(pos))),
+				new DefaultEdgeInfo(null==relation ? null : new DependencyRelation(relation, null)),
+				additionalInformation));
+	}
+
+	private static ExtendedNode copy(ExtendedNode tree)
+	{
+		ExtendedNode ret = new ExtendedNode(tree.getInfo());
+		if (tree.hasChildren())
+		{
+			for (ExtendedNode child : tree.getChildren())
+			{
+				ret.addChild(copy(child));
+			}
+		}
+		return ret;
+	}
+
+
+	private static final Feature[] GAP_FEATURES = {
+		Feature.GAP_V3_MISSING_ARGUMENT,
+		Feature.GAP_V3_MISSING_NAMED_ENTITIES,
+		Feature.GAP_V3_WRONG_PREDICATE_MISSING_WORDS,
+		Feature.GAP_V3_WRONG_PREDICATE,
+		Feature.GAP_V3_MISSING_WORDS,
+		Feature.GAP_V3_MISSING_WORDS_TOTALLY_NON_PREDICATES,
+		Feature.GAP_V3_MISSING_WORDS_TOTALLY_PREDICATES,
+		Feature.GAP_V3_PREDICATE_NO_MATCH
+	};
+
+	/**
+	 * The gap features of the trees of {@link #treesOfPair(GapEnvironment)}, in the order of
+	 * {@link #GAP_FEATURES}, as calculated by the gap tools before the calculators were cached.
+	 */
+	private static final Map<String, double[]> EXPECTED_FEATURES = new LinkedHashMap<String, double[]>();
+	static
+	{
+		EXPECTED_FEATURES.put("original", new double[]{-1, -1, -1, -1, 0, -7.426549072397304, -3.401197381662155, -3.401197381662155});
+		EXPECTED_FEATURES.put("context", new double[]{-1, -1, -1, -1, 0, -7.426549072397304, -3.401197381662155, -3.401197381662155});
+		EXPECTED_FEATURES.put("buy", new double[]{-1, -1, 0, 0, -1, -7.426549072397304, -1.791759469228055, -1.791759469228055});
+		EXPECTED_FEATURES.put("negated", new double[]{-1, -1, 0, 0, 0, -5.817111159963204, -1.791759469228055, -3.401197381662155});
+		EXPECTED_FEATURES.put("other-subject", new double[]{-1, -1, 0, -1, -1, -7.426549072397304, -1.791759469228055, -1.791759469228055});
+		EXPECTED_FEATURES.put("near", new double[]{0, -1, 0, -2, 0, -2.0794415416798357, -1.6094379124341003, -1.6094379124341003});
+	}
+
+	private static final double DELTA = 0.000000001;
+	private static final int NUMBER_OF_THREADS = 8;
+
+	private static int nodes = 0;
+}
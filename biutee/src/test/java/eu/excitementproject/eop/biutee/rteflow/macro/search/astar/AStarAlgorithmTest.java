@@ -0,0 +1,117 @@
+package eu.excitementproject.eop.biutee.rteflow.macro.search.astar;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.biutee.rteflow.macro.search.StateFingerprinter;
+import eu.excitementproject.eop.biutee.rteflow.macro.search.astar.AStarAlgorithm.AStarException;
+import eu.excitementproject.eop.biutee.rteflow.macro.search.astar.AStarAlgorithm.StateCalculations;
+
+/**
+ * Searches for a state in which all of {@value #NUMBER_OF_OPERATIONS} operations were applied,
+ * where the operations can be applied in any order. Different orders of the same
+ * operations yield duplicate states.
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class AStarAlgorithmTest
+{
+	@Test
+	public void testNoElimination() throws Exception
+	{
+		AStarAlgorithm<State> algorithm = createAlgorithm();
+		algorithm.find();
+		assertEquals(GOAL, algorithm.getFoundGoalState().applied);
+		assertEquals(NUMBER_OF_OPERATIONS, algorithm.getFoundGoalState().cost);
+		assertEquals(0, algorithm.getNumberOfPrunedDuplicates());
+		// all the orders of the first two operations are expanded: 1+3+6, and the goal
+		assertEquals(11, algorithm.getNumberOfExpandedElements());
+	}
+
+	@Test
+	public void testEliminateDuplicateStates() throws Exception
+	{
+		AStarAlgorithm<State> algorithm = createAlgorithm();
+		algorithm.setStateFingerprinter(new StateFingerprinter<State>()
+		{
+			public long getFingerprint(State state)
+			{
+				return state.applied;
+			}
+		});
+		algorithm.find();
+		assertEquals(GOAL, algorithm.getFoundGoalState().applied);
+		assertEquals(NUMBER_OF_OPERATIONS, algorithm.getFoundGoalState().cost);
+		// each set of operations is expanded once: 1+3+3, and the goal
+		assertEquals(8, algorithm.getNumberOfExpandedElements());
+		assertTrue(algorithm.getNumberOfPrunedDuplicates()>0);
+	}
+
+	private static AStarAlgorithm<State> createAlgorithm() throws AStarException
+	{
+		return new AStarAlgorithm<State>(Collections.singleton(new State(0, 0)), new Calculations(), new Comparator<State>()
+		{
+			public int compare(State o1, State o2)
+			{
+				return Integer.compare(o1.cost, o2.cost);
+			}
+		});
+	}
+
+	private static final class State implements Comparable<State>
+	{
+		public State(int applied, int cost)
+		{
+			this.applied = applied;
+			this.cost = cost;
+		}
+
+		public int compareTo(State o)
+		{
+			int ret = Integer.compare(cost, o.cost);
+			if (0==ret) ret = Integer.compare(applied, o.applied);
+			return ret;
+		}
+
+		private final int applied;
+		private final int cost;
+	}
+
+	private static final class Calculations implements StateCalculations<State>
+	{
+		public boolean isGoal(State state)
+		{
+			return GOAL==state.applied;
+		}
+
+		public boolean stateChildrenAlreadyKnown(State state, Set<State> cloasedSet)
+		{
+			return false;
+		}
+
+		public List<State> getChildren(State state, Set<State> cloasedSet)
+		{
+			List<State> children = new ArrayList<State>();
+			for (int operation=0;operation<NUMBER_OF_OPERATIONS;++operation)
+			{
+				if (0==(state.applied&(1<<operation)))
+				{
+					children.add(new State(state.applied|(1<<operation), state.cost+1));
+				}
+			}
+			return children;
+		}
+	}
+
+	private static final int NUMBER_OF_OPERATIONS = 3;
+	private static final int GOAL = (1<<NUMBER_OF_OPERATIONS)-1;
+}
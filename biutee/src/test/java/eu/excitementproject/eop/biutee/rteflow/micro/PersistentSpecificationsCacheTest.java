@@ -0,0 +1,195 @@
+package eu.excitementproject.eop.biutee.rteflow.micro;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.biutee.script.SingleOperationItem;
+import eu.excitementproject.eop.biutee.script.SingleOperationType;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.NamedEntity;
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.transformations.operations.specifications.SubstituteNodeSpecification;
+import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeFingerprintCalculator;
+
+/**
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class PersistentSpecificationsCacheTest
+{
+	@Test
+	public void testIsCacheable()
+	{
+		assertTrue(PersistentSpecificationsCache.isCacheable(new SingleOperationItem(SingleOperationType.LEXICAL_RULE_BY_LEMMA_APPLICATION, "wordnet")));
+		assertTrue(PersistentSpecificationsCache.isCacheable(new SingleOperationItem(SingleOperationType.LEXICAL_RULE_BY_LEMMA_AND_POS_APPLICATION, "wordnet")));
+		assertTrue(PersistentSpecificationsCache.isCacheable(new SingleOperationItem(SingleOperationType.RULE_APPLICATION, "syntactic")));
+		assertFalse(PersistentSpecificationsCache.isCacheable(new SingleOperationItem(SingleOperationType.VARIABLE_GENERALIZATION)));
+		assertFalse(PersistentSpecificationsCache.isCacheable(new SingleOperationItem(SingleOperationType.MULTIWORD_SUBSTITUTION)));
+		assertFalse(PersistentSpecificationsCache.isCacheable(new SingleOperationItem(SingleOperationType.UNJUSTIFIED_INSERTION)));
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception
+	{
+		File file = File.createTempFile("specificationsCache", ".bin");
+		try
+		{
+			ExtendedNode textTree = tree("dog");
+			PersistentSpecificationsCache cache = new PersistentSpecificationsCache(file, SIGNATURE);
+			PersistentSpecificationsCache.PairCache pairCache = cache.forPair(tree("hound"), Collections.singletonList(textTree));
+			assertNull(pairCache.get(textTree, ITEM, FINDER));
+			pairCache.put(textTree, ITEM, FINDER, specifications(textTree));
+			assertEquals(1, pairCache.get(textTree, ITEM, FINDER).size());
+			cache.close();
+
+			// the specifications refer to the nodes of the given trees, which are equal to the stored ones
+			ExtendedNode sameTextTree = tree("dog");
+			cache = new PersistentSpecificationsCache(file, SIGNATURE);
+			pairCache = cache.forPair(tree("hound"), Collections.singletonList(sameTextTree));
+			Set<SubstituteNodeSpecification> read = pairCache.get(sameTextTree, ITEM, FINDER);
+			assertEquals(1, read.size());
+			assertSame(sameTextTree.getChildren().get(0), read.iterator().next().getTextNodeToBeSubstituted());
+			assertNull(pairCache.get(sameTextTree, new SingleOperationItem(SingleOperationType.LEXICAL_RULE_BY_LEMMA_AND_POS_APPLICATION, "wikipedia"), FINDER));
+
+			// a different word or named-entity of the text tree, or another pair, is a miss
+			assertNull(pairCache.get(tree("dog", "dogs", null), ITEM, FINDER));
+			assertNull(pairCache.get(tree("dog", "dog", NamedEntity.PERSON), ITEM, FINDER));
+			assertNull(cache.forPair(tree("hound"), Collections.singletonList(tree("dog", "dog", NamedEntity.PERSON))).get(sameTextTree, ITEM, FINDER));
+			cache.close();
+
+			// a change of the configuration discards the file
+			cache = new PersistentSpecificationsCache(file, "another signature");
+			assertNull(cache.forPair(tree("hound"), Collections.singletonList(sameTextTree)).get(sameTextTree, ITEM, FINDER));
+			cache.close();
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * An entry whose fingerprints equal those of the given trees, but which was stored for
+	 * other trees, must not be returned.
+	 */
+	@Test
+	public void testFingerprintCollision() throws Exception
+	{
+		File file = File.createTempFile("specificationsCache", ".bin");
+		try
+		{
+			ExtendedNode storedTextTree = tree("cat");
+			PersistentSpecificationsCache cache = new PersistentSpecificationsCache(file, SIGNATURE);
+			cache.forPair(tree("hound"), Collections.singletonList(storedTextTree)).put(storedTextTree, ITEM, FINDER, specifications(storedTextTree));
+			cache.close();
+
+			// Forge a collision, by replacing the fingerprint of the stored text tree with that of another tree.
+			ExtendedNode textTree = tree("dog");
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try
+			{
+				long entryPosition = 4+4+2+SIGNATURE.length();
+				randomAccessFile.seek(entryPosition+8);
+				int pairDescriptionLength = randomAccessFile.readInt();
+				randomAccessFile.seek(entryPosition+8+4+pairDescriptionLength);
+				assertEquals(TreeFingerprintCalculator.getOrderedFingerprint(storedTextTree), randomAccessFile.readLong());
+				randomAccessFile.seek(entryPosition+8+4+pairDescriptionLength);
+				randomAccessFile.writeLong(TreeFingerprintCalculator.getOrderedFingerprint(textTree));
+			}
+			finally
+			{
+				randomAccessFile.close();
+			}
+
+			cache = new PersistentSpecificationsCache(file, SIGNATURE);
+			PersistentSpecificationsCache.PairCache pairCache = cache.forPair(tree("hound"), Collections.singletonList(storedTextTree));
+			assertNull(pairCache.get(textTree, ITEM, FINDER));
+			cache.close();
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testPartialEntryIsRemoved() throws Exception
+	{
+		File file = File.createTempFile("specificationsCache", ".bin");
+		try
+		{
+			ExtendedNode textTree = tree("dog");
+			PersistentSpecificationsCache cache = new PersistentSpecificationsCache(file, SIGNATURE);
+			PersistentSpecificationsCache.PairCache pairCache = cache.forPair(tree("hound"), Collections.singletonList(textTree));
+			pairCache.put(textTree, ITEM, FINDER, specifications(textTree));
+			cache.close();
+			long length = file.length();
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try
+			{
+				randomAccessFile.setLength(length-1);
+			}
+			finally
+			{
+				randomAccessFile.close();
+			}
+
+			cache = new PersistentSpecificationsCache(file, SIGNATURE);
+			assertNull(cache.forPair(tree("hound"), Collections.singletonList(textTree)).get(textTree, ITEM, FINDER));
+			cache.close();
+			assertEquals(4+4+2+SIGNATURE.length(), file.length());
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+
+	private static Set<SubstituteNodeSpecification> specifications(ExtendedNode textTree) throws Exception
+	{
+		ExtendedNode child = textTree.getChildren().get(0);
+		Set<SubstituteNodeSpecification> ret = new LinkedHashSet<SubstituteNodeSpecification>();
+		ret.add(new SubstituteNodeSpecification(child, new DefaultNodeInfo("animal", "animal", 0, null, new DefaultSyntacticInfo(new ByCanonicalPartOfSpeech("N"))), child.getInfo().getAdditionalNodeInformation()));
+		return ret;
+	}
+
+	private static ExtendedNode tree(String subject) throws Exception
+	{
+		return tree(subject, subject, null);
+	}
+
+	private static ExtendedNode tree(String subjectLemma, String subjectWord, NamedEntity subjectNamedEntity) throws Exception
+	{
+		ExtendedNode tree = node("eat", "eat", null, "V", null);
+		tree.addChild(node(subjectWord, subjectLemma, subjectNamedEntity, "N", "nsubj"));
+		return tree;
+	}
+
+	private static ExtendedNode node(String word, String lemma, NamedEntity namedEntity, String pos, String relation) throws Exception
+	{
+		return new ExtendedNode(new ExtendedInfo(lemma,
+				new DefaultNodeInfo(word, lemma, 0, namedEntity, new DefaultSyntacticInfo(new ByCanonicalPartOfSpeech(pos))),
+				new DefaultEdgeInfo(null==relation ? null : new DependencyRelation(relation, null)),
+				AdditionalInformationServices.emptyInformation()));
+	}
+
+	private static final String SIGNATURE = "signature";
+	private static final String FINDER = "finder";
+	private static final SingleOperationItem ITEM = new SingleOperationItem(SingleOperationType.LEXICAL_RULE_BY_LEMMA_AND_POS_APPLICATION, "wordnet");
+}
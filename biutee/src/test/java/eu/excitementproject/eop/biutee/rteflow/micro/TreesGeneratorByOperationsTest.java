@@ -0,0 +1,314 @@
+package eu.excitementproject.eop.biutee.rteflow.micro;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.biutee.plugin.Plugin;
+import eu.excitementproject.eop.biutee.plugin.PluginRegistry;
+import eu.excitementproject.eop.biutee.rteflow.macro.FeatureUpdate;
+import eu.excitementproject.eop.biutee.rteflow.macro.TreeAndFeatureVector;
+import eu.excitementproject.eop.biutee.rteflow.macro.TreeHistory;
+import eu.excitementproject.eop.biutee.rteflow.macro.TreeHistoryComponent;
+import eu.excitementproject.eop.biutee.rteflow.systems.FeatureVectorStructureOrganizer;
+import eu.excitementproject.eop.biutee.script.RuleBasesAndPluginsContainer;
+import eu.excitementproject.eop.biutee.script.SingleOperationItem;
+import eu.excitementproject.eop.biutee.script.SingleOperationType;
+import eu.excitementproject.eop.common.component.syntacticknowledge.RuleWithConfidenceAndDescription;
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableList;
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableListWrapper;
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSetWrapper;
+import eu.excitementproject.eop.common.representation.coreference.TreeCoreferenceInformation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.core.component.syntacticknowledge.utilities.PARSER;
+import eu.excitementproject.eop.lap.biu.lemmatizer.Lemmatizer;
+import eu.excitementproject.eop.transformations.datastructures.CanonicalLemmaAndPos;
+import eu.excitementproject.eop.transformations.datastructures.LemmaAndPos;
+import eu.excitementproject.eop.transformations.operations.finders.SubstitutionMultiWordUnderlyingFinder;
+import eu.excitementproject.eop.transformations.operations.rules.BagOfRulesRuleBase;
+import eu.excitementproject.eop.transformations.operations.rules.ByLemmaLexicalRuleBase;
+import eu.excitementproject.eop.transformations.operations.rules.ByLemmaPosLexicalRuleBase;
+import eu.excitementproject.eop.transformations.operations.rules.LexicalRule;
+import eu.excitementproject.eop.transformations.operations.rules.RuleBaseEnvelope;
+import eu.excitementproject.eop.transformations.operations.rules.RuleBaseException;
+import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeFingerprintCalculator;
+
+/**
+ * Compares the trees generated by {@link TreesGeneratorByOperations} sequentially,
+ * and concurrently (with a generation executor), by lexical rule bases.
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class TreesGeneratorByOperationsTest
+{
+	@Test
+	public void testConcurrentGenerationEqualsSequential() throws Exception
+	{
+		ExtendedNode textTree = tree("eat", "dog", "bone");
+		ExtendedNode hypothesisTree = tree("consume", "hound", "food");
+		TreeAndFeatureVector textTreeAndFeatureVector = new TreeAndFeatureVector(textTree, new LinkedHashMap<Integer, Double>());
+
+		List<SingleOperationItem> items = new ArrayList<SingleOperationItem>();
+		items.add(new SingleOperationItem(SingleOperationType.LEXICAL_RULE_BY_LEMMA_AND_POS_APPLICATION, "wordnet"));
+		items.add(new SingleOperationItem(SingleOperationType.LEXICAL_RULE_BY_LEMMA_AND_POS_APPLICATION, "wikipedia"));
+		items.add(new SingleOperationItem(SingleOperationType.LEXICAL_RULE_BY_LEMMA_AND_POS_APPLICATION_2D, "wordnet"));
+
+		Map<String, ByLemmaPosLexicalRuleBase<LexicalRule>> ruleBases = new LinkedHashMap<String, ByLemmaPosLexicalRuleBase<LexicalRule>>();
+		ruleBases.put("wordnet", new MapLexicalRuleBase(
+				new LexicalRule("dog", N, "hound", N, 0.9),
+				new LexicalRule("eat", V, "consume", V, 0.8),
+				new LexicalRule("dog", N, "canine", N, 0.7)));
+		ruleBases.put("wikipedia", new MapLexicalRuleBase(
+				new LexicalRule("bone", N, "food", N, 0.6),
+				new LexicalRule("dog", N, "hound", N, 0.5)));
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			TreesGeneratorByOperations sequential = generate(textTreeAndFeatureVector, hypothesisTree, items, ruleBases, null);
+			TreesGeneratorByOperations concurrent = generate(textTreeAndFeatureVector, hypothesisTree, items, ruleBases, executor);
+
+			List<TreeAndFeatureVector> sequentialTrees = new ArrayList<TreeAndFeatureVector>(sequential.getGeneratedTrees());
+			List<TreeAndFeatureVector> concurrentTrees = new ArrayList<TreeAndFeatureVector>(concurrent.getGeneratedTrees());
+			assertEquals(8, sequentialTrees.size());
+			assertEquals(sequentialTrees.size(), concurrentTrees.size());
+			for (int index=0;index<sequentialTrees.size();++index)
+			{
+				TreeAndFeatureVector sequentialTree = sequentialTrees.get(index);
+				TreeAndFeatureVector concurrentTree = concurrentTrees.get(index);
+				assertEquals(TreeFingerprintCalculator.getOrderedFingerprint(sequentialTree.getTree()), TreeFingerprintCalculator.getOrderedFingerprint(concurrentTree.getTree()));
+				assertEquals(sequentialTree.getFeatureVector(), concurrentTree.getFeatureVector());
+				assertEquals(
+						sequential.getHistoryMap().get(sequentialTree).getSpecifications().toString(),
+						concurrent.getHistoryMap().get(concurrentTree).getSpecifications().toString());
+				assertNotNull(concurrent.getMapAffectedNodes().get(concurrentTree.getTree()));
+			}
+			for (SingleOperationItem item : items)
+			{
+				assertEquals(sequential.getMapGeneratedByOperation().get(item).size(), concurrent.getMapGeneratedByOperation().get(item).size());
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testRuleBaseOfItem()
+	{
+		for (SingleOperationType type : SingleOperationType.values())
+		{
+			SingleOperationItem item = new SingleOperationItem(type, "resource");
+			assertEquals(type.isRuleApplication(), "resource".equals(TreesGeneratorByOperations.ruleBaseOfItem(item)));
+			assertNull(TreesGeneratorByOperations.ruleBaseOfItem(new SingleOperationItem(type)));
+		}
+	}
+	
+	
+	private static TreesGeneratorByOperations generate(TreeAndFeatureVector textTree, ExtendedNode hypothesisTree, List<SingleOperationItem> items, final Map<String, ByLemmaPosLexicalRuleBase<LexicalRule>> ruleBases, ExecutorService executor) throws Exception
+	{
+		RuleBasesAndPluginsContainer<Info, BasicNode> container = new RuleBasesAndPluginsContainer<Info, BasicNode>()
+		{
+			@Override
+			public LinkedHashSet<String> getRuleBasesNames()
+			{
+				return new LinkedHashSet<String>(ruleBases.keySet());
+			}
+
+			@Override
+			public ByLemmaPosLexicalRuleBase<LexicalRule> getByLemmaPosLexicalRuleBase(String name)
+			{
+				return ruleBases.get(name);
+			}
+
+			@Override
+			public ByLemmaLexicalRuleBase getByLemmaLexicalRuleBase(String name)
+			{
+				return null;
+			}
+
+			@Override
+			public RuleBaseEnvelope<Info, BasicNode> getRuleBaseEnvelope(String name)
+			{
+				return null;
+			}
+
+			@Override
+			public RuleBaseEnvelope<Info, BasicNode> getMetaRuleBaseEnvelope(String metaRuleBaseName)
+			{
+				return null;
+			}
+
+			@Override
+			public Plugin getPlugin(String pluginId)
+			{
+				return null;
+			}
+		};
+		
+		PluginRegistry pluginRegistry = new PluginRegistry();
+		pluginRegistry.sealRegistry();
+		FeatureVectorStructureOrganizer featureVectorStructure = new FeatureVectorStructureOrganizer();
+		featureVectorStructure.setPluginRegistry(pluginRegistry);
+		featureVectorStructure.setRuleBasesContainer(container);
+		featureVectorStructure.buildStructure();
+		FeatureUpdate featureUpdate = new FeatureUpdate(new HashSet<String>(), featureVectorStructure, null, PARSER.EASYFIRST);
+		
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(hypothesisTree);
+		Set<LemmaAndPos> hypothesisLemmas = new LinkedHashSet<LemmaAndPos>();
+		Set<CanonicalLemmaAndPos> hypothesisLemmasAndCanonicalPos = new LinkedHashSet<CanonicalLemmaAndPos>();
+		Set<String> hypothesisLemmasOnly = new LinkedHashSet<String>();
+		for (ExtendedNode node : hypothesis.getParentMap().keySet())
+		{
+			String lemma = node.getInfo().getNodeInfo().getWordLemma();
+			PartOfSpeech pos = node.getInfo().getNodeInfo().getSyntacticInfo().getPartOfSpeech();
+			hypothesisLemmas.add(new LemmaAndPos(lemma, pos));
+			hypothesisLemmasAndCanonicalPos.add(new CanonicalLemmaAndPos(lemma, pos));
+			hypothesisLemmasOnly.add(lemma);
+		}
+		hypothesisLemmasOnly.add(hypothesisTree.getInfo().getNodeInfo().getWordLemma());
+		
+		OperationsEnvironment operationsEnvironment = new OperationsEnvironment(
+				featureUpdate, hypothesis,
+				new ImmutableSetWrapper<LemmaAndPos>(hypothesisLemmas),
+				new ImmutableSetWrapper<CanonicalLemmaAndPos>(hypothesisLemmasAndCanonicalPos),
+				new ImmutableSetWrapper<String>(hypothesisLemmasOnly),
+				hypothesisLemmasOnly, hypothesisLemmasOnly.size(),
+				new SubstitutionMultiWordUnderlyingFinder(hypothesis),
+				new IdentityLemmatizer(),
+				new TreeCoreferenceInformation<ExtendedNode>(),
+				new LinkedHashMap<String, BagOfRulesRuleBase<Info, BasicNode>>(),
+				new ImmutableSetWrapper<String>(new HashSet<String>()),
+				new EmptyBagOfRulesRuleBase(),
+				false, null,
+				new ImmutableSetWrapper<String>(new HashSet<String>()),
+				PARSER.EASYFIRST, false, null,
+				executor, null);
+		
+		TreesGeneratorByOperations generator = new TreesGeneratorByOperations(textTree,
+				new ImmutableListWrapper<SingleOperationItem>(items), container,
+				new TreeHistory(TreeHistoryComponent.onlyFeatureVector(textTree.getFeatureVector())),
+				operationsEnvironment);
+		generator.generateTrees();
+		return generator;
+	}
+	
+	private static ExtendedNode tree(String predicate, String subject, String object) throws Exception
+	{
+		ExtendedNode tree = node(1, predicate, V, null);
+		tree.addChild(node(2, subject, N, "nsubj"));
+		tree.addChild(node(3, object, N, "dobj"));
+		return tree;
+	}
+	
+	private static ExtendedNode node(int serial, String lemma, PartOfSpeech pos, String relation) throws Exception
+	{
+		return new ExtendedNode(new ExtendedInfo(String.valueOf(serial),
+				new DefaultNodeInfo(lemma, lemma, serial, null, new DefaultSyntacticInfo(pos)),
+				new DefaultEdgeInfo(null==relation ? null : new DependencyRelation(relation, null)),
+				AdditionalInformationServices.emptyInformation()));
+	}
+	
+	private static PartOfSpeech pos(String pos)
+	{
+		try
+		{
+			return new ByCanonicalPartOfSpeech(pos);
+		}
+		catch (Exception e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+	
+	/**
+	 * A lexical rule base of the given rules.
+	 */
+	private static class MapLexicalRuleBase extends ByLemmaPosLexicalRuleBase<LexicalRule>
+	{
+		public MapLexicalRuleBase(LexicalRule... rules)
+		{
+			for (LexicalRule rule : rules)
+			{
+				String lhs = key(rule.getLhsLemma(), rule.getLhsPos());
+				Set<LexicalRule> rulesOfLhs = this.rules.get(lhs);
+				if (null==rulesOfLhs)
+				{
+					rulesOfLhs = new LinkedHashSet<LexicalRule>();
+					this.rules.put(lhs, rulesOfLhs);
+				}
+				rulesOfLhs.add(rule);
+			}
+		}
+
+		@Override
+		public ImmutableSet<LexicalRule> getRules(String lhsLemma, PartOfSpeech lhsPos) throws RuleBaseException
+		{
+			Set<LexicalRule> rulesOfLhs = rules.get(key(lhsLemma, lhsPos));
+			if (null==rulesOfLhs) rulesOfLhs = Collections.emptySet();
+			return new ImmutableSetWrapper<LexicalRule>(rulesOfLhs);
+		}
+
+		private static String key(String lemma, PartOfSpeech pos)
+		{
+			return lemma+"/"+pos.getCanonicalPosTag();
+		}
+
+		private final Map<String, Set<LexicalRule>> rules = new LinkedHashMap<String, Set<LexicalRule>>();
+	}
+	
+	private static class EmptyBagOfRulesRuleBase implements BagOfRulesRuleBase<Info, BasicNode>
+	{
+		@Override
+		public ImmutableSet<RuleWithConfidenceAndDescription<Info, BasicNode>> getRules()
+		{
+			return new ImmutableSetWrapper<RuleWithConfidenceAndDescription<Info, BasicNode>>(
+					new HashSet<RuleWithConfidenceAndDescription<Info, BasicNode>>());
+		}
+	}
+	
+	private static class IdentityLemmatizer implements Lemmatizer
+	{
+		public void init() {}
+		public void set(String word) {this.word = word;}
+		public void set(String word, PartOfSpeech partOfSpeech) {this.word = word;}
+		public void process() {}
+		public String getLemma() {return word;}
+		public ImmutableList<String> getLemmas()
+		{
+			return new ImmutableListWrapper<String>(Collections.singletonList(word));
+		}
+		public void cleanUp() {}
+		
+		private String word;
+	}
+
+	private static final PartOfSpeech N = pos("N");
+	private static final PartOfSpeech V = pos("V");
+}
@@ -0,0 +1,298 @@
+package eu.excitementproject.eop.biutee.rteflow.systems.rtepairs;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.representation.coreference.TreeCoreferenceInformation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.EdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.NamedEntity;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.NodeInfo;
+import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.utilities.datasets.rtepairs.TextHypothesisPair;
+
+/**
+ * Round trip of {@link BinaryPairsWriter} and {@link BinaryPairsReader}.
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class BinaryPairsReaderTest
+{
+	@Test
+	public void testRoundTrip() throws Exception
+	{
+		File file = File.createTempFile("pairs", ".bin");
+		try
+		{
+			List<PairData> pairs = new ArrayList<PairData>();
+			pairs.add(pairData(7, "Ruth eats a bone.", "A dog eats.", false));
+			pairs.add(pairData(3, "Der Hund frißt einen Knochen.", "Ein Hund frißt.", false));
+			pairs.add(pairData(5, "A cat sleeps.", "A cat rests.", false));
+			write(file, pairs);
+
+			assertTrue(BinaryPairsReader.isBinaryPairsFile(file));
+			BinaryPairsReader reader = new BinaryPairsReader(file);
+			try
+			{
+				assertEquals(3, reader.size());
+				assertEquals(Arrays.asList(7, 3, 5), reader.getPairIds());
+				List<PairData> read = reader.readAll();
+				for (int index=0;index<pairs.size();++index)
+				{
+					assertSamePairs(pairs.get(index), read.get(index));
+				}
+
+				// random access
+				assertSamePairs(pairs.get(2), reader.read(2));
+				assertSamePairs(pairs.get(1), reader.readById(3));
+				assertNull(reader.readById(4));
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testUnsupportedContentIsSerialized() throws Exception
+	{
+		File file = File.createTempFile("pairs", ".bin");
+		try
+		{
+			List<PairData> pairs = new ArrayList<PairData>();
+			pairs.add(pairData(1, "A dog eats.", "An animal eats.", false));
+			pairs.add(pairData(2, "A cat sleeps.", "A cat rests.", true));
+			write(file, pairs);
+
+			BinaryPairsReader reader = new BinaryPairsReader(file);
+			try
+			{
+				PairData read = reader.readById(2);
+				assertSamePairs(pairs.get(1), read);
+				assertEquals(OtherInfo.class, read.getTextTrees().get(0).getInfo().getClass());
+				assertSamePairs(pairs.get(0), reader.readById(1));
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testJavaSerializationFileIsNotBinary() throws Exception
+	{
+		File file = File.createTempFile("pairs", ".ser");
+		try
+		{
+			ObjectOutputStream output = new ObjectOutputStream(new FileOutputStream(file));
+			try
+			{
+				output.writeObject(pairData(1, "A dog eats.", "An animal eats.", false));
+				output.writeBoolean(false);
+			}
+			finally
+			{
+				output.close();
+			}
+			assertFalse(BinaryPairsReader.isBinaryPairsFile(file));
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+
+	private static void write(File file, List<PairData> pairs) throws Exception
+	{
+		BinaryPairsWriter writer = new BinaryPairsWriter(file);
+		try
+		{
+			for (PairData pair : pairs)
+			{
+				writer.write(pair);
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * A pair whose text tree is "eat" with a subject (named-entity, with a variable node as its child)
+	 * and an object, and whose hypothesis is "eat" with a subject. The hypothesis subject
+	 * refers to the text subject as its antecedent, and both are in one co-reference group.
+	 */
+	private static PairData pairData(int id, String text, String hypothesis, boolean unsupportedInfo) throws Exception
+	{
+		String[] textWords = text.replace(".", "").split(" ");
+		BasicNode textTree = node("1", textWords[1]+"s", textWords[1], 2, null, "V", null);
+		if (unsupportedInfo)
+		{
+			textTree = new BasicNode(new OtherInfo(textTree.getInfo().getId(), textTree.getInfo().getNodeInfo(), textTree.getInfo().getEdgeInfo()));
+		}
+		BasicNode subject = node("2", textWords[0], textWords[0].toLowerCase(), 1, NamedEntity.PERSON, "N", "nsubj");
+		textTree.addChild(subject);
+		subject.addChild(new BasicNode(new DefaultInfo("3",
+				DefaultNodeInfo.newVariableDefaultNodeInfo(4, new DefaultSyntacticInfo(new ByCanonicalPartOfSpeech("ADJ"))),
+				new DefaultEdgeInfo(new DependencyRelation("amod", null)))));
+		textTree.addChild(node("4", textWords[textWords.length-1], textWords[textWords.length-1].toLowerCase(), 4, null, "N", "dobj"));
+
+		String[] hypothesisWords = hypothesis.replace(".", "").split(" ");
+		BasicNode hypothesisTree = node("1", hypothesisWords[2], hypothesisWords[2], 3, null, "V", null);
+		BasicNode hypothesisSubject = node("2", hypothesisWords[1], hypothesisWords[1], 2, null, "N", "nsubj");
+		hypothesisTree.addChild(hypothesisSubject);
+		hypothesisSubject.setAntecedent(subject);
+
+		Map<BasicNode, String> mapTreesToSentences = new LinkedHashMap<BasicNode, String>();
+		mapTreesToSentences.put(textTree, text);
+
+		TreeCoreferenceInformation<BasicNode> coreferenceInformation = new TreeCoreferenceInformation<BasicNode>();
+		coreferenceInformation.createNewGroup(); // an empty group, which is not written
+		Integer group = coreferenceInformation.createNewGroup();
+		coreferenceInformation.addNodeToGroup(group, subject);
+		coreferenceInformation.addNodeToGroup(group, hypothesisSubject);
+
+		List<BasicNode> textTrees = new ArrayList<BasicNode>();
+		textTrees.add(textTree);
+		return new PairData(new TextHypothesisPair(text, hypothesis, id, null), textTrees, hypothesisTree, mapTreesToSentences, coreferenceInformation, "RTE");
+	}
+
+	private static BasicNode node(String id, String word, String lemma, int serial, NamedEntity namedEntity, String pos, String relation) throws Exception
+	{
+		return new BasicNode(new DefaultInfo(id,
+				new DefaultNodeInfo(word, lemma, serial, namedEntity, new DefaultSyntacticInfo(new ByCanonicalPartOfSpeech(pos))),
+				new DefaultEdgeInfo((null==relation)?null:new DependencyRelation(relation, null))));
+	}
+
+	private static void assertSamePairs(PairData expected, PairData actual) throws Exception
+	{
+		assertEquals(expected.getPair().getId(), actual.getPair().getId());
+		assertEquals(expected.getPair().getText(), actual.getPair().getText());
+		assertEquals(expected.getPair().getHypothesis(), actual.getPair().getHypothesis());
+		assertEquals(expected.getDatasetName(), actual.getDatasetName());
+		assertEquals(expected.getTextTrees().size(), actual.getTextTrees().size());
+
+		List<BasicNode> expectedNodes = new ArrayList<BasicNode>();
+		List<BasicNode> actualNodes = new ArrayList<BasicNode>();
+		for (int index=0;index<expected.getTextTrees().size();++index)
+		{
+			assertSameTrees(expected.getTextTrees().get(index), actual.getTextTrees().get(index), expectedNodes, actualNodes);
+		}
+		assertSameTrees(expected.getHypothesisTree(), actual.getHypothesisTree(), expectedNodes, actualNodes);
+
+		// antecedents refer to the corresponding nodes
+		for (int index=0;index<expectedNodes.size();++index)
+		{
+			BasicNode expectedAntecedent = expectedNodes.get(index).getAntecedent();
+			BasicNode actualAntecedent = actualNodes.get(index).getAntecedent();
+			if (null==expectedAntecedent)
+			{
+				assertNull(actualAntecedent);
+			}
+			else
+			{
+				assertSame(actualNodes.get(indexOf(expectedNodes, expectedAntecedent)), actualAntecedent);
+			}
+		}
+
+		assertEquals(expected.getMapTreesToSentences().size(), actual.getMapTreesToSentences().size());
+		for (Map.Entry<BasicNode, String> entry : expected.getMapTreesToSentences().entrySet())
+		{
+			assertEquals(entry.getValue(), actual.getMapTreesToSentences().get(actualNodes.get(indexOf(expectedNodes, entry.getKey()))));
+		}
+
+		// co-reference groups are renumbered, but contain the corresponding nodes
+		Set<Set<Integer>> expectedGroups = new HashSet<Set<Integer>>();
+		for (Integer groupId : expected.getCoreferenceInformation().getAllExistingGroupIds())
+		{
+			Set<Integer> group = new HashSet<Integer>();
+			for (BasicNode node : expected.getCoreferenceInformation().getGroup(groupId)) {group.add(indexOf(expectedNodes, node));}
+			if (group.size()>0) {expectedGroups.add(group);}
+		}
+		Set<Set<Integer>> actualGroups = new HashSet<Set<Integer>>();
+		for (Integer groupId : actual.getCoreferenceInformation().getAllExistingGroupIds())
+		{
+			Set<Integer> group = new HashSet<Integer>();
+			for (BasicNode node : actual.getCoreferenceInformation().getGroup(groupId)) {group.add(indexOf(actualNodes, node));}
+			if (group.size()>0) {actualGroups.add(group);}
+		}
+		assertEquals(expectedGroups, actualGroups);
+	}
+
+	private static void assertSameTrees(BasicNode expected, BasicNode actual, List<BasicNode> expectedNodes, List<BasicNode> actualNodes)
+	{
+		expectedNodes.add(expected);
+		actualNodes.add(actual);
+		assertEquals(expected.getInfo(), actual.getInfo());
+		assertEquals(expected.getInfo().getNodeInfo().getWord(), actual.getInfo().getNodeInfo().getWord());
+		assertEquals(expected.getInfo().getNodeInfo().getVariableId(), actual.getInfo().getNodeInfo().getVariableId());
+		assertEquals(expected.getInfo().getNodeInfo().getNamedEntityAnnotation(), actual.getInfo().getNodeInfo().getNamedEntityAnnotation());
+		if (null==expected.getChildren())
+		{
+			assertNull(actual.getChildren());
+		}
+		else
+		{
+			assertEquals(expected.getChildren().size(), actual.getChildren().size());
+			for (int index=0;index<expected.getChildren().size();++index)
+			{
+				assertSameTrees(expected.getChildren().get(index), actual.getChildren().get(index), expectedNodes, actualNodes);
+			}
+		}
+	}
+
+	private static int indexOf(List<BasicNode> nodes, BasicNode node)
+	{
+		for (int index=0;index<nodes.size();++index)
+		{
+			if (nodes.get(index)==node) return index;
+		}
+		fail("Node not found: "+node);
+		return -1;
+	}
+
+	/**
+	 * An {@link eu.excitementproject.eop.common.representation.parse.representation.basic.Info}
+	 * which is not supported by the binary encoding.
+	 */
+	private static class OtherInfo extends DefaultInfo
+	{
+		private static final long serialVersionUID = 5394839087372829417L;
+
+		public OtherInfo(String id, NodeInfo nodeInfo, EdgeInfo edgeInfo)
+		{
+			super(id, nodeInfo, edgeInfo);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package eu.excitementproject.eop.biutee.rteflow.systems.rtepairs;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.representation.coreference.TreeCoreferenceInformation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.utilities.datasets.rtepairs.TextHypothesisPair;
+
+/**
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class PairsPreProcessingCheckpointTest
+{
+	@Test
+	public void testResume() throws Exception
+	{
+		File file = File.createTempFile("pairs", ".checkpoint");
+		try
+		{
+			PairsPreProcessingCheckpoint checkpoint = new PairsPreProcessingCheckpoint(file);
+			assertNull(checkpoint.getPreProcessed(pair(1, "A dog eats.", "An animal eats.")));
+			checkpoint.add(pairData(pair(1, "A dog eats.", "An animal eats.")));
+			checkpoint.add(pairData(pair(2, "A cat sleeps.", "A cat rests.")));
+			checkpoint.close();
+
+			// the next run gets the pairs that were done, unless they were changed in the data-set
+			checkpoint = new PairsPreProcessingCheckpoint(file);
+			PairData pairData = checkpoint.getPreProcessed(pair(1, "A dog eats.", "An animal eats."));
+			assertNotNull(pairData);
+			assertEquals("dog", pairData.getTextTrees().get(0).getInfo().getNodeInfo().getWordLemma());
+			assertNull(checkpoint.getPreProcessed(pair(2, "A cat sleeps.", "A dog rests.")));
+			assertNull(checkpoint.getPreProcessed(pair(3, "A bird flies.", "A bird moves.")));
+			checkpoint.add(pairData(pair(3, "A bird flies.", "A bird moves.")));
+			checkpoint.close();
+
+			checkpoint = new PairsPreProcessingCheckpoint(file);
+			assertNotNull(checkpoint.getPreProcessed(pair(2, "A cat sleeps.", "A cat rests.")));
+			assertNotNull(checkpoint.getPreProcessed(pair(3, "A bird flies.", "A bird moves.")));
+
+			checkpoint.delete();
+			assertFalse(file.exists());
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testPartiallyWrittenPairIsRemoved() throws Exception
+	{
+		File file = File.createTempFile("pairs", ".checkpoint");
+		try
+		{
+			PairsPreProcessingCheckpoint checkpoint = new PairsPreProcessingCheckpoint(file);
+			checkpoint.add(pairData(pair(1, "A dog eats.", "An animal eats.")));
+			checkpoint.close();
+			long lengthOfFirstPair = file.length();
+			checkpoint = new PairsPreProcessingCheckpoint(file);
+			checkpoint.add(pairData(pair(2, "A cat sleeps.", "A cat rests.")));
+			checkpoint.close();
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try
+			{
+				randomAccessFile.setLength(file.length()-1);
+			}
+			finally
+			{
+				randomAccessFile.close();
+			}
+
+			checkpoint = new PairsPreProcessingCheckpoint(file);
+			assertEquals(lengthOfFirstPair, file.length());
+			assertNotNull(checkpoint.getPreProcessed(pair(1, "A dog eats.", "An animal eats.")));
+			assertNull(checkpoint.getPreProcessed(pair(2, "A cat sleeps.", "A cat rests.")));
+			checkpoint.close();
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+
+	private static TextHypothesisPair pair(int id, String text, String hypothesis)
+	{
+		return new TextHypothesisPair(text, hypothesis, id, null);
+	}
+
+	private static PairData pairData(TextHypothesisPair pair) throws Exception
+	{
+		String lemma = pair.getText().split(" ")[1].replace(".", "");
+		BasicNode textTree = new BasicNode(new DefaultInfo("1",
+				new DefaultNodeInfo(lemma, lemma, 1, null, new DefaultSyntacticInfo(new ByCanonicalPartOfSpeech("N"))),
+				new DefaultEdgeInfo(null)));
+		BasicNode hypothesisTree = new BasicNode(new DefaultInfo("1",
+				new DefaultNodeInfo("animal", "animal", 1, null, new DefaultSyntacticInfo(new ByCanonicalPartOfSpeech("N"))),
+				new DefaultEdgeInfo(null)));
+		return new PairData(pair, Collections.singletonList(textTree), hypothesisTree,
+				new HashMap<BasicNode, String>(Collections.singletonMap(textTree, pair.getText())),
+				new TreeCoreferenceInformation<BasicNode>());
+	}
+}
@@ -4,6 +4,8 @@ import java.util.List;
 
 import org.apache.uima.jcas.JCas;
 
+import eu.excitementproject.eop.common.exception.ComponentException;
+
 
 /** The goal of this interface is to provide an access method for 
  * EDAs (and/or EDA wrappers) that can process a set of entailment 
@@ -27,6 +29,11 @@ import org.apache.uima.jcas.JCas;
  * implements EDABasic and/or other interfaces). It can be also implemented by a concurrent 
  * running wrapper (a "runner") for the EDA, if the implementation of this interface does 
  * not lend itself naturally to the internal structure of the EDA.
+ * {@link EDAConcurrentRunner} is such a runner, which can be used by EDAs that can 
+ * create several independent instances of themselves.
+ * 
+ * <P> Like <code>EDABasic.process()</code>, failures in processing any of the problems 
+ * are reported by EDAException or ComponentException. 
  * 
  * @author Gil
  * [see Spec 1.1DRAFT Section 4.8 for complete info] 
@@ -34,6 +41,6 @@ import org.apache.uima.jcas.JCas;
 
 public interface EDAConcurrentProcessing {
 
-	public List<TEDecision> processDataSetConcurrently(List<JCas> casList);
+	public List<TEDecision> processDataSetConcurrently(List<JCas> casList) throws EDAException, ComponentException;
 	
 }
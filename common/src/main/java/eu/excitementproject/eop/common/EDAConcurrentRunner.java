@@ -0,0 +1,301 @@
+package eu.excitementproject.eop.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.apache.uima.jcas.JCas;
+
+import eu.excitementproject.eop.common.configuration.NameValueTable;
+import eu.excitementproject.eop.common.exception.ComponentException;
+import eu.excitementproject.eop.common.exception.ConfigurationException;
+
+
+/**
+ * A concurrent "runner" for EDAs, as described in {@link EDAConcurrentProcessing}.
+ *
+ * <P>
+ * The runner is given a list of <B>already initialized</B> EDA instances, one instance
+ * per thread. Each pair is processed by exactly one of those instances, and an
+ * instance is never used by two threads at the same time. Thus, the EDAs (and their
+ * underlying components) need not be thread safe, they only have to be independent
+ * of each other.
+ *
+ * <P>
+ * The number of pairs that have been submitted but not yet processed is bounded
+ * (see {@link #EDAConcurrentRunner(List, int)}), so the runner does not flood the
+ * executor's queue when given a very large list of CASes.
+ * <BR>
+ * The decisions are returned in the order of the given CAS list.
+ *
+ * <P>
+ * After each call to {@link #processDataSetConcurrently(List)}, the per-pair latency
+ * and the overall throughput (pairs per second) are logged, and are available
+ * by the getters of this class.
+ *
+ */
+public class EDAConcurrentRunner implements EDAConcurrentProcessing
+{
+	/**
+	 * Default bound on the number of pairs in flight, per thread.
+	 */
+	public static final int DEFAULT_PAIRS_IN_FLIGHT_PER_THREAD = 4;
+
+	/**
+	 * Name of the (optional) configuration parameter that holds the number of threads.
+	 */
+	public static final String NUMBER_OF_THREADS_PARAMETER_NAME = "numberOfThreads";
+
+	/**
+	 * Constructs the runner with the default bound on pairs in flight.
+	 * @param edas initialized EDAs, one per thread.
+	 */
+	public EDAConcurrentRunner(List<? extends EDABasic<? extends TEDecision>> edas)
+	{
+		this(edas, DEFAULT_PAIRS_IN_FLIGHT_PER_THREAD*edas.size());
+	}
+
+	/**
+	 * Constructs the runner.
+	 * @param edas initialized EDAs, one per thread.
+	 * @param maxPairsInFlight the maximum number of pairs that were submitted to the
+	 * worker threads, but their processing has not yet been completed.
+	 */
+	public EDAConcurrentRunner(List<? extends EDABasic<? extends TEDecision>> edas, int maxPairsInFlight)
+	{
+		super();
+		if (edas.size()<1) throw new IllegalArgumentException("At least one EDA should be given.");
+		if (maxPairsInFlight<1) throw new IllegalArgumentException("Illegal bound on pairs in flight: "+maxPairsInFlight);
+		this.edas = new ArrayList<EDABasic<? extends TEDecision>>(edas);
+		this.maxPairsInFlight = maxPairsInFlight;
+	}
+
+	/**
+	 * Returns the number of threads given in the given configuration section, or the number
+	 * of available processors if the section does not specify it.
+	 * @param section a configuration section (typically the EDA's section). Might be <code>null</code>.
+	 * @return the number of threads.
+	 * @throws EDAException if the parameter exists but is illegal.
+	 */
+	public static int getNumberOfThreads(NameValueTable section) throws EDAException
+	{
+		Integer numberOfThreads = null;
+		if (section!=null)
+		{
+			try
+			{
+				numberOfThreads = section.getInteger(NUMBER_OF_THREADS_PARAMETER_NAME);
+			}
+			catch (ConfigurationException e)
+			{
+				throw new EDAException("Illegal value for \""+NUMBER_OF_THREADS_PARAMETER_NAME+"\". See nested exception.",e);
+			}
+		}
+		if (null==numberOfThreads)
+		{
+			numberOfThreads = Runtime.getRuntime().availableProcessors();
+		}
+		if (numberOfThreads<1) throw new EDAException("Illegal value for \""+NUMBER_OF_THREADS_PARAMETER_NAME+"\": "+numberOfThreads);
+		return numberOfThreads;
+	}
+
+	@Override
+	public List<TEDecision> processDataSetConcurrently(List<JCas> casList) throws EDAException, ComponentException
+	{
+		final int numberOfPairs = casList.size();
+		TEDecision[] decisions = new TEDecision[numberOfPairs];
+		long[] latencies = new long[numberOfPairs];
+
+		BlockingQueue<EDABasic<? extends TEDecision>> edaQueue = new ArrayBlockingQueue<EDABasic<? extends TEDecision>>(edas.size());
+		edaQueue.addAll(edas);
+		Semaphore pairsInFlight = new Semaphore(maxPairsInFlight);
+		// local to this call, so overlapping calls on the same runner do not reset each other's failure
+		AtomicBoolean failed = new AtomicBoolean(false);
+		boolean interrupted = false;
+
+		long startTime = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(edas.size());
+		try
+		{
+			List<Future<TEDecision>> futures = new ArrayList<Future<TEDecision>>(numberOfPairs);
+			int index = 0;
+			for (JCas cas : casList)
+			{
+				if (failed.get()) break;
+				pairsInFlight.acquire();
+				futures.add(executor.submit(new PairCallable(index, cas, decisions, latencies, edaQueue, pairsInFlight, failed)));
+				++index;
+			}
+
+			ExecutionException exception = null;
+			for (Future<TEDecision> future : futures)
+			{
+				try{future.get();}catch (ExecutionException e){if (null==exception)exception=e;}
+			}
+			if (exception != null)
+			{
+				Throwable cause = exception.getCause();
+				if (cause instanceof EDAException) throw (EDAException) cause;
+				if (cause instanceof ComponentException) throw (ComponentException) cause;
+				throw new EDAException("An error occurred when processing a pair. See nested exception.",cause);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			interrupted = true;
+			Thread.currentThread().interrupt();
+			throw new EDAException("Concurrent processing has been interrupted.",e);
+		}
+		finally
+		{
+			// on interrupt, the queued pairs are discarded and the running ones are interrupted
+			if (interrupted)
+				executor.shutdownNow();
+			else
+				executor.shutdown();
+		}
+
+		updateStatistics(latencies, System.nanoTime()-startTime);
+		return Arrays.asList(decisions);
+	}
+
+	/**
+	 * @return the number of pairs processed in the last call to {@link #processDataSetConcurrently(List)}.
+	 */
+	public int getLastNumberOfPairs()
+	{
+		return lastNumberOfPairs;
+	}
+
+	/**
+	 * @return the overall throughput, in pairs per second, of the last call to {@link #processDataSetConcurrently(List)}.
+	 */
+	public double getLastPairsPerSecond()
+	{
+		return lastPairsPerSecond;
+	}
+
+	/**
+	 * @return the average time, in milliseconds, spent in the EDA's <code>process()</code> for one pair,
+	 * in the last call to {@link #processDataSetConcurrently(List)}.
+	 */
+	public double getLastAverageLatencyMillis()
+	{
+		return lastAverageLatencyMillis;
+	}
+
+	/**
+	 * @return the maximum time, in milliseconds, spent in the EDA's <code>process()</code> for one pair,
+	 * in the last call to {@link #processDataSetConcurrently(List)}.
+	 */
+	public double getLastMaxLatencyMillis()
+	{
+		return lastMaxLatencyMillis;
+	}
+
+
+	private void updateStatistics(long[] latencies, long elapsed)
+	{
+		long sum = 0;
+		long max = 0;
+		for (long latency : latencies)
+		{
+			sum += latency;
+			if (latency>max) max = latency;
+		}
+		lastNumberOfPairs = latencies.length;
+		lastAverageLatencyMillis = (latencies.length==0)?0.0:((double)sum/latencies.length)/NANOS_IN_MILLI;
+		lastMaxLatencyMillis = ((double)max)/NANOS_IN_MILLI;
+		lastPairsPerSecond = (elapsed==0)?0.0:(latencies.length*NANOS_IN_SECOND)/elapsed;
+
+		logger.info(String.format("Processed %d pairs with %d threads: %.2f pairs/second. Latency per pair: average %.2f ms, maximum %.2f ms.",
+				lastNumberOfPairs, edas.size(), lastPairsPerSecond, lastAverageLatencyMillis, lastMaxLatencyMillis));
+	}
+
+
+	private class PairCallable implements Callable<TEDecision>
+	{
+		public PairCallable(int index, JCas cas, TEDecision[] decisions,
+				long[] latencies,
+				BlockingQueue<EDABasic<? extends TEDecision>> edaQueue,
+				Semaphore pairsInFlight, AtomicBoolean failed)
+		{
+			super();
+			this.index = index;
+			this.cas = cas;
+			this.decisions = decisions;
+			this.latencies = latencies;
+			this.edaQueue = edaQueue;
+			this.pairsInFlight = pairsInFlight;
+			this.failed = failed;
+		}
+
+		@Override
+		public TEDecision call() throws EDAException, ComponentException
+		{
+			boolean succeeded = false;
+			try
+			{
+				TEDecision decision = null;
+				if (!failed.get())
+				{
+					EDABasic<? extends TEDecision> eda = edaQueue.take();
+					try
+					{
+						long start = System.nanoTime();
+						decision = eda.process(cas);
+						latencies[index] = System.nanoTime()-start;
+					}
+					finally
+					{
+						edaQueue.put(eda);
+					}
+					decisions[index] = decision;
+				}
+				succeeded = true;
+				return decision;
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new EDAException("There was a problem with the EDA queue. See nested exception.",e);
+			}
+			finally
+			{
+				if (!succeeded) failed.set(true);
+				pairsInFlight.release();
+			}
+		}
+
+		private final int index;
+		private final JCas cas;
+		private final TEDecision[] decisions;
+		private final long[] latencies;
+		private final BlockingQueue<EDABasic<? extends TEDecision>> edaQueue;
+		private final Semaphore pairsInFlight;
+		private final AtomicBoolean failed;
+	}
+
+	private static final double NANOS_IN_MILLI = 1000000.0;
+	private static final double NANOS_IN_SECOND = 1000000000.0;
+
+	private final List<EDABasic<? extends TEDecision>> edas;
+	private final int maxPairsInFlight;
+
+	private int lastNumberOfPairs = 0;
+	private double lastPairsPerSecond = 0.0;
+	private double lastAverageLatencyMillis = 0.0;
+	private double lastMaxLatencyMillis = 0.0;
+
+	private static final Logger logger = Logger.getLogger(EDAConcurrentRunner.class);
+}
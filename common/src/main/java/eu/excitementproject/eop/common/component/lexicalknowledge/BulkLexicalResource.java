@@ -0,0 +1,41 @@
+package eu.excitementproject.eop.common.component.lexicalknowledge;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link LexicalResource} that can answer many {@code <lemma, POS>} queries at once, e.g., all the lemmas of a text, 
+ * by fewer accesses to its underlying storage (one SQL query, one pipelined Redis round trip, etc.) than a query per lemma.
+ * <p>
+ * Implementing this interface is optional. Callers should go through {@link LexicalResourceUtils#getRulesForLeft(LexicalResource, Collection)} and
+ * {@link LexicalResourceUtils#getRulesForRight(LexicalResource, Collection)}, which use the bulk methods when the resource implements them, and fall back
+ * to a query per lemma otherwise.
+ * <p>
+ * The rules of each query must be the same rules, in the same order, as returned by the respective single-lemma method. 
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ * @param <I> type of the implemented additional information a rule contains (besides the fields of {@link LexicalRule} )
+ */
+public interface BulkLexicalResource<I extends RuleInfo> extends LexicalResource<I> 
+{
+	/**
+	 * Return the lexical rules whose right side matches each of the given queries, as given by {@link #getRulesForRight(String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech)}.
+	 * 
+	 * @param queries lemma+pos pairs. Repeated queries are answered once
+	 * @return a map from each of the given queries, in their order, to its (possibly empty, never null) list of rules
+	 * @throws LexicalResourceException
+	 */
+	Map<LemmaPosQuery, List<LexicalRule<? extends I>>> getRulesForRight(Collection<LemmaPosQuery> queries) throws LexicalResourceException;
+
+	/**
+	 * Return the lexical rules whose left side matches each of the given queries, as given by {@link #getRulesForLeft(String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech)}.
+	 * 
+	 * @param queries lemma+pos pairs. Repeated queries are answered once
+	 * @return a map from each of the given queries, in their order, to its (possibly empty, never null) list of rules
+	 * @throws LexicalResourceException
+	 */
+	Map<LemmaPosQuery, List<LexicalRule<? extends I>>> getRulesForLeft(Collection<LemmaPosQuery> queries) throws LexicalResourceException;
+}
@@ -0,0 +1,80 @@
+package eu.excitementproject.eop.common.component.lexicalknowledge;
+
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+
+/**
+ * One {@code <lemma, POS>} query of a {@link BulkLexicalResource}. The POS may be <code>null</code>, 
+ * in which case rules for all possible POSs are retrieved, as in {@link LexicalResource#getRulesForLeft(String, PartOfSpeech)}.<br>
+ * This class is immutable, and implements hashCode() and equals().
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ */
+public final class LemmaPosQuery
+{
+	/**
+	 * @param lemma
+	 * @param pos can be <code>null</code>
+	 * @throws LexicalResourceException if the lemma is null
+	 */
+	public LemmaPosQuery(String lemma, PartOfSpeech pos) throws LexicalResourceException
+	{
+		if (lemma == null)
+			throw new LexicalResourceException("got null lemma");
+		this.lemma = lemma;
+		this.pos = pos;
+	}
+
+	public String getLemma()
+	{
+		return lemma;
+	}
+
+	/**
+	 * @return the POS of the query, or <code>null</code> for all POSs 
+	 */
+	public PartOfSpeech getPos()
+	{
+		return pos;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + lemma.hashCode();
+		result = prime * result + ((pos == null) ? 0 : pos.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		LemmaPosQuery other = (LemmaPosQuery) obj;
+		if (!lemma.equals(other.lemma))
+			return false;
+		if (pos == null)
+		{
+			if (other.pos != null)
+				return false;
+		} else if (!pos.equals(other.pos))
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString()
+	{
+		return lemma + ":" + pos;
+	}
+
+	private final String lemma;
+	private final PartOfSpeech pos;
+}
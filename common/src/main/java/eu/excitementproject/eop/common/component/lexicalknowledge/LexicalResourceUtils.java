@@ -0,0 +1,54 @@
+package eu.excitementproject.eop.common.component.lexicalknowledge;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static helpers for querying any {@link LexicalResource} with many {@code <lemma, POS>} pairs at once.
+ * Resources that implement {@link BulkLexicalResource} answer by their bulk methods; any other resource is queried once per distinct pair.
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ */
+public class LexicalResourceUtils 
+{
+	/**
+	 * @param resource
+	 * @param queries
+	 * @return a map from each of the given queries, in their order, to the rules whose left side matches it
+	 * @throws LexicalResourceException
+	 * @see BulkLexicalResource#getRulesForLeft(Collection)
+	 */
+	public static <I extends RuleInfo> Map<LemmaPosQuery, List<LexicalRule<? extends I>>> getRulesForLeft(LexicalResource<I> resource, Collection<LemmaPosQuery> queries) throws LexicalResourceException
+	{
+		if (resource instanceof BulkLexicalResource)
+			return ((BulkLexicalResource<I>) resource).getRulesForLeft(queries);
+
+		Map<LemmaPosQuery, List<LexicalRule<? extends I>>> ret = new LinkedHashMap<LemmaPosQuery, List<LexicalRule<? extends I>>>();
+		for (LemmaPosQuery query : queries)
+			if (!ret.containsKey(query))
+				ret.put(query, resource.getRulesForLeft(query.getLemma(), query.getPos()));
+		return ret;
+	}
+
+	/**
+	 * @param resource
+	 * @param queries
+	 * @return a map from each of the given queries, in their order, to the rules whose right side matches it
+	 * @throws LexicalResourceException
+	 * @see BulkLexicalResource#getRulesForRight(Collection)
+	 */
+	public static <I extends RuleInfo> Map<LemmaPosQuery, List<LexicalRule<? extends I>>> getRulesForRight(LexicalResource<I> resource, Collection<LemmaPosQuery> queries) throws LexicalResourceException
+	{
+		if (resource instanceof BulkLexicalResource)
+			return ((BulkLexicalResource<I>) resource).getRulesForRight(queries);
+
+		Map<LemmaPosQuery, List<LexicalRule<? extends I>>> ret = new LinkedHashMap<LemmaPosQuery, List<LexicalRule<? extends I>>>();
+		for (LemmaPosQuery query : queries)
+			if (!ret.containsKey(query))
+				ret.put(query, resource.getRulesForRight(query.getLemma(), query.getPos()));
+		return ret;
+	}
+}
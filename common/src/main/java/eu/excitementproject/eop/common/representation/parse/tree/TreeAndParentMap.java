@@ -6,6 +6,10 @@ import java.util.Map;
 /**
  * Encapsulates tree and Its parent-map.
  * A parent-map is a map from each node to its parent.
+ * <P>
+ * If no parent-map is given to the constructor, it is created lazily, on the first
+ * call to {@link #getParentMap()}. Note that the same node might be part of several trees
+ * (trees that share sub-trees), so the parent-map is a property of the tree, not of its nodes.
  * 
  * @see AbstractNodeUtils#parentMap(ac.biu.nlp.nlp.instruments.parse.tree.AbstractNode)
  * 
@@ -37,7 +41,7 @@ public class TreeAndParentMap<I, S extends AbstractNode<I, S>> implements Serial
 		super();
 		if (null==tree) throw new TreeAndParentMapException("null");
 		this.tree = tree;
-		this.parentMap = AbstractNodeUtils.parentMap(tree);
+		this.parentMap = null;
 	}
 	
 	public S getTree()
@@ -47,7 +51,20 @@ public class TreeAndParentMap<I, S extends AbstractNode<I, S>> implements Serial
 
 	public Map<S, S> getParentMap()
 	{
-		return parentMap;
+		Map<S, S> ret = parentMap;
+		if (null==ret)
+		{
+			synchronized(this)
+			{
+				ret = parentMap;
+				if (null==ret)
+				{
+					ret = AbstractNodeUtils.parentMap(tree);
+					parentMap = ret;
+				}
+			}
+		}
+		return ret;
 	}
 	
 	
@@ -71,5 +88,5 @@ public class TreeAndParentMap<I, S extends AbstractNode<I, S>> implements Serial
 	}
 
 	private final S tree;
-	private final Map<S, S> parentMap;
+	private volatile Map<S, S> parentMap;
 }
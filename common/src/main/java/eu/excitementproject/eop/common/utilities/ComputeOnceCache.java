@@ -0,0 +1,214 @@
+package eu.excitementproject.eop.common.utilities;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread-safe cache, in which the value of each key is computed at most
+ * once, even if several threads ask for the same missing key at the same time.
+ * <P>
+ * Unlike {@link ThreadSafeCache}, no lock is held when reading the cache. A thread that asks for
+ * a key whose value is being computed by another thread waits for that computation, and
+ * then returns its result. If the computation fails, the key is not stored in the cache,
+ * and the next request for it computes it again.
+ * <P>
+ * When the number of keys exceeds the capacity, the oldest keys (by insertion order) are
+ * removed. A key that was removed and then computed again is considered as newly inserted.
+ * <P>
+ * The cache counts hits and misses, such that its effectiveness can be reported
+ * (see {@link #getHitRate()}).
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ * @param <K> the key type. Must implement <code>equals()</code> and <code>hashCode()</code>.
+ * @param <V> the value type. The values are shared by all the threads, so they should be immutable.
+ */
+public class ComputeOnceCache<K, V>
+{
+	/**
+	 * Computes the value of a key which is not in the cache.
+	 *
+	 * @param <K>
+	 * @param <V>
+	 * @param <E> the exception thrown by the computation.
+	 */
+	public static interface Computation<K, V, E extends Exception>
+	{
+		public V compute(K key) throws E;
+	}
+
+	public ComputeOnceCache(int capacity)
+	{
+		if (capacity<1) throw new IllegalArgumentException("Illegal capacity: "+capacity);
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the value of the given key. If the key is not in the cache, its value
+	 * is computed by the given computation and stored in the cache.
+	 *
+	 * @param key a key. Not null.
+	 * @param computation computes the value of the key, if it is not in the cache.
+	 * @return the value of the given key.
+	 * @throws E if the computation failed.
+	 */
+	public <E extends Exception> V get(K key, Computation<? super K, ? extends V, E> computation) throws E
+	{
+		while (true)
+		{
+			Entry<V> entry = map.get(key);
+			if (null==entry)
+			{
+				Entry<V> newEntry = new Entry<V>();
+				entry = map.putIfAbsent(key, newEntry);
+				if (null==entry)
+				{
+					misses.incrementAndGet();
+					InsertedEntry<K, V> inserted = new InsertedEntry<K, V>(key, newEntry);
+					insertionOrder.add(inserted);
+					return computeEntry(inserted, computation);
+				}
+			}
+
+			entry.awaitDone();
+			if (!entry.failed)
+			{
+				hits.incrementAndGet();
+				return entry.value;
+			}
+			// The computation by another thread failed. Try again.
+		}
+	}
+
+	/**
+	 * Returns the number of keys stored in the cache, including those whose value is
+	 * being computed.
+	 * @return the number of keys stored in the cache.
+	 */
+	public int size()
+	{
+		return map.size();
+	}
+
+	public long getNumberOfHits()
+	{
+		return hits.get();
+	}
+
+	public long getNumberOfMisses()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * Returns the ratio of calls to {@link #get(Object, Computation)} that did not require
+	 * a computation, or 0 if there were no calls.
+	 * @return the hit rate of this cache.
+	 */
+	public double getHitRate()
+	{
+		long hitsValue = hits.get();
+		long total = hitsValue+misses.get();
+		if (0==total) return 0.0;
+		return ((double)hitsValue)/((double)total);
+	}
+
+	/**
+	 * Returns a short description of the hit-rate of this cache, to be printed in the log file.
+	 * @return a short description of the hit-rate of this cache.
+	 */
+	public String getStatistics()
+	{
+		return "hits = "+getNumberOfHits()+", misses = "+getNumberOfMisses()+", hit rate = "+String.format("%-4.4f", getHitRate())+", size = "+size();
+	}
+
+
+
+	/////////////////////// PRIVATE ///////////////////////
+
+	private static final class Entry<V>
+	{
+		public void awaitDone()
+		{
+			boolean interrupted = false;
+			while (done.getCount()>0)
+			{
+				try
+				{
+					done.await();
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile V value = null;
+		private volatile boolean failed = false;
+	}
+
+	/**
+	 * An entry that was put into the map, together with its key. The entry is removed
+	 * from the map only if it is still the entry of that key, so an entry that has
+	 * already been removed (and maybe replaced by a newer entry of the same key)
+	 * is not removed again.
+	 */
+	private static final class InsertedEntry<K, V>
+	{
+		public InsertedEntry(K key, Entry<V> entry)
+		{
+			this.key = key;
+			this.entry = entry;
+		}
+
+		private final K key;
+		private final Entry<V> entry;
+	}
+
+	private <E extends Exception> V computeEntry(InsertedEntry<K, V> inserted, Computation<? super K, ? extends V, E> computation) throws E
+	{
+		Entry<V> entry = inserted.entry;
+		boolean succeeded = false;
+		try
+		{
+			entry.value = computation.compute(inserted.key);
+			succeeded = true;
+		}
+		finally
+		{
+			if (!succeeded)
+			{
+				entry.failed = true;
+				map.remove(inserted.key, entry);
+				insertionOrder.remove(inserted);
+			}
+			entry.done.countDown();
+		}
+
+		while (map.size()>capacity)
+		{
+			InsertedEntry<K, V> oldest = insertionOrder.poll();
+			if (null==oldest) break;
+			map.remove(oldest.key, oldest.entry);
+		}
+		return entry.value;
+	}
+
+
+	private final int capacity;
+	private final ConcurrentMap<K, Entry<V>> map = new ConcurrentHashMap<K, Entry<V>>();
+	private final Queue<InsertedEntry<K, V>> insertionOrder = new ConcurrentLinkedQueue<InsertedEntry<K, V>>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+}
@@ -0,0 +1,249 @@
+package eu.excitementproject.eop.common;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.uima.jcas.JCas;
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.configuration.CommonConfig;
+
+/**
+ * Tests for {@link EDAConcurrentRunner}.
+ */
+public class EDAConcurrentRunnerTests {
+
+	@Test
+	public void decisionsAreInInputOrder() throws Exception {
+		List<JCas> casList = createCasList(500);
+		List<DummyEDA> edas = createEDAs(4, -1);
+		EDAConcurrentRunner runner = new EDAConcurrentRunner(edas, 3);
+
+		List<TEDecision> decisions = runner.processDataSetConcurrently(casList);
+
+		assertEquals(casList.size(), decisions.size());
+		for (int index = 0; index < casList.size(); ++index) {
+			assertEquals(String.valueOf(index), decisions.get(index).getPairID());
+		}
+		assertEquals(casList.size(), runner.getLastNumberOfPairs());
+		assertTrue(runner.getLastPairsPerSecond() > 0);
+		for (DummyEDA eda : edas) {
+			assertFalse("An EDA instance has been used by two threads at the same time", eda.usedConcurrently);
+		}
+	}
+
+	@Test
+	public void emptyDataSet() throws Exception {
+		EDAConcurrentRunner runner = new EDAConcurrentRunner(createEDAs(2, -1));
+		assertTrue(runner.processDataSetConcurrently(new ArrayList<JCas>()).isEmpty());
+		assertEquals(0, runner.getLastNumberOfPairs());
+	}
+
+	@Test
+	public void failureIsReported() throws Exception {
+		EDAConcurrentRunner runner = new EDAConcurrentRunner(createEDAs(3, 17));
+		try {
+			runner.processDataSetConcurrently(createCasList(100));
+			fail("The failure in processing a pair has not been reported");
+		} catch (EDAException e) {
+			assertEquals("failed on 17", e.getMessage());
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void overlappingCallsDoNotShareFailures() throws Exception {
+		// both calls share the EDAs; the pair with id 5017 fails, and only the second call contains it
+		final EDAConcurrentRunner runner = new EDAConcurrentRunner(createEDAs(4, 5017), 2);
+		final List<JCas> casList = createCasList(0, 3000);
+		final List<JCas> failingCasList = createCasList(5000, 100);
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					runner.processDataSetConcurrently(failingCasList);
+				} catch (Exception e) {
+					failure.set(e);
+				}
+			}
+		};
+		thread.start();
+		List<TEDecision> decisions = runner.processDataSetConcurrently(casList);
+		thread.join();
+
+		assertEquals("failed on 5017", failure.get().getMessage());
+		assertEquals(casList.size(), decisions.size());
+		for (int index = 0; index < casList.size(); ++index) {
+			assertNotNull("Pair " + index + " has not been processed", decisions.get(index));
+			assertEquals(String.valueOf(index), decisions.get(index).getPairID());
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void interruptStopsTheRunningPairs() throws Exception {
+		final BlockingEDA eda1 = new BlockingEDA();
+		final BlockingEDA eda2 = new BlockingEDA();
+		List<BlockingEDA> edas = new ArrayList<BlockingEDA>();
+		edas.add(eda1);
+		edas.add(eda2);
+		final EDAConcurrentRunner runner = new EDAConcurrentRunner(edas, 4);
+		final List<JCas> casList = createCasList(100);
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		final AtomicBoolean interruptRestored = new AtomicBoolean(false);
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					runner.processDataSetConcurrently(casList);
+				} catch (Exception e) {
+					failure.set(e);
+					interruptRestored.set(Thread.currentThread().isInterrupted());
+				}
+			}
+		};
+		thread.start();
+		// both EDAs are busy, two more pairs are queued, and the caller waits for a free slot
+		assertTrue(eda1.started.await(30, TimeUnit.SECONDS));
+		assertTrue(eda2.started.await(30, TimeUnit.SECONDS));
+		thread.interrupt();
+		thread.join();
+
+		assertTrue(failure.get() instanceof EDAException);
+		assertTrue("The interrupt flag has not been restored", interruptRestored.get());
+		// the running pairs are interrupted, and the queued ones are never processed
+		assertTrue(eda1.interrupted.await(30, TimeUnit.SECONDS));
+		assertTrue(eda2.interrupted.await(30, TimeUnit.SECONDS));
+		Thread.sleep(200);
+		assertEquals(2, eda1.calls.get() + eda2.calls.get());
+	}
+
+
+	private List<JCas> createCasList(int size) {
+		return createCasList(0, size);
+	}
+
+	private List<JCas> createCasList(int firstId, int size) {
+		List<JCas> casList = new ArrayList<JCas>(size);
+		for (int index = firstId; index < firstId + size; ++index) {
+			JCas cas = (JCas) Proxy.newProxyInstance(JCas.class.getClassLoader(), new Class<?>[]{JCas.class}, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if (method.getName().equals("hashCode")) return System.identityHashCode(proxy);
+					if (method.getName().equals("equals")) return proxy == args[0];
+					throw new UnsupportedOperationException();
+				}
+			});
+			ids.put(cas, index);
+			casList.add(cas);
+		}
+		return casList;
+	}
+
+	private List<DummyEDA> createEDAs(int number, int failingIndex) {
+		List<DummyEDA> edas = new ArrayList<DummyEDA>(number);
+		for (int i = 0; i < number; ++i) {
+			edas.add(new DummyEDA(failingIndex));
+		}
+		return edas;
+	}
+
+	private final Map<JCas, Integer> ids = Collections.synchronizedMap(new IdentityHashMap<JCas, Integer>());
+
+
+	private class DummyEDA implements EDABasic<TEDecision> {
+
+		public DummyEDA(int failingIndex) {
+			this.failingIndex = failingIndex;
+		}
+
+		@Override
+		public TEDecision process(JCas aCas) throws EDAException {
+			if (inUse.getAndSet(true)) usedConcurrently = true;
+			try {
+				final int index = ids.get(aCas);
+				if (index == failingIndex) throw new EDAException("failed on " + index);
+				Thread.yield();
+				return new TEDecision() {
+					@Override
+					public DecisionLabel getDecision() {
+						return (index % 2 == 0) ? DecisionLabel.Entailment : DecisionLabel.NonEntailment;
+					}
+					@Override
+					public double getConfidence() {
+						return CONFIDENCE_NOT_AVAILABLE;
+					}
+					@Override
+					public String getPairID() {
+						return String.valueOf(index);
+					}
+				};
+			} finally {
+				inUse.set(false);
+			}
+		}
+
+		@Override
+		public void initialize(CommonConfig config) {
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+		@Override
+		public void startTraining(CommonConfig c) {
+		}
+
+		private final int failingIndex;
+		private final AtomicBoolean inUse = new AtomicBoolean(false);
+		private volatile boolean usedConcurrently = false;
+	}
+
+
+	/**
+	 * An EDA whose processing blocks until it is interrupted.
+	 */
+	private static class BlockingEDA implements EDABasic<TEDecision> {
+
+		@Override
+		public TEDecision process(JCas aCas) throws EDAException {
+			calls.incrementAndGet();
+			started.countDown();
+			try {
+				new CountDownLatch(1).await();
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+			throw new EDAException("interrupted");
+		}
+
+		@Override
+		public void initialize(CommonConfig config) {
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+		@Override
+		public void startTraining(CommonConfig c) {
+		}
+
+		private final AtomicInteger calls = new AtomicInteger(0);
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch interrupted = new CountDownLatch(1);
+	}
+}
@@ -0,0 +1,181 @@
+package eu.excitementproject.eop.common.utilities;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * JUnit tests for {@link ComputeOnceCache}.
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ */
+public class ComputeOnceCacheTests {
+
+	@Test
+	public void testEvictionOrder() throws Exception {
+		ComputeOnceCache<String, String> cache = new ComputeOnceCache<String, String>(2);
+		CountingComputation computation = new CountingComputation();
+
+		assertEquals("A", cache.get("a", computation));
+		assertEquals("B", cache.get("b", computation));
+		assertEquals("C", cache.get("c", computation));
+		assertEquals("oldest key not evicted", 2, cache.size());
+		assertEquals(3, computation.computed.size());
+
+		// "a" was evicted, so it is computed again, and evicts "b"
+		assertEquals("A", cache.get("a", computation));
+		assertEquals(4, computation.computed.size());
+		assertEquals(2, cache.size());
+
+		// "c" and the recomputed "a" are in the cache
+		assertEquals("C", cache.get("c", computation));
+		assertEquals("A", cache.get("a", computation));
+		assertEquals("a cached key was computed again", 4, computation.computed.size());
+
+		// the recomputed "a" is newer than "c", so "c" is evicted first
+		assertEquals("D", cache.get("d", computation));
+		assertEquals("A", cache.get("a", computation));
+		assertEquals("the recomputed key was evicted instead of the oldest one", 5, computation.computed.size());
+		assertEquals("C", cache.get("c", computation));
+		assertEquals(6, computation.computed.size());
+
+		assertEquals(3, cache.getNumberOfHits());
+		assertEquals(6, cache.getNumberOfMisses());
+	}
+
+	@Test
+	public void testEvictionOrderOfKeyInProgress() throws Exception {
+		final ComputeOnceCache<String, String> cache = new ComputeOnceCache<String, String>(2);
+		final CountingComputation computation = new CountingComputation();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		// "x" is inserted first, but its computation ends last
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> future = executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return cache.get("x", new ComputeOnceCache.Computation<String, String, InterruptedException>() {
+						@Override
+						public String compute(String key) throws InterruptedException {
+							started.countDown();
+							release.await();
+							return key.toUpperCase();
+						}
+					});
+				}
+			});
+			started.await();
+			assertEquals("A", cache.get("a", computation));
+			assertEquals("B", cache.get("b", computation));
+			release.countDown();
+			assertEquals("X", future.get());
+		} finally {
+			executor.shutdown();
+		}
+
+		// "x" is the oldest key, so it was evicted rather than "a"
+		assertEquals(2, cache.size());
+		assertEquals("A", cache.get("a", computation));
+		assertEquals("B", cache.get("b", computation));
+		assertEquals("a newer key was evicted instead of the oldest one", 2, computation.computed.size());
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		ComputeOnceCache<String, String> cache = new ComputeOnceCache<String, String>(2);
+		CountingComputation computation = new CountingComputation();
+
+		computation.failing = true;
+		try {
+			cache.get("a", computation);
+			fail("the failure of the computation was not thrown");
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals("a failed key is stored in the cache", 0, cache.size());
+
+		// the failed key is computed again
+		computation.failing = false;
+		assertEquals("A", cache.get("a", computation));
+		assertEquals(2, computation.computed.size());
+
+		// the failed computation does not take a place in the eviction order
+		assertEquals("B", cache.get("b", computation));
+		assertEquals("A", cache.get("a", computation));
+		assertEquals("B", cache.get("b", computation));
+		assertEquals(3, computation.computed.size());
+		assertEquals("C", cache.get("c", computation));
+		assertEquals("B", cache.get("b", computation));
+		assertEquals(4, computation.computed.size());
+		assertEquals("A", cache.get("a", computation));
+		assertEquals(5, computation.computed.size());
+	}
+
+	@Test
+	public void testComputedOnce() throws Exception {
+		final ComputeOnceCache<String, String> cache = new ComputeOnceCache<String, String>(10);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> computed = new ArrayList<String>();
+		final ComputeOnceCache.Computation<String, String, InterruptedException> slowComputation = new ComputeOnceCache.Computation<String, String, InterruptedException>() {
+			@Override
+			public String compute(String key) throws InterruptedException {
+				synchronized (computed) {
+					computed.add(key);
+				}
+				started.countDown();
+				release.await();
+				return key.toUpperCase();
+			}
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> futures = new ArrayList<Future<String>>();
+			for (int index = 0; index < 4; index++) {
+				futures.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						return cache.get("a", slowComputation);
+					}
+				}));
+			}
+			started.await();
+			release.countDown();
+			for (Future<String> future : futures) {
+				assertEquals("A", future.get());
+			}
+			assertEquals("the same key was computed by several threads", 1, computed.size());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the key in upper case, and records the keys it computed.
+	 */
+	private static class CountingComputation implements ComputeOnceCache.Computation<String, String, IOException> {
+		@Override
+		public String compute(String key) throws IOException {
+			computed.add(key);
+			if (failing)
+				throw new IOException("Failed to compute " + key);
+			return key.toUpperCase();
+		}
+
+		private final List<String> computed = new ArrayList<String>();
+		private boolean failing = false;
+	}
+}
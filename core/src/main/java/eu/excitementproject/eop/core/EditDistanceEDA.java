@@ -2,8 +2,17 @@ package eu.excitementproject.eop.core;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 import java.io.*;
 import java.lang.reflect.Constructor;
@@ -21,6 +30,8 @@ import org.w3c.dom.*;
 
 import eu.excitementproject.eop.common.DecisionLabel;
 import eu.excitementproject.eop.common.EDABasic;
+import eu.excitementproject.eop.common.EDAConcurrentProcessing;
+import eu.excitementproject.eop.common.EDAConcurrentRunner;
 import eu.excitementproject.eop.common.EDAException;
 import eu.excitementproject.eop.common.TEDecision;
 import eu.excitementproject.eop.common.component.distance.DistanceComponentException;
@@ -43,12 +54,16 @@ import eu.excitementproject.eop.lap.PlatformCASProber;
  * threshold are classified as ENTAILMENT, while pairs above the threshold are classified as NONENTAILMENT.
  * <code>EditDistanceEDA</code> uses <code>FixedWeightEditDistance</code> for calculating edit distance
  * between each pair of T and H.
+ * The EDA can also process a data set concurrently (see <code>EDAConcurrentProcessing</code>): each
+ * thread uses its own instance of the EDA, and so its own instance of the distance component.
+ * The additional instances are created by the public no-argument constructor of the class of this
+ * instance, so a subclass which is run with more than one thread has to provide such a constructor.
  * 
  * @author Roberto Zanoli
  * 
  */
 public class EditDistanceEDA<T extends TEDecision>
-		implements EDABasic<EditDistanceTEDecision> {
+		implements EDABasic<EditDistanceTEDecision>, EDAConcurrentProcessing {
 	
 	/**
 	 * the threshold that has to be learnt on a training set and then used
@@ -119,6 +134,41 @@ public class EditDistanceEDA<T extends TEDecision>
 	 */
     protected String measureToOptimize;
     
+    /**
+	 * the configuration the EDA has been initialized with; it is used to initialize
+	 * the additional instances of the EDA needed for concurrent processing
+	 */
+    protected CommonConfig config;
+    
+    /**
+	 * the number of threads used for concurrent processing
+	 */
+    protected int numberOfThreads;
+    
+    /**
+	 * the runner used for concurrent processing; it is created on the first call
+	 * to processDataSetConcurrently
+	 */
+    protected EDAConcurrentRunner concurrentRunner;
+    
+    /**
+	 * the additional instances of the EDA used for concurrent processing
+	 */
+    protected List<EditDistanceEDA<T>> concurrentInstances;
+    
+    /**
+	 * the number of threads used in the training phase; with more than one thread
+	 * the training data are read and their distances calculated by a pipeline
+	 * (see getAnnotationsConcurrently)
+	 */
+    protected int trainingThreads;
+    
+    /**
+	 * the additional instances of the EDA used in the training phase (one for each
+	 * training thread but the first one, which uses this instance)
+	 */
+    protected List<EditDistanceEDA<T>> trainingInstances;
+    
 	/**
 	 * if the EDA has to write the learnt model at the end of the training phase
 	 * 
@@ -380,6 +430,12 @@ public class EditDistanceEDA<T extends TEDecision>
         this.trainDIR = null;
         this.language = null;
         this.measureToOptimize = null;
+        this.config = null;
+        this.numberOfThreads = 1;
+        this.concurrentRunner = null;
+        this.concurrentInstances = null;
+        this.trainingThreads = 1;
+        this.trainingInstances = null;
         
         logger.info("done.");
         
@@ -418,6 +474,11 @@ public class EditDistanceEDA<T extends TEDecision>
 			//getting the name value table of the EDA
 			NameValueTable nameValueTable = config.getSection(this.getType());
 			
+			this.config = config;
+			
+			//setting the number of threads used for concurrent processing and training
+			initializeThreads(nameValueTable);
+			
 			//setting the training directory
 			if (this.trainDIR == null)
 				this.trainDIR = nameValueTable.getString("trainDir");
@@ -436,39 +497,7 @@ public class EditDistanceEDA<T extends TEDecision>
 			String componentName  = nameValueTable.getString("components");
 			if (component == null) {
 				
-				try {
-					
-					Class<?> componentClass = Class.forName(componentName);
-					logger.info("Using:" + componentClass.getCanonicalName());
-					Constructor<?> componentClassConstructor = componentClass.getConstructor(CommonConfig.class);
-					this.component = (FixedWeightEditDistance) componentClassConstructor.newInstance(config);
-					this.component.setmMatchWeight(mMatchWeight);
-					this.component.setmDeleteWeight(mDeleteWeight);
-					this.component.setmInsertWeight(mInsertWeight);
-					this.component.setmSubstituteWeight(mSubstituteWeight);
-					
-					/*
-					 * Initializing FixedWeightEditDistance without a configuration file
-					FixedWeightEditDistance fwed = new FixedWeightTokenEditDistance(mMatchWeight, mDeleteWeight, 
-							mInsertWeight, mSubstituteWeight, true, "IT", null);
-					
-					this.component = fwed;
-					*/
-					
-					/*
-					 * Initializing FixedWeightEditDistance without a configuration file and using
-					 * wikipedia as an external resource.
-					Map<String,String> resources = new HashMap<String,String>();
-					resources.put("wikipedia", "jdbc:mysql://nathrezim:3306/wikilexresita#root#nat_2k12");
-					FixedWeightEditDistance fwed = new FixedWeightTokenEditDistance(mMatchWeight, mDeleteWeight, 
-							mInsertWeight, mSubstituteWeight, true, "IT", resources);
-					
-					this.component = fwed;
-					*/
-					
-				} catch (Exception e) {
-					throw new ComponentException(e.getMessage());
-				}
+				this.component = createComponent(componentName, config);
 				
 			}
 			
@@ -486,6 +515,105 @@ public class EditDistanceEDA<T extends TEDecision>
 	
 	}
 	
+	/**
+	 * Sets the number of threads used for concurrent processing (the optional parameter
+	 * numberOfThreads) and in the training phase (the optional parameter trainingThreads)
+	 * 
+	 * @param nameValueTable the section of the EDA
+	 * 
+	 * @throws ConfigurationException
+	 * @throws EDAException
+	 */
+	protected void initializeThreads(NameValueTable nameValueTable) throws ConfigurationException, EDAException {
+		
+		this.numberOfThreads = EDAConcurrentRunner.getNumberOfThreads(nameValueTable);
+		
+		Integer trainingThreads = nameValueTable.getInteger("trainingThreads");
+		this.trainingThreads = (trainingThreads == null) ? 1 : trainingThreads;
+		if (this.trainingThreads < 1)
+			throw new ConfigurationException("trainingThreads:" + this.trainingThreads + " is not a valid number of threads!");
+		
+		//failing at initialization, rather than at the first concurrent call, when more than one
+		//thread is explicitly configured but no additional instance can be created
+		if (this.trainingThreads > 1 || nameValueTable.getInteger(EDAConcurrentRunner.NUMBER_OF_THREADS_PARAMETER_NAME) != null && this.numberOfThreads > 1)
+			getInstanceConstructor();
+		
+	}
+	
+	/**
+	 * Returns the constructor used to create the additional instances of the EDA
+	 * 
+	 * @return the public no-argument constructor of the class of this instance
+	 * 
+	 * @throws EDAException if the class has no such constructor
+	 */
+	@SuppressWarnings("unchecked")
+	protected Constructor<? extends EditDistanceEDA<T>> getInstanceConstructor() throws EDAException {
+		
+		try {
+			return (Constructor<? extends EditDistanceEDA<T>>) this.getClass().getConstructor();
+		} catch (NoSuchMethodException e) {
+			throw new EDAException(this.getClass().getName() + " has no public no-argument constructor, which is required "
+					+ "for creating the additional instances of the EDA used by more than one thread "
+					+ "(numberOfThreads, trainingThreads); either add such a constructor or use a single thread.", e);
+		}
+		
+	}
+	
+	/**
+	 * Creates a new instance of the edit distance component, with the weights of the
+	 * edit distance operations of this EDA
+	 * 
+	 * @param componentName the name of the class of the component
+	 * @param config the configuration
+	 * 
+	 * @return the component
+	 * 
+	 * @throws ComponentException
+	 */
+	protected FixedWeightEditDistance createComponent(String componentName, CommonConfig config) 
+			throws ComponentException {
+		
+		FixedWeightEditDistance newComponent = null;
+		
+		try {
+			
+			Class<?> componentClass = Class.forName(componentName);
+			logger.info("Using:" + componentClass.getCanonicalName());
+			Constructor<?> componentClassConstructor = componentClass.getConstructor(CommonConfig.class);
+			newComponent = (FixedWeightEditDistance) componentClassConstructor.newInstance(config);
+			newComponent.setmMatchWeight(mMatchWeight);
+			newComponent.setmDeleteWeight(mDeleteWeight);
+			newComponent.setmInsertWeight(mInsertWeight);
+			newComponent.setmSubstituteWeight(mSubstituteWeight);
+			
+			/*
+			 * Initializing FixedWeightEditDistance without a configuration file
+			FixedWeightEditDistance fwed = new FixedWeightTokenEditDistance(mMatchWeight, mDeleteWeight, 
+					mInsertWeight, mSubstituteWeight, true, "IT", null);
+			
+			newComponent = fwed;
+			*/
+			
+			/*
+			 * Initializing FixedWeightEditDistance without a configuration file and using
+			 * wikipedia as an external resource.
+			Map<String,String> resources = new HashMap<String,String>();
+			resources.put("wikipedia", "jdbc:mysql://nathrezim:3306/wikilexresita#root#nat_2k12");
+			FixedWeightEditDistance fwed = new FixedWeightTokenEditDistance(mMatchWeight, mDeleteWeight, 
+					mInsertWeight, mSubstituteWeight, true, "IT", resources);
+			
+			newComponent = fwed;
+			*/
+			
+		} catch (Exception e) {
+			throw new ComponentException(e.getMessage());
+		}
+		
+		return newComponent;
+		
+	}
+	
 	@Override
 	public EditDistanceTEDecision process(JCas jcas) throws EDAException, ComponentException {
 		
@@ -505,11 +633,24 @@ public class EditDistanceEDA<T extends TEDecision>
 		
 	}
 	
+	@Override
+	public List<TEDecision> processDataSetConcurrently(List<JCas> casList) throws EDAException, ComponentException {
+		
+		if (this.concurrentRunner == null)
+			initializeConcurrentProcessing();
+		
+		return this.concurrentRunner.processDataSetConcurrently(casList);
+		
+	}
+	
 	@Override
 	public void shutdown() {
 		
 		logger.info("Shutting down ...");
 	        	
+		shutdownConcurrentProcessing();
+		shutdownTrainingInstances();
+		
 		if (component != null)
 			((FixedWeightEditDistance)component).shutdown();
 		
@@ -524,6 +665,7 @@ public class EditDistanceEDA<T extends TEDecision>
         this.trainDIR = null;
         this.language = null;
         this.measureToOptimize = null;
+        this.config = null;
         
         logger.info("done.");
 		
@@ -538,6 +680,9 @@ public class EditDistanceEDA<T extends TEDecision>
 			
 			initialize(config);
 			
+			//the instances used for concurrent processing have the old threshold
+			shutdownConcurrentProcessing();
+			
 			//contains the distance between each pair of T-H
 			List<DistanceValue> distanceValueList = new ArrayList<DistanceValue>();
 			//contains the entailment annotation between each pair of T-H
@@ -550,21 +695,33 @@ public class EditDistanceEDA<T extends TEDecision>
 				throw new ConfigurationException("trainDIR:" + f.getAbsolutePath() + " not found!");
 			}
 			
-			int filesCounter = 0;
+			List<File> xmiFiles = new ArrayList<File>();
 			for (File xmi : f.listFiles()) {
 				if (!xmi.getName().endsWith(".xmi")) {
 					continue;
 				}
+				xmiFiles.add(xmi);
+			}
+			int filesCounter = xmiFiles.size();
+			
+			if (this.trainingThreads > 1) {
+				
+				annotationList = getAnnotationsConcurrently(xmiFiles);
 				
-				JCas cas = PlatformCASProber.probeXmi(xmi, null);
+			} else {
+				
+				for (File xmi : xmiFiles) {
+					
+					JCas cas = PlatformCASProber.probeXmi(xmi, null);
+						
+					getDistanceValues(cas, distanceValueList);
+					getEntailmentAnnotation(cas, entailmentValueList);
 					
-				getDistanceValues(cas, distanceValueList);
-				getEntailmentAnnotation(cas, entailmentValueList);
+				}
+				
+				annotationList = merge(distanceValueList, entailmentValueList);
 				
-				filesCounter++;
 			}
-			
-			annotationList = merge(distanceValueList, entailmentValueList);
 		
 			if (filesCounter == 0)
 				throw new ConfigurationException("trainDIR:" + f.getAbsolutePath() + " empty!");
@@ -596,6 +753,244 @@ public class EditDistanceEDA<T extends TEDecision>
 		
 	}
 	
+	/**
+     * Reads the specified training files and calculates the distance of each of their T/H pairs
+     * by a two stages pipeline: the first stage deserializes the XMI files in parallel, and the
+     * second stage calculates the distances in parallel, where each thread uses its own instance
+     * of the EDA (and so of the edit distance component), calling getDistanceValues as in the
+     * serial training. The number of the deserialized CASes waiting for the
+     * second stage is bounded, so that at most a few CASes per thread are kept in memory.
+     * 
+     * The returned list is in the same order of the specified files, as in the serial training, so
+     * that the learnt threshold is the same.
+     * 
+     * @param xmiFiles the training files
+     * 
+     * @return the entailment annotation and the distance of each of the T/H pairs
+     * 
+     * @throws Exception
+     */
+	protected List<Annotation> getAnnotationsConcurrently(final List<File> xmiFiles) throws Exception {
+		
+		logger.info("Reading and calculating the distances with " + this.trainingThreads + " threads ...");
+		
+		initializeTrainingInstances();
+		
+		final int numberOfFiles = xmiFiles.size();
+		final DistanceValue[] distanceValues = new DistanceValue[numberOfFiles];
+		final String[] entailmentValues = new String[numberOfFiles];
+		final BlockingQueue<IndexedCas> casQueue = new ArrayBlockingQueue<IndexedCas>(2 * this.trainingThreads);
+		final AtomicInteger casesToProcess = new AtomicInteger(numberOfFiles);
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>(null);
+		
+		ExecutorService readers = Executors.newFixedThreadPool(this.trainingThreads);
+		ExecutorService calculators = Executors.newFixedThreadPool(this.trainingThreads);
+		
+		try {
+			
+			//first stage: deserializing the XMI files
+			for (int i = 0; i < numberOfFiles; i++) {
+				final int index = i;
+				readers.execute(new Runnable() {
+					public void run() {
+						IndexedCas indexedCas;
+						try {
+							if (failure.get() == null)
+								indexedCas = new IndexedCas(index, PlatformCASProber.probeXmi(xmiFiles.get(index), null));
+							else
+								indexedCas = new IndexedCas(index, null);
+						} catch (Exception e) {
+							failure.compareAndSet(null, e);
+							indexedCas = new IndexedCas(index, null);
+						}
+						try {
+							casQueue.put(indexedCas);
+						} catch (InterruptedException e) {
+							failure.compareAndSet(null, e);
+						}
+					}
+				});
+			}
+			
+			//second stage: calculating the distances; each thread uses its own instance
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			List<EditDistanceEDA<T>> edas = new ArrayList<EditDistanceEDA<T>>();
+			edas.add(this);
+			edas.addAll(this.trainingInstances);
+			for (final EditDistanceEDA<T> threadEDA : edas) {
+				futures.add(calculators.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						while (casesToProcess.getAndDecrement() > 0) {
+							IndexedCas indexedCas = casQueue.take();
+							if (indexedCas.cas == null || failure.get() != null)
+								continue;
+							try {
+								List<DistanceValue> distanceValue = new ArrayList<DistanceValue>(1);
+								threadEDA.getDistanceValues(indexedCas.cas, distanceValue);
+								distanceValues[indexedCas.index] = distanceValue.get(0);
+								List<String> entailmentValue = new ArrayList<String>(1);
+								threadEDA.getEntailmentAnnotation(indexedCas.cas, entailmentValue);
+								entailmentValues[indexedCas.index] = entailmentValue.get(0);
+							} catch (Exception e) {
+								failure.compareAndSet(null, e);
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			
+			for (Future<?> future : futures)
+				future.get();
+			
+		} finally {
+			readers.shutdownNow();
+			calculators.shutdownNow();
+		}
+		
+		if (failure.get() != null)
+			throw failure.get();
+		
+		logger.info("done.");
+		
+		return merge(Arrays.asList(distanceValues), Arrays.asList(entailmentValues));
+		
+	}
+	
+	/**
+     * Creates the additional instances of the EDA used in the training phase, unless they
+     * have already been created. As this instance, each of them keeps its edit distance
+     * component between trainings.
+     * 
+     * @throws EDAException
+     * @throws ComponentException
+     */
+	protected void initializeTrainingInstances() throws EDAException, ComponentException {
+		
+		if (this.trainingInstances != null && this.trainingInstances.size() == this.trainingThreads - 1)
+			return;
+		
+		shutdownTrainingInstances();
+		
+		this.trainingInstances = createInstances(this.trainingThreads - 1);
+		
+	}
+	
+	/**
+     * Shuts down the additional instances of the EDA used in the training phase
+     */
+	protected void shutdownTrainingInstances() {
+		
+		if (this.trainingInstances != null)
+			shutdownInstances(this.trainingInstances);
+		
+		this.trainingInstances = null;
+		
+	}
+	
+	/**
+     * Creates the additional instances of the EDA (one for each thread but the first one,
+     * which uses this instance) and the runner that processes the pairs concurrently. Each
+     * of the instances has its own distance component, initialized with the configuration and
+     * the weights of this instance, and uses the threshold of this instance.
+     * 
+     * @throws EDAException
+     * @throws ComponentException
+     */
+	protected void initializeConcurrentProcessing() throws EDAException, ComponentException {
+		
+		logger.info("Creating " + (this.numberOfThreads - 1) + " additional instances for concurrent processing ...");
+		
+		this.concurrentInstances = createInstances(this.numberOfThreads - 1);
+		
+		List<EditDistanceEDA<T>> edas = new ArrayList<EditDistanceEDA<T>>();
+		edas.add(this);
+		edas.addAll(this.concurrentInstances);
+		this.concurrentRunner = new EDAConcurrentRunner(edas);
+		
+		logger.info("done.");
+		
+	}
+	
+	/**
+     * Creates additional instances of the EDA, of the same class of this instance, by its public
+     * no-argument constructor (see <code>getInstanceConstructor</code>). Each of them is initialized with the configuration and the weights of this instance, so that it
+     * has its own distance component, and uses the threshold of this instance.
+     * 
+     * @param numberOfInstances the number of instances to be created
+     * 
+     * @return the instances
+     * 
+     * @throws EDAException
+     * @throws ComponentException
+     */
+	protected List<EditDistanceEDA<T>> createInstances(int numberOfInstances) throws EDAException, ComponentException {
+		
+		if (this.config == null)
+			throw new EDAException("The EDA has to be initialized before creating its additional instances.");
+		
+		Constructor<? extends EditDistanceEDA<T>> constructor = getInstanceConstructor();
+		
+		List<EditDistanceEDA<T>> instances = new ArrayList<EditDistanceEDA<T>>();
+		
+		try {
+			
+			for (int i = 0; i < numberOfInstances; i++) {
+				
+				EditDistanceEDA<T> instance = constructor.newInstance();
+				instance.setmMatchWeight(this.mMatchWeight);
+				instance.setmDeleteWeight(this.mDeleteWeight);
+				instance.setmInsertWeight(this.mInsertWeight);
+				instance.setmSubstituteWeight(this.mSubstituteWeight);
+				instance.setWriteModel(false);
+				instances.add(instance);
+				
+				instance.initialize(this.config);
+				//the threshold could have been learnt without being saved into the configuration file
+				instance.threshold = this.threshold;
+				
+			}
+			
+		} catch (ConfigurationException e) {
+			shutdownInstances(instances);
+			throw new EDAException(e.getMessage(), e);
+		} catch (EDAException | ComponentException e) {
+			shutdownInstances(instances);
+			throw e;
+		} catch (ReflectiveOperationException e) {
+			shutdownInstances(instances);
+			throw new EDAException("Could not create an instance of " + this.getType() + ": " + e.getMessage(), e);
+		}
+		
+		return instances;
+		
+	}
+	
+	/**
+     * Shuts down the additional instances of the EDA used for concurrent processing
+     */
+	protected void shutdownConcurrentProcessing() {
+		
+		if (this.concurrentInstances != null)
+			shutdownInstances(this.concurrentInstances);
+		
+		this.concurrentInstances = null;
+		this.concurrentRunner = null;
+		
+	}
+	
+	/**
+     * Shuts down the specified additional instances of the EDA
+     * 
+     * @param instances the instances
+     */
+	protected void shutdownInstances(List<EditDistanceEDA<T>> instances) {
+		
+		for (EditDistanceEDA<T> instance : instances)
+			instance.shutdown();
+		
+	}
+	
 	/**
      * Checks the configuration and raise exceptions if the provided
      * configuration is not compatible with this class
@@ -980,6 +1375,24 @@ public class EditDistanceEDA<T extends TEDecision>
 	    
     }
     
+    /* 
+     * This class represents a CAS read from the training data set with its position in the data set;
+     * the CAS is null if it could not be read.
+     */
+    protected static class IndexedCas {
+    	
+    	final int index;
+    	final JCas cas;
+    	
+    	IndexedCas(int index, JCas cas) {
+    		
+    		this.index = index;
+    		this.cas = cas;
+    		
+    	}
+    	
+    }
+    
     /* 
      * This class represents the entailment annotation between a T/H pair with its edit distance.
      */
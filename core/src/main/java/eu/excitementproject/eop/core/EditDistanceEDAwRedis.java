@@ -1,8 +1,6 @@
 package eu.excitementproject.eop.core;
 
-import java.io.File;
 import java.lang.reflect.Constructor;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -18,7 +16,6 @@ import eu.excitementproject.eop.common.configuration.NameValueTable;
 import eu.excitementproject.eop.common.exception.ComponentException;
 import eu.excitementproject.eop.common.exception.ConfigurationException;
 import eu.excitementproject.eop.core.component.distance.FixedWeightEditDistancewRedis;
-import eu.excitementproject.eop.lap.PlatformCASProber;
 
 
 /**
@@ -80,6 +77,11 @@ public class EditDistanceEDAwRedis<T extends TEDecision>
 			//getting the name value table of the EDA
 			NameValueTable nameValueTable = config.getSection(this.getType());
 			
+			this.config = config;
+			
+			//setting the number of threads used for concurrent processing and training
+			initializeThreads(nameValueTable);
+			
 			logger.info("Setting the train and test dirs for LAP");
 			
 			//setting the training directory
@@ -157,7 +159,10 @@ public class EditDistanceEDAwRedis<T extends TEDecision>
 	public void shutdown() {
 		
 		logger.info("Shutting down ...");
-	    logger.info("Number of rules used: " + FixedWeightEditDistancewRedis.ruleCounter);   
+	    logger.info("Number of rules used: " + FixedWeightEditDistancewRedis.ruleCounter.get());
+		
+		shutdownConcurrentProcessing();
+		shutdownTrainingInstances();
 		
 		if (component != null)
 			component.shutdown();
@@ -173,6 +178,7 @@ public class EditDistanceEDAwRedis<T extends TEDecision>
         this.trainDIR = null;
         this.language = null;
         this.measureToOptimize = null;
+        this.config = null;
         
         logger.info("done.");
 	}
@@ -180,71 +186,11 @@ public class EditDistanceEDAwRedis<T extends TEDecision>
 	@Override
 	public void startTraining(CommonConfig config) throws ConfigurationException, EDAException, ComponentException {
 		
-		logger.info("Training ...");
-		
-		try {
-			
-			initialize(config);
-			
-			//contains the distance between each pair of T-H
-			List<DistanceValue> distanceValueList = new ArrayList<DistanceValue>();
-			//contains the entailment annotation between each pair of T-H
-			List<String> entailmentValueList = new ArrayList<String>();
-			//contains the entailment annotation and the distance between each pair of T-H
-			List<Annotation> annotationList;
-			
-			File f = new File(trainDIR);
-			if (f.exists() == false) {
-				throw new ConfigurationException("trainDIR:" + f.getAbsolutePath() + " not found!");
-			}
-			
-			logger.info(f.listFiles().length + " files to process from " + f.getName() );
-			
-			int filesCounter = 0;
-			for (File xmi : f.listFiles()) {
-				if (!xmi.getName().endsWith(".xmi")) {
-					continue;
-				}
-				
-				JCas cas = PlatformCASProber.probeXmi(xmi, null);
-					
-				getDistanceValues(cas, distanceValueList);
-				getEntailmentAnnotation(cas, entailmentValueList);
-				
-				filesCounter++;
-			}
-			
-			annotationList = merge(distanceValueList, entailmentValueList);
-		
-			if (filesCounter == 0)
-				throw new ConfigurationException("trainDIR:" + f.getAbsolutePath() + " empty!");
-			
-			//array of two elements; the first element is the calculated threshold whereas the
-			//second one is the obtained accuracy
-			double[] thresholdAndAccuracy = 
-					//sequentialSearch(distanceValueList, entailmentValueList, measureToOptimize);
-					sequentialSearch(annotationList, measureToOptimize);
-			
-			this.threshold = thresholdAndAccuracy[0];
-			this.trainingAccuracy = thresholdAndAccuracy[1];
-			
-			//it saves the calculated model into the configuration file itself
-			if (this.writeModel == true)
-				saveModel(config);	
-			
-		} catch (ConfigurationException e) {
-			throw e;
-		} catch (EDAException e) {
-			throw e;
-		} catch (ComponentException e) {
-			throw e;
-		} catch (Exception e) {
-			throw new EDAException(e.getMessage());
-		}
+		//the distances are calculated by getDistanceValues, so by the Redis-based component,
+		//both in the serial and in the concurrent training
+		super.startTraining(config);
 		
-		logger.info("done.");
-		logger.info("Number of LR rules used in training: " + FixedWeightEditDistancewRedis.ruleCounter);
-		FixedWeightEditDistancewRedis.ruleCounter = 0;
+		logger.info("Number of LR rules used in training: " + FixedWeightEditDistancewRedis.ruleCounter.getAndSet(0));
 		
 	}
 	
@@ -28,7 +28,10 @@ import org.apache.uima.jcas.cas.TOP;
 import eu.excitement.type.entailment.Pair;
 import eu.excitementproject.eop.common.DecisionLabel;
 import eu.excitementproject.eop.common.EDABasic;
+import eu.excitementproject.eop.common.EDAConcurrentProcessing;
+import eu.excitementproject.eop.common.EDAConcurrentRunner;
 import eu.excitementproject.eop.common.EDAException;
+import eu.excitementproject.eop.common.TEDecision;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.scoring.ScoringComponent;
 import eu.excitementproject.eop.common.component.scoring.ScoringComponentException;
@@ -64,13 +67,15 @@ import de.dfki.lt.nemex.a.NEMEX_A;
  * the training data directory (containing XMI files); 2) the testing data
  * directory; 3) the model file path; 4) the component list separated by comma;
  * 5) (optional) settings for the classifier, the maximum number of iterations
- * and the cut-off threshold.
+ * and the cut-off threshold; 6) (optional) the number of threads used by
+ * <code>processDataSetConcurrently</code>, where each thread uses its own
+ * instance of the EDA, and so its own instances of the scoring components.
  * 
  * @author Rui Wang, Madhumita
  * @since December 2012
  */
 public class MaxEntClassificationEDA implements
-		EDABasic<ClassificationTEDecision> {
+		EDABasic<ClassificationTEDecision>, EDAConcurrentProcessing {
 
 	/**
 	 * the logger
@@ -108,6 +113,28 @@ public class MaxEntClassificationEDA implements
 	 */
 	private MaxentModel model;
 
+	/**
+	 * the configuration, used to initialize the additional instances of the
+	 * EDA for concurrent processing
+	 */
+	private CommonConfig config;
+
+	/**
+	 * the number of threads used for concurrent processing
+	 */
+	private int numberOfThreads;
+
+	/**
+	 * the runner used for concurrent processing, created on the first call to
+	 * <code>processDataSetConcurrently</code>
+	 */
+	private EDAConcurrentRunner concurrentRunner;
+
+	/**
+	 * the additional instances of the EDA used for concurrent processing
+	 */
+	private List<MaxEntClassificationEDA> concurrentInstances;
+
 	/**
 	 * get the list of components
 	 * 
@@ -176,6 +203,23 @@ public class MaxEntClassificationEDA implements
 
 		// initialize the components
 		initializeComponents(config);
+
+		// initialize the concurrent processing settings
+		initializeConcurrency(config);
+	}
+
+	/**
+	 * initialize the number of threads used for concurrent processing
+	 * 
+	 * @param config
+	 *            the configuration
+	 * @throws EDAException
+	 */
+	private void initializeConcurrency(CommonConfig config)
+			throws ConfigurationException, EDAException {
+		this.config = config;
+		this.numberOfThreads = EDAConcurrentRunner.getNumberOfThreads(config
+				.getSection(this.getClass().getName()));
 	}
 
 	/**
@@ -440,6 +484,64 @@ public class MaxEntClassificationEDA implements
 				result[numOutcomes - 1].doubleValue, pairId);
 	}
 
+	@Override
+	public final List<TEDecision> processDataSetConcurrently(
+			List<JCas> casList) throws EDAException, ComponentException {
+		if (null == concurrentRunner) {
+			initializeConcurrentProcessing();
+		}
+		return concurrentRunner.processDataSetConcurrently(casList);
+	}
+
+	/**
+	 * create the additional instances of the EDA, one for each thread but the
+	 * first, which uses this instance, and the runner that uses them
+	 * 
+	 * @throws EDAException
+	 * @throws ComponentException
+	 */
+	private void initializeConcurrentProcessing() throws EDAException,
+			ComponentException {
+		if (null == config || null == model) {
+			throw new EDAException(
+					"The EDA has to be initialized before processing a data set concurrently.");
+		}
+		logger.info("Creating " + (numberOfThreads - 1)
+				+ " additional instances for concurrent processing");
+		List<MaxEntClassificationEDA> edas = new ArrayList<MaxEntClassificationEDA>();
+		edas.add(this);
+		concurrentInstances = new ArrayList<MaxEntClassificationEDA>();
+		try {
+			for (int i = 1; i < numberOfThreads; i++) {
+				MaxEntClassificationEDA instance = new MaxEntClassificationEDA();
+				concurrentInstances.add(instance);
+				instance.initialize(config);
+				edas.add(instance);
+			}
+		} catch (ConfigurationException e) {
+			shutdownConcurrentProcessing();
+			throw new EDAException(e.getMessage(), e);
+		} catch (EDAException | ComponentException e) {
+			shutdownConcurrentProcessing();
+			throw e;
+		}
+		concurrentRunner = new EDAConcurrentRunner(edas);
+	}
+
+	/**
+	 * shut down the additional instances of the EDA used for concurrent
+	 * processing
+	 */
+	private void shutdownConcurrentProcessing() {
+		if (null != concurrentInstances) {
+			for (MaxEntClassificationEDA instance : concurrentInstances) {
+				instance.shutdown();
+			}
+		}
+		concurrentInstances = null;
+		concurrentRunner = null;
+	}
+
 	/**
 	 * @param aCas
 	 *            the <code>JCas</code> object
@@ -461,6 +563,7 @@ public class MaxEntClassificationEDA implements
 
 	@Override
 	public final void shutdown() {
+		shutdownConcurrentProcessing();
 		if (null != components) {
 			for (ScoringComponent comp : components) {
 				try {
@@ -475,6 +578,7 @@ public class MaxEntClassificationEDA implements
 		trainDIR = "";
 		testDIR = "";
 		model = null;
+		config = null;
 	}
 
 	@Override
@@ -492,6 +596,11 @@ public class MaxEntClassificationEDA implements
 		// initialize the components
 		initializeComponents(c);
 
+		// initialize the concurrent processing settings; the instances used
+		// so far for concurrent processing have the old model
+		shutdownConcurrentProcessing();
+		initializeConcurrency(c);
+
 		boolean USE_SMOOTHING = false;
 
 		// commented out, use the default value
@@ -0,0 +1,272 @@
+package eu.excitementproject.eop.core.component.distance;
+
+
+/**
+ * The <code>EditDistanceKernel</code> class computes the weighted edit distance between
+ * two sequences of token ids. It is the inner loop of {@link FixedWeightEditDistance}.
+ *
+ * Two tokens are matched when they have the same id (the ids are assigned by the caller,
+ * e.g. by interning the base forms of the tokens) or when the specified {@link TokenMatcher}
+ * says so (e.g. because a lexical resource contains a rule between them).
+ *
+ * The kernel does not allocate the (n+1)*(m+1) table of the distances: it keeps only two rows
+ * of it, in buffers that are reused by all the calculations of a thread.
+ *
+ * The weight of substituting a token is either the same for all the tokens or given by a
+ * {@link SubstitutionWeights}, which is asked only for the cells where the tokens do not match.
+ *
+ * When only a thresholded decision is needed, a maximum distance can be specified: the
+ * calculation stops as soon as the distance is known to be greater than it, and only the cells
+ * within a band around the diagonal are computed (Ukkonen, 1985). This requires non-negative
+ * constant weights; with negative weights or with SubstitutionWeights the whole table is computed.
+ *
+ */
+public class EditDistanceKernel {
+
+	/**
+	 * The distance returned when it is greater than the maximum distance
+	 */
+	public static final double EXCEEDED = Double.POSITIVE_INFINITY;
+
+	/**
+	 * the rows of the table of each thread
+	 */
+	private static final ThreadLocal<double[][]> rows = new ThreadLocal<double[][]>() {
+		@Override
+		protected double[][] initialValue() {
+			return new double[2][64];
+		}
+	};
+
+
+	/**
+	 * The <code>TokenMatcher</code> interface tells whether two tokens with different
+	 * ids have to be considered as matching.
+	 */
+	public interface TokenMatcher {
+
+		/**
+		 * @param sourceIndex the position of the token in the source sequence
+		 * @param targetIndex the position of the token in the target sequence
+		 *
+		 * @return true if the tokens match
+		 */
+		boolean matches(int sourceIndex, int targetIndex);
+
+	}
+
+
+	/**
+	 * The <code>SubstitutionWeights</code> interface gives the weight of substituting
+	 * a token of the target sequence for a token of the source sequence.
+	 */
+	public interface SubstitutionWeights {
+
+		/**
+		 * @param sourceIndex the position of the deleted token in the source sequence
+		 * @param targetIndex the position of the inserted token in the target sequence
+		 *
+		 * @return the weight of the substitution
+		 */
+		double substituteWeight(int sourceIndex, int targetIndex);
+
+	}
+
+
+	private EditDistanceKernel() {
+	}
+
+
+	/**
+	 * Returns the weighted edit distance between the specified sequences of token ids.
+	 *
+	 * @param source the ids of the tokens of the source sequence
+	 * @param target the ids of the tokens of the target sequence
+	 * @param matchWeights the weight of matching each token of the source sequence
+	 * @param deleteWeights the weight of deleting each token of the source sequence
+	 * @param insertWeights the weight of inserting each token of the target sequence
+	 * @param substituteWeight the weight of substituting a token
+	 * @param matcher the matcher of the tokens with different ids; it can be null
+	 *
+	 * @return the edit distance
+	 */
+	public static double distance(int[] source, int[] target,
+			double[] matchWeights, double[] deleteWeights, double[] insertWeights, double substituteWeight,
+			TokenMatcher matcher) {
+
+		return distance(source, target, matchWeights, deleteWeights, insertWeights, substituteWeight,
+				matcher, Double.POSITIVE_INFINITY);
+
+	}
+
+
+	/**
+	 * Returns the weighted edit distance between the specified sequences of token ids, if
+	 * it is not greater than the specified maximum distance.
+	 *
+	 * @param source the ids of the tokens of the source sequence
+	 * @param target the ids of the tokens of the target sequence
+	 * @param matchWeights the weight of matching each token of the source sequence
+	 * @param deleteWeights the weight of deleting each token of the source sequence
+	 * @param insertWeights the weight of inserting each token of the target sequence
+	 * @param substituteWeight the weight of substituting a token
+	 * @param matcher the matcher of the tokens with different ids; it can be null
+	 * @param maxDistance the maximum distance
+	 *
+	 * @return the edit distance if it is not greater than maxDistance; {@link #EXCEEDED} otherwise
+	 */
+	public static double distance(int[] source, int[] target,
+			double[] matchWeights, double[] deleteWeights, double[] insertWeights, double substituteWeight,
+			TokenMatcher matcher, double maxDistance) {
+
+		return distance(source, target, matchWeights, deleteWeights, insertWeights, substituteWeight, null,
+				matcher, maxDistance);
+
+	}
+
+
+	/**
+	 * Returns the weighted edit distance between the specified sequences of token ids, with
+	 * the weights of the substitutions given by the specified SubstitutionWeights.
+	 *
+	 * @param source the ids of the tokens of the source sequence
+	 * @param target the ids of the tokens of the target sequence
+	 * @param matchWeights the weight of matching each token of the source sequence
+	 * @param deleteWeights the weight of deleting each token of the source sequence
+	 * @param insertWeights the weight of inserting each token of the target sequence
+	 * @param substituteWeights the weights of the substitutions
+	 * @param matcher the matcher of the tokens with different ids; it can be null
+	 *
+	 * @return the edit distance
+	 */
+	public static double distance(int[] source, int[] target,
+			double[] matchWeights, double[] deleteWeights, double[] insertWeights, SubstitutionWeights substituteWeights,
+			TokenMatcher matcher) {
+
+		return distance(source, target, matchWeights, deleteWeights, insertWeights, Double.NaN, substituteWeights,
+				matcher, Double.POSITIVE_INFINITY);
+
+	}
+
+
+	private static double distance(int[] source, int[] target,
+			double[] matchWeights, double[] deleteWeights, double[] insertWeights,
+			double substituteWeight, SubstitutionWeights substituteWeights,
+			TokenMatcher matcher, double maxDistance) {
+
+		int n = source.length;
+		int m = target.length;
+
+		boolean cutoff = maxDistance != Double.POSITIVE_INFINITY && substituteWeights == null &&
+				substituteWeight >= 0 && isNonNegative(matchWeights) &&
+				isNonNegative(deleteWeights) && isNonNegative(insertWeights);
+
+		// the band: the cells (i,j) with dMin <= i-j <= dMax; any path through the other cells
+		// costs more than maxDistance because it needs too many deletions and insertions
+		double dMin = Double.NEGATIVE_INFINITY;
+		double dMax = Double.POSITIVE_INFINITY;
+		if (cutoff) {
+			double minIndelWeight = Math.min(min(deleteWeights), min(insertWeights));
+			if (minIndelWeight > 0) {
+				double maxIndels = maxDistance / minIndelWeight;
+				int lengthDifference = n - m;
+				if (Math.abs(lengthDifference) > maxIndels)
+					return EXCEEDED;
+				double extra = (maxIndels - Math.abs(lengthDifference)) / 2;
+				dMin = Math.min(0, lengthDifference) - extra;
+				dMax = Math.max(0, lengthDifference) + extra;
+			}
+		}
+
+		double[][] buffers = rows.get();
+		if (buffers[0].length < m + 1) {
+			buffers[0] = new double[Math.max(m + 1, 2 * buffers[0].length)];
+			buffers[1] = new double[buffers[0].length];
+		}
+		double[] previous = buffers[0];
+		double[] current = buffers[1];
+
+		previous[0] = 0;
+		for (int j = 1; j <= m; j++)
+			previous[j] = previous[j-1] + insertWeights[j-1];
+
+		double firstColumn = 0;
+
+		for (int i = 1; i <= n; i++) {
+
+			firstColumn = firstColumn + deleteWeights[i-1];
+
+			int from = 1;
+			int to = m;
+			if (dMax != Double.POSITIVE_INFINITY) {
+				from = (int)Math.max(1, Math.ceil(i - dMax));
+				to = (int)Math.min(m, Math.floor(i - dMin));
+				if (from > to && m > 0)
+					return EXCEEDED;
+			}
+
+			// the cells on the border of the band are read by this row and the next one
+			current[from-1] = (from == 1) ? firstColumn : EXCEEDED;
+			if (to < m)
+				current[to+1] = EXCEEDED;
+
+			double rowMinimum = current[from-1];
+			int sourceId = source[i-1];
+			double matchWeight = matchWeights[i-1];
+			double deleteWeight = deleteWeights[i-1];
+
+			for (int j = from; j <= to; j++) {
+
+				boolean match = sourceId == target[j-1] || (matcher != null && matcher.matches(i-1, j-1));
+				double value = Math.min(Math.min(
+						previous[j-1] + (match ? matchWeight :
+							(substituteWeights == null ? substituteWeight : substituteWeights.substituteWeight(i-1, j-1))),
+						previous[j] + deleteWeight),
+						current[j-1] + insertWeights[j-1]);
+				current[j] = value;
+				if (value < rowMinimum)
+					rowMinimum = value;
+
+			}
+
+			// the distance can only grow from a row to the next one
+			if (cutoff && rowMinimum > maxDistance)
+				return EXCEEDED;
+
+			double[] swap = previous;
+			previous = current;
+			current = swap;
+
+		}
+
+		double distance = previous[m];
+		if (distance > maxDistance)
+			return EXCEEDED;
+
+		return distance;
+
+	}
+
+
+	private static boolean isNonNegative(double[] weights) {
+
+		for (double weight : weights)
+			if (!(weight >= 0))
+				return false;
+
+		return true;
+
+	}
+
+
+	private static double min(double[] weights) {
+
+		double min = Double.POSITIVE_INFINITY;
+		for (double weight : weights)
+			min = Math.min(min, weight);
+
+		return min;
+
+	}
+
+}
@@ -4,12 +4,15 @@ package eu.excitementproject.eop.core.component.distance;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.Vector;
 import java.util.logging.Logger;
 
@@ -77,6 +80,8 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 	protected static final String IGNORE_CASE = "ignoreCase";
 	protected static final String NORMALIZATION_TYPE = "normalizationType";
 	protected static final String DEFAULT = "default";
+	protected static final String RULE_CACHE_SIZE = "ruleCacheSize";
+	protected static final String RULE_CACHE_FILE = "ruleCacheFile";
 	protected static final String LONG = "long";
 	protected static final String PATH_STOP_WORD = "pathStopWordFile";
 	protected static final String STOP_WORD_TYPE = "stopWordRemoval";
@@ -114,6 +119,19 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
     Set<WordNetRelation> relations = new HashSet<WordNetRelation>();
 	protected HashSet<String> ignoreSet = null;
 	protected String normalizationType;
+    /**
+	 * the cache of the answers of the resources; null if disabled
+	 */
+    protected LexicalRuleCache ruleCache;
+    /**
+	 * the file where the cache is kept between runs; null if not kept
+	 */
+    protected File ruleCacheFile;
+    /**
+	 * the description of the resources (language, instances and their parameters)
+	 * the answers of the cache come from
+	 */
+    protected String resourcesDescription;
 
     static Logger logger = Logger.getLogger(FixedWeightEditDistance.class.getName());
     
@@ -285,6 +303,9 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 	    		
     		}
     		
+    		resourcesDescription = describeResources(config, language);
+    		initializeRuleCache(componentNameValueTable);
+    		
     	} catch (ConfigurationException e) {
     		throw new ComponentException(e.getMessage());
     	}
@@ -294,6 +315,101 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
     }
     
     
+    /**
+     * Returns the description of the resources of the component: the language, the
+     * instances and the parameters of each of them (the ones in its subsection and, for
+     * the instances configured by a section of their own, e.g. the Redis-based ones, the
+     * ones in that section). Passwords are not included.
+     * 
+     * @param config the configuration
+     * @param language the language
+     * 
+     * @return the description
+     * 
+     * @throws ConfigurationException
+     */
+    protected String describeResources(CommonConfig config, String language) throws ConfigurationException {
+    	
+    	StringBuilder sb = new StringBuilder();
+    	sb.append("language=").append(language);
+    	
+    	String[] instancesList = instances.split(",");
+    	for (int i = 0; i < instancesList.length; i++) {
+    		
+    		String instance = instancesList[i];
+    		sb.append(";instance=").append(instance);
+    		
+    		NameValueTable instanceNameValueTable = null;
+    		try {
+    			instanceNameValueTable = config.getSubSection(this.getClass().getCanonicalName(), instance);
+    		} catch (ConfigurationException e) {
+    			//no subsection for the instance
+    		}
+    		describeParameters(instanceNameValueTable, sb);
+    		
+    		NameValueTable moduleNameValueTable = null;
+    		try {
+    			moduleNameValueTable = config.getSection(instance);
+    		} catch (ConfigurationException e) {
+    			//no section for the instance
+    		}
+    		describeParameters(moduleNameValueTable, sb);
+    		
+    	}
+    	
+    	return sb.toString();
+    	
+    }
+    
+    
+    private static void describeParameters(NameValueTable nameValueTable, StringBuilder sb) throws ConfigurationException {
+    	
+    	if (nameValueTable == null)
+    		return;
+    	
+    	for (String name : new TreeSet<String>(nameValueTable.keySet())) {
+    		if (name.toLowerCase().contains("passw"))
+    			continue;
+    		sb.append(',').append(name).append('=').append(nameValueTable.getString(name));
+    	}
+    	
+    }
+    
+    
+    /**
+     * Initializes the cache of the lexical rules from the optional parameters
+     * <code>ruleCacheSize</code> (the maximum number of entries; the cache is
+     * deactivated if it is missing or 0) and <code>ruleCacheFile</code> (the file
+     * where the cache is kept between runs; the components with the same file and
+     * the same resources share the same cache).
+     * 
+     * @param componentNameValueTable the section of the component
+     * 
+     * @throws ConfigurationException
+     */
+    protected void initializeRuleCache(NameValueTable componentNameValueTable) throws ConfigurationException {
+    	
+    	Integer ruleCacheSize = componentNameValueTable.getInteger(RULE_CACHE_SIZE);
+    	if (ruleCacheSize == null || ruleCacheSize == 0) {
+    		logger.info("Lexical rule cache deactivated.");
+    		return;
+    	}
+    	if (ruleCacheSize < 0)
+    		throw new ConfigurationException("Illegal value for " + RULE_CACHE_SIZE + ": " + ruleCacheSize);
+    	
+    	if (componentNameValueTable.getString(RULE_CACHE_FILE) != null) {
+    		ruleCacheFile = new File(componentNameValueTable.getString(RULE_CACHE_FILE));
+    		ruleCache = LexicalRuleCache.getShared(ruleCacheFile, ruleCacheSize, resourcesDescription);
+    	}
+    	else {
+    		ruleCache = new LexicalRuleCache(ruleCacheSize);
+    	}
+    	
+    	logger.info("Lexical rule cache activated.");
+    	
+    }
+    
+    
     protected void initializeStopWordList(String path) {
     	File sourceFile = new File(path);
     	try {
@@ -524,6 +640,17 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 			logger.warning(e.getMessage());
     	}
 		
+		if (ruleCache != null) {
+			logger.info("Lexical rule cache: " + ruleCache.toString());
+			if (ruleCacheFile != null) {
+				try {
+					ruleCache.save(ruleCacheFile, resourcesDescription);
+				} catch (IOException e) {
+					logger.warning("Lexical rule cache file not writable: " + e.getMessage());
+				}
+			}
+		}
+		
 		logger.info("done.");
 		
 	}
@@ -731,71 +858,49 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
         	
     	//System.err.println(this.toString());
     	
-    	// distanceTable is a table with sizeSource+1 rows and sizeTarget+1 columns
-    	double[][] distanceTable = new double[source.size() + 1][target.size() + 1];
-    	
-    	distanceTable[0][0] = 0;
-    	for (int i = 1; i <= source.size(); i++)
-    		distanceTable[i][0] = distanceTable[i-1][0] + getmDeleteWeight(source.get(i-1));
-    	for (int j = 1; j <= target.size(); j++)
-    		distanceTable[0][j] = distanceTable[0][j-1] + getmInsertWeight(target.get(j-1));
- 
-    	
+    	TokenSequences sequences;
+    	// distance is the the edit distance between source and target
+    	double distance;
     	try {
-    	
-    		for (int i = 1; i <= source.size(); i++)
-                for (int j = 1; j <= target.size(); j++) {
-
-                	distanceTable[i][j] = minimum(
-                			compare(getTokenBaseForm(source.get(i-1)),getTokenBaseForm(target.get(j-1))) || (
-                                       
-                					// it doesn't use the PoS to look for the relations in the lexical resource
-                					/* lexR != null && 
-                					source.get(i-1).getPos().getType().getName().equals(target.get(j-1).getPos().getType().getName()) && 
-                					getRulesFromResource(getTokenBaseForm(source.get(i-1)), null,
-                                   	getTokenBaseForm(target.get(j-1)), null))
-                					 */
-
-                                    // it uses the PoS to look for the relations in the lexical resource
-                					lexR != null && lexR.size() > 0 &&
-                						source.get(i-1).getPos().getType().getName().equals(target.get(j-1).getPos().getType().getName()) && 
-                						getRulesFromResource(getTokenBaseForm(source.get(i-1)), new ByCanonicalPartOfSpeech(source.get(i-1).getPos().getType().getShortName()),
-                								getTokenBaseForm(target.get(j-1)), new ByCanonicalPartOfSpeech(target.get(j-1).getPos().getType().getShortName())))
-        							
-        
-                                        ? distanceTable[i - 1][j - 1] + getmMatchWeight(source.get(i-1))
-                                    : distanceTable[i - 1][j - 1] + getmSubstituteWeight(source.get(i-1), target.get(j-1)),
-                                    distanceTable[i - 1][j] + getmDeleteWeight(source.get(i-1)),
-                                    distanceTable[i][j - 1] + getmInsertWeight(target.get(j-1)));
-                }
-
-    		
-    	
+    		sequences = new TokenSequences(source, target);
+    		distance = sequences.distance();
     	} catch(Exception e) {
     		e.printStackTrace();
     		throw new ArithmeticException(e.getMessage());
     	}
     	
-    	// distance is the the edit distance between source and target
-    	double distance = distanceTable[source.size()][target.size()];
-    	// norm is the distance equivalent to the cost of inserting the target token sequence and deleting
-    	// the entire source sequence. It is used to normalize distance values.
-
-    	double norm;
-    	if(LONG.equalsIgnoreCase(normalizationType)){
-    		norm = source.size() + target.size();
-    	}else {
-    		norm = distanceTable[source.size()][0] + distanceTable[0][target.size()];
-    	}
     	// the normalizedDistanceValue score has a range from 0 (when source is identical to target), to 1
     	// (when source is completely different form target).
-    	double normalizedDistanceValue = distance/norm;
+    	double normalizedDistanceValue = distance/sequences.norm();
     	
     	return new EditDistanceValue(normalizedDistanceValue, false, distance);
                 
      }
     
     
+    /**
+     * Returns the key used to compare the base forms of the tokens: two tokens match
+     * when the keys of their base forms are equal. When ignoreCase is set, the key is
+     * the base form with each character folded the same way as String.equalsIgnoreCase does.
+     * 
+     * @param tokenBaseForm the base form of a token
+     * 
+     * @return the key
+     */
+    protected String getComparisonKey(String tokenBaseForm) {
+    	
+    	if (!ignoreCase)
+    		return tokenBaseForm;
+    	
+    	char[] key = tokenBaseForm.toCharArray();
+    	for (int i = 0; i < key.length; i++)
+    		key[i] = Character.toLowerCase(Character.toUpperCase(key[i]));
+    	
+    	return new String(key);
+    	
+    }
+    
+    
 	protected boolean compare(String tokenBaseForm, String tokenBaseForm2) {
 		if(ignoreCase){
 			return tokenBaseForm.equalsIgnoreCase(tokenBaseForm2);
@@ -961,7 +1066,9 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
     
     /**
      * Return true if it exists a relation between leftLemma and rightLemma
-     * in the lexical resource.
+     * in the lexical resource. The answers are memorized in the cache of the
+     * lexical rules (if it is activated), so that the resources are asked only
+     * once for each pair of lemmas.
      * 
      * @param leftLemma
      * @param leftPos
@@ -972,23 +1079,25 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
      * 
      * @throws LexicalResourceException
      */
-    @SuppressWarnings("unchecked")
 	protected boolean getRulesFromResource(String leftLemma, PartOfSpeech leftPos, 
     		String rightLemma, PartOfSpeech rightPos) throws LexicalResourceException {
     	
     	//logger.info("leftLemma:" + leftLemma + " leftPos:" + leftPos + "\t" + "rightLemma:" + rightLemma + " " + "rightPos:" + rightPos);
     	
-    	List<LexicalRule<?>> rules = null;
-    	
 		try {
 			
-			for (int i = 0; i < lexR.size(); i++) {
-				rules = lexR.get(i).getRules(leftLemma, leftPos, rightLemma, rightPos);
-				if (rules != null && rules.size() > 0) {
-					return true;
-				}
+			if (ruleCache == null)
+				return hasRuleInResources(leftLemma, leftPos, rightLemma, rightPos);
+			
+			Boolean hasRule = ruleCache.get(leftLemma, leftPos, rightLemma, rightPos);
+			if (hasRule == null) {
+				//the answer is cached only if the resources did not fail
+				hasRule = hasRuleInResources(leftLemma, leftPos, rightLemma, rightPos);
+				ruleCache.put(leftLemma, leftPos, rightLemma, rightPos, hasRule);
 			}
 			
+			return hasRule;
+			
 		} catch (LexicalResourceException e) {
 		    logger.severe(e.getMessage());
 			//logger.severe("leftLemma:" + leftLemma + " leftPos:" + leftPos + "\t" + "rightLemma:" + rightLemma + " " + "rightPos:" + rightPos);
@@ -1003,6 +1112,178 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
     }
     
     
+    /**
+     * Return true if it exists a relation between leftLemma and rightLemma
+     * in the lexical resource, asking the resources directly.
+     * 
+     * @param leftLemma
+     * @param leftPos
+     * @param rightLemma
+     * @param rightPos
+     * 
+     * @return true if the rule exists; false otherwise
+     * 
+     * @throws LexicalResourceException
+     */
+    @SuppressWarnings("unchecked")
+	protected boolean hasRuleInResources(String leftLemma, PartOfSpeech leftPos, 
+    		String rightLemma, PartOfSpeech rightPos) throws LexicalResourceException {
+    	
+    	List<LexicalRule<?>> rules = null;
+    	
+		for (int i = 0; i < lexR.size(); i++) {
+			rules = lexR.get(i).getRules(leftLemma, leftPos, rightLemma, rightPos);
+			if (rules != null && rules.size() > 0) {
+				return true;
+			}
+		}
+		
+		return false;
+    }
+    
+    
+    /**
+     * The <code>TokenSequences</code> class holds what the edit distance needs to know
+     * about the tokens of a pair: the ids of their base forms, their weights and
+     * their parts of speech. They are computed once for each token instead of once
+     * for each cell of the table of the distances. The weights of the substitutions
+     * depend on both the tokens and are asked to getmSubstituteWeight for each cell.
+     */
+    protected class TokenSequences implements EditDistanceKernel.TokenMatcher, EditDistanceKernel.SubstitutionWeights {
+    	
+    	protected final List<Token> source;
+    	protected final List<Token> target;
+    	protected final Token[] sourceTokens;
+    	protected final Token[] targetTokens;
+    	protected final String[] sourceBaseForms;
+    	protected final String[] targetBaseForms;
+    	protected final int[] sourceIds;
+    	protected final int[] targetIds;
+    	protected final double[] matchWeights;
+    	protected final double[] deleteWeights;
+    	protected final double[] insertWeights;
+    	protected final boolean useResources;
+    	protected String[] sourcePosNames;
+    	protected String[] targetPosNames;
+    	protected PartOfSpeech[] sourcePos;
+    	protected PartOfSpeech[] targetPos;
+    	
+    	public TokenSequences(List<Token> source, List<Token> target) {
+    		
+    		this.source = source;
+    		this.target = target;
+    		this.sourceTokens = source.toArray(new Token[source.size()]);
+    		this.targetTokens = target.toArray(new Token[target.size()]);
+    		this.sourceBaseForms = new String[source.size()];
+    		this.targetBaseForms = new String[target.size()];
+    		this.sourceIds = new int[source.size()];
+    		this.targetIds = new int[target.size()];
+    		this.matchWeights = new double[source.size()];
+    		this.deleteWeights = new double[source.size()];
+    		this.insertWeights = new double[target.size()];
+    		this.useResources = lexR != null && lexR.size() > 0;
+    		
+    		Map<String,Integer> ids = new HashMap<String,Integer>();
+    		for (int i = 0; i < source.size(); i++) {
+    			Token token = source.get(i);
+    			sourceBaseForms[i] = getTokenBaseForm(token);
+    			sourceIds[i] = getId(ids, sourceBaseForms[i]);
+    			matchWeights[i] = getmMatchWeight(token);
+    			deleteWeights[i] = getmDeleteWeight(token);
+    		}
+    		for (int j = 0; j < target.size(); j++) {
+    			Token token = target.get(j);
+    			targetBaseForms[j] = getTokenBaseForm(token);
+    			targetIds[j] = getId(ids, targetBaseForms[j]);
+    			insertWeights[j] = getmInsertWeight(token);
+    		}
+    		
+    		if (useResources) {
+    			this.sourcePosNames = new String[source.size()];
+    			this.targetPosNames = new String[target.size()];
+    			this.sourcePos = new PartOfSpeech[source.size()];
+    			this.targetPos = new PartOfSpeech[target.size()];
+    		}
+    		
+    	}
+    	
+    	/**
+    	 * Returns the edit distance between the sequences
+    	 */
+    	public double distance() {
+    		
+    		return EditDistanceKernel.distance(sourceIds, targetIds, matchWeights, deleteWeights, insertWeights,
+    				this, useResources ? this : null);
+    		
+    	}
+    	
+    	/**
+    	 * Returns the distance equivalent to the cost of inserting the target token sequence and deleting
+    	 * the entire source sequence. It is used to normalize distance values.
+    	 */
+    	public double norm() {
+    		
+    		if (LONG.equalsIgnoreCase(normalizationType))
+    			return source.size() + target.size();
+    		
+    		double deletions = 0;
+    		for (double weight : deleteWeights)
+    			deletions = deletions + weight;
+    		double insertions = 0;
+    		for (double weight : insertWeights)
+    			insertions = insertions + weight;
+    		
+    		return deletions + insertions;
+    		
+    	}
+    	
+    	@Override
+    	public double substituteWeight(int i, int j) {
+    		
+    		return getmSubstituteWeight(sourceTokens[i], targetTokens[j]);
+    		
+    	}
+    	
+    	@Override
+    	public boolean matches(int i, int j) {
+    		
+    		// it uses the PoS to look for the relations in the lexical resource
+    		if (sourcePosNames[i] == null)
+    			sourcePosNames[i] = source.get(i).getPos().getType().getName();
+    		if (targetPosNames[j] == null)
+    			targetPosNames[j] = target.get(j).getPos().getType().getName();
+    		if (!sourcePosNames[i].equals(targetPosNames[j]))
+    			return false;
+    		
+    		if (sourcePos[i] == null)
+    			sourcePos[i] = new ByCanonicalPartOfSpeech(source.get(i).getPos().getType().getShortName());
+    		if (targetPos[j] == null)
+    			targetPos[j] = new ByCanonicalPartOfSpeech(target.get(j).getPos().getType().getShortName());
+    		
+    		try {
+    			return getRulesFromResource(sourceBaseForms[i], sourcePos[i], targetBaseForms[j], targetPos[j]);
+    		} catch (LexicalResourceException e) {
+    			throw new ArithmeticException(e.getMessage());
+    		}
+    		
+    	}
+    	
+    	private int getId(Map<String,Integer> ids, String baseForm) {
+    		
+    		String key = getComparisonKey(baseForm);
+    		Integer id = ids.get(key);
+    		if (id == null) {
+    			id = ids.size();
+    			ids.put(key, id);
+    		}
+    		
+    		return id;
+    		
+    	}
+    	
+    }
+    
+    
     /**
      * The <code>EditDistanceValue</code> class extends the DistanceValue
      * to hold the distance calculation result. 
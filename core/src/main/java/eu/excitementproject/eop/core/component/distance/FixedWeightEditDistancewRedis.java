@@ -1,13 +1,12 @@
 
 package eu.excitementproject.eop.core.component.distance;
 
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
-import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
 import eu.excitementproject.eop.common.configuration.CommonConfig;
 import eu.excitementproject.eop.common.exception.ComponentException;
 import eu.excitementproject.eop.common.exception.ConfigurationException;
@@ -43,7 +42,11 @@ import eu.excitementproject.eop.distsim.resource.SimilarityStorageBasedLexicalRe
 public abstract class FixedWeightEditDistancewRedis extends FixedWeightEditDistance {
 
 	
-	public static int ruleCounter = 0;
+	/**
+	 * the number of rules found in the resources, by all the instances of the component (which
+	 * may be used by several threads at the same time)
+	 */
+	public static final AtomicInteger ruleCounter = new AtomicInteger(0);
 	
     static Logger logger = Logger.getLogger(FixedWeightEditDistancewRedis.class.getName());
     
@@ -170,7 +173,8 @@ public abstract class FixedWeightEditDistancewRedis extends FixedWeightEditDista
     
     /**
      * Return true if it exists a relation between leftLemma and rightLemma
-     * in the lexical resource.
+     * in the lexical resource, counting the rules found (also the ones
+     * found in the cache of the rules).
      * 
      * @param leftLemma
      * @param leftPos
@@ -182,35 +186,15 @@ public abstract class FixedWeightEditDistancewRedis extends FixedWeightEditDista
      * @throws LexicalResourceException
      */
     @Override
-    @SuppressWarnings("unchecked")
 	protected boolean getRulesFromResource(String leftLemma, PartOfSpeech leftPos, 
     		String rightLemma, PartOfSpeech rightPos) throws LexicalResourceException {
     	
-    	//logger.info("leftLemma:" + leftLemma + " leftPos:" + leftPos + "\t" + "rightLemma:" + rightLemma + " " + "rightPos:" + rightPos);
-    	
-    	List<LexicalRule<?>> rules = null;
+    	boolean hasRule = super.getRulesFromResource(leftLemma, leftPos, rightLemma, rightPos);
     	
-		try {
-			
-			for (int i = 0; i < lexR.size(); i++) {
-				rules = lexR.get(i).getRules(leftLemma, leftPos, rightLemma, rightPos);
-				if (rules != null && rules.size() > 0) {
-					ruleCounter++;
-					return true;
-				}
-			}
-			
-		} catch (LexicalResourceException e) {
-		    logger.severe(e.getMessage());
-			//logger.severe("leftLemma:" + leftLemma + " leftPos:" + leftPos + "\t" + "rightLemma:" + rightLemma + " " + "rightPos:" + rightPos);
-			//throw new LexicalResourceException(e.getMessage());
-    	} catch (Exception e) {
-    		logger.severe(e.getMessage());
-    		//logger.severe("leftLemma:" + leftLemma + " leftPos:" + leftPos + "\t" + "rightLemma:" + rightLemma + " " + "rightPos:" + rightPos);
-    		//throw new LexicalResourceException(e.getMessage());
-    	}
+    	if (hasRule)
+    		ruleCounter.incrementAndGet();
 		
-		return false;
+		return hasRule;
     }
     
 }
@@ -0,0 +1,435 @@
+package eu.excitementproject.eop.core.component.distance;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+
+
+/**
+ * The <code>LexicalRuleCache</code> class memorizes whether the lexical resources of an
+ * edit distance component contain a rule between two lemmas, so that the (slow) resources
+ * are asked only once for each pair of lemmas.
+ *
+ * The keys are normalized: the lemmas are used as they are, while the parts of speech are
+ * represented by their canonical tags, which are the ones the resources consider.
+ *
+ * The cache is bounded: it is split into segments, each of them holding at most
+ * capacity/segments entries and dropping the least recently used entry when it is full.
+ * Each segment has its own lock, so that several threads can use the cache at the same time.
+ *
+ * The cache can be saved into a file and loaded from it, so that it can be kept warm between
+ * runs. The file also contains a description of the resources the answers come from (the
+ * language, the instances and their parameters) and it is not loaded if the resources are
+ * different. The file is written into a temporary file which then replaces it, so that it is
+ * never left half written; the components which keep the cache in the same file share the
+ * same cache (see {@link #getShared(File, int, String)}).
+ *
+ */
+public class LexicalRuleCache {
+
+	/**
+	 * the number of segments
+	 */
+	protected static final int SEGMENTS = 16;
+
+	/**
+	 * the version of the format of the file of the cache
+	 */
+	protected static final int FILE_FORMAT_VERSION = 1;
+
+	/**
+	 * the separator of the fields of a key
+	 */
+	protected static final char KEY_SEPARATOR = '\t';
+
+	/**
+	 * the segments of the cache
+	 */
+	protected final List<Segment> segments;
+
+	/**
+	 * the number of lookups that found their answer in the cache
+	 */
+	protected final AtomicLong hits = new AtomicLong(0);
+
+	/**
+	 * the number of lookups that did not find their answer in the cache
+	 */
+	protected final AtomicLong misses = new AtomicLong(0);
+
+	/**
+	 * the caches shared by the components, by the canonical path of their file
+	 */
+	private static final Map<String,LexicalRuleCache> sharedCaches = new HashMap<String,LexicalRuleCache>();
+
+	/**
+	 * the description of the resources of a shared cache; null if the cache is not shared
+	 */
+	private String sharedResourcesDescription;
+
+	static Logger logger = Logger.getLogger(LexicalRuleCache.class.getName());
+
+
+	/**
+	 * Returns the cache kept in the specified file, loading it the first time it is asked.
+	 * All the components asking for the same file and the same resources get the same cache;
+	 * a component asking for the same file but different resources gets a cache of its own.
+	 *
+	 * @param file the file of the cache
+	 * @param capacity the maximum number of entries of the cache, if it has to be created
+	 * @param resourcesDescription the description of the resources the answers come from
+	 *
+	 * @return the cache
+	 */
+	public static LexicalRuleCache getShared(File file, int capacity, String resourcesDescription) {
+
+		String description = (resourcesDescription == null) ? "" : resourcesDescription;
+
+		String path;
+		try {
+			path = file.getCanonicalPath();
+		} catch (IOException e) {
+			path = file.getAbsolutePath();
+		}
+
+		synchronized (sharedCaches) {
+
+			LexicalRuleCache cache = sharedCaches.get(path);
+			if (cache != null) {
+				if (cache.sharedResourcesDescription.equals(description))
+					return cache;
+				logger.warning("The lexical rule cache " + path + " is used for different resources; it is not shared.");
+				return new LexicalRuleCache(capacity);
+			}
+
+			cache = new LexicalRuleCache(capacity);
+			cache.sharedResourcesDescription = description;
+			if (file.exists()) {
+				try {
+					cache.load(file, description);
+				} catch (IOException e) {
+					logger.warning("Lexical rule cache file not readable: " + e.getMessage());
+				}
+			}
+			sharedCaches.put(path, cache);
+
+			return cache;
+
+		}
+
+	}
+
+
+	/**
+	 * Construct a cache
+	 *
+	 * @param capacity the maximum number of entries of the cache
+	 */
+	public LexicalRuleCache(int capacity) {
+
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity of the cache has to be positive: " + capacity);
+
+		int segmentCapacity = Math.max(1, capacity / SEGMENTS);
+		this.segments = new ArrayList<Segment>(SEGMENTS);
+		for (int i = 0; i < SEGMENTS; i++)
+			this.segments.add(new Segment(segmentCapacity));
+
+	}
+
+
+	/**
+	 * Returns whether the resources contain a rule between the specified lemmas, if this
+	 * is known by the cache.
+	 *
+	 * @param leftLemma
+	 * @param leftPos
+	 * @param rightLemma
+	 * @param rightPos
+	 *
+	 * @return true or false if the answer is in the cache; null otherwise
+	 */
+	public Boolean get(String leftLemma, PartOfSpeech leftPos, String rightLemma, PartOfSpeech rightPos) {
+
+		String key = key(leftLemma, leftPos, rightLemma, rightPos);
+		Segment segment = segmentFor(key);
+
+		Boolean hasRule;
+		synchronized (segment) {
+			hasRule = segment.get(key);
+		}
+
+		if (hasRule == null)
+			misses.incrementAndGet();
+		else
+			hits.incrementAndGet();
+
+		return hasRule;
+
+	}
+
+
+	/**
+	 * Puts into the cache whether the resources contain a rule between the specified lemmas
+	 *
+	 * @param leftLemma
+	 * @param leftPos
+	 * @param rightLemma
+	 * @param rightPos
+	 * @param hasRule true if the resources contain the rule
+	 */
+	public void put(String leftLemma, PartOfSpeech leftPos, String rightLemma, PartOfSpeech rightPos, boolean hasRule) {
+
+		put(key(leftLemma, leftPos, rightLemma, rightPos), hasRule);
+
+	}
+
+
+	/**
+	 * Returns the number of entries in the cache
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+
+		return size;
+
+	}
+
+
+	/**
+	 * Returns the number of lookups that found their answer in the cache
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+
+		return hits.get();
+
+	}
+
+
+	/**
+	 * Returns the number of lookups that did not find their answer in the cache
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+
+		return misses.get();
+
+	}
+
+
+	/**
+	 * Returns the ratio of the lookups that found their answer in the cache
+	 *
+	 * @return the hit rate; 0 if there has been no lookup
+	 */
+	public double getHitRate() {
+
+		long hits = getHits();
+		long lookups = hits + getMisses();
+
+		return (lookups == 0) ? 0.0 : ((double)hits) / lookups;
+
+	}
+
+
+	/**
+	 * Saves the cache into the specified file. The cache is written into a temporary file
+	 * in the same directory, which then replaces the specified file.
+	 *
+	 * @param file the file
+	 * @param resourcesDescription the description of the resources the answers come from
+	 *
+	 * @throws IOException
+	 */
+	public void save(File file, String resourcesDescription) throws IOException {
+
+		logger.info("Saving the lexical rule cache into " + file.getAbsolutePath() + " ...");
+
+		File directory = file.getAbsoluteFile().getParentFile();
+		File tmpFile = File.createTempFile(file.getName(), ".tmp", directory);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+
+		try {
+
+			out.writeInt(FILE_FORMAT_VERSION);
+			out.writeUTF(resourcesDescription == null ? "" : resourcesDescription);
+
+			for (Segment segment : segments) {
+				Map<String,Boolean> entries;
+				synchronized (segment) {
+					entries = new LinkedHashMap<String,Boolean>(segment);
+				}
+				for (Map.Entry<String,Boolean> entry : entries.entrySet()) {
+					out.writeUTF(entry.getKey());
+					out.writeBoolean(entry.getValue());
+				}
+			}
+
+			out.close();
+
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		} finally {
+			out.close();
+			tmpFile.delete();
+		}
+
+		logger.info("done.");
+
+	}
+
+
+	/**
+	 * Loads the entries saved into the specified file. The file is ignored if it was
+	 * saved for different resources.
+	 *
+	 * @param file the file
+	 * @param resourcesDescription the description of the resources the answers come from
+	 *
+	 * @return true if the file has been loaded
+	 *
+	 * @throws IOException
+	 */
+	public boolean load(File file, String resourcesDescription) throws IOException {
+
+		logger.info("Loading the lexical rule cache from " + file.getAbsolutePath() + " ...");
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+		int loaded = 0;
+
+		try {
+
+			int version = in.readInt();
+			String savedResourcesDescription = in.readUTF();
+			if (version != FILE_FORMAT_VERSION ||
+					!savedResourcesDescription.equals(resourcesDescription == null ? "" : resourcesDescription)) {
+				logger.info("The lexical rule cache has been saved for different resources; it is ignored.");
+				return false;
+			}
+
+			while (true) {
+				String key;
+				try {
+					key = in.readUTF();
+				} catch (EOFException e) {
+					break;
+				}
+				put(key, in.readBoolean());
+				loaded++;
+			}
+
+		} finally {
+			in.close();
+		}
+
+		logger.info("done (" + loaded + " entries).");
+
+		return true;
+
+	}
+
+
+	/**
+	 * Returns a string based representation of the statistics of the cache.
+	 */
+	public String toString() {
+
+		return "size:" + size() + " hits:" + getHits() + " misses:" + getMisses() +
+				" hit rate:" + String.format("%.3f", getHitRate());
+
+	}
+
+
+	protected void put(String key, boolean hasRule) {
+
+		Segment segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, hasRule);
+		}
+
+	}
+
+
+	protected Segment segmentFor(String key) {
+
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+
+		return segments.get((hash & Integer.MAX_VALUE) % segments.size());
+
+	}
+
+
+	/**
+	 * Returns the normalized key of the specified lemmas
+	 */
+	protected static String key(String leftLemma, PartOfSpeech leftPos, String rightLemma, PartOfSpeech rightPos) {
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(leftLemma).append(KEY_SEPARATOR);
+		sb.append(leftPos == null ? "" : leftPos.getCanonicalPosTag().name()).append(KEY_SEPARATOR);
+		sb.append(rightLemma).append(KEY_SEPARATOR);
+		sb.append(rightPos == null ? "" : rightPos.getCanonicalPosTag().name());
+
+		return sb.toString();
+
+	}
+
+
+	/**
+	 * A segment of the cache: a map with a maximum size which drops its least recently
+	 * used entry when it is full. It is not thread safe.
+	 */
+	protected static class Segment extends LinkedHashMap<String,Boolean> {
+
+		private static final long serialVersionUID = -2577364914556329561L;
+
+		private final int capacity;
+
+		Segment(int capacity) {
+
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String,Boolean> eldest) {
+
+			return size() > capacity;
+
+		}
+
+	}
+
+}
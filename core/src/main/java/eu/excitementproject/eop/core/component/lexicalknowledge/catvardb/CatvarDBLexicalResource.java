@@ -10,11 +10,18 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import eu.excitementproject.eop.core.component.lexicalknowledge.EmptyRuleInfo;
 import eu.excitementproject.eop.core.component.lexicalknowledge.LexicalResourceNothingToClose;
+import eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPosQuery;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
@@ -37,6 +44,8 @@ import eu.excitementproject.eop.common.utilities.configuration.ConfigurationPara
  * <li>{@code term} containing rows like {@code <term_id, lemma, pos>} (pos is one of {'a','n','r','v'} representing the part-of-speech).<br>
  * Notice how this means the resource in essence is undirected.
  * <br>The user may alter these and other db parameters in the constructor. 
+ * <p>
+ * The bulk methods of {@link BulkLexicalResource} retrieve the clusters of many {@code <lemma, pos>}s by one query (per {@value #MAX_QUERIES_PER_STATEMENT} {@code <lemma, pos>}s).
  * 
  * 
  * 
@@ -45,10 +54,14 @@ import eu.excitementproject.eop.common.utilities.configuration.ConfigurationPara
  * 
  */
 @Deprecated 
-public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleInfo> 
+public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleInfo> implements BulkLexicalResource<RuleInfo> 
 {
 	private static final String RESOURCE_NAME = "Catvar";
 	private static final String PARAM_DB_CONNECTION_STRING = "db-connection-string"; 
+	/**
+	 * max number of {@code <lemma, pos>}s retrieved by one bulk query
+	 */
+	private static final int MAX_QUERIES_PER_STATEMENT = 100;
 	
 	/**
 	 * retrieve the cluster of the given lemma+pos
@@ -60,13 +73,23 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 			"WHERE term.term_id = ct.term_id and " +
 			"lemma = ?";
 
-	private static final String CLUSTERS_TERMS_QUERY_BEGIN = "select lemma, term.pos, termClusters.pos FROM term, cluster_term ct, (";
+	private static final String CLUSTERS_TERMS_COLUMNS = "lemma, term.pos, termClusters.pos";
+	private static final String CLUSTERS_TERMS_QUERY_FROM = " FROM term, cluster_term ct, (";
+	private static final String CLUSTERS_TERMS_QUERY_BEGIN = "select " + CLUSTERS_TERMS_COLUMNS + CLUSTERS_TERMS_QUERY_FROM;
 	private static final String CLUSTERS_TERMS_QUERY_END = ") termClusters WHERE ct.cluster_id = termClusters.cluster_id AND term.term_id = ct.term_id"; 	
+	/**
+	 * order the <lemma,pos> tuples of a cluster by {@link #CLUSTERS_TERMS_COLUMNS}, so the single and the bulk queries return the rules in the same order
+	 */
+	private static final String CLUSTERS_TERMS_QUERY_ORDER = " ORDER BY 1, 2, 3";
+	/**
+	 * order the bulk query by the query index, and then like {@link #CLUSTERS_TERMS_QUERY_ORDER}
+	 */
+	private static final String BULK_TERMS_QUERY_ORDER = " ORDER BY 1, 2, 3, 4";
 	/**
 	 * retrieve all the <lemma,pos> tuples that are in the cluster of the given lemma+pos 
 	 */
-	private static final  String CLUSTERS_TERMS_QUERY_STR = CLUSTERS_TERMS_QUERY_BEGIN + CLUSTERS_ID_QUERY_STR + CLUSTERS_TERMS_QUERY_END;
-	private static final  String CLUSTERS_TERMS_QUERY_STR_NO_POS = CLUSTERS_TERMS_QUERY_BEGIN + CLUSTERS_ID_QUERY_STR_NO_POS + CLUSTERS_TERMS_QUERY_END;
+	private static final  String CLUSTERS_TERMS_QUERY_STR = CLUSTERS_TERMS_QUERY_BEGIN + CLUSTERS_ID_QUERY_STR + CLUSTERS_TERMS_QUERY_END + CLUSTERS_TERMS_QUERY_ORDER;
+	private static final  String CLUSTERS_TERMS_QUERY_STR_NO_POS = CLUSTERS_TERMS_QUERY_BEGIN + CLUSTERS_ID_QUERY_STR_NO_POS + CLUSTERS_TERMS_QUERY_END + CLUSTERS_TERMS_QUERY_ORDER;
 
 	private static final String X_CLUSTERS_QUERY_BEGIN = "SELECT leftTermClusters.cluster_id, leftTermClusters.pos, rightTermClusters.pos FROM (";
 	private static final String X_CLUSTERS_QUERY_MIDDLE = ") leftTermClusters, (";
@@ -83,6 +106,11 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 	private final PreparedStatement common_terms_stmt;
 	private final PreparedStatement common_terms_stmt_no_pos;
 	
+	/**
+	 * for the bulk queries, which are constructed on demand
+	 */
+	private final Connection con;
+	
 	protected static final RuleInfo EMPTY_RULE_INFO = EmptyRuleInfo.getInstance();
 
 	/**
@@ -115,7 +143,7 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 	{
 		try
 		{
-			Connection con = DriverManager.getConnection(dbConnectionString, dbUser, dbPassword);
+			con = DriverManager.getConnection(dbConnectionString, dbUser, dbPassword);
 			common_terms_stmt = con.prepareStatement(CLUSTERS_TERMS_QUERY_STR);
 			common_terms_stmt_no_pos = con.prepareStatement(CLUSTERS_TERMS_QUERY_STR_NO_POS);
 			common_clusters_stmt = con.prepareStatement(constructXClustersQueryString(CLUSTERS_ID_QUERY_STR,CLUSTERS_ID_QUERY_STR));
@@ -141,6 +169,20 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 		return getRules(lemma, pos, false);
 	}
 
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource#getRulesForRight(java.util.Collection)
+	 */
+	public Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> getRulesForRight(Collection<LemmaPosQuery> queries) throws LexicalResourceException {
+		return getRules(queries, true);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource#getRulesForLeft(java.util.Collection)
+	 */
+	public Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> getRulesForLeft(Collection<LemmaPosQuery> queries) throws LexicalResourceException {
+		return getRules(queries, false);
+	}
+
 	/* (non-Javadoc)
 	 * @see ac.biu.cs.nlp.lexical.resource.LexResource#getRules(java.lang.String, ac.biu.nlp.nlp.representation.PartOfSpeech, java.lang.String, ac.biu.nlp.nlp.representation.PartOfSpeech)
 	 */
@@ -242,26 +284,93 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 				// create a rule for each result
 				if(rs.first()){
 					do {
-						String otherLemma = rs.getString(1);	
-						PartOfSpeech otherPos = toPartOfSpeech(rs.getString(2));
-						PartOfSpeech posFromQuery = toPartOfSpeech(rs.getString(3)); // it's possible that pos is null, so we take the POS from the result
-
-						if (!lemma.equals(otherLemma) || !posFromQuery.equals(otherPos))	// don't create a reflexive rule
-						{
-							rules.add( isRHS ? 	
-								new LexicalRule<RuleInfo>(otherLemma, otherPos, lemma, posFromQuery, null, RESOURCE_NAME, EMPTY_RULE_INFO) 
-									:
-								new LexicalRule<RuleInfo>(lemma, posFromQuery, otherLemma, otherPos, null, RESOURCE_NAME, EMPTY_RULE_INFO) 
-							);
-						}
+						LexicalRule<RuleInfo> rule = newRule(lemma, rs.getString(1), rs.getString(2), rs.getString(3), isRHS);
+						if (rule != null)
+							rules.add(rule);
 					} while (rs.next());
 				}
-				rs.close();
 			}
 			catch (SQLException e) 	{	throw new LexicalResourceException("Error reading the result set of the query " + common_terms_stmt,e);	}
+			finally
+			{
+				// the prepared statement is reused
+				close(rs, null);
+			}
 		}
 		return rules;
 	}
+
+	/**
+	 * The bulk version of {@link #getRules(String, PartOfSpeech, boolean)}. Each query is a UNION ALL of the single {@code <lemma, pos>} queries, 
+	 * tagged with the indices of their {@code <lemma, pos>}s.
+	 * 
+	 * @param queries
+	 * @param isRHS
+	 * @return
+	 * @throws LexicalResourceException
+	 */
+	private Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> getRules(Collection<LemmaPosQuery> queries, boolean isRHS) throws LexicalResourceException 
+	{
+		List<LemmaPosQuery> distinctQueries = new ArrayList<LemmaPosQuery>(new LinkedHashSet<LemmaPosQuery>(queries));
+		Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> ret = new LinkedHashMap<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>>();
+		for (LemmaPosQuery query : distinctQueries)
+			ret.put(query, new Vector<LexicalRule<? extends RuleInfo>>());
+		
+		for (int from = 0; from < distinctQueries.size(); from += MAX_QUERIES_PER_STATEMENT)
+		{
+			List<LemmaPosQuery> subQueries = distinctQueries.subList(from, Math.min(from + MAX_QUERIES_PER_STATEMENT, distinctQueries.size()));
+			String queryStr = constructBulkTermsQueryString(subQueries);
+			PreparedStatement stmt = null;
+			ResultSet rs = null;
+			try 					
+			{
+				stmt = con.prepareStatement(queryStr);
+				int paramIndex = 1;
+				for (LemmaPosQuery query : subQueries)
+				{
+					stmt.setString(paramIndex++, query.getLemma());
+					String shortPos = toShortPos(query.getPos());
+					if (shortPos != null)
+						stmt.setString(paramIndex++, shortPos);
+				}
+				rs = stmt.executeQuery();
+				while (rs.next())
+				{
+					LemmaPosQuery query = subQueries.get(rs.getInt(1));
+					LexicalRule<RuleInfo> rule = newRule(query.getLemma(), rs.getString(2), rs.getString(3), rs.getString(4), isRHS);
+					if (rule != null)
+						ret.get(query).add(rule);
+				}
+			}
+			catch (SQLException e) 	{	throw new LexicalResourceException("Error executing the query " + queryStr, e);	}
+			finally
+			{
+				close(rs, stmt);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @param lemma
+	 * @param otherLemma
+	 * @param otherShortPos
+	 * @param shortPosFromQuery it's possible that the queried pos is null, so we take the POS from the result
+	 * @param isRHS
+	 * @return a new rule, or null if the rule is reflexive
+	 * @throws LexicalResourceException
+	 */
+	private LexicalRule<RuleInfo> newRule(String lemma, String otherLemma, String otherShortPos, String shortPosFromQuery, boolean isRHS) throws LexicalResourceException
+	{
+		PartOfSpeech otherPos = toPartOfSpeech(otherShortPos);
+		PartOfSpeech posFromQuery = toPartOfSpeech(shortPosFromQuery);
+		if (lemma.equals(otherLemma) && posFromQuery.equals(otherPos))	// don't create a reflexive rule
+			return null;
+		return isRHS ? 	
+			new LexicalRule<RuleInfo>(otherLemma, otherPos, lemma, posFromQuery, null, RESOURCE_NAME, EMPTY_RULE_INFO) 
+				:
+			new LexicalRule<RuleInfo>(lemma, posFromQuery, otherLemma, otherPos, null, RESOURCE_NAME, EMPTY_RULE_INFO); 
+	}
 		
 	/**
 	 * @param lemma
@@ -397,5 +506,45 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 	private String constructXClustersQueryString(String leftClustersIdQueryStr,	String rightClustersIdQueryStr) {
 		return X_CLUSTERS_QUERY_BEGIN + leftClustersIdQueryStr + X_CLUSTERS_QUERY_MIDDLE + rightClustersIdQueryStr + X_CLUSTERS_QUERY_END;
 	}
+
+	/**
+	 * @param queries
+	 * @return a UNION ALL of {@link #CLUSTERS_TERMS_QUERY_STR} and {@link #CLUSTERS_TERMS_QUERY_STR_NO_POS} queries, one for each of the given queries, 
+	 * with the (zero based) index of the query as the first column, ordered by the query index and then like the single queries
+	 */
+	private String constructBulkTermsQueryString(List<LemmaPosQuery> queries) {
+		StringBuilder queryStr = new StringBuilder();
+		for (int i = 0; i < queries.size(); i++)
+		{
+			if (i > 0)
+				queryStr.append(" UNION ALL ");
+			queryStr.append("(SELECT " + i + " AS query_index, " + CLUSTERS_TERMS_COLUMNS + CLUSTERS_TERMS_QUERY_FROM + 
+					(toShortPos(queries.get(i).getPos()) == null ? CLUSTERS_ID_QUERY_STR_NO_POS : CLUSTERS_ID_QUERY_STR) + CLUSTERS_TERMS_QUERY_END + ")");
+		}
+		queryStr.append(BULK_TERMS_QUERY_ORDER);
+		return queryStr.toString();
+	}
+	
+	/**
+	 * Close the given result set and statement, without hiding the exception of the query, if any
+	 * 
+	 * @param rs may be null
+	 * @param stmt may be null
+	 */
+	private static void close(ResultSet rs, PreparedStatement stmt)
+	{
+		try
+		{
+			if (rs != null)
+				rs.close();
+		}
+		catch (SQLException e) {}
+		try
+		{
+			if (stmt != null)
+				stmt.close();
+		}
+		catch (SQLException e) {}
+	}
 }
 
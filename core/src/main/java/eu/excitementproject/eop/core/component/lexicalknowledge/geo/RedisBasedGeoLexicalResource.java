@@ -2,10 +2,15 @@ package eu.excitementproject.eop.core.component.lexicalknowledge.geo;
 import java.io.FileNotFoundException;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import eu.excitementproject.eop.core.component.lexicalknowledge.EmptyRuleInfo;
 import eu.excitementproject.eop.core.component.lexicalknowledge.LexicalResourceNothingToClose;
+import eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPosQuery;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceCloseException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
@@ -25,12 +30,13 @@ import eu.excitementproject.eop.redis.RedisRunException;
  * A {@link LexicalResource} to wrap the Geo resource's Redis files. 
  *
  * The part of speech on GEO is always NOUN, and thus the POS parameters are ignored.
+ * The bulk methods of {@link BulkLexicalResource} look up all the lemmas by one pipelined Redis round trip.
  *   
  * @author Meni Adler
  *
  * @since 26 March 2014
  */
-public class RedisBasedGeoLexicalResource extends LexicalResourceNothingToClose<EmptyRuleInfo> {
+public class RedisBasedGeoLexicalResource extends LexicalResourceNothingToClose<EmptyRuleInfo> implements BulkLexicalResource<EmptyRuleInfo> {
 
 	private static final String GEO_RESOURCE_NAME = "GEO";
 	private static final EmptyRuleInfo EMPTY_INFO = EmptyRuleInfo.getInstance();	
@@ -125,6 +131,52 @@ public class RedisBasedGeoLexicalResource extends LexicalResourceNothingToClose<
 			}			
 	}
 
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource#getRulesForLeft(java.util.Collection)
+	 */
+	@Override
+	public Map<LemmaPosQuery, List<LexicalRule<? extends EmptyRuleInfo>>> getRulesForLeft(Collection<LemmaPosQuery> queries) throws LexicalResourceException {
+		return getRules(queries,leftRules);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource#getRulesForRight(java.util.Collection)
+	 */
+	@Override
+	public Map<LemmaPosQuery, List<LexicalRule<? extends EmptyRuleInfo>>> getRulesForRight(Collection<LemmaPosQuery> queries) throws LexicalResourceException {
+		return getRules(queries,rightRules);
+	}
+
+	public Map<LemmaPosQuery, List<LexicalRule<? extends EmptyRuleInfo>>> getRules(Collection<LemmaPosQuery> queries, RedisBasedStringListBasicMap rules) throws LexicalResourceException {
+		
+		Map<LemmaPosQuery, List<LexicalRule<? extends EmptyRuleInfo>>> ret = new LinkedHashMap<LemmaPosQuery, List<LexicalRule<? extends EmptyRuleInfo>>>();
+		List<LemmaPosQuery> nounQueries = new ArrayList<LemmaPosQuery>();
+		List<String> lemmas = new ArrayList<String>();
+		for (LemmaPosQuery query : queries) {
+			if (ret.containsKey(query))
+				continue;
+			ret.put(query, new ArrayList<LexicalRule<? extends EmptyRuleInfo>>());
+			//If it's not a noun, we ignore it...		
+			if ((query.getPos() == null) || (query.getPos().getCanonicalPosTag().equals(CanonicalPosTag.N))) {
+				nounQueries.add(query);
+				lemmas.add(query.getLemma());
+			}
+		}
+		
+		//get all rules, by one round trip
+		try {
+			List<List<String>> lemmasRules = rules.get(lemmas);
+			for (int i = 0; i < nounQueries.size(); i++) {
+				List<LexicalRule<? extends EmptyRuleInfo>> queryRules = ret.get(nounQueries.get(i));
+				for (String lemma2 : lemmasRules.get(i))
+					queryRules.add(new LexicalRule<EmptyRuleInfo>(lemmas.get(i), NOUN, lemma2, NOUN, null, GEO_RESOURCE_NAME, EMPTY_INFO));
+			}
+			return ret;
+		} catch (Exception e) {
+			throw new LexicalResourceException("Exception while trying to get rules",e);
+		}			
+	}
+
 	/* (non-Javadoc)
 	 * @see ac.biu.nlp.nlp.lexical_resource.LexicalResource#getRules(java.lang.String, ac.biu.nlp.nlp.representation.PartOfSpeech, java.lang.String, ac.biu.nlp.nlp.representation.PartOfSpeech)
 	 */
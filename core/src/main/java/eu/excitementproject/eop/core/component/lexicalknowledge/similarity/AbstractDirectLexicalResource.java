@@ -118,11 +118,11 @@ public abstract class AbstractDirectLexicalResource extends AbstractSimilarityLe
 			throw new LexicalResourceException("Could not instantiate the JDBC driver: " + JDBC_DRIVER_CLASS + " " + e.toString());
 		}
 		
-		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_noun, NOUN );
-		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_verb, VERB );
+		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_noun, NOUN, getNounTableName() );
+		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_verb, VERB, getVerbTableName() );
 		
-		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_noun, NOUN );
-		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_verb, VERB );
+		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_noun, NOUN, getNounTableName() );
+		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_verb, VERB, getVerbTableName() );
 
 		final PreparedStatementAndPos GET_SCORES_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getScoresStmt_noun, NOUN );
 		final PreparedStatementAndPos GET_SCORES_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getScoresStmt_verb, VERB );
@@ -3,12 +3,21 @@ package eu.excitementproject.eop.core.component.lexicalknowledge.similarity;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
 
 import eu.excitementproject.eop.core.component.lexicalknowledge.EmptyRuleInfo;
 import eu.excitementproject.eop.core.component.lexicalknowledge.LexicalResourceNothingToClose;
+import eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPosQuery;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
@@ -29,6 +38,9 @@ import eu.excitementproject.eop.common.utilities.configuration.ConfigurationPara
  * Also note that all digits in queried lemma will be replaced with '@', and the lemmas in all retrieved rules will have '@'s where you'd 
  * expect digits.
  * <p>
+ * The bulk methods of {@link BulkLexicalResource} look up all the lemmas that share a table by one SQL query (per {@value #MAX_LEMMAS_PER_QUERY} lemmas), 
+ * provided the {@link PreparedStatementAndPos}s returned by {@link #posToRulesStmts(PartOfSpeech, boolean)} carry their table names.
+ * <p>
  *  The int Ctor parameter <code>limitOnRetrievedRules</code> must be non negative. zero means all rules matching the query will be retrieved. 
  * A positive value X means that only the top X rules are retrieved.
  * <P>
@@ -38,7 +50,7 @@ import eu.excitementproject.eop.common.utilities.configuration.ConfigurationPara
  * @since 16/05/2011
  * 
  */
-public abstract class AbstractSimilarityLexicalResource extends LexicalResourceNothingToClose<RuleInfo>
+public abstract class AbstractSimilarityLexicalResource extends LexicalResourceNothingToClose<RuleInfo> implements BulkLexicalResource<RuleInfo>
 {
 	protected static final String DIGIT_REPLACEMENT = "@";
 	protected static final RuleInfo EMPTY_RULE_INFO = EmptyRuleInfo.getInstance();
@@ -47,6 +59,10 @@ public abstract class AbstractSimilarityLexicalResource extends LexicalResourceN
 	 * A positive value X means that only the top X rules are retrieved.  
 	 */
 	protected static final String PARAM_RULES_LIMIT = "limit on retrieved rules";
+	/**
+	 * max number of lemmas looked up by one bulk query
+	 */
+	protected static final int MAX_LEMMAS_PER_QUERY = 100;
 	
 	protected final String RESOURCE_NAME = getResourceName();
 	/**
@@ -109,36 +125,142 @@ public abstract class AbstractSimilarityLexicalResource extends LexicalResourceN
 		
 		Set<PreparedStatementAndPos> stmts = posToRulesStmts(pos, isRHS);	// it's possible the pos doesn't match any table, and we have an empty set
 		for (PreparedStatementAndPos stmtAndPos : stmts)	
-		{
-			PreparedStatement stmt = stmtAndPos.getStmt();
-			ResultSet rs;
-			try 					
+			rules.addAll(getRulesForSide(lemma, stmtAndPos, isRHS));
+		return rules;
+	}
+
+	/**
+	 * The bulk version of {@link #getRulesForSide(String, PartOfSpeech, boolean)}: the rules of all the queries are retrieved by one SQL query per table
+	 * (per {@value #MAX_LEMMAS_PER_QUERY} lemmas)
+	 * 
+	 * @param queries
+	 * @param isRHS
+	 * @return
+	 * @throws LexicalResourceException
+	 */
+	protected Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> getRulesForSide(Collection<LemmaPosQuery> queries, boolean isRHS) throws LexicalResourceException
+	{
+		// gather the lemmas to look up in each table
+		Map<PreparedStatementAndPos, Set<String>> stmtsToLemmas = new LinkedHashMap<PreparedStatementAndPos, Set<String>>();
+		for (LemmaPosQuery query : queries)
+			for (PreparedStatementAndPos stmtAndPos : posToRulesStmts(query.getPos(), isRHS))
 			{
-				// query for this lemma+pos  
-				stmt.setString(1, lemma);
-				rs = stmt.executeQuery();	
-			} 
-			catch (SQLException e) 	{	throw new LexicalResourceException("Error executing the query " + stmt,e);	}
-			try 					
+				Set<String> lemmas = stmtsToLemmas.get(stmtAndPos);
+				if (lemmas == null)
+				{
+					lemmas = new LinkedHashSet<String>();
+					stmtsToLemmas.put(stmtAndPos, lemmas);
+				}
+				lemmas.add(cleanLemma(query.getLemma()));
+			}
+		
+		Map<PreparedStatementAndPos, Map<String, List<LexicalRule<? extends RuleInfo>>>> stmtsToRules = new HashMap<PreparedStatementAndPos, Map<String, List<LexicalRule<? extends RuleInfo>>>>();
+		for (Entry<PreparedStatementAndPos, Set<String>> stmtAndLemmas : stmtsToLemmas.entrySet())
+			stmtsToRules.put(stmtAndLemmas.getKey(), getRulesForSide(new ArrayList<String>(stmtAndLemmas.getValue()), stmtAndLemmas.getKey(), isRHS));
+		
+		// compose the rules of each query, in the order of getRulesForSide(String, PartOfSpeech, boolean)
+		Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> ret = new LinkedHashMap<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>>();
+		for (LemmaPosQuery query : queries)
+			if (!ret.containsKey(query))
 			{
-				// create a rule for each result
-				if(rs.first()) do {
-					String otherLemma = rs.getString(1);
-					double score;	 
-					try 							{score = Double.parseDouble( rs.getString(2) );	} 
-					catch (NumberFormatException e) {throw new LexicalResourceException("Database error: this is not a double " + rs.getString(1), e);	}
-					PartOfSpeech posFromQuery = stmtAndPos.getPos();
-					rules.add( isRHS ? 	new LexicalRule<RuleInfo>(otherLemma, posFromQuery, lemma, posFromQuery, score, null, RESOURCE_NAME, EMPTY_RULE_INFO) 
-									:
-										new LexicalRule<RuleInfo>(lemma, posFromQuery, otherLemma, posFromQuery, score, null, RESOURCE_NAME, EMPTY_RULE_INFO) ); 
-				} while (rs.next());
-
-//				rs.close();
+				String lemma = cleanLemma(query.getLemma());
+				List<LexicalRule<? extends RuleInfo>> rules = new Vector<LexicalRule<? extends RuleInfo>>();
+				for (PreparedStatementAndPos stmtAndPos : posToRulesStmts(query.getPos(), isRHS))
+					rules.addAll(stmtsToRules.get(stmtAndPos).get(lemma));
+				ret.put(query, rules);
 			}
-			catch (SQLException e) 	{	throw new LexicalResourceException("Error reading the result set of the query " + stmt,e);	}
+		return ret;
+	}
+	
+	/**
+	 * Retrieve the rules of one (clean) lemma with one of the statements of {@link #posToRulesStmts(PartOfSpeech, boolean)}
+	 * 
+	 * @param lemma
+	 * @param stmtAndPos
+	 * @param isRHS
+	 * @return
+	 * @throws LexicalResourceException
+	 */
+	private List<LexicalRule<? extends RuleInfo>> getRulesForSide(String lemma, PreparedStatementAndPos stmtAndPos, boolean isRHS) throws LexicalResourceException
+	{
+		List<LexicalRule<? extends RuleInfo>> rules = new Vector<LexicalRule<? extends RuleInfo>>();
+		PreparedStatement stmt = stmtAndPos.getStmt();
+		ResultSet rs;
+		try 					
+		{
+			// query for this lemma+pos  
+			stmt.setString(1, lemma);
+			rs = stmt.executeQuery();	
+		} 
+		catch (SQLException e) 	{	throw new LexicalResourceException("Error executing the query " + stmt,e);	}
+		try 					
+		{
+			// create a rule for each result
+			if(rs.first()) do {
+				rules.add(newRule(lemma, rs.getString(1), rs.getString(2), stmtAndPos.getPos(), isRHS)); 
+			} while (rs.next());
+
+//			rs.close();
 		}
+		catch (SQLException e) 	{	throw new LexicalResourceException("Error reading the result set of the query " + stmt,e);	}
 		return rules;
 	}
+
+	/**
+	 * Retrieve the rules of many (clean) lemmas, that share one of the statements of {@link #posToRulesStmts(PartOfSpeech, boolean)}.<br>
+	 * Each SQL query is a UNION ALL of the single-lemma queries of up to {@value #MAX_LEMMAS_PER_QUERY} lemmas, tagged with the indices of their lemmas, so that each lemma
+	 * keeps its own order and limit. Statements with no table name are executed once per lemma.  
+	 * 
+	 * @param lemmas distinct lemmas
+	 * @param stmtAndPos
+	 * @param isRHS
+	 * @return a map from each of the lemmas to its rules
+	 * @throws LexicalResourceException
+	 */
+	private Map<String, List<LexicalRule<? extends RuleInfo>>> getRulesForSide(List<String> lemmas, PreparedStatementAndPos stmtAndPos, boolean isRHS) throws LexicalResourceException
+	{
+		Map<String, List<LexicalRule<? extends RuleInfo>>> ret = new HashMap<String, List<LexicalRule<? extends RuleInfo>>>();
+		if (stmtAndPos.getTableName() == null)
+		{
+			for (String lemma : lemmas)
+				ret.put(lemma, getRulesForSide(lemma, stmtAndPos, isRHS));
+			return ret;
+		}
+		
+		for (String lemma : lemmas)
+			ret.put(lemma, new Vector<LexicalRule<? extends RuleInfo>>());
+		for (int from = 0; from < lemmas.size(); from += MAX_LEMMAS_PER_QUERY)
+		{
+			List<String> subLemmas = lemmas.subList(from, Math.min(from + MAX_LEMMAS_PER_QUERY, lemmas.size()));
+			String query = getRulesForSideBulkQueryStr(stmtAndPos.getTableName(), subLemmas.size(), isRHS);
+			try
+			{
+				PreparedStatement stmt = stmtAndPos.getStmt().getConnection().prepareStatement(query);
+				for (int i = 0; i < subLemmas.size(); i++)
+					stmt.setString(i + 1, subLemmas.get(i));
+				ResultSet rs = stmt.executeQuery();
+				while (rs.next())
+				{
+					String lemma = subLemmas.get(rs.getInt(1));
+					ret.get(lemma).add(newRule(lemma, rs.getString(2), rs.getString(3), stmtAndPos.getPos(), isRHS));
+				}
+				rs.close();
+				stmt.close();
+			}
+			catch (SQLException e) 	{	throw new LexicalResourceException("Error executing the query " + query,e);	}
+		}
+		return ret;
+	}
+	
+	private LexicalRule<RuleInfo> newRule(String lemma, String otherLemma, String scoreStr, PartOfSpeech posFromQuery, boolean isRHS) throws LexicalResourceException
+	{
+		double score;	 
+		try 							{score = Double.parseDouble( scoreStr );	} 
+		catch (NumberFormatException e) {throw new LexicalResourceException("Database error: this is not a double " + scoreStr, e);	}
+		return isRHS ? 	new LexicalRule<RuleInfo>(otherLemma, posFromQuery, lemma, posFromQuery, score, null, RESOURCE_NAME, EMPTY_RULE_INFO) 
+					:
+						new LexicalRule<RuleInfo>(lemma, posFromQuery, otherLemma, posFromQuery, score, null, RESOURCE_NAME, EMPTY_RULE_INFO); 
+	}
 	
 	/**
 	 * Use this template method to construct a query that retrieves rules for a given lhs 
@@ -162,6 +284,28 @@ public abstract class AbstractSimilarityLexicalResource extends LexicalResourceN
 		return "SELECT " + L_COL() + ", " + SIM_COL() + " FROM " + tableName + " WHERE " + R_COL() + " = ? ORDER BY " + SIM_COL() + " DESC" + LIMIT_CLAUSE;
 	}
 
+	/**
+	 * Use this template method to construct a query that retrieves the rules of several lemmas on a given side, each row prefixed by the (zero based) index of its lemma  
+	 * 
+	 * @param tableName
+	 * @param lemmasNum
+	 * @param isRHS
+	 * @return
+	 */
+	protected final String getRulesForSideBulkQueryStr(String tableName, int lemmasNum, boolean isRHS)
+	{
+		String keyCol = isRHS ? R_COL() : L_COL();
+		String otherCol = isRHS ? L_COL() : R_COL();
+		StringBuilder query = new StringBuilder();
+		for (int i = 0; i < lemmasNum; i++)
+		{
+			if (i > 0)
+				query.append(" UNION ALL ");
+			query.append("(SELECT " + i + " AS lemma_index, " + otherCol + ", " + SIM_COL() + " FROM " + tableName + " WHERE " + keyCol + " = ? ORDER BY " + SIM_COL() + " DESC" + LIMIT_CLAUSE + ")");
+		}
+		return query.append(" ORDER BY 1, 3 DESC").toString();
+	}
+
 	/**
 	 * Use this template method to construct a query that retrieves the score for a given lhs and rhs 
 	 * 
@@ -191,6 +335,22 @@ public abstract class AbstractSimilarityLexicalResource extends LexicalResourceN
 		return getRulesForSide(lemma, pos, false);
 	}
 
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource#getRulesForRight(java.util.Collection)
+	 */
+	public Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> getRulesForRight(Collection<LemmaPosQuery> queries) throws LexicalResourceException 
+	{
+		return getRulesForSide(queries, true);
+	}
+	
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource#getRulesForLeft(java.util.Collection)
+	 */
+	public Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> getRulesForLeft(Collection<LemmaPosQuery> queries) throws LexicalResourceException 
+	{
+		return getRulesForSide(queries, false);
+	}
+
 	/* (non-Javadoc)
 	 * @see ac.biu.cs.nlp.lexical.resource.LexResource#getRules(java.lang.String, ac.biu.nlp.nlp.representation.PartOfSpeech, java.lang.String, ac.biu.nlp.nlp.representation.PartOfSpeech)
 	 */
@@ -3,8 +3,12 @@
  */
 package eu.excitementproject.eop.core.component.lexicalknowledge.similarity;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPosQuery;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
 import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
@@ -98,6 +102,25 @@ public abstract class AbstractSinglePosLexicalResource extends AbstractSimilarit
 	
 	///////////////////////////////////////////////// PROTECTED	//////////////////////////////////////////////////////////////////
 
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.core.component.lexicalknowledge.similarity.AbstractSimilarityLexicalResource#getRulesForSide(java.util.Collection, boolean)
+	 */
+	@Override
+	protected Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> getRulesForSide(Collection<LemmaPosQuery> queries, boolean isRHS) throws LexicalResourceException
+	{
+		// look up all the lemmas with the default POS, and give the rules of each query its original POS
+		List<LemmaPosQuery> defaultPosQueries = new ArrayList<LemmaPosQuery>(queries.size());
+		for (LemmaPosQuery query : queries)
+			defaultPosQueries.add(new LemmaPosQuery(query.getLemma(), getDEFAULT_POS()));
+		Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> defaultPosRules = super.getRulesForSide(defaultPosQueries, isRHS);
+		
+		Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> ret = new LinkedHashMap<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>>();
+		for (LemmaPosQuery query : queries)
+			if (!ret.containsKey(query))
+				ret.put(query, changePosToOriginal(defaultPosRules.get(new LemmaPosQuery(query.getLemma(), getDEFAULT_POS())), query.getPos()));
+		return ret;
+	}
+
 	protected List<LexicalRule<? extends RuleInfo>> changePosToOriginal(List<LexicalRule<? extends RuleInfo>> rules, PartOfSpeech originalPos) throws LexicalResourceException
 	{
 		return changePosToOriginal(rules,originalPos,originalPos);
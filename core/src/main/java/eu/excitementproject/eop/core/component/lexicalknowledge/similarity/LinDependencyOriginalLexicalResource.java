@@ -120,13 +120,13 @@ public class LinDependencyOriginalLexicalResource extends AbstractSimilarityLexi
 					" and credentials: " + user + "/" + password, e);	
 		}
 		
-		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_ADJECTIVE_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_adjective, ADJECTIVE );
-		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_noun, NOUN );
-		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_verb, VERB );
+		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_ADJECTIVE_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_adjective, ADJECTIVE, ADJECTIVE_TABLE );
+		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_noun, NOUN, NOUN_TABLE );
+		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_verb, VERB, VERB_TABLE );
 		
-		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_ADJECTIVE_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_adjective, ADJECTIVE );
-		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_noun, NOUN );
-		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_verb, VERB );
+		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_ADJECTIVE_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_adjective, ADJECTIVE, ADJECTIVE_TABLE );
+		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_noun, NOUN, NOUN_TABLE );
+		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_verb, VERB, VERB_TABLE );
 
 		final PreparedStatementAndPos GET_SCORES_STMT_ADJECTIVE_WITH_POS = new PreparedStatementAndPos(getScoresStmt_adjective, ADJECTIVE );
 		final PreparedStatementAndPos GET_SCORES_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getScoresStmt_noun, NOUN );
@@ -112,8 +112,8 @@ public class LinDistsimLexicalResource extends AbstractSinglePosLexicalResource
 			throw new LexicalResourceException("Couldn't open and use a connection with this connection string: " + connStr +
 					" and credentials: " + user + "/" + password, e);	}
 
-		setOfGetRulesForLeftStmt.add(new PreparedStatementAndPos(getRulesForLeftStmt, getDEFAULT_POS()));
-		setOfGetRulesForRightStmt.add(new PreparedStatementAndPos(getRulesForRightStmt, getDEFAULT_POS()));
+		setOfGetRulesForLeftStmt.add(new PreparedStatementAndPos(getRulesForLeftStmt, getDEFAULT_POS(), getTable()));
+		setOfGetRulesForRightStmt.add(new PreparedStatementAndPos(getRulesForRightStmt, getDEFAULT_POS(), getTable()));
 		setOfGetScoresStmt.add(new PreparedStatementAndPos(getScoresStmt, getDEFAULT_POS())) ;
 	}
 
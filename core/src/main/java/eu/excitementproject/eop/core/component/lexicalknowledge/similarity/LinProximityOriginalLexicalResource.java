@@ -96,8 +96,8 @@ public class LinProximityOriginalLexicalResource extends AbstractSinglePosLexica
 			throw new LexicalResourceException("Couldn't open and use a connection with this connection string: " + connStr +
 					" and credentials: " + user + "/" + password, e);	}
 
-		setOfGetRulesForLeftStmt.add(new PreparedStatementAndPos(getRulesForLeftStmt, getDEFAULT_POS()));
-		setOfGetRulesForRightStmt.add(new PreparedStatementAndPos(getRulesForRightStmt, getDEFAULT_POS()));
+		setOfGetRulesForLeftStmt.add(new PreparedStatementAndPos(getRulesForLeftStmt, getDEFAULT_POS(), TABLE));
+		setOfGetRulesForRightStmt.add(new PreparedStatementAndPos(getRulesForRightStmt, getDEFAULT_POS(), TABLE));
 		setOfGetScoresStmt.add(new PreparedStatementAndPos(getScoresStmt, getDEFAULT_POS())) ;
 	}
 
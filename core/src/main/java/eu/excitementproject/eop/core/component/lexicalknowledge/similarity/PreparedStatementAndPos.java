@@ -16,15 +16,27 @@ public class PreparedStatementAndPos {
 	
 	private final PreparedStatement stmt;
 	private final PartOfSpeech pos;
+	private final String tableName;
 	/**
 	 * Ctor
 	 * @param stmt
 	 * @param pos
 	 */
 	public PreparedStatementAndPos(PreparedStatement stmt, PartOfSpeech pos) {
+		this(stmt, pos, null);
+	}
+	
+	/**
+	 * Ctor
+	 * @param stmt
+	 * @param pos
+	 * @param tableName the table queried by the statement, which enables bulk queries on it. may be <code>null</code>
+	 */
+	public PreparedStatementAndPos(PreparedStatement stmt, PartOfSpeech pos, String tableName) {
 		super();
 		this.stmt = stmt;
 		this.pos = pos;
+		this.tableName = tableName;
 	}
 	
 	/**
@@ -40,5 +52,12 @@ public class PreparedStatementAndPos {
 	public PreparedStatement getStmt() {
 		return stmt;
 	}
+
+	/**
+	 * @return the table name, or <code>null</code> if unknown
+	 */
+	public String getTableName() {
+		return tableName;
+	}
 }
 
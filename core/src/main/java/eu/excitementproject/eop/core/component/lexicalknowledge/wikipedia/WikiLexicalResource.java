@@ -3,12 +3,18 @@ import static eu.excitementproject.eop.common.representation.partofspeech.Simple
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 
+import eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPosQuery;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
@@ -35,7 +41,7 @@ import eu.excitementproject.eop.core.component.lexicalknowledge.LexicalResourceN
  *
  * @since Dec 4, 2011
  */
-public class WikiLexicalResource extends LexicalResourceNothingToClose<WikiRuleInfo> {
+public class WikiLexicalResource extends LexicalResourceNothingToClose<WikiRuleInfo> implements BulkLexicalResource<WikiRuleInfo> {
 
 	public static final String WIKIPEDIA_RESOURCE_NAME = "WIKIPEDIA";
 	
@@ -121,6 +127,22 @@ public class WikiLexicalResource extends LexicalResourceNothingToClose<WikiRuleI
 		return getRulesForSide(lemma, pos, false);
 	}
 
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource#getRulesForRight(java.util.Collection)
+	 */
+	@Override
+	public Map<LemmaPosQuery, List<LexicalRule<? extends WikiRuleInfo>>> getRulesForRight(Collection<LemmaPosQuery> queries) throws LexicalResourceException {
+		return getRulesForSide(queries, true);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource#getRulesForLeft(java.util.Collection)
+	 */
+	@Override
+	public Map<LemmaPosQuery, List<LexicalRule<? extends WikiRuleInfo>>> getRulesForLeft(Collection<LemmaPosQuery> queries) throws LexicalResourceException {
+		return getRulesForSide(queries, false);
+	}
+
 	/* (non-Javadoc)
 	 * @see ac.biu.cs.nlp.lexical.resource.LexicalResource#getRules(java.lang.String, ac.biu.nlp.nlp.representation.PartOfSpeech, java.lang.String, ac.biu.nlp.nlp.representation.PartOfSpeech)
 	 */
@@ -165,6 +187,46 @@ public class WikiLexicalResource extends LexicalResourceNothingToClose<WikiRuleI
 		return rules;
 	}
 
+	/**
+	 * The bulk version of {@link #getRulesForSide(String, PartOfSpeech, boolean)}, which looks up all the relevant lemmas by one DB access
+	 * @param queries
+	 * @param getRuleForRight
+	 * @return
+	 * @throws LexicalResourceException 
+	 */
+	private Map<LemmaPosQuery, List<LexicalRule<? extends WikiRuleInfo>>> getRulesForSide(Collection<LemmaPosQuery> queries, boolean getRuleForRight) throws LexicalResourceException {
+		Map<LemmaPosQuery, List<LexicalRule<? extends WikiRuleInfo>>> ret = new LinkedHashMap<LemmaPosQuery, List<LexicalRule<? extends WikiRuleInfo>>>();
+		Set<String> lemmas = new LinkedHashSet<String>();
+		for (LemmaPosQuery query : queries)
+		{
+			ret.put(query, new Vector<LexicalRule<? extends WikiRuleInfo>>());
+			if (isQueried(query))
+				lemmas.add(query.getLemma());
+		}
+		
+		Map<String, List<LexicalRule<? extends WikiRuleInfo>>> lemmasToRules = wikiDbServices.getRulesForSideImpl(new ArrayList<String>(lemmas), getRuleForRight);
+		for (LemmaPosQuery query : ret.keySet())
+			if (isQueried(query))
+			{
+				List<LexicalRule<? extends WikiRuleInfo>> rules = ret.get(query);
+				rules.addAll(lemmasToRules.get(query.getLemma()));
+				filterRules(rules, getRuleForRight);
+			}
+		return ret;
+	}
+	
+	/**
+	 * @param query
+	 * @return false if the query is known to have no rules: it isn't a noun, or its lemma is a stop word  
+	 */
+	private boolean isQueried(LemmaPosQuery query) {
+		//Wiki supports only nouns. pos can be null
+		if(query.getPos() != null && !SimplerCanonicalPosTag.NOUN.equals(simplerPos(query.getPos().getCanonicalPosTag())))
+			return false;
+		//		avoid rules with a stop word as one of their sides
+		return !STOP_WORDS.contains(query.getLemma());
+	}
+
 	/**
 	 * @param rules
 	 * @param getRuleForRight 
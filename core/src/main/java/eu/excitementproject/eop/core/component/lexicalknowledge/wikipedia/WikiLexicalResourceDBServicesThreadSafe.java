@@ -33,6 +33,10 @@ public class WikiLexicalResourceDBServicesThreadSafe {
 	protected static final String JDBC_DRIVER_CLASS = "com.mysql.jdbc.Driver";
 	protected static final WikiRuleScoreComparator RULE_RANK_AND_COOCURRENCE_COMPARATOR = new WikiRuleScoreComparator();
 	protected static final String WILDCARD = "%";
+	/**
+	 * max number of lemmas looked up by one bulk query
+	 */
+	protected static final int MAX_LEMMAS_PER_QUERY = 100;
 
 	protected final Double COOCURENCE_THRESHOLD;
 	protected final PartOfSpeech NOUN ;
@@ -40,6 +44,7 @@ public class WikiLexicalResourceDBServicesThreadSafe {
 	
 	protected static final String ARG1 = "?";
 	protected static final String ARG2 = "@";
+	protected static final String SELECT = "select ";
 
 //	private final PreparedStatement getRulesFromRightStmt;
 //	private final PreparedStatement getRulesFromRightStmt2;
@@ -171,28 +176,7 @@ public class WikiLexicalResourceDBServicesThreadSafe {
 		String query = null;
 		try {
 			// set the "get rule for side" statement and execute it
-			if (getRulesFromRight) {
-				if( COOCURENCE_THRESHOLD == null){
-					query = GET_RULES_FROM_RIGHT_QUERY;
-					query = query.replace(ARG1, lemma);
-				}else{
-					query = GET_RULES_FROM_RIGHT_QUERY_2;
-					query = query.replace(ARG1, lemma);
-					//add the co-occurrence filter threshold to DB query - more accurate rules - retrieve less rules - improve run time
-					query = query.replace(ARG2, COOCURENCE_THRESHOLD.toString());
-				}
-			} else {	// get rules from left
-				if( COOCURENCE_THRESHOLD == null){
-					query = GET_RULES_FROM_LEFT_QUERY;
-					query = query.replace(ARG1, lemma);
-				}else{
-					query = GET_RULES_FROM_LEFT_QUERY_2;
-					query = query.replace(ARG1, lemma);
-					//add the co-occurrence filter threshold to DB query - more accurate rules - retrieve less rules - improve run time
-					query = query.replace(ARG2, COOCURENCE_THRESHOLD.toString());
-				}
-				
-			}
+			query = getRulesForSideQuery(lemma, getRulesFromRight);
 //			Date s = new Date();
 //			ResultSet resultSet = stmt.executeQuery();
 			Statement stmt = con.createStatement();
@@ -216,6 +200,59 @@ public class WikiLexicalResourceDBServicesThreadSafe {
 		return rules;
 	}
 	
+	/**
+	 * The bulk version of {@link #getRulesForSideImpl(String, boolean)}. The rules of all the lemmas are retrieved by one SQL query (per {@value #MAX_LEMMAS_PER_QUERY}
+	 * lemmas), which is a UNION ALL of the single-lemma queries, with the (zero based) index of the lemma as the first column.
+	 * @param lemmas distinct lemmas
+	 * @param getRulesFromRight
+	 * @return a map from each of the given lemmas to its rules
+	 * @throws LexicalResourceException 
+	 */
+	protected Map<String, List<LexicalRule<? extends WikiRuleInfo>>> getRulesForSideImpl(List<String> lemmas, boolean getRulesFromRight) throws LexicalResourceException 
+	{
+		Map<String, List<LexicalRule<? extends WikiRuleInfo>>> lemmasToRules = new LinkedHashMap<String, List<LexicalRule<? extends WikiRuleInfo>>>();
+		for (int from = 0; from < lemmas.size(); from += MAX_LEMMAS_PER_QUERY)
+		{
+			List<String> subLemmas = lemmas.subList(from, Math.min(from + MAX_LEMMAS_PER_QUERY, lemmas.size()));
+			List<String> escapedLemmas = new ArrayList<String>(subLemmas.size());
+			List<List<LexicalRule<? extends WikiRuleInfo>>> rules = new ArrayList<List<LexicalRule<? extends WikiRuleInfo>>>(subLemmas.size());
+			List<Map<LhsRhs, LexicalRule<WikiRuleInfo>>> mapsLemmasToRules = new ArrayList<Map<LhsRhs, LexicalRule<WikiRuleInfo>>>(subLemmas.size());	//	used to detect duplicate rules
+			StringBuilder query = new StringBuilder();
+			for (int i = 0; i < subLemmas.size(); i++)
+			{
+				String lemma = subLemmas.get(i).replace("'", "\\'");	//escape apostrophe (e.g. Sophie's Choice)
+				escapedLemmas.add(lemma);
+				rules.add(new ArrayList<LexicalRule<? extends WikiRuleInfo>>());
+				mapsLemmasToRules.add(new LinkedHashMap<LhsRhs, LexicalRule<WikiRuleInfo>>());
+				if (i > 0)
+					query.append(" union all ");
+				String lemmaQuery = getRulesForSideQuery(lemma, getRulesFromRight);
+				query.append("(" + SELECT + i + " as lemma_index, " + lemmaQuery.substring(SELECT.length()) + ")");
+			}
+			try {
+				Statement stmt = con.createStatement();
+				ResultSet resultSet = stmt.executeQuery(query.toString());
+				while (resultSet.next()) {
+					int i = resultSet.getInt(1);
+					LexicalRule<WikiRuleInfo> rule = constructRule(resultSet, 1, escapedLemmas.get(i), getRulesFromRight);
+					addToRules(rules.get(i), rule, mapsLemmasToRules.get(i));
+				}
+				resultSet.close();
+				stmt.close();
+			} catch (SQLException e) {
+				throw new LexicalResourceException("Error executing sql query: "+query+" See nested", e);
+			}
+			
+			for (int i = 0; i < subLemmas.size(); i++)
+			{
+				// sort rules in descending rank and coocurrence order
+				Collections.sort(rules.get(i), RULE_RANK_AND_COOCURRENCE_COMPARATOR);
+				lemmasToRules.put(subLemmas.get(i), rules.get(i));
+			}
+		}
+		return lemmasToRules;
+	}
+	
 	/**
 	 * Query the DB for one rule from left to right 
 	 * @param leftLemma
@@ -249,6 +286,38 @@ public class WikiLexicalResourceDBServicesThreadSafe {
 
 	/////////////////////////////////////////////////////// PRIVATE	//////////////////////////////////////////////////////////
 	
+	/**
+	 * @param lemma escaped lemma
+	 * @param getRulesFromRight
+	 * @return the "get rule for side" query of the lemma
+	 */
+	private String getRulesForSideQuery(String lemma, boolean getRulesFromRight)
+	{
+		String query;
+		if (getRulesFromRight) {
+			if( COOCURENCE_THRESHOLD == null){
+				query = GET_RULES_FROM_RIGHT_QUERY;
+				query = query.replace(ARG1, lemma);
+			}else{
+				query = GET_RULES_FROM_RIGHT_QUERY_2;
+				query = query.replace(ARG1, lemma);
+				//add the co-occurrence filter threshold to DB query - more accurate rules - retrieve less rules - improve run time
+				query = query.replace(ARG2, COOCURENCE_THRESHOLD.toString());
+			}
+		} else {	// get rules from left
+			if( COOCURENCE_THRESHOLD == null){
+				query = GET_RULES_FROM_LEFT_QUERY;
+				query = query.replace(ARG1, lemma);
+			}else{
+				query = GET_RULES_FROM_LEFT_QUERY_2;
+				query = query.replace(ARG1, lemma);
+				//add the co-occurrence filter threshold to DB query - more accurate rules - retrieve less rules - improve run time
+				query = query.replace(ARG2, COOCURENCE_THRESHOLD.toString());
+			}
+		}
+		return query;
+	}
+	
 	/**
 	 * Construct a new {@link LexicalRule} from the db query result set
 	 * @param resultSet
@@ -258,6 +327,20 @@ public class WikiLexicalResourceDBServicesThreadSafe {
 	 * @throws LexicalResourceException 
 	 */
 	protected LexicalRule<WikiRuleInfo> constructRule(ResultSet resultSet, String lemma, boolean lemmaIsOnTheRight) throws LexicalResourceException 
+	{
+		return constructRule(resultSet, 0, lemma, lemmaIsOnTheRight);
+	}
+	
+	/**
+	 * Construct a new {@link LexicalRule} from the db query result set, whose rule columns follow the given number of leading columns
+	 * @param resultSet
+	 * @param skippedColumns
+	 * @param lemma
+	 * @param lemmaIsOnTheRight
+	 * @return
+	 * @throws LexicalResourceException 
+	 */
+	protected LexicalRule<WikiRuleInfo> constructRule(ResultSet resultSet, int skippedColumns, String lemma, boolean lemmaIsOnTheRight) throws LexicalResourceException 
 	{
 		LexicalRule<WikiRuleInfo> rule = null;
 		
@@ -266,21 +349,21 @@ public class WikiLexicalResourceDBServicesThreadSafe {
 			if(lemmaIsOnTheRight)
 			{	
 				rhsLemma = lemma;
-				lhsLemma = resultSet.getString(1);
+				lhsLemma = resultSet.getString(skippedColumns + 1);
 			}else{
 				lhsLemma = lemma;
-				rhsLemma = resultSet.getString(2);
+				rhsLemma = resultSet.getString(skippedColumns + 2);
 			}
-			String extractionTypesStr = resultSet.getString(3);
-			double rulePrecision = resultSet.getDouble(7);
+			String extractionTypesStr = resultSet.getString(skippedColumns + 3);
+			double rulePrecision = resultSet.getDouble(skippedColumns + 7);
 			double coocurenceScore;
 			try{
-				coocurenceScore = resultSet.getDouble(8);
+				coocurenceScore = resultSet.getDouble(skippedColumns + 8);
 			}catch(SQLException e){
 				if(COOCURENCE_THRESHOLD != null){		//TODO: is this can possible?
-					int ngramCount = resultSet.getInt(6);
-					int freqOfLhsInDocs = resultSet.getInt(4);
-					int freqOfRhsInDocs = resultSet.getInt(5);
+					int ngramCount = resultSet.getInt(skippedColumns + 6);
+					int freqOfLhsInDocs = resultSet.getInt(skippedColumns + 4);
+					int freqOfRhsInDocs = resultSet.getInt(skippedColumns + 5);
 					coocurenceScore = computeCoocurence(lhsLemma, rhsLemma, ngramCount, extractionTypesStr,	freqOfLhsInDocs, freqOfRhsInDocs);
 				}else{
 					coocurenceScore = Integer.MAX_VALUE;
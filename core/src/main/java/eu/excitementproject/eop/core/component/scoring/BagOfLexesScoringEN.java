@@ -1,10 +1,13 @@
 package eu.excitementproject.eop.core.component.scoring;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
@@ -13,8 +16,11 @@ import java.util.logging.Logger;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.jcas.JCas;
 
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPosQuery;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceCloseException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceUtils;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
 import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
 import eu.excitementproject.eop.common.component.scoring.ScoringComponentException;
@@ -381,33 +387,7 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 	protected double calculateSingleLexScoreWithWNRelations(
 			HashMap<String, Integer> tBag, HashMap<String, Integer> hBag,
 			WordnetLexicalResource wnlr) throws ScoringComponentException {
-		double score = 0.0d;
-		HashMap<String, Integer> tWordBag = new HashMap<String, Integer>();
-
-		for (final Iterator<Entry<String, Integer>> iter = tBag.entrySet()
-				.iterator(); iter.hasNext();) {
-			Entry<String, Integer> entry = iter.next();
-			final String word = entry.getKey();
-			final int counts = entry.getValue().intValue();
-			try {
-				tWordBag.put(word, counts);
-				for (LexicalRule<? extends RuleInfo> rule : wnlr
-						.getRulesForLeft(word, null)) {
-					if (tWordBag.containsKey(rule.getRLemma())) {
-						int tmp = tWordBag.get(rule.getRLemma());
-						tWordBag.put(rule.getRLemma(), tmp + counts);
-					} else {
-						tWordBag.put(rule.getRLemma(), counts);
-					}
-				}
-			} catch (LexicalResourceException e) {
-				throw new ScoringComponentException(e.getMessage());
-			}
-		}
-
-		score = calculateSimilarity(tWordBag, hBag).get(0);
-
-		return score;
+		return calculateSingleLexScore(tBag, hBag, wnlr);
 	}
 
 	/**
@@ -426,9 +406,39 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 	protected double calculateSingleLexScoreWithVORelations(
 			HashMap<String, Integer> tBag, HashMap<String, Integer> hBag,
 			VerbOceanLexicalResource volr) throws ScoringComponentException {
+		return calculateSingleLexScore(tBag, hBag, volr);
+	}
+
+	/**
+	 * calculate the similarity score between T and H based on the rules of a
+	 * lexical resource, which are retrieved for all the words of T at once
+	 * 
+	 * @param tBag
+	 *            the bag of words of T
+	 * @param hBag
+	 *            the bag of words of H
+	 * @param lr
+	 *            the lexical resource
+	 * @return the similarity score
+	 * @throws ScoringComponentException
+	 */
+	protected <I extends RuleInfo> double calculateSingleLexScore(
+			HashMap<String, Integer> tBag, HashMap<String, Integer> hBag,
+			LexicalResource<I> lr) throws ScoringComponentException {
 		double score = 0.0d;
 		HashMap<String, Integer> tWordBag = new HashMap<String, Integer>();
 
+		Map<LemmaPosQuery, List<LexicalRule<? extends I>>> rules;
+		try {
+			List<LemmaPosQuery> queries = new ArrayList<LemmaPosQuery>(tBag.size());
+			for (String word : tBag.keySet()) {
+				queries.add(new LemmaPosQuery(word, null));
+			}
+			rules = LexicalResourceUtils.getRulesForLeft(lr, queries);
+		} catch (LexicalResourceException e) {
+			throw new ScoringComponentException(e.getMessage());
+		}
+
 		for (final Iterator<Entry<String, Integer>> iter = tBag.entrySet()
 				.iterator(); iter.hasNext();) {
 			Entry<String, Integer> entry = iter.next();
@@ -436,8 +446,8 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 			final int counts = entry.getValue().intValue();
 			try {
 				tWordBag.put(word, counts);
-				for (LexicalRule<? extends RuleInfo> rule : volr
-						.getRulesForLeft(word, null)) {
+				for (LexicalRule<? extends RuleInfo> rule : rules
+						.get(new LemmaPosQuery(word, null))) {
 					if (tWordBag.containsKey(rule.getRLemma())) {
 						int tmp = tWordBag.get(rule.getRLemma());
 						tWordBag.put(rule.getRLemma(), tmp + counts);
@@ -4,7 +4,9 @@
 package eu.excitementproject.eop.core.component.syntacticknowledge;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 
+import java.util.ArrayList;
 import java.util.Collection;
 
 
@@ -43,8 +45,10 @@ import eu.excitementproject.eop.distsim.items.UndefinedKeyException;
 import eu.excitementproject.eop.distsim.scoring.ElementsSimilarityMeasure;
 import eu.excitementproject.eop.distsim.storage.DefaultSimilarityStorage;
 import eu.excitementproject.eop.distsim.storage.ElementTypeException;
+import eu.excitementproject.eop.distsim.storage.MappedSimilarityStorage;
 import eu.excitementproject.eop.distsim.storage.SimilarityNotFoundException;
 import eu.excitementproject.eop.distsim.storage.SimilarityStorage;
+import eu.excitementproject.eop.distsim.storage.SimilarityStorageUtils;
 import eu.excitementproject.eop.distsim.util.Configuration;
 import eu.excitementproject.eop.redis.RedisRunException;
 
@@ -62,6 +66,7 @@ public class SimilarityStorageBasedDIRTSyntacticResource extends SyntacticResour
 	/**
 	 * Constructs a syntactic resource from configuration params, by constructing a new similarity storage from these params.
 	 * @see DefaultSimilarityStorage#DefaultSimilarityStorage(ConfigurationParams)
+	 * @see MappedSimilarityStorage#MappedSimilarityStorage(ConfigurationParams), in case the param "l2r-mapped-file" is given
 	 * <p>Additionally, uses the param "top-n-rules" to limit the number of retrieved rules.
 	 * 
 	 * @throws ElementTypeException 
@@ -78,7 +83,20 @@ public class SimilarityStorageBasedDIRTSyntacticResource extends SyntacticResour
 		}		
 		this.maxNumOfRetrievedRules = params.getInt(Configuration.TOP_N_RULES);
 		
-		if (hostLeft == null || portLeft == -1)
+		boolean bMapped = true;
+		try {
+			params.get(Configuration.L2R_MAPPED_FILE);
+		} catch (ConfigurationException e) {
+			bMapped = false;
+		}
+		
+		if (bMapped) {
+			try {
+				this.similarityStorage = new MappedSimilarityStorage(params);
+			} catch (IOException e) {
+				throw new ConfigurationException("Could not open the mapped similarity files", e);
+			}
+		} else if (hostLeft == null || portLeft == -1)
 			this.similarityStorage = new DefaultSimilarityStorage(params);			
 		else {
 			String instanceName = "";
@@ -161,10 +179,14 @@ public class SimilarityStorageBasedDIRTSyntacticResource extends SyntacticResour
 	{
 		try {
 			List<RuleMatch<Info, BasicNode>> ret = new LinkedList<RuleMatch<Info, BasicNode>>();
-			for (String dependencyPath : createTemplatesForTree(textTree)) {
-				
-				StringBasedElement element = new StringBasedElement(dependencyPath);
-				for (ElementsSimilarityMeasure leftSimilarity : getSimilarityMeasures(element,hypothesisTemplates)) {
+			
+			// the similarities of all the templates of the tree are retrieved by one access to the similarity storage
+			List<StringBasedElement> elements = new ArrayList<StringBasedElement>();
+			for (String dependencyPath : createTemplatesForTree(textTree))
+				elements.add(new StringBasedElement(dependencyPath));
+			
+			for (List<ElementsSimilarityMeasure> leftSimilarities : getSimilarityMeasures(elements,hypothesisTemplates)) {
+				for (ElementsSimilarityMeasure leftSimilarity : leftSimilarities) {
 					TemplateToTree leftTemplateConverter=new TemplateToTree(leftSimilarity.getLeftElement().toKey(),PARSER.EASYFIRST);
 					leftTemplateConverter.createTree();
 					
@@ -192,6 +214,34 @@ public class SimilarityStorageBasedDIRTSyntacticResource extends SyntacticResour
 		}
 	}
 
+	List<List<ElementsSimilarityMeasure>> getSimilarityMeasures(List<StringBasedElement> textElements, Set<String> hypothesisTemplates) throws SimilarityNotFoundException, UndefinedKeyException {
+		
+		if (maxNumOfRetrievedRules == 0) {
+			List<List<ElementsSimilarityMeasure>> ret = new ArrayList<List<ElementsSimilarityMeasure>>(textElements.size());
+			for (int i = 0; i < textElements.size(); i++)
+				ret.add(new LinkedList<ElementsSimilarityMeasure>());
+			return ret;
+		}
+		
+		if (hypothesisTemplates == null)
+			return SimilarityStorageUtils.getSimilarityMeasures(similarityStorage, textElements, RuleDirection.LEFT_TO_RIGHT, FilterType.TOP_N, maxNumOfRetrievedRules);
+		else {
+			// see Option 1 of getSimilarityMeasures(StringBasedElement, Set<String>)
+			List<List<ElementsSimilarityMeasure>> ret = new ArrayList<List<ElementsSimilarityMeasure>>(textElements.size());
+			for (List<ElementsSimilarityMeasure> rules : SimilarityStorageUtils.getSimilarityMeasures(similarityStorage, textElements, RuleDirection.LEFT_TO_RIGHT, FilterType.ALL, 0.0)) {
+				List<ElementsSimilarityMeasure> filteredRules = new LinkedList<ElementsSimilarityMeasure>();
+				for (ElementsSimilarityMeasure rule : rules) {
+					if (filteredRules.size() == maxNumOfRetrievedRules)
+						break;
+					if (hypothesisTemplates.contains(rule.getRightElement().toKey()))
+						filteredRules.add(rule);
+				}
+				ret.add(filteredRules);
+			}
+			return ret;
+		}
+	}
+
 	List<ElementsSimilarityMeasure> getSimilarityMeasures(StringBasedElement textElement, Set<String> hypothesisTemplates) throws SimilarityNotFoundException, UndefinedKeyException {
 		
 		if (maxNumOfRetrievedRules == 0)
@@ -0,0 +1,217 @@
+package eu.excitementproject.eop.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.jcas.JCas;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import eu.excitementproject.eop.common.EDAException;
+import eu.excitementproject.eop.common.TEDecision;
+import eu.excitementproject.eop.common.component.distance.DistanceValue;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.configuration.CommonConfig;
+import eu.excitementproject.eop.common.exception.ComponentException;
+import eu.excitementproject.eop.common.exception.ConfigurationException;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.core.component.distance.FixedWeightEditDistancewRedis;
+import eu.excitementproject.eop.lap.PlatformCASProber;
+
+/**
+ * Compares the serial and the concurrent processing (and training) of the edit distance EDAs,
+ * on the Italian test data set, without external resources.
+ */
+public class EditDistanceEDAConcurrencyTest {
+
+	private static final File CONFIG_FILE = new File("./src/test/resources/configuration-file/EditDistanceEDAConcurrency_IT.xml");
+	private static final File TEST_DIR = new File("./src/test/resources/data-set/ITA/test/");
+	private static final File TRAIN_DIR = new File("./src/test/resources/data-set/ITA/dev/");
+
+	@Test
+	public void redisEDAProcessesDataSetConcurrently() throws Exception {
+		CommonConfig config = new ImplCommonConfig(CONFIG_FILE);
+		EditDistanceEDAwRedis<EditDistanceTEDecision> eda = new EditDistanceEDAwRedis<EditDistanceTEDecision>();
+		eda.initialize(config);
+		try {
+			List<JCas> casList = readCases(TEST_DIR);
+			List<EditDistanceTEDecision> serialDecisions = new ArrayList<EditDistanceTEDecision>();
+			for (JCas cas : casList)
+				serialDecisions.add(eda.process(cas));
+
+			List<TEDecision> concurrentDecisions = eda.processDataSetConcurrently(casList);
+
+			assertEquals(serialDecisions.size(), concurrentDecisions.size());
+			for (int i = 0; i < serialDecisions.size(); i++) {
+				assertEquals(serialDecisions.get(i).getPairID(), concurrentDecisions.get(i).getPairID());
+				assertEquals(serialDecisions.get(i).getDecision(), concurrentDecisions.get(i).getDecision());
+				assertEquals(serialDecisions.get(i).getConfidence(), concurrentDecisions.get(i).getConfidence(), 0.0);
+			}
+		} finally {
+			eda.shutdown();
+		}
+	}
+
+	@Test
+	public void concurrentTrainingCalculatesSameDistances() throws Exception {
+		assertSameTrainingDistances(new EditDistanceEDA<EditDistanceTEDecision>());
+	}
+
+	@Test
+	public void redisEDAConcurrentTrainingCalculatesSameDistances() throws Exception {
+		assertSameTrainingDistances(new EditDistanceEDAwRedis<EditDistanceTEDecision>());
+	}
+
+	@Test
+	public void subclassWithoutDefaultConstructorFailsAtInitialization() throws Exception {
+		// the section of the EDA defines three threads
+		NoDefaultConstructorEDA eda = new NoDefaultConstructorEDA(1.0);
+		try {
+			eda.initialize(new ImplCommonConfig(CONFIG_FILE));
+			fail("The additional instances of the EDA cannot be created");
+		} catch (EDAException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(NoDefaultConstructorEDA.class.getName()));
+			assertTrue(e.getMessage(), e.getMessage().contains("no public no-argument constructor"));
+		} finally {
+			eda.shutdown();
+		}
+	}
+
+	@Test
+	public void ruleCounterCountsAllThreads() throws Exception {
+		final RuleCountingEditDistancewRedis component = new RuleCountingEditDistancewRedis(new ImplCommonConfig(CONFIG_FILE));
+		final int threads = 8;
+		final int rulesPerThread = 2000;
+		FixedWeightEditDistancewRedis.ruleCounter.set(0);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			final int thread = t;
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < rulesPerThread; i++)
+						component.findRule("left" + thread + "_" + i, "right" + i);
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+		assertEquals(threads * rulesPerThread, FixedWeightEditDistancewRedis.ruleCounter.getAndSet(0));
+	}
+
+	/**
+	 * Calculates the distances of the training pairs by the serial training path (getDistanceValues)
+	 * and by the concurrent one, and checks that they are the same, in the same order
+	 */
+	private static void assertSameTrainingDistances(EditDistanceEDA<EditDistanceTEDecision> eda) throws Exception {
+		eda.setWriteModel(false);
+		eda.initialize(new ImplCommonConfig(CONFIG_FILE));
+		try {
+			List<File> xmiFiles = xmiFiles(TRAIN_DIR);
+			List<DistanceValue> serialDistances = new ArrayList<DistanceValue>();
+			List<String> serialEntailments = new ArrayList<String>();
+			for (File xmi : xmiFiles) {
+				JCas cas = PlatformCASProber.probeXmi(xmi, null);
+				eda.getDistanceValues(cas, serialDistances);
+				eda.getEntailmentAnnotation(cas, serialEntailments);
+			}
+
+			eda.trainingThreads = 3;
+			List<EditDistanceEDA<EditDistanceTEDecision>.Annotation> annotations = eda.getAnnotationsConcurrently(xmiFiles);
+
+			assertEquals(serialDistances.size(), annotations.size());
+			for (int i = 0; i < annotations.size(); i++) {
+				assertEquals(serialDistances.get(i).getDistance(), annotations.get(i).getDistanceValue().getDistance(), 0.0);
+				assertEquals(serialEntailments.get(i), annotations.get(i).getEntailmentRelation());
+			}
+			assertEquals(2, eda.trainingInstances.size());
+		} finally {
+			eda.shutdown();
+		}
+	}
+
+	static List<File> xmiFiles(File dir) {
+		List<File> xmiFiles = new ArrayList<File>();
+		File[] files = dir.listFiles();
+		Arrays.sort(files);
+		for (File xmi : files) {
+			if (xmi.getName().endsWith(".xmi"))
+				xmiFiles.add(xmi);
+		}
+		assertFalse("No pairs in " + dir, xmiFiles.isEmpty());
+		return xmiFiles;
+	}
+
+	static List<JCas> readCases(File dir) throws Exception {
+		List<JCas> casList = new ArrayList<JCas>();
+		for (File xmi : xmiFiles(dir))
+			casList.add(PlatformCASProber.probeXmi(xmi, null));
+		return casList;
+	}
+
+	/**
+	 * An EDA with no public no-argument constructor, configured by the section of EditDistanceEDA
+	 */
+	public static class NoDefaultConstructorEDA extends EditDistanceEDA<EditDistanceTEDecision> {
+
+		public NoDefaultConstructorEDA(double weight) {
+			super(0.0, 0.0, weight, weight);
+		}
+
+		@Override
+		protected String getType() {
+			return EditDistanceEDA.class.getCanonicalName();
+		}
+	}
+
+	/**
+	 * A Redis-based component for which every pair of lemmas has a rule
+	 */
+	public static class RuleCountingEditDistancewRedis extends TokenEditDistancewRedis {
+
+		public RuleCountingEditDistancewRedis(CommonConfig config) throws ConfigurationException, ComponentException {
+			super(config);
+		}
+
+		public boolean findRule(String leftLemma, String rightLemma) {
+			try {
+				return getRulesFromResource(leftLemma, null, rightLemma, null);
+			} catch (LexicalResourceException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		protected boolean hasRuleInResources(String leftLemma, PartOfSpeech leftPos, String rightLemma, PartOfSpeech rightPos) {
+			return true;
+		}
+	}
+
+	/**
+	 * A Redis-based edit distance component on the tokens, used without any Redis instance
+	 */
+	public static class TokenEditDistancewRedis extends FixedWeightEditDistancewRedis {
+
+		public TokenEditDistancewRedis(CommonConfig config) throws ConfigurationException, ComponentException {
+			super(config);
+		}
+
+		@Override
+		public String getComponentName() {
+			return "TokenEditDistancewRedis";
+		}
+
+		@Override
+		public String getTokenBaseForm(Token token) {
+			return token.getCoveredText();
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package eu.excitementproject.eop.core.component.distance;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import eu.excitementproject.eop.common.component.distance.DistanceComponentException;
+import eu.excitementproject.eop.lap.PlatformCASProber;
+
+/**
+ * Times the edit distance of FixedWeightEditDistance on the pairs of a data set:
+ * the whole calculation of the component on the CAS of each pair (reading the tokens,
+ * interning their base forms and running the kernel) and the kernel alone, with and
+ * without a maximum distance.
+ *
+ * It is not a unit test; run it from the core directory with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=eu.excitementproject.eop.core.component.distance.EditDistanceKernelBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class EditDistanceKernelBenchmark {
+
+	@Param({"./src/test/resources/data-set/ITA/dev/"})
+	public String dataSet;
+
+	private FixedWeightEditDistance component;
+	private JCas[] cases;
+	private int[][] texts;
+	private int[][] hypotheses;
+	private double[][] matchWeights;
+	private double[][] deleteWeights;
+	private double[][] insertWeights;
+	private double[] thresholds;
+	private int pair;
+
+	@Setup
+	public void setup() throws Exception {
+
+		component = new FixedWeightTokenEditDistance();
+
+		File[] files = new File(dataSet).listFiles();
+		Arrays.sort(files);
+		List<JCas> casList = new ArrayList<JCas>();
+		for (File xmi : files) {
+			if (xmi.getName().endsWith(".xmi"))
+				casList.add(PlatformCASProber.probeXmi(xmi, null));
+		}
+		cases = casList.toArray(new JCas[casList.size()]);
+
+		int pairs = cases.length;
+		texts = new int[pairs][];
+		hypotheses = new int[pairs][];
+		matchWeights = new double[pairs][];
+		deleteWeights = new double[pairs][];
+		insertWeights = new double[pairs][];
+		thresholds = new double[pairs];
+
+		for (int i = 0; i < pairs; i++) {
+			List<Token> text = component.getTokenSequences(cases[i].getView("TextView"));
+			List<Token> hypothesis = component.getTokenSequences(cases[i].getView("HypothesisView"));
+			FixedWeightEditDistance.TokenSequences sequences = component.new TokenSequences(text, hypothesis);
+			texts[i] = sequences.sourceIds;
+			hypotheses[i] = sequences.targetIds;
+			matchWeights[i] = sequences.matchWeights;
+			deleteWeights[i] = sequences.deleteWeights;
+			insertWeights[i] = sequences.insertWeights;
+			// a threshold as learnt on RTE: about a third of the normalized distance
+			thresholds[i] = 0.3 * sequences.norm();
+		}
+
+	}
+
+	@Benchmark
+	public double calculation() throws DistanceComponentException {
+
+		return component.calculation(cases[next()]).getUnnormalizedValue();
+
+	}
+
+	@Benchmark
+	public double kernel() {
+
+		int i = next();
+
+		return EditDistanceKernel.distance(texts[i], hypotheses[i],
+				matchWeights[i], deleteWeights[i], insertWeights[i], 1.0, null);
+
+	}
+
+	@Benchmark
+	public double kernelWithCutoff() {
+
+		int i = next();
+
+		return EditDistanceKernel.distance(texts[i], hypotheses[i],
+				matchWeights[i], deleteWeights[i], insertWeights[i], 1.0, null, thresholds[i]);
+
+	}
+
+	private int next() {
+
+		pair = (pair + 1) % cases.length;
+
+		return pair;
+
+	}
+
+	public static void main(String[] args) throws RunnerException {
+
+		Options options = new OptionsBuilder()
+				.include(EditDistanceKernelBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+
+	}
+}
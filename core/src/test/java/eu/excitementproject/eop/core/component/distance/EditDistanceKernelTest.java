@@ -0,0 +1,123 @@
+package eu.excitementproject.eop.core.component.distance;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class EditDistanceKernelTest {
+	@Test
+	public void test() {
+
+		Random random = new Random(1);
+
+		for (int pair = 0; pair < 2000; pair++) {
+
+			int[] source = randomIds(random, random.nextInt(30));
+			int[] target = randomIds(random, random.nextInt(15));
+			double matchWeight = random.nextInt(2) * 0.5;
+			double deleteWeight = random.nextInt(3) * 0.5;
+			double insertWeight = random.nextInt(3) * 0.5 + 0.5;
+			double substituteWeight = random.nextInt(3) * 0.5 + 0.5;
+			double[] matchWeights = weights(source.length, matchWeight);
+			double[] deleteWeights = weights(source.length, deleteWeight);
+			double[] insertWeights = weights(target.length, insertWeight);
+
+			double expected = matrixDistance(source, target, matchWeight, deleteWeight, insertWeight, substituteWeight);
+			double distance = EditDistanceKernel.distance(source, target,
+					matchWeights, deleteWeights, insertWeights, substituteWeight, null);
+			assertEquals(expected, distance, 0.0);
+
+			double maxDistance = random.nextInt(20) * 0.5;
+			double thresholded = EditDistanceKernel.distance(source, target,
+					matchWeights, deleteWeights, insertWeights, substituteWeight, null, maxDistance);
+			if (expected <= maxDistance)
+				assertEquals(expected, thresholded, 0.0);
+			else
+				assertEquals(EditDistanceKernel.EXCEEDED, thresholded, 0.0);
+
+			//the same weights given for each cell
+			final double cellSubstituteWeight = substituteWeight;
+			double cellDistance = EditDistanceKernel.distance(source, target,
+					matchWeights, deleteWeights, insertWeights, new EditDistanceKernel.SubstitutionWeights() {
+						@Override
+						public double substituteWeight(int sourceIndex, int targetIndex) {
+							return cellSubstituteWeight;
+						}
+					}, null);
+			assertEquals(expected, cellDistance, 0.0);
+
+		}
+
+	}
+
+
+	@Test
+	public void testSubstitutionWeights() {
+
+		int[] source = {1, 2, 3};
+		int[] target = {1, 4, 5};
+		double[] matchWeights = weights(source.length, 0.0);
+		double[] deleteWeights = weights(source.length, 1.0);
+		double[] insertWeights = weights(target.length, 1.0);
+
+		//substituting the 2nd token of the source is cheap, the others are not
+		EditDistanceKernel.SubstitutionWeights substituteWeights = new EditDistanceKernel.SubstitutionWeights() {
+			@Override
+			public double substituteWeight(int sourceIndex, int targetIndex) {
+				return sourceIndex == 1 ? 0.25 : 3.0;
+			}
+		};
+
+		// 0 (match) + 0.25 (substitution) + 2 (deletion and insertion)
+		assertEquals(2.25, EditDistanceKernel.distance(source, target,
+				matchWeights, deleteWeights, insertWeights, substituteWeights, null), 0.0);
+
+	}
+
+
+	/**
+	 * The edit distance computed on the whole table, as FixedWeightEditDistance used to do
+	 */
+	private double matrixDistance(int[] source, int[] target,
+			double matchWeight, double deleteWeight, double insertWeight, double substituteWeight) {
+
+		double[][] distanceTable = new double[source.length + 1][target.length + 1];
+		for (int i = 1; i <= source.length; i++)
+			distanceTable[i][0] = distanceTable[i-1][0] + deleteWeight;
+		for (int j = 1; j <= target.length; j++)
+			distanceTable[0][j] = distanceTable[0][j-1] + insertWeight;
+		for (int i = 1; i <= source.length; i++)
+			for (int j = 1; j <= target.length; j++)
+				distanceTable[i][j] = Math.min(Math.min(
+						distanceTable[i-1][j-1] + (source[i-1] == target[j-1] ? matchWeight : substituteWeight),
+						distanceTable[i-1][j] + deleteWeight),
+						distanceTable[i][j-1] + insertWeight);
+
+		return distanceTable[source.length][target.length];
+
+	}
+
+
+	private int[] randomIds(Random random, int length) {
+
+		int[] ids = new int[length];
+		for (int i = 0; i < length; i++)
+			ids[i] = random.nextInt(8);
+
+		return ids;
+
+	}
+
+
+	private double[] weights(int length, double weight) {
+
+		double[] weights = new double[length];
+		for (int i = 0; i < length; i++)
+			weights[i] = weight;
+
+		return weights;
+
+	}
+}
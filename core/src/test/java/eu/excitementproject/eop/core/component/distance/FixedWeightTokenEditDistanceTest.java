@@ -3,6 +3,8 @@ package eu.excitementproject.eop.core.component.distance;
 import org.apache.uima.jcas.JCas;
 import org.junit.Test;
 import static org.junit.Assert.*;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import eu.excitementproject.eop.lap.LAPException;
 import eu.excitementproject.eop.lap.implbase.ExampleLAP;
 
@@ -37,5 +39,23 @@ public class FixedWeightTokenEditDistanceTest {
         
     }
 	
+	@Test
+	public void testSubstituteWeight() throws Exception {
+		
+		//the substitutions are cheaper than a deletion followed by an insertion
+		FixedWeightTokenEditDistance fixedEd = new FixedWeightTokenEditDistance() {
+			@Override
+			public double getmSubstituteWeight(Token tDeleted, Token tInserted) {
+				return tInserted.getCoveredText().equals("three") ? 0.5 : 0.25;
+			}
+		};
+		
+		JCas mycas = new ExampleLAP().generateSingleTHPairCAS("one two four", "one three five", "ENTAILMENT");
+		
+		//two substitutions: 0.5 + 0.25 instead of 1 + 1 (deletions cost 0)
+		assertEquals(0.75, fixedEd.calculation(mycas).getUnnormalizedValue(), 0.0);
+		
+	}
+	
 }
 
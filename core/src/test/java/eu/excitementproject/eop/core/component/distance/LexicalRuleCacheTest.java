@@ -0,0 +1,87 @@
+package eu.excitementproject.eop.core.component.distance;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+
+public class LexicalRuleCacheTest {
+	@Test
+	public void test() throws Exception {
+
+		PartOfSpeech noun = new ByCanonicalPartOfSpeech("N");
+		PartOfSpeech verb = new ByCanonicalPartOfSpeech("V");
+
+		LexicalRuleCache cache = new LexicalRuleCache(1000);
+		assertNull(cache.get("dog", noun, "animal", noun));
+		cache.put("dog", noun, "animal", noun, true);
+		cache.put("dog", verb, "animal", noun, false);
+		assertEquals(Boolean.TRUE, cache.get("dog", noun, "animal", noun));
+		assertEquals(Boolean.FALSE, cache.get("dog", verb, "animal", noun));
+		assertNull(cache.get("dog", null, "animal", noun));
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+
+		//the least recently used entries are dropped
+		LexicalRuleCache smallCache = new LexicalRuleCache(LexicalRuleCache.SEGMENTS);
+		for (int i = 0; i < 1000; i++)
+			smallCache.put("lemma" + i, noun, "lemma", noun, true);
+		assertTrue(smallCache.size() <= LexicalRuleCache.SEGMENTS);
+
+		//the cache is loaded only for the same resources
+		File file = File.createTempFile("lexicalRuleCache", ".bin");
+		try {
+			cache.save(file, "language=IT;instance=wordnet,path=/tmp/wordnet/");
+			LexicalRuleCache loadedCache = new LexicalRuleCache(1000);
+			assertFalse(loadedCache.load(file, "language=IT;instance=wordnet,path=/tmp/multiwordnet/"));
+			assertFalse(loadedCache.load(file, "language=EN;instance=wordnet,path=/tmp/wordnet/"));
+			assertEquals(0, loadedCache.size());
+			assertTrue(loadedCache.load(file, "language=IT;instance=wordnet,path=/tmp/wordnet/"));
+			assertEquals(Boolean.TRUE, loadedCache.get("dog", noun, "animal", noun));
+			assertEquals(Boolean.FALSE, loadedCache.get("dog", verb, "animal", noun));
+
+			//the file is replaced, without leaving temporary files
+			int filesBeforeSaving = file.getAbsoluteFile().getParentFile().list().length;
+			smallCache.save(file, "wikipedia");
+			assertEquals(filesBeforeSaving, file.getAbsoluteFile().getParentFile().list().length);
+			assertFalse(new LexicalRuleCache(1000).load(file, "language=IT;instance=wordnet,path=/tmp/wordnet/"));
+			LexicalRuleCache reloadedCache = new LexicalRuleCache(1000);
+			assertTrue(reloadedCache.load(file, "wikipedia"));
+			assertEquals(smallCache.size(), reloadedCache.size());
+		} finally {
+			file.delete();
+		}
+
+	}
+
+	@Test
+	public void testShared() throws Exception {
+
+		PartOfSpeech noun = new ByCanonicalPartOfSpeech("N");
+
+		File file = File.createTempFile("lexicalRuleCache", ".bin");
+		try {
+			//the shared cache is loaded from the file the first time it is asked
+			LexicalRuleCache savedCache = new LexicalRuleCache(1000);
+			savedCache.put("dog", noun, "animal", noun, true);
+			savedCache.save(file, "wordnet");
+			LexicalRuleCache cache = LexicalRuleCache.getShared(file, 1000, "wordnet");
+			assertEquals(1, cache.size());
+
+			//the components with the same file and the same resources share the cache
+			assertSame(cache, LexicalRuleCache.getShared(new File(file.getAbsolutePath()), 1000, "wordnet"));
+
+			//a component with different resources gets a cache of its own
+			LexicalRuleCache otherCache = LexicalRuleCache.getShared(file, 1000, "wikipedia");
+			assertNotSame(cache, otherCache);
+			assertEquals(0, otherCache.size());
+		} finally {
+			file.delete();
+		}
+
+	}
+}
@@ -0,0 +1,77 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.catvardb;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPosQuery;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
+import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
+import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+
+/**
+ * Tests that the bulk methods of {@link CatvarDBLexicalResource} return the rules of the single
+ * {@code <lemma, pos>} methods, in the same order. The catvar database is given by the system properties
+ * {@value #DB_CONNECTION_STRING_PROPERTY}, {@value #DB_USER_PROPERTY} and {@value #DB_PASSWORD_PROPERTY};
+ * the test is ignored if it is not available.
+ */
+@SuppressWarnings("deprecation")
+public class CatvarDBLexicalResourceTest {
+
+	@Test
+	public void testBulkEqualsPerQuery() throws Exception {
+		Logger testLogger = Logger.getLogger(CatvarDBLexicalResourceTest.class.getName());
+		CatvarDBLexicalResource lr = null;
+		try {
+			lr = new CatvarDBLexicalResource(System.getProperty(DB_CONNECTION_STRING_PROPERTY, DEFAULT_DB_CONNECTION_STRING),
+					System.getProperty(DB_USER_PROPERTY), System.getProperty(DB_PASSWORD_PROPERTY));
+		}
+		catch (LexicalResourceException e) {
+			testLogger.info("Test instance init failed: the catvar database is not available. This is Okay! --- " + e.getMessage());
+			testLogger.info("This test will be ignored.");
+		}
+		assumeNotNull(lr);
+
+		// more queries than one bulk statement takes, with duplicates and null parts-of-speech
+		List<LemmaPosQuery> queries = new ArrayList<LemmaPosQuery>();
+		for (String lemma : LEMMAS) {
+			queries.add(new LemmaPosQuery(lemma, null));
+			for (SimplerCanonicalPosTag pos : POSES)
+				queries.add(new LemmaPosQuery(lemma, new BySimplerCanonicalPartOfSpeech(pos)));
+		}
+		queries.addAll(queries.subList(0, 20));
+		assertTrue(new LinkedHashSet<LemmaPosQuery>(queries).size() > 100);
+
+		Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> left = lr.getRulesForLeft(queries);
+		Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> right = lr.getRulesForRight(queries);
+		assertEquals(new ArrayList<LemmaPosQuery>(new LinkedHashSet<LemmaPosQuery>(queries)), new ArrayList<LemmaPosQuery>(left.keySet()));
+		assertEquals(left.keySet(), right.keySet());
+		int rules = 0;
+		for (LemmaPosQuery query : left.keySet()) {
+			assertEquals(query.toString(), lr.getRulesForLeft(query.getLemma(), query.getPos()), left.get(query));
+			assertEquals(query.toString(), lr.getRulesForRight(query.getLemma(), query.getPos()), right.get(query));
+			rules += left.get(query).size();
+		}
+		assertTrue(rules > 0);
+		lr.close();
+	}
+
+	private static final String DB_CONNECTION_STRING_PROPERTY = "catvar.db.connection.string";
+	private static final String DB_USER_PROPERTY = "catvar.db.user";
+	private static final String DB_PASSWORD_PROPERTY = "catvar.db.password";
+	private static final String DEFAULT_DB_CONNECTION_STRING = "jdbc:mysql://localhost:3306/catvar";
+
+	private static final String[] LEMMAS = {"run", "walk", "happy", "quick", "decide", "nation", "create", "teach", "strong", "act",
+		"beauty", "govern", "sad", "write", "inform", "develop", "dark", "move", "explain", "able",
+		"employ", "read", "free", "speak", "wide", "real", "know", "educate", "use", "connect", "no-such-lemma"};
+	private static final SimplerCanonicalPosTag[] POSES = {SimplerCanonicalPosTag.NOUN, SimplerCanonicalPosTag.VERB, SimplerCanonicalPosTag.ADJECTIVE};
+}
@@ -1,8 +1,618 @@
 package eu.excitementproject.eop.distsim.application;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableIterator;
+import eu.excitementproject.eop.common.utilities.OS;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationException;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationFile;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.distsim.builders.ConfigurationBasedDataStructureFactory;
+import eu.excitementproject.eop.distsim.builders.DataStructureFactory;
+import eu.excitementproject.eop.distsim.builders.cooccurrence.CooccurrencesExtractor;
+import eu.excitementproject.eop.distsim.builders.cooccurrence.GeneralCooccurrenceExtractor;
+import eu.excitementproject.eop.distsim.builders.elementfeature.ElementFeatureExtractor;
+import eu.excitementproject.eop.distsim.builders.elementfeature.SortedRunsElementFeatureCountStorage;
+import eu.excitementproject.eop.distsim.builders.elementfeature.GeneralElementFeatureExtractor;
+import eu.excitementproject.eop.distsim.builders.scoring.ElementFeatureScorer;
+import eu.excitementproject.eop.distsim.builders.scoring.GeneralElementFeatureScorer;
+import eu.excitementproject.eop.distsim.builders.similarity.ElementSimilarityCalculator;
+import eu.excitementproject.eop.distsim.builders.similarity.ElementSimilarityCombiner;
+import eu.excitementproject.eop.distsim.builders.similarity.GeneralElementSimilarityCalculator;
+import eu.excitementproject.eop.distsim.items.Element;
+import eu.excitementproject.eop.distsim.items.Feature;
+import eu.excitementproject.eop.distsim.items.TextUnit;
+import eu.excitementproject.eop.distsim.scoring.combine.SimilarityCombination;
+import eu.excitementproject.eop.distsim.storage.BasicCooccurrenceStorage;
+import eu.excitementproject.eop.distsim.storage.BasicMap;
+import eu.excitementproject.eop.distsim.storage.BasicSet;
+import eu.excitementproject.eop.distsim.storage.CooccurrenceStorage;
+import eu.excitementproject.eop.distsim.storage.CountableIdentifiableStorage;
+import eu.excitementproject.eop.distsim.storage.DefaultElementFeatureCountStorage;
+import eu.excitementproject.eop.distsim.storage.DefaultElementFeatureScoreStorage;
+import eu.excitementproject.eop.distsim.storage.DeviceBasedCooccurrenceStorage;
+import eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage;
+import eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage;
+import eu.excitementproject.eop.distsim.storage.IDKeyPersistentBasicMap;
+import eu.excitementproject.eop.distsim.storage.MappedElementFeatureScoreFileWriter;
+import eu.excitementproject.eop.distsim.storage.MappedElementFeatureScoreStorage;
+import eu.excitementproject.eop.distsim.storage.PersistenceDevice;
+import eu.excitementproject.eop.distsim.storage.PersistenceDeviceType;
+import eu.excitementproject.eop.distsim.util.Configuration;
+import eu.excitementproject.eop.distsim.util.CreationException;
+import eu.excitementproject.eop.distsim.util.Factory;
+import eu.excitementproject.eop.distsim.util.Pair;
+import eu.excitementproject.eop.distsim.util.SerializationException;
+import eu.excitementproject.eop.distsim.util.SortUtil;
+
+/**
+ * Builds a distributional similarity model in one process, by running the model-building stages one after the other:
+ * co-occurrence extraction ({@link GeneralCooccurrenceExtractor}), element-feature extraction ({@link GeneralElementFeatureExtractor}),
+ * element-feature scoring ({@link GeneralElementFeatureScorer}), element similarity calculation ({@link GeneralElementSimilarityCalculator})
+ * and, in case the element-similarity-combiner module is defined, similarity combination ({@link ElementSimilarityCombiner}).
+ * <p>
+ * All the stages are defined by one configuration file, composed of the modules of the corresponding applications.
+ * A storage which is built by one stage and read as a whole by the next one (co-occurrences, element-feature counts, feature-elements)
+ * is passed to the next stage in memory, instead of being reloaded from its persistence device.
+ * <p>
+ * The outputs of each stage are still saved to the configured persistence devices, and serve as checkpoints:
+ * in case the optional build-model module defines a checkpoint-dir, a marker file is written to this directory after the completion of each stage,
+ * and the next run skips the completed stages, loading their outputs from the devices.
+ * A first (and last) stage can also be given explicitly, in which case the markers are ignored.
+ * <p>
+ * The running time, the heap memory and the number of records written to each output device are reported for each stage.
+ *
+ * @author agent
+ * @since 18/10/2026
+ *
+ */
+@SuppressWarnings({"rawtypes","unchecked"})
 public class BuildModel {
-	public static void main(String[] args) throws IOException {
+
+	private static Logger logger = Logger.getLogger(BuildModel.class);
+
+	/**
+	 * The stages of the model building, by their running order
+	 */
+	public enum Stage {
+		COOCCURRENCE_EXTRACTION,
+		ELEMENT_FEATURE_EXTRACTION,
+		ELEMENT_FEATURE_SCORING,
+		ELEMENT_SIMILARITY_CALCULATION,
+		ELEMENT_SIMILARITY_COMBINATION
+	}
+
+	public BuildModel(ConfigurationFile confFile) throws ConfigurationException {
+		this.confFile = confFile;
+		this.dataStructureFactory = new ConfigurationBasedDataStructureFactory(confFile);
+		File dir = null;
+		if (confFile.isModuleExist(Configuration.BUILD_MODEL)) {
+			ConfigurationParams buildParams = confFile.getModuleConfiguration(Configuration.BUILD_MODEL);
+			if (buildParams.containsKey(Configuration.CHECKPOINT_DIR)) {
+				dir = new File(buildParams.get(Configuration.CHECKPOINT_DIR));
+				dir.mkdirs();
+			}
+		}
+		this.checkpointDir = dir;
+	}
+
+	/**
+	 * Runs all stages, skipping the stages which were completed by a previous run (according to the checkpoint markers)
+	 */
+	public List<StageReport> build() throws Exception {
+		return build(null, getDefaultLastStage());
+	}
+
+	/**
+	 * Runs the stages from firstStage to lastStage. The outputs of the stages which precede firstStage are loaded from their persistence devices.
+	 *
+	 * @param firstStage the first stage to run, or null for the first stage which was not completed by a previous run
+	 * @param lastStage the last stage to run
+	 * @return the reports of the stages which were run
+	 */
+	public List<StageReport> build(Stage firstStage, Stage lastStage) throws Exception {
+		List<StageReport> reports = new LinkedList<StageReport>();
+		boolean bStarted = false;
+		for (Stage stage : Stage.values()) {
+			if (stage.compareTo(lastStage) > 0)
+				break;
+			if (!bStarted) {
+				if (firstStage == null ? isCompleted(stage) : stage.compareTo(firstStage) < 0) {
+					logger.info("Skipping stage " + stage + ", its outputs are loaded from the persistence devices");
+					continue;
+				}
+				bStarted = true;
+				// the outputs of this stage and the following ones are about to be rewritten
+				for (Stage next : Stage.values())
+					if (next.compareTo(stage) >= 0)
+						unmarkCompleted(next);
+			}
+
+			logger.info("Starting stage " + stage);
+			StageReport report = new StageReport(stage);
+			switch (stage) {
+				case COOCCURRENCE_EXTRACTION:
+					extractCooccurrences(report);
+					break;
+				case ELEMENT_FEATURE_EXTRACTION:
+					extractElementsFeatures(report);
+					break;
+				case ELEMENT_FEATURE_SCORING:
+					scoreElementsFeatures(report);
+					break;
+				case ELEMENT_SIMILARITY_CALCULATION:
+					calculateElementSimilarities(report);
+					break;
+				case ELEMENT_SIMILARITY_COMBINATION:
+					combineElementSimilarities(report);
+					break;
+			}
+			report.finish();
+			logger.info(report);
+			reports.add(report);
+			markCompleted(stage);
+		}
+
+		logger.info("Model building summary:");
+		for (StageReport report : reports)
+			logger.info(report);
+		return reports;
+	}
+
+	/**
+	 * @return the last stage of the build, i.e., the similarity combination in case the element-similarity-combiner module is defined, and the similarity calculation otherwise
+	 */
+	public Stage getDefaultLastStage() throws ConfigurationException {
+		return confFile.isModuleExist(Configuration.ELEMENT_SIMILARITY_COMBINER) ? Stage.ELEMENT_SIMILARITY_COMBINATION : Stage.ELEMENT_SIMILARITY_CALCULATION;
+	}
+
+	protected void extractCooccurrences(StageReport report) throws Exception {
+		ConfigurationParams extractorParams = confFile.getModuleConfiguration(Configuration.CO_OCCURRENCE_EXTRACTOR);
+		CooccurrencesExtractor<?> extractor = (CooccurrencesExtractor<?>)Factory.create(extractorParams.get(Configuration.EXTRACTOR_CLASS), extractorParams, dataStructureFactory);
+		cooccurrences = extractor.constructCooccurrenceDB(new File(extractorParams.get(Configuration.CORPUS)));
+
+		PersistenceDevice textUnitsDevice = openDevice(Configuration.TEXT_UNITS_STORAGE_DEVICE, false, report);
+		PersistenceDevice cooccurrencesDevice = openDevice(Configuration.CO_OCCURENCES_STORAGE_DEVICE, false, report);
+		cooccurrences.saveState(textUnitsDevice,cooccurrencesDevice);
+		textUnitsDevice.close();
+		cooccurrencesDevice.close();
+	}
+
+	protected void extractElementsFeatures(StageReport report) throws Exception {
+		ConfigurationParams extractorParams = confFile.getModuleConfiguration(Configuration.ELEMENT_FEATURE_EXTRACTOR);
+
+		BasicCooccurrenceStorage cooccurrenceDB = cooccurrences;
+		PersistenceDevice cooccurrencesDevice = null;
+		if (cooccurrenceDB == null) {
+			// the co-occurrences were extracted by a previous run: load the text units, and stream the co-occurrences from their device
+			PersistenceDevice textUnitsDevice = openDevice(Configuration.TEXT_UNITS_STORAGE_DEVICE, true, null);
+			CountableIdentifiableStorage<TextUnit> textUnitStorage = dataStructureFactory.createTextUnitsDataStructure();
+			textUnitStorage.loadState(textUnitsDevice);
+			textUnitsDevice.close();
+			cooccurrencesDevice = openDevice(Configuration.CO_OCCURENCES_STORAGE_DEVICE, true, null);
+			cooccurrenceDB = new DeviceBasedCooccurrenceStorage(textUnitStorage,cooccurrencesDevice);
+		}
+
+		ElementFeatureExtractor<?> extractor = new GeneralElementFeatureExtractor(extractorParams.getInt(Configuration.THREAD_NUM),dataStructureFactory,extractorParams);
+		if (confFile.isModuleExist(Configuration.PREV_ELEMENTS_STORAGE_DEVICE)) {
+			PersistenceDevice prevElementsDevice = openDevice(Configuration.PREV_ELEMENTS_STORAGE_DEVICE, true, null);
+			CountableIdentifiableStorage<Element> elements = dataStructureFactory.createElementsDataStucture();
+			elements.loadState(prevElementsDevice);
+			prevElementsDevice.close();
+			elements.resetCounts();
+			logger.info("Using previous elements");
+			if (confFile.isModuleExist(Configuration.PREV_FEATURES_STORAGE_DEVICE)) {
+				PersistenceDevice prevFeaturesDevice = openDevice(Configuration.PREV_FEATURES_STORAGE_DEVICE, true, null);
+				CountableIdentifiableStorage<Feature> features = dataStructureFactory.createFeaturesDataStucture();
+				features.loadState(prevFeaturesDevice);
+				prevFeaturesDevice.close();
+				features.resetCounts();
+				logger.info("Using previous features");
+				elementFeatureCounts = extractor.constructElementFeatureDB(cooccurrenceDB, elements, features);
+			} else
+				elementFeatureCounts = extractor.constructElementFeatureDB(cooccurrenceDB, elements);
+		} else
+			elementFeatureCounts = extractor.constructElementFeatureDB(cooccurrenceDB);
+
+		if (cooccurrencesDevice != null)
+			cooccurrencesDevice.close();
+		// the co-occurrences are not required by the next stages
+		cooccurrences = null;
+
+		PersistenceDevice elementsDevice = openDevice(Configuration.ELEMENTS_STORAGE_DEVICE, false, report);
+		PersistenceDevice featuresDevice = openDevice(Configuration.FEATURES_STORAGE_DEVICE, false, report);
+		PersistenceDevice elementFeatureCountsDevice = openDevice(Configuration.ELEMENT_FEATURE_COUNTS_STORAGE_DEVICE, false, report);
+		PersistenceDevice featureElementsDevice = openDevice(Configuration.FEATURE_ELEMENTS_STORAGE_DEVICE, false, report);
+		try {
+			elementFeatureCounts.saveState(elementsDevice,featuresDevice,elementFeatureCountsDevice,featureElementsDevice);
+		} finally {
+			// in the external-memory mode, the joint counts were merged directly to the devices, and are reloaded by the scoring stage
+			if (elementFeatureCounts instanceof SortedRunsElementFeatureCountStorage) {
+				((SortedRunsElementFeatureCountStorage)elementFeatureCounts).delete();
+				elementFeatureCounts = null;
+			}
+		}
+		elementsDevice.close();
+		featuresDevice.close();
+		elementFeatureCountsDevice.close();
+		featureElementsDevice.close();
+	}
+
+	protected void scoreElementsFeatures(StageReport report) throws Exception {
+		ConfigurationParams scorerParams = confFile.getModuleConfiguration(Configuration.ELEMENT_FEATURE_SCORING);
+
+		ElementFeatureCountStorage counts = elementFeatureCounts;
+		if (counts == null) {
+			PersistenceDevice elementsDevice = openDevice(Configuration.ELEMENTS_STORAGE_DEVICE, true, null);
+			PersistenceDevice featuresDevice = openDevice(Configuration.FEATURES_STORAGE_DEVICE, true, null);
+			PersistenceDevice elementFeatureCountsDevice = openDevice(Configuration.ELEMENT_FEATURE_COUNTS_STORAGE_DEVICE, true, null);
+			PersistenceDevice featureElementsDevice = openDevice(Configuration.FEATURE_ELEMENTS_STORAGE_DEVICE, true, null);
+			CountableIdentifiableStorage<Element> elements = dataStructureFactory.createElementsDataStucture();
+			elements.loadState(elementsDevice);
+			CountableIdentifiableStorage<Feature> features = dataStructureFactory.createFeaturesDataStucture();
+			features.loadState(featuresDevice);
+			IDKeyPersistentBasicMap<BasicMap<Integer,Double>> elementFeatureCountsMap = dataStructureFactory.createElementFeatureCountsDataStructure();
+			elementFeatureCountsMap.loadState(elementFeatureCountsDevice);
+			IDKeyPersistentBasicMap<BasicSet<Integer>> featureElements = dataStructureFactory.createFeatureElementsDataStructure();
+			featureElements.loadState(featureElementsDevice);
+			counts = new DefaultElementFeatureCountStorage(elements,features,elementFeatureCountsMap,featureElements);
+			elementsDevice.close();
+			featuresDevice.close();
+			elementFeatureCountsDevice.close();
+			featureElementsDevice.close();
+			logger.info("Finshed loading element-feature count storage");
+		}
+
+		int minFeaturesSize = GeneralElementFeatureScorer.DEFAULT_MIN_FEATURES_SIZE;
+		if (scorerParams.containsKey(Configuration.MIN_FEATURES_SIZE))
+			minFeaturesSize = scorerParams.getInt(Configuration.MIN_FEATURES_SIZE);
+		logger.info("minFeaturesSize: " + minFeaturesSize);
+
+		IDKeyPersistentBasicMap<BasicSet<Integer>> truncatedFeatureElements = dataStructureFactory.createFeatureElementsDataStructure();
+		ElementFeatureScorer scorer = new GeneralElementFeatureScorer(scorerParams.getInt(Configuration.THREAD_NUM), scorerParams, truncatedFeatureElements, dataStructureFactory, minFeaturesSize);
+		PersistenceDevice elementFeatureScoresDevice = openDevice(Configuration.ELEMENT_FEATURE_SCORES_STORAGE_DEVICE, false, report);
+		PersistenceDevice elementScoresDevice = openDevice(Configuration.ELEMENT_SCORES_STORAGE_DEVICE, false, report);
+		scorer.scoreElementsFeatures(counts,elementFeatureScoresDevice,elementScoresDevice);
+		elementFeatureScoresDevice.close();
+		elementScoresDevice.close();
+
+		if (confFile.isModuleExist(Configuration.TRUNCATED_FEATURE_ELEMENTS_STORAGE_DEVICE)) {
+			PersistenceDevice truncatedFeatureElementsDevice = openDevice(Configuration.TRUNCATED_FEATURE_ELEMENTS_STORAGE_DEVICE, false, report);
+			truncatedFeatureElements.saveState(truncatedFeatureElementsDevice);
+			truncatedFeatureElementsDevice.close();
+			similarityFeatureElements = truncatedFeatureElements;
+		} else
+			similarityFeatureElements = counts.getFeatureElementsMapping();
+
+		// the element-feature counts are not required by the next stages
+		elementFeatureCounts = null;
+	}
+
+	protected void calculateElementSimilarities(StageReport report) throws Exception {
+		ConfigurationParams similarityCalculatorParams = confFile.getModuleConfiguration(Configuration.ELEMENT_SIMILARITY_CLACULATOR);
+
+		ElementFeatureScoreStorage elementFeatureScoreStorage = similarityCalculatorParams.containsKey(Configuration.MAPPED_SCORES_FILE) ?
+				buildMappedElementFeatureScoreStorage(new File(similarityCalculatorParams.get(Configuration.MAPPED_SCORES_FILE))) :
+				loadElementFeatureScoreStorage();
+		logger.info("Finshed loading storage");
+
+		ElementSimilarityCalculator similator = (ElementSimilarityCalculator)Factory.create(similarityCalculatorParams.get(Configuration.CLASS), similarityCalculatorParams);
+		PersistenceDevice similaritiesOutR2LDevice = null;
+		if (confFile.isModuleExist(Configuration.ELEMENTS_SIMILARITIES_R2L_STORAGE_DEVICE))
+			similaritiesOutR2LDevice = openDevice(Configuration.ELEMENTS_SIMILARITIES_R2L_STORAGE_DEVICE, false, report);
+		else
+			logger.info("R2L device is not defined");
+		PersistenceDevice similaritiesOutL2RDevice = openDevice(Configuration.ELEMENTS_SIMILARITIES_L2R_STORAGE_DEVICE, false, report);
+
+		ConfigurationParams elementFeatureScoresParams = confFile.getModuleConfiguration(Configuration.ELEMENT_FEATURE_SCORES_STORAGE_DEVICE);
+		if (similator instanceof GeneralElementSimilarityCalculator && elementFeatureScoresParams.containsKey(Configuration.START_ELEMENT_ID))
+			((GeneralElementSimilarityCalculator)similator).measureElementSimilarity(elementFeatureScoreStorage,similaritiesOutR2LDevice,similaritiesOutL2RDevice,elementFeatureScoresParams.getInt(Configuration.START_ELEMENT_ID));
+		else
+			similator.measureElementSimilarity(elementFeatureScoreStorage,similaritiesOutR2LDevice,similaritiesOutL2RDevice);
+
+		if (similaritiesOutR2LDevice != null)
+			similaritiesOutR2LDevice.close();
+		similaritiesOutL2RDevice.close();
+		if (elementFeatureScoreStorage instanceof MappedElementFeatureScoreStorage)
+			((MappedElementFeatureScoreStorage)elementFeatureScoreStorage).close();
+	}
+
+	protected ElementFeatureScoreStorage loadElementFeatureScoreStorage() throws Exception {
+		// the element-feature scores are written by the scoring stage directly to their devices, and are loaded from there
+		PersistenceDevice elementFeatureScoresDevice = openDevice(Configuration.ELEMENT_FEATURE_SCORES_STORAGE_DEVICE, true, null);
+		IDKeyPersistentBasicMap<LinkedHashMap<Integer, Double>> elementFeatureScores = dataStructureFactory.createElementFeatureScoresDataStructure();
+		elementFeatureScores.loadState(elementFeatureScoresDevice);
+		elementFeatureScoresDevice.close();
+		PersistenceDevice elementScoresDevice = openDevice(Configuration.ELEMENT_SCORES_STORAGE_DEVICE, true, null);
+		IDKeyPersistentBasicMap<Double> elementScores = dataStructureFactory.createElementScoresDataStructure();
+		elementScores.loadState(elementScoresDevice);
+		elementScoresDevice.close();
+
+		IDKeyPersistentBasicMap<BasicSet<Integer>> featureElements = similarityFeatureElements;
+		if (featureElements == null) {
+			// the truncated feature-elements are preferred, in case they were saved by the scoring stage
+			PersistenceDevice featureElementsDevice = openDevice(
+					confFile.isModuleExist(Configuration.TRUNCATED_FEATURE_ELEMENTS_STORAGE_DEVICE) ? Configuration.TRUNCATED_FEATURE_ELEMENTS_STORAGE_DEVICE : Configuration.FEATURE_ELEMENTS_STORAGE_DEVICE,
+					true, null);
+			featureElements = dataStructureFactory.createFeatureElementsDataStructure();
+			featureElements.loadState(featureElementsDevice);
+			featureElementsDevice.close();
+		}
+		similarityFeatureElements = null;
+		return new DefaultElementFeatureScoreStorage(elementFeatureScores,elementScores,featureElements);
+	}
+
+	/**
+	 * Stream the element-feature scores, the element scores and the feature elements to a memory-mapped file, with no loading of them to the heap,
+	 * and map the file
+	 */
+	protected ElementFeatureScoreStorage buildMappedElementFeatureScoreStorage(File file) throws Exception {
+		PersistenceDevice elementFeatureScoresDevice = openDevice(Configuration.ELEMENT_FEATURE_SCORES_STORAGE_DEVICE, true, null);
+		PersistenceDevice elementScoresDevice = openDevice(Configuration.ELEMENT_SCORES_STORAGE_DEVICE, true, null);
+		if (similarityFeatureElements == null) {
+			PersistenceDevice featureElementsDevice = openDevice(
+					confFile.isModuleExist(Configuration.TRUNCATED_FEATURE_ELEMENTS_STORAGE_DEVICE) ? Configuration.TRUNCATED_FEATURE_ELEMENTS_STORAGE_DEVICE : Configuration.FEATURE_ELEMENTS_STORAGE_DEVICE,
+					true, null);
+			MappedElementFeatureScoreFileWriter.build(file, elementFeatureScoresDevice, elementScoresDevice, featureElementsDevice);
+			featureElementsDevice.close();
+		} else {
+			MappedElementFeatureScoreFileWriter writer = new MappedElementFeatureScoreFileWriter(file);
+			boolean bClosed = false;
+			try {
+				Pair<Integer, Serializable> pair = null;
+				while ((pair = elementFeatureScoresDevice.read()) != null) {
+					@SuppressWarnings("unchecked")
+					Map<Integer, Double> featureScores = (Map<Integer, Double>)pair.getSecond();
+					writer.writeElementFeatureScores(pair.getFirst(), featureScores);
+				}
+				while ((pair = elementScoresDevice.read()) != null)
+					writer.writeElementScore(pair.getFirst(), (Double)pair.getSecond());
+				ImmutableIterator<Pair<Integer, BasicSet<Integer>>> it = similarityFeatureElements.iterator();
+				while (it.hasNext()) {
+					Pair<Integer, BasicSet<Integer>> featureElements = it.next();
+					writer.writeFeatureElements(featureElements.getFirst(), featureElements.getSecond());
+				}
+				writer.close();
+				bClosed = true;
+			} finally {
+				if (!bClosed)
+					writer.abort();
+			}
+			similarityFeatureElements = null;
+		}
+		elementFeatureScoresDevice.close();
+		elementScoresDevice.close();
+		return new MappedElementFeatureScoreStorage(file);
+	}
+
+	protected void combineElementSimilarities(StageReport report) throws Exception {
+		ConfigurationParams similarityCombinerParams = confFile.getModuleConfiguration(Configuration.ELEMENT_SIMILARITY_COMBINER);
+		ElementSimilarityCombiner combiner = (ElementSimilarityCombiner)Factory.create(similarityCombinerParams.get(Configuration.CLASS),similarityCombinerParams);
+		String storageClass = similarityCombinerParams.get(Configuration.STORAGE_DEVICE_CLASS);
+		boolean bSort = similarityCombinerParams.containsKey(Configuration.IS_SORTED) && !similarityCombinerParams.getBoolean(Configuration.IS_SORTED);
+		String tmpSortDir = similarityCombinerParams.containsKey(Configuration.TMP_DIR) ? similarityCombinerParams.get(Configuration.TMP_DIR) : "";
+		SimilarityCombination similarityCombination = (SimilarityCombination)Factory.create(similarityCombinerParams.get(Configuration.SIMILARITY_COMBINATION_CLASS),similarityCombinerParams);
+
+		List<PersistenceDevice> similarityStorageDevices = new LinkedList<PersistenceDevice>();
+		for (String infile : similarityCombinerParams.getStringArray(Configuration.IN_FILES)) {
+			File file = new File(infile);
+			if (bSort) {
+				if (OS.isWindows())
+					throw new Exception("numeric sort of files is not supported at Windows");
+				file = new File(infile + ".sorted");
+				SortUtil.sortFile(new File(infile),file,true,tmpSortDir);
+			}
+			similarityStorageDevices.add((PersistenceDevice)Factory.create(storageClass,file,true));
+		}
+		PersistenceDevice combinedDevice = report.count(Configuration.OUT_COMBINED_FILE, (PersistenceDevice)Factory.create(storageClass,new File(similarityCombinerParams.getString(Configuration.OUT_COMBINED_FILE)),false));
+
+		combinedDevice.open();
+		for (PersistenceDevice device : similarityStorageDevices)
+			device.open();
+		combiner.combinedScores(similarityStorageDevices,similarityCombination,combinedDevice);
+		for (PersistenceDevice device : similarityStorageDevices)
+			device.close();
+		combinedDevice.close();
+	}
+
+	/**
+	 * Creates and opens the persistence device, defined by the given module.
+	 * The read-write mode of the device is determined by the given bRead, since the same module defines the device both for the stage which writes it and for the stage which reads it.
+	 *
+	 * @param report a report of the current stage, which counts the records written to the device, or null
+	 */
+	protected PersistenceDevice openDevice(String moduleName, boolean bRead, StageReport report) throws ConfigurationException, CreationException, IOException {
+		ConfigurationParams deviceParams = confFile.getModuleConfiguration(moduleName);
+		deviceParams.put(Configuration.READ_WRITE, bRead ? "read" : "write");
+		PersistenceDevice device = (PersistenceDevice)Factory.create(deviceParams.get(Configuration.CLASS), deviceParams);
+		if (report != null)
+			device = report.count(moduleName, device);
+		device.open();
+		return device;
+	}
+
+	protected boolean isCompleted(Stage stage) {
+		return checkpointDir != null && getMarkerFile(stage).exists();
+	}
+
+	protected void markCompleted(Stage stage) throws IOException {
+		if (checkpointDir != null)
+			getMarkerFile(stage).createNewFile();
+	}
+
+	protected void unmarkCompleted(Stage stage) throws IOException {
+		if (checkpointDir != null) {
+			File marker = getMarkerFile(stage);
+			if (marker.exists() && !marker.delete())
+				throw new IOException("Cannot delete the checkpoint marker " + marker);
+		}
+	}
+
+	protected File getMarkerFile(Stage stage) {
+		return new File(checkpointDir, stage.name().toLowerCase() + ".completed");
+	}
+
+	protected final ConfigurationFile confFile;
+	protected final DataStructureFactory dataStructureFactory;
+	protected final File checkpointDir;
+
+	// storages which are passed in memory from one stage to the next one
+	protected CooccurrenceStorage cooccurrences = null;
+	protected ElementFeatureCountStorage elementFeatureCounts = null;
+	protected IDKeyPersistentBasicMap<BasicSet<Integer>> similarityFeatureElements = null;
+
+	/**
+	 * The running time, heap memory and output sizes of one stage
+	 */
+	public static class StageReport {
+
+		StageReport(Stage stage) {
+			this.stage = stage;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+				pool.resetPeakUsage();
+			this.startTime = System.currentTimeMillis();
+		}
+
+		/**
+		 * Wraps the given device, such that the records written to it are counted
+		 */
+		PersistenceDevice count(String name, PersistenceDevice device) {
+			CountingPersistenceDevice countingDevice = new CountingPersistenceDevice(device);
+			writtenRecords.put(name, countingDevice.count);
+			return countingDevice;
+		}
+
+		void finish() {
+			time = System.currentTimeMillis() - startTime;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+				if (pool.getType() == MemoryType.HEAP)
+					peakHeap += pool.getPeakUsage().getUsed();
+			Runtime runtime = Runtime.getRuntime();
+			finalHeap = runtime.totalMemory() - runtime.freeMemory();
+		}
+
+		public Stage getStage() {
+			return stage;
+		}
+
+		/**
+		 * @return the running time of the stage, in milliseconds
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * @return the peak heap usage during the stage, in bytes
+		 */
+		public long getPeakHeap() {
+			return peakHeap;
+		}
+
+		/**
+		 * @return the heap usage at the end of the stage, in bytes
+		 */
+		public long getFinalHeap() {
+			return finalHeap;
+		}
+
+		/**
+		 * @return the number of records written to each output device, by the name of its module
+		 */
+		public Map<String, AtomicLong> getWrittenRecords() {
+			return writtenRecords;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(String.format("%s: %,.1f seconds, peak heap %,d MB, heap at end %,d MB", stage, time / 1000.0, peakHeap / MB, finalHeap / MB));
+			for (Map.Entry<String, AtomicLong> entry : writtenRecords.entrySet())
+				sb.append(String.format(", %s: %,d records", entry.getKey(), entry.getValue().get()));
+			return sb.toString();
+		}
+
+		private static final long MB = 1024 * 1024;
+
+		protected final Stage stage;
+		protected final long startTime;
+		protected long time = 0;
+		protected long peakHeap = 0;
+		protected long finalHeap = 0;
+		protected final Map<String, AtomicLong> writtenRecords = new LinkedHashMap<String, AtomicLong>();
+	}
+
+	/**
+	 * A persistence device which delegates to a given device, and counts the written records
+	 */
+	static class CountingPersistenceDevice implements PersistenceDevice {
+
+		CountingPersistenceDevice(PersistenceDevice device) {
+			this.device = device;
+		}
+
+		@Override
+		public void open() throws IOException {
+			device.open();
+		}
+
+		@Override
+		public void write(int id, Serializable data) throws SerializationException, IOException {
+			device.write(id, data);
+			count.incrementAndGet();
+		}
+
+		@Override
+		public Pair<Integer, Serializable> read() throws SerializationException, IOException {
+			return device.read();
+		}
+
+		@Override
+		public PersistenceDeviceType getType() {
+			return device.getType();
+		}
+
+		@Override
+		public void close() throws IOException {
+			device.close();
+		}
+
+		protected final PersistenceDevice device;
+		protected final AtomicLong count = new AtomicLong();
+	}
+
+	public static void main(String[] args) {
+		try {
+			if (args.length < 1 || args.length > 3) {
+				System.err.println("Usage: BuildModel <configuration file> [<first stage> [<last stage>]]\n\tstages: " + Arrays.toString(Stage.values()));
+				System.exit(0);
+			}
+
+			ConfigurationFile confFile = new ConfigurationFile(new ImplCommonConfig(new File(args[0])));
+			ConfigurationParams loggingParams = confFile.getModuleConfiguration(Configuration.LOGGING);
+			PropertyConfigurator.configure(loggingParams.get(Configuration.PROPERTIES_FILE));
+
+			BuildModel buildModel = new BuildModel(confFile);
+			Stage firstStage = (args.length > 1 ? Stage.valueOf(args[1]) : null);
+			Stage lastStage = (args.length > 2 ? Stage.valueOf(args[2]) : buildModel.getDefaultLastStage());
+			buildModel.build(firstStage, lastStage);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
 	}
 }
@@ -0,0 +1,59 @@
+package eu.excitementproject.eop.distsim.application;
+
+import java.io.File;
+import java.io.Serializable;
+
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationFile;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.distsim.storage.PersistenceDevice;
+import eu.excitementproject.eop.distsim.util.Configuration;
+import eu.excitementproject.eop.distsim.util.Factory;
+import eu.excitementproject.eop.distsim.util.Pair;
+
+/**
+ * Copies the items of a stored persistence device (e.g., a file or a Redis db of elements, features, or element-feature counts)
+ * to another device, in order to convert items, stored by the Java serialization, to the binary encoding of
+ * {@link eu.excitementproject.eop.distsim.util.BinaryCodecs}.
+ * <p>
+ * The source and the target devices are defined by two modules of the given configuration file.
+ * Items with no registered codec are copied as is.
+ * <p>
+ * Usage: MigrateSerializedStorage &lt;configuration file&gt; &lt;source device module&gt; &lt;target device module&gt;
+ *
+ * @author agent
+ * @since 18/10/2026
+ *
+ */
+public class MigrateSerializedStorage {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length != 3) {
+			System.err.println("Usage: MigrateSerializedStorage <configuration file> <source device module> <target device module>");
+			System.exit(0);
+		}
+
+		ConfigurationFile confFile = new ConfigurationFile(new ImplCommonConfig(new File(args[0])));
+		PersistenceDevice source = openDevice(confFile.getModuleConfiguration(args[1]), true);
+		PersistenceDevice target = openDevice(confFile.getModuleConfiguration(args[2]), false);
+
+		long items = 0;
+		Pair<Integer, Serializable> item = null;
+		while ((item = source.read()) != null) {
+			target.write(item.getFirst(), item.getSecond());
+			items++;
+			if (items % 1000000 == 0)
+				System.out.println(items + " items were migrated");
+		}
+		source.close();
+		target.close();
+		System.out.println(items + " items were migrated from " + args[1] + " to " + args[2]);
+	}
+
+	protected static PersistenceDevice openDevice(ConfigurationParams deviceParams, boolean bRead) throws Exception {
+		deviceParams.put(Configuration.READ_WRITE, bRead ? "read" : "write");
+		PersistenceDevice device = (PersistenceDevice)Factory.create(deviceParams.get(Configuration.CLASS), deviceParams);
+		device.open();
+		return device;
+	}
+}
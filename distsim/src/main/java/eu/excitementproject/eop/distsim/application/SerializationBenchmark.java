@@ -0,0 +1,127 @@
+package eu.excitementproject.eop.distsim.application;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import eu.excitementproject.eop.common.representation.partofspeech.CanonicalPosTag;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationFile;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.distsim.items.LemmaPos;
+import eu.excitementproject.eop.distsim.items.LemmaPosBasedElement;
+import eu.excitementproject.eop.distsim.items.PredicateElement;
+import eu.excitementproject.eop.distsim.storage.PersistenceDevice;
+import eu.excitementproject.eop.distsim.storage.TroveBasedBasicIntSet;
+import eu.excitementproject.eop.distsim.storage.TroveBasedIDKeyPersistentBasicMap;
+import eu.excitementproject.eop.distsim.util.Configuration;
+import eu.excitementproject.eop.distsim.util.Factory;
+import eu.excitementproject.eop.distsim.util.Pair;
+import eu.excitementproject.eop.distsim.util.Serialization;
+
+/**
+ * Compares the Java serialization of stored items with their binary encoding ({@link eu.excitementproject.eop.distsim.util.BinaryCodecs}):
+ * the average size of a serialized item (in bytes) and the average time of its serialization and deserialization (in nanoseconds), for each item class.
+ * <p>
+ * The items are read from a given persistence device, or generated, when no device is given.
+ * <p>
+ * Usage: SerializationBenchmark [&lt;configuration file&gt; &lt;device module&gt;]
+ *
+ * @author agent
+ * @since 18/10/2026
+ *
+ */
+public class SerializationBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length != 0 && args.length != 2) {
+			System.err.println("Usage: SerializationBenchmark [<configuration file> <device module>]");
+			System.exit(0);
+		}
+
+		Map<Class<?>, List<Serializable>> class2items = new LinkedHashMap<Class<?>, List<Serializable>>();
+		if (args.length == 2) {
+			ConfigurationFile confFile = new ConfigurationFile(new ImplCommonConfig(new File(args[0])));
+			ConfigurationParams deviceParams = confFile.getModuleConfiguration(args[1]);
+			deviceParams.put(Configuration.READ_WRITE, "read");
+			PersistenceDevice device = (PersistenceDevice)Factory.create(deviceParams.get(Configuration.CLASS), deviceParams);
+			device.open();
+			Pair<Integer, Serializable> item = null;
+			int items = 0;
+			while (items < MAX_ITEMS && (item = device.read()) != null) {
+				addItem(class2items, item.getSecond());
+				items++;
+			}
+			device.close();
+		} else
+			generateItems(class2items);
+
+		System.out.println(String.format("%-40s%10s%17s%17s%17s%17s%17s%17s", "Class", "Items",
+				"Java bytes", "Binary bytes", "Java ser ns", "Binary ser ns", "Java deser ns", "Binary deser ns"));
+		for (Map.Entry<Class<?>, List<Serializable>> entry : class2items.entrySet()) {
+			List<Serializable> items = entry.getValue();
+			double[] java = measure(items, true);
+			double[] binary = measure(items, false);
+			System.out.println(String.format("%-40s%10d%17.1f%17.1f%17.0f%17.0f%17.0f%17.0f", entry.getKey().getSimpleName(), items.size(),
+					java[0], binary[0], java[1], binary[1], java[2], binary[2]));
+		}
+	}
+
+	/**
+	 * @return the average size of a serialized item, the average serialization time and the average deserialization time
+	 */
+	protected static double[] measure(List<Serializable> items, boolean bJava) throws Exception {
+		List<String> serializations = new ArrayList<String>(items.size());
+		// warm up
+		for (Serializable item : items)
+			Serialization.deserialize(bJava ? Serialization.javaSerialize(item) : Serialization.serialize(item));
+
+		long start = System.nanoTime();
+		for (Serializable item : items)
+			serializations.add(bJava ? Serialization.javaSerialize(item) : Serialization.serialize(item));
+		long serializationTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (String serialization : serializations)
+			Serialization.deserialize(serialization);
+		long deserializationTime = System.nanoTime() - start;
+
+		long bytes = 0;
+		for (String serialization : serializations)
+			bytes += serialization.length();
+		return new double[] {(double)bytes / items.size(), (double)serializationTime / items.size(), (double)deserializationTime / items.size()};
+	}
+
+	protected static void addItem(Map<Class<?>, List<Serializable>> class2items, Serializable item) {
+		List<Serializable> items = class2items.get(item.getClass());
+		if (items == null) {
+			items = new ArrayList<Serializable>();
+			class2items.put(item.getClass(), items);
+		}
+		items.add(item);
+	}
+
+	protected static void generateItems(Map<Class<?>, List<Serializable>> class2items) {
+		Random random = new Random(0);
+		CanonicalPosTag[] tags = CanonicalPosTag.values();
+		for (int i = 0; i < GENERATED_ITEMS; i++) {
+			addItem(class2items, new LemmaPosBasedElement(new LemmaPos("lemma" + random.nextInt(100000), tags[random.nextInt(tags.length)]), i, 1 + random.nextInt(10000)));
+			addItem(class2items, new PredicateElement("X subj " + random.nextInt(100000) + " obj Y", i, 1 + random.nextInt(10000)));
+			TroveBasedIDKeyPersistentBasicMap<Double> featureCounts = new TroveBasedIDKeyPersistentBasicMap<Double>();
+			TroveBasedBasicIntSet featureElements = new TroveBasedBasicIntSet();
+			for (int j = 0; j < 50; j++) {
+				featureCounts.put(random.nextInt(1000000), (double)(1 + random.nextInt(100)));
+				featureElements.add(random.nextInt(1000000));
+			}
+			addItem(class2items, featureCounts);
+			addItem(class2items, featureElements);
+		}
+	}
+
+	protected static final int MAX_ITEMS = 100000;
+	protected static final int GENERATED_ITEMS = 10000;
+}
@@ -85,6 +85,20 @@ public class BasicVectorTruncate implements VectorTruncate {
 		return ret;
 	}
 	
+	/**
+	 * @return the maximal size of the truncated vectors
+	 */
+	public int getTopN() {
+		return topN;
+	}
+
+	/**
+	 * @return the percent of the elements of a vector which are kept by the truncation
+	 */
+	public double getPercent() {
+		return percent;
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
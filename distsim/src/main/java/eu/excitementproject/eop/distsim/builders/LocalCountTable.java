@@ -0,0 +1,85 @@
+package eu.excitementproject.eop.distsim.builders;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.excitementproject.eop.distsim.items.Externalizable;
+import eu.excitementproject.eop.distsim.items.UndefinedKeyException;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+/**
+ * A table of items and their counts, owned by one extraction thread, where each distinct item (according to its key) is assigned a local id: 0, 1, 2...
+ * <p>
+ * The table lets the thread count items without any synchronization. The collected items are then added, with their total counts,
+ * to a shared {@link eu.excitementproject.eop.distsim.storage.CountableIdentifiableStorage}, and the table is cleared.
+ * <p>
+ * Not thread-safe
+ *
+ * @author agent
+ * @since 18/10/2026
+ *
+ * @param <T> the type of the counted items
+ */
+public class LocalCountTable<T extends Externalizable> {
+
+	/**
+	 * Adds the given count to the count of the given item, and returns the local id of the item
+	 *
+	 * @param item an item to be counted. The first instance of each distinct item is kept by the table
+	 * @param count the count to be added
+	 * @return the local id of the item
+	 */
+	public int add(T item, double count) throws UndefinedKeyException {
+		String key = item.toKey();
+		int id = key2id.get(key);
+		if (id == NO_ID) {
+			id = items.size();
+			key2id.put(key, id);
+			items.add(item);
+			counts.add(count);
+		} else
+			counts.setQuick(id, counts.getQuick(id) + count);
+		return id;
+	}
+
+	/**
+	 * @return the local id of the given item, or -1 if the item was not added to the table
+	 */
+	public int getId(T item) throws UndefinedKeyException {
+		return key2id.get(item.toKey());
+	}
+
+	/**
+	 * @return the (first instance of the) item, assigned to the given local id
+	 */
+	public T getItem(int id) {
+		return items.get(id);
+	}
+
+	/**
+	 * @return the total count of the item, assigned to the given local id
+	 */
+	public double getCount(int id) {
+		return counts.getQuick(id);
+	}
+
+	/**
+	 * @return the number of distinct items in the table
+	 */
+	public int size() {
+		return items.size();
+	}
+
+	public void clear() {
+		key2id.clear();
+		items.clear();
+		counts.resetQuick();
+	}
+
+	protected static final int NO_ID = -1;
+
+	protected final TObjectIntHashMap<String> key2id = new TObjectIntHashMap<String>(10, 0.5f, NO_ID);
+	protected final List<T> items = new ArrayList<T>();
+	protected final TDoubleArrayList counts = new TDoubleArrayList();
+}
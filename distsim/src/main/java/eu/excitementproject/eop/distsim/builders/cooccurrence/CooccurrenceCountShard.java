@@ -0,0 +1,97 @@
+package eu.excitementproject.eop.distsim.builders.cooccurrence;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.excitementproject.eop.distsim.builders.LocalCountTable;
+import eu.excitementproject.eop.distsim.items.Cooccurrence;
+import eu.excitementproject.eop.distsim.items.IDBasedCooccurrence;
+import eu.excitementproject.eop.distsim.items.TextUnit;
+import eu.excitementproject.eop.distsim.items.UndefinedKeyException;
+import eu.excitementproject.eop.distsim.key.IntsLongEncoder;
+import eu.excitementproject.eop.distsim.storage.CountableIdentifiableStorage;
+import gnu.trove.iterator.TLongDoubleIterator;
+import gnu.trove.map.hash.TLongDoubleHashMap;
+
+/**
+ * The counts of text units and co-occurrences, collected by one thread of {@link GeneralCooccurrenceExtractor}.
+ * <p>
+ * The text units are kept in a {@link LocalCountTable}, and the co-occurrence counts are kept, for each relation, in a primitive map
+ * from the encoding of the local ids of the two text units ({@link IntsLongEncoder#encode(int, int)}) to their joint count.
+ * The shard is merged into the shared storages when it gets large, and at the end of the extraction.
+ * <p>
+ * Not thread-safe
+ *
+ * @author agent
+ * @since 18/10/2026
+ *
+ */
+@SuppressWarnings({"rawtypes","unchecked"})
+class CooccurrenceCountShard {
+
+	/**
+	 * Counts the text units and the co-occurrences, extracted from one sentence
+	 *
+	 * @param count the count of the sentence
+	 */
+	void add(List<? extends TextUnit> textUnits, List<? extends Cooccurrence> cooccurrences, double count) throws UndefinedKeyException, CooccurrenceDBConstructionException {
+		for (TextUnit textUnit : textUnits)
+			this.textUnits.add(textUnit, count);
+		for (Cooccurrence cooccurrence : cooccurrences) {
+			long key = IntsLongEncoder.encode(getLocalId(cooccurrence.getTextItem1()), getLocalId(cooccurrence.getTextItem2()));
+			Object relation = cooccurrence.getRelation().getValue();
+			TLongDoubleHashMap relationCounts = cooccurrenceCounts.get(relation);
+			if (relationCounts == null) {
+				relationCounts = new TLongDoubleHashMap();
+				cooccurrenceCounts.put(relation, relationCounts);
+			}
+			int prevSize = relationCounts.size();
+			relationCounts.adjustOrPutValue(key, count, count);
+			cooccurrencesNum += relationCounts.size() - prevSize;
+		}
+	}
+
+	/**
+	 * @return the number of distinct text units and co-occurrences in the shard
+	 */
+	int size() {
+		return textUnits.size() + cooccurrencesNum;
+	}
+
+	/**
+	 * Adds the counts of the shard to the given storages, and clears the shard
+	 */
+	void mergeInto(CountableIdentifiableStorage<TextUnit> textUnitStorage, CountableIdentifiableStorage<IDBasedCooccurrence> cooccurrenceStorage) throws CooccurrenceDBConstructionException {
+		try {
+			int[] globalIds = new int[textUnits.size()];
+			synchronized (textUnitStorage) {
+				for (int localId = 0; localId < globalIds.length; localId++)
+					globalIds[localId] = textUnitStorage.addData(textUnits.getItem(localId), textUnits.getCount(localId)).getID();
+			}
+			for (Map.Entry<Object, TLongDoubleHashMap> entry : cooccurrenceCounts.entrySet()) {
+				TLongDoubleIterator it = entry.getValue().iterator();
+				while (it.hasNext()) {
+					it.advance();
+					cooccurrenceStorage.addData(new IDBasedCooccurrence(globalIds[IntsLongEncoder.decodeFirst(it.key())], globalIds[IntsLongEncoder.decodeSecond(it.key())], entry.getKey()), it.value());
+				}
+			}
+		} catch (Exception e) {
+			throw new CooccurrenceDBConstructionException(e);
+		}
+		textUnits.clear();
+		cooccurrenceCounts.clear();
+		cooccurrencesNum = 0;
+	}
+
+	protected int getLocalId(TextUnit textUnit) throws UndefinedKeyException, CooccurrenceDBConstructionException {
+		int id = textUnits.getId(textUnit);
+		if (id < 0)
+			throw new CooccurrenceDBConstructionException("The co-occurrence text unit " + textUnit + " is not one of the extracted text units");
+		return id;
+	}
+
+	protected final LocalCountTable<TextUnit> textUnits = new LocalCountTable<TextUnit>();
+	protected final Map<Object, TLongDoubleHashMap> cooccurrenceCounts = new HashMap<Object, TLongDoubleHashMap>();
+	protected int cooccurrencesNum = 0;
+}
@@ -2,13 +2,16 @@ package eu.excitementproject.eop.distsim.builders.cooccurrence;
 
 import java.io.File;
 
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.log4j.Logger;
@@ -57,6 +60,21 @@ public class GeneralCooccurrenceExtractor implements CooccurrencesExtractor {
 
 	public GeneralCooccurrenceExtractor(ConfigurationParams params,DataStructureFactory dataStructureFactory) throws ConfigurationException, CreationException {
 		this.iThreadNum = params.getInt(Configuration.THREAD_NUM);
+		try {
+			this.iReaderThreadNum = params.getInt(Configuration.READER_THREAD_NUM);
+		} catch (ConfigurationException e) {
+			this.iReaderThreadNum = iThreadNum;
+		}
+		try {
+			this.iBlockSize = params.getInt(Configuration.BLOCK_SIZE);
+		} catch (ConfigurationException e) {
+			this.iBlockSize = DEFAULT_BLOCK_SIZE;
+		}
+		try {
+			this.iSpillSize = params.getInt(Configuration.SPILL_SIZE);
+		} catch (ConfigurationException e) {
+			this.iSpillSize = DEFAULT_SPILL_SIZE;
+		}
 		/*if (this.iThreadNum > 1) {
 			logger.warn("Multi-threading is temporarilly not supported - a single thread will be applied instead");
 			this.iThreadNum = 1;
@@ -68,6 +86,11 @@ public class GeneralCooccurrenceExtractor implements CooccurrencesExtractor {
 	
 	/* (non-Javadoc)
 	 * @see org.excitement.distsim.builders.cooccurrence.CooccurrencesExtractor#constructCooccurrenceDB(java.io.File)
+	 * 
+	 * The corpus files are assigned dynamically to reader threads, which split them into blocks of sentences.
+	 * The blocks are assigned dynamically to the collector threads, so a single large file does not stall the extraction.
+	 * Each collector counts its text units and co-occurrences in a private shard, which is merged into the shared storages when it gets large, and at the end.
+	 * In case a collector fails, the readers stop, the other collectors are cancelled, and the failure is thrown.
 	 */
 	@SuppressWarnings("unchecked")
 	@Override
@@ -75,130 +98,186 @@ public class GeneralCooccurrenceExtractor implements CooccurrencesExtractor {
 		
 		try {			 
 						
-			Set<File> files = FileUtils.getFiles(corpus);
-			
-			//tmp
-			//System.out.println("total number of files: " + files.size());
-			
-			int filesPerCollector = files.size() / iThreadNum; 
-			if (files.size() % iThreadNum > 0)
-				filesPerCollector++;
-			Iterator<File> it = files.iterator();
-			ExecutorService executor = Executors.newFixedThreadPool(iThreadNum);
+			Queue<File> files = new ConcurrentLinkedQueue<File>(FileUtils.getFiles(corpus));
+			int iReaders = Math.max(1, Math.min(iReaderThreadNum, files.size()));
+			BlockingQueue<List<Pair<?,Long>>> blocks = new ArrayBlockingQueue<List<Pair<?,Long>>>(BLOCK_QUEUE_SIZE_PER_THREAD * iThreadNum);
 
-			// start the collector tasks
-			for (int i=0;i<iThreadNum; i++) {
-				// construct a set of unique files for each collector
-				Set<File> s = new HashSet<File>();
-				for (int j = 0; j < filesPerCollector; j++) {
-					if (it.hasNext()) {
-						s.add(it.next());
-						it.remove();
-					}
-				}
-				// run the collector
-				executor.execute(new CooccurrenceCollector(s,i));
-			}
-			
+			ExecutorService readers = Executors.newFixedThreadPool(iReaders);
+			for (int i=0;i<iReaders; i++)
+				readers.execute(new SentenceBlockReader(files,blocks,i));
+			ExecutorService executor = Executors.newFixedThreadPool(iThreadNum);
+			for (int i=0;i<iThreadNum; i++)
+				executor.execute(new CooccurrenceCollector(blocks,i));
 			
-			// wait for terminations of all collectors
+			// wait for terminations of all readers, and then of all collectors
 			try {
-				executor.shutdown();
+				readers.shutdown();
+				while (!readers.awaitTermination(1, TimeUnit.DAYS));
+				for (int i=0;i<iThreadNum; i++)
+					if (!putBlock(blocks, END_OF_BLOCKS))
+						break;
+				if (failure.get() == null)
+					executor.shutdown();
+				else
+					executor.shutdownNow();
 				while (!executor.awaitTermination(1, TimeUnit.DAYS));
 			} catch (InterruptedException e) {
+				readers.shutdownNow();
+				executor.shutdownNow();
 				throw new CooccurrenceDBConstructionException(e);
 			}
+			if (failure.get() != null)
+				throw new CooccurrenceDBConstructionException(failure.get());
 			
 			return new DefaultCooccurrenceStorage(textUnitStorage,cooccurrenceStorage);
+		} catch (CooccurrenceDBConstructionException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new CooccurrenceDBConstructionException(e);
 		}
 	}
 	
+	protected static final int DEFAULT_BLOCK_SIZE = 1000;
+	protected static final int DEFAULT_SPILL_SIZE = 1000000;
+	protected static final int BLOCK_QUEUE_SIZE_PER_THREAD = 4;
+	protected static final List<Pair<?,Long>> END_OF_BLOCKS = new ArrayList<Pair<?,Long>>(0);
+	protected static final long PUT_TIMEOUT_SECONDS = 1;
+	
+	/**
+	 * Puts the given block to the queue, waiting for a free space as long as no collector has failed
+	 * 
+	 * @return true if the block was put, false if a collector has failed
+	 */
+	protected boolean putBlock(BlockingQueue<List<Pair<?,Long>>> blocks, List<Pair<?,Long>> block) throws InterruptedException {
+		while (!blocks.offer(block, PUT_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+			if (failure.get() != null)
+				return false;
+		return true;
+	}
+	
 	protected int iThreadNum;	
+	protected int iReaderThreadNum;
+	protected int iBlockSize;
+	protected int iSpillSize;
 	protected final ConfigurationParams confParams;
 	protected CountableIdentifiableStorage<TextUnit> textUnitStorage;
 	protected CountableIdentifiableStorage<IDBasedCooccurrence> cooccurrenceStorage;
+	// the first failure of a collector, which stops the extraction
+	protected final AtomicReference<Exception> failure = new AtomicReference<Exception>();
 
-	class CooccurrenceCollector implements Runnable {
-			
-		private final Logger logger = Logger.getLogger(CooccurrenceCollector.class);
+	/**
+	 * Reads the sentences of the corpus files, taken from a shared queue, and puts them, in blocks, to the given blocks queue  
+	 */
+	class SentenceBlockReader implements Runnable {
 		
-		CooccurrenceCollector(Set<File> files, int id) throws CreationException, ConfigurationException {
+		private final Logger logger = Logger.getLogger(SentenceBlockReader.class);
+		
+		SentenceBlockReader(Queue<File> files, BlockingQueue<List<Pair<?,Long>>> blocks, int id) throws CreationException, ConfigurationException {
 			this.files = files;
+			this.blocks = blocks;
 			this.id = id;
 			this.sentenceReader = (FileBasedSentenceReader) Factory.create(confParams.get(Configuration.SENTENCE_READER_CLASS), confParams);
-			this.cooccurrenceExtraction = (CooccurrenceExtraction) Factory.create(confParams.get(Configuration.EXTRACTION_CLASS), confParams);
-			
-			//tmp
-			//System.out.println("Thread " + id + ": got " + files.size() + " files");
 		}
 		
 		@Override
 		@SuppressWarnings("unchecked")
 		public void run() {
-			logger.info("Thread: " + id);
+			logger.info("Reader thread: " + id);
 			
-			int iSent = 0;
-			for (File file : files) {				
-				//logger.info("Thread: " + id + ", file: " + file.getName());
+			File file;
+			while (failure.get() == null && (file = files.poll()) != null) {
 				try {
 					sentenceReader.setSource(file);
+					List<Pair<?,Long>> block = new ArrayList<Pair<?,Long>>(iBlockSize);
 					Pair<?,Long> sentenceAndCount;
 					while(true) {
-							
 						try {
 							sentenceAndCount =sentenceReader.nextSentence();
 							if (sentenceAndCount == null)
 								break;
 						} catch (SentenceReaderException e){
-							//logger.error(ExceptionUtil.getStackTrace(e));
 							logger.error(e.toString());
 							continue;
 						}
+						block.add(sentenceAndCount);
+						if (block.size() == iBlockSize) {
+							if (!putBlock(blocks, block))
+								break;
+							block = new ArrayList<Pair<?,Long>>(iBlockSize);
+						}
+					}
+					if (!block.isEmpty() && failure.get() == null)
+						putBlock(blocks, block);
+					sentenceReader.closeSource();
+				} catch (InterruptedException e) {
+					logger.error("Reader thread " + id + " was interrupted");
+					return;
+				} catch (Exception e) {
+					logger.error(ExceptionUtils.getStackTrace(e));
+				}
+			}
+		}
+		
+		protected final Queue<File> files;
+		protected final BlockingQueue<List<Pair<?,Long>>> blocks;
+		protected final int id;
+		protected final FileBasedSentenceReader sentenceReader;
+	}
+
+	/**
+	 * Extracts the text units and co-occurrences of the sentence blocks, taken from a shared queue, and counts them in a private shard  
+	 */
+	class CooccurrenceCollector implements Runnable {
+			
+		private final Logger logger = Logger.getLogger(CooccurrenceCollector.class);
+		
+		CooccurrenceCollector(BlockingQueue<List<Pair<?,Long>>> blocks, int id) throws CreationException, ConfigurationException {
+			this.blocks = blocks;
+			this.id = id;
+			this.cooccurrenceExtraction = (CooccurrenceExtraction) Factory.create(confParams.get(Configuration.EXTRACTION_CLASS), confParams);
+		}
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public void run() {
+			logger.info("Thread: " + id);
+			
+			CooccurrenceCountShard shard = new CooccurrenceCountShard();
+			int iSent = 0;
+			try {
+				while (true) {
+					List<Pair<?,Long>> block = blocks.take();
+					if (block == END_OF_BLOCKS)
+						break;
+					for (Pair<?,Long> sentenceAndCount : block) {
 						iSent++;
 						try {
-							
-					
-								
 							Pair<? extends List<? extends TextUnit>, ? extends List<? extends Cooccurrence>> pair = cooccurrenceExtraction.extractCooccurrences(sentenceAndCount.getFirst());							
-							List<? extends TextUnit> textUnits = pair.getFirst();
-							List<? extends Cooccurrence> coOccurrences = pair.getSecond();
-							
-							//check if all text units fit the given set of
-							long count = sentenceAndCount.getSecond();
-							for (TextUnit textUnit : textUnits) {
-								synchronized (textUnitStorage) {
-									TextUnit inserted = textUnitStorage.addData(textUnit,count);
-									textUnit.setID(inserted.getID());
-								}
-							}
-							for (Cooccurrence coOccurrence : coOccurrences) {
-								cooccurrenceStorage.addData(new IDBasedCooccurrence(coOccurrence.getTextItem1().getID(), coOccurrence.getTextItem2().getID(), coOccurrence.getRelation().getValue()),count);
-							}
+							shard.add(pair.getFirst(), pair.getSecond(), sentenceAndCount.getSecond());
 						} catch (UndefinedKeyException e) {
 							logger.info(e.toString() + ". The element/feature is considered insignificant and will be filtered.");
 						} catch (Exception e) {
-							//logger.error(ExceptionUtils.getStackTrace(e));
 							logger.error(e.toString());
 						}
-							
 						
 						if(iSent % 10000 == 0)
-							logger.info("Sentence: " + iSent + " size of text units: "  + textUnitStorage.size());		
-						
-						}
-					sentenceReader.closeSource();
-				} catch (Exception e) {
-					logger.error(ExceptionUtils.getStackTrace(e));
+							logger.info("Thread: " + id + ", sentence: " + iSent + " size of text units: "  + textUnitStorage.size());		
+					}
+					if (shard.size() >= iSpillSize)
+						shard.mergeInto(textUnitStorage, cooccurrenceStorage);
 				}
+				shard.mergeInto(textUnitStorage, cooccurrenceStorage);
+			} catch (InterruptedException e) {
+				// cancelled, following a failure of another collector
+			} catch (Exception e) {
+				logger.error(ExceptionUtils.getStackTrace(e));
+				failure.compareAndSet(null, e);
 			}
 		}
 		
 		protected final CooccurrenceExtraction cooccurrenceExtraction;
-		protected Set<File> files;
-		protected int id;		
-		protected final FileBasedSentenceReader sentenceReader;
+		protected final BlockingQueue<List<Pair<?,Long>>> blocks;
+		protected final int id;		
 	}
 	
 	public static void main(String[] args) {
@@ -0,0 +1,439 @@
+package eu.excitementproject.eop.distsim.builders.elementfeature;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.log4j.Logger;
+
+import eu.excitementproject.eop.distsim.key.IntsLongEncoder;
+import eu.excitementproject.eop.distsim.storage.TroveBasedBasicIntSet;
+import eu.excitementproject.eop.distsim.storage.TroveBasedIDKeyPersistentBasicMap;
+
+import gnu.trove.map.TLongDoubleMap;
+
+/**
+ * A set of sorted binary run files of keys, optionally with counts, where the key is an encoding of two ids ({@link IntsLongEncoder#encode(int, int)}).
+ * <p>
+ * Each run is written from a bounded in-memory map of counts (or set of keys), spilled by an extraction thread, and the runs are then merged into one
+ * sorted stream of keys and their total counts. Since the key is ordered by its first id, the merged stream is grouped by the first id.
+ * At most maxFanIn runs are open at once: in case there are more runs, they are first merged, maxFanIn at a time, into fewer runs.
+ * For a random access by the first id, the runs are merged into one run, which is binary searched.
+ * <p>
+ * The run files are deleted by {@link #delete()}.
+ * The writing of runs and the random access are thread-safe, the merge is not
+ *
+ * @author agent
+ * @since 18/10/2026
+ *
+ */
+class ElementFeatureCountRuns {
+
+	private static final Logger logger = Logger.getLogger(ElementFeatureCountRuns.class);
+
+	/**
+	 * @param tmpDir the directory of the run files
+	 * @param prefix the name prefix of the run files
+	 * @param bCounts whether the records have counts, or just keys
+	 */
+	ElementFeatureCountRuns(File tmpDir, String prefix, boolean bCounts) throws IOException {
+		this(tmpDir, prefix, bCounts, DEFAULT_MAX_FAN_IN);
+	}
+
+	/**
+	 * @param tmpDir the directory of the run files
+	 * @param prefix the name prefix of the run files
+	 * @param bCounts whether the records have counts, or just keys
+	 * @param maxFanIn the maximal number of runs which are merged at once
+	 */
+	ElementFeatureCountRuns(File tmpDir, String prefix, boolean bCounts, int maxFanIn) throws IOException {
+		if (maxFanIn < 2)
+			throw new IllegalArgumentException("The fan-in of the merge should be at least 2: " + maxFanIn);
+		if (!tmpDir.isDirectory() && !tmpDir.mkdirs())
+			throw new IOException("Cannot create the directory " + tmpDir);
+		this.tmpDir = tmpDir;
+		this.prefix = prefix;
+		this.bCounts = bCounts;
+		this.recordSize = bCounts ? 16 : 8;
+		this.maxFanIn = maxFanIn;
+	}
+
+	/**
+	 * Writes the given keys and counts as a new run, sorted by key
+	 */
+	void writeRun(TLongDoubleMap counts) throws IOException {
+		if (!bCounts)
+			throw new IllegalStateException("The runs of " + prefix + " have no counts");
+		if (counts.isEmpty())
+			return;
+		long[] keys = counts.keys();
+		Arrays.sort(keys);
+		File file = File.createTempFile(prefix, ".run", tmpDir);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+			try {
+				for (long key : keys) {
+					out.writeLong(key);
+					out.writeDouble(counts.get(key));
+				}
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			deleteFile(file);
+			throw e;
+		}
+		addRun(file, keys.length);
+	}
+
+	/**
+	 * Writes the given distinct keys as a new run, sorted
+	 */
+	void writeRun(long[] keys) throws IOException {
+		if (bCounts)
+			throw new IllegalStateException("The runs of " + prefix + " have counts");
+		if (keys.length == 0)
+			return;
+		Arrays.sort(keys);
+		File file = File.createTempFile(prefix, ".run", tmpDir);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+			try {
+				for (long key : keys)
+					out.writeLong(key);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			deleteFile(file);
+			throw e;
+		}
+		addRun(file, keys.length);
+	}
+
+	/**
+	 * @return the number of runs written so far
+	 */
+	int size() {
+		synchronized (runs) {
+			return runs.size();
+		}
+	}
+
+	/**
+	 * Opens a merge of all the runs written so far. In case there are more than maxFanIn runs, they are first merged into maxFanIn runs
+	 */
+	Merger merge() throws IOException {
+		synchronized (runs) {
+			reduce(maxFanIn);
+			return new Merger(runs, bCounts);
+		}
+	}
+
+	/**
+	 * @return the second ids of the records of the given first id, with their counts, or null if there are no such records
+	 */
+	TroveBasedIDKeyPersistentBasicMap<Double> getCounts(int firstId) throws IOException {
+		if (!bCounts)
+			throw new IllegalStateException("The runs of " + prefix + " have no counts");
+		ByteBuffer records = readRecords(firstId);
+		if (records == null)
+			return null;
+		TroveBasedIDKeyPersistentBasicMap<Double> counts = new TroveBasedIDKeyPersistentBasicMap<Double>();
+		while (records.hasRemaining())
+			counts.put(IntsLongEncoder.decodeSecond(records.getLong()), records.getDouble());
+		return counts;
+	}
+
+	/**
+	 * @return the second ids of the records of the given first id, or null if there are no such records
+	 */
+	TroveBasedBasicIntSet getSecondIds(int firstId) throws IOException {
+		ByteBuffer records = readRecords(firstId);
+		if (records == null)
+			return null;
+		TroveBasedBasicIntSet ids = new TroveBasedBasicIntSet();
+		while (records.hasRemaining()) {
+			ids.add(IntsLongEncoder.decodeSecond(records.getLong()));
+			if (bCounts)
+				records.getDouble();
+		}
+		return ids;
+	}
+
+	/**
+	 * Deletes the run files
+	 */
+	void delete() {
+		synchronized (runs) {
+			closeConsolidated();
+			for (File file : runs)
+				deleteFile(file);
+			runs.clear();
+		}
+	}
+
+	protected void addRun(File file, int records) {
+		synchronized (runs) {
+			runs.add(file);
+			// a new run invalidates the consolidated one
+			closeConsolidated();
+		}
+		logger.debug("A run of " + records + " records was written to " + file);
+	}
+
+	/**
+	 * Merges the runs, at most maxFanIn at a time, until there are no more than the given number of runs.
+	 * The merged runs are deleted, and their merge is added as a new run.
+	 */
+	protected void reduce(int maxRuns) throws IOException {
+		while (runs.size() > maxRuns) {
+			List<File> group = runs.subList(0, Math.min(maxFanIn, runs.size() - maxRuns + 1));
+			logger.info("Merging " + group.size() + " of " + runs.size() + " runs of " + prefix);
+			File merged = mergeRuns(group);
+			for (File file : group)
+				deleteFile(file);
+			group.clear();
+			runs.add(merged);
+		}
+	}
+
+	/**
+	 * Merges the given runs into a new run file
+	 */
+	protected File mergeRuns(List<File> files) throws IOException {
+		File file = File.createTempFile(prefix, ".run", tmpDir);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+			Merger merger = null;
+			try {
+				merger = new Merger(files, bCounts);
+				while (merger.next()) {
+					out.writeLong(merger.key());
+					if (bCounts)
+						out.writeDouble(merger.count());
+				}
+			} finally {
+				if (merger != null)
+					merger.close();
+				out.close();
+			}
+		} catch (IOException e) {
+			deleteFile(file);
+			throw e;
+		}
+		return file;
+	}
+
+	/**
+	 * Reads the records of the given first id from the consolidated run
+	 *
+	 * @return a buffer of the records, or null if there are no such records
+	 */
+	protected ByteBuffer readRecords(int firstId) throws IOException {
+		FileChannel channel = getConsolidated();
+		if (channel == null)
+			return null;
+		long records = channel.size() / recordSize;
+		ByteBuffer keyBuffer = ByteBuffer.allocate(8);
+
+		// the first record of the given first id
+		long low = 0, high = records;
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (IntsLongEncoder.decodeFirst(readKey(channel, middle, keyBuffer)) < firstId)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		long start = low;
+
+		// the first record of the following first ids
+		high = records;
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (IntsLongEncoder.decodeFirst(readKey(channel, middle, keyBuffer)) <= firstId)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		if (low == start)
+			return null;
+
+		ByteBuffer buffer = ByteBuffer.allocate((int)((low - start) * recordSize));
+		readFully(channel, buffer, start * recordSize);
+		buffer.flip();
+		return buffer;
+	}
+
+	protected long readKey(FileChannel channel, long record, ByteBuffer buffer) throws IOException {
+		buffer.clear();
+		readFully(channel, buffer, record * recordSize);
+		return buffer.getLong(0);
+	}
+
+	protected static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0)
+				throw new EOFException("Unexpected end of the run at " + position);
+			position += read;
+		}
+	}
+
+	/**
+	 * @return a channel of the single run, to which all runs are merged, or null if there are no runs
+	 */
+	protected FileChannel getConsolidated() throws IOException {
+		synchronized (runs) {
+			if (consolidated == null) {
+				reduce(1);
+				if (runs.isEmpty())
+					return null;
+				consolidatedFile = new RandomAccessFile(runs.get(0), "r");
+				consolidated = consolidatedFile.getChannel();
+			}
+			return consolidated;
+		}
+	}
+
+	protected void closeConsolidated() {
+		if (consolidatedFile != null) {
+			try {
+				consolidatedFile.close();
+			} catch (IOException e) {
+				logger.warn("Cannot close the run file: " + e);
+			}
+			consolidatedFile = null;
+			consolidated = null;
+		}
+	}
+
+	protected static void deleteFile(File file) {
+		if (file.exists() && !file.delete())
+			logger.warn("Cannot delete the run file " + file);
+	}
+
+	/**
+	 * Iterates over the distinct keys of the given runs, in ascending order, with their total counts
+	 */
+	static class Merger {
+
+		Merger(List<File> files, boolean bCounts) throws IOException {
+			queue = new PriorityQueue<RunReader>(Math.max(1, files.size()), new Comparator<RunReader>() {
+				@Override
+				public int compare(RunReader r1, RunReader r2) {
+					return r1.key < r2.key ? -1 : (r1.key == r2.key ? 0 : 1);
+				}
+			});
+			try {
+				for (File file : files) {
+					RunReader reader = new RunReader(file, bCounts);
+					if (reader.advance())
+						queue.add(reader);
+					else
+						reader.close();
+				}
+			} catch (IOException e) {
+				close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Moves to the next distinct key
+		 *
+		 * @return false if there are no more keys
+		 */
+		boolean next() throws IOException {
+			if (queue.isEmpty())
+				return false;
+			key = queue.peek().key;
+			count = 0;
+			while (!queue.isEmpty() && queue.peek().key == key) {
+				RunReader reader = queue.poll();
+				count += reader.count;
+				if (reader.advance())
+					queue.add(reader);
+				else
+					reader.close();
+			}
+			return true;
+		}
+
+		long key() {
+			return key;
+		}
+
+		/**
+		 * @return the total count of the current key, or 0 for runs with no counts
+		 */
+		double count() {
+			return count;
+		}
+
+		void close() throws IOException {
+			while (!queue.isEmpty())
+				queue.poll().close();
+		}
+
+		protected final PriorityQueue<RunReader> queue;
+		protected long key;
+		protected double count;
+	}
+
+	static class RunReader {
+
+		RunReader(File file, boolean bCounts) throws IOException {
+			this.bCounts = bCounts;
+			this.remaining = file.length() / (bCounts ? 16 : 8);
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+		}
+
+		boolean advance() throws IOException {
+			if (remaining == 0)
+				return false;
+			key = in.readLong();
+			if (bCounts)
+				count = in.readDouble();
+			remaining--;
+			return true;
+		}
+
+		void close() throws IOException {
+			in.close();
+		}
+
+		protected final boolean bCounts;
+		protected final DataInputStream in;
+		protected long remaining;
+		protected long key;
+		protected double count;
+	}
+
+	protected static final int BUFFER_SIZE = 1 << 16;
+	protected static final int DEFAULT_MAX_FAN_IN = 64;
+
+	protected final File tmpDir;
+	protected final String prefix;
+	protected final boolean bCounts;
+	protected final int recordSize;
+	protected final int maxFanIn;
+	protected final List<File> runs = new ArrayList<File>();
+	protected RandomAccessFile consolidatedFile = null;
+	protected FileChannel consolidated = null;
+}
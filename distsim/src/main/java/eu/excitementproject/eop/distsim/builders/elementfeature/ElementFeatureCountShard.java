@@ -0,0 +1,172 @@
+package eu.excitementproject.eop.distsim.builders.elementfeature;
+
+import eu.excitementproject.eop.distsim.builders.LocalCountTable;
+import eu.excitementproject.eop.distsim.items.Element;
+import eu.excitementproject.eop.distsim.items.Feature;
+import eu.excitementproject.eop.distsim.items.UndefinedKeyException;
+import eu.excitementproject.eop.distsim.key.IntsLongEncoder;
+import eu.excitementproject.eop.distsim.storage.BasicMap;
+import eu.excitementproject.eop.distsim.storage.BasicSet;
+import eu.excitementproject.eop.distsim.storage.CountableIdentifiableStorage;
+import eu.excitementproject.eop.distsim.storage.IDKeyPersistentBasicMap;
+import eu.excitementproject.eop.distsim.storage.TroveBasedBasicIntSet;
+import eu.excitementproject.eop.distsim.storage.TroveBasedIDKeyPersistentBasicMap;
+import gnu.trove.iterator.TLongDoubleIterator;
+import gnu.trove.map.hash.TLongDoubleHashMap;
+
+/**
+ * The counts of elements, features and element-feature pairs, collected by one thread of {@link GeneralElementFeatureExtractor}.
+ * <p>
+ * The elements and the features are kept in {@link LocalCountTable}s, and the joint counts are kept in a primitive map from the encoding
+ * of the local element and feature ids ({@link IntsLongEncoder#encode(int, int)}) to their joint count. The feature-elements mapping is derived
+ * from the joint counts at merge time.
+ * The shard is merged into the shared storages when it gets large, and at the end of the extraction. In the external-memory mode,
+ * the joint counts are spilled instead as sorted runs to disk ({@link ElementFeatureCountRuns}).
+ * <p>
+ * Not thread-safe
+ *
+ * @author agent
+ * @since 18/10/2026
+ *
+ */
+class ElementFeatureCountShard {
+
+	/**
+	 * Counts one extracted element-feature pair
+	 *
+	 * @param count the count of the co-occurrence, from which the pair was extracted
+	 */
+	void add(Element element, Feature feature, double count) throws UndefinedKeyException {
+		int elementId = elements.add(element, count);
+		int featureId = features.add(feature, count);
+		jointCounts.adjustOrPutValue(IntsLongEncoder.encode(elementId, featureId), count, count);
+	}
+
+	/**
+	 * @return the number of distinct elements, features and element-feature pairs in the shard
+	 */
+	int size() {
+		return elements.size() + features.size() + jointCounts.size();
+	}
+
+	/**
+	 * Adds the counts of the shard to the given storages, and clears the shard
+	 */
+	void mergeInto(CountableIdentifiableStorage<Element> elementStorage,
+			CountableIdentifiableStorage<Feature> featureStorage,
+			IDKeyPersistentBasicMap<BasicMap<Integer,Double>> elemntFeatureCounts,
+			IDKeyPersistentBasicMap<BasicSet<Integer>> fesatureElements) throws ElementFeatureCountsDBConstructionException {
+		try {
+			int[] elementIds = addElements(elementStorage);
+			int[] featureIds = addFeatures(featureStorage);
+
+			synchronized (elemntFeatureCounts) {
+				TLongDoubleIterator it = jointCounts.iterator();
+				while (it.hasNext()) {
+					it.advance();
+					int elementId = elementIds[IntsLongEncoder.decodeFirst(it.key())];
+					int featureId = featureIds[IntsLongEncoder.decodeSecond(it.key())];
+					BasicMap<Integer, Double> featureCounts = elemntFeatureCounts.get(elementId);
+					if (featureCounts == null) {
+						featureCounts = new TroveBasedIDKeyPersistentBasicMap<Double>();
+						elemntFeatureCounts.put(elementId, featureCounts);
+					}
+					Double count = featureCounts.get(featureId);
+					if (count == null)
+						count = 0.0;
+					featureCounts.put(featureId, count + it.value());
+				}
+			}
+
+			synchronized (fesatureElements) {
+				TLongDoubleIterator it = jointCounts.iterator();
+				while (it.hasNext()) {
+					it.advance();
+					int elementId = elementIds[IntsLongEncoder.decodeFirst(it.key())];
+					int featureId = featureIds[IntsLongEncoder.decodeSecond(it.key())];
+					BasicSet<Integer> featureElements = fesatureElements.get(featureId);
+					if (featureElements == null) {
+						featureElements = new TroveBasedBasicIntSet();
+						fesatureElements.put(featureId, featureElements);
+					}
+					featureElements.add(elementId);
+				}
+			}
+		} catch (Exception e) {
+			throw new ElementFeatureCountsDBConstructionException(e);
+		}
+		clear();
+	}
+
+	/**
+	 * Adds the elements and the features of the shard to the given storages, writes the joint counts, with the global ids, as sorted runs
+	 * to the given run sets, and clears the shard
+	 *
+	 * @param elementFeatureRuns runs of joint counts, keyed by the encoding of the element id and the feature id
+	 * @param featureElementRuns runs of keys, composed of the encoding of the feature id and the element id
+	 */
+	void spillTo(CountableIdentifiableStorage<Element> elementStorage,
+			CountableIdentifiableStorage<Feature> featureStorage,
+			ElementFeatureCountRuns elementFeatureRuns,
+			ElementFeatureCountRuns featureElementRuns) throws ElementFeatureCountsDBConstructionException {
+		try {
+			int[] elementIds = addElements(elementStorage);
+			int[] featureIds = addFeatures(featureStorage);
+
+			TLongDoubleHashMap globalCounts = new TLongDoubleHashMap(jointCounts.size());
+			TLongDoubleIterator it = jointCounts.iterator();
+			while (it.hasNext()) {
+				it.advance();
+				globalCounts.put(IntsLongEncoder.encode(elementIds[IntsLongEncoder.decodeFirst(it.key())], featureIds[IntsLongEncoder.decodeSecond(it.key())]), it.value());
+			}
+			elementFeatureRuns.writeRun(globalCounts);
+			globalCounts = null;
+
+			long[] featureElements = new long[jointCounts.size()];
+			int i = 0;
+			it = jointCounts.iterator();
+			while (it.hasNext()) {
+				it.advance();
+				featureElements[i++] = IntsLongEncoder.encode(featureIds[IntsLongEncoder.decodeSecond(it.key())], elementIds[IntsLongEncoder.decodeFirst(it.key())]);
+			}
+			featureElementRuns.writeRun(featureElements);
+		} catch (Exception e) {
+			throw new ElementFeatureCountsDBConstructionException(e);
+		}
+		clear();
+	}
+
+	/**
+	 * Adds the elements of the shard to the given storage
+	 *
+	 * @return a mapping of the local element ids to the global ones
+	 */
+	protected int[] addElements(CountableIdentifiableStorage<Element> elementStorage) throws Exception {
+		int[] elementIds = new int[elements.size()];
+		for (int localId = 0; localId < elementIds.length; localId++)
+			elementIds[localId] = elementStorage.addData(elements.getItem(localId), elements.getCount(localId)).getID();
+		return elementIds;
+	}
+
+	/**
+	 * Adds the features of the shard to the given storage
+	 *
+	 * @return a mapping of the local feature ids to the global ones
+	 */
+	protected int[] addFeatures(CountableIdentifiableStorage<Feature> featureStorage) throws Exception {
+		int[] featureIds = new int[features.size()];
+		for (int localId = 0; localId < featureIds.length; localId++)
+			featureIds[localId] = featureStorage.addData(features.getItem(localId), features.getCount(localId)).getID();
+		return featureIds;
+	}
+
+	protected void clear() {
+		elements.clear();
+		features.clear();
+		jointCounts.clear();
+	}
+
+	protected final LocalCountTable<Element> elements = new LocalCountTable<Element>();
+	protected final LocalCountTable<Feature> features = new LocalCountTable<Feature>();
+	protected final TLongDoubleHashMap jointCounts = new TLongDoubleHashMap();
+}
@@ -4,6 +4,8 @@
 package eu.excitementproject.eop.distsim.builders.elementfeature;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -33,8 +35,6 @@ import eu.excitementproject.eop.distsim.storage.DeviceBasedCooccurrenceStorage;
 import eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage;
 import eu.excitementproject.eop.distsim.storage.IDKeyPersistentBasicMap;
 import eu.excitementproject.eop.distsim.storage.PersistenceDevice;
-import eu.excitementproject.eop.distsim.storage.TroveBasedBasicIntSet;
-import eu.excitementproject.eop.distsim.storage.TroveBasedIDKeyPersistentBasicMap;
 import eu.excitementproject.eop.distsim.util.Configuration;
 import eu.excitementproject.eop.distsim.util.CreationException;
 import eu.excitementproject.eop.distsim.util.Factory;
@@ -58,6 +58,21 @@ public class GeneralElementFeatureExtractor implements ElementFeatureExtractor {
 		this.iThreadNum = iThreadNum;
 		this.dataStructureFactory = dataStructureFactory;
 		this.confParams = confParams;
+		int iBlockSize = DEFAULT_BLOCK_SIZE;
+		try {
+			iBlockSize = confParams.getInt(Configuration.BLOCK_SIZE);
+		} catch (ConfigurationException e) {}
+		this.iBlockSize = iBlockSize;
+		int iSpillSize = DEFAULT_SPILL_SIZE;
+		try {
+			iSpillSize = confParams.getInt(Configuration.SPILL_SIZE);
+		} catch (ConfigurationException e) {}
+		this.iSpillSize = iSpillSize;
+		File tmpDir = null;
+		try {
+			tmpDir = new File(confParams.get(Configuration.TMP_DIR));
+		} catch (ConfigurationException e) {}
+		this.tmpDir = tmpDir;
 	}
 	
 	/* (non-Javadoc)
@@ -98,10 +113,20 @@ public class GeneralElementFeatureExtractor implements ElementFeatureExtractor {
 			CountableIdentifiableStorage elementStorage,
 			CountableIdentifiableStorage featureStorage) throws ElementFeatureCountsDBConstructionException {
 		
+		ElementFeatureCountRuns elementFeatureRuns = null, featureElementRuns = null;
 		try {
 			
-			IDKeyPersistentBasicMap<BasicMap<Integer,Double>> elemntFeatureCounts = dataStructureFactory.createElementFeatureCountsDataStructure();
-			IDKeyPersistentBasicMap<BasicSet<Integer>> fesatureElements  = dataStructureFactory.createFeatureElementsDataStructure();	
+			// in the external-memory mode, the joint counts are spilled as sorted runs to the temporary directory, instead of being kept in memory
+			IDKeyPersistentBasicMap<BasicMap<Integer,Double>> elemntFeatureCounts = null;
+			IDKeyPersistentBasicMap<BasicSet<Integer>> fesatureElements  = null;
+			if (tmpDir == null) {
+				elemntFeatureCounts = dataStructureFactory.createElementFeatureCountsDataStructure();
+				fesatureElements  = dataStructureFactory.createFeatureElementsDataStructure();
+			} else {
+				logger.info("External-memory mode: element-feature counts are spilled to " + tmpDir);
+				elementFeatureRuns = new ElementFeatureCountRuns(tmpDir, "element-feature-", true);
+				featureElementRuns = new ElementFeatureCountRuns(tmpDir, "feature-element-", false);
+			}
 	
 			ImmutableIterator<Cooccurrence<?>> it = cooccurrenceDB.getCooccurrenceInstances();
 			
@@ -109,7 +134,7 @@ public class GeneralElementFeatureExtractor implements ElementFeatureExtractor {
 			ExecutorService executor = Executors.newFixedThreadPool(iThreadNum);
 			// start the collector tasks
 			for (int i=0;i<iThreadNum; i++)
-				executor.execute(new ElementsFeaturesCollectionTask(i+1,it,elementStorage,featureStorage,elemntFeatureCounts,fesatureElements));
+				executor.execute(new ElementsFeaturesCollectionTask(i+1,it,elementStorage,featureStorage,elemntFeatureCounts,fesatureElements,elementFeatureRuns,featureElementRuns));
 			
 			// wait for terminations of all collectors
 			try {
@@ -123,16 +148,32 @@ public class GeneralElementFeatureExtractor implements ElementFeatureExtractor {
 			
 			logger.info("All collector threads were terminated");
 			
+			if (tmpDir != null)
+				return new SortedRunsElementFeatureCountStorage(elementStorage, featureStorage, elementFeatureRuns, featureElementRuns);
 			return new DefaultElementFeatureCountStorage(elementStorage, featureStorage,elemntFeatureCounts,fesatureElements);
 		} catch (Exception e) {
+			if (elementFeatureRuns != null)
+				elementFeatureRuns.delete();
+			if (featureElementRuns != null)
+				featureElementRuns.delete();
 			throw new ElementFeatureCountsDBConstructionException(e);
 		}
 	}
 	
+	protected static final int DEFAULT_BLOCK_SIZE = 1000;
+	protected static final int DEFAULT_SPILL_SIZE = 1000000;
+	
 	protected final int iThreadNum;
+	protected final int iBlockSize;
+	protected final int iSpillSize;
+	protected final File tmpDir;
 	protected final DataStructureFactory dataStructureFactory;
 	protected final ConfigurationParams confParams;
 	
+	/**
+	 * Takes blocks of co-occurrences from the shared iterator, and counts their elements and features in a private shard,
+	 * which is merged into the shared storages (or spilled to the runs, in the external-memory mode) when it gets large, and at the end
+	 */
 	class ElementsFeaturesCollectionTask implements Runnable {
 		
 		private final Logger logger = Logger.getLogger(ElementsFeaturesCollectionTask.class);
@@ -143,7 +184,9 @@ public class GeneralElementFeatureExtractor implements ElementFeatureExtractor {
 				CountableIdentifiableStorage<Element> elementStorage,
 				CountableIdentifiableStorage<Feature> featureStorage,
 				IDKeyPersistentBasicMap<BasicMap<Integer,Double>> elemntFeatureCounts,
-				IDKeyPersistentBasicMap<BasicSet<Integer>> fesatureElements) throws CreationException, ConfigurationException {
+				IDKeyPersistentBasicMap<BasicSet<Integer>> fesatureElements,
+				ElementFeatureCountRuns elementFeatureRuns,
+				ElementFeatureCountRuns featureElementRuns) throws CreationException, ConfigurationException {
 			
 			this.threadID = threadID;
 			this.iterator = iterator;
@@ -151,6 +194,8 @@ public class GeneralElementFeatureExtractor implements ElementFeatureExtractor {
 			this.featureStorage = featureStorage;
 			this.elemntFeatureCounts = elemntFeatureCounts;
 			this.fesatureElements = fesatureElements;
+			this.elementFeatureRuns = elementFeatureRuns;
+			this.featureElementRuns = featureElementRuns;
 			
 			this.elementFeatureExtraction = (ElementFeatureExtraction)Factory.create(confParams.get(Configuration.EXTRACTION_CLASS),confParams);
 
@@ -166,84 +211,63 @@ public class GeneralElementFeatureExtractor implements ElementFeatureExtractor {
 				
 				int c=0;
 				
+				ElementFeatureCountShard shard = new ElementFeatureCountShard();
+				List<Cooccurrence<?>> block = new ArrayList<Cooccurrence<?>>(iBlockSize);
+				
 				while (true) {
 
-					if (loop % 100000 == 0) {
-						logger.info("Loop: " + loop);
-					}
-					loop++;
-						
-					// get next co-occurence
-					Cooccurrence<?> coOccurrence = null;
-					boolean acquired = false;
-					
+					// get next block of co-occurences
+					block.clear();
 					synchronized (iterator) {
-						//try {
-							if (iterator.hasNext()) {
-								coOccurrence = iterator.next();
-								acquired = true;
-								c++;
-							}
-						//} catch (NoSuchElementException e) {
-							//debug
-							//logger.error(ExceptionUtil.getStackTrace(e));
-						//}	
+						while (block.size() < iBlockSize && iterator.hasNext())
+							block.add(iterator.next());
 					}
-					if (!acquired) {
+					if (block.isEmpty()) {
 						logger.info("Thread " + threadID + " is done");
 						break;
 					}
+					c += block.size();
 
-					// extract element and feature from the given co-occurrence, and store their counts
-					try {
-											
-						for (Pair<Element,Feature> elementFeaturePair :  elementFeatureExtraction.extractElementsFeature(coOccurrence)) {
-	
-							Element element = elementFeaturePair.getFirst();
-							Feature feature = elementFeaturePair.getSecond();
-								
-							// inc element count
-							element = elementStorage.addData(element, coOccurrence.getCount());
-							
-							//inc feature count
-							feature = featureStorage.addData(feature, coOccurrence.getCount());
-	
-							// inc element-feature count
-							synchronized (elemntFeatureCounts) {
-								BasicMap<Integer, Double> featureCounts = elemntFeatureCounts.get(element.getID());
-								if (featureCounts == null) {
-									featureCounts = new TroveBasedIDKeyPersistentBasicMap<Double>();
-									elemntFeatureCounts.put(element.getID(), featureCounts);
-								}
-								Double count = featureCounts.get(feature.getID());
-								if (count == null)
-									count = 0.0;
-								featureCounts.put(feature.getID(), count+coOccurrence.getCount());
-							}
+					for (Cooccurrence<?> coOccurrence : block) {
+					
+						if (loop % 100000 == 0) {
+							logger.info("Loop: " + loop);
+						}
+						loop++;
 						
-							// add element to the list of elements for the given feature
-							synchronized (fesatureElements) {
-								// add element to the feature's element list
-								BasicSet<Integer> elements = fesatureElements.get(feature.getID());
-								if (elements == null) {
-									elements = new TroveBasedBasicIntSet();
-									fesatureElements.put(feature.getID(),elements);
-								}
-								elements.add(element.getID());
-							}
+						// extract element and feature from the given co-occurrence, and count them
+						try {
+							for (Pair<Element,Feature> elementFeaturePair :  elementFeatureExtraction.extractElementsFeature(coOccurrence))
+								shard.add(elementFeaturePair.getFirst(), elementFeaturePair.getSecond(), coOccurrence.getCount());
+						} catch (UndefinedKeyException e) {
+							logger.info(e.toString() + ". The element/feature is considered insignificant and will be filtered.");
+						} catch (ElementFeatureExtractionException e) {
+							System.out.println(e.toString());						
+						} catch (Exception e) {
+							logger.error(ExceptionUtil.getStackTrace(e));
 						}
-					} catch (UndefinedKeyException e) {
-						logger.info(e.toString() + ". The element/feature is considered insignificant and will be filtered.");
-					} catch (ElementFeatureExtractionException e) {
-						System.out.println(e.toString());						
-					} catch (Exception e) {
-						logger.error(ExceptionUtil.getStackTrace(e));
-					}
 					}
+					
+					if (shard.size() >= iSpillSize)
+						flush(shard);
+				}
+				
+				flush(shard);
 				
 				System.out.println(c + " cooccurrences were processed by extractor " + threadID);
 								
 		}
+
+		protected void flush(ElementFeatureCountShard shard) {
+			try {
+				if (elementFeatureRuns == null)
+					shard.mergeInto(elementStorage, featureStorage, elemntFeatureCounts, fesatureElements);
+				else
+					shard.spillTo(elementStorage, featureStorage, elementFeatureRuns, featureElementRuns);
+			} catch (ElementFeatureCountsDBConstructionException e) {
+				logger.error(ExceptionUtil.getStackTrace(e));
+			}
+		}
 				
 		final int threadID;
 		final ImmutableIterator<Cooccurrence<?>> iterator;
@@ -251,6 +275,8 @@ public class GeneralElementFeatureExtractor implements ElementFeatureExtractor {
 		final CountableIdentifiableStorage<Feature> featureStorage;
 		final IDKeyPersistentBasicMap<BasicMap<Integer,Double>> elemntFeatureCounts;
 		final IDKeyPersistentBasicMap<BasicSet<Integer>> fesatureElements;	
+		final ElementFeatureCountRuns elementFeatureRuns;
+		final ElementFeatureCountRuns featureElementRuns;
 		final ElementFeatureExtraction elementFeatureExtraction;
 
 	}		
@@ -353,7 +379,12 @@ public class GeneralElementFeatureExtractor implements ElementFeatureExtractor {
 			elementFeatureCountsDevice.open();
 			featureElementsDevice.open();
 			
-			db.saveState(elementsDevice,featuresDevice,elementFeatureCountsDevice,featureElementsDevice);
+			try {
+				db.saveState(elementsDevice,featuresDevice,elementFeatureCountsDevice,featureElementsDevice);
+			} finally {
+				if (db instanceof SortedRunsElementFeatureCountStorage)
+					((SortedRunsElementFeatureCountStorage)db).delete();
+			}
 			
 			elementsDevice.close();
 			featuresDevice.close();
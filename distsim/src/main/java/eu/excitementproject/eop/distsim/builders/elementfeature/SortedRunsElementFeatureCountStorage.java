@@ -0,0 +1,418 @@
+package eu.excitementproject.eop.distsim.builders.elementfeature;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.log4j.Logger;
+
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableIterator;
+import eu.excitementproject.eop.distsim.items.Element;
+import eu.excitementproject.eop.distsim.items.Feature;
+import eu.excitementproject.eop.distsim.items.InvalidCountException;
+import eu.excitementproject.eop.distsim.key.IntsLongEncoder;
+import eu.excitementproject.eop.distsim.storage.BasicMap;
+import eu.excitementproject.eop.distsim.storage.BasicMapException;
+import eu.excitementproject.eop.distsim.storage.BasicSet;
+import eu.excitementproject.eop.distsim.storage.CountableIdentifiableStorage;
+import eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage;
+import eu.excitementproject.eop.distsim.storage.ElementFeatureJointCounts;
+import eu.excitementproject.eop.distsim.storage.IDKeyPersistentBasicMap;
+import eu.excitementproject.eop.distsim.storage.ItemNotFoundException;
+import eu.excitementproject.eop.distsim.storage.LoadingStateException;
+import eu.excitementproject.eop.distsim.storage.NoElementFoundException;
+import eu.excitementproject.eop.distsim.storage.NoFeatureFoundException;
+import eu.excitementproject.eop.distsim.storage.PersistenceDevice;
+import eu.excitementproject.eop.distsim.storage.SavingStateException;
+import eu.excitementproject.eop.distsim.storage.TroveBasedBasicIntSet;
+import eu.excitementproject.eop.distsim.storage.TroveBasedIDKeyPersistentBasicMap;
+import eu.excitementproject.eop.distsim.storage.iterators.JointCountIterator;
+import eu.excitementproject.eop.distsim.storage.iterators.MinCountFilterIterator;
+import eu.excitementproject.eop.distsim.storage.iterators.MinCountJointCountIterator;
+import eu.excitementproject.eop.distsim.storage.iterators.MinCountPairIDBasedIterator;
+import eu.excitementproject.eop.distsim.storage.iterators.MinCountSingleIDBasedIterator;
+import eu.excitementproject.eop.distsim.storage.iterators.PairIDBasedIterator;
+import eu.excitementproject.eop.distsim.storage.iterators.SingleIDBasedIterator;
+import eu.excitementproject.eop.distsim.util.Pair;
+import eu.excitementproject.eop.distsim.util.SerializationException;
+
+/**
+ * An implementation of the {@link ElementFeatureCountStorage} interface for the external-memory mode of {@link GeneralElementFeatureExtractor},
+ * where the element-feature joint counts are kept on disk, as sorted runs, and only the elements and the features are kept in memory.
+ * <p>
+ * The {@link #saveState(PersistenceDevice...)} method merges the runs, and streams the merged element-feature counts and feature-elements sets
+ * to the given devices, one element (feature) at a time, in the same format as {@link eu.excitementproject.eop.distsim.storage.DefaultElementFeatureCountStorage},
+ * so the saved storage can be loaded by the scoring stage as usual. The joint counts are streamed the same way by {@link #getElementFeatureJointCounts()},
+ * and the features of an element (the elements of a feature) are read from the runs, once merged into one run, by a binary search.
+ * <p>
+ * The run files are kept until {@link #delete()} is called.
+ *
+ * @author agent
+ * @since 18/10/2026
+ *
+ */
+public class SortedRunsElementFeatureCountStorage implements ElementFeatureCountStorage {
+
+	private static final Logger logger = Logger.getLogger(SortedRunsElementFeatureCountStorage.class);
+
+	SortedRunsElementFeatureCountStorage(
+			CountableIdentifiableStorage<Element> elementStorage,
+			CountableIdentifiableStorage<Feature> featureStorage,
+			ElementFeatureCountRuns elementFeatureRuns,
+			ElementFeatureCountRuns featureElementRuns) {
+
+		this.elementStorage = elementStorage;
+		this.featureStorage = featureStorage;
+		this.elementFeatureRuns = elementFeatureRuns;
+		this.featureElementRuns = featureElementRuns;
+		Iterator<Element> it = elementStorage.iterator();
+		double tmp = 0;
+		while (it.hasNext())
+			try {
+				tmp += it.next().getCount();
+			} catch (InvalidCountException e) {
+				logger.error(e.toString());
+			}
+		totalElementCount = tmp;
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getFeature(int)
+	 */
+	@Override
+	public Feature getFeature(int featureId) throws ItemNotFoundException {
+		try {
+			return featureStorage.getData(featureId);
+		} catch (SerializationException e) {
+			throw new ItemNotFoundException(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getElement(int)
+	 */
+	@Override
+	public Element getElement(int elementId) throws ItemNotFoundException {
+		try {
+			return elementStorage.getData(elementId);
+		} catch (SerializationException e) {
+			throw new ItemNotFoundException(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getAllElements()
+	 */
+	@Override
+	public ImmutableIterator<Element> getAllElements() {
+		return elementStorage.iterator();
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getAllElements(long)
+	 */
+	@Override
+	public ImmutableIterator<Element> getAllElements(long minCount) {
+		return new MinCountFilterIterator<Element>(elementStorage.iterator(),minCount);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getAllFeatures()
+	 */
+	@Override
+	public ImmutableIterator<Feature> getAllFeatures() {
+		return featureStorage.iterator();
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getAllFeatures(long)
+	 */
+	@Override
+	public ImmutableIterator<Feature> getAllFeatures(long minCount) {
+		return new MinCountFilterIterator<Feature>(featureStorage.iterator(),minCount);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getElementFeatures(int)
+	 */
+	@Override
+	public ImmutableIterator<Feature> getElementFeatures(int elementId) throws NoFeatureFoundException {
+		return new PairIDBasedIterator<Feature>(getFeatureCounts(elementId).iterator(),featureStorage);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getElementFeatures(int, long)
+	 */
+	@Override
+	public ImmutableIterator<Feature> getElementFeatures(int elementId, long minCount) throws NoFeatureFoundException {
+		return new MinCountPairIDBasedIterator<Feature>(getFeatureCounts(elementId).iterator(),featureStorage,minCount);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getFeatureElementsMapping()
+	 *
+	 * The mapping is loaded to memory from the merged runs, on the first call
+	 */
+	@Override
+	public synchronized IDKeyPersistentBasicMap<BasicSet<Integer>> getFeatureElementsMapping() {
+		if (featureElementsMapping == null) {
+			TroveBasedIDKeyPersistentBasicMap<BasicSet<Integer>> mapping = new TroveBasedIDKeyPersistentBasicMap<BasicSet<Integer>>();
+			ImmutableIterator<Pair<Integer,BasicSet<Integer>>> it = new FeatureElementsIterator();
+			while (it.hasNext()) {
+				Pair<Integer,BasicSet<Integer>> featureElements = it.next();
+				mapping.put(featureElements.getFirst(), featureElements.getSecond());
+			}
+			featureElementsMapping = mapping;
+		}
+		return featureElementsMapping;
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getFeatureElements(int)
+	 */
+	@Override
+	public ImmutableIterator<Element> getFeatureElements(int featureId) throws NoElementFoundException {
+		return new SingleIDBasedIterator<Element>(getElementIds(featureId).iterator(),elementStorage);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getFeatureElements(int, long)
+	 */
+	@Override
+	public ImmutableIterator<Element> getFeatureElements(int featureId, long minCount) throws NoElementFoundException {
+		return new MinCountSingleIDBasedIterator<Element>(getElementIds(featureId).iterator(),elementStorage,minCount);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getElementFeatureJointCounts()
+	 *
+	 * The joint counts are streamed from a merge of the runs
+	 */
+	@Override
+	public ImmutableIterator<ElementFeatureJointCounts> getElementFeatureJointCounts() {
+		return new JointCountIterator(new ElementFeatureCountsIterator());
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getElementFeatureJointCounts(long)
+	 *
+	 * The joint counts are streamed from a merge of the runs
+	 */
+	@Override
+	public ImmutableIterator<ElementFeatureJointCounts> getElementFeatureJointCounts(long minCount) {
+		return new MinCountJointCountIterator(new ElementFeatureCountsIterator(),minCount);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage#getTotalElementCount()
+	 */
+	@Override
+	public double getTotalElementCount() {
+		return totalElementCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.Persistence#saveState(eu.excitementproject.eop.distsim.storage.PersistenceDevice[])
+	 *
+	 * Assumption: four persistence devices are provided:
+	 *   1. elements
+	 *   2. features
+	 *   3. element-features
+	 *   4. feature-elements
+	 */
+	@Override
+	public synchronized void saveState(PersistenceDevice... devices) throws SavingStateException {
+		if (devices.length != 4)
+			throw new SavingStateException(devices.length + " persistence devices was providied for saving, where four are expected");
+		if (bDeleted)
+			throw new SavingStateException("The element-feature runs were deleted");
+
+		logger.info("Saving elements...");
+		elementStorage.saveState(devices[0]);
+		logger.info("Saving features...");
+		featureStorage.saveState(devices[1]);
+		try {
+			logger.info("Merging " + elementFeatureRuns.size() + " runs of element-feature-counts...");
+			ElementFeatureCountsIterator elementFeatureCounts = new ElementFeatureCountsIterator();
+			try {
+				while (elementFeatureCounts.hasNext()) {
+					Pair<Integer,BasicMap<Integer,Double>> featureCounts = elementFeatureCounts.next();
+					devices[2].write(featureCounts.getFirst(), featureCounts.getSecond());
+				}
+			} finally {
+				elementFeatureCounts.close();
+			}
+
+			logger.info("Merging " + featureElementRuns.size() + " runs of feature-elements...");
+			FeatureElementsIterator featureElements = new FeatureElementsIterator();
+			try {
+				while (featureElements.hasNext()) {
+					Pair<Integer,BasicSet<Integer>> elements = featureElements.next();
+					devices[3].write(elements.getFirst(), elements.getSecond());
+				}
+			} finally {
+				featureElements.close();
+			}
+		} catch (Exception e) {
+			throw new SavingStateException(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.Persistence#loadState(eu.excitementproject.eop.distsim.storage.PersistenceDevice[])
+	 */
+	@Override
+	public void loadState(PersistenceDevice... devices) throws LoadingStateException {
+		throw new LoadingStateException("A sorted-runs based storage cannot be loaded. The saved state should be loaded by " +
+				"eu.excitementproject.eop.distsim.storage.DefaultElementFeatureCountStorage");
+	}
+
+	/**
+	 * Deletes the run files. The joint counts are not accessible after the deletion
+	 */
+	public synchronized void delete() {
+		elementFeatureRuns.delete();
+		featureElementRuns.delete();
+		featureElementsMapping = null;
+		bDeleted = true;
+	}
+
+	protected BasicMap<Integer,Double> getFeatureCounts(int elementId) throws NoFeatureFoundException {
+		BasicMap<Integer,Double> featureCounts;
+		try {
+			featureCounts = elementFeatureRuns.getCounts(elementId);
+		} catch (IOException e) {
+			throw new NoFeatureFoundException(e);
+		}
+		if (featureCounts == null)
+			throw new NoFeatureFoundException("No featuree was found for element " + elementId);
+		return featureCounts;
+	}
+
+	protected BasicSet<Integer> getElementIds(int featureId) throws NoElementFoundException {
+		BasicSet<Integer> elementIds;
+		try {
+			elementIds = featureElementRuns.getSecondIds(featureId);
+		} catch (IOException e) {
+			throw new NoElementFoundException(e);
+		}
+		if (elementIds == null)
+			throw new NoElementFoundException("No element was found for feature " + featureId);
+		return elementIds;
+	}
+
+	/**
+	 * Streams a merge of the given runs, grouped by the first id of their keys.
+	 * The merge is opened on the first call of hasNext(), and closed when the iteration ends
+	 */
+	protected abstract static class GroupIterator<T> extends ImmutableIterator<Pair<Integer,T>> {
+
+		GroupIterator(ElementFeatureCountRuns runs) {
+			this.runs = runs;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (merger == null) {
+				try {
+					merger = runs.merge();
+					bMore = merger.next();
+				} catch (IOException e) {
+					close();
+					throw new NoSuchElementException(e.toString());
+				}
+			}
+			return bMore;
+		}
+
+		@Override
+		public Pair<Integer,T> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			try {
+				int id = IntsLongEncoder.decodeFirst(merger.key());
+				T group = newGroup();
+				do {
+					add(group, IntsLongEncoder.decodeSecond(merger.key()), merger.count());
+					bMore = merger.next();
+				} while (bMore && IntsLongEncoder.decodeFirst(merger.key()) == id);
+				if (!bMore)
+					close();
+				return new Pair<Integer,T>(id, group);
+			} catch (Exception e) {
+				close();
+				throw new NoSuchElementException(e.toString());
+			}
+		}
+
+		/**
+		 * Closes the merge, in case the iteration is stopped before its end
+		 */
+		void close() {
+			bMore = false;
+			if (merger != null) {
+				try {
+					merger.close();
+				} catch (IOException e) {
+					logger.warn("Cannot close the merge of the runs: " + e);
+				}
+			}
+		}
+
+		protected abstract T newGroup();
+
+		protected abstract void add(T group, int id, double count) throws BasicMapException;
+
+		protected final ElementFeatureCountRuns runs;
+		protected ElementFeatureCountRuns.Merger merger = null;
+		protected boolean bMore = false;
+	}
+
+	/**
+	 * Streams the elements, with the counts of their features
+	 */
+	protected class ElementFeatureCountsIterator extends GroupIterator<BasicMap<Integer,Double>> {
+
+		ElementFeatureCountsIterator() {
+			super(elementFeatureRuns);
+		}
+
+		@Override
+		protected BasicMap<Integer,Double> newGroup() {
+			return new TroveBasedIDKeyPersistentBasicMap<Double>();
+		}
+
+		@Override
+		protected void add(BasicMap<Integer,Double> featureCounts, int featureId, double count) throws BasicMapException {
+			featureCounts.put(featureId, count);
+		}
+	}
+
+	/**
+	 * Streams the features, with their elements
+	 */
+	protected class FeatureElementsIterator extends GroupIterator<BasicSet<Integer>> {
+
+		FeatureElementsIterator() {
+			super(featureElementRuns);
+		}
+
+		@Override
+		protected BasicSet<Integer> newGroup() {
+			return new TroveBasedBasicIntSet();
+		}
+
+		@Override
+		protected void add(BasicSet<Integer> elements, int elementId, double count) {
+			elements.add(elementId);
+		}
+	}
+
+	protected final CountableIdentifiableStorage<Element> elementStorage;
+	protected final CountableIdentifiableStorage<Feature> featureStorage;
+	protected final ElementFeatureCountRuns elementFeatureRuns;
+	protected final ElementFeatureCountRuns featureElementRuns;
+	protected final double totalElementCount;
+	protected IDKeyPersistentBasicMap<BasicSet<Integer>> featureElementsMapping = null;
+	protected boolean bDeleted = false;
+}
@@ -56,7 +56,7 @@ import eu.excitementproject.eop.distsim.util.SortUtil;
 public class GeneralElementFeatureScorer implements ElementFeatureScorer {
 
 	private final static Logger logger = Logger.getLogger(GeneralElementFeatureScorer.class);
-	protected static final int DEFAULT_MIN_FEATURES_SIZE = 10;
+	public static final int DEFAULT_MIN_FEATURES_SIZE = 10;
 	
 	public GeneralElementFeatureScorer(int iThreadNum, ConfigurationParams scorerParams,
 			IDKeyPersistentBasicMap<BasicSet<Integer>> truncatedFesatureElements,
@@ -0,0 +1,147 @@
+/**
+ *
+ */
+package eu.excitementproject.eop.distsim.builders.similarity;
+
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableIterator;
+import eu.excitementproject.eop.distsim.scoring.ElementFeatureScores;
+import eu.excitementproject.eop.distsim.scoring.FeatureScore;
+import eu.excitementproject.eop.distsim.scoring.feature.DefaultElementFeatureData;
+import eu.excitementproject.eop.distsim.scoring.similarity.ElementFeatureValueConstructor;
+import eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage;
+import eu.excitementproject.eop.distsim.storage.NoScoreFoundException;
+import gnu.trove.map.TIntDoubleMap;
+import gnu.trove.map.hash.TIntDoubleHashMap;
+
+/**
+ * Holds, for each feature, the maximal entailing and entailed values of the feature over the elements which have it, the maximal ratios 
+ * of these values to the scores of the elements, and the minimal score of these elements. The scores of all the elements are kept as well.
+ * <P>
+ * These bounds are used by {@link GeneralElementSimilarityCalculator} for pruned similarity search: the contribution of a given feature
+ * to the similarity of a given element with any other element is bounded by them, with no need to look at the other element.
+ *
+ * <P>
+ * Immutable after construction, Thread-safe
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class FeatureSimilarityBounds {
+
+	public FeatureSimilarityBounds(ElementFeatureScoreStorage elementFeatureScoreStorage,
+			ElementFeatureValueConstructor entailingElementFeatureValueConstructor,
+			ElementFeatureValueConstructor entailedElementFeatureValueConstructor) throws NoScoreFoundException {
+		this.maxEntailingValues = new TIntDoubleHashMap();
+		this.maxEntailedValues = new TIntDoubleHashMap();
+		this.maxEntailingRatios = new TIntDoubleHashMap();
+		this.maxEntailedRatios = new TIntDoubleHashMap();
+		this.minElementScores = new TIntDoubleHashMap();
+		this.elementScores = new TIntDoubleHashMap();
+		double minElementScore = Double.POSITIVE_INFINITY;
+
+		ImmutableIterator<ElementFeatureScores> it = elementFeatureScoreStorage.getElementsFeatureScores();
+		while (it.hasNext()) {
+			ElementFeatureScores elementFeatureScores = it.next();
+			double elementScore = elementFeatureScoreStorage.getElementScore(elementFeatureScores.getElementId());
+			elementScores.put(elementFeatureScores.getElementId(), elementScore);
+			minElementScore = Math.min(minElementScore, elementScore);
+			int featuresNum = elementFeatureScores.getFeatureScoresNum();
+			int featureIndex = 0;
+			ImmutableIterator<FeatureScore> it1 = elementFeatureScores.getFeatureScores();
+			while (it1.hasNext()) {
+				FeatureScore featureScore = it1.next();
+				int featureId = featureScore.getFeatureId();
+				// the same data as given by ElementFeatureScoreStorage#getElementFeatureData for the element and the feature
+				DefaultElementFeatureData elementFeatureData = new DefaultElementFeatureData(featureScore.getScore(), featureIndex, featuresNum);
+				double entailingValue = entailingElementFeatureValueConstructor.constructFeatureValue(elementFeatureData);
+				double entailedValue = entailedElementFeatureValueConstructor.constructFeatureValue(elementFeatureData);
+				updateMax(maxEntailingValues, featureId, entailingValue);
+				updateMax(maxEntailedValues, featureId, entailedValue);
+				if (elementScore > 0) {
+					updateMax(maxEntailingRatios, featureId, entailingValue / elementScore);
+					updateMax(maxEntailedRatios, featureId, entailedValue / elementScore);
+				}
+				if (!minElementScores.containsKey(featureId) || elementScore < minElementScores.get(featureId))
+					minElementScores.put(featureId, elementScore);
+				featureIndex++;
+			}
+		}
+		this.minElementScore = minElementScore;
+	}
+
+	/**
+	 * @param featureId a feature id
+	 * @return the maximal positive entailing value of the given feature, over all the elements which have it, or 0 if there is no such value
+	 */
+	public double getMaxEntailingValue(int featureId) {
+		return maxEntailingValues.get(featureId);
+	}
+
+	/**
+	 * @param featureId a feature id
+	 * @return the maximal positive entailed value of the given feature, over all the elements which have it, or 0 if there is no such value
+	 */
+	public double getMaxEntailedValue(int featureId) {
+		return maxEntailedValues.get(featureId);
+	}
+
+	/**
+	 * @param featureId a feature id
+	 * @return the maximal ratio of a positive entailing value of the given feature to the score of its element, over all the elements which have it, or 0 if there is no such value
+	 */
+	public double getMaxEntailingRatio(int featureId) {
+		return maxEntailingRatios.get(featureId);
+	}
+
+	/**
+	 * @param featureId a feature id
+	 * @return the maximal ratio of a positive entailed value of the given feature to the score of its element, over all the elements which have it, or 0 if there is no such value
+	 */
+	public double getMaxEntailedRatio(int featureId) {
+		return maxEntailedRatios.get(featureId);
+	}
+
+	/**
+	 * @param featureId a feature id
+	 * @return the minimal score of the elements which have the given feature, or 0 if there are no such elements
+	 */
+	public double getMinElementScore(int featureId) {
+		return minElementScores.get(featureId);
+	}
+
+	/**
+	 * @param elementId an element id
+	 * @return the score of the given element, or 0 if there is no such element
+	 */
+	public double getElementScore(int elementId) {
+		return elementScores.get(elementId);
+	}
+
+	/**
+	 * @return the minimal score of all the elements
+	 */
+	public double getMinElementScore() {
+		return minElementScore;
+	}
+
+	/**
+	 * @return the number of features
+	 */
+	public int getFeaturesNum() {
+		return minElementScores.size();
+	}
+
+	protected static void updateMax(TIntDoubleMap maxValues, int featureId, double value) {
+		if (value > maxValues.get(featureId))
+			maxValues.put(featureId, value);
+	}
+
+	protected final TIntDoubleMap maxEntailingValues;
+	protected final TIntDoubleMap maxEntailedValues;
+	protected final TIntDoubleMap maxEntailingRatios;
+	protected final TIntDoubleMap maxEntailedRatios;
+	protected final TIntDoubleMap minElementScores;
+	protected final TIntDoubleMap elementScores;
+	protected final double minElementScore;
+}
@@ -5,11 +5,13 @@ package eu.excitementproject.eop.distsim.builders.similarity;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
-import java.util.NoSuchElementException;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
@@ -20,6 +22,7 @@ import eu.excitementproject.eop.common.utilities.configuration.ConfigurationExce
 import eu.excitementproject.eop.common.utilities.configuration.ConfigurationFile;
 import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
 import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.distsim.builders.BasicVectorTruncate;
 import eu.excitementproject.eop.distsim.builders.ConfigurationBasedDataStructureFactory;
 import eu.excitementproject.eop.distsim.builders.DataStructureFactory;
 import eu.excitementproject.eop.distsim.builders.VectorTruncate;
@@ -28,6 +31,8 @@ import eu.excitementproject.eop.distsim.scoring.ElementFeatureScores;
 import eu.excitementproject.eop.distsim.scoring.FeatureScore;
 import eu.excitementproject.eop.distsim.scoring.feature.DefaultElementFeatureData;
 import eu.excitementproject.eop.distsim.scoring.feature.ElementFeatureData;
+import eu.excitementproject.eop.distsim.scoring.similarity.AdditiveElementSimilarityScoring;
+import eu.excitementproject.eop.distsim.scoring.similarity.BoundedElementSimilarityScoring;
 import eu.excitementproject.eop.distsim.scoring.similarity.DefaultFeatureValueConstructor;
 import eu.excitementproject.eop.distsim.scoring.similarity.ElementFeatureValueConstructor;
 import eu.excitementproject.eop.distsim.scoring.similarity.ElementSimilarityScoring;
@@ -35,6 +40,8 @@ import eu.excitementproject.eop.distsim.storage.BasicSet;
 import eu.excitementproject.eop.distsim.storage.DefaultElementFeatureScoreStorage;
 import eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage;
 import eu.excitementproject.eop.distsim.storage.IDKeyPersistentBasicMap;
+import eu.excitementproject.eop.distsim.storage.MappedElementFeatureScoreFileWriter;
+import eu.excitementproject.eop.distsim.storage.MappedElementFeatureScoreStorage;
 import eu.excitementproject.eop.distsim.storage.NoScoreFoundException;
 import eu.excitementproject.eop.distsim.storage.PersistenceDevice;
 import eu.excitementproject.eop.distsim.util.Configuration;
@@ -42,9 +49,15 @@ import eu.excitementproject.eop.distsim.util.CreationException;
 import eu.excitementproject.eop.distsim.util.Factory;
 import eu.excitementproject.eop.distsim.util.SerializationException;
 import eu.excitementproject.eop.distsim.util.SortUtil;
-import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.impl.Constants;
+import gnu.trove.iterator.TIntDoubleIterator;
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntByteMap;
 import gnu.trove.map.TIntDoubleMap;
 import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntByteHashMap;
 import gnu.trove.map.hash.TIntDoubleHashMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
@@ -64,6 +77,16 @@ public class GeneralElementSimilarityCalculator implements ElementSimilarityCalc
 	public GeneralElementSimilarityCalculator(final ConfigurationParams similarityCalculatorParams) throws ConfigurationException, CreationException {
 		this.similarityCalculatorParams = similarityCalculatorParams;
 		this.iThreadNum = similarityCalculatorParams.getInt(Configuration.THREAD_NUM);
+		int chunkSize = DEFAULT_CHUNK_SIZE;
+		try {
+			chunkSize = similarityCalculatorParams.getInt(Configuration.CHUNK_SIZE);
+		} catch (ConfigurationException e) {}
+		this.iChunkSize = chunkSize;
+		boolean bPrunedSimilarity = false;
+		try {
+			bPrunedSimilarity = similarityCalculatorParams.getBoolean(Configuration.PRUNED_SIMILARITY);
+		} catch (ConfigurationException e) {}
+		this.bPrunedSimilarity = bPrunedSimilarity;
 		this.elementSimilarityScoringFactory = new ElementSimilarityScoringFactory() { 
 			@Override
 			public ElementSimilarityScoring create() throws CreationException { 
@@ -93,12 +116,17 @@ public class GeneralElementSimilarityCalculator implements ElementSimilarityCalc
 
 		//leftElemntSimilarities = new TIntObjectHashMap<TIntDoubleMap>();
 		
-		ImmutableIterator<ElementFeatureScores> iterator = elementFeatureScores.getElementsFeatureScores();
+		// the element-feature scores are distributed among the threads in chunks, by an atomic counter
+		ElementFeatureScores[] elements = getElementsFeatureScores(elementFeatureScores);
+		AtomicInteger nextElementIndex = new AtomicInteger(0);
+		Progress progress = new Progress(elements.length);
+		FeatureSimilarityBounds featureSimilarityBounds = (bPrunedSimilarity ? createFeatureSimilarityBounds(elementFeatureScores) : null);
+		logger.info(elements.length + " elements are to be processed by " + iThreadNum + " threads, in chunks of " + iChunkSize + " elements");
 		
 		ExecutorService executor = Executors.newFixedThreadPool(iThreadNum);
 		// start the collector tasks
 		for (int i=0;i<iThreadNum; i++)
-			executor.execute(new ElementSimilarityTask(i+1,iterator,elementFeatureScores,outR2LDevice,outL2RDevice,startElementId));
+			executor.execute(new ElementSimilarityTask(i+1,elements,nextElementIndex,progress,elementFeatureScores,outR2LDevice,outL2RDevice,startElementId,featureSimilarityBounds));
 		
 		// wait for terminations of all collectors
 		try {
@@ -113,40 +141,371 @@ public class GeneralElementSimilarityCalculator implements ElementSimilarityCalc
 		
 		
 		logger.info("All similarity calculation threads were terminated");
+		progress.log();
+	}
+
+	/**
+	 * Get the feature scores of all the elements of the given storage, in the order of the storage.
+	 * The features of each element are later read from the returned items, without querying the storage again
+	 * 
+	 * @param elementFeatureScores an element-feature scores storage
+	 * @return the feature scores of the elements
+	 */
+	protected ElementFeatureScores[] getElementsFeatureScores(ElementFeatureScoreStorage elementFeatureScores) {
+		List<ElementFeatureScores> elements = new ArrayList<ElementFeatureScores>();
+		ImmutableIterator<ElementFeatureScores> iterator = elementFeatureScores.getElementsFeatureScores();
+		while (iterator.hasNext())
+			elements.add(iterator.next());
+		return elements.toArray(new ElementFeatureScores[elements.size()]);
 	}
 
+	/**
+	 * Compute the feature bounds for pruned similarity search, in case the configured similarity scoring and vector truncation allow it
+	 * 
+	 * @param elementFeatureScores an element-feature scores storage
+	 * @return the feature bounds of the given storage, or null if the similarity search cannot be pruned
+	 */
+	protected FeatureSimilarityBounds createFeatureSimilarityBounds(ElementFeatureScoreStorage elementFeatureScores) throws ElementSimilarityException, CreationException, ConfigurationException {
+		ElementSimilarityScoring similarityScoring = elementSimilarityScoringFactory.create();
+		if (!(similarityScoring instanceof BoundedElementSimilarityScoring)) {
+			logger.warn("Pruned similarity search is not applied: the similarity scoring is not a sum of bounded feature contributions");
+			return null;
+		}
+		if (!((BoundedElementSimilarityScoring)similarityScoring).isPrunedSearchEfficient()) {
+			logger.warn("Pruned similarity search is not applied: it is not faster than the full search for " + similarityScoring.getClass().getName());
+			return null;
+		}
+		if (getPrunedSearchSize(createVectorTruncater()) <= 0) {
+			logger.warn("Pruned similarity search is not applied: it requires a vector truncation to the top-n similar elements");
+			return null;
+		}
+		
+		long startTime = System.currentTimeMillis();
+		FeatureSimilarityBounds featureSimilarityBounds;
+		try {
+			featureSimilarityBounds = new FeatureSimilarityBounds(elementFeatureScores,
+				createFeatureValueConstructor(Configuration.ENTAILING_ELEMENT_FEATURE_CONSTRUCTOR),
+				createFeatureValueConstructor(Configuration.ENTAILED_ELEMENT_FEATURE_CONSTRUCTOR));
+		} catch (NoScoreFoundException e) {
+			throw new ElementSimilarityException(e);
+		}
+		if (featureSimilarityBounds.getMinElementScore() <= 0) {
+			logger.warn("Pruned similarity search is not applied: it requires positive element scores");
+			return null;
+		}
+		logger.info("Pruned similarity search: bounds of " + featureSimilarityBounds.getFeaturesNum() + " features were computed in " + (System.currentTimeMillis() - startTime) + " ms");
+		return featureSimilarityBounds;
+	}
+	
+	/**
+	 * @param vectorTruncater a vector truncater, or null
+	 * @return the number of similar elements which are kept for each element by the given truncater, or 0 if it is not a fixed number
+	 */
+	protected static int getPrunedSearchSize(VectorTruncate vectorTruncater) {
+		if (vectorTruncater instanceof BasicVectorTruncate && ((BasicVectorTruncate)vectorTruncater).getPercent() >= 1)
+			return Math.max(((BasicVectorTruncate)vectorTruncater).getTopN(), 0);
+		return 0;
+	}
+	
+	protected VectorTruncate createVectorTruncater() throws CreationException, ConfigurationException {
+		ConfigurationParams vectorTruncaterParams = null;
+		try {
+			vectorTruncaterParams = similarityCalculatorParams.getSisterModuleConfiguration(Configuration.VECTOR_TRUNCATE);
+		} catch (ConfigurationException e) {
+			logger.info("no vector truncter was defined: " + e);
+		}
+		if (vectorTruncaterParams == null)
+			return null;
+		return (VectorTruncate)Factory.create(vectorTruncaterParams.get(Configuration.CLASS), vectorTruncaterParams);
+	}
+	
+	protected ElementFeatureValueConstructor createFeatureValueConstructor(String constructorParam) throws CreationException {
+		try {
+			return (ElementFeatureValueConstructor)Factory.create(similarityCalculatorParams.get(constructorParam));
+		} catch (ConfigurationException e) {
+			return new DefaultFeatureValueConstructor();
+		}
+	}
 	
 //	protected abstract void measureElementSimilarity(ElementFeatureScoreStorage elementFeatureScores, ConfigurationParams storageDeviceParams) throws ElementSimilarityException;
 	
 //	protected abstract void addSimilarity(int elementId1, int elementId2, double similarityScore);
 
+	protected static final int DEFAULT_CHUNK_SIZE = 256;
+	protected static final int PROGRESS_INTERVAL = 10000;
+	// a relative tolerance for the rounding errors of the sums, when similarity bounds are compared
+	protected static final double BOUND_TOLERANCE = 1e-9;
+	// the admission of new candidates is checked each time the bound of the remaining features drops by this ratio
+	protected static final double ADMISSION_CHECK_RATIO = 0.75;
+	protected static final byte UNKNOWN_RELEVANCE = 0;
+	protected static final byte RELEVANT = 1;
+	protected static final byte IRRELEVANT = 2;
+	
 	protected final int iThreadNum;
+	protected final int iChunkSize;
+	protected final boolean bPrunedSimilarity;
 	protected final ElementSimilarityScoringFactory elementSimilarityScoringFactory;
 	protected final ConfigurationParams similarityCalculatorParams;
 	
+	/**
+	 * Counts the processed elements, and reports the progress and the throughput of the calculation
+	 * 
+	 * <P>
+	 * Thread-safe
+	 */
+	protected static class Progress {
+		
+		Progress(int totalElements) {
+			this.totalElements = totalElements;
+			this.processedElements = new AtomicInteger(0);
+			this.startTime = System.currentTimeMillis();
+		}
+		
+		void add(int elements) {
+			int processed = processedElements.addAndGet(elements);
+			if ((processed - elements) / PROGRESS_INTERVAL != processed / PROGRESS_INTERVAL)
+				log(processed);
+		}
+		
+		void log() {
+			log(processedElements.get());
+		}
+		
+		protected void log(int processed) {
+			double seconds = Math.max(System.currentTimeMillis() - startTime, 1) / 1000.0;
+			logger.info(String.format("%d of %d elements were processed (%.1f%%) in %.0f seconds, %.1f elements per second", 
+					processed, totalElements, (totalElements == 0 ? 100.0 : 100.0 * processed / totalElements), seconds, processed / seconds));
+		}
+		
+		protected final int totalElements;
+		protected final AtomicInteger processedElements;
+		protected final long startTime;
+	}
+	
+	/**
+	 * Accumulates the similarity scorings of one element with all its candidate elements. 
+	 * An accumulator is used by one thread, and is cleared for each element.
+	 */
+	protected interface ElementSimilarityAccumulator {
+		
+		void clear();
+		
+		void addElementFeatureScore(int elementId, double leftElementFeatureScore, double rightElementFeatureScore, int totalLeftFeaturesNum, int totalRightFeaturesNum) throws CreationException;
+		
+		TIntIterator elementIds();
+		
+		double getSimilarityScore(int elementId, double leftDenominator, double rightDenominator);
+	}
+	
+	/**
+	 * An accumulator for {@link AdditiveElementSimilarityScoring}, which keeps the sum of each candidate element in a primitive map,
+	 * instead of creating a scoring object for each candidate
+	 */
+	protected static class AdditiveElementSimilarityAccumulator implements ElementSimilarityAccumulator {
+		
+		AdditiveElementSimilarityAccumulator(AdditiveElementSimilarityScoring scoring) {
+			this.scoring = scoring;
+			this.sums = new TIntDoubleHashMap();
+		}
+
+		@Override
+		public void clear() {
+			sums.clear();
+		}
+
+		@Override
+		public void addElementFeatureScore(int elementId, double leftElementFeatureScore, double rightElementFeatureScore, int totalLeftFeaturesNum, int totalRightFeaturesNum) {
+			double contribution = scoring.getFeatureScoreContribution(leftElementFeatureScore, rightElementFeatureScore);
+			sums.adjustOrPutValue(elementId, contribution, contribution);
+		}
+
+		@Override
+		public TIntIterator elementIds() {
+			return sums.keySet().iterator();
+		}
+
+		@Override
+		public double getSimilarityScore(int elementId, double leftDenominator, double rightDenominator) {
+			return scoring.getSimilarityScore(sums.get(elementId), leftDenominator, rightDenominator);
+		}
+		
+		protected final AdditiveElementSimilarityScoring scoring;
+		protected final TIntDoubleMap sums;
+	}
+	
+	/**
+	 * An accumulator for {@link BoundedElementSimilarityScoring}, used by the pruned similarity search of one element, in one direction.
+	 * <P>
+	 * The accumulator keeps a threshold: the k-th highest partial similarity score of its candidates. The partial scores can only grow, 
+	 * so any element whose similarity score is bounded below the threshold is not one of the top k similar elements. 
+	 * Once the bound of the remaining features of the element is below the threshold, no more candidates are admitted,
+	 * and the candidates whose partial score together with this bound is below the threshold are pruned.
+	 */
+	protected static class BoundedElementSimilarityAccumulator extends AdditiveElementSimilarityAccumulator {
+		
+		BoundedElementSimilarityAccumulator(BoundedElementSimilarityScoring scoring, boolean bR2L, FeatureSimilarityBounds featureSimilarityBounds) {
+			super(scoring);
+			this.bR2L = bR2L;
+			this.featureSimilarityBounds = featureSimilarityBounds;
+			this.partialScores = new double[64];
+		}
+		
+		void start(double element1Score) {
+			clear();
+			this.element1Score = element1Score;
+			this.bAdmitting = true;
+			this.threshold = 0;
+			this.checkedRemainingBound = Double.POSITIVE_INFINITY;
+		}
+		
+		boolean isAdmitting() {
+			return bAdmitting;
+		}
+		
+		boolean contains(int elementId) {
+			return sums.containsKey(elementId);
+		}
+		
+		int size() {
+			return sums.size();
+		}
+		
+		/**
+		 * Stop admitting new candidates, if no new candidate can be one of the top k
+		 * 
+		 * @param k the number of the most similar elements to be found
+		 * @param remainingBound an upper bound for the contribution of the remaining features to the similarity score 
+		 * @return true if new candidates are still admitted
+		 */
+		boolean updateAdmission(int k, double remainingBound) {
+			// the threshold can only grow, so it is recomputed only once the remaining bound has dropped enough since the last check
+			if (bAdmitting && sums.size() >= k && remainingBound <= checkedRemainingBound * ADMISSION_CHECK_RATIO) {
+				if (remainingBound * (1 + BOUND_TOLERANCE) >= threshold)
+					updateThreshold(k);
+				checkedRemainingBound = remainingBound;
+				if (remainingBound * (1 + BOUND_TOLERANCE) < threshold)
+					bAdmitting = false;
+			}
+			return bAdmitting;
+		}
+		
+		/**
+		 * Remove the candidates which cannot be one of the top k, once no new candidates are admitted
+		 * 
+		 * @param k the number of the most similar elements to be found
+		 * @param remainingBound an upper bound for the contribution of the remaining features to the similarity score 
+		 */
+		void prune(int k, double remainingBound) {
+			if (bAdmitting)
+				return;
+			updateThreshold(k);
+			TIntDoubleIterator it = sums.iterator();
+			while (it.hasNext()) {
+				it.advance();
+				if ((getPartialSimilarityScore(it.key(), it.value()) + remainingBound) * (1 + BOUND_TOLERANCE) < threshold)
+					it.remove();
+			}
+		}
+		
+		protected double getPartialSimilarityScore(int elementId, double sum) {
+			double element2Score = featureSimilarityBounds.getElementScore(elementId);
+			return bR2L ? 
+					scoring.getSimilarityScore(sum, element2Score, element1Score) :
+					scoring.getSimilarityScore(sum, element1Score, element2Score);
+		}
+		
+		protected void updateThreshold(int k) {
+			int size = sums.size();
+			if (size < k)
+				return;
+			if (partialScores.length < size)
+				partialScores = new double[Math.max(size, 2 * partialScores.length)];
+			int i = 0;
+			TIntDoubleIterator it = sums.iterator();
+			while (it.hasNext()) {
+				it.advance();
+				partialScores[i++] = getPartialSimilarityScore(it.key(), it.value());
+			}
+			threshold = SortUtil.selectDescending(partialScores, size, k - 1);
+		}
+		
+		protected final boolean bR2L;
+		protected final FeatureSimilarityBounds featureSimilarityBounds;
+		protected double[] partialScores;
+		protected double element1Score;
+		protected boolean bAdmitting;
+		protected double threshold;
+		protected double checkedRemainingBound;
+	}
+	
+	/**
+	 * An accumulator for general {@link ElementSimilarityScoring}, which creates a scoring object for each candidate element
+	 */
+	protected class ScoringElementSimilarityAccumulator implements ElementSimilarityAccumulator {
+		
+		ScoringElementSimilarityAccumulator() {
+			this.scorings = new TIntObjectHashMap<ElementSimilarityScoring>();
+		}
+
+		@Override
+		public void clear() {
+			scorings.clear();
+		}
+
+		@Override
+		public void addElementFeatureScore(int elementId, double leftElementFeatureScore, double rightElementFeatureScore, int totalLeftFeaturesNum, int totalRightFeaturesNum) throws CreationException {
+			ElementSimilarityScoring similarityScoring = scorings.get(elementId);
+			if (similarityScoring == null) {
+				similarityScoring = elementSimilarityScoringFactory.create();
+				similarityScoring.setTotalFeaturesNum(totalLeftFeaturesNum,totalRightFeaturesNum);
+				scorings.put(elementId,similarityScoring);
+			}
+			similarityScoring.addElementFeatureScore(leftElementFeatureScore,rightElementFeatureScore);
+		}
+
+		@Override
+		public TIntIterator elementIds() {
+			return scorings.keySet().iterator();
+		}
+
+		@Override
+		public double getSimilarityScore(int elementId, double leftDenominator, double rightDenominator) {
+			return scorings.get(elementId).getSimilarityScore(leftDenominator, rightDenominator);
+		}
+		
+		protected final TIntObjectMap<ElementSimilarityScoring> scorings;
+	}
+	
 	class ElementSimilarityTask implements Runnable {
 		
 		private final Logger logger = Logger.getLogger(ElementSimilarityTask.class);
 		
 		ElementSimilarityTask(
 				int threadID,
-				ImmutableIterator<ElementFeatureScores> iterator,
+				ElementFeatureScores[] elements,
+				AtomicInteger nextElementIndex,
+				Progress progress,
 				ElementFeatureScoreStorage elementFeatureScoreStorage,
 				PersistenceDevice outR2LDevice,
 				PersistenceDevice outL2RDevice) throws CreationException, ConfigurationException {
-			this(threadID,iterator,elementFeatureScoreStorage,outR2LDevice,outL2RDevice,Integer.MAX_VALUE);
+			this(threadID,elements,nextElementIndex,progress,elementFeatureScoreStorage,outR2LDevice,outL2RDevice,Integer.MAX_VALUE,null);
 		}
 		
 		ElementSimilarityTask(
 				int threadID,
-				ImmutableIterator<ElementFeatureScores> iterator,
+				ElementFeatureScores[] elements,
+				AtomicInteger nextElementIndex,
+				Progress progress,
 				ElementFeatureScoreStorage elementFeatureScoreStorage,
 				PersistenceDevice outR2LDevice,
 				PersistenceDevice outL2RDevice,
-				int startElementId) throws CreationException, ConfigurationException {
+				int startElementId,
+				FeatureSimilarityBounds featureSimilarityBounds) throws CreationException, ConfigurationException {
 			
 			this.threadID = threadID;
-			this.iterator = iterator;
+			this.elements = elements;
+			this.nextElementIndex = nextElementIndex;
+			this.progress = progress;
 			this.elementFeatureScoreStorage = elementFeatureScoreStorage;
 			this.outR2LDevice = outR2LDevice;
 			this.outL2RDevice = outL2RDevice;
@@ -158,254 +517,303 @@ public class GeneralElementSimilarityCalculator implements ElementSimilarityCalc
 				this.elementFilter = null;
 			}
 			
-			vectorTruncater = null;
-			ConfigurationParams vectorTruncaterParams = null;
-			try {
-				vectorTruncaterParams = similarityCalculatorParams.getSisterModuleConfiguration(Configuration.VECTOR_TRUNCATE);
-			} catch (ConfigurationException e) {
-				logger.info("no vector truncter was defined: " + e);
-			}
-			if (vectorTruncaterParams != null) {
-				vectorTruncater = (VectorTruncate)Factory.create(vectorTruncaterParams.get(Configuration.CLASS), vectorTruncaterParams);
+			vectorTruncater = createVectorTruncater();
+			if (vectorTruncater != null)
 				logger.info("vector truncter: "  + vectorTruncater.toString());
-			}
 
-			try {
-				this.entailingElementFeatureValueConstructor = (ElementFeatureValueConstructor)Factory.create(similarityCalculatorParams.get(Configuration.ENTAILING_ELEMENT_FEATURE_CONSTRUCTOR));
-			} catch (ConfigurationException e) {
-				this.entailingElementFeatureValueConstructor = new DefaultFeatureValueConstructor();
+			this.entailingElementFeatureValueConstructor = createFeatureValueConstructor(Configuration.ENTAILING_ELEMENT_FEATURE_CONSTRUCTOR);
+			this.entailedElementFeatureValueConstructor = createFeatureValueConstructor(Configuration.ENTAILED_ELEMENT_FEATURE_CONSTRUCTOR);
+
+			// similarity scorings which are a sum of the feature scores are accumulated in primitive maps, 
+			// other scorings are accumulated in a scoring object for each element pair
+			ElementSimilarityScoring similarityScoring = elementSimilarityScoringFactory.create();
+			if (similarityScoring instanceof AdditiveElementSimilarityScoring) {
+				this.entailedSimilarities = new AdditiveElementSimilarityAccumulator((AdditiveElementSimilarityScoring)similarityScoring);
+				this.entailingSimilarities = new AdditiveElementSimilarityAccumulator((AdditiveElementSimilarityScoring)similarityScoring);
+			} else {
+				this.entailedSimilarities = new ScoringElementSimilarityAccumulator();
+				this.entailingSimilarities = new ScoringElementSimilarityAccumulator();
 			}
-			try {
-				this.entailedElementFeatureValueConstructor = (ElementFeatureValueConstructor)Factory.create(similarityCalculatorParams.get(Configuration.ENTAILED_ELEMENT_FEATURE_CONSTRUCTOR));
-			} catch (ConfigurationException e) {
-				this.entailedElementFeatureValueConstructor = new DefaultFeatureValueConstructor();
+			this.elementsScores = new TIntDoubleHashMap();
+			this.featureIds = new TIntArrayList();
+			this.featureScores = new TDoubleArrayList();
+			
+			// the pruned search finds the top-k similar elements, where k is the size of the truncated vectors
+			this.featureSimilarityBounds = featureSimilarityBounds;
+			if (featureSimilarityBounds != null) {
+				this.prunedSearchSize = getPrunedSearchSize(vectorTruncater);
+				this.boundedSimilarityScoring = (BoundedElementSimilarityScoring)similarityScoring;
+				this.elementRelevance = new TIntByteHashMap(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, 0, UNKNOWN_RELEVANCE);
+				this.entailedCandidates = new BoundedElementSimilarityAccumulator(boundedSimilarityScoring, false, featureSimilarityBounds);
+				this.entailingCandidates = new BoundedElementSimilarityAccumulator(boundedSimilarityScoring, true, featureSimilarityBounds);
+				this.candidateIds = new TIntArrayList();
+				this.entailingFeatureValues = new TDoubleArrayList();
+				this.entailedFeatureValues = new TDoubleArrayList();
+				this.l2rRemainingBounds = new TDoubleArrayList();
+				this.r2lRemainingBounds = new TDoubleArrayList();
+			} else {
+				this.prunedSearchSize = 0;
+				this.boundedSimilarityScoring = null;
+				this.elementRelevance = null;
+				this.entailedCandidates = null;
+				this.entailingCandidates = null;
+				this.candidateIds = null;
+				this.entailingFeatureValues = null;
+				this.entailedFeatureValues = null;
+				this.l2rRemainingBounds = null;
+				this.r2lRemainingBounds = null;
 			}
-
-
 		}
 		
-/*		public void run() {
+		@Override
+		public void run() {
 			
 			logger.info("Thread " + threadID + " starts running");
 			
-			int loop=1;
 			while (true) {
 			
-				if (loop % 100 == 0) 
-					logger.info(loop + " elements were processed");
-				loop++;
-					
-				// get next element-feature score
-				ElementFeatureScores elementFeatureScores = null;
-				boolean acquired = false;
-				synchronized (iterator) {
-					try {
-						elementFeatureScores = iterator.next();
-						acquired = true;
-					} catch (NoSuchElementException e) {
-					}	
-				}
-				if (!acquired) {
+				// get the next chunk of elements
+				int from = nextElementIndex.getAndAdd(iChunkSize);
+				if (from >= elements.length || from < 0) {
 					logger.info("Thread " + threadID + " is done");
 					return;
-				} 					
+				}
+				int to = Math.min(from + iChunkSize, elements.length);
 				
-				try {
-					int element1Id = elementFeatureScores.getElementId();
-					
-					if (elementFilter == null || elementFilter.isRelevantElementForCalculation(element1Id) && element1Id <= startElementId) {
+				for (int i = from; i < to; i++) {
+					try {
+						measureElementSimilarity(elements[i]);
+					} catch (Exception e) {
 						//debug
-						//logger.info("entailedElementId: " + entailedElementId);
-						
-						double element1Score = elementFeatureScoreStorage.getElementScore(element1Id);
-						if (element1Score > 0) { // @TOCHECK: whether it is always true
-							TIntObjectMap<ElementSimilarityScoring> entailingElementID2SimilarityScoring = new TIntObjectHashMap<ElementSimilarityScoring>();
-							TIntObjectMap<ElementSimilarityScoring> entailedElementID2SimilarityScoring = new TIntObjectHashMap<ElementSimilarityScoring>();
-							ImmutableIterator<FeatureScore> featureScores = elementFeatureScores.getFeatureScores();
-							int featureNum = elementFeatureScores.getFeatureScoresNum();
-							int featureRank = 1;
-							while (featureScores.hasNext()) {
-								FeatureScore featureScore = featureScores.next();
-								int featureId = featureScore.getFeatureId();
-								ElementFeatureData elementFeatureData1 = new DefaultElementFeatureData(featureScore.getScore(), featureRank,featureNum);
-								double score1 = entailingElementFeatureValueConstructor.constructFeatureValue(elementFeatureData1);
-								
-								if (score1 > 0) {
-									BasicSet<Integer> featureElements = elementFeatureScoreStorage.getFeatureElements(featureId);	
-									ImmutableIterator<Integer> it = featureElements.iterator();
-									while (it.hasNext()) {
-										int element2Id = it.next();
-										if (element2Id != element1Id) {
-											double score2 = 0;
-											try {
-												ElementFeatureData elementFeatureData2 = elementFeatureScoreStorage.getElementFeatureData(element2Id, element2Id); 
-												score2 = entailedElementFeatureValueConstructor.constructFeatureValue(elementFeatureData2);
-												//logger.info("score " + entailingScore + " for featureId " + featureId + ", entailingElementId " + entailingElementId);
-											} catch (Exception e) {
-												//logger.error("score 0 for featureId " + featureId + ", entailingElementId " + entailingElementId);
-											}
-											if (score2 > 0) {
-												
-												if (outR2LDevice != null) {
-													ElementSimilarityScoring entailingSimilarityScoring = entailingElementID2SimilarityScoring.get(element2Id);
-													if (entailingSimilarityScoring == null) {
-														entailingSimilarityScoring = elementSimilarityScoringFactory.create();
-														entailingElementID2SimilarityScoring.put(element2Id,entailingSimilarityScoring);
-													}													
-													entailingSimilarityScoring.addElementFeatureScore(score2, score1);
-												}
-												
-												ElementSimilarityScoring entailedSimilarityScoring = entailedElementID2SimilarityScoring.get(element2Id);
-												if (entailedSimilarityScoring == null) {
-													entailedSimilarityScoring = elementSimilarityScoringFactory.create();
-													entailedElementID2SimilarityScoring.put(element2Id,entailedSimilarityScoring);
-												}
-												entailedSimilarityScoring.addElementFeatureScore(score1,score2);
-
-											}
-										}
-									}
-									featureRank++;
+						logger.error(ExceptionUtil.getStackTrace(e));
+					}
+					// each item is processed by one thread only, and is released once it is done
+					elements[i] = null;
+				}
+				
+				progress.add(to - from);
+			}
+		}
+		
+		protected void measureElementSimilarity(ElementFeatureScores elementFeatureScores1) throws Exception {
+			
+			int element1Id = elementFeatureScores1.getElementId();
+			if (elementFilter == null || elementFilter.isRelevantElementForCalculation(element1Id) && element1Id <= startElementId) {
+				//debug
+				//logger.info("entailedElementId: " + entailedElementId);
+				
+				double element1Score = elementFeatureScoreStorage.getElementScore(element1Id);
+				if (element1Score > 0 && featureSimilarityBounds != null) 
+					measurePrunedElementSimilarity(elementFeatureScores1, element1Score);
+				else if (element1Score > 0) { // @TOCHECK: whether it is always true
+					entailingSimilarities.clear();
+					entailedSimilarities.clear();
+					
+					int featureNum = loadElementFeatures(elementFeatureScores1);
+					
+					for (int f = 0; f < featureNum; f++) {
+						int featureId = featureIds.getQuick(f);
+						int featureRank = f + 1;
+						ElementFeatureData elementFeatureData1 = new DefaultElementFeatureData(featureScores.getQuick(f), featureRank,featureNum);
+						double entailingScore1 = entailingElementFeatureValueConstructor.constructFeatureValue(elementFeatureData1);
+						double entailedScore1 = (outR2LDevice == null ? 0 : entailedElementFeatureValueConstructor.constructFeatureValue(elementFeatureData1));
+						BasicSet<Integer> featureElements = elementFeatureScoreStorage.getFeatureElements(featureId);	
+						ImmutableIterator<Integer> it = featureElements.iterator();
+						while (it.hasNext()) {
+							int element2Id = it.next();
+							if (element2Id != element1Id) {
+								double score1 = entailingScore1;
+								double score2 = 0;
+								ElementFeatureData elementFeatureData2 = null;
+								try {
+									elementFeatureData2 = elementFeatureScoreStorage.getElementFeatureData(element2Id, featureId);
+									score2 = entailedElementFeatureValueConstructor.constructFeatureValue(elementFeatureData2);
+									//logger.info("score " + entailingScore + " for featureId " + featureId + ", entailingElementId " + entailingElementId);
+								} catch (Exception e) {
+									//logger.error("score 0 for featureId " + featureId + ", entailingElementId " + entailingElementId);
 								}
+								
+								if (score1 > 0 && score2 > 0)
+									entailedSimilarities.addElementFeatureScore(element2Id, score1, score2, (int)elementFeatureData1.getSize(), (int)elementFeatureData2.getSize());
+								
+								//R2L
+								if (outR2LDevice != null) {												
+									score1 = entailedScore1;
+									score2 = (elementFeatureData2 == null ? 0 : entailingElementFeatureValueConstructor.constructFeatureValue(elementFeatureData2));
+									if (score1 > 0 && score2 > 0)
+										entailingSimilarities.addElementFeatureScore(element2Id, score2, score1, (int)elementFeatureData2.getSize(), (int)elementFeatureData1.getSize());
+								}										
 							}
-							
-							if (outR2LDevice !=  null)
-								writeSimnilarity(element1Id,element1Score,entailingElementID2SimilarityScoring.iterator(),true);
-							writeSimnilarity(element1Id,element1Score,entailedElementID2SimilarityScoring.iterator(),false);
 						}
 					}
-				} catch (Exception e) {
-					//debug
-					logger.error(ExceptionUtil.getStackTrace(e));
-				}				
+					
+					if (outR2LDevice !=  null)
+						writeSimnilarity(element1Id,element1Score,entailingSimilarities,true);
+					writeSimnilarity(element1Id,element1Score,entailedSimilarities,false);
+				}
 			}
-		}*/
+		}
 		
-		@Override
-		public void run() {
+		/**
+		 * Load the feature ids and scores of a given element to {@link #featureIds} and {@link #featureScores}, in their stored order
+		 * 
+		 * @param elementFeatureScores the feature scores of an element, as given by the iterator of the storage
+		 * @return the number of features of the element
+		 */
+		protected int loadElementFeatures(ElementFeatureScores elementFeatureScores) {
+			featureIds.resetQuick();
+			featureScores.resetQuick();
+			ImmutableIterator<FeatureScore> it1 = elementFeatureScores.getFeatureScores();
+			while (it1.hasNext()) {
+				FeatureScore featureScore = it1.next();
+				featureIds.add(featureScore.getFeatureId());
+				featureScores.add(featureScore.getScore());
+			}
+			return featureIds.size();
+		}
+		
+		/**
+		 * Find the top-k similar elements of a given element, with the same scores as the exhaustive search.
+		 * <P>
+		 * The features of the element are visited in their stored order, i.e., by descending scores. For each direction, the similarity contribution 
+		 * of the remaining features is bounded by {@link #featureSimilarityBounds}. New candidates are admitted from the feature elements  
+		 * until this bound is below the k-th partial similarity score; the sums of the admitted candidates are then completed, 
+		 * while candidates which can no longer reach the top k are pruned.
+		 * 
+		 * @param elementFeatureScores1 the feature scores of an element
+		 * @param element1Score the score of the element
+		 */
+		protected void measurePrunedElementSimilarity(ElementFeatureScores elementFeatureScores1, double element1Score) throws Exception {
+			int element1Id = elementFeatureScores1.getElementId();
+			entailedCandidates.start(element1Score);
+			entailingCandidates.start(element1Score);
+			boolean bR2L = outR2LDevice != null;
 			
-			logger.info("Thread " + threadID + " starts running");
+			int featureNum = loadElementFeatures(elementFeatureScores1);
+			entailingFeatureValues.resetQuick();
+			entailedFeatureValues.resetQuick();
+			for (int f = 0; f < featureNum; f++) {
+				ElementFeatureData elementFeatureData1 = new DefaultElementFeatureData(featureScores.getQuick(f), f + 1, featureNum);
+				entailingFeatureValues.add(entailingElementFeatureValueConstructor.constructFeatureValue(elementFeatureData1));
+				entailedFeatureValues.add(bR2L ? entailedElementFeatureValueConstructor.constructFeatureValue(elementFeatureData1) : 0);
+			}
 			
-			int loop=1;
-			while (true) {
+			// the bounds of the contributions of the features f..featureNum-1 to the similarity scores, in each direction
+			l2rRemainingBounds.fill(0, featureNum + 1, 0);
+			r2lRemainingBounds.fill(0, featureNum + 1, 0);
+			for (int f = featureNum - 1; f >= 0; f--) {
+				int featureId = featureIds.getQuick(f);
+				double entailingScore1 = entailingFeatureValues.getQuick(f);
+				double entailedScore1 = entailedFeatureValues.getQuick(f);
+				double l2rBound = boundedSimilarityScoring.getFeatureSimilarityUpperBound(entailingScore1, element1Score, true,
+						featureSimilarityBounds.getMaxEntailedValue(featureId), featureSimilarityBounds.getMaxEntailedRatio(featureId), featureSimilarityBounds.getMinElementScore(featureId));
+				double r2lBound = (bR2L ? boundedSimilarityScoring.getFeatureSimilarityUpperBound(entailedScore1, element1Score, false,
+						featureSimilarityBounds.getMaxEntailingValue(featureId), featureSimilarityBounds.getMaxEntailingRatio(featureId), featureSimilarityBounds.getMinElementScore(featureId)) : 0);
+				l2rRemainingBounds.setQuick(f, l2rRemainingBounds.getQuick(f + 1) + l2rBound);
+				r2lRemainingBounds.setQuick(f, r2lRemainingBounds.getQuick(f + 1) + r2lBound);
+			}
 			
-				if (loop % 100 == 0) 
-					logger.info(loop + " elements were processed");
-				loop++;
-					
-				// get next element-feature score
-				ElementFeatureScores elementFeatureScores = null;
-				boolean acquired = false;
-				synchronized (iterator) {
-					try {
-						elementFeatureScores = iterator.next();
-						acquired = true;
-					} catch (NoSuchElementException e) {
-					}	
+			for (int f = 0; f < featureNum; f++) {
+				int featureId = featureIds.getQuick(f);
+				double entailingScore1 = entailingFeatureValues.getQuick(f);
+				double entailedScore1 = entailedFeatureValues.getQuick(f);
+				boolean bL2RAdmitting = entailedCandidates.updateAdmission(prunedSearchSize, l2rRemainingBounds.getQuick(f));
+				boolean bR2LAdmitting = bR2L && entailingCandidates.updateAdmission(prunedSearchSize, r2lRemainingBounds.getQuick(f));
+				BasicSet<Integer> featureElements = elementFeatureScoreStorage.getFeatureElements(featureId);
+				
+				if (bL2RAdmitting || bR2LAdmitting || featureElements.size() <= entailedCandidates.size() + entailingCandidates.size()) {
+					// scan the elements of the feature
+					ImmutableIterator<Integer> it = featureElements.iterator();
+					while (it.hasNext()) {
+						int element2Id = it.next();
+						if (element2Id == element1Id)
+							continue;
+						boolean bL2RCandidate = bL2RAdmitting || entailedCandidates.contains(element2Id);
+						boolean bR2LCandidate = bR2L && (bR2LAdmitting || entailingCandidates.contains(element2Id));
+						if ((bL2RCandidate || bR2LCandidate) && isCandidateElement(element2Id))
+							addCandidateFeatureScores(element2Id, featureId, featureNum, entailingScore1, entailedScore1, bL2RCandidate, bR2LCandidate);
+					}
+				} else {
+					// look up the feature for each of the remaining candidates
+					candidateIds.resetQuick();
+					TIntIterator it = entailedCandidates.elementIds();
+					while (it.hasNext())
+						candidateIds.add(it.next());
+					it = entailingCandidates.elementIds();
+					while (it.hasNext()) {
+						int element2Id = it.next();
+						if (!entailedCandidates.contains(element2Id))
+							candidateIds.add(element2Id);
+					}
+					for (int i = 0; i < candidateIds.size(); i++) {
+						int element2Id = candidateIds.getQuick(i);
+						if (featureElements.contains(element2Id))
+							addCandidateFeatureScores(element2Id, featureId, featureNum, entailingScore1, entailedScore1, 
+									entailedCandidates.contains(element2Id), entailingCandidates.contains(element2Id));
+					}
 				}
-				if (!acquired) {
-					logger.info("Thread " + threadID + " is done");
-					return;
-				} 					
+				
+				entailedCandidates.prune(prunedSearchSize, l2rRemainingBounds.getQuick(f + 1));
+				if (bR2L)
+					entailingCandidates.prune(prunedSearchSize, r2lRemainingBounds.getQuick(f + 1));
+			}
+			
+			if (bR2L)
+				writeSimnilarity(element1Id,element1Score,entailingCandidates,true);
+			writeSimnilarity(element1Id,element1Score,entailedCandidates,false);
+		}
 		
-					
-				try {
-						
-					int element1Id = elementFeatureScores.getElementId();
-					
-					if (elementFilter == null || elementFilter.isRelevantElementForCalculation(element1Id) && element1Id <= startElementId) {
-						//debug
-						//logger.info("entailedElementId: " + entailedElementId);
-						
-						double element1Score = elementFeatureScoreStorage.getElementScore(element1Id);
-						if (element1Score > 0) { // @TOCHECK: whether it is always true
-							TIntObjectMap<ElementSimilarityScoring> entailingElementID2SimilarityScoring = new TIntObjectHashMap<ElementSimilarityScoring>();
-							TIntObjectMap<ElementSimilarityScoring> entailedElementID2SimilarityScoring = new TIntObjectHashMap<ElementSimilarityScoring>();
-							ImmutableIterator<FeatureScore> featureScores = elementFeatureScores.getFeatureScores();
-							int featureNum = elementFeatureScores.getFeatureScoresNum();
-							int featureRank = 1;
-							while (featureScores.hasNext()) {
-								FeatureScore featureScore = featureScores.next();
-								int featureId = featureScore.getFeatureId();
-								ElementFeatureData elementFeatureData1 = new DefaultElementFeatureData(featureScore.getScore(), featureRank,featureNum);
-								BasicSet<Integer> featureElements = elementFeatureScoreStorage.getFeatureElements(featureId);	
-								ImmutableIterator<Integer> it = featureElements.iterator();
-								while (it.hasNext()) {
-									int element2Id = it.next();
-									if (element2Id != element1Id) {
-										double score1 = entailingElementFeatureValueConstructor.constructFeatureValue(elementFeatureData1);
-										double score2 = 0;
-										ElementFeatureData elementFeatureData2 = null;
-										try {
-											elementFeatureData2 = elementFeatureScoreStorage.getElementFeatureData(element2Id, featureId);
-											score2 = entailedElementFeatureValueConstructor.constructFeatureValue(elementFeatureData2);
-											//logger.info("score " + entailingScore + " for featureId " + featureId + ", entailingElementId " + entailingElementId);
-										} catch (Exception e) {
-											//logger.error("score 0 for featureId " + featureId + ", entailingElementId " + entailingElementId);
-										}
-										
-										if (score1 > 0 && score2 > 0) {																								
-											ElementSimilarityScoring entailedSimilarityScoring = entailedElementID2SimilarityScoring.get(element2Id);
-											if (entailedSimilarityScoring == null) {
-												entailedSimilarityScoring = elementSimilarityScoringFactory.create();
-												entailedSimilarityScoring.setTotalFeaturesNum((int)elementFeatureData1.getSize(),(int)elementFeatureData2.getSize());
-												entailedElementID2SimilarityScoring.put(element2Id,entailedSimilarityScoring);
-											}
-																							
-											entailedSimilarityScoring.addElementFeatureScore(score1,score2);
-										}
-										
-										
-										//R2L
-										if (outR2LDevice != null) {												
-											score1 = entailedElementFeatureValueConstructor.constructFeatureValue(elementFeatureData1);
-											score2 = (elementFeatureData2 == null ? 0 : entailingElementFeatureValueConstructor.constructFeatureValue(elementFeatureData2));
-											if (score1 > 0 && score2 > 0) {	
-												ElementSimilarityScoring entailingSimilarityScoring = entailingElementID2SimilarityScoring.get(element2Id);
-												if (entailingSimilarityScoring == null) {
-													entailingSimilarityScoring = elementSimilarityScoringFactory.create();
-													entailingSimilarityScoring.setTotalFeaturesNum((int)elementFeatureData2.getSize(),(int)elementFeatureData1.getSize());
-													entailingElementID2SimilarityScoring.put(element2Id,entailingSimilarityScoring);
-												}																	
-												entailingSimilarityScoring.addElementFeatureScore(score2, score1);
-											}
-										}										
-									}
-								}
-								featureRank++;
-							}
-							
-							if (outR2LDevice !=  null)
-								writeSimnilarity(element1Id,element1Score,entailingElementID2SimilarityScoring.iterator(),true);
-							writeSimnilarity(element1Id,element1Score,entailedElementID2SimilarityScoring.iterator(),false);
-						}
-					}
-
-				} catch (Exception e) {
-					//debug
-					logger.error(ExceptionUtil.getStackTrace(e));
-				}	
+		/**
+		 * @param elementId an element id
+		 * @return true if the element passes the element filter; the decision is cached in {@link #elementRelevance}
+		 */
+		protected boolean isCandidateElement(int elementId) {
+			if (elementFilter == null)
+				return true;
+			byte relevance = elementRelevance.get(elementId);
+			if (relevance == UNKNOWN_RELEVANCE) {
+				relevance = (elementFilter.isRelevantElementForCalculation(elementId) ? RELEVANT : IRRELEVANT);
+				elementRelevance.put(elementId, relevance);
 			}
+			return relevance == RELEVANT;
 		}
 		
+		protected void addCandidateFeatureScores(int element2Id, int featureId, int featureNum, double entailingScore1, double entailedScore1, boolean bL2R, boolean bR2L) {
+			ElementFeatureData elementFeatureData2;
+			try {
+				elementFeatureData2 = elementFeatureScoreStorage.getElementFeatureData(element2Id, featureId);
+			} catch (NoScoreFoundException e) {
+				return;
+			}
+			if (bL2R) {
+				double score2 = entailedElementFeatureValueConstructor.constructFeatureValue(elementFeatureData2);
+				if (entailingScore1 > 0 && score2 > 0)
+					entailedCandidates.addElementFeatureScore(element2Id, entailingScore1, score2, featureNum, (int)elementFeatureData2.getSize());
+			}
+			if (bR2L) {
+				double score2 = entailingElementFeatureValueConstructor.constructFeatureValue(elementFeatureData2);
+				if (entailedScore1 > 0 && score2 > 0)
+					entailingCandidates.addElementFeatureScore(element2Id, score2, entailedScore1, (int)elementFeatureData2.getSize(), featureNum);
+			}
+		}
 				
-		protected void writeSimnilarity(int element1Id, double element1Score, TIntObjectIterator<ElementSimilarityScoring> it, boolean bR2L) throws SerializationException, IOException, NoScoreFoundException {
-			TIntDoubleMap elementsScores = new TIntDoubleHashMap();
+		protected void writeSimnilarity(int element1Id, double element1Score, ElementSimilarityAccumulator similarities, boolean bR2L) throws SerializationException, IOException, NoScoreFoundException {
+			elementsScores.clear();
+			TIntIterator it = similarities.elementIds();
 			while (it.hasNext()) {
-				it.advance();
-				int element2Id = it.key();
+				int element2Id = it.next();
 				if (elementFilter == null || elementFilter.isRelevantElementForCalculation(element2Id)) {
 					double element2Score = elementFeatureScoreStorage.getElementScore(element2Id);
-					ElementSimilarityScoring similarityScoring = it.value();
 					double similarityScore = bR2L ?
-								similarityScoring.getSimilarityScore(element2Score, element1Score) :
-								similarityScoring.getSimilarityScore(element1Score, element2Score);
+								similarities.getSimilarityScore(element2Id, element2Score, element1Score) :
+								similarities.getSimilarityScore(element2Id, element1Score, element2Score);
 					if (similarityScore > 0)
 						elementsScores.put(element2Id, similarityScore);
 				}
 			}
 			
-			LinkedHashMap<Integer, Double> sortedElementScores = SortUtil.sortMapByValue(elementsScores,true);
+			// the order of equal scores does not depend on the history of the reused maps
+			LinkedHashMap<Integer, Double> sortedElementScores = SortUtil.sortMapByValueAndKey(elementsScores,true);
 			
 			if (vectorTruncater != null) 
 				sortedElementScores = vectorTruncater.truncate(sortedElementScores);
@@ -418,7 +826,9 @@ public class GeneralElementSimilarityCalculator implements ElementSimilarityCalc
 		
 		final int threadID;
 		final int startElementId;
-		final ImmutableIterator<ElementFeatureScores> iterator;
+		final ElementFeatureScores[] elements;
+		final AtomicInteger nextElementIndex;
+		final Progress progress;
 		final ElementFeatureScoreStorage elementFeatureScoreStorage;
 		final PersistenceDevice outR2LDevice;
 		final PersistenceDevice outL2RDevice;
@@ -426,10 +836,28 @@ public class GeneralElementSimilarityCalculator implements ElementSimilarityCalc
 		ElementFeatureExtraction elementFilter;
 		ElementFeatureValueConstructor entailingElementFeatureValueConstructor;
 		ElementFeatureValueConstructor entailedElementFeatureValueConstructor;
+		
+		// per-thread data structures, reused for all the elements
+		final ElementSimilarityAccumulator entailingSimilarities;
+		final ElementSimilarityAccumulator entailedSimilarities;
+		final TIntDoubleMap elementsScores;
+		final TIntArrayList featureIds;
+		final TDoubleArrayList featureScores;
+		
+		// per-thread data structures of the pruned search
+		final FeatureSimilarityBounds featureSimilarityBounds;
+		final int prunedSearchSize;
+		final BoundedElementSimilarityScoring boundedSimilarityScoring;
+		final TIntByteMap elementRelevance;
+		final BoundedElementSimilarityAccumulator entailedCandidates;
+		final BoundedElementSimilarityAccumulator entailingCandidates;
+		final TIntArrayList candidateIds;
+		final TDoubleArrayList entailingFeatureValues;
+		final TDoubleArrayList entailedFeatureValues;
+		final TDoubleArrayList l2rRemainingBounds;
+		final TDoubleArrayList r2lRemainingBounds;
 
-
-	}
-	
+	}	
 	
 	public static void main(String[] args) {
 		
@@ -514,14 +942,22 @@ public class GeneralElementSimilarityCalculator implements ElementSimilarityCalc
 			elementScoresDevice.open();
 			featureElementsDevice.open();
 
-			IDKeyPersistentBasicMap<LinkedHashMap<Integer, Double>> elementFeatureScores = dataStructureFactory.createElementFeatureScoresDataStructure();
-			elementFeatureScores.loadState(elemntFeaturesScoresDevice);
-			IDKeyPersistentBasicMap<Double> elementScores = dataStructureFactory.createElementScoresDataStructure();
-			elementScores.loadState(elementScoresDevice);
-			IDKeyPersistentBasicMap<BasicSet<Integer>> featureElements = dataStructureFactory.createFeatureElementsDataStructure();
-			featureElements.loadState(featureElementsDevice);
-			ElementFeatureScoreStorage elementFeatureScoreStorage = new DefaultElementFeatureScoreStorage (
-					elementFeatureScores,elementScores,featureElements);
+			ElementFeatureScoreStorage elementFeatureScoreStorage = null;
+			if (similarityCalculatorParams.containsKey(Configuration.MAPPED_SCORES_FILE)) {
+				// the scores are streamed to a memory-mapped file, instead of being loaded to the heap
+				File mappedScoresFile = new File(similarityCalculatorParams.get(Configuration.MAPPED_SCORES_FILE));
+				MappedElementFeatureScoreFileWriter.build(mappedScoresFile, elemntFeaturesScoresDevice, elementScoresDevice, featureElementsDevice);
+				elementFeatureScoreStorage = new MappedElementFeatureScoreStorage(mappedScoresFile);
+			} else {
+				IDKeyPersistentBasicMap<LinkedHashMap<Integer, Double>> elementFeatureScores = dataStructureFactory.createElementFeatureScoresDataStructure();
+				elementFeatureScores.loadState(elemntFeaturesScoresDevice);
+				IDKeyPersistentBasicMap<Double> elementScores = dataStructureFactory.createElementScoresDataStructure();
+				elementScores.loadState(elementScoresDevice);
+				IDKeyPersistentBasicMap<BasicSet<Integer>> featureElements = dataStructureFactory.createFeatureElementsDataStructure();
+				featureElements.loadState(featureElementsDevice);
+				elementFeatureScoreStorage = new DefaultElementFeatureScoreStorage (
+						elementFeatureScores,elementScores,featureElements);
+			}
 			
 			elemntFeaturesScoresDevice.close();
 			elementScoresDevice.close();
@@ -48,6 +48,33 @@ public class IntsLongEncoder {
 			return (int)encoding >>  (63 - bits1 - bits2);
 	}
 	
+	/**
+	 * Encodes two int values, e.g., an element id and a feature id, to one long value, with 32 bits for each of them.
+	 * Unlike {@link #encode(int, int, int, int)}, any pair of int values can be encoded, and the encoding involves no checks.
+	 * 
+	 * @param i1 first int value to be encoded
+	 * @param i2 second int value to be encoded
+	 * @return encoding of the two given int values to one long value
+	 */
+	public static long encode(int i1, int i2) {
+		return (((long)i1) << 32) | (i2 & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @param encoding encoding of two int values, by {@link #encode(int, int)}
+	 * @return the first encoded value
+	 */
+	public static int decodeFirst(long encoding) {
+		return (int)(encoding >>> 32);
+	}
+
+	/**
+	 * @param encoding encoding of two int values, by {@link #encode(int, int)}
+	 * @return the second encoded value
+	 */
+	public static int decodeSecond(long encoding) {
+		return (int)encoding;
+	}
 	
 	public static void main(String[] args) throws EncodingException {
 		//DecimalFormat format = new DecimalFormat("################"); 
@@ -4,14 +4,17 @@ import java.io.File;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 
 import com.google.common.io.Files;
 
-import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPosQuery;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceCloseException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
@@ -41,7 +44,7 @@ import eu.excitementproject.eop.redis.RedisBasedStringListBasicMap;
  * @author Tae-Gil Noh
  *
  */
-public class EmbeddedRedisBasedLexicalResource implements LexicalResource<RuleInfo> {
+public class EmbeddedRedisBasedLexicalResource implements BulkLexicalResource<RuleInfo> {
 	
 	/**
 	 * 
@@ -166,6 +169,18 @@ public class EmbeddedRedisBasedLexicalResource implements LexicalResource<RuleIn
 		
 	}
 
+	@Override
+	public Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> getRulesForRight(Collection<LemmaPosQuery> queries) throws LexicalResourceException {
+		
+		return this.theLexicalResource.getRulesForRight(queries); 
+	}
+
+	@Override
+	public Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> getRulesForLeft(Collection<LemmaPosQuery> queries) throws LexicalResourceException {
+		
+		return this.theLexicalResource.getRulesForLeft(queries); 
+	}
+
 	@Override
 	public void close() throws LexicalResourceCloseException {
 		// shutdown the redis server, if it has any. 
@@ -4,19 +4,27 @@
 package eu.excitementproject.eop.distsim.resource;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 
 import java.util.List;
+import java.util.Map;
 
-import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPosQuery;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceCloseException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
 import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
 import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
 import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.UnsupportedPosTagStringException;
 import eu.excitementproject.eop.common.utilities.ExceptionUtil;
 import eu.excitementproject.eop.common.utilities.configuration.ConfigurationException;
 import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
@@ -28,7 +36,9 @@ import eu.excitementproject.eop.distsim.scoring.ElementsSimilarityMeasure;
 import eu.excitementproject.eop.distsim.storage.DefaultSimilarityStorage;
 import eu.excitementproject.eop.distsim.storage.DistSimRuleInfo;
 import eu.excitementproject.eop.distsim.storage.ElementTypeException;
+import eu.excitementproject.eop.distsim.storage.MappedSimilarityStorage;
 import eu.excitementproject.eop.distsim.storage.SimilarityStorage;
+import eu.excitementproject.eop.distsim.storage.SimilarityStorageUtils;
 import eu.excitementproject.eop.distsim.util.Configuration;
 import eu.excitementproject.eop.redis.RedisRunException;
 
@@ -40,7 +50,7 @@ import eu.excitementproject.eop.redis.RedisRunException;
  * @since 31/12/2012
  *
  */
-public class SimilarityStorageBasedLexicalResource implements LexicalResource<RuleInfo> {
+public class SimilarityStorageBasedLexicalResource implements BulkLexicalResource<RuleInfo> {
 	
 	/**
 	 * Constructs a lexical resource from an existing, initialized similarity storage, without a rule-count limit.
@@ -71,6 +81,7 @@ public class SimilarityStorageBasedLexicalResource implements LexicalResource<Ru
 	 * @throws RedisRunException 
 	 * @throws FileNotFoundException 
 	 * @see DefaultSimilarityStorage#DefaultSimilarityStorage(ConfigurationParams)
+	 * @see MappedSimilarityStorage#MappedSimilarityStorage(ConfigurationParams), in case the param "l2r-mapped-file" is given
 	 * <p>Additionally, uses the param "top-n-rules" to limit the number of retrieved rules.
 	 */
 	public SimilarityStorageBasedLexicalResource(ConfigurationParams params) throws ConfigurationException, ElementTypeException, FileNotFoundException, RedisRunException {
@@ -90,7 +101,20 @@ public class SimilarityStorageBasedLexicalResource implements LexicalResource<Ru
 		
 		System.out.println("Max rules: " + this.maxNumOfRetrievedRules);
 		
-		if (hostLeft == null || portLeft == -1 || hostRight == null || portRight == -1)
+		boolean bMapped = true;
+		try {
+			params.get(Configuration.L2R_MAPPED_FILE);
+		} catch (ConfigurationException e) {
+			bMapped = false;
+		}
+		
+		if (bMapped) {
+			try {
+				this.similarityStorage = new MappedSimilarityStorage(params);
+			} catch (IOException e) {
+				throw new ConfigurationException("Could not open the mapped similarity files", e);
+			}
+		} else if (hostLeft == null || portLeft == -1 || hostRight == null || portRight == -1)
 			this.similarityStorage = new DefaultSimilarityStorage(params);			
 		else  {
 			String instanceName = "";
@@ -139,37 +163,73 @@ public class SimilarityStorageBasedLexicalResource implements LexicalResource<Ru
 	protected List<LexicalRule<? extends RuleInfo>> getRulesForSide(String lemma, PartOfSpeech pos, RuleDirection ruleDirection) throws LexicalResourceException {
 		try {
 			LemmaPosBasedElement element1 = new LemmaPosBasedElement(new LemmaPos(lemma, (pos == null ? null : pos.getCanonicalPosTag())));
-			List<LexicalRule<? extends RuleInfo>> ret = new LinkedList<LexicalRule<? extends RuleInfo>>();
 			
 			List<ElementsSimilarityMeasure> rules = (maxNumOfRetrievedRules==null? 
 					similarityStorage.getSimilarityMeasure(element1, ruleDirection):
 					similarityStorage.getSimilarityMeasure(element1, ruleDirection, FilterType.TOP_N, maxNumOfRetrievedRules));
 			
-			//long t1 = System.currentTimeMillis();
-
-			for (ElementsSimilarityMeasure elemenstSimilarityMeasure : rules
-					/*similarityStorage.getSimilarityMeasure(element1.toKey(), ruleDirection)*/) {
-				LemmaPosBasedElement left = (LemmaPosBasedElement)elemenstSimilarityMeasure.getLeftElement();
-				LemmaPosBasedElement right = (LemmaPosBasedElement)elemenstSimilarityMeasure.getRightElement();
-				LexicalRule<RuleInfo> rule = 
-					new LexicalRule<RuleInfo>(
-							left.getData().getLemma(), new ByCanonicalPartOfSpeech(left.getData().getPOS().name()),
-							right.getData().getLemma(), new ByCanonicalPartOfSpeech(right.getData().getPOS().name()),
-							elemenstSimilarityMeasure.getSimilarityMeasure(), 
-							null, similarityStorage.getComponentName(), DistSimRuleInfo.getInstance());
-				ret.add(rule);
-			}
+			return toLexicalRules(rules);
+		} catch (Exception e) {
+			throw new LexicalResourceException(e.toString(),e);
+			//throw new LexicalResourceException(e.toString());
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource#getRulesForLeft(java.util.Collection)
+	 */
+	@Override
+	public Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> getRulesForLeft(Collection<LemmaPosQuery> queries) throws LexicalResourceException {
+		return getRulesForSide(queries, RuleDirection.LEFT_TO_RIGHT);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource#getRulesForRight(java.util.Collection)
+	 */
+	@Override
+	public Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> getRulesForRight(Collection<LemmaPosQuery> queries) throws LexicalResourceException {
+		return getRulesForSide(queries, RuleDirection.RIGHT_TO_LEFT);
+	}
+
+	/**
+	 * Gets the rules of all the given queries by one access to the similarity storage
+	 */
+	protected Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> getRulesForSide(Collection<LemmaPosQuery> queries, RuleDirection ruleDirection) throws LexicalResourceException {
+		try {
+			List<LemmaPosQuery> distinctQueries = new ArrayList<LemmaPosQuery>(new LinkedHashSet<LemmaPosQuery>(queries));
+			List<LemmaPosBasedElement> elements = new ArrayList<LemmaPosBasedElement>(distinctQueries.size());
+			for (LemmaPosQuery query : distinctQueries)
+				elements.add(new LemmaPosBasedElement(new LemmaPos(query.getLemma(), (query.getPos() == null ? null : query.getPos().getCanonicalPosTag()))));
 			
-			//long t2 = System.currentTimeMillis();
-			//System.out.println("XXX: " + (t2-t1));
+			List<List<ElementsSimilarityMeasure>> elementsRules = (maxNumOfRetrievedRules==null? 
+					SimilarityStorageUtils.getSimilarityMeasures(similarityStorage, elements, ruleDirection, FilterType.ALL, 0.0):
+					SimilarityStorageUtils.getSimilarityMeasures(similarityStorage, elements, ruleDirection, FilterType.TOP_N, maxNumOfRetrievedRules));
 
+			Map<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>> ret = new LinkedHashMap<LemmaPosQuery, List<LexicalRule<? extends RuleInfo>>>();
+			for (int i = 0; i < distinctQueries.size(); i++)
+				ret.put(distinctQueries.get(i), toLexicalRules(elementsRules.get(i)));
 			return ret;
 		} catch (Exception e) {
 			throw new LexicalResourceException(e.toString(),e);
-			//throw new LexicalResourceException(e.toString());
 		}
 	}
 	
+	protected List<LexicalRule<? extends RuleInfo>> toLexicalRules(List<ElementsSimilarityMeasure> rules) throws LexicalResourceException, UnsupportedPosTagStringException {
+		List<LexicalRule<? extends RuleInfo>> ret = new LinkedList<LexicalRule<? extends RuleInfo>>();
+		for (ElementsSimilarityMeasure elemenstSimilarityMeasure : rules) {
+			LemmaPosBasedElement left = (LemmaPosBasedElement)elemenstSimilarityMeasure.getLeftElement();
+			LemmaPosBasedElement right = (LemmaPosBasedElement)elemenstSimilarityMeasure.getRightElement();
+			LexicalRule<RuleInfo> rule = 
+				new LexicalRule<RuleInfo>(
+						left.getData().getLemma(), new ByCanonicalPartOfSpeech(left.getData().getPOS().name()),
+						right.getData().getLemma(), new ByCanonicalPartOfSpeech(right.getData().getPOS().name()),
+						elemenstSimilarityMeasure.getSimilarityMeasure(), 
+						null, similarityStorage.getComponentName(), DistSimRuleInfo.getInstance());
+			ret.add(rule);
+		}
+		return ret;
+	}
+	
 	
 	/* (non-Javadoc)
 	 * @see ac.biu.nlp.nlp.lexical_resource.LexicalResource#getRules(java.lang.String, ac.biu.nlp.nlp.representation.PartOfSpeech, java.lang.String, ac.biu.nlp.nlp.representation.PartOfSpeech)
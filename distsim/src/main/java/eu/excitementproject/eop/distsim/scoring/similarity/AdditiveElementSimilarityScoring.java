@@ -0,0 +1,37 @@
+/**
+ *
+ */
+package eu.excitementproject.eop.distsim.scoring.similarity;
+
+/**
+ * An {@link ElementSimilarityScoring} whose state is a single sum of the contributions of the common features of the two elements.
+ * <P>
+ * Such a scoring can be computed without creating a scoring object for each pair of elements: the sums of many element pairs
+ * can be kept in a primitive map, and the similarity score is then calculated by {@link #getSimilarityScore(double, double, double)}.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public interface AdditiveElementSimilarityScoring extends ElementSimilarityScoring {
+
+	/**
+	 * Get the contribution of one feature of a given left and right elements to the sum
+	 *
+	 * @param leftElementFeatureScore a feature score of a left element
+	 * @param rightElementFeatureScore a feature score of a right element
+	 * @return the value to be added to the sum
+	 */
+	double getFeatureScoreContribution(double leftElementFeatureScore, double rightElementFeatureScore);
+
+	/**
+	 * Calculate the similarity score for two elements, according to the sum of the contributions of their common features,
+	 * and their given denominators (usually their element scores)
+	 *
+	 * @param sum the sum of the contributions of the common features of the two elements
+	 * @param leftDenominator a denominator for the left element
+	 * @param rightDenominator a denominator for the right element
+	 * @return the resulted similarity score
+	 */
+	double getSimilarityScore(double sum, double leftDenominator, double rightDenominator);
+}
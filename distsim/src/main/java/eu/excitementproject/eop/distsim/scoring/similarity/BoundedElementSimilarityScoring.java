@@ -0,0 +1,41 @@
+/**
+ *
+ */
+package eu.excitementproject.eop.distsim.scoring.similarity;
+
+/**
+ * An {@link AdditiveElementSimilarityScoring} whose similarity score is a sum of independent, bounded, contributions of the common features
+ * of the two elements.
+ * <P>
+ * Such a scoring enables pruned similarity search: the similarity of a given element with any other element, based on a given set of features, 
+ * can be bounded without knowing the other element, by the maximal feature scores and the minimal denominators of the elements which have these features.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public interface BoundedElementSimilarityScoring extends AdditiveElementSimilarityScoring {
+
+	/**
+	 * Get an upper bound for the contribution of one common feature to the similarity score of a given element with any other element, 
+	 * where the positive feature score of the other element, its ratio to the denominator of the other element, and this denominator, 
+	 * are bounded by the given values. The denominators are assumed to be positive.
+	 *
+	 * @param elementFeatureScore the feature score of the given element
+	 * @param elementDenominator the denominator of the given element
+	 * @param bLeft true if the given element is the left element, false if it is the right one
+	 * @param maxOtherFeatureScore the maximal feature score of the other element
+	 * @param maxOtherFeatureScoreRatio the maximal ratio of the feature score of the other element to its denominator
+	 * @param minOtherDenominator the minimal denominator of the other element
+	 * @return an upper bound for the contribution of the feature to the similarity score
+	 */
+	double getFeatureSimilarityUpperBound(double elementFeatureScore, double elementDenominator, boolean bLeft, 
+			double maxOtherFeatureScore, double maxOtherFeatureScoreRatio, double minOtherDenominator);
+
+	/**
+	 * The pruned similarity search gives the same scores for any bounded scoring, but it is faster only when the bounds drop early enough
+	 * 
+	 * @return true if the pruned similarity search is applied for this scoring, when it is requested by the configuration
+	 */
+	boolean isPrunedSearchEfficient();
+}
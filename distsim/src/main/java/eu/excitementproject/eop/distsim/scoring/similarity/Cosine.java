@@ -12,7 +12,7 @@ import eu.excitementproject.eop.distsim.scoring.FeatureScore;
  * @since 17/04/2012
  *
  */
-public class Cosine extends AbstractElementSimilarityScoring {
+public class Cosine extends AbstractElementSimilarityScoring implements BoundedElementSimilarityScoring {
 
 	public Cosine(ConfigurationParams params) {
 		this();
@@ -27,7 +27,7 @@ public class Cosine extends AbstractElementSimilarityScoring {
 	 */
 	@Override
 	public void addElementFeatureScore(double leftElementFeatureScore, double rightElementFeatureScore) {
-		score += (leftElementFeatureScore * rightElementFeatureScore);
+		score += getFeatureScoreContribution(leftElementFeatureScore, rightElementFeatureScore);
 		
 	}
 
@@ -36,10 +36,45 @@ public class Cosine extends AbstractElementSimilarityScoring {
 	 */
 	@Override
 	public double getSimilarityScore(double leftDenominator, double rightDenominator) {
-		if(score == 0)
+		return getSimilarityScore(score, leftDenominator, rightDenominator);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.scoring.similarity.AdditiveElementSimilarityScoring#getFeatureScoreContribution(double, double)
+	 */
+	@Override
+	public double getFeatureScoreContribution(double leftElementFeatureScore, double rightElementFeatureScore) {
+		return (leftElementFeatureScore * rightElementFeatureScore);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.scoring.similarity.AdditiveElementSimilarityScoring#getSimilarityScore(double, double, double)
+	 */
+	@Override
+	public double getSimilarityScore(double sum, double leftDenominator, double rightDenominator) {
+		if(sum == 0)
 			return 0;
 		
-		return (score / (leftDenominator * rightDenominator));
+		return (sum / (leftDenominator * rightDenominator));
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.scoring.similarity.BoundedElementSimilarityScoring#getFeatureSimilarityUpperBound(double, double, boolean, double, double, double)
+	 */
+	@Override
+	public double getFeatureSimilarityUpperBound(double elementFeatureScore, double elementDenominator, boolean bLeft, 
+			double maxOtherFeatureScore, double maxOtherFeatureScoreRatio, double minOtherDenominator) {
+		if (elementFeatureScore <= 0 || maxOtherFeatureScore <= 0)
+			return 0;
+		return (elementFeatureScore / elementDenominator) * maxOtherFeatureScoreRatio;
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.scoring.similarity.BoundedElementSimilarityScoring#isPrunedSearchEfficient()
+	 */
+	@Override
+	public boolean isPrunedSearchEfficient() {
+		return true;
 	}
 
 	/* (non-Javadoc)
@@ -15,7 +15,7 @@ import eu.excitementproject.eop.distsim.scoring.FeatureScore;
  * <P>
  * Thread-safe
  */
-public class Cover extends AbstractElementSimilarityScoring {
+public class Cover extends AbstractElementSimilarityScoring implements BoundedElementSimilarityScoring {
 
 	public Cover(ConfigurationParams params) {
 		this();
@@ -30,8 +30,7 @@ public class Cover extends AbstractElementSimilarityScoring {
 	 */
 	@Override
 	public void addElementFeatureScore(double leftElementFeatureScore,double rightElementFeatureScore) {
-		if(leftElementFeatureScore > 0 && rightElementFeatureScore > 0)
-			sum += (rightElementFeatureScore);
+		sum += getFeatureScoreContribution(leftElementFeatureScore, rightElementFeatureScore);
 		
 	}
 
@@ -40,9 +39,49 @@ public class Cover extends AbstractElementSimilarityScoring {
 	 */
 	@Override
 	public double getSimilarityScore(double leftDenominator, double rightDenominator) {
+		return getSimilarityScore(sum, leftDenominator, rightDenominator);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.scoring.similarity.AdditiveElementSimilarityScoring#getFeatureScoreContribution(double, double)
+	 */
+	@Override
+	public double getFeatureScoreContribution(double leftElementFeatureScore, double rightElementFeatureScore) {
+		if(leftElementFeatureScore > 0 && rightElementFeatureScore > 0)
+			return rightElementFeatureScore;
+		return 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.scoring.similarity.AdditiveElementSimilarityScoring#getSimilarityScore(double, double, double)
+	 */
+	@Override
+	public double getSimilarityScore(double sum, double leftDenominator, double rightDenominator) {
 		return sum / rightDenominator;
 	}
 
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.scoring.similarity.BoundedElementSimilarityScoring#getFeatureSimilarityUpperBound(double, double, boolean, double, double, double)
+	 */
+	@Override
+	public double getFeatureSimilarityUpperBound(double elementFeatureScore, double elementDenominator, boolean bLeft, 
+			double maxOtherFeatureScore, double maxOtherFeatureScoreRatio, double minOtherDenominator) {
+		if (elementFeatureScore <= 0 || maxOtherFeatureScore <= 0)
+			return 0;
+		// the contribution is the feature score of the right element, divided by its denominator
+		return bLeft ? maxOtherFeatureScoreRatio : elementFeatureScore / elementDenominator;
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.scoring.similarity.BoundedElementSimilarityScoring#isPrunedSearchEfficient()
+	 */
+	@Override
+	public boolean isPrunedSearchEfficient() {
+		// the left-to-right bound of a feature is the maximal ratio of its score to the score of any element, which is close to 1 
+		// once the feature has a small element, so the admission of candidates hardly stops, and the pruned search is slower than the full one
+		return false;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.excitement.distsim.scoring.similarity.ElementSimilarityScoring#getSimilarity(ac.biu.nlp.nlp.general.immutable.ImmutableIterator, ac.biu.nlp.nlp.general.immutable.ImmutableIterator)
 	 */
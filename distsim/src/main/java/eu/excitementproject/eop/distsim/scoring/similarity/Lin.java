@@ -14,7 +14,7 @@ import eu.excitementproject.eop.distsim.scoring.FeatureScore;
  * <P>
  * Thread-safe
  */
-public class Lin extends AbstractElementSimilarityScoring {
+public class Lin extends AbstractElementSimilarityScoring implements BoundedElementSimilarityScoring {
 
 	public Lin(ConfigurationParams params) {
 		this();
@@ -29,8 +29,7 @@ public class Lin extends AbstractElementSimilarityScoring {
 	 */
 	@Override
 	public void addElementFeatureScore(double leftElementFeatureScore, double rightElementFeatureScore) {
-		if(leftElementFeatureScore > 0 && rightElementFeatureScore > 0)
-			sum += (leftElementFeatureScore + rightElementFeatureScore);		
+		sum += getFeatureScoreContribution(leftElementFeatureScore, rightElementFeatureScore);
 	}
 
 	/* (non-Javadoc)
@@ -38,9 +37,48 @@ public class Lin extends AbstractElementSimilarityScoring {
 	 */
 	@Override
 	public double getSimilarityScore(double leftDenominator, double rightDenominator) {
+		return getSimilarityScore(sum, leftDenominator, rightDenominator);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.scoring.similarity.AdditiveElementSimilarityScoring#getFeatureScoreContribution(double, double)
+	 */
+	@Override
+	public double getFeatureScoreContribution(double leftElementFeatureScore, double rightElementFeatureScore) {
+		if(leftElementFeatureScore > 0 && rightElementFeatureScore > 0)
+			return (leftElementFeatureScore + rightElementFeatureScore);
+		return 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.scoring.similarity.AdditiveElementSimilarityScoring#getSimilarityScore(double, double, double)
+	 */
+	@Override
+	public double getSimilarityScore(double sum, double leftDenominator, double rightDenominator) {
 		return sum / (leftDenominator + rightDenominator);
 	}
 
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.scoring.similarity.BoundedElementSimilarityScoring#getFeatureSimilarityUpperBound(double, double, boolean, double, double, double)
+	 */
+	@Override
+	public double getFeatureSimilarityUpperBound(double elementFeatureScore, double elementDenominator, boolean bLeft, 
+			double maxOtherFeatureScore, double maxOtherFeatureScoreRatio, double minOtherDenominator) {
+		if (elementFeatureScore <= 0 || maxOtherFeatureScore <= 0)
+			return 0;
+		// (s1 + s2) / (d1 + d2) <= s1 / (d1 + d2) + s2 / d2, and s2 / (d1 + d2) <= s2 / d1
+		return elementFeatureScore / (elementDenominator + minOtherDenominator) + 
+				Math.min(maxOtherFeatureScoreRatio, maxOtherFeatureScore / elementDenominator);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.scoring.similarity.BoundedElementSimilarityScoring#isPrunedSearchEfficient()
+	 */
+	@Override
+	public boolean isPrunedSearchEfficient() {
+		return true;
+	}
+
 	@Override
 	public double getSimilarity(ImmutableIterator<FeatureScore> leftFeatures, ImmutableIterator<FeatureScore> rightFeatures) {
 		throw new UnsupportedOperationException();
@@ -0,0 +1,40 @@
+package eu.excitementproject.eop.distsim.storage;
+
+import java.util.List;
+
+import eu.excitementproject.eop.distsim.domains.FilterType;
+import eu.excitementproject.eop.distsim.domains.RuleDirection;
+import eu.excitementproject.eop.distsim.items.Element;
+import eu.excitementproject.eop.distsim.scoring.ElementsSimilarityMeasure;
+
+/**
+ * A {@link SimilarityStorage} that can retrieve the similarities of many elements at once, e.g., all the lemmas of a sentence, 
+ * by fewer accesses to its underlying storage (e.g., one pipelined Redis round trip) than an access per element.
+ * <p>
+ * Implementing this interface is optional. Callers should go through 
+ * {@link SimilarityStorageUtils#getSimilarityMeasures(SimilarityStorage, List, RuleDirection, FilterType, double)}, which uses the bulk 
+ * method when the storage implements it, and falls back to an access per element otherwise.
+ * 
+ * @author agent
+ * @since 18/10/2026
+ *
+ */
+public interface BulkSimilarityStorage extends SimilarityStorage {
+
+	/**
+	 * Get the relevant similarity scores for each of the given elements, filtered by filterType and filterVal parameters, 
+	 * as defined by {@link #getSimilarityMeasure(Element, RuleDirection, FilterType, double)}.
+	 * 
+	 * @param elements a list of left/right (defined by ruleDirection parameter) elements of the similarity measurement
+	 * @param ruleDirection define the position of the given elements (see {@link #getSimilarityMeasure(Element, RuleDirection, FilterType, double)})
+	 * @param filterType the type of the filtering, e.g., TOP_N, MIN_VAL
+	 * @param filterVal the value criterion of the filtering
+	 * 
+	 * @return for each of the given elements, in their order, a list of the filtered elements which are assigned to a similarity score with the element, 
+	 * with their similarity score and additional info, ordered by their scores (descending)
+	 * 
+	 * @throws SimilarityNotFoundException in case of a problem with the similarity db
+	 */
+	List<List<ElementsSimilarityMeasure>> getSimilarityMeasures(List<? extends Element> elements, RuleDirection ruleDirection, FilterType filterType, double filterVal) throws SimilarityNotFoundException;
+
+}
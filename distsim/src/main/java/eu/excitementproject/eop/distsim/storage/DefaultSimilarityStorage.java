@@ -9,8 +9,12 @@ import java.io.FileNotFoundException;
 
 
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -35,7 +39,7 @@ import eu.excitementproject.eop.redis.RedisRunException;
  * @since 09/09/2012
  *
  */
-public class DefaultSimilarityStorage implements SimilarityStorage {
+public class DefaultSimilarityStorage implements BulkSimilarityStorage {
 	
 	private static final Logger logger = Logger.getLogger(DefaultSimilarityStorage.class);
 
@@ -279,66 +283,107 @@ public class DefaultSimilarityStorage implements SimilarityStorage {
 			ElementSimilarityScoring elementSimilarityScoring,
 			FilterType filterType, double filterVal) throws SimilarityNotFoundException {
 		
-		List<ElementsSimilarityMeasure> ret = new LinkedList<ElementsSimilarityMeasure>();	
 		try {	
-			List<ElementsSimilarityMeasure> tmp = new LinkedList<ElementsSimilarityMeasure>();
-			       
 			Set<String> element1Keys = element.toKeys();
-			
-			for (String element1Key : element1Keys) {
-				
-				Element element1 = (Element) Class.forName(elementClassName).newInstance(); 
-				element1.fromKey(element1Key);
-				
-				List<String> elementSimilarities;
-				if (ruleDirection == RuleDirection.LEFT_TO_RIGHT)
-					elementSimilarities = leftElemntSimilarities.getTopN(element1Key,(filterType == FilterType.TOP_N ? (int)filterVal : Long.MAX_VALUE));
-				else
-					elementSimilarities = rightElemntSimilarities.getTopN(element1Key,(filterType == FilterType.TOP_N ? (int)filterVal : Long.MAX_VALUE));
-
-				if (elementSimilarities == null) {
-					logger.warn("No entry was found for key " + element1Key);
-				} else {
-					int i=0;
-					for (String elementSimilarity : elementSimilarities) {
-						
-						//tmp
-						//System.out.println(elementSimilarity);
-						
-						String[] toks = elementSimilarity.split(RedisBasedStringListBasicMap.ELEMENT_SCORE_DELIMITER);
-						String element2Key = toks[0];
-						Element element2 = (Element) Class.forName(elementClassName).newInstance(); 
-						element2.fromKey(element2Key);
-						double score = Double.parseDouble(toks[1]);
-
-						tmp.add(ruleDirection == RuleDirection.LEFT_TO_RIGHT ? 
-								new DefaultElementsSimilarityMeasure(element1, element2,score,null)
-								: 
-								new DefaultElementsSimilarityMeasure(element2, element1,score,null)
-							);
-						if (filterType != FilterType.TOP_N && filtered(filterType,filterVal,score,elementSimilarities.size(),i))
-							break;
-						i++;
-					}							
-				}					
+			return getSimilarityMeasure(element1Keys, getElementSimilarities(element1Keys, ruleDirection, filterType, filterVal), ruleDirection, filterType, filterVal);
+		} catch (Exception e) {
+			throw new SimilarityNotFoundException(e); 
+		}			
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.BulkSimilarityStorage#getSimilarityMeasures(java.util.List, eu.excitementproject.eop.distsim.domains.RuleDirection, eu.excitementproject.eop.distsim.domains.FilterType, double)
+	 */
+	@Override
+	public List<List<ElementsSimilarityMeasure>> getSimilarityMeasures(List<? extends Element> elements, RuleDirection ruleDirection, FilterType filterType, double filterVal) throws SimilarityNotFoundException {
+		try {
+			List<Set<String>> elementsKeys = new ArrayList<Set<String>>(elements.size());
+			Set<String> allKeys = new LinkedHashSet<String>();
+			for (Element element : elements) {
+				Set<String> elementKeys = element.toKeys();
+				elementsKeys.add(elementKeys);
+				allKeys.addAll(elementKeys);
 			}
-			
-			if (element1Keys.size() > 1) {
-				SortUtil.sortSimilarityRules(tmp, true); 			
-				int i=1;
-				for (ElementsSimilarityMeasure similarityRule :  tmp) {
-					if (!filtered(filterType,filterVal,similarityRule.getSimilarityMeasure(),tmp.size(),i)) 
-						ret.add(new DefaultElementsSimilarityMeasure(similarityRule.getLeftElement(),similarityRule.getRightElement(),similarityRule.getSimilarityMeasure(),similarityRule.getAdditionalInfo()));
-					else
-						break;
-					i++;
-				}
-			} else
-				ret = tmp;
+			// one round-trip to the database for all the elements
+			Map<String,List<String>> keysSimilarities = getElementSimilarities(allKeys, ruleDirection, filterType, filterVal);
+			List<List<ElementsSimilarityMeasure>> ret = new ArrayList<List<ElementsSimilarityMeasure>>(elements.size());
+			for (Set<String> elementKeys : elementsKeys)
+				ret.add(getSimilarityMeasure(elementKeys, keysSimilarities, ruleDirection, filterType, filterVal));
 			return ret;
 		} catch (Exception e) {
 			throw new SimilarityNotFoundException(e); 
-		}			
+		}
+	}
+
+	/**
+	 * Retrieves the similarity lists of the given element keys from the relevant database, in one pipelined access 
+	 */
+	protected Map<String,List<String>> getElementSimilarities(Set<String> keys, RuleDirection ruleDirection, FilterType filterType, double filterVal) {
+		RedisBasedStringListBasicMap elementSimilarities = (ruleDirection == RuleDirection.LEFT_TO_RIGHT ? leftElemntSimilarities : rightElemntSimilarities);
+		List<String> keyList = new ArrayList<String>(keys);
+		List<List<String>> similarities = elementSimilarities.getTopN(keyList,(filterType == FilterType.TOP_N ? (int)filterVal : Long.MAX_VALUE));
+		Map<String,List<String>> ret = new HashMap<String,List<String>>();
+		for (int i = 0; i < keyList.size(); i++)
+			ret.put(keyList.get(i), similarities.get(i));
+		return ret;
+	}
+
+	/**
+	 * Composes the similarity measures of an element with the given keys, based on the given retrieved similarity lists of the keys
+	 */
+	protected List<ElementsSimilarityMeasure> getSimilarityMeasure(Set<String> element1Keys, Map<String,List<String>> keysSimilarities,
+			RuleDirection ruleDirection, FilterType filterType, double filterVal) throws Exception {
+		
+		List<ElementsSimilarityMeasure> ret = new LinkedList<ElementsSimilarityMeasure>();	
+		List<ElementsSimilarityMeasure> tmp = new LinkedList<ElementsSimilarityMeasure>();
+		
+		for (String element1Key : element1Keys) {
+			
+			Element element1 = (Element) Class.forName(elementClassName).newInstance(); 
+			element1.fromKey(element1Key);
+			
+			List<String> elementSimilarities = keysSimilarities.get(element1Key);
+
+			if (elementSimilarities == null) {
+				logger.warn("No entry was found for key " + element1Key);
+			} else {
+				int i=0;
+				for (String elementSimilarity : elementSimilarities) {
+					
+					//tmp
+					//System.out.println(elementSimilarity);
+					
+					String[] toks = elementSimilarity.split(RedisBasedStringListBasicMap.ELEMENT_SCORE_DELIMITER);
+					String element2Key = toks[0];
+					Element element2 = (Element) Class.forName(elementClassName).newInstance(); 
+					element2.fromKey(element2Key);
+					double score = Double.parseDouble(toks[1]);
+
+					tmp.add(ruleDirection == RuleDirection.LEFT_TO_RIGHT ? 
+							new DefaultElementsSimilarityMeasure(element1, element2,score,null)
+							: 
+							new DefaultElementsSimilarityMeasure(element2, element1,score,null)
+						);
+					if (filterType != FilterType.TOP_N && filtered(filterType,filterVal,score,elementSimilarities.size(),i))
+						break;
+					i++;
+				}							
+			}					
+		}
+		
+		if (element1Keys.size() > 1) {
+			SortUtil.sortSimilarityRules(tmp, true); 			
+			int i=1;
+			for (ElementsSimilarityMeasure similarityRule :  tmp) {
+				if (!filtered(filterType,filterVal,similarityRule.getSimilarityMeasure(),tmp.size(),i)) 
+					ret.add(new DefaultElementsSimilarityMeasure(similarityRule.getLeftElement(),similarityRule.getRightElement(),similarityRule.getSimilarityMeasure(),similarityRule.getAdditionalInfo()));
+				else
+					break;
+				i++;
+			}
+		} else
+			ret = tmp;
+		return ret;
 	}
 
 
@@ -0,0 +1,342 @@
+/**
+ *
+ */
+package eu.excitementproject.eop.distsim.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.log4j.Logger;
+
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableIterator;
+import eu.excitementproject.eop.distsim.util.Pair;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+
+/**
+ * Writes a binary file of element-feature scores, element scores and feature elements, to be read by {@link MappedElementFeatureScoreStorage}.
+ * <P>
+ * The columns of the feature lists are written to temporary files, next to the target file, while the row indices (one entry per element id
+ * and per feature id) are kept in memory; the target file is composed on {@link #close()}. A writer which is not closed should be
+ * {@link #abort() aborted}, to delete its temporary files.
+ *
+ * @author agent
+ * @since 18/10/2026
+ *
+ */
+public class MappedElementFeatureScoreFileWriter {
+
+	private static final Logger logger = Logger.getLogger(MappedElementFeatureScoreFileWriter.class);
+
+	public MappedElementFeatureScoreFileWriter(java.io.File file) throws IOException {
+		this.file = file;
+		java.io.File dir = file.getAbsoluteFile().getParentFile();
+		this.featureIdsFile = java.io.File.createTempFile(file.getName(), ".features", dir);
+		this.scoresFile = java.io.File.createTempFile(file.getName(), ".scores", dir);
+		this.sortedFeatureIdsFile = java.io.File.createTempFile(file.getName(), ".sorted", dir);
+		this.ranksFile = java.io.File.createTempFile(file.getName(), ".ranks", dir);
+		this.featureElementsFile = java.io.File.createTempFile(file.getName(), ".elements", dir);
+		this.featureIdsOut = openTmpFile(featureIdsFile);
+		this.scoresOut = openTmpFile(scoresFile);
+		this.sortedFeatureIdsOut = openTmpFile(sortedFeatureIdsFile);
+		this.ranksOut = openTmpFile(ranksFile);
+		this.featureElementsOut = openTmpFile(featureElementsFile);
+		this.elementOrder = new TIntArrayList();
+		this.elementScores = new TDoubleArrayList();
+		this.rowStarts = new TLongArrayList();
+		this.rowSizes = new TIntArrayList();
+		this.featureRowStarts = new TLongArrayList();
+		this.featureRowSizes = new TIntArrayList();
+		this.entriesNum = 0;
+		this.featureEntriesNum = 0;
+	}
+
+	/**
+	 * Build a mapped file from the devices of the element-feature scores, the element scores and the feature elements
+	 *
+	 * @param file the target file
+	 * @param elementFeatureScoresDevice an opened device of element ids, mapped to their feature scores (ordered descendingly by their scores)
+	 * @param elementScoresDevice an opened device of element ids, mapped to their scores
+	 * @param featureElementsDevice an opened device of feature ids, mapped to the sets of their element ids
+	 */
+	@SuppressWarnings("unchecked")
+	public static void build(java.io.File file, PersistenceDevice elementFeatureScoresDevice, PersistenceDevice elementScoresDevice, PersistenceDevice featureElementsDevice) throws Exception {
+		MappedElementFeatureScoreFileWriter writer = new MappedElementFeatureScoreFileWriter(file);
+		boolean bClosed = false;
+		try {
+			Pair<Integer, Serializable> pair = null;
+			while ((pair = elementFeatureScoresDevice.read()) != null)
+				writer.writeElementFeatureScores(pair.getFirst(), (Map<Integer, Double>)pair.getSecond());
+			while ((pair = elementScoresDevice.read()) != null)
+				writer.writeElementScore(pair.getFirst(), (Double)pair.getSecond());
+			while ((pair = featureElementsDevice.read()) != null)
+				writer.writeFeatureElements(pair.getFirst(), (BasicSet<Integer>)pair.getSecond());
+			writer.close();
+			bClosed = true;
+		} finally {
+			if (!bClosed)
+				writer.abort();
+		}
+	}
+
+	/**
+	 * Write the feature scores of a given element
+	 *
+	 * @param elementId the id of an element
+	 * @param featureScores the ids of the features of the given element, mapped to their scores, ordered descendingly by their scores
+	 * @throws IOException
+	 */
+	public synchronized void writeElementFeatureScores(int elementId, Map<Integer, Double> featureScores) throws IOException {
+		ensureElement(elementId);
+		if (rowSizes.get(elementId) >= 0)
+			throw new IllegalArgumentException("The feature scores of element " + elementId + " were already written");
+		// the row is also indexed by feature ids, each with its position in the row
+		long[] sortedFeatures = new long[featureScores.size()];
+		int rank = 0;
+		for (Entry<Integer, Double> featureScore : featureScores.entrySet()) {
+			featureIdsOut.writeInt(featureScore.getKey());
+			scoresOut.writeFloat(featureScore.getValue().floatValue());
+			sortedFeatures[rank] = ((long)featureScore.getKey() << 32) | rank;
+			rank++;
+		}
+		Arrays.sort(sortedFeatures);
+		for (long sortedFeature : sortedFeatures) {
+			sortedFeatureIdsOut.writeInt((int)(sortedFeature >>> 32));
+			ranksOut.writeInt((int)sortedFeature);
+		}
+		elementOrder.add(elementId);
+		rowStarts.set(elementId, entriesNum);
+		rowSizes.set(elementId, sortedFeatures.length);
+		entriesNum += sortedFeatures.length;
+	}
+
+	/**
+	 * Write the score of a given element
+	 */
+	public synchronized void writeElementScore(int elementId, double score) {
+		ensureElement(elementId);
+		elementScores.set(elementId, score);
+	}
+
+	/**
+	 * Write the elements of a given feature
+	 *
+	 * @param featureId the id of a feature
+	 * @param elements the ids of the elements of the given feature
+	 * @throws IOException
+	 */
+	public synchronized void writeFeatureElements(int featureId, BasicSet<Integer> elements) throws IOException {
+		checkId(featureId);
+		while (featureRowSizes.size() <= featureId) {
+			featureRowStarts.add(0);
+			featureRowSizes.add(-1);
+		}
+		if (featureRowSizes.get(featureId) >= 0)
+			throw new IllegalArgumentException("The elements of feature " + featureId + " were already written");
+		int[] elementIds = new int[elements.size()];
+		int i = 0;
+		ImmutableIterator<Integer> it = elements.iterator();
+		while (it.hasNext())
+			elementIds[i++] = it.next();
+		Arrays.sort(elementIds);
+		for (int elementId : elementIds)
+			featureElementsOut.writeInt(elementId);
+		featureRowStarts.set(featureId, featureEntriesNum);
+		featureRowSizes.set(featureId, elementIds.length);
+		featureEntriesNum += elementIds.length;
+	}
+
+	/**
+	 * Compose the target file, and delete the temporary files. In case of a failure, the partial target file is deleted as well
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		boolean bComposed = false;
+		try {
+			closeTmpFiles();
+			compose();
+			bComposed = true;
+		} finally {
+			deleteTmpFiles();
+			if (!bComposed)
+				file.delete();
+		}
+		logger.info(file + ": " + elementOrder.size() + " elements with " + entriesNum + " feature scores, and " + featureRowSizes.size() + " features with " + featureEntriesNum + " elements");
+	}
+
+	/**
+	 * Discard the written data: close and delete the temporary files, with no composition of the target file
+	 */
+	public synchronized void abort() {
+		try {
+			closeTmpFiles();
+		} catch (IOException e) {
+			logger.warn("Failed closing the temporary files of " + file + ": " + e.toString());
+		}
+		deleteTmpFiles();
+	}
+
+	protected void compose() throws IOException {
+		int elementIdsNum = rowSizes.size();
+		int featureIdsNum = featureRowSizes.size();
+		int elementsNum = elementOrder.size();
+
+		// the layout of the file
+		long elementOrderOffset = MappedElementFeatureScoreStorage.HEADER_SIZE;
+		long elementScoresOffset = align(elementOrderOffset + 4L * elementsNum);
+		long rowStartsOffset = elementScoresOffset + 8L * elementIdsNum;
+		long rowSizesOffset = rowStartsOffset + 8L * elementIdsNum;
+		long featureIdsOffset = align(rowSizesOffset + 4L * elementIdsNum);
+		long scoresOffset = align(featureIdsOffset + 4L * entriesNum);
+		long sortedFeatureIdsOffset = align(scoresOffset + 4L * entriesNum);
+		long ranksOffset = align(sortedFeatureIdsOffset + 4L * entriesNum);
+		long featureRowStartsOffset = align(ranksOffset + 4L * entriesNum);
+		long featureRowSizesOffset = featureRowStartsOffset + 8L * featureIdsNum;
+		long featureElementsOffset = align(featureRowSizesOffset + 4L * featureIdsNum);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+		try {
+			out.writeInt(MappedElementFeatureScoreStorage.MAGIC);
+			out.writeInt(MappedElementFeatureScoreStorage.VERSION);
+			out.writeInt(elementIdsNum);
+			out.writeInt(featureIdsNum);
+			out.writeInt(elementsNum);
+			out.writeInt(0);
+			out.writeLong(entriesNum);
+			out.writeLong(featureEntriesNum);
+			out.writeLong(elementOrderOffset);
+			out.writeLong(elementScoresOffset);
+			out.writeLong(rowStartsOffset);
+			out.writeLong(rowSizesOffset);
+			out.writeLong(featureIdsOffset);
+			out.writeLong(scoresOffset);
+			out.writeLong(sortedFeatureIdsOffset);
+			out.writeLong(ranksOffset);
+			out.writeLong(featureRowStartsOffset);
+			out.writeLong(featureRowSizesOffset);
+			out.writeLong(featureElementsOffset);
+			pad(out, 24 + 8 * 13, MappedElementFeatureScoreStorage.HEADER_SIZE);
+
+			for (int i = 0; i < elementsNum; i++)
+				out.writeInt(elementOrder.get(i));
+			pad(out, elementOrderOffset + 4L * elementsNum, elementScoresOffset);
+			for (int id = 0; id < elementIdsNum; id++)
+				out.writeDouble(elementScores.get(id));
+			for (int id = 0; id < elementIdsNum; id++)
+				out.writeLong(rowStarts.get(id));
+			for (int id = 0; id < elementIdsNum; id++)
+				out.writeInt(rowSizes.get(id));
+			pad(out, rowSizesOffset + 4L * elementIdsNum, featureIdsOffset);
+
+			append(out, featureIdsFile);
+			pad(out, featureIdsOffset + 4L * entriesNum, scoresOffset);
+			append(out, scoresFile);
+			pad(out, scoresOffset + 4L * entriesNum, sortedFeatureIdsOffset);
+			append(out, sortedFeatureIdsFile);
+			pad(out, sortedFeatureIdsOffset + 4L * entriesNum, ranksOffset);
+			append(out, ranksFile);
+			pad(out, ranksOffset + 4L * entriesNum, featureRowStartsOffset);
+
+			for (int id = 0; id < featureIdsNum; id++)
+				out.writeLong(featureRowStarts.get(id));
+			for (int id = 0; id < featureIdsNum; id++)
+				out.writeInt(featureRowSizes.get(id));
+			pad(out, featureRowSizesOffset + 4L * featureIdsNum, featureElementsOffset);
+			append(out, featureElementsFile);
+		} finally {
+			out.close();
+		}
+	}
+
+	protected void closeTmpFiles() throws IOException {
+		IOException exception = null;
+		for (DataOutputStream out : new DataOutputStream[] {featureIdsOut, scoresOut, sortedFeatureIdsOut, ranksOut, featureElementsOut}) {
+			try {
+				out.close();
+			} catch (IOException e) {
+				if (exception == null)
+					exception = e;
+			}
+		}
+		if (exception != null)
+			throw exception;
+	}
+
+	protected void deleteTmpFiles() {
+		for (java.io.File tmpFile : new java.io.File[] {featureIdsFile, scoresFile, sortedFeatureIdsFile, ranksFile, featureElementsFile})
+			if (tmpFile.exists() && !tmpFile.delete())
+				logger.warn("Failed deleting temporary file " + tmpFile);
+	}
+
+	protected void ensureElement(int elementId) {
+		checkId(elementId);
+		while (rowSizes.size() <= elementId) {
+			elementScores.add(Double.NaN);
+			rowStarts.add(0);
+			rowSizes.add(-1);
+		}
+	}
+
+	protected static void checkId(int id) {
+		if (id < 0)
+			throw new IllegalArgumentException("Negative id " + id);
+	}
+
+	protected static DataOutputStream openTmpFile(java.io.File file) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+	}
+
+	protected static void append(DataOutputStream out, java.io.File file) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) > 0)
+				out.write(buffer, 0, read);
+		} finally {
+			in.close();
+		}
+	}
+
+	protected static long align(long offset) {
+		return (offset + 7) & ~7L;
+	}
+
+	protected static void pad(DataOutputStream out, long from, long to) throws IOException {
+		for (long offset = from; offset < to; offset++)
+			out.write(0);
+	}
+
+	protected static final int BUFFER_SIZE = 1 << 16;
+
+	protected final java.io.File file;
+	protected final java.io.File featureIdsFile;
+	protected final java.io.File scoresFile;
+	protected final java.io.File sortedFeatureIdsFile;
+	protected final java.io.File ranksFile;
+	protected final java.io.File featureElementsFile;
+	protected final DataOutputStream featureIdsOut;
+	protected final DataOutputStream scoresOut;
+	protected final DataOutputStream sortedFeatureIdsOut;
+	protected final DataOutputStream ranksOut;
+	protected final DataOutputStream featureElementsOut;
+	protected final TIntArrayList elementOrder;
+	protected final TDoubleArrayList elementScores;
+	protected final TLongArrayList rowStarts;
+	protected final TIntArrayList rowSizes;
+	protected final TLongArrayList featureRowStarts;
+	protected final TIntArrayList featureRowSizes;
+	protected long entriesNum;
+	protected long featureEntriesNum;
+}
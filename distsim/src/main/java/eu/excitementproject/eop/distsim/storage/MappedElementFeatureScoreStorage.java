@@ -0,0 +1,498 @@
+/**
+ *
+ */
+package eu.excitementproject.eop.distsim.storage;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableIterator;
+import eu.excitementproject.eop.distsim.scoring.DefaultElementScore;
+import eu.excitementproject.eop.distsim.scoring.DefaultFeatureScore;
+import eu.excitementproject.eop.distsim.scoring.ElementFeatureScores;
+import eu.excitementproject.eop.distsim.scoring.ElementScore;
+import eu.excitementproject.eop.distsim.scoring.FeatureScore;
+import eu.excitementproject.eop.distsim.scoring.feature.DefaultElementFeatureData;
+import eu.excitementproject.eop.distsim.scoring.feature.ElementFeatureData;
+import eu.excitementproject.eop.distsim.domains.FilterType;
+
+/**
+ * A read-only implementation of the {@link ElementFeatureScoreStorage} interface, based on a memory-mapped binary file,
+ * as written by {@link MappedElementFeatureScoreFileWriter}.
+ * <P>
+ * The file holds, for each element, the ids of its features and their scores (as floats), ordered descendingly by the scores,
+ * together with an index of the same row, ordered by the feature ids, which gives the position of each feature in the row.
+ * For each feature, the file holds the sorted ids of its elements. The rows of both directions are accessed by the element (feature) id,
+ * through arrays of row starts and sizes.
+ * <P>
+ * A feature score of an element is retrieved by a binary search in the row of the element, directly from the mapped file, with no allocation
+ * of objects (the {@link ElementFeatureData} of {@link #getElementFeatureData(int, int)} is the only object created per retrieval).
+ * The file is not loaded to the heap, and pages of it are loaded by the operating system on demand.
+ *
+ * <P>
+ * Thread-safe
+ *
+ * @author agent
+ * @since 18/10/2026
+ *
+ */
+public class MappedElementFeatureScoreStorage implements ElementFeatureScoreStorage {
+
+	static final int MAGIC = 0x45465346;
+	static final int VERSION = 1;
+	// the file is mapped in segments; all the values in the file are aligned to their sizes, so no value crosses a segment boundary
+	static final int SEGMENT_BITS = 30;
+	static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+	/**
+	 * The offsets of the fields of the header of the file
+	 */
+	static final int HEADER_ELEMENT_IDS_NUM = 8;
+	static final int HEADER_FEATURE_IDS_NUM = 12;
+	static final int HEADER_ELEMENTS_NUM = 16;
+	static final int HEADER_ELEMENT_ORDER = 40;
+	static final int HEADER_ELEMENT_SCORES = 48;
+	static final int HEADER_ROW_STARTS = 56;
+	static final int HEADER_ROW_SIZES = 64;
+	static final int HEADER_FEATURE_IDS = 72;
+	static final int HEADER_SCORES = 80;
+	static final int HEADER_SORTED_FEATURE_IDS = 88;
+	static final int HEADER_RANKS = 96;
+	static final int HEADER_FEATURE_ROW_STARTS = 104;
+	static final int HEADER_FEATURE_ROW_SIZES = 112;
+	static final int HEADER_FEATURE_ELEMENTS = 120;
+	static final int HEADER_SIZE = 128;
+
+	public MappedElementFeatureScoreStorage(String file) throws IOException {
+		this(new java.io.File(file));
+	}
+
+	public MappedElementFeatureScoreStorage(java.io.File file) throws IOException {
+		this(file, SEGMENT_BITS);
+	}
+
+	/**
+	 * @param file a file, written by {@link MappedElementFeatureScoreFileWriter}
+	 * @param segmentBits the log2 of the size of the mapped segments, at least 3, so the aligned values do not cross segment boundaries
+	 */
+	MappedElementFeatureScoreStorage(java.io.File file, int segmentBits) throws IOException {
+		if (segmentBits < 3 || segmentBits > SEGMENT_BITS)
+			throw new IllegalArgumentException("Segment bits " + segmentBits + " is out of range 3-" + SEGMENT_BITS);
+		this.file = file;
+		this.segmentBits = segmentBits;
+		this.segmentMask = (1L << segmentBits) - 1;
+		long segmentSize = 1L << segmentBits;
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			long size = channel.size();
+			int segmentsNum = (int)((size + segmentSize - 1) / segmentSize);
+			segments = new MappedByteBuffer[Math.max(segmentsNum, 1)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = i * segmentSize;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, size - start));
+			}
+		} finally {
+			randomAccessFile.close();
+		}
+
+		if (getInt(0) != MAGIC)
+			throw new IOException(file + " is not an element-feature scores file");
+		if (getInt(4) != VERSION)
+			throw new IOException("Unsupported version " + getInt(4) + " of element-feature scores file " + file);
+		this.elementIdsNum = getInt(HEADER_ELEMENT_IDS_NUM);
+		this.featureIdsNum = getInt(HEADER_FEATURE_IDS_NUM);
+		this.elementsNum = getInt(HEADER_ELEMENTS_NUM);
+		this.elementOrder = getLong(HEADER_ELEMENT_ORDER);
+		this.elementScores = getLong(HEADER_ELEMENT_SCORES);
+		this.rowStarts = getLong(HEADER_ROW_STARTS);
+		this.rowSizes = getLong(HEADER_ROW_SIZES);
+		this.featureIds = getLong(HEADER_FEATURE_IDS);
+		this.scores = getLong(HEADER_SCORES);
+		this.sortedFeatureIds = getLong(HEADER_SORTED_FEATURE_IDS);
+		this.ranks = getLong(HEADER_RANKS);
+		this.featureRowStarts = getLong(HEADER_FEATURE_ROW_STARTS);
+		this.featureRowSizes = getLong(HEADER_FEATURE_ROW_SIZES);
+		this.featureElements = getLong(HEADER_FEATURE_ELEMENTS);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage#getElementFeatureScore(int, int)
+	 */
+	@Override
+	public double getElementFeatureScore(int elementId, int featureId) throws NoScoreFoundException {
+		int rank = getFeatureRank(elementId, featureId);
+		if (rank < 0)
+			throw new NoScoreFoundException();
+		return getFloat(scores + 4L * (getLong(rowStarts + 8L * elementId) + rank));
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage#getElementFeatureData(int, int)
+	 */
+	@Override
+	public ElementFeatureData getElementFeatureData(int elementId, int featureId) throws NoScoreFoundException {
+		int rank = getFeatureRank(elementId, featureId);
+		if (rank < 0)
+			throw new NoScoreFoundException();
+		return new DefaultElementFeatureData(getFloat(scores + 4L * (getLong(rowStarts + 8L * elementId) + rank)), rank, getRowSize(elementId));
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage#getElementFeatureScores(int)
+	 */
+	@Override
+	public ImmutableIterator<FeatureScore> getElementFeatureScores(int elementId) throws NoScoreFoundException {
+		return getElementFeatureScores(elementId, FilterType.ALL, 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage#getElementFeatureScores(int, eu.excitementproject.eop.distsim.util.FilterType, double)
+	 */
+	@Override
+	public ImmutableIterator<FeatureScore> getElementFeatureScores(int elementId, FilterType filterType, double filterVal) throws NoScoreFoundException {
+		if (getRowSize(elementId) < 0)
+			throw new NoScoreFoundException("No feature score was found for element " + elementId);
+		return new RowIterator(elementId, filterType, filterVal);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage#getElementsFeatureScores()
+	 */
+	@Override
+	public ImmutableIterator<ElementFeatureScores> getElementsFeatureScores() {
+		return getElementsFeatureScores(FilterType.ALL, 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage#getElementsFeatureScores(eu.excitementproject.eop.distsim.util.FilterType, double)
+	 */
+	@Override
+	public ImmutableIterator<ElementFeatureScores> getElementsFeatureScores(final FilterType filterType, final double filterVal) {
+		return new ImmutableIterator<ElementFeatureScores>() {
+
+			@Override
+			public boolean hasNext() {
+				return i < elementsNum;
+			}
+
+			@Override
+			public ElementFeatureScores next() {
+				if (i >= elementsNum)
+					throw new NoSuchElementException();
+				final int elementId = getInt(elementOrder + 4L * i++);
+				return new ElementFeatureScores() {
+
+					@Override
+					public int getElementId() {
+						return elementId;
+					}
+
+					@Override
+					public ImmutableIterator<FeatureScore> getFeatureScores() {
+						return new RowIterator(elementId, filterType, filterVal);
+					}
+
+					@Override
+					public int getFeatureScoresNum() {
+						return getRowSize(elementId);
+					}
+				};
+			}
+
+			protected int i = 0;
+		};
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage#getElementScore(int)
+	 */
+	@Override
+	public double getElementScore(int elementId) throws NoScoreFoundException {
+		double ret = (elementId >= 0 && elementId < elementIdsNum ? getDouble(elementScores + 8L * elementId) : Double.NaN);
+		if (Double.isNaN(ret))
+			throw new NoScoreFoundException("No score was found for element " + elementId);
+		return ret;
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage#getElementScores()
+	 */
+	@Override
+	public ImmutableIterator<ElementScore> getElementScores() {
+		return new ImmutableIterator<ElementScore>() {
+
+			@Override
+			public boolean hasNext() {
+				while (id < elementIdsNum && Double.isNaN(getDouble(elementScores + 8L * id)))
+					id++;
+				return id < elementIdsNum;
+			}
+
+			@Override
+			public ElementScore next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				ElementScore ret = new DefaultElementScore(id, getDouble(elementScores + 8L * id));
+				id++;
+				return ret;
+			}
+
+			protected int id = 0;
+		};
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage#getFeatureElements(int)
+	 */
+	@Override
+	public BasicSet<Integer> getFeatureElements(int featureId) {
+		if (featureId < 0 || featureId >= featureIdsNum)
+			return null;
+		int size = getInt(featureRowSizes + 4L * featureId);
+		if (size < 0)
+			return null;
+		return new FeatureElements(featureElements + 4L * getLong(featureRowStarts + 8L * featureId), size);
+	}
+
+	/**
+	 * @param elementId the id of an element
+	 * @param featureId the id of a feature
+	 * @return the position of the given feature in the feature list of the given element, ordered descendingly by the scores, or -1 if the element has no such feature
+	 */
+	public int getFeatureRank(int elementId, int featureId) {
+		int size = getRowSize(elementId);
+		if (size <= 0)
+			return -1;
+		long start = getLong(rowStarts + 8L * elementId);
+		long offset = sortedFeatureIds + 4L * start;
+		int low = 0, high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int midFeatureId = getInt(offset + 4L * mid);
+			if (midFeatureId < featureId)
+				low = mid + 1;
+			else if (midFeatureId > featureId)
+				high = mid - 1;
+			else
+				return getInt(ranks + 4L * (start + mid));
+		}
+		return -1;
+	}
+
+	/**
+	 * @param elementId the id of an element
+	 * @return the number of features of the given element, or -1 if the element has no feature scores
+	 */
+	public int getRowSize(int elementId) {
+		if (elementId < 0 || elementId >= elementIdsNum)
+			return -1;
+		return getInt(rowSizes + 4L * elementId);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.Persistence#saveState(eu.excitementproject.eop.distsim.storage.PersistenceDevice[])
+	 *
+	 * Assumption: two persistence devices are provided:
+	 *   1. element-feature scores
+	 *   2. element scores
+	 */
+	@Override
+	public void saveState(PersistenceDevice... devices) throws SavingStateException {
+		if (devices.length != 2)
+			throw new SavingStateException(devices.length + " persistence devices was providied for saving, where two are expected");
+		try {
+			for (int i = 0; i < elementsNum; i++) {
+				int elementId = getInt(elementOrder + 4L * i);
+				LinkedHashMap<Integer, Double> featureScores = new LinkedHashMap<Integer, Double>();
+				ImmutableIterator<FeatureScore> it = new RowIterator(elementId, FilterType.ALL, 0);
+				while (it.hasNext()) {
+					FeatureScore featureScore = it.next();
+					featureScores.put(featureScore.getFeatureId(), featureScore.getScore());
+				}
+				devices[0].write(elementId, featureScores);
+			}
+			ImmutableIterator<ElementScore> it = getElementScores();
+			while (it.hasNext()) {
+				ElementScore elementScore = it.next();
+				devices[1].write(elementScore.getElementId(), elementScore.getScore());
+			}
+		} catch (Exception e) {
+			throw new SavingStateException(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.Persistence#loadState(eu.excitementproject.eop.distsim.storage.PersistenceDevice[])
+	 */
+	@Override
+	public void loadState(PersistenceDevice... devices) throws LoadingStateException {
+		throw new LoadingStateException("A mapped element-feature scores storage is read-only; its file is built by MappedElementFeatureScoreFileWriter");
+	}
+
+	/**
+	 * Release the file. The mapped memory is released by the garbage collector
+	 */
+	public void close() {
+		segments = null;
+	}
+
+	@Override
+	public String toString() {
+		return file.getPath();
+	}
+
+	/**
+	 * Iterates over the features of an element, ordered descendingly by their scores, with the filtering of {@link eu.excitementproject.eop.distsim.storage.iterators.FilterFeatureScoreIterator}
+	 */
+	class RowIterator extends ImmutableIterator<FeatureScore> {
+
+		RowIterator(int elementId, FilterType filterType, double filterVal) {
+			this.start = getLong(rowStarts + 8L * elementId);
+			this.size = Math.max(getRowSize(elementId), 0);
+			this.filterType = filterType;
+			this.filterVal = filterVal;
+			this.i = 0;
+			this.bFiltered = false;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (i >= size || bFiltered)
+				return false;
+			bFiltered = filtered(getFloat(scores + 4L * (start + i)), i + 1);
+			return !bFiltered;
+		}
+
+		@Override
+		public FeatureScore next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			FeatureScore ret = new DefaultFeatureScore(getInt(featureIds + 4L * (start + i)), getFloat(scores + 4L * (start + i)));
+			i++;
+			return ret;
+		}
+
+		protected boolean filtered(double score, int order) {
+			switch (filterType) {
+				case MIN_VAL:
+					return score < filterVal;
+				case TOP_N:
+					return order > filterVal;
+				case TOP_PRECENT:
+					return order > size * filterVal;
+				default:
+					return false;
+			}
+		}
+
+		protected final long start;
+		protected final int size;
+		protected final FilterType filterType;
+		protected final double filterVal;
+		protected int i;
+		// due to the order of the features, no feature is returned after the first filtered one
+		protected boolean bFiltered;
+	}
+
+	/**
+	 * A read-only view of the sorted element ids of a feature
+	 */
+	class FeatureElements implements BasicSet<Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		FeatureElements(long offset, int size) {
+			this.offset = offset;
+			this.size = size;
+		}
+
+		@Override
+		public void add(Integer item) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ImmutableIterator<Integer> iterator() {
+			return new ImmutableIterator<Integer>() {
+
+				@Override
+				public boolean hasNext() {
+					return i < size;
+				}
+
+				@Override
+				public Integer next() {
+					if (i >= size)
+						throw new NoSuchElementException();
+					return getInt(offset + 4L * i++);
+				}
+
+				protected int i = 0;
+			};
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Integer elementId) {
+			int low = 0, high = size - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int midElementId = getInt(offset + 4L * mid);
+				if (midElementId < elementId)
+					low = mid + 1;
+				else if (midElementId > elementId)
+					high = mid - 1;
+				else
+					return true;
+			}
+			return false;
+		}
+
+		protected final long offset;
+		protected final int size;
+	}
+
+	protected int getInt(long offset) {
+		return segments[(int)(offset >>> segmentBits)].getInt((int)(offset & segmentMask));
+	}
+
+	protected long getLong(long offset) {
+		return segments[(int)(offset >>> segmentBits)].getLong((int)(offset & segmentMask));
+	}
+
+	protected float getFloat(long offset) {
+		return segments[(int)(offset >>> segmentBits)].getFloat((int)(offset & segmentMask));
+	}
+
+	protected double getDouble(long offset) {
+		return segments[(int)(offset >>> segmentBits)].getDouble((int)(offset & segmentMask));
+	}
+
+	protected final java.io.File file;
+	protected final int segmentBits;
+	protected final long segmentMask;
+	protected MappedByteBuffer[] segments;
+	protected final int elementIdsNum;
+	protected final int featureIdsNum;
+	protected final int elementsNum;
+	protected final long elementOrder;
+	protected final long elementScores;
+	protected final long rowStarts;
+	protected final long rowSizes;
+	protected final long featureIds;
+	protected final long scores;
+	protected final long sortedFeatureIds;
+	protected final long ranks;
+	protected final long featureRowStarts;
+	protected final long featureRowSizes;
+	protected final long featureElements;
+}
@@ -0,0 +1,264 @@
+/**
+ *
+ */
+package eu.excitementproject.eop.distsim.storage;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * A read-only, memory-mapped, binary file of element similarities, as written by {@link MappedSimilarityFileWriter}.
+ * <P>
+ * The file holds a dictionary of the element keys, where each element is identified by its position in the dictionary,
+ * a hash table from the keys to their ids, and, for each element, the list of its similar elements, as pairs of element id and score,
+ * ordered descendingly by their scores.
+ * <P>
+ * Retrievals are served directly from the mapped file, with no parsing of strings and no allocation of objects, except for
+ * the keys themselves.
+ *
+ * <P>
+ * Thread-safe
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class MappedSimilarityFile {
+
+	static final int MAGIC = 0x45535346;
+	static final int VERSION = 1;
+	static final Charset CHARSET = Charset.forName("UTF-8");
+	// the size of an entry in a similarity list: an element id and a score
+	static final int ENTRY_SIZE = 4 + 8;
+	// the maximal size of a key, in bytes
+	static final int MAX_KEY_SIZE = 1 << 16;
+	// the file is mapped in segments, each of them overlaps the next one by MAX_KEY_SIZE bytes, so any key or number is read from one segment
+	static final int SEGMENT_BITS = 30;
+	static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+	/**
+	 * The offsets of the fields of the header of the file
+	 */
+	static final int HEADER_ELEMENTS_NUM = 8;
+	static final int HEADER_HASH_CAPACITY = 12;
+	static final int HEADER_CLASS_NAME = 16;
+	static final int HEADER_KEY_OFFSETS = 24;
+	static final int HEADER_HASH = 32;
+	static final int HEADER_LIST_STARTS = 40;
+	static final int HEADER_LIST_SIZES = 48;
+	static final int HEADER_LISTS = 56;
+	static final int HEADER_SIZE = 64;
+
+	public MappedSimilarityFile(String file) throws IOException {
+		this(new java.io.File(file));
+	}
+
+	public MappedSimilarityFile(java.io.File file) throws IOException {
+		this.file = file;
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			long size = channel.size();
+			int segmentsNum = (int)((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+			segments = new MappedByteBuffer[Math.max(segmentsNum, 1)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = i * SEGMENT_SIZE;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE + MAX_KEY_SIZE, size - start));
+			}
+		} finally {
+			randomAccessFile.close();
+		}
+
+		if (getInt(0) != MAGIC)
+			throw new IOException(file + " is not a similarity file");
+		if (getInt(4) != VERSION)
+			throw new IOException("Unsupported version " + getInt(4) + " of similarity file " + file);
+		this.elementsNum = getInt(HEADER_ELEMENTS_NUM);
+		this.hashMask = getInt(HEADER_HASH_CAPACITY) - 1;
+		this.keyOffsets = getLong(HEADER_KEY_OFFSETS);
+		this.hash = getLong(HEADER_HASH);
+		this.listStarts = getLong(HEADER_LIST_STARTS);
+		this.listSizes = getLong(HEADER_LIST_SIZES);
+		this.lists = getLong(HEADER_LISTS);
+		long classNameOffset = getLong(HEADER_CLASS_NAME);
+		int classNameLength = getInt(classNameOffset);
+		this.elementClassName = (classNameLength < 0 ? null : new String(getBytes(classNameOffset + 4, classNameLength), CHARSET));
+	}
+
+	/**
+	 * @return the name of the type of the elements in the file, or null if it is not defined
+	 */
+	public String getElementClassName() {
+		return elementClassName;
+	}
+
+	/**
+	 * @return the number of elements in the dictionary of the file
+	 */
+	public int size() {
+		return elementsNum;
+	}
+
+	/**
+	 * @param key an element key
+	 * @return the id of the element, or -1 if there is no such element in the file
+	 */
+	public int getElementId(String key) {
+		checkOpen();
+		byte[] bytes = key.getBytes(CHARSET);
+		int i = hash(key) & hashMask;
+		while (true) {
+			int id = getInt(hash + 4L * i) - 1;
+			if (id < 0)
+				return -1;
+			if (keyEquals(id, bytes))
+				return id;
+			i = (i + 1) & hashMask;
+		}
+	}
+
+	/**
+	 * @param elementId an element id
+	 * @return the key of the element
+	 */
+	public String getElementKey(int elementId) {
+		checkElementId(elementId);
+		long start = getLong(keyOffsets + 8L * elementId);
+		long end = getLong(keyOffsets + 8L * (elementId + 1));
+		return new String(getBytes(start, (int)(end - start)), CHARSET);
+	}
+
+	/**
+	 * @param elementId an element id
+	 * @return the number of similar elements of the given element
+	 */
+	public int getSimilaritiesNum(int elementId) {
+		checkElementId(elementId);
+		return getInt(listSizes + 4L * elementId);
+	}
+
+	/**
+	 * @param elementId an element id
+	 * @param i a position in the similarity list of the given element
+	 * @return the id of the i-th similar element of the given element
+	 */
+	public int getSimilarElementId(int elementId, int i) {
+		return getInt(getEntryOffset(elementId, i));
+	}
+
+	/**
+	 * @param elementId an element id
+	 * @param i a position in the similarity list of the given element
+	 * @return the similarity score of the i-th similar element of the given element
+	 */
+	public double getSimilarityScore(int elementId, int i) {
+		return getDouble(getEntryOffset(elementId, i) + 4);
+	}
+
+	/**
+	 * @param elementId1 an element id
+	 * @param elementId2 an element id
+	 * @return the position of the second element in the similarity list of the first element, or -1 if it is not there
+	 */
+	public int getSimilarityIndex(int elementId1, int elementId2) {
+		int size = getSimilaritiesNum(elementId1);
+		long offset = lists + ENTRY_SIZE * getLong(listStarts + 8L * elementId1);
+		for (int i = 0; i < size; i++, offset += ENTRY_SIZE)
+			if (getInt(offset) == elementId2)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Release the file. The mapped memory is released by the garbage collector. Closing a closed file has no effect, 
+	 * while any other access to a closed file throws an {@link IllegalStateException}
+	 */
+	public void close() {
+		segments = null;
+	}
+
+	/**
+	 * @return true if the file was not closed
+	 */
+	public boolean isOpen() {
+		return segments != null;
+	}
+
+	@Override
+	public String toString() {
+		return file.getPath();
+	}
+
+	/**
+	 * The hash of a key, as used by the hash table of the file
+	 */
+	static int hash(String key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	protected long getEntryOffset(int elementId, int i) {
+		if (i < 0 || i >= getSimilaritiesNum(elementId))
+			throw new IndexOutOfBoundsException("Element " + elementId + " has no similarity at position " + i);
+		return lists + ENTRY_SIZE * (getLong(listStarts + 8L * elementId) + i);
+	}
+
+	protected boolean keyEquals(int elementId, byte[] bytes) {
+		long start = getLong(keyOffsets + 8L * elementId);
+		long end = getLong(keyOffsets + 8L * (elementId + 1));
+		if (end - start != bytes.length)
+			return false;
+		MappedByteBuffer segment = segments[(int)(start >>> SEGMENT_BITS)];
+		int position = (int)(start & (SEGMENT_SIZE - 1));
+		for (int i = 0; i < bytes.length; i++)
+			if (segment.get(position + i) != bytes[i])
+				return false;
+		return true;
+	}
+
+	protected void checkOpen() {
+		if (segments == null)
+			throw new IllegalStateException("Similarity file " + file + " was closed");
+	}
+
+	protected void checkElementId(int elementId) {
+		checkOpen();
+		if (elementId < 0 || elementId >= elementsNum)
+			throw new IndexOutOfBoundsException("No element with id " + elementId + " in " + file);
+	}
+
+	protected int getInt(long offset) {
+		return segments[(int)(offset >>> SEGMENT_BITS)].getInt((int)(offset & (SEGMENT_SIZE - 1)));
+	}
+
+	protected long getLong(long offset) {
+		return segments[(int)(offset >>> SEGMENT_BITS)].getLong((int)(offset & (SEGMENT_SIZE - 1)));
+	}
+
+	protected double getDouble(long offset) {
+		return segments[(int)(offset >>> SEGMENT_BITS)].getDouble((int)(offset & (SEGMENT_SIZE - 1)));
+	}
+
+	protected byte[] getBytes(long offset, int length) {
+		MappedByteBuffer segment = segments[(int)(offset >>> SEGMENT_BITS)];
+		int position = (int)(offset & (SEGMENT_SIZE - 1));
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+			bytes[i] = segment.get(position + i);
+		return bytes;
+	}
+
+	protected final java.io.File file;
+	protected MappedByteBuffer[] segments;
+	protected final String elementClassName;
+	protected final int elementsNum;
+	protected final int hashMask;
+	protected final long keyOffsets;
+	protected final long hash;
+	protected final long listStarts;
+	protected final long listSizes;
+	protected final long lists;
+}
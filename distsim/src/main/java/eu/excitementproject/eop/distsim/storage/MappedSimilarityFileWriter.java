@@ -0,0 +1,219 @@
+/**
+ *
+ */
+package eu.excitementproject.eop.distsim.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.log4j.Logger;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+/**
+ * Writes a binary file of element similarities, to be read by {@link MappedSimilarityFile}.
+ * <P>
+ * The similarity lists are written to a temporary file, next to the target file, while the dictionary of the element keys is kept in memory;
+ * the target file is composed on {@link #close()}. A writer which is not closed should be aborted by {@link #abort()}, in order to delete the temporary file.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class MappedSimilarityFileWriter {
+
+	private static final Logger logger = Logger.getLogger(MappedSimilarityFileWriter.class);
+
+	public MappedSimilarityFileWriter(java.io.File file, String elementClassName) throws IOException {
+		this.file = file;
+		this.elementClassName = elementClassName;
+		this.listsFile = java.io.File.createTempFile(file.getName(), ".lists", file.getAbsoluteFile().getParentFile());
+		this.listsOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(listsFile)));
+		this.keys = new ArrayList<String>();
+		this.keyIds = new TObjectIntHashMap<String>(1024, 0.5f, -1);
+		this.listStarts = new TLongArrayList();
+		this.listSizes = new TIntArrayList();
+		this.entriesNum = 0;
+	}
+
+	/**
+	 * Write the similar elements of a given element
+	 *
+	 * @param elementKey the key of an element
+	 * @param similarities the keys of the similar elements of the given element, mapped to their scores, ordered descendingly by their scores
+	 * @throws IOException
+	 */
+	public synchronized void write(String elementKey, Map<String, Double> similarities) throws IOException {
+		int elementId = getElementId(elementKey);
+		if (listStarts.get(elementId) >= 0)
+			throw new IllegalArgumentException("The similarities of element " + elementKey + " were already written");
+		listStarts.set(elementId, entriesNum);
+		for (Entry<String, Double> similarity : similarities.entrySet()) {
+			listsOut.writeInt(getElementId(similarity.getKey()));
+			listsOut.writeDouble(similarity.getValue());
+			entriesNum++;
+		}
+		listSizes.set(elementId, similarities.size());
+	}
+
+	/**
+	 * Compose the target file, and delete the temporary file. If the composition fails, the partial target file is deleted as well
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		boolean bComposed = false;
+		try {
+			listsOut.close();
+			compose();
+			bComposed = true;
+		} finally {
+			deleteListsFile();
+			if (!bComposed)
+				file.delete();
+		}
+	}
+
+	/**
+	 * Discard the written similarities: close and delete the temporary file, with no composition of the target file
+	 */
+	public synchronized void abort() {
+		try {
+			listsOut.close();
+		} catch (IOException e) {
+			logger.warn("Failed closing the temporary file of " + file + ": " + e.toString());
+		}
+		deleteListsFile();
+	}
+
+	protected void compose() throws IOException {
+		int elementsNum = keys.size();
+		int hashCapacity = 2;
+		while (hashCapacity < 2 * elementsNum)
+			hashCapacity *= 2;
+		List<byte[]> keyBytes = new ArrayList<byte[]>(elementsNum);
+		long keysSize = 0;
+		for (String key : keys) {
+			byte[] bytes = key.getBytes(MappedSimilarityFile.CHARSET);
+			keyBytes.add(bytes);
+			keysSize += bytes.length;
+		}
+		byte[] classNameBytes = (elementClassName == null ? new byte[0] : elementClassName.getBytes(MappedSimilarityFile.CHARSET));
+
+		// the layout of the file
+		long classNameOffset = MappedSimilarityFile.HEADER_SIZE;
+		long keyOffsetsOffset = align(classNameOffset + 4 + classNameBytes.length);
+		long keysOffset = keyOffsetsOffset + 8L * (elementsNum + 1);
+		long hashOffset = align(keysOffset + keysSize);
+		long listStartsOffset = align(hashOffset + 4L * hashCapacity);
+		long listSizesOffset = listStartsOffset + 8L * elementsNum;
+		long listsOffset = align(listSizesOffset + 4L * elementsNum);
+
+		int[] hash = new int[hashCapacity];
+		for (int id = 0; id < elementsNum; id++) {
+			int i = MappedSimilarityFile.hash(keys.get(id)) & (hashCapacity - 1);
+			while (hash[i] != 0)
+				i = (i + 1) & (hashCapacity - 1);
+			hash[i] = id + 1;
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MappedSimilarityFile.MAGIC);
+			out.writeInt(MappedSimilarityFile.VERSION);
+			out.writeInt(elementsNum);
+			out.writeInt(hashCapacity);
+			out.writeLong(classNameOffset);
+			out.writeLong(keyOffsetsOffset);
+			out.writeLong(hashOffset);
+			out.writeLong(listStartsOffset);
+			out.writeLong(listSizesOffset);
+			out.writeLong(listsOffset);
+
+			out.writeInt(elementClassName == null ? -1 : classNameBytes.length);
+			out.write(classNameBytes);
+			pad(out, classNameOffset + 4 + classNameBytes.length, keyOffsetsOffset);
+
+			long keyOffset = keysOffset;
+			for (byte[] bytes : keyBytes) {
+				out.writeLong(keyOffset);
+				keyOffset += bytes.length;
+			}
+			out.writeLong(keyOffset);
+			for (byte[] bytes : keyBytes)
+				out.write(bytes);
+			pad(out, keysOffset + keysSize, hashOffset);
+
+			for (int id : hash)
+				out.writeInt(id);
+			pad(out, hashOffset + 4L * hashCapacity, listStartsOffset);
+
+			for (int id = 0; id < elementsNum; id++)
+				out.writeLong(Math.max(listStarts.get(id), 0));
+			for (int id = 0; id < elementsNum; id++)
+				out.writeInt(listSizes.get(id));
+			pad(out, listSizesOffset + 4L * elementsNum, listsOffset);
+
+			InputStream in = new BufferedInputStream(new FileInputStream(listsFile));
+			try {
+				byte[] buffer = new byte[1 << 16];
+				int read;
+				while ((read = in.read(buffer)) > 0)
+					out.write(buffer, 0, read);
+			} finally {
+				in.close();
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	protected void deleteListsFile() {
+		if (listsFile.exists() && !listsFile.delete())
+			logger.warn("Failed deleting temporary file " + listsFile);
+	}
+
+	protected int getElementId(String key) {
+		int id = keyIds.get(key);
+		if (id < 0) {
+			if (key.getBytes(MappedSimilarityFile.CHARSET).length >= MappedSimilarityFile.MAX_KEY_SIZE)
+				throw new IllegalArgumentException("The key of element " + key.substring(0, 100) + "... is too long");
+			id = keys.size();
+			keys.add(key);
+			keyIds.put(key, id);
+			listStarts.add(-1);
+			listSizes.add(0);
+		}
+		return id;
+	}
+
+	protected static long align(long offset) {
+		return (offset + 7) & ~7L;
+	}
+
+	protected static void pad(DataOutputStream out, long from, long to) throws IOException {
+		for (long offset = from; offset < to; offset++)
+			out.write(0);
+	}
+
+	protected final java.io.File file;
+	protected final String elementClassName;
+	protected final java.io.File listsFile;
+	protected final DataOutputStream listsOut;
+	protected final List<String> keys;
+	protected final TObjectIntHashMap<String> keyIds;
+	protected final TLongArrayList listStarts;
+	protected final TIntArrayList listSizes;
+	protected long entriesNum;
+}
@@ -0,0 +1,279 @@
+/**
+ *
+ */
+package eu.excitementproject.eop.distsim.storage;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationException;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.distsim.domains.FilterType;
+import eu.excitementproject.eop.distsim.domains.RuleDirection;
+import eu.excitementproject.eop.distsim.items.Element;
+import eu.excitementproject.eop.distsim.scoring.ElementsSimilarityMeasure;
+import eu.excitementproject.eop.distsim.scoring.similarity.ElementSimilarityScoring;
+import eu.excitementproject.eop.distsim.util.Configuration;
+import eu.excitementproject.eop.distsim.util.SortUtil;
+
+/**
+ * An implementation of the {@link SimilarityStorage} interface, based on a given left and right {@link MappedSimilarityFile}s,
+ * an embedded alternative for the Redis databases of {@link DefaultSimilarityStorage}, with the same semantics.
+ * <P>
+ * The files are generated from the Redis databases by {@link Redis2MappedSimilarityFile}
+ *
+ * <P>
+ * Thread-safe
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class MappedSimilarityStorage implements SimilarityStorage {
+
+	private static final Logger logger = Logger.getLogger(MappedSimilarityStorage.class);
+
+	/**
+	 * Constructs a SimilarityStorage, which is based on two mapped files, one for left-to-right similarities and the second for right-to-left similarities.
+	 *
+	 * Assumption: The type of the elements is internally stored in the files
+	 *
+	 * @param l2rFile A mapped file which maps LHS elements to their RHS similar elements
+	 * @param r2lFile A mapped file which maps RHS elements to their LHS similar elements, or null
+	 * @param resourceName The name of the resource (see eu.excitementproject.eop.common.component.Component#getComponentName())
+	 * @param instanceName The name of the specific instance of this resource (@see eu.excitementproject.eop.common.component.Component#getInstanceName())
+	 * @throws IOException for any problem with the reading of the files
+	 * @throws ElementTypeException for any problem with the stored element type name in the files
+	 */
+	public MappedSimilarityStorage(String l2rFile, String r2lFile, String resourceName, String instanceName) throws IOException, ElementTypeException {
+		this.leftElemntSimilarities = new MappedSimilarityFile(l2rFile);
+		this.rightElemntSimilarities = (r2lFile == null ? null : new MappedSimilarityFile(r2lFile));
+		this.resourceName = resourceName;
+		this.instanceName = instanceName;
+		setElementClassName();
+	}
+
+	/**
+	 * Construct from configuration params.
+	 * @param params contain at least the following: <ul>
+	 * <li> l2r-mapped-file
+	 * <li> r2l-mapped-file (optional)
+	 * <li> resource-name
+	 * <li> instance-name (optional)
+	 * <li> element-class (optional, in case the type of elements is not stored in the files)
+	 * </ul>
+	 * @throws ConfigurationException
+	 * @throws IOException for any problem with the reading of the files
+	 * @throws ElementTypeException for a case where the type of elements in one of the files does not match the other
+	 */
+	public MappedSimilarityStorage(ConfigurationParams params) throws ConfigurationException, IOException, ElementTypeException {
+		this.leftElemntSimilarities = new MappedSimilarityFile(params.get(Configuration.L2R_MAPPED_FILE));
+		MappedSimilarityFile rightElemntSimilarities;
+		try {
+			rightElemntSimilarities = new MappedSimilarityFile(params.get(Configuration.R2L_MAPPED_FILE));
+		} catch (ConfigurationException e) {
+			rightElemntSimilarities = null;
+		}
+		this.rightElemntSimilarities = rightElemntSimilarities;
+		this.resourceName = params.get(Configuration.RESOURCE_NAME);
+		String instanceName;
+		try {
+			instanceName = params.get(Configuration.INSTANCE_NAME);
+		} catch (ConfigurationException e) {
+			instanceName = params.getConfigurationFile().toString();
+		}
+		this.instanceName = instanceName;
+		try {
+			setElementClassName();
+		} catch (ElementTypeException e) {
+			this.elementClassName = params.get(Configuration.ELEMENT_CLASS);
+		}
+	}
+
+	/**
+	 * Resolves the class type of the elements in the left-to-right and right-to-left files, as internally defined in each file
+	 */
+	protected void setElementClassName() throws ElementTypeException {
+		String leftElementClassName = leftElemntSimilarities.getElementClassName();
+		String rightElementClassName = (rightElemntSimilarities == null ? null : rightElemntSimilarities.getElementClassName());
+
+		if (leftElementClassName == null)
+			throw new ElementTypeException("Left element type must be defined in the files");
+		if (rightElementClassName != null && !rightElementClassName.equals(leftElementClassName))
+			throw new ElementTypeException("Different types of elements were found in the given left-2-right and right-2-left files");
+		this.elementClassName = leftElementClassName;
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.SimilarityStorage#getSimilarityMeasure(eu.excitementproject.eop.distsim.items.Element, eu.excitementproject.eop.distsim.items.Element)
+	 */
+	@Override
+	public List<ElementsSimilarityMeasure> getSimilarityMeasure(Element leftElement, Element rightElement) throws SimilarityNotFoundException {
+		List<ElementsSimilarityMeasure> ret = new LinkedList<ElementsSimilarityMeasure>();
+		try {
+			Set<String> leftElementKeys = leftElement.toKeys();
+			Set<String> rightElementKeys = rightElement.toKeys();
+
+			for (String leftElementKey : leftElementKeys) {
+				int leftElementId = leftElemntSimilarities.getElementId(leftElementKey);
+				if (leftElementId < 0)
+					continue;
+				for (String rightElementKey : rightElementKeys) {
+					int rightElementId = leftElemntSimilarities.getElementId(rightElementKey);
+					if (rightElementId < 0)
+						continue;
+					int i = leftElemntSimilarities.getSimilarityIndex(leftElementId, rightElementId);
+					if (i >= 0)
+						ret.add(new DefaultElementsSimilarityMeasure(createElement(leftElementKey), createElement(rightElementKey), leftElemntSimilarities.getSimilarityScore(leftElementId, i), null));
+				}
+			}
+
+			if (leftElementKeys.size() > 1 && rightElementKeys.size() > 1)
+				SortUtil.sortSimilarityRules(ret, true);
+			return ret;
+		} catch (Exception e) {
+			throw new SimilarityNotFoundException(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.SimilarityStorage#getSimilarityMeasure(eu.excitementproject.eop.distsim.items.Element, eu.excitementproject.eop.distsim.domains.RuleDirection)
+	 */
+	@Override
+	public List<ElementsSimilarityMeasure> getSimilarityMeasure(Element element, RuleDirection ruleDirection) throws SimilarityNotFoundException {
+		return getSimilarityMeasure(element,ruleDirection,null, null,FilterType.ALL,0.0);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.SimilarityStorage#getSimilarityMeasure(eu.excitementproject.eop.distsim.items.Element, eu.excitementproject.eop.distsim.domains.RuleDirection, eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage, eu.excitementproject.eop.distsim.scoring.similarity.ElementSimilarityScoring)
+	 */
+	@Override
+	public List<ElementsSimilarityMeasure> getSimilarityMeasure(Element element, RuleDirection ruleDirection,
+			ElementFeatureScoreStorage elementFeatureScores, ElementSimilarityScoring elementSimilarityScoring) throws SimilarityNotFoundException {
+		return getSimilarityMeasure(element,ruleDirection,elementFeatureScores, elementSimilarityScoring,FilterType.ALL,0.0);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.SimilarityStorage#getSimilarityMeasure(eu.excitementproject.eop.distsim.items.Element, eu.excitementproject.eop.distsim.domains.RuleDirection, eu.excitementproject.eop.distsim.domains.FilterType, double)
+	 */
+	@Override
+	public List<ElementsSimilarityMeasure> getSimilarityMeasure(Element element, RuleDirection ruleDirection, FilterType filterType, double filterVal) throws SimilarityNotFoundException {
+		return getSimilarityMeasure(element,ruleDirection,null, null,filterType,filterVal);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.SimilarityStorage#getSimilarityMeasure(eu.excitementproject.eop.distsim.items.Element, eu.excitementproject.eop.distsim.domains.RuleDirection, eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage, eu.excitementproject.eop.distsim.scoring.similarity.ElementSimilarityScoring, eu.excitementproject.eop.distsim.domains.FilterType, double)
+	 */
+	@Override
+	public List<ElementsSimilarityMeasure> getSimilarityMeasure(Element element, RuleDirection ruleDirection,
+			ElementFeatureScoreStorage elementFeatureScores, ElementSimilarityScoring elementSimilarityScoring,
+			FilterType filterType, double filterVal) throws SimilarityNotFoundException {
+
+		MappedSimilarityFile elementSimilarities = (ruleDirection == RuleDirection.LEFT_TO_RIGHT ? leftElemntSimilarities : rightElemntSimilarities);
+		if (elementSimilarities == null)
+			throw new SimilarityNotFoundException("No " + ruleDirection + " similarities are defined for resource " + resourceName);
+
+		List<ElementsSimilarityMeasure> ret = new LinkedList<ElementsSimilarityMeasure>();
+		try {
+			List<ElementsSimilarityMeasure> tmp = new LinkedList<ElementsSimilarityMeasure>();
+
+			Set<String> element1Keys = element.toKeys();
+
+			for (String element1Key : element1Keys) {
+				int element1Id = elementSimilarities.getElementId(element1Key);
+				if (element1Id < 0) {
+					logger.warn("No entry was found for key " + element1Key);
+					continue;
+				}
+				Element element1 = createElement(element1Key);
+				int size = elementSimilarities.getSimilaritiesNum(element1Id);
+				if (filterType == FilterType.TOP_N)
+					size = (int)Math.min(size, Math.max((long)filterVal, 0));
+				for (int i = 0; i < size; i++) {
+					Element element2 = createElement(elementSimilarities.getElementKey(elementSimilarities.getSimilarElementId(element1Id, i)));
+					double score = elementSimilarities.getSimilarityScore(element1Id, i);
+					tmp.add(ruleDirection == RuleDirection.LEFT_TO_RIGHT ?
+							new DefaultElementsSimilarityMeasure(element1, element2,score,null)
+							:
+							new DefaultElementsSimilarityMeasure(element2, element1,score,null)
+						);
+					if (filterType != FilterType.TOP_N && filtered(filterType,filterVal,score,size,i))
+						break;
+				}
+			}
+
+			if (element1Keys.size() > 1) {
+				SortUtil.sortSimilarityRules(tmp, true);
+				int i=1;
+				for (ElementsSimilarityMeasure similarityRule :  tmp) {
+					if (!filtered(filterType,filterVal,similarityRule.getSimilarityMeasure(),tmp.size(),i))
+						ret.add(new DefaultElementsSimilarityMeasure(similarityRule.getLeftElement(),similarityRule.getRightElement(),similarityRule.getSimilarityMeasure(),similarityRule.getAdditionalInfo()));
+					else
+						break;
+					i++;
+				}
+			} else
+				ret = tmp;
+			return ret;
+		} catch (Exception e) {
+			throw new SimilarityNotFoundException(e);
+		}
+	}
+
+	protected Element createElement(String key) throws Exception {
+		Element element = (Element) Class.forName(elementClassName).newInstance();
+		element.fromKey(key);
+		return element;
+	}
+
+	protected boolean filtered(final FilterType type, final double filterVal, final double val, final int size, final int i) {
+		switch (type) {
+			case MIN_VAL:
+				return val < filterVal;
+			case TOP_N:
+				return i > filterVal;
+			case TOP_PRECENT:
+				return i > size * filterVal;
+			default:
+				return false;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.Component#getComponentName()
+	 */
+	@Override
+	public String getComponentName() {
+		return resourceName;
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.Component#getInstanceName()
+	 */
+	@Override
+	public String getInstanceName() {
+		return instanceName;
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.distsim.storage.SimilarityStorage#close()
+	 */
+	@Override
+	public void close() {
+		leftElemntSimilarities.close();
+		if (rightElemntSimilarities != null)
+			rightElemntSimilarities.close();
+	}
+
+	// Assumption: The similar elements each left-element are ordered descendingly by their similarity measures
+	protected final MappedSimilarityFile leftElemntSimilarities;
+	// Assumption: The similar elements of each right-element are ordered descendingly by their similarity measures
+	protected final MappedSimilarityFile rightElemntSimilarities;
+	protected String elementClassName;
+	protected final String resourceName;
+	protected final String instanceName;
+}
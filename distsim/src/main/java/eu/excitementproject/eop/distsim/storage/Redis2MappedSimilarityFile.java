@@ -0,0 +1,85 @@
+package eu.excitementproject.eop.distsim.storage;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationException;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationFile;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.distsim.util.Configuration;
+import eu.excitementproject.eop.redis.RedisBasedStringListBasicMap;
+
+/**
+ * A program which converts a Redis similarity database, as generated by {@link SimilarityFile2Redis}, to a {@link MappedSimilarityFile}
+ * <P>
+ * The Redis server is run only for the conversion; the resulted file is then used by {@link MappedSimilarityStorage}, with no Redis server
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class Redis2MappedSimilarityFile {
+
+	public static void main(String[] args) {
+
+		if (args.length != 1) {
+			System.err.println("Usage: Redis2MappedSimilarityFile <configuration file>");
+			System.exit(0);
+		}
+
+		Logger logger=null;
+		try {
+			ConfigurationFile confFile = new ConfigurationFile(new ImplCommonConfig(new java.io.File(args[0])));
+			ConfigurationParams loggingParams = confFile.getModuleConfiguration(Configuration.LOGGING);
+
+			PropertyConfigurator.configure(loggingParams.get(Configuration.PROPERTIES_FILE));
+			logger = Logger.getLogger(Redis2MappedSimilarityFile.class);
+
+			final ConfigurationParams confParams = confFile.getModuleConfiguration(Configuration.REDIS_TO_MAPPED_FILE);
+
+			String redisFile = confParams.get(Configuration.REDIS_FILE);
+			RedisBasedStringListBasicMap redis;
+			try {
+				redis = new RedisBasedStringListBasicMap(redisFile, confParams.get(Configuration.REDIS_BIN_DIR), false);
+			} catch (ConfigurationException e) {
+				redis = new RedisBasedStringListBasicMap(redisFile, false);
+			}
+
+			int elementsNum = 0;
+			try {
+				MappedSimilarityFileWriter writer = new MappedSimilarityFileWriter(new java.io.File(confParams.get(Configuration.MAPPED_FILE)), redis.getElementClassName());
+				boolean bClosed = false;
+				try {
+					for (String elementKey : redis.keys()) {
+						if (elementKey.equals(RedisBasedStringListBasicMap.ELEMENT_CLASS_NAME_KEY))
+							continue;
+						List<String> elementSimilarities = redis.get(elementKey);
+						LinkedHashMap<String, Double> similarities = new LinkedHashMap<String, Double>();
+						for (String elementSimilarity : elementSimilarities) {
+							int pos = elementSimilarity.lastIndexOf(RedisBasedStringListBasicMap.ELEMENT_SCORE_DELIMITER);
+							similarities.put(elementSimilarity.substring(0, pos), Double.parseDouble(elementSimilarity.substring(pos + 1)));
+						}
+						writer.write(elementKey, similarities);
+						elementsNum++;
+						if (elementsNum % 100000 == 0)
+							logger.info(elementsNum + " elements were converted");
+					}
+					writer.close();
+					bClosed = true;
+				} finally {
+					if (!bClosed)
+						writer.abort();
+				}
+			} finally {
+				redis.close();
+			}
+			logger.info(elementsNum + " elements were converted");
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package eu.excitementproject.eop.distsim.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.excitementproject.eop.distsim.domains.FilterType;
+import eu.excitementproject.eop.distsim.domains.RuleDirection;
+import eu.excitementproject.eop.distsim.items.Element;
+import eu.excitementproject.eop.distsim.scoring.ElementsSimilarityMeasure;
+
+/**
+ * Utilities for {@link SimilarityStorage}s
+ * 
+ * @author agent
+ * @since 18/10/2026
+ *
+ */
+public class SimilarityStorageUtils {
+
+	/**
+	 * Get the relevant similarity scores for each of the given elements, as defined by 
+	 * {@link BulkSimilarityStorage#getSimilarityMeasures(List, RuleDirection, FilterType, double)}: by one bulk access
+	 * if the given storage is a {@link BulkSimilarityStorage}, and by an access per element otherwise.
+	 * 
+	 * @param storage a similarity storage
+	 * @param elements a list of left/right (defined by ruleDirection parameter) elements of the similarity measurement
+	 * @param ruleDirection define the position of the given elements
+	 * @param filterType the type of the filtering, e.g., TOP_N, MIN_VAL
+	 * @param filterVal the value criterion of the filtering
+	 * 
+	 * @return for each of the given elements, in their order, a list of the filtered elements which are assigned to a similarity score with the element, 
+	 * with their similarity score and additional info, ordered by their scores (descending)
+	 * 
+	 * @throws SimilarityNotFoundException in case of a problem with the similarity db
+	 */
+	public static List<List<ElementsSimilarityMeasure>> getSimilarityMeasures(SimilarityStorage storage, List<? extends Element> elements, RuleDirection ruleDirection, FilterType filterType, double filterVal) throws SimilarityNotFoundException {
+		if (storage instanceof BulkSimilarityStorage)
+			return ((BulkSimilarityStorage)storage).getSimilarityMeasures(elements, ruleDirection, filterType, filterVal);
+
+		List<List<ElementsSimilarityMeasure>> ret = new ArrayList<List<ElementsSimilarityMeasure>>(elements.size());
+		for (Element element : elements)
+			ret.add(storage.getSimilarityMeasure(element, ruleDirection, filterType, filterVal));
+		return ret;
+	}
+
+}
@@ -0,0 +1,38 @@
+package eu.excitementproject.eop.distsim.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A hand-written binary encoding of objects of one specific class, used by {@link Serialization} instead of the Java serialization.
+ * <p>
+ * Codecs are registered, with a unique tag, by {@link BinaryCodecs#register(int, BinaryCodec)}
+ *
+ * @author agent
+ * @since 18/10/2026
+ *
+ * @param <T> the (exact) class of the encoded objects
+ */
+public interface BinaryCodec<T> {
+
+	/**
+	 * @return the exact class of the objects, encoded by this codec (sub-classes are not encoded)
+	 */
+	Class<T> getType();
+
+	/**
+	 * @return true if the state of the given object can be fully encoded by this codec. Otherwise, the object is serialized by the Java serialization
+	 */
+	boolean canEncode(T obj);
+
+	/**
+	 * Writes the state of the given object
+	 */
+	void encode(T obj, DataOutput out) throws IOException;
+
+	/**
+	 * Constructs an object according to the state, written by {@link #encode(Object, DataOutput)}
+	 */
+	T decode(DataInput in) throws IOException;
+}
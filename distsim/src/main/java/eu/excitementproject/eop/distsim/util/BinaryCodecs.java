@@ -0,0 +1,445 @@
+package eu.excitementproject.eop.distsim.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableIterator;
+import eu.excitementproject.eop.common.representation.partofspeech.CanonicalPosTag;
+import eu.excitementproject.eop.distsim.items.DeafaultElement;
+import eu.excitementproject.eop.distsim.items.InvalidCountException;
+import eu.excitementproject.eop.distsim.items.InvalidIDException;
+import eu.excitementproject.eop.distsim.items.LemmaPos;
+import eu.excitementproject.eop.distsim.items.LemmaPosBasedElement;
+import eu.excitementproject.eop.distsim.items.NoContextFoundException;
+import eu.excitementproject.eop.distsim.items.PredicateElement;
+import eu.excitementproject.eop.distsim.items.StringBasedElement;
+import eu.excitementproject.eop.distsim.storage.TroveBasedBasicIntSet;
+import eu.excitementproject.eop.distsim.storage.TroveBasedIDKeyBasicMap;
+import eu.excitementproject.eop.distsim.storage.TroveBasedIDKeyPersistentBasicMap;
+
+/**
+ * A registry of {@link BinaryCodec}s, and the binary encoding of objects by them.
+ * <p>
+ * An encoded object starts with the tag of its codec (one byte), followed by the state written by the codec.
+ * Integers are written as variable-length integers (7 bits per byte), strings as UTF-8 bytes preceded by their length,
+ * and counts as variable-length integers when they are integral.
+ * <p>
+ * The default codecs cover the items kept by the distsim storages: lemma-pos and string based elements, predicate elements,
+ * the Trove-based int-double maps of feature counts and scores, and the Trove-based int sets of feature elements.
+ * Additional codecs can be registered by {@link #register(int, BinaryCodec)}, before any object of their class is encoded or decoded.
+ *
+ * @author agent
+ * @since 18/10/2026
+ *
+ */
+public class BinaryCodecs {
+
+	/**
+	 * Registers a codec with a given tag. The tag is stored with each encoded object, so it should not be changed once the objects are stored
+	 *
+	 * @param tag a unique tag in the range 1-255
+	 * @param codec a codec for some class
+	 */
+	public static synchronized void register(int tag, BinaryCodec<?> codec) {
+		if (tag < 1 || tag > 255)
+			throw new IllegalArgumentException("Codec tag " + tag + " is out of range 1-255");
+		if (tag2codec[tag] != null)
+			throw new IllegalArgumentException("Codec tag " + tag + " is already registered for " + tag2codec[tag].getType().getName());
+		tag2codec[tag] = codec;
+		class2tag.put(codec.getType(), tag);
+	}
+
+	/**
+	 * Encodes the given object by its registered codec
+	 *
+	 * @return the binary encoding of the given object, or null if there is no registered codec for the class of the object, or the codec cannot encode it
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static byte[] encode(Object obj) throws IOException {
+		Integer tag = class2tag.get(obj.getClass());
+		if (tag == null)
+			return null;
+		BinaryCodec codec = tag2codec[tag];
+		if (!codec.canEncode(obj))
+			return null;
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bos);
+		out.writeByte(tag);
+		codec.encode(obj, out);
+		out.flush();
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Decodes an object, encoded by {@link #encode(Object)}
+	 */
+	public static Object decode(byte[] bytes) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		int tag = in.readUnsignedByte();
+		BinaryCodec<?> codec = tag2codec[tag];
+		if (codec == null)
+			throw new IOException("No codec is registered for tag " + tag);
+		return codec.decode(in);
+	}
+
+	public static void writeVarInt(DataOutput out, int i) throws IOException {
+		writeVarLong(out, i & 0xFFFFFFFFL);
+	}
+
+	public static int readVarInt(DataInput in) throws IOException {
+		return (int)readVarLong(in);
+	}
+
+	public static void writeVarLong(DataOutput out, long l) throws IOException {
+		while ((l & ~0x7FL) != 0) {
+			out.writeByte((int)((l & 0x7F) | 0x80));
+			l >>>= 7;
+		}
+		out.writeByte((int)l);
+	}
+
+	public static long readVarLong(DataInput in) throws IOException {
+		long ret = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			ret |= (long)(b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return ret;
+		}
+		throw new IOException("Malformed variable-length integer");
+	}
+
+	public static void writeString(DataOutput out, String s) throws IOException {
+		byte[] bytes = s.getBytes("UTF-8");
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	public static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	/**
+	 * Writes a non-negative integral count as a variable-length integer, and any other count (including -0.0) as a double
+	 */
+	public static void writeCount(DataOutput out, double count) throws IOException {
+		if ((count > 0 || Double.doubleToRawLongBits(count) == 0L) && count < MAX_INTEGRAL_COUNT && count == Math.rint(count))
+			writeVarLong(out, (long)count << 1);
+		else {
+			writeVarLong(out, 1);
+			out.writeDouble(count);
+		}
+	}
+
+	public static double readCount(DataInput in) throws IOException {
+		long l = readVarLong(in);
+		if ((l & 1) == 0)
+			return l >>> 1;
+		return in.readDouble();
+	}
+
+	protected static final double MAX_INTEGRAL_COUNT = (double)(1L << 52);
+
+	protected static final BinaryCodec<?>[] tag2codec = new BinaryCodec<?>[256];
+	protected static final Map<Class<?>, Integer> class2tag = new HashMap<Class<?>, Integer>();
+
+	static {
+		register(1, new LemmaPosBasedElementCodec());
+		register(2, new StringBasedElementCodec());
+		register(3, new PredicateElementCodec());
+		register(4, new TroveBasedIDKeyBasicMapCodec());
+		register(5, new TroveBasedIDKeyPersistentBasicMapCodec());
+		register(6, new TroveBasedBasicIntSetCodec());
+	}
+
+	/**
+	 * A codec of elements with no context: the id, the count and the data of the element
+	 */
+	public static abstract class ElementCodec<D, T extends DeafaultElement<D>> implements BinaryCodec<T> {
+
+		@Override
+		public boolean canEncode(T element) {
+			try {
+				element.getCount();
+				return element.getContext() == null && element.getData() != null;
+			} catch (InvalidCountException e) {
+				return false;
+			} catch (NoContextFoundException e) {
+				return false;
+			}
+		}
+
+		@Override
+		public void encode(T element, DataOutput out) throws IOException {
+			int id;
+			try {
+				id = element.getID() + 1;
+			} catch (InvalidIDException e) {
+				id = 0;
+			}
+			writeVarInt(out, id);
+			try {
+				writeCount(out, element.getCount());
+			} catch (InvalidCountException e) {
+				throw new IOException(e);
+			}
+			encodeData(element.getData(), out);
+		}
+
+		@Override
+		public T decode(DataInput in) throws IOException {
+			int id = readVarInt(in) - 1;
+			double count = readCount(in);
+			T element = newElement(decodeData(in), id);
+			element.setCount(count);
+			return element;
+		}
+
+		protected abstract void encodeData(D data, DataOutput out) throws IOException;
+		protected abstract D decodeData(DataInput in) throws IOException;
+		protected abstract T newElement(D data, int id);
+	}
+
+	public static class LemmaPosBasedElementCodec extends ElementCodec<LemmaPos, LemmaPosBasedElement> {
+
+		@Override
+		public Class<LemmaPosBasedElement> getType() {
+			return LemmaPosBasedElement.class;
+		}
+
+		@Override
+		public boolean canEncode(LemmaPosBasedElement element) {
+			if (!super.canEncode(element) || element.getData().getLemma() == null)
+				return false;
+			CanonicalPosTag pos = element.getData().getPOS();
+			return pos == null || pos2code.containsKey(pos);
+		}
+
+		@Override
+		protected void encodeData(LemmaPos data, DataOutput out) throws IOException {
+			writeString(out, data.getLemma());
+			writeVarInt(out, data.getPOS() == null ? 0 : pos2code.get(data.getPOS()));
+		}
+
+		@Override
+		protected LemmaPos decodeData(DataInput in) throws IOException {
+			String lemma = readString(in);
+			int code = readVarInt(in);
+			if (code < 0 || code > POS_TAGS.length)
+				throw new IOException("Unknown POS code " + code);
+			return new LemmaPos(lemma, code == 0 ? null : POS_TAGS[code - 1]);
+		}
+
+		/**
+		 * The stored POS codes: the code of a tag is its index in this table, plus one (zero stands for no tag).
+		 * The codes do not depend on the order of {@link CanonicalPosTag}, so new tags should be appended to the table.
+		 * Elements with a tag which is not in the table are serialized by the Java serialization
+		 */
+		protected static final CanonicalPosTag[] POS_TAGS = {
+			CanonicalPosTag.ADJ, CanonicalPosTag.ADV, CanonicalPosTag.ART, CanonicalPosTag.CARD, CanonicalPosTag.CONJ,
+			CanonicalPosTag.N, CanonicalPosTag.NN, CanonicalPosTag.NP, CanonicalPosTag.O, CanonicalPosTag.PP,
+			CanonicalPosTag.PR, CanonicalPosTag.PUNC, CanonicalPosTag.V, CanonicalPosTag.OTHER
+		};
+
+		protected static final Map<CanonicalPosTag, Integer> pos2code = new EnumMap<CanonicalPosTag, Integer>(CanonicalPosTag.class);
+
+		static {
+			for (int i = 0; i < POS_TAGS.length; i++)
+				pos2code.put(POS_TAGS[i], i + 1);
+		}
+
+		@Override
+		protected LemmaPosBasedElement newElement(LemmaPos data, int id) {
+			return new LemmaPosBasedElement(data, id, 0);
+		}
+	}
+
+	public static class StringBasedElementCodec extends ElementCodec<String, StringBasedElement> {
+
+		@Override
+		public Class<StringBasedElement> getType() {
+			return StringBasedElement.class;
+		}
+
+		@Override
+		protected void encodeData(String data, DataOutput out) throws IOException {
+			writeString(out, data);
+		}
+
+		@Override
+		protected String decodeData(DataInput in) throws IOException {
+			return readString(in);
+		}
+
+		@Override
+		protected StringBasedElement newElement(String data, int id) {
+			return new StringBasedElement(data, id, 0);
+		}
+	}
+
+	public static class PredicateElementCodec extends ElementCodec<String, PredicateElement> {
+
+		@Override
+		public Class<PredicateElement> getType() {
+			return PredicateElement.class;
+		}
+
+		@Override
+		protected void encodeData(String data, DataOutput out) throws IOException {
+			writeString(out, data);
+		}
+
+		@Override
+		protected String decodeData(DataInput in) throws IOException {
+			return readString(in);
+		}
+
+		@Override
+		protected PredicateElement newElement(String data, int id) {
+			return new PredicateElement(data, id, 0);
+		}
+	}
+
+	/**
+	 * A codec of int-double maps: the number of entries, followed by the key and the value of each entry
+	 */
+	public static abstract class IntDoubleMapCodec<T> implements BinaryCodec<T> {
+
+		@Override
+		public boolean canEncode(T map) {
+			ImmutableIterator<Pair<Integer, Object>> it = iterator(map);
+			while (it.hasNext())
+				if (!(it.next().getSecond() instanceof Double))
+					return false;
+			return true;
+		}
+
+		@Override
+		public void encode(T map, DataOutput out) throws IOException {
+			writeVarInt(out, size(map));
+			ImmutableIterator<Pair<Integer, Object>> it = iterator(map);
+			while (it.hasNext()) {
+				Pair<Integer, Object> entry = it.next();
+				writeVarInt(out, entry.getFirst());
+				writeCount(out, (Double)entry.getSecond());
+			}
+		}
+
+		@Override
+		public T decode(DataInput in) throws IOException {
+			int size = readVarInt(in);
+			T map = newMap();
+			for (int i = 0; i < size; i++) {
+				int key = readVarInt(in);
+				put(map, key, readCount(in));
+			}
+			return map;
+		}
+
+		protected abstract T newMap();
+		protected abstract int size(T map);
+		protected abstract ImmutableIterator<Pair<Integer, Object>> iterator(T map);
+		protected abstract void put(T map, int key, double value);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static class TroveBasedIDKeyBasicMapCodec extends IntDoubleMapCodec<TroveBasedIDKeyBasicMap> {
+
+		@Override
+		public Class<TroveBasedIDKeyBasicMap> getType() {
+			return TroveBasedIDKeyBasicMap.class;
+		}
+
+		@Override
+		protected TroveBasedIDKeyBasicMap newMap() {
+			return new TroveBasedIDKeyBasicMap<Double>();
+		}
+
+		@Override
+		protected int size(TroveBasedIDKeyBasicMap map) {
+			return map.size();
+		}
+
+		@Override
+		protected ImmutableIterator<Pair<Integer, Object>> iterator(TroveBasedIDKeyBasicMap map) {
+			return map.iterator();
+		}
+
+		@Override
+		protected void put(TroveBasedIDKeyBasicMap map, int key, double value) {
+			map.put(key, value);
+		}
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static class TroveBasedIDKeyPersistentBasicMapCodec extends IntDoubleMapCodec<TroveBasedIDKeyPersistentBasicMap> {
+
+		@Override
+		public Class<TroveBasedIDKeyPersistentBasicMap> getType() {
+			return TroveBasedIDKeyPersistentBasicMap.class;
+		}
+
+		@Override
+		protected TroveBasedIDKeyPersistentBasicMap newMap() {
+			return new TroveBasedIDKeyPersistentBasicMap<Double>();
+		}
+
+		@Override
+		protected int size(TroveBasedIDKeyPersistentBasicMap map) {
+			return map.size();
+		}
+
+		@Override
+		protected ImmutableIterator<Pair<Integer, Object>> iterator(TroveBasedIDKeyPersistentBasicMap map) {
+			return map.iterator();
+		}
+
+		@Override
+		protected void put(TroveBasedIDKeyPersistentBasicMap map, int key, double value) {
+			map.put(key, value);
+		}
+	}
+
+	/**
+	 * A codec of int sets: the number of items, followed by the items
+	 */
+	public static class TroveBasedBasicIntSetCodec implements BinaryCodec<TroveBasedBasicIntSet> {
+
+		@Override
+		public Class<TroveBasedBasicIntSet> getType() {
+			return TroveBasedBasicIntSet.class;
+		}
+
+		@Override
+		public boolean canEncode(TroveBasedBasicIntSet set) {
+			return true;
+		}
+
+		@Override
+		public void encode(TroveBasedBasicIntSet set, DataOutput out) throws IOException {
+			writeVarInt(out, set.size());
+			ImmutableIterator<Integer> it = set.iterator();
+			while (it.hasNext())
+				writeVarInt(out, it.next());
+		}
+
+		@Override
+		public TroveBasedBasicIntSet decode(DataInput in) throws IOException {
+			int size = readVarInt(in);
+			TroveBasedBasicIntSet set = new TroveBasedBasicIntSet();
+			for (int i = 0; i < size; i++)
+				set.add(readVarInt(in));
+			return set;
+		}
+	}
+}
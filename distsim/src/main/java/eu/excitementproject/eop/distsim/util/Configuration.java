@@ -14,6 +14,8 @@ public class Configuration {
 	public static final String CO_OCCURRENCE_EXTRACTOR = "cooccurence-extractor";
 	public static final String ELEMENT_FEATURE_EXTRACTOR = "element-feature-extractor";
 	public static final String THREAD_NUM = "thread-num";
+	public static final String CHUNK_SIZE = "chunk-size";
+	public static final String PRUNED_SIMILARITY = "pruned-similarity";
 	public static final String CLASS = "class";
 	public static final String EXTRACTOR_CLASS = "extractor-class";
 	public static final String EXTRACTION_CLASS = "extraction-class";
@@ -65,6 +67,8 @@ public class Configuration {
 	public static final String IN_FILES = "in-files";
 	public static final String SIMILARITY_COMBINATION_CLASS = "similarity-combination-class";
 	public static final String FILE_TO_REDIS = "file-to-redis";
+	public static final String REDIS_TO_MAPPED_FILE = "redis-to-mapped-file";
+	public static final String MAPPED_FILE = "mapped-file";
 	public static final String INFILE = "infile";
 	public static final String OUTFILE = "outfile";
 	public static final String TEXTUNITS_OUTFILE = "textunits-outfile";
@@ -118,6 +122,8 @@ public class Configuration {
 	public static final String INSTANCE_NAME = "instance-name";
 	public static final String L2R_REDIS_DB_FILE = "l2r-redis-db-file"; 
 	public static final String R2L_REDIS_DB_FILE = "r2l-redis-db-file";
+	public static final String L2R_MAPPED_FILE = "l2r-mapped-file";
+	public static final String R2L_MAPPED_FILE = "r2l-mapped-file";
 	public static final String KNOWLEDGE_RESOURCE = "knowledge-resource";
 	public static final String WINDOW_SIZE = "window-size";
 	public static final String REDIS_CONFIGURATION_TEMPLATE_FILE = "redis-configuration-template-file";
@@ -127,6 +133,12 @@ public class Configuration {
 	public static final String START_ELEMENT_ID = "stasrt-element-id";
 	public static final String MIN_FEATURES_SIZE = "min-features-size";
 	public static final String MAX_SIMILARITIES_PER_ELEMENT = "max-similarities-per-element"; 
+	public static final String BUILD_MODEL = "build-model";
+	public static final String CHECKPOINT_DIR = "checkpoint-dir";
+	public static final String READER_THREAD_NUM = "reader-thread-num";
+	public static final String BLOCK_SIZE = "block-size";
+	public static final String SPILL_SIZE = "spill-size";
+	public static final String MAPPED_SCORES_FILE = "mapped-scores-file";
 
 }
 
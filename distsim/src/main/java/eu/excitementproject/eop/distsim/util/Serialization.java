@@ -10,6 +10,10 @@ import org.apache.commons.codec.binary.Base64;
 
 /**
  * Serialization utils: serialization of a given object into a string, and deserialization of the string into the original object
+ * <p>
+ * Objects with a registered {@link BinaryCodec} are encoded by the codec ({@link BinaryCodecs}), and other objects by the Java serialization.
+ * A binary encoding is marked by a leading '~' character, which is not part of the Base64 alphabet, so strings of both formats can be deserialized.
+ * The Java serialization can be forced for all objects by setting the system property {@value #FORMAT_PROPERTY} to 'java'
  * 
  * @author Meni Adler
  * @since 24/07/2012
@@ -25,6 +29,26 @@ public class Serialization {
 	 * @throws SerializationException for any problem with the serialization process
 	 */
 	public static <T  extends Serializable> String serialize(T obj) throws SerializationException {
+		if (bBinaryCodecs) {
+			try {
+				byte[] bytes = BinaryCodecs.encode(obj);
+				if (bytes != null)
+					return BINARY_PREFIX + new String(Base64.encodeBase64(bytes));
+			} catch (Exception e) {
+				throw new SerializationException(e);
+			}
+		}
+		return javaSerialize(obj);
+	}
+
+	/**
+	 * Serialize a given object to a string, by the Java serialization
+	 * 
+	 * @param obj an object to be serialized
+	 * @return string serialization of the given object
+	 * @throws SerializationException for any problem with the serialization process
+	 */
+	public static <T  extends Serializable> String javaSerialize(T obj) throws SerializationException {
 		try {
 		    ByteArrayOutputStream bos = new ByteArrayOutputStream();
 		    ObjectOutputStream os = new ObjectOutputStream(bos);
@@ -49,6 +73,11 @@ public class Serialization {
 		try {
 			if (serialization.isEmpty())
 				throw new SerializationException("empty data was given for deserialization");
+			if (serialization.startsWith(BINARY_PREFIX)) {
+				@SuppressWarnings("unchecked")
+				T ret = (T)BinaryCodecs.decode(Base64.decodeBase64(serialization.substring(BINARY_PREFIX.length()).getBytes()));
+				return ret;
+			}
 		    ByteArrayInputStream bis = new ByteArrayInputStream(Base64.decodeBase64(serialization.getBytes()));
 		    ObjectInputStream oInputStream = new ObjectInputStream(bis);
 		    @SuppressWarnings("unchecked")
@@ -60,4 +89,7 @@ public class Serialization {
 		}
 	}
 
+	public static final String FORMAT_PROPERTY = "distsim.serialization.format";
+	protected static final String BINARY_PREFIX = "~";
+	protected static final boolean bBinaryCodecs = !"java".equals(System.getProperty(FORMAT_PROPERTY));
 }
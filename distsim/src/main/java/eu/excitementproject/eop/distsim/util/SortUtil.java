@@ -1,6 +1,7 @@
 package eu.excitementproject.eop.distsim.util;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -115,6 +116,88 @@ public class SortUtil {
 	}
 	
 	
+	/**
+	 * Sort a given {@link TIntDoubleMap} by its values, where keys with equal values are sorted ascendingly.
+	 * In contrast to {@link #sortMapByValue(TIntDoubleMap, boolean)}, the result does not depend on the iteration order of the given map.
+	 * 
+	 * @param map
+	 *            in map
+	 * @param descending
+	 *            determine the order of the sort of the values: true - descending, false -
+	 *            ascending
+	 * @return out sorted-by-values map
+	 */
+	public static LinkedHashMap<Integer,Double> sortMapByValueAndKey(TIntDoubleMap map, final boolean descending) {
+		final int[] keys = map.keys();
+		final double[] values = new double[keys.length];
+		Integer[] order = new Integer[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			values[i] = map.get(keys[i]);
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				int ret = Double.compare(values[i1], values[i2]);
+				if (descending)
+					ret *= -1;
+				if (ret == 0)
+					ret = (keys[i1] < keys[i2] ? -1 : (keys[i1] == keys[i2] ? 0 : 1));
+				return ret;
+			}
+		});
+
+		LinkedHashMap<Integer,Double> result = new LinkedHashMap<Integer,Double>();
+		for (Integer i : order)
+			result.put(keys[i], values[i]);
+		return result;
+	}
+	
+	/**
+	 * Select the value which would be at a given position if the first values of a given array were sorted descendingly (quickselect).
+	 * The order of these values in the array is changed.
+	 * 
+	 * @param values
+	 *            the values
+	 * @param size
+	 *            the number of the values, at the beginning of the array, to select from
+	 * @param position
+	 *            a zero-based position in the descending order of the values
+	 * @return the value at the given position
+	 */
+	public static double selectDescending(double[] values, int size, int position) {
+		if (position < 0 || position >= size)
+			throw new IllegalArgumentException("position " + position + " is out of the range [0," + size + ")");
+		int left = 0;
+		int right = size - 1;
+		while (left < right) {
+			double pivot = values[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (values[i] > pivot)
+					i++;
+				while (values[j] < pivot)
+					j--;
+				if (i <= j) {
+					double tmp = values[i];
+					values[i] = values[j];
+					values[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (position <= j)
+				right = j;
+			else if (position >= i)
+				left = i;
+			else
+				return values[position];
+		}
+		return values[position];
+	}
+	
+	
 	/**
 	 * Sort a given {@link BasicMap} by its values
 	 * 
@@ -0,0 +1,216 @@
+package eu.excitementproject.eop.distsim.application;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationFile;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.distsim.application.BuildModel.Stage;
+import eu.excitementproject.eop.distsim.application.BuildModel.StageReport;
+import eu.excitementproject.eop.distsim.storage.PersistenceDevice;
+
+public class BuildModelTest {
+
+	@Before
+	public void setUp() throws Exception {
+		dir = Files.createTempDir();
+		checkpointDir = new File(dir, "checkpoints");
+	}
+
+	@After
+	public void tearDown() {
+		delete(dir);
+	}
+
+	@Test
+	public void testAllStages() throws Exception {
+		RecordingBuildModel buildModel = new RecordingBuildModel(writeConfiguration(false, false));
+		assertEquals(Stage.ELEMENT_SIMILARITY_CALCULATION, buildModel.getDefaultLastStage());
+		List<StageReport> reports = buildModel.build();
+		assertEquals(Arrays.asList(Stage.COOCCURRENCE_EXTRACTION, Stage.ELEMENT_FEATURE_EXTRACTION, Stage.ELEMENT_FEATURE_SCORING, Stage.ELEMENT_SIMILARITY_CALCULATION), buildModel.stages);
+		assertEquals(4, reports.size());
+		assertEquals(Stage.ELEMENT_FEATURE_SCORING, reports.get(2).getStage());
+
+		// without a checkpoint dir, a second build runs all stages again
+		buildModel = new RecordingBuildModel(writeConfiguration(false, false));
+		buildModel.build();
+		assertEquals(4, buildModel.stages.size());
+		assertFalse(checkpointDir.exists());
+
+		// the combination is the last stage, in case the combiner is defined
+		buildModel = new RecordingBuildModel(writeConfiguration(false, true));
+		assertEquals(Stage.ELEMENT_SIMILARITY_COMBINATION, buildModel.getDefaultLastStage());
+		buildModel.build();
+		assertEquals(Stage.ELEMENT_SIMILARITY_COMBINATION, buildModel.stages.get(4));
+	}
+
+	@Test
+	public void testCheckpoints() throws Exception {
+		RecordingBuildModel buildModel = new RecordingBuildModel(writeConfiguration(true, false));
+		buildModel.failedStage = Stage.ELEMENT_FEATURE_SCORING;
+		try {
+			buildModel.build();
+			fail("The scoring stage should fail");
+		} catch (IllegalStateException e) {
+		}
+		assertTrue(buildModel.isCompleted(Stage.COOCCURRENCE_EXTRACTION));
+		assertTrue(buildModel.isCompleted(Stage.ELEMENT_FEATURE_EXTRACTION));
+		assertFalse(buildModel.isCompleted(Stage.ELEMENT_FEATURE_SCORING));
+
+		// the next run resumes from the failed stage
+		buildModel = new RecordingBuildModel(writeConfiguration(true, false));
+		List<StageReport> reports = buildModel.build();
+		assertEquals(Arrays.asList(Stage.ELEMENT_FEATURE_SCORING, Stage.ELEMENT_SIMILARITY_CALCULATION), buildModel.stages);
+		assertEquals(2, reports.size());
+		for (Stage stage : Arrays.asList(Stage.COOCCURRENCE_EXTRACTION, Stage.ELEMENT_FEATURE_EXTRACTION, Stage.ELEMENT_FEATURE_SCORING, Stage.ELEMENT_SIMILARITY_CALCULATION))
+			assertTrue(buildModel.isCompleted(stage));
+
+		// a completed build runs nothing
+		buildModel = new RecordingBuildModel(writeConfiguration(true, false));
+		assertTrue(buildModel.build().isEmpty());
+		assertTrue(buildModel.stages.isEmpty());
+	}
+
+	@Test
+	public void testExplicitStages() throws Exception {
+		RecordingBuildModel buildModel = new RecordingBuildModel(writeConfiguration(true, false));
+		buildModel.build();
+
+		// an explicit first stage ignores the markers, and unmarks the stages it rewrites
+		buildModel = new RecordingBuildModel(writeConfiguration(true, false));
+		buildModel.build(Stage.ELEMENT_FEATURE_EXTRACTION, Stage.ELEMENT_FEATURE_EXTRACTION);
+		assertEquals(Arrays.asList(Stage.ELEMENT_FEATURE_EXTRACTION), buildModel.stages);
+		assertTrue(buildModel.isCompleted(Stage.COOCCURRENCE_EXTRACTION));
+		assertTrue(buildModel.isCompleted(Stage.ELEMENT_FEATURE_EXTRACTION));
+		assertFalse(buildModel.isCompleted(Stage.ELEMENT_FEATURE_SCORING));
+		assertFalse(buildModel.isCompleted(Stage.ELEMENT_SIMILARITY_CALCULATION));
+
+		// the stages which follow the rewritten one are run again
+		buildModel = new RecordingBuildModel(writeConfiguration(true, false));
+		buildModel.build();
+		assertEquals(Arrays.asList(Stage.ELEMENT_FEATURE_SCORING, Stage.ELEMENT_SIMILARITY_CALCULATION), buildModel.stages);
+
+		// a last stage stops the build, without marking the following stages
+		buildModel = new RecordingBuildModel(writeConfiguration(true, false));
+		buildModel.build(Stage.COOCCURRENCE_EXTRACTION, Stage.COOCCURRENCE_EXTRACTION);
+		assertEquals(Arrays.asList(Stage.COOCCURRENCE_EXTRACTION), buildModel.stages);
+		assertFalse(buildModel.isCompleted(Stage.ELEMENT_FEATURE_EXTRACTION));
+	}
+
+	@Test
+	public void testWrittenRecords() throws Exception {
+		StageReport report = new StageReport(Stage.ELEMENT_FEATURE_SCORING);
+		File file = new File(dir, "element-scores");
+		PersistenceDevice device = report.count("element-scores-storage-device", new eu.excitementproject.eop.distsim.storage.File(file, false));
+		device.open();
+		device.write(1, 0.5);
+		device.write(7, 1.5);
+		device.close();
+		report.finish();
+		assertEquals(2, report.getWrittenRecords().get("element-scores-storage-device").get());
+		assertTrue(report.toString().contains("element-scores-storage-device: 2 records"));
+
+		// the records are written to the wrapped device as they are
+		device = new eu.excitementproject.eop.distsim.storage.File(file, true);
+		device.open();
+		assertEquals(Integer.valueOf(1), device.read().getFirst());
+		assertEquals(1.5, (Double)device.read().getSecond(), 0);
+		assertNull(device.read());
+		device.close();
+	}
+
+	/**
+	 * A BuildModel whose stages are recorded instead of being run
+	 */
+	static class RecordingBuildModel extends BuildModel {
+
+		RecordingBuildModel(ConfigurationFile confFile) throws Exception {
+			super(confFile);
+		}
+
+		@Override
+		protected void extractCooccurrences(StageReport report) {
+			run(Stage.COOCCURRENCE_EXTRACTION);
+		}
+
+		@Override
+		protected void extractElementsFeatures(StageReport report) {
+			run(Stage.ELEMENT_FEATURE_EXTRACTION);
+		}
+
+		@Override
+		protected void scoreElementsFeatures(StageReport report) {
+			run(Stage.ELEMENT_FEATURE_SCORING);
+		}
+
+		@Override
+		protected void calculateElementSimilarities(StageReport report) {
+			run(Stage.ELEMENT_SIMILARITY_CALCULATION);
+		}
+
+		@Override
+		protected void combineElementSimilarities(StageReport report) {
+			run(Stage.ELEMENT_SIMILARITY_COMBINATION);
+		}
+
+		protected void run(Stage stage) {
+			if (stage == failedStage)
+				throw new IllegalStateException("Stage " + stage + " failed");
+			stages.add(stage);
+		}
+
+		protected final List<Stage> stages = new LinkedList<Stage>();
+		protected Stage failedStage = null;
+	}
+
+	protected ConfigurationFile writeConfiguration(boolean bCheckpoints, boolean bCombiner) throws Exception {
+		File file = new File(dir, "build-model.xml");
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		writer.println("<configuration>");
+		for (String module : Arrays.asList("text-units-data-structure", "co-occurrences-data-structure", "elements-data-structure", "features-data-structure"))
+			writeModule(writer, module, "eu.excitementproject.eop.distsim.storage.MemoryBasedCountableIdentifiableStorage");
+		for (String module : Arrays.asList("element-feature-counts-data-structure", "feature-elements-data-structure", "element-feature-scores-data-structure", "element-scores-data-structure"))
+			writeModule(writer, module, "eu.excitementproject.eop.distsim.storage.TroveBasedIDKeyPersistentBasicMap");
+		if (bCombiner)
+			writeModule(writer, "element-similarity-combiner", "eu.excitementproject.eop.distsim.builders.similarity.OrderedBasedElementSimilarityCombiner");
+		if (bCheckpoints) {
+			writer.println("<section name=\"build-model\">");
+			writer.println("\t<property name=\"checkpoint-dir\">" + checkpointDir.getPath() + "</property>");
+			writer.println("</section>");
+		}
+		writer.println("</configuration>");
+		writer.close();
+		return new ConfigurationFile(new ImplCommonConfig(file));
+	}
+
+	protected static void writeModule(PrintWriter writer, String module, String className) {
+		writer.println("<section name=\"" + module + "\">");
+		writer.println("\t<property name=\"class\">" + className + "</property>");
+		writer.println("</section>");
+	}
+
+	protected static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null)
+			for (File child : files)
+				delete(child);
+		file.delete();
+	}
+
+	protected File dir;
+	protected File checkpointDir;
+}
@@ -0,0 +1,233 @@
+package eu.excitementproject.eop.distsim.builders.cooccurrence;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableIterator;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationFile;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.distsim.builders.DataStructureFactory;
+import eu.excitementproject.eop.distsim.items.Cooccurrence;
+import eu.excitementproject.eop.distsim.items.DefaultCooccurrence;
+import eu.excitementproject.eop.distsim.items.DefaultRelation;
+import eu.excitementproject.eop.distsim.items.Element;
+import eu.excitementproject.eop.distsim.items.Feature;
+import eu.excitementproject.eop.distsim.items.IDBasedCooccurrence;
+import eu.excitementproject.eop.distsim.items.InvalidCountException;
+import eu.excitementproject.eop.distsim.items.StringBasedTextUnit;
+import eu.excitementproject.eop.distsim.items.TextUnit;
+import eu.excitementproject.eop.distsim.storage.BasicMap;
+import eu.excitementproject.eop.distsim.storage.BasicSet;
+import eu.excitementproject.eop.distsim.storage.CountableIdentifiableStorage;
+import eu.excitementproject.eop.distsim.storage.IDKeyPersistentBasicMap;
+import eu.excitementproject.eop.distsim.storage.MemoryBasedCountableIdentifiableStorage;
+import eu.excitementproject.eop.distsim.util.Pair;
+
+@SuppressWarnings({"rawtypes","unchecked"})
+public class GeneralCooccurrenceExtractorTest {
+
+	@Before
+	public void setUp() throws Exception {
+		dir = Files.createTempDir();
+		corpus = new File(dir, "corpus");
+		corpus.mkdir();
+		String[] words = {"dog", "cat", "mouse", "tiger", "lion", "hound", "bird"};
+		for (int f = 0; f < 5; f++) {
+			PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(new File(corpus, "part" + f + ".txt")), "UTF-8"));
+			for (int s = 0; s < 40 * (f + 1); s++) {
+				StringBuilder sentence = new StringBuilder();
+				for (int w = 0; w < 2 + (s + f) % 5; w++)
+					sentence.append(words[(s * 3 + w * (f + 1)) % words.length]).append(' ');
+				writer.println(sentence.toString().trim());
+			}
+			writer.close();
+		}
+	}
+
+	@After
+	public void tearDown() {
+		delete(dir);
+	}
+
+	@Test
+	public void testIdenticalCounts() throws Exception {
+		// one reader and one collector, with no spill
+		GeneralCooccurrenceExtractor serial = new GeneralCooccurrenceExtractor(params(1, 1, 1000, 1000000), new TestDataStructureFactory(false));
+		serial.constructCooccurrenceDB(corpus);
+		Map<String, Double> textUnitCounts = textUnitCounts(serial);
+		Map<String, Double> cooccurrenceCounts = cooccurrenceCounts(serial);
+		assertEquals(7, textUnitCounts.size());
+		assertFalse(cooccurrenceCounts.isEmpty());
+
+		// several readers and collectors, small blocks and frequent spills
+		GeneralCooccurrenceExtractor parallel = new GeneralCooccurrenceExtractor(params(4, 3, 3, 5), new TestDataStructureFactory(false));
+		parallel.constructCooccurrenceDB(corpus);
+		assertEquals(textUnitCounts, textUnitCounts(parallel));
+		assertEquals(cooccurrenceCounts, cooccurrenceCounts(parallel));
+	}
+
+	@Test(timeout = 60000)
+	public void testFailedCollectors() throws Exception {
+		// every collector fails in its first merge, while the readers still have many blocks to put
+		for (int iThreadNum : new int[] {1, 3}) {
+			GeneralCooccurrenceExtractor extractor = new GeneralCooccurrenceExtractor(params(iThreadNum, 2, 1, 1), new TestDataStructureFactory(true));
+			try {
+				extractor.constructCooccurrenceDB(corpus);
+				fail("The extraction should fail");
+			} catch (CooccurrenceDBConstructionException e) {
+				assertTrue(e.getCause() instanceof CooccurrenceDBConstructionException);
+			}
+		}
+	}
+
+	protected ConfigurationParams params(int iThreadNum, int iReaderThreadNum, int iBlockSize, int iSpillSize) throws Exception {
+		File file = new File(dir, "cooccurrence-extraction.xml");
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		writer.println("<configuration>");
+		writer.println("<section name=\"cooccurence-extractor\">");
+		writer.println("\t<property name=\"thread-num\">" + iThreadNum + "</property>");
+		writer.println("\t<property name=\"reader-thread-num\">" + iReaderThreadNum + "</property>");
+		writer.println("\t<property name=\"block-size\">" + iBlockSize + "</property>");
+		writer.println("\t<property name=\"spill-size\">" + iSpillSize + "</property>");
+		writer.println("\t<property name=\"extraction-class\">" + NeighboursExtraction.class.getName() + "</property>");
+		writer.println("\t<property name=\"sentence-reader-class\">eu.excitementproject.eop.distsim.builders.reader.LineBasedStringSentenceReader</property>");
+		writer.println("\t<property name=\"encoding\">UTF-8</property>");
+		writer.println("</section>");
+		writer.println("</configuration>");
+		writer.close();
+		return new ConfigurationFile(new ImplCommonConfig(file)).getModuleConfiguration("cooccurence-extractor");
+	}
+
+	protected static Map<String, Double> textUnitCounts(GeneralCooccurrenceExtractor extractor) throws Exception {
+		Map<String, Double> counts = new HashMap<String, Double>();
+		ImmutableIterator<TextUnit> it = extractor.textUnitStorage.iterator();
+		while (it.hasNext()) {
+			TextUnit textUnit = it.next();
+			counts.put(textUnit.toKey(), textUnit.getCount());
+		}
+		return counts;
+	}
+
+	protected static Map<String, Double> cooccurrenceCounts(GeneralCooccurrenceExtractor extractor) throws Exception {
+		Map<String, Double> counts = new HashMap<String, Double>();
+		ImmutableIterator<IDBasedCooccurrence> it = extractor.cooccurrenceStorage.iterator();
+		while (it.hasNext()) {
+			IDBasedCooccurrence cooccurrence = it.next();
+			String key = extractor.textUnitStorage.getData(cooccurrence.getTextUnitID1()).toKey() + " " +
+					extractor.textUnitStorage.getData(cooccurrence.getTextUnitID2()).toKey() + " " + cooccurrence.getRelation();
+			counts.put(key, cooccurrence.getCount());
+		}
+		return counts;
+	}
+
+	/**
+	 * Extracts the pairs of neighbour words of a line
+	 */
+	public static class NeighboursExtraction implements CooccurrenceExtraction<String, String> {
+
+		public NeighboursExtraction(ConfigurationParams params) {
+		}
+
+		@Override
+		public Pair<? extends List<? extends TextUnit>, ? extends List<? extends Cooccurrence<String>>> extractCooccurrences(String sentence) {
+			List<StringBasedTextUnit> textUnits = new LinkedList<StringBasedTextUnit>();
+			List<DefaultCooccurrence<String>> cooccurrences = new LinkedList<DefaultCooccurrence<String>>();
+			String[] words = sentence.split("\\s+");
+			for (int i = 0; i + 1 < words.length; i++) {
+				StringBasedTextUnit word1 = new StringBasedTextUnit(words[i]);
+				StringBasedTextUnit word2 = new StringBasedTextUnit(words[i + 1]);
+				textUnits.add(word1);
+				textUnits.add(word2);
+				cooccurrences.add(new DefaultCooccurrence<String>(word1, word2, new DefaultRelation<String>(i % 2 == 0 ? "EVEN" : "ODD")));
+			}
+			return new Pair<List<StringBasedTextUnit>, List<DefaultCooccurrence<String>>>(textUnits, cooccurrences);
+		}
+	}
+
+	/**
+	 * Creates memory-based text-unit and co-occurrence storages, where the co-occurrence storage optionally fails on any addition
+	 */
+	static class TestDataStructureFactory implements DataStructureFactory {
+
+		TestDataStructureFactory(boolean bFailing) {
+			this.bFailing = bFailing;
+		}
+
+		@Override
+		public CountableIdentifiableStorage<TextUnit> createTextUnitsDataStructure() {
+			return new MemoryBasedCountableIdentifiableStorage<TextUnit>();
+		}
+
+		@Override
+		public CountableIdentifiableStorage<IDBasedCooccurrence> createCooccurrencesDataStucture() {
+			if (!bFailing)
+				return new MemoryBasedCountableIdentifiableStorage<IDBasedCooccurrence>();
+			return new MemoryBasedCountableIdentifiableStorage<IDBasedCooccurrence>() {
+				@Override
+				public synchronized IDBasedCooccurrence addData(IDBasedCooccurrence data, double count) throws InvalidCountException {
+					throw new InvalidCountException("The storage is full");
+				}
+			};
+		}
+
+		@Override
+		public CountableIdentifiableStorage<Element> createElementsDataStucture() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public CountableIdentifiableStorage<Feature> createFeaturesDataStucture() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public IDKeyPersistentBasicMap<BasicMap<Integer, Double>> createElementFeatureCountsDataStructure() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public IDKeyPersistentBasicMap<BasicSet<Integer>> createFeatureElementsDataStructure() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public IDKeyPersistentBasicMap<LinkedHashMap<Integer, Double>> createElementFeatureScoresDataStructure() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public IDKeyPersistentBasicMap<Double> createElementScoresDataStructure() {
+			throw new UnsupportedOperationException();
+		}
+
+		protected final boolean bFailing;
+	}
+
+	protected static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null)
+			for (File child : files)
+				delete(child);
+		file.delete();
+	}
+
+	protected File dir;
+	protected File corpus;
+}
@@ -0,0 +1,159 @@
+package eu.excitementproject.eop.distsim.builders.elementfeature;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableIterator;
+import eu.excitementproject.eop.distsim.key.IntsLongEncoder;
+import eu.excitementproject.eop.distsim.storage.TroveBasedBasicIntSet;
+import eu.excitementproject.eop.distsim.storage.TroveBasedIDKeyPersistentBasicMap;
+import eu.excitementproject.eop.distsim.util.Pair;
+import gnu.trove.map.hash.TLongDoubleHashMap;
+
+public class ElementFeatureCountRunsTest {
+
+	@Before
+	public void setUp() {
+		dir = Files.createTempDir();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		dir.delete();
+	}
+
+	@Test
+	public void testMerge() throws Exception {
+		ElementFeatureCountRuns runs = new ElementFeatureCountRuns(dir, "counts-", true, 3);
+		Map<Long, Double> expected = new TreeMap<Long, Double>();
+		for (int run = 0; run < 20; run++) {
+			TLongDoubleHashMap counts = new TLongDoubleHashMap();
+			for (int i = 0; i < 30; i++) {
+				long key = IntsLongEncoder.encode((run * 7 + i) % 11 + 1, (run + i * 5) % 13 + 1);
+				double count = 0.5 + (run + i) % 4;
+				counts.adjustOrPutValue(key, count, count);
+				Double prev = expected.get(key);
+				expected.put(key, prev == null ? count : prev + count);
+			}
+			runs.writeRun(counts);
+		}
+		runs.writeRun(new TLongDoubleHashMap());
+		assertEquals(20, runs.size());
+
+		// the runs are merged, at most three at a time, to three runs, and then streamed
+		ElementFeatureCountRuns.Merger merger = runs.merge();
+		assertEquals(3, runs.size());
+		assertEquals(3, dir.listFiles().length);
+		Map<Long, Double> merged = new TreeMap<Long, Double>();
+		long prevKey = Long.MIN_VALUE;
+		while (merger.next()) {
+			assertTrue(merger.key() > prevKey);
+			prevKey = merger.key();
+			merged.put(merger.key(), merger.count());
+		}
+		merger.close();
+		assertEquals(expected, merged);
+
+		// a random access by the first id, from one run
+		for (int elementId = 0; elementId <= 12; elementId++) {
+			Map<Integer, Double> expectedCounts = new TreeMap<Integer, Double>();
+			for (Map.Entry<Long, Double> entry : expected.entrySet())
+				if (IntsLongEncoder.decodeFirst(entry.getKey()) == elementId)
+					expectedCounts.put(IntsLongEncoder.decodeSecond(entry.getKey()), entry.getValue());
+			TroveBasedIDKeyPersistentBasicMap<Double> counts = runs.getCounts(elementId);
+			TroveBasedBasicIntSet ids = runs.getSecondIds(elementId);
+			if (expectedCounts.isEmpty()) {
+				assertNull(counts);
+				assertNull(ids);
+			} else {
+				assertEquals(expectedCounts, toMap(counts));
+				assertEquals(expectedCounts.keySet(), toSet(ids));
+			}
+		}
+		assertEquals(1, runs.size());
+		assertEquals(1, dir.listFiles().length);
+
+		runs.delete();
+		assertEquals(0, runs.size());
+		assertEquals(0, dir.listFiles().length);
+		assertNull(runs.getCounts(1));
+	}
+
+	@Test
+	public void testKeys() throws Exception {
+		ElementFeatureCountRuns runs = new ElementFeatureCountRuns(dir, "keys-", false, 2);
+		runs.writeRun(new long[] {IntsLongEncoder.encode(2, 1), IntsLongEncoder.encode(1, 3), IntsLongEncoder.encode(1, 2)});
+		runs.writeRun(new long[] {IntsLongEncoder.encode(1, 2), IntsLongEncoder.encode(3, 1)});
+		runs.writeRun(new long[] {IntsLongEncoder.encode(2, 5)});
+		try {
+			runs.writeRun(new TLongDoubleHashMap());
+			fail("The runs have no counts");
+		} catch (IllegalStateException e) {
+		}
+
+		// records of keys only
+		assertEquals(6 * 8, sizeOfFiles());
+
+		ElementFeatureCountRuns.Merger merger = runs.merge();
+		int keys = 0;
+		while (merger.next()) {
+			keys++;
+			assertEquals(0, merger.count(), 0);
+		}
+		merger.close();
+		assertEquals(5, keys);
+
+		assertEquals(new TreeSet<Integer>(Arrays.asList(2, 3)), toSet(runs.getSecondIds(1)));
+		assertEquals(new TreeSet<Integer>(Arrays.asList(1, 5)), toSet(runs.getSecondIds(2)));
+		assertNull(runs.getSecondIds(4));
+
+		// a new run is merged with the consolidated one
+		runs.writeRun(new long[] {IntsLongEncoder.encode(4, 4)});
+		assertEquals(new TreeSet<Integer>(Arrays.asList(4)), toSet(runs.getSecondIds(4)));
+		runs.delete();
+		assertEquals(0, dir.listFiles().length);
+	}
+
+	protected long sizeOfFiles() {
+		long size = 0;
+		for (File file : dir.listFiles())
+			size += file.length();
+		return size;
+	}
+
+	protected static Map<Integer, Double> toMap(TroveBasedIDKeyPersistentBasicMap<Double> counts) {
+		Map<Integer, Double> map = new TreeMap<Integer, Double>();
+		ImmutableIterator<Pair<Integer, Double>> it = counts.iterator();
+		while (it.hasNext()) {
+			Pair<Integer, Double> pair = it.next();
+			map.put(pair.getFirst(), pair.getSecond());
+		}
+		return map;
+	}
+
+	protected static Set<Integer> toSet(TroveBasedBasicIntSet ids) {
+		Set<Integer> set = new TreeSet<Integer>();
+		ImmutableIterator<Integer> it = ids.iterator();
+		while (it.hasNext())
+			set.add(it.next());
+		return set;
+	}
+
+	protected File dir;
+}
@@ -0,0 +1,289 @@
+package eu.excitementproject.eop.distsim.builders.elementfeature;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableIterator;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationFile;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.distsim.builders.ConfigurationBasedDataStructureFactory;
+import eu.excitementproject.eop.distsim.items.Cooccurrence;
+import eu.excitementproject.eop.distsim.items.DefaultCooccurrence;
+import eu.excitementproject.eop.distsim.items.DefaultRelation;
+import eu.excitementproject.eop.distsim.items.Element;
+import eu.excitementproject.eop.distsim.items.Feature;
+import eu.excitementproject.eop.distsim.items.StringBasedElement;
+import eu.excitementproject.eop.distsim.items.StringBasedFeature;
+import eu.excitementproject.eop.distsim.items.StringBasedTextUnit;
+import eu.excitementproject.eop.distsim.storage.BasicCooccurrenceStorage;
+import eu.excitementproject.eop.distsim.storage.BasicMap;
+import eu.excitementproject.eop.distsim.storage.BasicSet;
+import eu.excitementproject.eop.distsim.storage.ElementFeatureCountStorage;
+import eu.excitementproject.eop.distsim.storage.ElementFeatureJointCounts;
+import eu.excitementproject.eop.distsim.storage.FeatureCount;
+import eu.excitementproject.eop.distsim.storage.NoElementFoundException;
+import eu.excitementproject.eop.distsim.storage.NoFeatureFoundException;
+import eu.excitementproject.eop.distsim.storage.PersistenceDevice;
+import eu.excitementproject.eop.distsim.util.Pair;
+
+/**
+ * Compares the external-memory mode of {@link GeneralElementFeatureExtractor} ({@link SortedRunsElementFeatureCountStorage})
+ * to its in-memory mode ({@link eu.excitementproject.eop.distsim.storage.DefaultElementFeatureCountStorage})
+ */
+@SuppressWarnings({"rawtypes","unchecked"})
+public class SortedRunsElementFeatureCountStorageTest {
+
+	@Before
+	public void setUp() throws Exception {
+		dir = Files.createTempDir();
+		tmpDir = new File(dir, "runs");
+		String[] words = {"dog", "cat", "mouse", "tiger", "lion", "hound", "bird", "fish", "horse"};
+		for (int i = 0; i < 300; i++) {
+			StringBasedTextUnit word1 = new StringBasedTextUnit(words[i % words.length]);
+			StringBasedTextUnit word2 = new StringBasedTextUnit(words[(i * 7 + i / words.length) % words.length]);
+			cooccurrences.add(new DefaultCooccurrence<String>(word1, word2, new DefaultRelation<String>(i % 3 == 0 ? "subj" : "obj"), i + 1, 1 + i % 5));
+		}
+	}
+
+	@After
+	public void tearDown() {
+		delete(dir);
+	}
+
+	@Test
+	public void testSameAsDefaultStorage() throws Exception {
+		ElementFeatureCountStorage expected = new GeneralElementFeatureExtractor(1, dataStructureFactory(), extractorParams(false)).constructElementFeatureDB(new ListCooccurrenceStorage());
+		SortedRunsElementFeatureCountStorage actual = (SortedRunsElementFeatureCountStorage)new GeneralElementFeatureExtractor(1, dataStructureFactory(), extractorParams(true)).constructElementFeatureDB(new ListCooccurrenceStorage());
+		assertTrue(actual.elementFeatureRuns.size() > 1);
+
+		assertEquals(expected.getTotalElementCount(), actual.getTotalElementCount(), 0);
+		assertEquals(jointCounts(expected.getElementFeatureJointCounts()), jointCounts(actual.getElementFeatureJointCounts()));
+		assertEquals(jointCounts(expected.getElementFeatureJointCounts(10)), jointCounts(actual.getElementFeatureJointCounts(10)));
+		assertEquals(mapping(expected.getFeatureElementsMapping()), mapping(actual.getFeatureElementsMapping()));
+
+		Set<Integer> elementIds = ids(expected.getAllElements());
+		Set<Integer> featureIds = ids(expected.getAllFeatures());
+		assertEquals(elementIds, ids(actual.getAllElements()));
+		assertEquals(featureIds, ids(actual.getAllFeatures()));
+		for (int elementId : elementIds) {
+			assertEquals(ids(expected.getElementFeatures(elementId)), ids(actual.getElementFeatures(elementId)));
+			assertEquals(ids(expected.getElementFeatures(elementId, 20)), ids(actual.getElementFeatures(elementId, 20)));
+		}
+		for (int featureId : featureIds) {
+			assertEquals(ids(expected.getFeatureElements(featureId)), ids(actual.getFeatureElements(featureId)));
+			assertEquals(ids(expected.getFeatureElements(featureId, 20)), ids(actual.getFeatureElements(featureId, 20)));
+		}
+		try {
+			actual.getElementFeatures(1000);
+			fail("No features for an unknown element");
+		} catch (NoFeatureFoundException e) {
+		}
+		try {
+			actual.getFeatureElements(1000);
+			fail("No elements for an unknown feature");
+		} catch (NoElementFoundException e) {
+		}
+
+		// the saved states are the same
+		assertEquals(save(expected, "expected"), save(actual, "actual"));
+
+		actual.delete();
+		assertEquals(0, tmpDir.listFiles().length);
+	}
+
+	protected List<Map<Integer, Object>> save(ElementFeatureCountStorage storage, String name) throws Exception {
+		List<PersistenceDevice> devices = new ArrayList<PersistenceDevice>();
+		for (String device : Arrays.asList("elements", "features", "element-feature-counts", "feature-elements")) {
+			devices.add(new eu.excitementproject.eop.distsim.storage.File(new File(dir, name + "-" + device), false));
+			devices.get(devices.size() - 1).open();
+		}
+		storage.saveState(devices.toArray(new PersistenceDevice[4]));
+		List<Map<Integer, Object>> records = new ArrayList<Map<Integer, Object>>();
+		for (String device : Arrays.asList("elements", "features", "element-feature-counts", "feature-elements")) {
+			devices.get(records.size()).close();
+			PersistenceDevice in = new eu.excitementproject.eop.distsim.storage.File(new File(dir, name + "-" + device), true);
+			in.open();
+			Map<Integer, Object> deviceRecords = new TreeMap<Integer, Object>();
+			Pair<Integer, Serializable> record;
+			while ((record = in.read()) != null) {
+				Object value = record.getSecond();
+				if (value instanceof BasicMap)
+					value = map(((BasicMap<Integer, Double>)value).iterator());
+				else if (value instanceof BasicSet)
+					value = ids(((BasicSet<Integer>)value).iterator());
+				else
+					value = value.toString();
+				assertNull(deviceRecords.put(record.getFirst(), value));
+			}
+			in.close();
+			records.add(deviceRecords);
+		}
+		assertFalse(records.get(2).isEmpty());
+		return records;
+	}
+
+	protected static Map<Integer, Map<Integer, Double>> jointCounts(Iterator<ElementFeatureJointCounts> it) {
+		Map<Integer, Map<Integer, Double>> jointCounts = new TreeMap<Integer, Map<Integer, Double>>();
+		while (it.hasNext()) {
+			ElementFeatureJointCounts elementCounts = it.next();
+			Map<Integer, Double> featureCounts = new TreeMap<Integer, Double>();
+			Iterator<FeatureCount> featureIt = elementCounts.getFeatureCounts();
+			while (featureIt.hasNext()) {
+				FeatureCount featureCount = featureIt.next();
+				featureCounts.put(featureCount.getFeatureId(), featureCount.getCount());
+			}
+			assertEquals(featureCounts.size(), elementCounts.getFeaturesSize());
+			jointCounts.put(elementCounts.getElementId(), featureCounts);
+		}
+		return jointCounts;
+	}
+
+	protected static Map<Integer, Set<Integer>> mapping(BasicMap<Integer, BasicSet<Integer>> featureElements) throws Exception {
+		Map<Integer, Set<Integer>> mapping = new TreeMap<Integer, Set<Integer>>();
+		ImmutableIterator<Pair<Integer, BasicSet<Integer>>> it = featureElements.iterator();
+		while (it.hasNext()) {
+			Pair<Integer, BasicSet<Integer>> pair = it.next();
+			mapping.put(pair.getFirst(), ids(pair.getSecond().iterator()));
+		}
+		return mapping;
+	}
+
+	protected static Map<Integer, Double> map(Iterator<Pair<Integer, Double>> it) {
+		Map<Integer, Double> map = new TreeMap<Integer, Double>();
+		while (it.hasNext()) {
+			Pair<Integer, Double> pair = it.next();
+			map.put(pair.getFirst(), pair.getSecond());
+		}
+		return map;
+	}
+
+	protected static Set<Integer> ids(Iterator<?> it) throws Exception {
+		Set<Integer> ids = new TreeSet<Integer>();
+		while (it.hasNext()) {
+			Object item = it.next();
+			ids.add(item instanceof Integer ? (Integer)item : (item instanceof Element ? ((Element)item).getID() : ((Feature)item).getID()));
+		}
+		return ids;
+	}
+
+	protected ConfigurationBasedDataStructureFactory dataStructureFactory() throws Exception {
+		return new ConfigurationBasedDataStructureFactory(configuration(false));
+	}
+
+	protected ConfigurationParams extractorParams(boolean bExternal) throws Exception {
+		return configuration(bExternal).getModuleConfiguration("element-feature-extractor");
+	}
+
+	protected ConfigurationFile configuration(boolean bExternal) throws Exception {
+		File file = new File(dir, "element-feature-counting.xml");
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		writer.println("<configuration>");
+		writer.println("<section name=\"element-feature-extractor\">");
+		writer.println("\t<property name=\"extraction-class\">" + StringElementFeatureExtraction.class.getName() + "</property>");
+		writer.println("\t<property name=\"block-size\">7</property>");
+		writer.println("\t<property name=\"spill-size\">10</property>");
+		if (bExternal)
+			writer.println("\t<property name=\"tmp-dir\">" + tmpDir.getPath() + "</property>");
+		writer.println("</section>");
+		for (String module : Arrays.asList("text-units-data-structure", "co-occurrences-data-structure", "elements-data-structure", "features-data-structure"))
+			writeModule(writer, module, "eu.excitementproject.eop.distsim.storage.MemoryBasedCountableIdentifiableStorage");
+		for (String module : Arrays.asList("element-feature-counts-data-structure", "feature-elements-data-structure", "element-feature-scores-data-structure", "element-scores-data-structure"))
+			writeModule(writer, module, "eu.excitementproject.eop.distsim.storage.TroveBasedIDKeyPersistentBasicMap");
+		writer.println("</configuration>");
+		writer.close();
+		return new ConfigurationFile(new ImplCommonConfig(file));
+	}
+
+	protected static void writeModule(PrintWriter writer, String module, String className) {
+		writer.println("<section name=\"" + module + "\">");
+		writer.println("\t<property name=\"class\">" + className + "</property>");
+		writer.println("</section>");
+	}
+
+	protected static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null)
+			for (File child : files)
+				delete(child);
+		file.delete();
+	}
+
+	/**
+	 * The first word of a co-occurrence is the element, and the relation with the second word is the feature
+	 */
+	public static class StringElementFeatureExtraction implements ElementFeatureExtraction {
+
+		public StringElementFeatureExtraction(ConfigurationParams params) {
+		}
+
+		@Override
+		public List<Pair<Element, Feature>> extractElementsFeature(Cooccurrence<?> cooccurrence) {
+			List<Pair<Element, Feature>> pairs = new LinkedList<Pair<Element, Feature>>();
+			try {
+				pairs.add(new Pair<Element, Feature>(new StringBasedElement(cooccurrence.getTextItem1().toKey()),
+						new StringBasedFeature(cooccurrence.getRelation().getValue() + ":" + cooccurrence.getTextItem2().toKey())));
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			return pairs;
+		}
+
+		@Override
+		public boolean isRelevantElementForCalculation(int elementId) {
+			return true;
+		}
+	}
+
+	/**
+	 * A co-occurrence storage of the co-occurrences of the test
+	 */
+	class ListCooccurrenceStorage implements BasicCooccurrenceStorage<String> {
+
+		@Override
+		public ImmutableIterator<Cooccurrence<String>> getCooccurrenceInstances() {
+			final Iterator<Cooccurrence<String>> it = cooccurrences.iterator();
+			return new ImmutableIterator<Cooccurrence<String>>() {
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				@Override
+				public Cooccurrence<String> next() {
+					return it.next();
+				}
+			};
+		}
+
+		@Override
+		public ImmutableIterator<Cooccurrence<String>> getCooccurrenceInstances(int minCount) {
+			return getCooccurrenceInstances();
+		}
+	}
+
+	protected File dir;
+	protected File tmpDir;
+	protected final List<Cooccurrence<String>> cooccurrences = new ArrayList<Cooccurrence<String>>();
+}
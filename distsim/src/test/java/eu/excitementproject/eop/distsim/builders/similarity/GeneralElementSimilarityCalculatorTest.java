@@ -0,0 +1,357 @@
+package eu.excitementproject.eop.distsim.builders.similarity;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableIterator;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationFile;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.distsim.builders.BasicVectorTruncate;
+import eu.excitementproject.eop.distsim.scoring.FeatureScore;
+import eu.excitementproject.eop.distsim.scoring.similarity.AdditiveElementSimilarityScoring;
+import eu.excitementproject.eop.distsim.scoring.similarity.Cosine;
+import eu.excitementproject.eop.distsim.scoring.similarity.Cover;
+import eu.excitementproject.eop.distsim.scoring.similarity.Lin;
+import eu.excitementproject.eop.distsim.storage.BasicSet;
+import eu.excitementproject.eop.distsim.storage.DefaultElementFeatureScoreStorage;
+import eu.excitementproject.eop.distsim.storage.ElementFeatureScoreStorage;
+import eu.excitementproject.eop.distsim.storage.IDKeyPersistentBasicMap;
+import eu.excitementproject.eop.distsim.storage.NoScoreFoundException;
+import eu.excitementproject.eop.distsim.storage.PersistenceDevice;
+import eu.excitementproject.eop.distsim.storage.PersistenceDeviceType;
+import eu.excitementproject.eop.distsim.storage.TroveBasedBasicIntSet;
+import eu.excitementproject.eop.distsim.storage.TroveBasedIDKeyPersistentBasicMap;
+import eu.excitementproject.eop.distsim.util.Pair;
+
+public class GeneralElementSimilarityCalculatorTest {
+
+	@Before
+	public void setUp() throws Exception {
+		dir = Files.createTempDir();
+
+		// the scores are multiples of 1/8, so all the sums and products are exact, whatever their order.
+		// each sixth element copies the features of the previous one, so the scores of these two elements are tied
+		Random random = new Random(17);
+		features = new TreeMap<Integer, LinkedHashMap<Integer, Double>>();
+		for (int elementId = 0; elementId < ELEMENTS_NUM; elementId++) {
+			if (elementId % 6 == 5) {
+				features.put(elementId, features.get(elementId - 1));
+				continue;
+			}
+			List<Integer> featureIds = new ArrayList<Integer>();
+			for (int featureId = 0; featureId < FEATURES_NUM; featureId++)
+				if (random.nextInt(4) == 0)
+					featureIds.add(featureId);
+			if (featureIds.isEmpty())
+				featureIds.add(random.nextInt(FEATURES_NUM));
+			Collections.shuffle(featureIds, random);
+			LinkedHashMap<Integer, Double> featureScores = new LinkedHashMap<Integer, Double>();
+			double score = 8 + random.nextInt(8);
+			for (int featureId : featureIds) {
+				featureScores.put(featureId, score);
+				score = Math.max(score - random.nextInt(3) / 8.0, 0.125);
+			}
+			features.put(elementId, featureScores);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		dir.delete();
+	}
+
+	@Test
+	public void testChunkedDistribution() throws Exception {
+		for (AdditiveElementSimilarityScoring scoring : new AdditiveElementSimilarityScoring[] {new Lin(), new Cosine(), new Cover()}) {
+			CountingStorage storage = storage(scoring instanceof Cosine);
+			Map<Integer, List<String>> expectedL2R = expected(storage, scoring, false, Integer.MAX_VALUE);
+			Map<Integer, List<String>> expectedR2L = expected(storage, scoring, true, Integer.MAX_VALUE);
+
+			// a single element per chunk, chunks which do not divide the number of elements, and a single chunk for all
+			for (int chunkSize : new int[] {1, 7, ELEMENTS_NUM, 256}) {
+				for (int threadNum : new int[] {1, 4}) {
+					String message = scoring.getClass().getSimpleName() + ", chunks of " + chunkSize + ", " + threadNum + " threads";
+					RecordingDevice outR2L = new RecordingDevice();
+					RecordingDevice outL2R = new RecordingDevice();
+					calculator(scoring, threadNum, chunkSize, 0, false).measureElementSimilarity(storage, outR2L, outL2R);
+
+					// each element is written exactly once to each device, with its similar elements in a fixed order
+					assertEquals(message, 0, outR2L.duplicates.get());
+					assertEquals(message, 0, outL2R.duplicates.get());
+					assertEquals(message, expectedL2R, outL2R.written);
+					assertEquals(message, expectedR2L, outR2L.written);
+
+					// the features of the elements are taken from the iterator of the storage, and are not queried again
+					assertEquals(message, 0, storage.elementFeatureScoresQueries.get());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNoR2LDevice() throws Exception {
+		CountingStorage storage = storage(false);
+		RecordingDevice outL2R = new RecordingDevice();
+		calculator(new Lin(), 3, 5, 0, false).measureElementSimilarity(storage, null, outL2R);
+		assertEquals(0, outL2R.duplicates.get());
+		assertEquals(expected(storage, new Lin(), false, Integer.MAX_VALUE), outL2R.written);
+	}
+
+	@Test
+	public void testPrunedSearch() throws Exception {
+		for (AdditiveElementSimilarityScoring scoring : new AdditiveElementSimilarityScoring[] {new Lin(), new Cosine(), new PrunedCover()}) {
+			CountingStorage storage = storage(scoring instanceof Cosine);
+			Map<Integer, List<String>> allL2R = expected(storage, scoring, false, Integer.MAX_VALUE);
+			Map<Integer, List<String>> allR2L = expected(storage, scoring, true, Integer.MAX_VALUE);
+			for (int topN : new int[] {1, 2, 3, 5, 8}) {
+				// the fixture has ties at the cutoff of the top-n elements
+				assertTrue(scoring.getClass().getSimpleName() + ", top " + topN, tiesAtCutoff(allL2R, topN) + tiesAtCutoff(allR2L, topN) > 0);
+				Map<Integer, List<String>> expectedL2R = expected(storage, scoring, false, topN);
+				Map<Integer, List<String>> expectedR2L = expected(storage, scoring, true, topN);
+
+				for (int threadNum : new int[] {1, 3}) {
+					String message = scoring.getClass().getSimpleName() + ", top " + topN + ", " + threadNum + " threads";
+					GeneralElementSimilarityCalculator prunedCalculator = calculator(scoring, threadNum, 4, topN, true);
+					assertNotNull(message, prunedCalculator.createFeatureSimilarityBounds(storage));
+					RecordingDevice prunedR2L = new RecordingDevice();
+					RecordingDevice prunedL2R = new RecordingDevice();
+					prunedCalculator.measureElementSimilarity(storage, prunedR2L, prunedL2R);
+					RecordingDevice fullR2L = new RecordingDevice();
+					RecordingDevice fullL2R = new RecordingDevice();
+					calculator(scoring, threadNum, 4, topN, false).measureElementSimilarity(storage, fullR2L, fullL2R);
+
+					assertEquals(message, expectedL2R, fullL2R.written);
+					assertEquals(message, expectedR2L, fullR2L.written);
+					assertEquals(message, fullL2R.written, prunedL2R.written);
+					assertEquals(message, fullR2L.written, prunedR2L.written);
+					assertEquals(message, 0, prunedL2R.duplicates.get() + prunedR2L.duplicates.get());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPrunedSearchIsNotAppliedForCover() throws Exception {
+		CountingStorage storage = storage(false);
+		assertNull(calculator(new Cover(), 1, 4, 5, true).createFeatureSimilarityBounds(storage));
+		assertNotNull(calculator(new PrunedCover(), 1, 4, 5, true).createFeatureSimilarityBounds(storage));
+		// no top-n truncation
+		assertNull(calculator(new Lin(), 1, 4, 0, true).createFeatureSimilarityBounds(storage));
+	}
+
+	/**
+	 * @return the number of the elements whose n-th and (n+1)-th similar elements have the same score
+	 */
+	protected static int tiesAtCutoff(Map<Integer, List<String>> similarities, int topN) {
+		int ret = 0;
+		for (List<String> similarElements : similarities.values())
+			if (similarElements.size() > topN && score(similarElements.get(topN - 1)).equals(score(similarElements.get(topN))))
+				ret++;
+		return ret;
+	}
+
+	protected static String score(String similarity) {
+		return similarity.substring(similarity.indexOf(':') + 1);
+	}
+
+	/**
+	 * @param bL2Norm true if the element scores are the L2 norms of their feature scores, as expected by {@link Cosine}, false for the L1 norms
+	 * @return a storage of the features of the fixture
+	 */
+	protected CountingStorage storage(boolean bL2Norm) throws Exception {
+		TroveBasedIDKeyPersistentBasicMap<LinkedHashMap<Integer, Double>> elementFeatureScores = new TroveBasedIDKeyPersistentBasicMap<LinkedHashMap<Integer, Double>>();
+		TroveBasedIDKeyPersistentBasicMap<Double> elementScores = new TroveBasedIDKeyPersistentBasicMap<Double>();
+		TroveBasedIDKeyPersistentBasicMap<BasicSet<Integer>> featureElements = new TroveBasedIDKeyPersistentBasicMap<BasicSet<Integer>>();
+		for (Map.Entry<Integer, LinkedHashMap<Integer, Double>> entry : features.entrySet()) {
+			double elementScore = 0;
+			for (Map.Entry<Integer, Double> featureScore : entry.getValue().entrySet()) {
+				elementScore += (bL2Norm ? featureScore.getValue() * featureScore.getValue() : featureScore.getValue());
+				TroveBasedBasicIntSet elements = (TroveBasedBasicIntSet)featureElements.get(featureScore.getKey());
+				if (elements == null) {
+					elements = new TroveBasedBasicIntSet();
+					featureElements.put(featureScore.getKey(), elements);
+				}
+				elements.add(entry.getKey());
+			}
+			elementFeatureScores.put(entry.getKey(), entry.getValue());
+			elementScores.put(entry.getKey(), bL2Norm ? Math.sqrt(elementScore) : elementScore);
+		}
+		return new CountingStorage(elementFeatureScores, elementScores, featureElements);
+	}
+
+	/**
+	 * Compute the similarities of all the pairs of elements of the fixture, independently of the calculator
+	 *
+	 * @param storage the storage of the fixture
+	 * @param scoring a similarity scoring
+	 * @param bR2L true for the right-to-left similarities, false for the left-to-right ones
+	 * @param topN the number of the most similar elements which are kept for each element
+	 * @return the similar elements of each element, as 'id:score' strings, ordered by descending scores and then by ascending ids
+	 */
+	protected Map<Integer, List<String>> expected(ElementFeatureScoreStorage storage, final AdditiveElementSimilarityScoring scoring, boolean bR2L, int topN) throws NoScoreFoundException {
+		Map<Integer, List<String>> ret = new TreeMap<Integer, List<String>>();
+		for (int element1Id : features.keySet()) {
+			double element1Score = storage.getElementScore(element1Id);
+			final Map<Integer, Double> scores = new TreeMap<Integer, Double>();
+			for (int element2Id : features.keySet()) {
+				if (element2Id == element1Id)
+					continue;
+				double element2Score = storage.getElementScore(element2Id);
+				double sum = 0;
+				boolean bCommon = false;
+				for (Map.Entry<Integer, Double> featureScore : features.get(element1Id).entrySet()) {
+					Double score2 = features.get(element2Id).get(featureScore.getKey());
+					if (score2 != null) {
+						sum += (bR2L ? scoring.getFeatureScoreContribution(score2, featureScore.getValue()) : scoring.getFeatureScoreContribution(featureScore.getValue(), score2));
+						bCommon = true;
+					}
+				}
+				double similarity = (bR2L ? scoring.getSimilarityScore(sum, element2Score, element1Score) : scoring.getSimilarityScore(sum, element1Score, element2Score));
+				if (bCommon && similarity > 0)
+					scores.put(element2Id, similarity);
+			}
+			List<Integer> order = new ArrayList<Integer>(scores.keySet());
+			Collections.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer id1, Integer id2) {
+					int ret = Double.compare(scores.get(id2), scores.get(id1));
+					return ret != 0 ? ret : id1.compareTo(id2);
+				}
+			});
+			List<String> similarities = new ArrayList<String>();
+			for (int i = 0; i < order.size() && i < topN; i++)
+				similarities.add(order.get(i) + ":" + scores.get(order.get(i)));
+			ret.put(element1Id, similarities);
+		}
+		return ret;
+	}
+
+	/**
+	 * @param topN the size of the truncated vectors, or 0 for no truncation
+	 */
+	protected GeneralElementSimilarityCalculator calculator(AdditiveElementSimilarityScoring scoring, int threadNum, int chunkSize, int topN, boolean bPruned) throws Exception {
+		File file = new File(dir, "similarity-calculator.xml");
+		PrintWriter writer = new PrintWriter(file, "UTF-8");
+		writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		writer.println("<configuration>");
+		writer.println("<section name=\"element-similarity-calculator\">");
+		writer.println("\t<property name=\"thread-num\">" + threadNum + "</property>");
+		writer.println("\t<property name=\"chunk-size\">" + chunkSize + "</property>");
+		writer.println("\t<property name=\"similarity-scoring-class\">" + scoring.getClass().getName() + "</property>");
+		writer.println("\t<property name=\"pruned-similarity\">" + bPruned + "</property>");
+		writer.println("</section>");
+		if (topN > 0) {
+			writer.println("<section name=\"vector-truncate\">");
+			writer.println("\t<property name=\"class\">" + BasicVectorTruncate.class.getName() + "</property>");
+			writer.println("\t<property name=\"top-n\">" + topN + "</property>");
+			writer.println("</section>");
+		}
+		writer.println("</configuration>");
+		writer.close();
+		ConfigurationParams params = new ConfigurationFile(new ImplCommonConfig(file)).getModuleConfiguration("element-similarity-calculator");
+		return new GeneralElementSimilarityCalculator(params);
+	}
+
+	/**
+	 * The {@link Cover} scoring, for which the pruned similarity search is applied
+	 */
+	public static class PrunedCover extends Cover {
+
+		public PrunedCover() {
+		}
+
+		public PrunedCover(ConfigurationParams params) {
+			super(params);
+		}
+
+		@Override
+		public boolean isPrunedSearchEfficient() {
+			return true;
+		}
+	}
+
+	/**
+	 * A storage which counts the queries for the feature scores of a given element
+	 */
+	protected static class CountingStorage extends DefaultElementFeatureScoreStorage {
+
+		CountingStorage(IDKeyPersistentBasicMap<LinkedHashMap<Integer, Double>> elemntFeaturesScores, IDKeyPersistentBasicMap<Double> elemntScores, IDKeyPersistentBasicMap<BasicSet<Integer>> featureElements) {
+			super(elemntFeaturesScores, elemntScores, featureElements);
+		}
+
+		@Override
+		public ImmutableIterator<FeatureScore> getElementFeatureScores(int elementId) throws NoScoreFoundException {
+			elementFeatureScoresQueries.incrementAndGet();
+			return super.getElementFeatureScores(elementId);
+		}
+
+		final AtomicInteger elementFeatureScoresQueries = new AtomicInteger(0);
+	}
+
+	/**
+	 * A persistence device which keeps the written similarities, as 'id:score' strings in their written order
+	 */
+	protected static class RecordingDevice implements PersistenceDevice {
+
+		@Override
+		public void open() {
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public synchronized void write(int id, Serializable data) {
+			List<String> similarities = new ArrayList<String>();
+			for (Map.Entry<Integer, Double> entry : ((LinkedHashMap<Integer, Double>)data).entrySet())
+				similarities.add(entry.getKey() + ":" + entry.getValue());
+			if (written.put(id, similarities) != null)
+				duplicates.incrementAndGet();
+		}
+
+		@Override
+		public Pair<Integer, Serializable> read() throws IOException {
+			return null;
+		}
+
+		@Override
+		public PersistenceDeviceType getType() {
+			return PersistenceDeviceType.FILE;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		final Map<Integer, List<String>> written = new TreeMap<Integer, List<String>>();
+		final AtomicInteger duplicates = new AtomicInteger(0);
+	}
+
+	protected static final int ELEMENTS_NUM = 90;
+	protected static final int FEATURES_NUM = 24;
+
+	protected File dir;
+	protected Map<Integer, LinkedHashMap<Integer, Double>> features;
+}
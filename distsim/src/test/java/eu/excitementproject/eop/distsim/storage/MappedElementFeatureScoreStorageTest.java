@@ -0,0 +1,382 @@
+package eu.excitementproject.eop.distsim.storage;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableIterator;
+import eu.excitementproject.eop.distsim.domains.FilterType;
+import eu.excitementproject.eop.distsim.scoring.ElementFeatureScores;
+import eu.excitementproject.eop.distsim.scoring.ElementScore;
+import eu.excitementproject.eop.distsim.scoring.FeatureScore;
+import eu.excitementproject.eop.distsim.scoring.feature.ElementFeatureData;
+
+public class MappedElementFeatureScoreStorageTest {
+
+	@Before
+	public void setUp() throws Exception {
+		dir = Files.createTempDir();
+		mappedFile = new File(dir, "element-feature-scores.bin");
+
+		// elements with no feature scores, elements with no score and features with no elements are left out on purpose
+		Random random = new Random(17);
+		elementFeatureScores = new TroveBasedIDKeyPersistentBasicMap<LinkedHashMap<Integer, Double>>();
+		elementScores = new TroveBasedIDKeyPersistentBasicMap<Double>();
+		featureElements = new TroveBasedIDKeyPersistentBasicMap<BasicSet<Integer>>();
+		Map<Integer, TroveBasedBasicIntSet> elementsOfFeatures = new TreeMap<Integer, TroveBasedBasicIntSet>();
+		for (int elementId = 0; elementId < ELEMENTS_NUM; elementId++) {
+			if (elementId % 7 == 3)
+				continue;
+			List<Integer> features = new ArrayList<Integer>();
+			for (int featureId = 0; featureId < FEATURES_NUM; featureId++)
+				if (featureId % 5 != 4 && random.nextInt(3) == 0)
+					features.add(featureId);
+			Collections.shuffle(features, random);
+			// the scores are descending, and are exactly represented as floats
+			LinkedHashMap<Integer, Double> featureScores = new LinkedHashMap<Integer, Double>();
+			double score = 64;
+			for (int featureId : features) {
+				score -= random.nextInt(4) / 8.0;
+				featureScores.put(featureId, score);
+				if (!elementsOfFeatures.containsKey(featureId))
+					elementsOfFeatures.put(featureId, new TroveBasedBasicIntSet());
+				elementsOfFeatures.get(featureId).add(elementId);
+			}
+			elementFeatureScores.put(elementId, featureScores);
+			if (elementId % 4 != 1)
+				elementScores.put(elementId, elementId * 0.25);
+		}
+		for (Map.Entry<Integer, TroveBasedBasicIntSet> entry : elementsOfFeatures.entrySet())
+			featureElements.put(entry.getKey(), entry.getValue());
+		defaultStorage = new DefaultElementFeatureScoreStorage(elementFeatureScores, elementScores, featureElements);
+
+		elementFeatureScoresFile = new File(dir, "element-feature-scores.txt");
+		elementScoresFile = new File(dir, "element-scores.txt");
+		featureElementsFile = new File(dir, "feature-elements.txt");
+		save(elementFeatureScores, elementFeatureScoresFile);
+		save(elementScores, elementScoresFile);
+		save(featureElements, featureElementsFile);
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		dir.delete();
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		build();
+		assertEquals(Collections.singleton(mappedFile.getName()), tmpFiles());
+
+		// a single segment, and segments of 8 bytes up to 1K, so the values of all the sections are read across many segments,
+		// as in files of more than 2^30 bytes
+		for (int segmentBits : new int[] {MappedElementFeatureScoreStorage.SEGMENT_BITS, 3, 4, 6, 10}) {
+			MappedElementFeatureScoreStorage mappedStorage = new MappedElementFeatureScoreStorage(mappedFile, segmentBits);
+			assertTrue(segmentBits == MappedElementFeatureScoreStorage.SEGMENT_BITS || mappedStorage.segments.length > 8);
+			assertStorage(mappedStorage);
+			mappedStorage.close();
+		}
+	}
+
+	@Test
+	public void testSavedState() throws Exception {
+		build();
+		MappedElementFeatureScoreStorage mappedStorage = new MappedElementFeatureScoreStorage(mappedFile);
+		File savedScoresFile = new File(dir, "saved-element-feature-scores.txt");
+		File savedElementScoresFile = new File(dir, "saved-element-scores.txt");
+		PersistenceDevice scoresDevice = new eu.excitementproject.eop.distsim.storage.File(savedScoresFile, false);
+		PersistenceDevice elementScoresDevice = new eu.excitementproject.eop.distsim.storage.File(savedElementScoresFile, false);
+		scoresDevice.open();
+		elementScoresDevice.open();
+		mappedStorage.saveState(scoresDevice, elementScoresDevice);
+		scoresDevice.close();
+		elementScoresDevice.close();
+
+		TroveBasedIDKeyPersistentBasicMap<LinkedHashMap<Integer, Double>> savedScores = new TroveBasedIDKeyPersistentBasicMap<LinkedHashMap<Integer, Double>>();
+		TroveBasedIDKeyPersistentBasicMap<Double> savedElementScores = new TroveBasedIDKeyPersistentBasicMap<Double>();
+		load(savedScores, savedScoresFile);
+		load(savedElementScores, savedElementScoresFile);
+		assertEquals(elementFeatureScores.size(), savedScores.size());
+		for (int elementId = 0; elementId < ELEMENTS_NUM; elementId++) {
+			assertEquals(elementFeatureScores.get(elementId), savedScores.get(elementId));
+			if (elementFeatureScores.get(elementId) != null)
+				assertEquals(new ArrayList<Integer>(elementFeatureScores.get(elementId).keySet()), new ArrayList<Integer>(savedScores.get(elementId).keySet()));
+			assertEquals(elementScores.get(elementId), savedElementScores.get(elementId));
+		}
+		mappedStorage.close();
+	}
+
+	@Test
+	public void testFailedBuild() throws Exception {
+		// a value of a wrong type fails the build, after the temporary column files were written
+		PersistenceDevice device = new eu.excitementproject.eop.distsim.storage.File(elementScoresFile, false);
+		device.open();
+		device.write(0, 1.5);
+		device.write(1, "not a score");
+		device.close();
+		try {
+			build();
+			fail("The element scores are invalid");
+		} catch (ClassCastException e) {
+		}
+		assertTrue(tmpFiles().isEmpty());
+
+		// a failed composition deletes the partial target file as well
+		MappedElementFeatureScoreFileWriter writer = new MappedElementFeatureScoreFileWriter(mappedFile);
+		LinkedHashMap<Integer, Double> featureScores = new LinkedHashMap<Integer, Double>();
+		featureScores.put(3, 1.0);
+		writer.writeElementFeatureScores(2, featureScores);
+		writer.featureIdsFile.delete();
+		try {
+			writer.close();
+			fail("A temporary file is missing");
+		} catch (java.io.IOException e) {
+		}
+		assertTrue(tmpFiles().isEmpty());
+
+		// an aborted writer leaves no files
+		writer = new MappedElementFeatureScoreFileWriter(mappedFile);
+		writer.writeElementFeatureScores(2, featureScores);
+		try {
+			writer.writeElementFeatureScores(2, featureScores);
+			fail("The feature scores of element 2 were already written");
+		} catch (IllegalArgumentException e) {
+		}
+		writer.abort();
+		assertTrue(tmpFiles().isEmpty());
+	}
+
+	protected void assertStorage(MappedElementFeatureScoreStorage mappedStorage) throws Exception {
+		for (int elementId = -1; elementId <= ELEMENTS_NUM; elementId++) {
+			LinkedHashMap<Integer, Double> featureScores = elementId < 0 ? null : elementFeatureScores.get(elementId);
+			assertEquals(featureScores == null ? -1 : featureScores.size(), mappedStorage.getRowSize(elementId));
+
+			// the scores, ranks and sizes of all the element-feature pairs
+			for (int featureId = -1; featureId <= FEATURES_NUM; featureId++) {
+				Double expectedScore = null;
+				ElementFeatureData expectedData = null;
+				try {
+					expectedScore = defaultStorage.getElementFeatureScore(elementId, featureId);
+					expectedData = defaultStorage.getElementFeatureData(elementId, featureId);
+				} catch (NoScoreFoundException e) {
+				}
+				Double score = null;
+				ElementFeatureData data = null;
+				try {
+					score = mappedStorage.getElementFeatureScore(elementId, featureId);
+					data = mappedStorage.getElementFeatureData(elementId, featureId);
+				} catch (NoScoreFoundException e) {
+				}
+				assertEquals(expectedScore, score);
+				if (expectedData == null) {
+					assertNull(data);
+					assertEquals(-1, mappedStorage.getFeatureRank(elementId, featureId));
+				} else {
+					assertEquals(expectedData.getValue(), data.getValue(), 0);
+					assertEquals(expectedData.getRank(), data.getRank(), 0);
+					assertEquals(expectedData.getSize(), data.getSize(), 0);
+					assertEquals((int)expectedData.getRank(), mappedStorage.getFeatureRank(elementId, featureId));
+				}
+			}
+
+			// the feature lists, with and without filters
+			List<String> expectedFeatures = null;
+			List<String> features = null;
+			try {
+				expectedFeatures = toList(defaultStorage.getElementFeatureScores(elementId));
+			} catch (NoScoreFoundException e) {
+			}
+			try {
+				features = toList(mappedStorage.getElementFeatureScores(elementId));
+			} catch (NoScoreFoundException e) {
+			}
+			assertEquals(expectedFeatures, features);
+			for (Object[] filter : FILTERS) {
+				List<String> actual = null;
+				try {
+					actual = toList(mappedStorage.getElementFeatureScores(elementId, (FilterType)filter[0], (Double)filter[1]));
+				} catch (NoScoreFoundException e) {
+				}
+				assertEquals(filter(featureScores, (FilterType)filter[0], (Double)filter[1]), actual);
+			}
+
+			Double expectedScore = null;
+			Double score = null;
+			try {
+				expectedScore = defaultStorage.getElementScore(elementId);
+			} catch (NoScoreFoundException e) {
+			}
+			try {
+				score = mappedStorage.getElementScore(elementId);
+			} catch (NoScoreFoundException e) {
+			}
+			assertEquals(expectedScore, score);
+		}
+
+		assertEquals(toMap(defaultStorage.getElementsFeatureScores()), toMap(mappedStorage.getElementsFeatureScores()));
+		for (Object[] filter : FILTERS) {
+			Map<Integer, List<String>> expected = new HashMap<Integer, List<String>>();
+			for (int elementId = 0; elementId < ELEMENTS_NUM; elementId++)
+				if (elementFeatureScores.get(elementId) != null)
+					expected.put(elementId, filter(elementFeatureScores.get(elementId), (FilterType)filter[0], (Double)filter[1]));
+			assertEquals(expected, toMap(mappedStorage.getElementsFeatureScores((FilterType)filter[0], (Double)filter[1])));
+		}
+		assertEquals(toScores(defaultStorage.getElementScores()), toScores(mappedStorage.getElementScores()));
+
+		// the feature elements
+		for (int featureId = -1; featureId <= FEATURES_NUM; featureId++) {
+			BasicSet<Integer> expected = featureId < 0 ? null : defaultStorage.getFeatureElements(featureId);
+			BasicSet<Integer> actual = mappedStorage.getFeatureElements(featureId);
+			if (expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			assertEquals(expected.size(), actual.size());
+			Set<Integer> expectedIds = toSet(expected);
+			List<Integer> actualIds = new ArrayList<Integer>();
+			ImmutableIterator<Integer> it = actual.iterator();
+			while (it.hasNext())
+				actualIds.add(it.next());
+			assertEquals(new ArrayList<Integer>(expectedIds), actualIds);
+			for (int elementId = -1; elementId <= ELEMENTS_NUM; elementId++)
+				assertEquals(expectedIds.contains(elementId), actual.contains(elementId));
+		}
+	}
+
+	protected void build() throws Exception {
+		PersistenceDevice elementFeatureScoresDevice = new eu.excitementproject.eop.distsim.storage.File(elementFeatureScoresFile, true);
+		PersistenceDevice elementScoresDevice = new eu.excitementproject.eop.distsim.storage.File(elementScoresFile, true);
+		PersistenceDevice featureElementsDevice = new eu.excitementproject.eop.distsim.storage.File(featureElementsFile, true);
+		elementFeatureScoresDevice.open();
+		elementScoresDevice.open();
+		featureElementsDevice.open();
+		try {
+			MappedElementFeatureScoreFileWriter.build(mappedFile, elementFeatureScoresDevice, elementScoresDevice, featureElementsDevice);
+		} finally {
+			elementFeatureScoresDevice.close();
+			elementScoresDevice.close();
+			featureElementsDevice.close();
+		}
+	}
+
+	/**
+	 * @return the names of the files in the directory, other than the device files
+	 */
+	protected Set<String> tmpFiles() {
+		Set<String> ret = new TreeSet<String>();
+		for (File file : dir.listFiles())
+			if (!file.getName().endsWith(".txt"))
+				ret.add(file.getName());
+		return ret;
+	}
+
+	protected static void save(IDKeyPersistentBasicMap<?> map, File file) throws Exception {
+		PersistenceDevice device = new eu.excitementproject.eop.distsim.storage.File(file, false);
+		device.open();
+		map.saveState(device);
+		device.close();
+	}
+
+	protected static void load(IDKeyPersistentBasicMap<?> map, File file) throws Exception {
+		PersistenceDevice device = new eu.excitementproject.eop.distsim.storage.File(file, true);
+		device.open();
+		map.loadState(device);
+		device.close();
+	}
+
+	/**
+	 * The expected filtering of the feature scores of an element, as defined by FilterFeatureScoreIterator: the features up to the first filtered one
+	 */
+	protected static List<String> filter(LinkedHashMap<Integer, Double> featureScores, FilterType filterType, double filterVal) {
+		if (featureScores == null)
+			return null;
+		List<String> ret = new ArrayList<String>();
+		int order = 0;
+		for (Map.Entry<Integer, Double> featureScore : featureScores.entrySet()) {
+			order++;
+			if ((filterType == FilterType.MIN_VAL && featureScore.getValue() < filterVal) ||
+				(filterType == FilterType.TOP_N && order > filterVal) ||
+				(filterType == FilterType.TOP_PRECENT && order > featureScores.size() * filterVal))
+				break;
+			ret.add(featureScore.getKey() + ":" + featureScore.getValue());
+		}
+		return ret;
+	}
+
+	protected static List<String> toList(ImmutableIterator<FeatureScore> it) {
+		List<String> ret = new ArrayList<String>();
+		while (it.hasNext()) {
+			FeatureScore featureScore = it.next();
+			ret.add(featureScore.getFeatureId() + ":" + featureScore.getScore());
+		}
+		return ret;
+	}
+
+	protected static Map<Integer, List<String>> toMap(ImmutableIterator<ElementFeatureScores> it) {
+		Map<Integer, List<String>> ret = new HashMap<Integer, List<String>>();
+		while (it.hasNext()) {
+			ElementFeatureScores elementFeatureScores = it.next();
+			List<String> featureScores = toList(elementFeatureScores.getFeatureScores());
+			assertNull(ret.put(elementFeatureScores.getElementId(), featureScores));
+		}
+		return ret;
+	}
+
+	protected static Map<Integer, Double> toScores(ImmutableIterator<ElementScore> it) {
+		Map<Integer, Double> ret = new TreeMap<Integer, Double>();
+		while (it.hasNext()) {
+			ElementScore elementScore = it.next();
+			ret.put(elementScore.getElementId(), elementScore.getScore());
+		}
+		return ret;
+	}
+
+	protected static Set<Integer> toSet(BasicSet<Integer> set) {
+		Set<Integer> ret = new TreeSet<Integer>();
+		ImmutableIterator<Integer> it = set.iterator();
+		while (it.hasNext())
+			ret.add(it.next());
+		return ret;
+	}
+
+	protected static final int ELEMENTS_NUM = 60;
+	protected static final int FEATURES_NUM = 45;
+	protected static final List<Object[]> FILTERS = Arrays.asList(
+			new Object[] {FilterType.ALL, 0.0},
+			new Object[] {FilterType.MIN_VAL, 63.0},
+			new Object[] {FilterType.MIN_VAL, 100.0},
+			new Object[] {FilterType.TOP_N, 3.0},
+			new Object[] {FilterType.TOP_N, 0.0},
+			new Object[] {FilterType.TOP_PRECENT, 0.5});
+
+	protected File dir;
+	protected File mappedFile;
+	protected File elementFeatureScoresFile;
+	protected File elementScoresFile;
+	protected File featureElementsFile;
+	protected TroveBasedIDKeyPersistentBasicMap<LinkedHashMap<Integer, Double>> elementFeatureScores;
+	protected TroveBasedIDKeyPersistentBasicMap<Double> elementScores;
+	protected TroveBasedIDKeyPersistentBasicMap<BasicSet<Integer>> featureElements;
+	protected DefaultElementFeatureScoreStorage defaultStorage;
+}
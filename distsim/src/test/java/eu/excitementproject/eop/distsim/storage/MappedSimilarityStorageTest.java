@@ -0,0 +1,190 @@
+package eu.excitementproject.eop.distsim.storage;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import eu.excitementproject.eop.distsim.domains.FilterType;
+import eu.excitementproject.eop.distsim.domains.RuleDirection;
+import eu.excitementproject.eop.distsim.items.StringBasedElement;
+import eu.excitementproject.eop.distsim.scoring.ElementsSimilarityMeasure;
+
+public class MappedSimilarityStorageTest {
+
+	@Before
+	public void setUp() throws Exception {
+		dir = Files.createTempDir();
+		l2rFile = new File(dir, "similarity-l2r.bin");
+		MappedSimilarityFileWriter writer = new MappedSimilarityFileWriter(l2rFile, StringBasedElement.class.getName());
+		LinkedHashMap<String, Double> similarities = new LinkedHashMap<String, Double>();
+		similarities.put("dog", 0.9);
+		similarities.put("tiger", 0.5);
+		similarities.put("mouse", 0.1);
+		writer.write("cat", similarities);
+		similarities = new LinkedHashMap<String, Double>();
+		similarities.put("hound", 0.8);
+		writer.write("dog", similarities);
+		writer.close();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		dir.delete();
+	}
+
+	@Test
+	public void testFile() throws Exception {
+		MappedSimilarityFile file = new MappedSimilarityFile(l2rFile);
+		assertEquals(StringBasedElement.class.getName(), file.getElementClassName());
+		assertEquals(5, file.size());
+		assertEquals(-1, file.getElementId("lion"));
+
+		int catId = file.getElementId("cat");
+		assertEquals("cat", file.getElementKey(catId));
+		assertEquals(3, file.getSimilaritiesNum(catId));
+		assertEquals("tiger", file.getElementKey(file.getSimilarElementId(catId, 1)));
+		assertEquals(0.5, file.getSimilarityScore(catId, 1), 0);
+		assertEquals(2, file.getSimilarityIndex(catId, file.getElementId("mouse")));
+		assertEquals(-1, file.getSimilarityIndex(catId, file.getElementId("hound")));
+		assertEquals(0, file.getSimilaritiesNum(file.getElementId("mouse")));
+		file.close();
+	}
+
+	@Test
+	public void testStorage() throws Exception {
+		SimilarityStorage storage = new MappedSimilarityStorage(l2rFile.getPath(), null, "test", "test");
+
+		List<ElementsSimilarityMeasure> rules = storage.getSimilarityMeasure(new StringBasedElement("cat"), RuleDirection.LEFT_TO_RIGHT);
+		assertEquals(3, rules.size());
+		assertEquals("cat", rules.get(0).getLeftElement().toKey());
+		assertEquals("dog", rules.get(0).getRightElement().toKey());
+		assertEquals(0.9, rules.get(0).getSimilarityMeasure(), 0);
+
+		rules = storage.getSimilarityMeasure(new StringBasedElement("cat"), RuleDirection.LEFT_TO_RIGHT, FilterType.TOP_N, 2);
+		assertEquals(2, rules.size());
+		assertEquals("tiger", rules.get(1).getRightElement().toKey());
+
+		rules = storage.getSimilarityMeasure(new StringBasedElement("cat"), new StringBasedElement("mouse"));
+		assertEquals(1, rules.size());
+		assertEquals(0.1, rules.get(0).getSimilarityMeasure(), 0);
+
+		assertTrue(storage.getSimilarityMeasure(new StringBasedElement("lion"), RuleDirection.LEFT_TO_RIGHT).isEmpty());
+		storage.close();
+	}
+
+	@Test
+	public void testSimilarityMeasures() throws Exception {
+		// the mapped storage is not a bulk storage: the utils fall back to an access per element
+		SimilarityStorage storage = new MappedSimilarityStorage(l2rFile.getPath(), null, "test", "test");
+		assertFalse(storage instanceof BulkSimilarityStorage);
+
+		List<StringBasedElement> elements = Arrays.asList(new StringBasedElement("dog"), new StringBasedElement("lion"), new StringBasedElement("cat"));
+		List<List<ElementsSimilarityMeasure>> elementsRules = SimilarityStorageUtils.getSimilarityMeasures(storage, elements, RuleDirection.LEFT_TO_RIGHT, FilterType.TOP_N, 2);
+		assertEquals(3, elementsRules.size());
+		for (int i = 0; i < elements.size(); i++) {
+			List<ElementsSimilarityMeasure> rules = storage.getSimilarityMeasure(elements.get(i), RuleDirection.LEFT_TO_RIGHT, FilterType.TOP_N, 2);
+			assertEquals(rules.size(), elementsRules.get(i).size());
+			for (int j = 0; j < rules.size(); j++) {
+				assertEquals(rules.get(j).getRightElement().toKey(), elementsRules.get(i).get(j).getRightElement().toKey());
+				assertEquals(rules.get(j).getSimilarityMeasure(), elementsRules.get(i).get(j).getSimilarityMeasure(), 0);
+			}
+		}
+		assertEquals("hound", elementsRules.get(0).get(0).getRightElement().toKey());
+		assertTrue(elementsRules.get(1).isEmpty());
+		assertEquals(2, elementsRules.get(2).size());
+		storage.close();
+	}
+
+	@Test
+	public void testClosedFile() throws Exception {
+		MappedSimilarityFile file = new MappedSimilarityFile(l2rFile);
+		int catId = file.getElementId("cat");
+		assertTrue(file.isOpen());
+		file.close();
+		assertFalse(file.isOpen());
+		// closing a closed file has no effect
+		file.close();
+		try {
+			file.getElementId("cat");
+			fail("The file is closed");
+		} catch (IllegalStateException e) {
+		}
+		try {
+			file.getSimilarityScore(catId, 0);
+			fail("The file is closed");
+		} catch (IllegalStateException e) {
+		}
+		try {
+			file.getSimilarityIndex(catId, catId);
+			fail("The file is closed");
+		} catch (IllegalStateException e) {
+		}
+
+		SimilarityStorage storage = new MappedSimilarityStorage(l2rFile.getPath(), null, "test", "test");
+		storage.close();
+		storage.close();
+		try {
+			storage.getSimilarityMeasure(new StringBasedElement("cat"), RuleDirection.LEFT_TO_RIGHT);
+			fail("The storage is closed");
+		} catch (SimilarityNotFoundException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testFailedWrite() throws Exception {
+		File file = new File(dir, "similarity-failed.bin");
+
+		// an aborted writer leaves no files
+		MappedSimilarityFileWriter writer = new MappedSimilarityFileWriter(file, null);
+		LinkedHashMap<String, Double> similarities = new LinkedHashMap<String, Double>();
+		similarities.put("dog", 0.9);
+		writer.write("cat", similarities);
+		try {
+			writer.write("cat", similarities);
+			fail("The similarities of cat were already written");
+		} catch (IllegalArgumentException e) {
+		}
+		writer.abort();
+		assertEquals(Collections.singletonList(l2rFile.getName()), Arrays.asList(dir.list()));
+
+		// a failed composition deletes the partial target file as well
+		writer = new MappedSimilarityFileWriter(file, null);
+		writer.write("cat", similarities);
+		writer.listsFile.delete();
+		try {
+			writer.close();
+			fail("The temporary file is missing");
+		} catch (java.io.IOException e) {
+		}
+		assertEquals(Collections.singletonList(l2rFile.getName()), Arrays.asList(dir.list()));
+
+		// a successful composition leaves the target file only
+		writer = new MappedSimilarityFileWriter(file, null);
+		writer.write("cat", similarities);
+		writer.close();
+		assertEquals(2, dir.list().length);
+		assertFalse(writer.listsFile.exists());
+		MappedSimilarityFile mappedFile = new MappedSimilarityFile(file);
+		assertNull(mappedFile.getElementClassName());
+		assertEquals("dog", mappedFile.getElementKey(mappedFile.getSimilarElementId(mappedFile.getElementId("cat"), 0)));
+		mappedFile.close();
+	}
+
+	protected File dir;
+	protected File l2rFile;
+}
@@ -0,0 +1,245 @@
+package eu.excitementproject.eop.distsim.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableIterator;
+import eu.excitementproject.eop.common.representation.partofspeech.CanonicalPosTag;
+import eu.excitementproject.eop.distsim.items.DeafaultElement;
+import eu.excitementproject.eop.distsim.items.InvalidCountException;
+import eu.excitementproject.eop.distsim.items.InvalidIDException;
+import eu.excitementproject.eop.distsim.items.LemmaPos;
+import eu.excitementproject.eop.distsim.items.LemmaPosBasedElement;
+import eu.excitementproject.eop.distsim.items.PredicateElement;
+import eu.excitementproject.eop.distsim.items.StringBasedElement;
+import eu.excitementproject.eop.distsim.storage.TroveBasedBasicIntSet;
+import eu.excitementproject.eop.distsim.storage.TroveBasedIDKeyBasicMap;
+import eu.excitementproject.eop.distsim.storage.TroveBasedIDKeyPersistentBasicMap;
+
+public class BinaryCodecsTest {
+
+	@Test
+	public void testElements() throws Exception {
+		for (int id : IDS) {
+			for (double count : COUNTS) {
+				for (String lemma : LEMMAS) {
+					StringBasedElement stringElement = new StringBasedElement(lemma, id, 0);
+					stringElement.setCount(count);
+					assertElement(stringElement, roundTrip(stringElement));
+
+					PredicateElement predicateElement = new PredicateElement(lemma, id, 0);
+					predicateElement.setCount(count);
+					assertElement(predicateElement, roundTrip(predicateElement));
+
+					LemmaPosBasedElement lemmaPosElement = new LemmaPosBasedElement(new LemmaPos(lemma, CanonicalPosTag.NN), id, 0);
+					lemmaPosElement.setCount(count);
+					assertElement(lemmaPosElement, roundTrip(lemmaPosElement));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPosTags() throws Exception {
+		for (CanonicalPosTag pos : CanonicalPosTag.values()) {
+			LemmaPosBasedElement element = new LemmaPosBasedElement(new LemmaPos("run", pos), 3, 2);
+			assertElement(element, roundTrip(element));
+		}
+		LemmaPosBasedElement element = new LemmaPosBasedElement(new LemmaPos("run", null), 3, 2);
+		assertElement(element, roundTrip(element));
+
+		// the stored codes are fixed, and agree with the ones written before the code table
+		byte[] bytes = BinaryCodecs.encode(new LemmaPosBasedElement(new LemmaPos("run", CanonicalPosTag.V), 3, 2));
+		assertEquals(13, bytes[bytes.length - 1]);
+		assertEquals(CanonicalPosTag.values().length, BinaryCodecs.LemmaPosBasedElementCodec.POS_TAGS.length);
+		for (int i = 0; i < BinaryCodecs.LemmaPosBasedElementCodec.POS_TAGS.length; i++)
+			assertEquals(Integer.valueOf(i + 1), BinaryCodecs.LemmaPosBasedElementCodec.pos2code.get(BinaryCodecs.LemmaPosBasedElementCodec.POS_TAGS[i]));
+
+		// an unknown code is rejected
+		bytes[bytes.length - 1] = (byte)(BinaryCodecs.LemmaPosBasedElementCodec.POS_TAGS.length + 1);
+		try {
+			BinaryCodecs.decode(bytes);
+			fail("The POS code is unknown");
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testNegativeElementCounts() throws Exception {
+		// an element with an invalid count has no binary encoding, and is serialized by the Java serialization
+		StringBasedElement element = new StringBasedElement("dog", 5, 0);
+		element.setCount(-2.5);
+		assertNull(BinaryCodecs.encode(element));
+		String serialization = Serialization.serialize(element);
+		assertFalse(serialization.startsWith(Serialization.BINARY_PREFIX));
+		StringBasedElement deserialized = Serialization.deserialize(serialization);
+		assertEquals(element, deserialized);
+		assertEquals(5, deserialized.getID());
+		try {
+			deserialized.getCount();
+			fail("The count is negative");
+		} catch (InvalidCountException e) {
+		}
+	}
+
+	@Test
+	public void testMaps() throws Exception {
+		TroveBasedIDKeyBasicMap<Double> map = new TroveBasedIDKeyBasicMap<Double>();
+		TroveBasedIDKeyPersistentBasicMap<Double> persistentMap = new TroveBasedIDKeyPersistentBasicMap<Double>();
+		for (int i = 0; i < IDS.length; i++) {
+			for (int j = 0; j < COUNTS.length; j++) {
+				int key = IDS[i] - j;
+				double value = i % 2 == 0 ? COUNTS[j] : -COUNTS[j];
+				map.put(key, value);
+				persistentMap.put(key, value);
+			}
+		}
+		map.put(Integer.MIN_VALUE, Double.NaN);
+		persistentMap.put(Integer.MIN_VALUE, Double.NEGATIVE_INFINITY);
+
+		@SuppressWarnings("unchecked")
+		TroveBasedIDKeyBasicMap<Double> decodedMap = (TroveBasedIDKeyBasicMap<Double>)roundTrip(map);
+		assertEquals(toMap(map.iterator()), toMap(decodedMap.iterator()));
+		@SuppressWarnings("unchecked")
+		TroveBasedIDKeyPersistentBasicMap<Double> decodedPersistentMap = (TroveBasedIDKeyPersistentBasicMap<Double>)roundTrip(persistentMap);
+		assertEquals(toMap(persistentMap.iterator()), toMap(decodedPersistentMap.iterator()));
+
+		// empty maps
+		assertEquals(0, ((TroveBasedIDKeyBasicMap<?>)roundTrip(new TroveBasedIDKeyBasicMap<Double>())).size());
+		assertEquals(0, ((TroveBasedIDKeyPersistentBasicMap<?>)roundTrip(new TroveBasedIDKeyPersistentBasicMap<Double>())).size());
+
+		// a map of non-double values has no binary encoding
+		TroveBasedIDKeyBasicMap<String> stringMap = new TroveBasedIDKeyBasicMap<String>();
+		stringMap.put(1, "one");
+		assertNull(BinaryCodecs.encode(stringMap));
+	}
+
+	@Test
+	public void testSets() throws Exception {
+		TroveBasedBasicIntSet set = new TroveBasedBasicIntSet();
+		for (int id : IDS)
+			set.add(id);
+		set.add(Integer.MIN_VALUE);
+		TroveBasedBasicIntSet decoded = (TroveBasedBasicIntSet)roundTrip(set);
+		assertEquals(toSet(set), toSet(decoded));
+		assertEquals(0, ((TroveBasedBasicIntSet)roundTrip(new TroveBasedBasicIntSet())).size());
+	}
+
+	@Test
+	public void testCounts() throws Exception {
+		double[] counts = {0, 1, 127, 128, Math.pow(2, 52) - 1, Math.pow(2, 52), 1e300, 0.1, -0.0, -1, -Math.pow(2, 40), Double.MAX_VALUE, Double.MIN_VALUE, Double.POSITIVE_INFINITY};
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bos);
+		for (double count : counts)
+			BinaryCodecs.writeCount(out, count);
+		for (int i : IDS)
+			BinaryCodecs.writeVarInt(out, i);
+		BinaryCodecs.writeVarLong(out, Long.MIN_VALUE);
+		BinaryCodecs.writeVarLong(out, Long.MAX_VALUE);
+		out.close();
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bos.toByteArray()));
+		for (double count : counts)
+			assertEquals(Double.valueOf(count), Double.valueOf(BinaryCodecs.readCount(in)));
+		for (int i : IDS)
+			assertEquals(i, BinaryCodecs.readVarInt(in));
+		assertEquals(Long.MIN_VALUE, BinaryCodecs.readVarLong(in));
+		assertEquals(Long.MAX_VALUE, BinaryCodecs.readVarLong(in));
+		assertEquals(-1, in.read());
+	}
+
+	@Test
+	public void testMixedSerializations() throws Exception {
+		// strings of the Java serialization, written before the binary codecs, are read along with the binary ones
+		List<Serializable> objects = new ArrayList<Serializable>();
+		objects.add(new LemmaPosBasedElement(new LemmaPos("çà", CanonicalPosTag.ADJ), Integer.MAX_VALUE, 7));
+		objects.add(new StringBasedElement("כלב", 0, 1));
+		objects.add(new PredicateElement("X eat Y", 12, 300));
+		objects.add(new LemmaPos("dog", CanonicalPosTag.N));
+		TroveBasedBasicIntSet set = new TroveBasedBasicIntSet();
+		set.add(-1);
+		set.add(4);
+		objects.add(set);
+
+		List<String> serializations = new ArrayList<String>();
+		for (Serializable obj : objects) {
+			serializations.add(Serialization.javaSerialize(obj));
+			serializations.add(Serialization.serialize(obj));
+		}
+		assertFalse(serializations.get(0).startsWith(Serialization.BINARY_PREFIX));
+		assertTrue(serializations.get(1).startsWith(Serialization.BINARY_PREFIX));
+		// an object with no codec is serialized by the Java serialization
+		assertEquals(serializations.get(6), serializations.get(7));
+
+		for (int i = 0; i < serializations.size(); i++) {
+			Serializable obj = objects.get(i / 2);
+			Serializable deserialized = Serialization.deserialize(serializations.get(i));
+			assertEquals(obj.getClass(), deserialized.getClass());
+			if (obj instanceof DeafaultElement)
+				assertElement((DeafaultElement<?>)obj, (DeafaultElement<?>)deserialized);
+			else if (obj instanceof TroveBasedBasicIntSet)
+				assertEquals(toSet((TroveBasedBasicIntSet)obj), toSet((TroveBasedBasicIntSet)deserialized));
+			else
+				assertEquals(obj, deserialized);
+		}
+	}
+
+	protected static Object roundTrip(Object obj) throws IOException {
+		byte[] bytes = BinaryCodecs.encode(obj);
+		assertNotNull("No binary encoding for " + obj.getClass().getName(), bytes);
+		Object decoded = BinaryCodecs.decode(bytes);
+		assertEquals(obj.getClass(), decoded.getClass());
+		return decoded;
+	}
+
+	protected static void assertElement(DeafaultElement<?> expected, Object actual) throws Exception {
+		assertEquals(expected.getClass(), actual.getClass());
+		DeafaultElement<?> element = (DeafaultElement<?>)actual;
+		assertEquals(expected.getData(), element.getData());
+		assertEquals(Double.valueOf(expected.getCount()), Double.valueOf(element.getCount()));
+		Integer expectedId = id(expected);
+		assertEquals(expectedId, id(element));
+	}
+
+	protected static Integer id(DeafaultElement<?> element) {
+		try {
+			return element.getID();
+		} catch (InvalidIDException e) {
+			return null;
+		}
+	}
+
+	protected static <V> Map<Integer, V> toMap(ImmutableIterator<Pair<Integer, V>> it) {
+		Map<Integer, V> map = new TreeMap<Integer, V>();
+		while (it.hasNext()) {
+			Pair<Integer, V> pair = it.next();
+			map.put(pair.getFirst(), pair.getSecond());
+		}
+		return map;
+	}
+
+	protected static Set<Integer> toSet(TroveBasedBasicIntSet set) {
+		Set<Integer> ret = new TreeSet<Integer>();
+		ImmutableIterator<Integer> it = set.iterator();
+		while (it.hasNext())
+			ret.add(it.next());
+		return ret;
+	}
+
+	protected static final int[] IDS = {-1, 0, 1, 127, 128, 300000, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+	protected static final double[] COUNTS = {0, 1, 2.5, 0.001, 1e6, Math.pow(2, 52), 1e20};
+	protected static final String[] LEMMAS = {"dog", "", "naïve", "כלב", "犬", "🐶", "a#b"};
+}
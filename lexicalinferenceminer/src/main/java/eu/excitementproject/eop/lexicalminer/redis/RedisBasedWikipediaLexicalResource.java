@@ -13,18 +13,23 @@ import java.io.IOException;
 import java.io.FileNotFoundException;
 import java.lang.reflect.InvocationTargetException;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 //import org.apache.log4j.Logger;
 //import org.apache.log4j.PropertyConfigurator;
 
-import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPosQuery;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceCloseException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
@@ -48,7 +53,7 @@ import eu.excitementproject.eop.redis.RedisRunException;
  * @author Meni Adler
  *
  */
-public class RedisBasedWikipediaLexicalResource implements LexicalResource<WikiRuleInfo> {
+public class RedisBasedWikipediaLexicalResource implements BulkLexicalResource<WikiRuleInfo> {
 
 	private static final int DEFAULT_RULES_LIMIT = 100;
 	private static final double MINIMAL_CONFIDENCE = 0.00000000001;
@@ -249,18 +254,61 @@ public class RedisBasedWikipediaLexicalResource implements LexicalResource<WikiR
 
 			//get all rules
 			try 
-			{	List<RedisRuleData> rulesData = new LinkedList<RedisRuleData>();
-			 	for (String value : (l2r ? leftRules.get(lemma) : rightRules.get(lemma))) {
-			 		RedisRuleData ruleData = new RedisRuleData(lemma,value,l2r);
-			 		if (extractionTypes == null || extractionTypes.contains(ruleData.getRuleType()))
-			 			rulesData.add(ruleData);
-			 	}
-			 	return makeLexicalRules(rulesData);	
+			{	
+			 	return makeLexicalRules(lemma, (l2r ? leftRules.get(lemma) : rightRules.get(lemma)), l2r);	
 			} catch (Exception e) {
 				throw new LexicalResourceException("Exception while trying to get rules",e);
 			}			
 	}
 
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource#getRulesForLeft(java.util.Collection)
+	 */
+	public Map<LemmaPosQuery, List<LexicalRule<? extends WikiRuleInfo>>> getRulesForLeft(Collection<LemmaPosQuery> queries) throws LexicalResourceException {
+		return getRules(queries,true);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource#getRulesForRight(java.util.Collection)
+	 */
+	public Map<LemmaPosQuery, List<LexicalRule<? extends WikiRuleInfo>>> getRulesForRight(Collection<LemmaPosQuery> queries) throws LexicalResourceException {
+		return getRules(queries,false);
+	}
+
+	/**
+	 * The bulk version of {@link #getRules(String, PartOfSpeech, boolean)}, which gets the rules of all the queries by one pipelined Redis round trip
+	 */
+	public Map<LemmaPosQuery, List<LexicalRule<? extends WikiRuleInfo>>> getRules(Collection<LemmaPosQuery> queries, boolean l2r) throws LexicalResourceException {
+		Map<LemmaPosQuery, List<LexicalRule<? extends WikiRuleInfo>>> ret = new LinkedHashMap<LemmaPosQuery, List<LexicalRule<? extends WikiRuleInfo>>>();
+		List<LemmaPosQuery> retrievedQueries = new ArrayList<LemmaPosQuery>();
+		List<String> lemmas = new ArrayList<String>();
+		for (LemmaPosQuery query : queries) {
+			if (ret.containsKey(query))
+				continue;
+			ret.put(query, new LinkedList<LexicalRule<? extends WikiRuleInfo>>());
+			
+			// the terms were saved with lower case
+			String lemma = query.getLemma().toLowerCase();
+			
+			//If it's not a noun or it's a stop word, we ignore it...
+			if (((query.getPos() !=null) && (!(query.getPos().getCanonicalPosTag().equals(CanonicalPosTag.N))))
+					|| (stopWords != null && stopWords.contains(lemma)))
+				continue;
+			retrievedQueries.add(query);
+			lemmas.add(lemma);
+		}
+
+		//get all rules
+		try 
+		{	List<List<String>> values = (l2r ? leftRules.get(lemmas) : rightRules.get(lemmas));
+			for (int i = 0; i < retrievedQueries.size(); i++)
+				ret.put(retrievedQueries.get(i), makeLexicalRules(lemmas.get(i), values.get(i), l2r));
+			return ret;
+		} catch (Exception e) {
+			throw new LexicalResourceException("Exception while trying to get rules",e);
+		}			
+	}
+
 	/* (non-Javadoc)
 	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource#getRules(java.lang.String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech, java.lang.String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech)
 	 */
@@ -308,6 +356,16 @@ public class RedisBasedWikipediaLexicalResource implements LexicalResource<WikiR
 	 * @return
 	 * @throws LexicalResourceException
 	 */
+	private List<LexicalRule<? extends WikiRuleInfo>> makeLexicalRules(String lemma, List<String> values, boolean l2r) throws Exception {
+		List<RedisRuleData> rulesData = new LinkedList<RedisRuleData>();
+	 	for (String value : values) {
+	 		RedisRuleData ruleData = new RedisRuleData(lemma,value,l2r);
+	 		if (extractionTypes == null || extractionTypes.contains(ruleData.getRuleType()))
+	 			rulesData.add(ruleData);
+	 	}
+	 	return makeLexicalRules(rulesData);
+	}
+
 	private List<LexicalRule<? extends WikiRuleInfo>> makeLexicalRules(List<RedisRuleData> rulesData) throws LexicalResourceException {
 
 		// sim,ulates the 'order by' in the original SQL query
@@ -5,20 +5,26 @@ package eu.excitementproject.eop.redis;
 
 import java.io.FileNotFoundException;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import eu.excitementproject.eop.common.utilities.configuration.ConfigurationException;
 import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
 
 /**
  * An implementation of the BasicMap interface for integer keys, based on Redis
  *
- * The thread is safe for parallel put/get operation, but not safe for the parallel put/iterator operation
+ * The thread is safe for parallel put/get operation, but not safe for the parallel put/iterator operation.
+ * Each operation borrows its own connection from a pool, so parallel get operations are not serialized on one connection.
+ * Many lists can be retrieved in one round-trip to the server by the batch operations {@link #get(List)} and {@link #getTopN(List, long)}
  * 
  * @author Meni Adler
  * @since 12/08/2012
@@ -36,6 +42,9 @@ public class RedisBasedStringListBasicMap {
 
 	public static final String ELEMENT_CLASS_NAME_KEY = "element-class-name";
 	
+	// the maximal number of parallel connections to the server
+	protected static final int MAX_CONNECTIONS = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+	
 	public RedisBasedStringListBasicMap(String dbFile, String redisDir, boolean bVM) throws FileNotFoundException, RedisRunException {
 		init(dbFile, redisDir,bVM);
 
@@ -81,22 +90,28 @@ public class RedisBasedStringListBasicMap {
 	}
 	
 	protected void init(String host, int port) {
-		JedisPool pool = new JedisPool(new JedisPoolConfig(), host,port);
+		JedisPoolConfig config = new JedisPoolConfig();
+		config.setMaxActive(MAX_CONNECTIONS);
+		config.setMaxIdle(MAX_CONNECTIONS);
 		//debug
 		logger.info("Connecting to redis server at host " + host + ", port " + port);
 		
-		jedis = pool.getResource();
-		jedis.connect();
-		jedis.getClient().setTimeoutInfinite();
+		// timeout 0: no timeout for the connections
+		pool = new JedisPool(config, host, port, 0);
 	}
 
-	public synchronized  List<String> get(String key)  {
-		return jedis.lrange(key, 0, -1);
+	public List<String> get(final String key)  {
+		return execute(new RedisOperation<List<String>>() {
+			@Override
+			public List<String> run(Jedis jedis) {
+				return jedis.lrange(key, 0, -1);
+			}
+		});
 	}
 
-	public synchronized  String get(String key1, String key2)  {
+	public String get(String key1, String key2)  {
 		key2 = key2 + ELEMENT_SCORE_DELIMITER;		
-		List<String> lst = jedis.lrange(key1, 0, -1);
+		List<String> lst = get(key1);
 		for (String s : lst)
 			if (s.startsWith(key2))
 				return s.substring(key2.length());
@@ -104,20 +119,78 @@ public class RedisBasedStringListBasicMap {
 		
 	}
 
-	public synchronized List<String> getTopN(String key, long n) {
-		//long t1 = System.currentTimeMillis();
-		List<String> ret= jedis.lrange(key, 0, n-1);
-		//long t2 = System.currentTimeMillis();
-	//	System.out.println("getTopN time: " + (t2-t1) + " ms");
-		return ret;
+	public List<String> getTopN(final String key, final long n) {
+		return execute(new RedisOperation<List<String>>() {
+			@Override
+			public List<String> run(Jedis jedis) {
+				return jedis.lrange(key, 0, n-1);
+			}
+		});
 	}
 	
+	/**
+	 * Gets the lists of the given keys, in one pipelined round-trip to the server
+	 * 
+	 * @param keys a list of keys
+	 * @return the lists of the given keys, in the order of the keys. The list of a missing key is empty
+	 */
+	public List<List<String>> get(List<String> keys) {
+		return lrange(keys, -1);
+	}
+
+	/**
+	 * Gets the top n items of the lists of the given keys, in one pipelined round-trip to the server
+	 * 
+	 * @param keys a list of keys
+	 * @param n the maximal number of items to retrieve for each key
+	 * @return the top n items of the lists of the given keys, in the order of the keys. The list of a missing key is empty
+	 */
+	public List<List<String>> getTopN(List<String> keys, long n) {
+		return lrange(keys, n-1);
+	}
+	
+	protected List<List<String>> lrange(final List<String> keys, final long end) {
+		if (keys.size() == 1) {
+			List<List<String>> ret = new ArrayList<List<String>>(1);
+			ret.add(getTopN(keys.get(0), end + 1));
+			return ret;
+		}
+		return execute(new RedisOperation<List<List<String>>>() {
+			@Override
+			public List<List<String>> run(Jedis jedis) {
+				Pipeline pipeline = jedis.pipelined();
+				List<Response<List<String>>> responses = new ArrayList<Response<List<String>>>(keys.size());
+				for (String key : keys)
+					responses.add(pipeline.lrange(key, 0, end));
+				pipeline.sync();
+				List<List<String>> ret = new ArrayList<List<String>>(keys.size());
+				for (Response<List<String>> response : responses)
+					ret.add(response.get());
+				return ret;
+			}
+		});
+	}
+	
+	/**
+	 * Gets all the keys of the database, including the key of the element type name (see {@link #ELEMENT_CLASS_NAME_KEY})
+	 * 
+	 * @return the set of keys of the database
+	 */
+	public Set<String> keys() {
+		return execute(new RedisOperation<Set<String>>() {
+			@Override
+			public Set<String> run(Jedis jedis) {
+				return jedis.keys("*");
+			}
+		});
+	}
+
 	/**
 	 * Gets the name of the type of the elements in the database, based on the assumption that the type name is stored in the database under a well-defined key. 
 	 * 
 	 * @return the name of the element type. in case the name is not stored in the database, null value will be returned
 	 */
-	public synchronized String getElementClassName() {
+	public String getElementClassName() {
 		return  getKeyValue(ELEMENT_CLASS_NAME_KEY);
 	}
 
@@ -126,8 +199,13 @@ public class RedisBasedStringListBasicMap {
 	 * 
 	 * @param elementClass The type of the elements in the database
 	 */
-	public synchronized void setElementClassName(String elementClassName) {
-		jedis.set(ELEMENT_CLASS_NAME_KEY, elementClassName);
+	public void setElementClassName(final String elementClassName) {
+		execute(new RedisOperation<String>() {
+			@Override
+			public String run(Jedis jedis) {
+				return jedis.set(ELEMENT_CLASS_NAME_KEY, elementClassName);
+			}
+		});
 	}
 	
 	/**
@@ -135,14 +213,24 @@ public class RedisBasedStringListBasicMap {
 	 * @param key a key string
 	 * @return the value of the given key
 	 */
-	public synchronized String getKeyValue(String key) {
-		return  jedis.get(key);
+	public String getKeyValue(final String key) {
+		return execute(new RedisOperation<String>() {
+			@Override
+			public String run(Jedis jedis) {
+				return jedis.get(key);
+			}
+		});
 	}
 
 	/**
 	 * Close and release Redis processes
 	 */
 	public synchronized void close() {
+		try {
+			pool.destroy();
+		} catch (Exception e) {
+			logger.info(e.toString());
+		}
 		try {
 			if (dbFile != null)
 				BasicRedisRunner.getInstance().close(dbFile);
@@ -153,6 +241,31 @@ public class RedisBasedStringListBasicMap {
 	
 	
 	
+	/**
+	 * Runs the given operation with a connection borrowed from the pool. A connection which failed is not returned to the pool
+	 */
+	protected <T> T execute(RedisOperation<T> operation) {
+		Jedis jedis = pool.getResource();
+		boolean bBroken = true;
+		try {
+			T ret = operation.run(jedis);
+			bBroken = false;
+			return ret;
+		} finally {
+			if (bBroken)
+				pool.returnBrokenResource(jedis);
+			else
+				pool.returnResource(jedis);
+		}
+	}
+	
+	/**
+	 * An operation on a connection to the server
+	 */
+	protected interface RedisOperation<T> {
+		T run(Jedis jedis);
+	}
+	
 	protected String dbFile;
-	protected Jedis jedis;
+	protected JedisPool pool;
 }
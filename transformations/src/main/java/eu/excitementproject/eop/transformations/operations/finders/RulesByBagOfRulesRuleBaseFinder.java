@@ -1,5 +1,6 @@
 package eu.excitementproject.eop.transformations.operations.finders;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -9,14 +10,12 @@ import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
 import eu.excitementproject.eop.common.datastructures.FlippedBidirectionalMap;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
 import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
-import eu.excitementproject.eop.common.representation.parse.tree.TreeIterator;
 import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
 import eu.excitementproject.eop.common.representation.parse.tree.match.AllEmbeddedMatcher;
 import eu.excitementproject.eop.common.representation.parse.tree.match.MatcherException;
-import eu.excitementproject.eop.common.utilities.Cache;
-import eu.excitementproject.eop.common.utilities.CacheFactory;
 import eu.excitementproject.eop.transformations.operations.OperationException;
 import eu.excitementproject.eop.transformations.operations.finders.auxiliary.AllowedRootsByAffectedNodesUtility;
+import eu.excitementproject.eop.transformations.operations.finders.auxiliary.BagOfRulesRuleBaseIndex;
 import eu.excitementproject.eop.transformations.operations.finders.auxiliary.LemmaAndSimplerCanonicalPos;
 import eu.excitementproject.eop.transformations.operations.finders.auxiliary.ParseTreeCharacteristics;
 import eu.excitementproject.eop.transformations.operations.finders.auxiliary.ParseTreeCharacteristicsCollector;
@@ -28,16 +27,16 @@ import eu.excitementproject.eop.transformations.operations.specifications.RuleSp
 import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
 import eu.excitementproject.eop.transformations.representation.ExtendedMatchCriteria;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
-import static eu.excitementproject.eop.transformations.utilities.Constants.CACHE_SIZE_BAG_OF_RULES;
 
 /**
  * This {@link Finder} returns a set of {@link RuleSpecification}s, based on the
  * given text tree and a rule base. The rule-base is given as a set of rules,
  * implemented as {@link BagOfRulesRuleBase}.
  * <P>
- * Note that {@link BagOfRulesRuleBase} and this finder are not very efficient,
- * since finding a matching rules is done by trying to find a match for each rule,
- * with no prior rule filtering. 
+ * Rules are filtered before trying to find a match: only rules whose left-hand-side's
+ * root might be matched to a node of the text tree are tried (see {@link BagOfRulesRuleBaseIndex}),
+ * and, for each such rule, the match is searched only in those nodes. Then, rules that
+ * contain lemmas or pos-relation-pos triples that do not exist in the text tree are filtered as well.
  * 
  * @author Asher Stern
  * @since Feb 24, 2011
@@ -71,22 +70,30 @@ public class RulesByBagOfRulesRuleBaseFinder implements Finder<RuleSpecification
 			if (affectedNodes!=null) {allowedRoots = AllowedRootsByAffectedNodesUtility.findAllowedRootsByAffectedNodes(textTree, affectedNodes);}
 			specs = new LinkedHashSet<RuleSpecification>();
 			debug_numberOfFilteredRules=0;
-			for (RuleWithConfidenceAndDescription<Info, BasicNode> rule : ruleBase.getRules())
+			BagOfRulesRuleBaseIndex index = BagOfRulesRuleBaseIndex.getIndex(ruleBase);
+			Map<Integer, Set<ExtendedNode>> anchors = index.findAnchors(textTree.getTree());
+			numberOfRulesFilteredByIndex = index.size()-anchors.size();
+			for (Map.Entry<Integer, Set<ExtendedNode>> ruleAndAnchors : anchors.entrySet())
 			{
-				if (mightMatch(rule))
+				RuleWithConfidenceAndDescription<Info, BasicNode> rule = index.getRule(ruleAndAnchors.getKey());
+				if (mightMatch(index.getCharacteristics(ruleAndAnchors.getKey())))
 				{
 					if (!(rule.getRule().getLeftHandSide().hasChildren()))
 					{
-						findForSingleNodeRule(rule);
+						findForSingleNodeRule(rule, ruleAndAnchors.getValue());
 					}
 					else
 					{
-						AllEmbeddedMatcher<ExtendedInfo, Info, ExtendedNode, BasicNode> matcher = 
-								new AllEmbeddedMatcher<ExtendedInfo, Info, ExtendedNode, BasicNode>(matchCriteria);
+						Set<ExtendedNode> rootsOfRule = ruleAndAnchors.getValue();
 						if (allowedRoots!=null)
 						{
-							matcher.setAllowedRoots(allowedRoots);
+							rootsOfRule = new LinkedHashSet<ExtendedNode>(rootsOfRule);
+							rootsOfRule.retainAll(allowedRoots);
+							if (rootsOfRule.isEmpty()) {continue;}
 						}
+						AllEmbeddedMatcher<ExtendedInfo, Info, ExtendedNode, BasicNode> matcher = 
+								new AllEmbeddedMatcher<ExtendedInfo, Info, ExtendedNode, BasicNode>(matchCriteria);
+						matcher.setAllowedRoots(rootsOfRule);
 
 						matcher.setTrees(this.textTree.getTree(), rule.getRule().getLeftHandSide());
 						matcher.findMatches();
@@ -108,8 +115,7 @@ public class RulesByBagOfRulesRuleBaseFinder implements Finder<RuleSpecification
 			}
 			if (logger.isDebugEnabled())
 			{
-				
-				logger.debug("Number of filtered rules: "+debug_numberOfFilteredRules+" out of "+ruleBase.getRules().size()+" total rules.");
+				logger.debug("Number of rules filtered by the index: "+numberOfRulesFilteredByIndex+". Number of filtered rules: "+debug_numberOfFilteredRules+". Total: "+index.size()+" rules.");
 			}
 		}
 		catch(MatcherException e)
@@ -132,13 +138,24 @@ public class RulesByBagOfRulesRuleBaseFinder implements Finder<RuleSpecification
 		return this.specs;
 	}
 	
+	/**
+	 * Returns the number of rules that were not tried in the last call to {@link #find()},
+	 * since the root of their left-hand-side could not be matched to any node in the
+	 * text tree (see {@link BagOfRulesRuleBaseIndex}).
+	 * @return the number of rules filtered by the index.
+	 */
+	public int getNumberOfRulesFilteredByIndex()
+	{
+		return numberOfRulesFilteredByIndex;
+	}
+	
 	
 	
 	
-	private void findForSingleNodeRule(RuleWithConfidenceAndDescription<Info, BasicNode> rule)
+	private void findForSingleNodeRule(RuleWithConfidenceAndDescription<Info, BasicNode> rule, Set<ExtendedNode> candidateNodes)
 	{
 		BasicNode lhs = rule.getRule().getLeftHandSide();
-		for (ExtendedNode node : TreeIterator.iterableTree(textTree.getTree()))
+		for (ExtendedNode node : candidateNodes)
 		{
 			if (matchCriteria.nodesMatch(node, lhs))
 			{
@@ -149,24 +166,6 @@ public class RulesByBagOfRulesRuleBaseFinder implements Finder<RuleSpecification
 		}
 	}
 	
-	private ParseTreeCharacteristics<Info, BasicNode> getCharacteristicsOfRule(RuleWithConfidenceAndDescription<Info, BasicNode> rule)
-	{
-		ParseTreeCharacteristics<Info, BasicNode> ret = null;
-		BasicNode lhs = rule.getRule().getLeftHandSide();
-		if (ruleBaseCharacteristicsCache.containsKey(lhs))
-		{
-			ret = ruleBaseCharacteristicsCache.get(lhs);
-		}
-		else
-		{
-			ParseTreeCharacteristicsCollector<Info, BasicNode> collector = new ParseTreeCharacteristicsCollector<Info, BasicNode>(lhs);
-			collector.extract();
-			ret = new ParseTreeCharacteristics<Info, BasicNode>(collector.getPosRelPosSet(),collector.getLemmaAndPosSet());
-			ruleBaseCharacteristicsCache.put(lhs, ret);
-		}
-		return ret;
-	}
-	
 	private void extractGivenTreeCharacteristics()
 	{
 		ParseTreeCharacteristicsCollector<ExtendedInfo,ExtendedNode> collector = new ParseTreeCharacteristicsCollector<ExtendedInfo,ExtendedNode>(textTree.getTree());
@@ -183,10 +182,9 @@ public class RulesByBagOfRulesRuleBaseFinder implements Finder<RuleSpecification
 	}
 	
 	
-	private boolean mightMatch(RuleWithConfidenceAndDescription<Info, BasicNode> rule)
+	private boolean mightMatch(ParseTreeCharacteristics<Info, BasicNode> ruleCharacteristics)
 	{
 		boolean ret = false;
-		ParseTreeCharacteristics<Info, BasicNode> ruleCharacteristics = getCharacteristicsOfRule(rule);
 		if (posRelPosTree.containsAll(ruleCharacteristics.getPosRelPosSet()))
 		{
 			if (lemmaAndPosTree.containsAll(ruleCharacteristics.getLemmaAndPosSet()))
@@ -233,9 +231,8 @@ public class RulesByBagOfRulesRuleBaseFinder implements Finder<RuleSpecification
 	private Set<PosRelPos> posRelPosTree;
 	private Set<LemmaAndSimplerCanonicalPos> lemmaAndPosTree;
 	
-	private Cache<BasicNode, ParseTreeCharacteristics<Info, BasicNode>> ruleBaseCharacteristicsCache = new CacheFactory<BasicNode, ParseTreeCharacteristics<Info, BasicNode>>().getCache(CACHE_SIZE_BAG_OF_RULES);
-	
 	private int debug_numberOfFilteredRules = 0;
+	private int numberOfRulesFilteredByIndex = 0;
 	
 	// output
 	private Set<RuleSpecification> specs = null;
@@ -1,5 +1,8 @@
 package eu.excitementproject.eop.transformations.operations.finders;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
@@ -210,36 +213,42 @@ public class SubstitutionLexicalRuleByLemmaPosFinder<T extends LexicalRule> impl
 	private void findSpecs() throws TeEngineMlException, RuleBaseException
 	{
 		this.specs = new LinkedHashSet<RuleSubstituteNodeSpecification<T>>();
+		
+		// The rules of all the nodes are retrieved at once, which saves round-trips to rule bases backed by a DB or a server
+		List<ExtendedNode> nodes = new ArrayList<ExtendedNode>();
+		List<LemmaAndPos> lemmasAndPoses = new ArrayList<LemmaAndPos>();
 		for (ExtendedNode node : TreeIterator.iterableTree(treeAndParentMap.getTree()))
 		{
 			if (isRelevantNode(node))
 			{
 				if (InfoObservations.infoHasLemma(node.getInfo()))
 				{
-					LemmaAndPos lemmaAndPos = new LemmaAndPos(InfoGetFields.getLemma(node.getInfo()), InfoGetFields.getPartOfSpeechObject(node.getInfo()));
-					ImmutableSet<T> rules = getRulesForLemmaAndPos(lemmaAndPos);
-					for (T rule : rules)
-					{
-						if (isRelevantRule(rule))
-						{
-							NodeInfo newNodeInfo = new DefaultNodeInfo(rule.getRhsLemma(), rule.getRhsLemma(), node.getInfo().getNodeInfo().getSerial(), node.getInfo().getNodeInfo().getNamedEntityAnnotation(), new DefaultSyntacticInfo(rule.getRhsPos()));
-							RuleSubstituteNodeSpecification<T> spec = createSpec(node, newNodeInfo,ruleBaseName, rule); 
-							// new RuleSubstituteNodeSpecification<T>(node, newNodeInfo, node.getInfo().getAdditionalNodeInformation(), rule.getConfidence(), ruleBaseName, rule);
-							addAdditionalDescription(spec,rule);
-							specs.add(spec);
-						}
-					}
+					nodes.add(node);
+					lemmasAndPoses.add(new LemmaAndPos(InfoGetFields.getLemma(node.getInfo()), InfoGetFields.getPartOfSpeechObject(node.getInfo())));
+				}
+			}
+		}
+		Map<LemmaAndPos, ImmutableSet<T>> rulesOfLemmasAndPoses = ruleBase.getRules(lemmasAndPoses);
+		
+		for (int index=0;index<nodes.size();++index)
+		{
+			ExtendedNode node = nodes.get(index);
+			ImmutableSet<T> rules = rulesOfLemmasAndPoses.get(lemmasAndPoses.get(index));
+			for (T rule : rules)
+			{
+				if (isRelevantRule(rule))
+				{
+					NodeInfo newNodeInfo = new DefaultNodeInfo(rule.getRhsLemma(), rule.getRhsLemma(), node.getInfo().getNodeInfo().getSerial(), node.getInfo().getNodeInfo().getNamedEntityAnnotation(), new DefaultSyntacticInfo(rule.getRhsPos()));
+					RuleSubstituteNodeSpecification<T> spec = createSpec(node, newNodeInfo,ruleBaseName, rule); 
+					// new RuleSubstituteNodeSpecification<T>(node, newNodeInfo, node.getInfo().getAdditionalNodeInformation(), rule.getConfidence(), ruleBaseName, rule);
+					addAdditionalDescription(spec,rule);
+					specs.add(spec);
 				}
 			}
 		}
 
 	}
 	
-	private ImmutableSet<T> getRulesForLemmaAndPos(LemmaAndPos lemmaAndPos) throws RuleBaseException
-	{
-		return ruleBase.getRules(lemmaAndPos.getLemma(), lemmaAndPos.getPartOfSpeech());
-	}
-	
 	private TreeAndParentMap<ExtendedInfo, ExtendedNode> treeAndParentMap;
 	private ByLemmaPosLexicalRuleBase<T> ruleBase;
 	private String ruleBaseName;
@@ -0,0 +1,355 @@
+package eu.excitementproject.eop.transformations.operations.finders.auxiliary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import eu.excitementproject.eop.common.component.syntacticknowledge.RuleWithConfidenceAndDescription;
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
+import eu.excitementproject.eop.common.representation.parse.tree.AbstractNode;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeIterator;
+import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerPosTagConvertor;
+import eu.excitementproject.eop.common.representation.partofspeech.WildcardPartOfSpeech;
+import eu.excitementproject.eop.core.component.syntacticknowledge.BasicMatchCriteria;
+import eu.excitementproject.eop.transformations.operations.finders.RulesByBagOfRulesRuleBaseFinder;
+import eu.excitementproject.eop.transformations.operations.rules.BagOfRulesRuleBase;
+import eu.excitementproject.eop.transformations.operations.rules.RuleBaseException;
+
+
+/**
+ * An index over the left-hand-sides of the rules of a {@link BagOfRulesRuleBase},
+ * used by {@link RulesByBagOfRulesRuleBaseFinder}.
+ * <P>
+ * Each rule is indexed by the root of its left-hand-side: its lemma (unless it is a
+ * variable), its simpler-canonical-part-of-speech (unless it is a wildcard), and the
+ * relations of the root's children (wildcard relations are ignored).
+ * Given a text tree, {@link #findAnchors(AbstractNode)} returns, for each rule, the nodes
+ * of the text tree which might be matched to the root of the rule's left-hand-side,
+ * according to {@link BasicMatchCriteria}. Rules that have no such node cannot be
+ * matched to the text tree, and are not returned at all.
+ * <P>
+ * The index is built once per rule base (see {@link #getIndex(BagOfRulesRuleBase)}),
+ * and is not changed afterwards. Thus, it can be used concurrently by several threads.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class BagOfRulesRuleBaseIndex
+{
+	/**
+	 * Returns the index of the given rule base. The index is created on the first
+	 * call, and is re-created only if the set of rules of the rule base is replaced.
+	 *
+	 * @param ruleBase a rule base
+	 * @return the index of the given rule base.
+	 * @throws RuleBaseException
+	 */
+	public static BagOfRulesRuleBaseIndex getIndex(BagOfRulesRuleBase<Info, BasicNode> ruleBase) throws RuleBaseException
+	{
+		ImmutableSet<RuleWithConfidenceAndDescription<Info, BasicNode>> rules = ruleBase.getRules();
+		synchronized(indexes)
+		{
+			BagOfRulesRuleBaseIndex ret = indexes.get(ruleBase);
+			if ( (null==ret) || (ret.indexedRules!=rules) )
+			{
+				ret = new BagOfRulesRuleBaseIndex(rules);
+				indexes.put(ruleBase, ret);
+			}
+			return ret;
+		}
+	}
+
+
+	/**
+	 * Returns, for each rule that might be matched to the given tree, the nodes of
+	 * the given tree that might be matched to the root of the rule's left-hand-side.
+	 * The keys of the returned map are the rule numbers (see {@link #getRule(int)}), in
+	 * ascending order, and the nodes of each rule are given in the order of {@link TreeIterator}.
+	 *
+	 * @param tree a text tree
+	 * @return a map from rule numbers to the nodes in which the rules might be matched.
+	 */
+	public <TI extends Info, TS extends AbstractNode<TI, TS>> Map<Integer, Set<TS>> findAnchors(TS tree)
+	{
+		Map<Integer, Set<TS>> ret = new TreeMap<Integer, Set<TS>>();
+		for (TS node : TreeIterator.iterableTree(tree))
+		{
+			if ( (node.getInfo()!=null) && (InfoGetFields.isVariable(node.getInfo())) )
+			{
+				// Not expected in a text tree. The lemma of the rule is not compared in this case.
+				for (int ruleNumber=0;ruleNumber<rules.size();++ruleNumber)
+				{
+					addAnchor(ret, ruleNumber, node);
+				}
+			}
+			else
+			{
+				Set<String> childrenRelations = null;
+				for (RootAnchor anchor : anchorsOfTextNode(node.getInfo()))
+				{
+					List<Integer> indexedRules = index.get(anchor);
+					if (indexedRules!=null)
+					{
+						if (null==childrenRelations) {childrenRelations = childrenRelations(node);}
+						for (Integer ruleNumber : indexedRules)
+						{
+							if (childrenRelations.containsAll(requiredChildrenRelations.get(ruleNumber)))
+							{
+								addAnchor(ret, ruleNumber, node);
+							}
+						}
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the number of rules in the index.
+	 * @return the number of rules in the index.
+	 */
+	public int size()
+	{
+		return rules.size();
+	}
+
+	public RuleWithConfidenceAndDescription<Info, BasicNode> getRule(int ruleNumber)
+	{
+		return rules.get(ruleNumber);
+	}
+
+	/**
+	 * Returns the characteristics of the given rule's left-hand-side, as
+	 * extracted by {@link ParseTreeCharacteristicsCollector}.
+	 * @param ruleNumber
+	 * @return
+	 */
+	public ParseTreeCharacteristics<Info, BasicNode> getCharacteristics(int ruleNumber)
+	{
+		return characteristics.get(ruleNumber);
+	}
+
+
+
+
+	/////////////////////////// PRIVATE ///////////////////////////
+
+	/**
+	 * The properties of a node that must be equal to the properties of the
+	 * root of a rule's left-hand-side. <code>null</code> lemma means that the
+	 * lemma is not compared. <code>anyPos</code> means that the part-of-speech
+	 * is not compared.
+	 */
+	private static final class RootAnchor
+	{
+		public RootAnchor(String lemma, boolean anyPos, SimplerCanonicalPosTag pos)
+		{
+			this.lemma = lemma;
+			this.anyPos = anyPos;
+			this.pos = (anyPos?null:pos);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + (anyPos ? 1231 : 1237);
+			result = prime * result + ((lemma == null) ? 0 : lemma.hashCode());
+			result = prime * result + ((pos == null) ? 0 : pos.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			RootAnchor other = (RootAnchor) obj;
+			if (anyPos != other.anyPos)
+				return false;
+			if (lemma == null)
+			{
+				if (other.lemma != null)
+					return false;
+			} else if (!lemma.equals(other.lemma))
+				return false;
+			if (pos != other.pos)
+				return false;
+			return true;
+		}
+
+		private final String lemma;
+		private final boolean anyPos;
+		private final SimplerCanonicalPosTag pos;
+	}
+
+
+	private BagOfRulesRuleBaseIndex(ImmutableSet<RuleWithConfidenceAndDescription<Info, BasicNode>> indexedRules)
+	{
+		this.indexedRules = indexedRules;
+		this.rules = new ArrayList<RuleWithConfidenceAndDescription<Info, BasicNode>>(indexedRules.size());
+		this.characteristics = new ArrayList<ParseTreeCharacteristics<Info, BasicNode>>(indexedRules.size());
+		this.requiredChildrenRelations = new ArrayList<Set<String>>(indexedRules.size());
+		this.index = new LinkedHashMap<RootAnchor, List<Integer>>();
+
+		for (RuleWithConfidenceAndDescription<Info, BasicNode> rule : indexedRules)
+		{
+			int ruleNumber = rules.size();
+			BasicNode lhs = rule.getRule().getLeftHandSide();
+			rules.add(rule);
+
+			ParseTreeCharacteristicsCollector<Info, BasicNode> collector = new ParseTreeCharacteristicsCollector<Info, BasicNode>(lhs);
+			collector.extract();
+			characteristics.add(new ParseTreeCharacteristics<Info, BasicNode>(collector.getPosRelPosSet(),collector.getLemmaAndPosSet()));
+
+			Set<String> relations = new LinkedHashSet<String>();
+			if (lhs.getChildren()!=null)
+			{
+				for (BasicNode child : lhs.getChildren())
+				{
+					if (child.getInfo()!=null)
+					{
+						String relation = InfoGetFields.getRelation(child.getInfo());
+						if (!(BasicMatchCriteria.WILDCARD_RELATION.equals(relation)))
+						{
+							relations.add(relation);
+						}
+					}
+				}
+			}
+			requiredChildrenRelations.add(relations.isEmpty()?Collections.<String>emptySet():relations);
+
+			RootAnchor anchor = anchorOfRule(lhs.getInfo());
+			List<Integer> rulesOfAnchor = index.get(anchor);
+			if (null==rulesOfAnchor)
+			{
+				rulesOfAnchor = new ArrayList<Integer>();
+				index.put(anchor, rulesOfAnchor);
+			}
+			rulesOfAnchor.add(ruleNumber);
+		}
+	}
+
+	private static RootAnchor anchorOfRule(Info info)
+	{
+		if (null==info) return ANY_NODE;
+		String lemma = null;
+		if (!(InfoGetFields.isVariable(info)))
+		{
+			lemma = lemmaKey(InfoGetFields.getLemma(info));
+		}
+		PartOfSpeech pos = InfoGetFields.getPartOfSpeechObject(info);
+		if ( (null==pos) || (WildcardPartOfSpeech.isWildCardPOS(pos)) )
+		{
+			return new RootAnchor(lemma, true, null);
+		}
+		else
+		{
+			return new RootAnchor(lemma, false, SimplerPosTagConvertor.simplerPos(pos.getCanonicalPosTag()));
+		}
+	}
+
+	/**
+	 * Returns all the anchors under which rules that might match a node with
+	 * the given info are indexed.
+	 */
+	private static List<RootAnchor> anchorsOfTextNode(Info info)
+	{
+		List<RootAnchor> ret = new ArrayList<RootAnchor>(4);
+		if (null==info)
+		{
+			ret.add(ANY_NODE);
+		}
+		else
+		{
+			String lemma = lemmaKey(InfoGetFields.getLemma(info));
+			PartOfSpeech pos = InfoGetFields.getPartOfSpeechObject(info);
+			if (pos!=null)
+			{
+				SimplerCanonicalPosTag simplerPos = SimplerPosTagConvertor.simplerPos(pos.getCanonicalPosTag());
+				ret.add(new RootAnchor(lemma, false, simplerPos));
+				ret.add(new RootAnchor(null, false, simplerPos));
+			}
+			ret.add(new RootAnchor(lemma, true, null));
+			ret.add(ANY_NODE);
+		}
+		return ret;
+	}
+
+	/**
+	 * Two lemmas have the same key if and only if they are equal by {@link String#equalsIgnoreCase(String)}.
+	 * A <code>null</code> lemma has the key of the empty lemma, like {@link InfoGetFields#getLemma(Info)}
+	 * returns for a node that has no lemma (<code>null</code> keys are reserved for rules that do not compare lemmas).
+	 */
+	private static String lemmaKey(String lemma)
+	{
+		if (null==lemma) return "";
+		char[] chars = lemma.toCharArray();
+		for (int index=0;index<chars.length;++index)
+		{
+			chars[index] = Character.toLowerCase(Character.toUpperCase(chars[index]));
+		}
+		return new String(chars);
+	}
+
+	private static <TI extends Info, TS extends AbstractNode<TI, TS>> Set<String> childrenRelations(TS node)
+	{
+		Set<String> ret = new LinkedHashSet<String>();
+		if (node.getChildren()!=null)
+		{
+			for (TS child : node.getChildren())
+			{
+				if (child.getInfo()!=null)
+				{
+					ret.add(InfoGetFields.getRelation(child.getInfo()));
+				}
+			}
+		}
+		return ret;
+	}
+
+	private static <TS> void addAnchor(Map<Integer, Set<TS>> anchors, Integer ruleNumber, TS node)
+	{
+		Set<TS> nodes = anchors.get(ruleNumber);
+		if (null==nodes)
+		{
+			nodes = new LinkedHashSet<TS>();
+			anchors.put(ruleNumber, nodes);
+		}
+		nodes.add(node);
+	}
+
+
+	private static final RootAnchor ANY_NODE = new RootAnchor(null, true, null);
+
+	/**
+	 * The indexes of the rule bases. {@link WeakHashMap} is not thread safe, so all the accesses,
+	 * including the compound get-and-put of {@link #getIndex(BagOfRulesRuleBase)}, are synchronized on this map.
+	 */
+	private static final Map<BagOfRulesRuleBase<Info, BasicNode>, BagOfRulesRuleBaseIndex> indexes =
+			Collections.synchronizedMap(new WeakHashMap<BagOfRulesRuleBase<Info, BasicNode>, BagOfRulesRuleBaseIndex>());
+
+	private final ImmutableSet<RuleWithConfidenceAndDescription<Info, BasicNode>> indexedRules;
+	private final List<RuleWithConfidenceAndDescription<Info, BasicNode>> rules;
+	private final List<ParseTreeCharacteristics<Info, BasicNode>> characteristics;
+	private final List<Set<String>> requiredChildrenRelations;
+	private final Map<RootAnchor, List<Integer>> index;
+}
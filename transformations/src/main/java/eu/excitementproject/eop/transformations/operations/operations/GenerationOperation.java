@@ -48,6 +48,12 @@ import eu.excitementproject.eop.transformations.representation.AdditionalNodeInf
  * </OL>
  * ============================================<BR>
  * <P>
+ * Note that the generated tree is not necessarily a full copy of the original tree.
+ * Sub-trees that are not changed by the operation might be shared by the original tree and
+ * the generated tree (in which case the mapping maps each node of these sub-trees to itself).
+ * See, for example, {@link SubstituteNodeOperation} and {@link OperationPostProcess}.
+ * Thus, neither the original tree nor the generated tree should ever be changed.
+ * <P>
  * TODO: The rest of this JavaDoc comment is vague. (you can skip it if you find
  * that you cannot understand it, though it is important comment).<BR>
  * The policy of {@link AdditionalNodeInformation} in {@link GenerationOperation} is:<BR>
@@ -1,4 +1,5 @@
 package eu.excitementproject.eop.transformations.operations.operations;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 
 import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
@@ -8,9 +9,13 @@ import eu.excitementproject.eop.transformations.datastructures.FromBidirectional
 import eu.excitementproject.eop.transformations.operations.OperationException;
 import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.PathCopySet;
 
 /**
  * An on-the-fly operation that inserts a new node to a tree.
+ * <P>
+ * Only the parent of the inserted node and its ancestors are copied (see {@link PathCopySet}).
+ * All the other sub-trees are shared by the original tree and the generated tree.
  * 
  * @author Asher Stern
  * @since 2011
@@ -33,6 +38,7 @@ public class InsertNodeOperation extends GenerationOperationForExtendedNode
 	{
 		this.affectedNodes = new LinkedHashSet<ExtendedNode>();
 		mapOrigToGenerated = new SimpleBidirectionalMap<ExtendedNode, ExtendedNode>();
+		pathCopySet = new PathCopySet<ExtendedInfo, ExtendedNode>(this.textTree.getTree(), Collections.singleton(whereToInsert));
 		this.generatedTree = copyTree(this.textTree.getTree());
 		updateAntecedents();
 		
@@ -53,6 +59,11 @@ public class InsertNodeOperation extends GenerationOperationForExtendedNode
 	
 	private ExtendedNode copyTree(ExtendedNode subtree)
 	{
+		if (!pathCopySet.mustCopy(subtree))
+		{
+			mapSharedSubTree(subtree);
+			return subtree;
+		}
 		ExtendedNode ret = new ExtendedNode(subtree.getInfo());
 		if (subtree.getChildren()!=null)
 		{
@@ -66,9 +77,25 @@ public class InsertNodeOperation extends GenerationOperationForExtendedNode
 		return ret;
 	}
 	
+	/**
+	 * Maps each node of a sub-tree that is shared by the original tree and the generated tree to itself.
+	 */
+	private void mapSharedSubTree(ExtendedNode subtree)
+	{
+		mapOrigToGenerated.put(subtree, subtree);
+		if (subtree.getChildren()!=null)
+		{
+			for (ExtendedNode child : subtree.getChildren())
+			{
+				mapSharedSubTree(child);
+			}
+		}
+	}
+	
 	private void updateAntecedents()
 	{
-		for (ExtendedNode originalNode : mapOrigToGenerated.leftSet())
+		// Shared nodes already refer to the correct antecedent, and must not be changed.
+		for (ExtendedNode originalNode : pathCopySet.getNodesToCopy())
 		{
 			if (originalNode.getAntecedent()!=null)
 			{
@@ -82,6 +109,7 @@ public class InsertNodeOperation extends GenerationOperationForExtendedNode
 	protected ExtendedNode whereToInsert;
 	
 	protected BidirectionalMap<ExtendedNode, ExtendedNode> mapOrigToGenerated = null;
+	protected PathCopySet<ExtendedInfo, ExtendedNode> pathCopySet = null;
 
 
 }
@@ -12,10 +12,15 @@ import eu.excitementproject.eop.transformations.datastructures.FromBidirectional
 import eu.excitementproject.eop.transformations.operations.OperationException;
 import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.PathCopySet;
 
 
 /**
  * An on-the-fly operation that moves a node from one location to another location in the tree.
+ * <P>
+ * Only the moved node, its old parent, its new parent and their ancestors are copied
+ * (see {@link PathCopySet}). All the other sub-trees, including the sub-trees of the
+ * moved node's children, are shared by the original tree and the generated tree.
  *  
  * @author Asher Stern
  * @since Dec 30, 2010
@@ -59,6 +64,11 @@ public class MoveNodeOperation extends GenerationOperationForExtendedNode
 		if (textTree.getTree()==nodeToMove) throw new OperationException("Moving the root is illegal.");
 		affectedNodes = new LinkedHashSet<ExtendedNode>();
 		mapOrigToCopy = new SimpleBidirectionalMap<ExtendedNode, ExtendedNode>();
+		List<ExtendedNode> changedNodes = new ArrayList<ExtendedNode>(3);
+		changedNodes.add(nodeToMove);
+		changedNodes.add(textTree.getParentMap().get(nodeToMove));
+		changedNodes.add(newParent);
+		pathCopySet = new PathCopySet<ExtendedInfo, ExtendedNode>(textTree.getTree(), changedNodes);
 		this.generatedTree = recursiveGenerate(textTree.getTree(),null,false);
 		updateAntecedentInformation();
 		this.nodeToMoveNotExistInGeneratedTree = !nodeHasAlreadyBeenMoved;
@@ -115,6 +125,12 @@ public class MoveNodeOperation extends GenerationOperationForExtendedNode
 	 */
 	protected ExtendedNode recursiveGenerate(final ExtendedNode node,EdgeInfo otherEdgeInfo, boolean copyingMovedSubTree)
 	{
+		if (!pathCopySet.mustCopy(node))
+		{
+			mapSharedSubTree(node);
+			return node;
+		}
+		
 		ExtendedInfo newInfo = null;
 		if (otherEdgeInfo!=null)
 		{
@@ -163,11 +179,28 @@ public class MoveNodeOperation extends GenerationOperationForExtendedNode
 		return newNode;
 	}
 	
+	/**
+	 * Maps each node of a sub-tree that is shared by the original tree and the generated tree to itself.
+	 */
+	protected void mapSharedSubTree(ExtendedNode node)
+	{
+		mapOrigToCopy.put(node, node);
+		if (node.getChildren()!=null)
+		{
+			for (ExtendedNode child : node.getChildren())
+			{
+				mapSharedSubTree(child);
+			}
+		}
+	}
+	
 	protected void updateAntecedentInformation()
 	{
 		for (ExtendedNode newNode : mapOrigToCopy.rightSet())
 		{
 			ExtendedNode originalNode = mapOrigToCopy.rightGet(newNode);
+			// Shared nodes already refer to the correct antecedent, and must not be changed.
+			if (originalNode==newNode) continue;
 			if (originalNode.getAntecedent()!=null)
 			{
 				ExtendedNode originalNodeAntecedent = originalNode.getAntecedent();
@@ -183,6 +216,7 @@ public class MoveNodeOperation extends GenerationOperationForExtendedNode
 	protected EdgeInfo newEdgeInfo;
 	
 	protected BidirectionalMap<ExtendedNode, ExtendedNode> mapOrigToCopy = null;
+	protected PathCopySet<ExtendedInfo, ExtendedNode> pathCopySet = null;
 	
 	protected boolean nodeHasAlreadyBeenMoved = false;
 
@@ -10,14 +10,18 @@ import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
 import eu.excitementproject.eop.transformations.utilities.Constants;
 import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
-import eu.excitementproject.eop.transformations.utilities.parsetreeutils.ContentAncestorSetter;
-import eu.excitementproject.eop.transformations.utilities.parsetreeutils.OriginalInfoTraceSetter;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TraceAndContentAncestorSetter;
 
 /**
  * Makes some post-processing on the tree generated by subclasses of
  * {@link GenerationOperation} that have {@link ExtendedNode} as
  * their generic parameter, for example {@link GenerationOperationForExtendedNode}.
  * The post-processing currently includes tracing of original node, and content-ancestor setting.
+ * <P>
+ * Both are done by a single {@link TraceAndContentAncestorSetter}, which copies only
+ * the nodes whose information is changed (and their ancestors). Thus, the post-processed
+ * tree might share sub-trees with the tree created by the operation, and, consequently,
+ * with the original tree. Generated trees should, therefore, never be changed.
  * 
  * @author Asher Stern
  * @since Dec 25, 2011
@@ -38,13 +42,9 @@ public class OperationPostProcess
 	
 	public void postProcess() throws TeEngineMlException
 	{
-		if (Constants.TRACE_ORIGINAL_NODES)
+		if ( (Constants.TRACE_ORIGINAL_NODES) || (Constants.USE_ADVANCED_EQUALITIES) )
 		{
-			postProcessSetTrace();
-		}
-		if (Constants.USE_ADVANCED_EQUALITIES)
-		{
-			postProcessContentAncestor();
+			postProcessSetTraceAndContentAncestor();
 		}
 		postProcessDone = true;
 	}
@@ -67,23 +67,9 @@ public class OperationPostProcess
 		return affectedNodes;
 	}
 
-	private void postProcessContentAncestor() throws TeEngineMlException
-	{
-		ContentAncestorSetter ancestorSetter = new ContentAncestorSetter(generatedTree);
-		ancestorSetter.generate();
-		BidirectionalMap<ExtendedNode, ExtendedNode> mapping = ancestorSetter.getNodesMap();
-		ExtendedNode newTree = mapping.leftGet(generatedTree);
-		Set<ExtendedNode> newAffectedNodes = generateMappedSet(affectedNodes, mapping);
-		ValueSetMap<ExtendedNode, ExtendedNode> newMapOriginalToGenerated = generateMapWithMappedValues(mapping,mapOriginalToGenerated);
-		
-		generatedTree = newTree;
-		affectedNodes = newAffectedNodes;
-		mapOriginalToGenerated = newMapOriginalToGenerated;
-	}
-	
-	private void postProcessSetTrace() throws TeEngineMlException
+	private void postProcessSetTraceAndContentAncestor() throws TeEngineMlException
 	{
-		OriginalInfoTraceSetter setter = new OriginalInfoTraceSetter(generatedTree, mapOriginalToGenerated);
+		TraceAndContentAncestorSetter setter = new TraceAndContentAncestorSetter(generatedTree, mapOriginalToGenerated, Constants.TRACE_ORIGINAL_NODES, Constants.USE_ADVANCED_EQUALITIES);
 		setter.set();
 		ExtendedNode newTree = setter.getNewGeneratedTree();
 		BidirectionalMap<ExtendedNode, ExtendedNode> mapOfSetter = setter.getMapInputToNew();
@@ -1,18 +1,18 @@
 package eu.excitementproject.eop.transformations.operations.operations;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashSet;
-import java.util.Set;
 
 import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
 import eu.excitementproject.eop.common.datastructures.SimpleBidirectionalMap;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.NodeInfo;
-import eu.excitementproject.eop.common.representation.parse.tree.AbstractNodeUtils;
 import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
 import eu.excitementproject.eop.transformations.datastructures.FromBidirectionalMapValueSetMap;
 import eu.excitementproject.eop.transformations.operations.OperationException;
 import eu.excitementproject.eop.transformations.representation.AdditionalNodeInformation;
 import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.PathCopySet;
 
 
 /**
@@ -21,6 +21,9 @@ import eu.excitementproject.eop.transformations.representation.ExtendedNode;
  * <BR>
  * An example is a lexical-rule application which is a substitution of node's
  * contents according to the rule's left-hand-side and right-hand-side.
+ * <P>
+ * Only the substituted node and its ancestors are copied (see {@link PathCopySet}).
+ * All the other sub-trees are shared by the original tree and the generated tree.
  * 
  * @author Asher Stern
  * @since Jan 16, 2011
@@ -42,6 +45,7 @@ public class SubstituteNodeOperation extends GenerationOperationForExtendedNode
 	{
 		mapOrigToGenerated = new SimpleBidirectionalMap<ExtendedNode, ExtendedNode>();
 		affectedNodes = new LinkedHashSet<ExtendedNode>();
+		pathCopySet = new PathCopySet<ExtendedInfo, ExtendedNode>(this.textTree.getTree(), Collections.singleton(nodeToSubstitute));
 		this.generatedTree = copySubTree(this.textTree.getTree());
 		updateAntecedents();
 	}
@@ -59,6 +63,12 @@ public class SubstituteNodeOperation extends GenerationOperationForExtendedNode
 	
 	private ExtendedNode copySubTree(ExtendedNode root)
 	{
+		if (!pathCopySet.mustCopy(root))
+		{
+			mapSharedSubTree(root);
+			return root;
+		}
+		
 		ExtendedInfo generatedRootInfo = null;
 		if (root==nodeToSubstitute)
 		{
@@ -97,10 +107,25 @@ public class SubstituteNodeOperation extends GenerationOperationForExtendedNode
 		return generatedRoot;
 	}
 	
+	/**
+	 * Maps each node of a sub-tree that is shared by the original tree and the generated tree to itself.
+	 */
+	private void mapSharedSubTree(ExtendedNode root)
+	{
+		mapOrigToGenerated.put(root, root);
+		if (root.getChildren()!=null)
+		{
+			for (ExtendedNode child : root.getChildren())
+			{
+				mapSharedSubTree(child);
+			}
+		}
+	}
+	
 	private void updateAntecedents()
 	{
-		Set<ExtendedNode> originalTreeNodes = AbstractNodeUtils.treeToLinkedHashSet(textTree.getTree());
-		for (ExtendedNode originalTreeNode : originalTreeNodes)
+		// Shared nodes already refer to the correct antecedent, and must not be changed.
+		for (ExtendedNode originalTreeNode : pathCopySet.getNodesToCopy())
 		{
 			if (originalTreeNode.getAntecedent()!=null)
 			{
@@ -116,4 +141,5 @@ public class SubstituteNodeOperation extends GenerationOperationForExtendedNode
 	private NodeInfo newNodeInfo;
 	private AdditionalNodeInformation newAdditionalNodeInformation;
 	private BidirectionalMap<ExtendedNode, ExtendedNode> mapOrigToGenerated = null;
+	private PathCopySet<ExtendedInfo, ExtendedNode> pathCopySet = null;
 }
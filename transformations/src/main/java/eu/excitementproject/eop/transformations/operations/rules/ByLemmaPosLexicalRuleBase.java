@@ -1,6 +1,11 @@
 package eu.excitementproject.eop.transformations.operations.rules;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
 import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.transformations.datastructures.LemmaAndPos;
 
 /**
  * A {@link LexicalRuleBase} which returns rule that match a given lemma-and-part-of-speech
@@ -13,4 +18,26 @@ import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
 public abstract class ByLemmaPosLexicalRuleBase<T extends LexicalRule> extends LexicalRuleBase<T>
 {
 	public abstract ImmutableSet<T> getRules(String lhsLemma, PartOfSpeech lhsPos) throws RuleBaseException;
+	
+	/**
+	 * Returns the rules of many left-hand-sides at once, e.g., of all the nodes of a tree.
+	 * This implementation calls {@link #getRules(String, PartOfSpeech)} for each of them;
+	 * rule bases that can retrieve many left-hand-sides in one access should override it.
+	 * 
+	 * @param lhsLemmasAndPoses
+	 * @return a map from each of the given left-hand-sides to its rules
+	 * @throws RuleBaseException
+	 */
+	public Map<LemmaAndPos, ImmutableSet<T>> getRules(Collection<LemmaAndPos> lhsLemmasAndPoses) throws RuleBaseException
+	{
+		Map<LemmaAndPos, ImmutableSet<T>> ret = new LinkedHashMap<LemmaAndPos, ImmutableSet<T>>();
+		for (LemmaAndPos lemmaAndPos : lhsLemmasAndPoses)
+		{
+			if (!ret.containsKey(lemmaAndPos))
+			{
+				ret.put(lemmaAndPos, getRules(lemmaAndPos.getLemma(), lemmaAndPos.getPartOfSpeech()));
+			}
+		}
+		return ret;
+	}
 }
@@ -1,4 +1,11 @@
 package eu.excitementproject.eop.transformations.operations.rules;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
 import eu.excitementproject.eop.common.codeannotations.NotThreadSafe;
 import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
 import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
@@ -55,8 +62,56 @@ public abstract class ByLemmaPosLexicalRuleBaseWithCache<T extends LexicalRule>
 		}
 	}
 	
+	/**
+	 * Returns the rules of many left-hand-sides, retrieving only those that are not in the cache,
+	 * by one call to {@link #getRulesNotInCache(Collection)}.
+	 */
+	@Override
+	public Map<LemmaAndPos, ImmutableSet<T>> getRules(Collection<LemmaAndPos> lhsLemmasAndPoses) throws RuleBaseException
+	{
+		Set<LemmaAndPos> notInCache = new LinkedHashSet<LemmaAndPos>();
+		for (LemmaAndPos lemmaAndPos : lhsLemmasAndPoses)
+		{
+			if (!cache.containsKey(lemmaAndPos))
+			{
+				notInCache.add(lemmaAndPos);
+			}
+		}
+		Map<LemmaAndPos, ImmutableSet<T>> rulesNotInCache = Collections.emptyMap();
+		if (notInCache.size()>0)
+		{
+			rulesNotInCache = getRulesNotInCache(notInCache);
+		}
+		
+		Map<LemmaAndPos, ImmutableSet<T>> ret = new LinkedHashMap<LemmaAndPos, ImmutableSet<T>>();
+		for (LemmaAndPos lemmaAndPos : lhsLemmasAndPoses)
+		{
+			ImmutableSet<T> rules = rulesNotInCache.get(lemmaAndPos);
+			ret.put(lemmaAndPos, (rules!=null)?rules:cache.get(lemmaAndPos));
+		}
+		for (Map.Entry<LemmaAndPos, ImmutableSet<T>> rules : rulesNotInCache.entrySet())
+		{
+			cache.put(rules.getKey(), rules.getValue());
+		}
+		return ret;
+	}
+	
 	protected abstract ImmutableSet<T> getRulesNotInCache(String lhsLemma, PartOfSpeech lhsPos) throws RuleBaseException;
 	
+	/**
+	 * Retrieves the rules of many left-hand-sides, none of which is in the cache.
+	 * This implementation calls {@link #getRulesNotInCache(String, PartOfSpeech)} for each of them.
+	 */
+	protected Map<LemmaAndPos, ImmutableSet<T>> getRulesNotInCache(Collection<LemmaAndPos> lhsLemmasAndPoses) throws RuleBaseException
+	{
+		Map<LemmaAndPos, ImmutableSet<T>> ret = new LinkedHashMap<LemmaAndPos, ImmutableSet<T>>();
+		for (LemmaAndPos lemmaAndPos : lhsLemmasAndPoses)
+		{
+			ret.put(lemmaAndPos, getRulesNotInCache(lemmaAndPos.getLemma(), lemmaAndPos.getPartOfSpeech()));
+		}
+		return ret;
+	}
+	
 	protected Cache<LemmaAndPos, ImmutableSet<T>> cache =
 		new CacheFactory<LemmaAndPos, ImmutableSet<T>>().getCache(Constants.DEFAULT_LEXICAL_RESOURCES_CACHE_SIZE);
 }
@@ -1,7 +1,12 @@
 package eu.excitementproject.eop.transformations.operations.rules;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
 import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
 import eu.excitementproject.eop.transformations.datastructures.ImmutableSetSubTypeWrapper;
+import eu.excitementproject.eop.transformations.datastructures.LemmaAndPos;
 
 /**
  * 
@@ -27,5 +32,16 @@ public class ByLemmaPosLexicalRuleBaseWrapper<T extends LexicalRule, U extends T
 		return new ImmutableSetSubTypeWrapper<T,U>(realRuleBase.getRules(lhsLemma, lhsPos));
 	}
 	
+	@Override
+	public Map<LemmaAndPos, ImmutableSet<T>> getRules(Collection<LemmaAndPos> lhsLemmasAndPoses) throws RuleBaseException
+	{
+		Map<LemmaAndPos, ImmutableSet<T>> ret = new LinkedHashMap<LemmaAndPos, ImmutableSet<T>>();
+		for (Map.Entry<LemmaAndPos, ImmutableSet<U>> rules : realRuleBase.getRules(lhsLemmasAndPoses).entrySet())
+		{
+			ret.put(rules.getKey(), new ImmutableSetSubTypeWrapper<T,U>(rules.getValue()));
+		}
+		return ret;
+	}
+	
 	private final ByLemmaPosLexicalRuleBase<U> realRuleBase;
 }
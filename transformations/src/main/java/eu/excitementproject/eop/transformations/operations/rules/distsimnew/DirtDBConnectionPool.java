@@ -0,0 +1,227 @@
+package eu.excitementproject.eop.transformations.operations.rules.distsimnew;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.log4j.Logger;
+
+import eu.excitementproject.eop.common.codeannotations.ThreadSafe;
+import eu.excitementproject.eop.transformations.operations.rules.distsim.DistSimParameters;
+import eu.excitementproject.eop.transformations.utilities.Constants;
+
+
+/**
+ * A small pool of connections to the data-base of a DIRT-like rule base, each with its
+ * own prepared statements (see {@link PooledConnection}).
+ * <P>
+ * Connections are opened lazily, up to the given maximum. A thread that asks for a connection
+ * when all of them are in use waits until another thread releases one.
+ * <P>
+ * Usage:
+ * <pre>
+ * PooledConnection connection = pool.acquire();
+ * try
+ * {
+ * 	// use connection.getStatementIdForTemplate(), etc.
+ * }
+ * finally
+ * {
+ * 	pool.release(connection);
+ * }
+ * </pre>
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+@ThreadSafe
+public class DirtDBConnectionPool
+{
+	/**
+	 * A connection to the data-base, and the prepared statements of {@link DirtDBRuleBase}.
+	 * Used by one thread at a time.
+	 */
+	public static final class PooledConnection
+	{
+		public PreparedStatement getStatementIdForTemplate()
+		{
+			return statementIdForTemplate;
+		}
+		public PreparedStatement getStatementRuleForId()
+		{
+			return statementRuleForId;
+		}
+		public PreparedStatement getStatementRightElementIdForGivenLeftElementId()
+		{
+			return statementRightElementIdForGivenLeftElementId;
+		}
+		public Connection getConnection()
+		{
+			return connection;
+		}
+
+		private PooledConnection(Connection connection, DistSimParameters dbParameters) throws SQLException
+		{
+			this.connection = connection;
+
+			// This query: Given a template - return its ID.
+			String queryIdForTemplate = "SELECT id FROM "+dbParameters.getTemplatesTableName()+" WHERE description = ?";
+			statementIdForTemplate = connection.prepareStatement(queryIdForTemplate);
+
+			// This query: Given an ID - return all templates that are entailed by it (i.e. by the template whose ID is the given ID).
+			// The assumption is that "right" in the data-base entails "left".
+			// (Note: This query is complex, and might take long run-time.)
+			String queryRuleForId = "SELECT "+dbParameters.getTemplatesTableName()+".description, "+dbParameters.getRulesTableName()+".score " +
+					"FROM "+dbParameters.getTemplatesTableName()+", "+dbParameters.getRulesTableName()+" " +
+							"WHERE "+dbParameters.getRulesTableName()+".right_element_id=? AND "+dbParameters.getRulesTableName()+".left_element_id="+dbParameters.getTemplatesTableName()+".id " +
+									"ORDER BY "+dbParameters.getRulesTableName()+".score DESC LIMIT "+String.valueOf(dbParameters.getLimitNumberOfRules());
+			statementRuleForId = connection.prepareStatement(queryRuleForId);
+
+			if (Constants.DIRT_LIKE_QUERY_RULE_ALSO_BY_HYPOTHESIS_TEMPLATES)
+			{
+				String queryIdRightGivenIdLeft = "SELECT "+dbParameters.getRulesTableName()+".right_element_id, " + dbParameters.getRulesTableName()+".score " +
+						"FROM "+dbParameters.getRulesTableName()+" " +
+						"WHERE "+dbParameters.getRulesTableName()+".left_element_id=? " +
+						"ORDER BY "+dbParameters.getRulesTableName()+".score DESC LIMIT "+String.valueOf(dbParameters.getLimitNumberOfRules());
+				statementRightElementIdForGivenLeftElementId = connection.prepareStatement(queryIdRightGivenIdLeft);
+			}
+			else
+			{
+				statementRightElementIdForGivenLeftElementId = null;
+			}
+		}
+
+		private final Connection connection;
+		private final PreparedStatement statementIdForTemplate;
+		private final PreparedStatement statementRuleForId;
+		private final PreparedStatement statementRightElementIdForGivenLeftElementId;
+	}
+
+
+	/**
+	 * Creates a pool that opens connections to the given URL (by {@link DriverManager}),
+	 * up to the given maximum.
+	 */
+	public DirtDBConnectionPool(String dbUrl, DistSimParameters dbParameters, int maximumNumberOfConnections)
+	{
+		super();
+		if (maximumNumberOfConnections<1) throw new IllegalArgumentException("Illegal number of connections: "+maximumNumberOfConnections);
+		this.dbUrl = dbUrl;
+		this.dbParameters = dbParameters;
+		this.maximumNumberOfConnections = maximumNumberOfConnections;
+	}
+
+	/**
+	 * Creates a pool that contains only the given connection.
+	 */
+	public DirtDBConnectionPool(Connection connection, DistSimParameters dbParameters) throws SQLException
+	{
+		super();
+		this.dbUrl = null;
+		this.dbParameters = dbParameters;
+		this.maximumNumberOfConnections = 1;
+		PooledConnection pooledConnection = new PooledConnection(connection, dbParameters);
+		allConnections.add(pooledConnection);
+		available.add(pooledConnection);
+	}
+
+	/**
+	 * Returns a connection which is not used by any other thread. Waits if all the connections are in use.
+	 * The connection must be returned by {@link #release(PooledConnection)}.
+	 * @return a connection.
+	 * @throws SQLException if a new connection could not be opened, or the pool was closed.
+	 */
+	public PooledConnection acquire() throws SQLException
+	{
+		PooledConnection ret = available.poll();
+		if (null==ret)
+		{
+			ret = openIfPossible();
+		}
+		if (null==ret)
+		{
+			try
+			{
+				ret = available.take();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while waiting for a data-base connection.",e);
+			}
+		}
+		return ret;
+	}
+
+	public void release(PooledConnection connection)
+	{
+		available.add(connection);
+	}
+
+	/**
+	 * Closes all the connections. Must be called when no connection is in use.
+	 */
+	public synchronized void close()
+	{
+		closed = true;
+		for (PooledConnection connection : allConnections)
+		{
+			try
+			{
+				connection.getConnection().close();
+			}
+			catch (SQLException e)
+			{
+				logger.warn("A data-base connection could not be closed.",e);
+			}
+		}
+		allConnections.clear();
+		available.clear();
+	}
+
+	public synchronized int getNumberOfOpenConnections()
+	{
+		return allConnections.size();
+	}
+
+
+
+	private synchronized PooledConnection openIfPossible() throws SQLException
+	{
+		if (closed) throw new SQLException("The connection pool is closed.");
+		if ( (null==dbUrl) || (allConnections.size()>=maximumNumberOfConnections) )
+		{
+			return null;
+		}
+		Connection connection = DriverManager.getConnection(dbUrl);
+		PooledConnection ret;
+		try
+		{
+			ret = new PooledConnection(connection, dbParameters);
+		}
+		catch (SQLException e)
+		{
+			connection.close();
+			throw e;
+		}
+		allConnections.add(ret);
+		if (logger.isDebugEnabled()){logger.debug("Opened data-base connection number "+allConnections.size()+" to "+dbUrl);}
+		return ret;
+	}
+
+
+	private final String dbUrl;
+	private final DistSimParameters dbParameters;
+	private final int maximumNumberOfConnections;
+
+	private final BlockingQueue<PooledConnection> available = new LinkedBlockingQueue<PooledConnection>();
+	private final List<PooledConnection> allConnections = new LinkedList<PooledConnection>();
+	private boolean closed = false;
+
+	private static final Logger logger = Logger.getLogger(DirtDBConnectionPool.class);
+}
@@ -10,16 +10,19 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.apache.log4j.Logger;
 
-import eu.excitementproject.eop.common.codeannotations.NotThreadSafe;
+import eu.excitementproject.eop.common.codeannotations.ThreadSafe;
 import eu.excitementproject.eop.common.component.syntacticknowledge.RuleWithConfidenceAndDescription;
 import eu.excitementproject.eop.common.component.syntacticknowledge.SyntacticRule;
 import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
@@ -31,8 +34,7 @@ import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSetWrap
 import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
 import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
-import eu.excitementproject.eop.common.utilities.Cache;
-import eu.excitementproject.eop.common.utilities.CacheFactory;
+import eu.excitementproject.eop.common.utilities.ComputeOnceCache;
 import eu.excitementproject.eop.common.utilities.StringUtil;
 import eu.excitementproject.eop.common.utilities.Utils;
 import eu.excitementproject.eop.common.utilities.configuration.ConfigurationException;
@@ -54,15 +56,69 @@ import eu.excitementproject.eop.transformations.utilities.TransformationsConfigu
  * A rule base for lexical-syntactic rules that have the DIRT format, and
  * stored physically in a data-base.
  * <P>
- * <B>Not thread safe:</B> It is unsafe to concurrently call methods of an instance of this class from two different threads.
- * 
+ * The rules are taken either from a {@link DirtRuleTable} (memory-mapped from a binary snapshot
+ * file, or loaded in advance from the data-base), or by querying the data-base on demand,
+ * using a pool of connections ({@link DirtDBConnectionPool}).
+ * <P>
+ * <B>Thread safe:</B> One instance can be used concurrently by several threads. Use
+ * {@link #getShared(String, ConfigurationParams, PARSER)} to get one instance for all the
+ * threads, rather than an instance per thread.
+ *
  * @author Asher Stern
  * @since Aug 2, 2011
  *
  */
-@NotThreadSafe
+@ThreadSafe
 public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 {
+	/**
+	 * Returns a rule base for the given configuration, which is shared by all callers that
+	 * give the same rule-base-name, configuration and parser. Each caller must call
+	 * {@link #terminate()} when it no longer uses the rule base. The rule base is
+	 * actually terminated when the last caller terminates it.
+	 * @param ruleBaseName
+	 * @param params
+	 * @param parser
+	 * @return a shared rule base.
+	 * @throws RuleBaseException
+	 */
+	public static DirtDBRuleBase getShared(String ruleBaseName,ConfigurationParams params, final PARSER parser) throws RuleBaseException
+	{
+		StringBuilder keyBuilder = new StringBuilder();
+		keyBuilder.append(ruleBaseName).append('\n').append(parser).append('\n').append(params.getModuleName());
+		try
+		{
+			for (String paramName : new TreeSet<String>(params.keySet()))
+			{
+				keyBuilder.append('\n').append(paramName).append('=').append(params.get(paramName));
+			}
+		}
+		catch (ConfigurationException e)
+		{
+			throw new RuleBaseException("Cannot construct rule base "+ruleBaseName+". See nested exception.",e);
+		}
+		String key = keyBuilder.toString();
+
+		// Note that the rule base is constructed while holding the lock, such that other threads
+		// wait for it, rather than construct their own copies.
+		synchronized(sharedRuleBases)
+		{
+			DirtDBRuleBase ret = sharedRuleBases.get(key);
+			if (null==ret)
+			{
+				ret = fromConfigurationParams(ruleBaseName, params, parser);
+				ret.sharedKey = key;
+				sharedRuleBases.put(key, ret);
+			}
+			else
+			{
+				++ret.referenceCount;
+				if (logger.isDebugEnabled()){logger.debug("Rule base "+ruleBaseName+" is shared. Number of users: "+ret.referenceCount);}
+			}
+			return ret;
+		}
+	}
+
 	/**
 	 * Creates the rule-base using the given {@link ConfigurationParams}.
 	 * @param ruleBaseName
@@ -74,11 +130,20 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 	{
 		try
 		{
+			// Load from a binary snapshot file (created by WholeDBLoader), which is memory-mapped. The data-base is not queried at all.
+			if (params.containsKey(TransformationsConfigurationParametersNames.DIRT_LIKE_BINARY_SNAPSHOT_PARAMETER_NAME))
+			{
+				File snapshotFile = params.getFile(TransformationsConfigurationParametersNames.DIRT_LIKE_BINARY_SNAPSHOT_PARAMETER_NAME);
+				logger.info("DirtDBRuleBase "+ruleBaseName+": Mapping rule base from a snapshot file: "+snapshotFile.getPath());
+				String dataBaseIdentity = DirtRuleTable.dataBaseIdentity(params.get(DB_URL), params.get(TEMPLATES_TABLE_NAME), params.get(RULES_TABLE_NAME));
+				return new DirtDBRuleBase(DirtRuleTable.mapSnapshot(snapshotFile,params.getInt(LIMIT_NUMBER_OF_RULES),dataBaseIdentity),ruleBaseName,parser);
+			}
+
 			// Load from ser file - means that the data-base is stored in a set file, so we do not query the data-base at all.
 			// This option is NOT RECOMMENDED, and NOT IN USE!
 			boolean loadFromSerFile = false;
 			loadFromSerFile = params.containsKey(TransformationsConfigurationParametersNames.DIRT_LIKE_SER_FILE_PARAMETER_NAME);
-			
+
 			if (loadFromSerFile)
 			{
 				File serFile = params.getFile(TransformationsConfigurationParametersNames.DIRT_LIKE_SER_FILE_PARAMETER_NAME);
@@ -89,13 +154,17 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 				// Connect to the data-base
 				Class.forName(params.get(DB_DRIVER));
 				String dbUrl = params.get(DB_URL);
-				Connection connection = DriverManager.getConnection(dbUrl);
 				String templates = params.get(TEMPLATES_TABLE_NAME);
 				String rules = params.get(RULES_TABLE_NAME);
 				int limit = params.getInt(LIMIT_NUMBER_OF_RULES);
+				int numberOfConnections = Constants.DEFAULT_DIRT_LIKE_NUMBER_OF_CONNECTIONS;
+				if (params.containsKey(TransformationsConfigurationParametersNames.DIRT_LIKE_NUMBER_OF_CONNECTIONS_PARAMETER_NAME))
+				{
+					numberOfConnections = params.getInt(TransformationsConfigurationParametersNames.DIRT_LIKE_NUMBER_OF_CONNECTIONS_PARAMETER_NAME);
+				}
 				DistSimParameters distSimParameters = new DistSimParameters(templates, rules, limit, Constants.DEFAULT_DIRT_LIKE_RESOURCES_CACHE_SIZE, Constants.DEFAULT_DIRT_LIKE_RESOURCES_CACHE_SIZE);
 
-				return new DirtDBRuleBase(connection,ruleBaseName,distSimParameters,parser);
+				return new DirtDBRuleBase(new DirtDBConnectionPool(dbUrl, distSimParameters, numberOfConnections),ruleBaseName,distSimParameters,parser);
 			}
 		}
 		catch (ClassNotFoundException e)
@@ -106,70 +175,102 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 		{
 			throw new RuleBaseException("Cannot construct rule base "+ruleBaseName+". See nested exception.",e);
 		}
-		catch (SQLException e)
+		catch (IOException e)
 		{
 			throw new RuleBaseException("Cannot construct rule base "+ruleBaseName+". See nested exception.",e);
 		}
-		
-		
 	}
-	
+
 	public DirtDBRuleBase(Connection connection, String ruleBaseName,
 			DistSimParameters dbParameters, PARSER parser) throws RuleBaseException
+	{
+		this(createPool(connection, ruleBaseName, dbParameters), ruleBaseName, dbParameters, parser);
+	}
+
+	/**
+	 * Constructs a rule base which queries the data-base by the connections of the given pool.
+	 * Depending on {@link Constants#DIRT_LIKE_LOAD_ALL_TEMPLATES_IN_ADVANCE} and
+	 * {@link Constants#DIRT_LIKE_LOAD_ALL_RULES_IN_ADVANCE}, the templates, or the whole data-base,
+	 * are loaded in advance into a {@link DirtRuleTable}.
+	 */
+	public DirtDBRuleBase(DirtDBConnectionPool connectionPool, String ruleBaseName,
+			DistSimParameters dbParameters, PARSER parser) throws RuleBaseException
 	{
 		super();
 		this.parser = parser;
-		
-		if (!constantsOK()) throw new RuleBaseException("constants no OK");
-		
-		this.connection = connection;
+
+		this.connectionPool = connectionPool;
 		this.ruleBaseName = ruleBaseName;
 		this.dbParameters = dbParameters;
-		
+
 
 		try
 		{
-			prepareStatements();
-			if(Constants.DIRT_LIKE_LOAD_ALL_TEMPLATES_IN_ADVANCE)
+			if (Constants.DIRT_LIKE_LOAD_ALL_TEMPLATES_IN_ADVANCE || Constants.DIRT_LIKE_LOAD_ALL_RULES_IN_ADVANCE)
 			{
-				logger.info("DirtDBRuleBase "+this.ruleBaseName+": Loading all templates in advance...");
-				createMapTemplateToId(); // Creates a map from all templates to their IDs. Stored in this.mapTemplateToId
-				logger.info("done. "+this.mapTemplateToId.leftSet().size()+" templates were loaded.");
-			}
-			if (Constants.DIRT_LIKE_LOAD_ALL_RULES_IN_ADVANCE) // Not used. Takes long run-time.
-			{
-				if(!Constants.DIRT_LIKE_LOAD_ALL_TEMPLATES_IN_ADVANCE) throw new RuleBaseException("mode DIRT_LIKE_LOAD_ALL_RULES_IN_ADVANCE requires also mode DIRT_LIKE_LOAD_ALL_TEMPLATES_IN_ADVANCE. Check the class Constants.");
-				logger.info("DirtDBRuleBase: Loading all rules in advance...");
-				createMapAllRules();
-				logger.info("done.");
+				logger.info("DirtDBRuleBase "+this.ruleBaseName+": Loading all templates"+(Constants.DIRT_LIKE_LOAD_ALL_RULES_IN_ADVANCE?" and rules":"")+" in advance...");
+				createRuleTable(Constants.DIRT_LIKE_LOAD_ALL_RULES_IN_ADVANCE); // Stored in this.ruleTable
+				logger.info("done. "+this.ruleTable.size()+" templates and "+this.ruleTable.getNumberOfRules()+" rules were loaded.");
 			}
 			logger.info("Done: initialization of DirtDBRuleBase. Memory used: "+Utils.stringMemoryUsedInMB());
-			
 		}
 		catch (SQLException e)
 		{
+			connectionPool.close();
 			throw new RuleBaseException("Data Base problem for rule base \""+this.ruleBaseName+"\"",e);
 		}
+		if ( (this.ruleTable!=null) && (this.ruleTable.hasRules()) )
+		{
+			// The data-base will not be queried anymore.
+			connectionPool.close();
+		}
 	}
-	
+
+	/**
+	 * Constructs a rule base whose rules are taken from the given table. The data-base is not queried.
+	 * @param ruleTable a table that contains the templates and the rules.
+	 */
+	public DirtDBRuleBase(DirtRuleTable ruleTable, String ruleBaseName, PARSER parser) throws RuleBaseException
+	{
+		super();
+		this.parser = parser;
+		this.ruleBaseName = ruleBaseName;
+		if (!ruleTable.hasRules()) throw new RuleBaseException("The rule table of rule base "+ruleBaseName+" contains no rules.");
+		this.ruleTable = ruleTable;
+		logger.info("Done: initialization of DirtDBRuleBase "+ruleBaseName+". "+ruleTable.size()+" templates and "+ruleTable.getNumberOfRules()+" rules. Memory used: "+Utils.stringMemoryUsedInMB());
+	}
+
 	@SuppressWarnings("unchecked")
 	public DirtDBRuleBase(File serFileWholeDB, String ruleBaseName, PARSER parser) throws RuleBaseException
 	{
 		this.parser = parser;
-		
-		if (!constantsOK()) throw new RuleBaseException("constants no OK");
 
 		try
 		{
 			logger.info("DirtDBRuleBase: Loading rule base from a serialization file...");
 			this.ruleBaseName = ruleBaseName;
-			
+
 			ObjectInputStream input = new ObjectInputStream(new FileInputStream(serFileWholeDB));
 			try
 			{
-				this.mapTemplateToId = (BidirectionalMap<String, Integer>) input.readObject();
-				this.mapAllRules = (ValueSetMap<Integer, IdAndScore>) input.readObject();
-				
+				BidirectionalMap<String, Integer> mapTemplateToId = (BidirectionalMap<String, Integer>) input.readObject();
+				ValueSetMap<Integer, IdAndScore> mapAllRules = (ValueSetMap<Integer, IdAndScore>) input.readObject();
+
+				// The rules in the file are already limited by WholeDBLoader.
+				DirtRuleTableBuilder builder = new DirtRuleTableBuilder(Integer.MAX_VALUE);
+				for (String template : mapTemplateToId.leftSet())
+				{
+					builder.addTemplate(mapTemplateToId.leftGet(template), template);
+				}
+				for (Integer leftElementId : mapAllRules.keySet())
+				{
+					for (IdAndScore idAndScore : mapAllRules.get(leftElementId))
+					{
+						builder.addRule(leftElementId, idAndScore.getId(), idAndScore.getScore());
+					}
+				}
+				this.ruleTable = builder.build(true);
+
 				logger.info("DirtDBRuleBase: Loading rule base from a serialization file done.");
 				logger.info("Done: initialization of DirtDBRuleBase. Memory used: "+Utils.stringMemoryUsedInMB());
 			}
@@ -177,7 +278,7 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 			{
 				input.close();
 			}
-		} 
+		}
 		catch (IOException e)
 		{
 			throw new RuleBaseException("Failed to load from ser file for rule base: "+ruleBaseName+".",e);
@@ -188,21 +289,29 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 		}
 	}
 
+	/**
+	 * Terminates the rule base. If the rule base was obtained by {@link #getShared(String, ConfigurationParams, PARSER)},
+	 * it is actually terminated only when all of its users have terminated it.
+	 */
 	public void terminate()
 	{
-		try
+		synchronized(sharedRuleBases)
 		{
-			if (logger.isDebugEnabled()){logger.debug("Terminating rule base: "+this.ruleBaseName);}
-			this.mapTemplateToId=null;
-			this.mapAllRules=null;
-			if (this.connection!=null)
-				this.connection.close();
-		}
-		catch (SQLException e)
-		{
-			logger.warn("Connection could not be closed for rule base: "+this.ruleBaseName);
+			--referenceCount;
+			if (referenceCount>0)
+			{
+				return;
+			}
+			if (sharedKey!=null)
+			{
+				sharedRuleBases.remove(sharedKey);
+			}
 		}
-		
+
+		if (logger.isDebugEnabled()){logger.debug("Terminating rule base: "+this.ruleBaseName);}
+		this.ruleTable=null;
+		if (this.connectionPool!=null)
+			this.connectionPool.close();
 	}
 
 	/**
@@ -307,32 +416,40 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 	protected Integer getIdForTemplate(String template) throws SQLException
 	{
 		Integer id = null;
-		if(mapTemplateToId!=null)
+		if(ruleTable!=null)
 		{
-			if (this.mapTemplateToId.leftContains(template))
+			int index = ruleTable.indexOf(template);
+			if (index>=0)
 			{
-				id = this.mapTemplateToId.leftGet(template);
+				id = ruleTable.getId(index);
 			}
 		}
 		else
 		{
-
-			statementIdForTemplate.setString(1, template);
-			ResultSet resultSet = statementIdForTemplate.executeQuery();
-			int numberOfIterations = 0;
-			while (resultSet.next())
+			DirtDBConnectionPool.PooledConnection pooledConnection = connectionPool.acquire();
+			try
 			{
-				if (0==numberOfIterations)
+				PreparedStatement statementIdForTemplate = pooledConnection.getStatementIdForTemplate();
+				statementIdForTemplate.setString(1, template);
+				ResultSet resultSet = statementIdForTemplate.executeQuery();
+				int numberOfIterations = 0;
+				while (resultSet.next())
 				{
-					id = resultSet.getInt("id");
+					if (0==numberOfIterations)
+					{
+						id = resultSet.getInt("id");
+					}
+					++numberOfIterations;
+				}
+				if (numberOfIterations>1)
+				{
+					logger.warn("More than one id for a single template in rule base: "+this.ruleBaseName+". Template was: "+template);
 				}
-				++numberOfIterations;
 			}
-			if (numberOfIterations>1)
+			finally
 			{
-				logger.warn("More than one id for a single template in rule base: "+this.ruleBaseName+". Template was: "+template);
+				connectionPool.release(pooledConnection);
 			}
-
 		}
 		return id;
 	}
@@ -350,129 +467,95 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 	 */
 	protected Set<RuleWithConfidenceAndDescription<Info, BasicNode>> getRulesOfId(String template, int id, ImmutableSet<String> hypothesisTemplates, Iterable<String> hypothesisWords) throws SQLException, TemplateToTreeException, RuleBaseException
 	{
-		if (mapAllRules!=null) // If the whole data-base was loaded to memory. IT IS NO LONGER USED.
+		Set<String> notYetHyothesisTemplates = null;
+		if (Constants.DIRT_LIKE_QUERY_RULE_ALSO_BY_HYPOTHESIS_TEMPLATES)
 		{
-			return getRulesOfIdUsingPreloadedRules(template,id,hypothesisTemplates, hypothesisWords);
+			notYetHyothesisTemplates = hypothesisTemplates.getMutableSetCopy();
 		}
-		else // The code that actually runs starts here:
+		TemplateToTree givenTemplateConverter = null;
+		Set<RuleWithConfidenceAndDescription<Info, BasicNode>> setRules =
+			new LinkedHashSet<RuleWithConfidenceAndDescription<Info,BasicNode>>();
+
+		// The right hand side of the rule can be represented as the template of the right-hand-side, and the rule's score.
+		Set<TemplateAndScore> rhsResults = getEntailedTemplates(template, id);
+		
+		// For each "right-hand-side" and "score" - we can build a rule, since we know the left-hand-side - it is the given template.
+		// So we have left-hand-side, we have right-hand-side, and we have a score.
+		for (TemplateAndScore templateAndScore : rhsResults)
 		{
-			Set<String> notYetHyothesisTemplates = null;
 			if (Constants.DIRT_LIKE_QUERY_RULE_ALSO_BY_HYPOTHESIS_TEMPLATES)
 			{
-				notYetHyothesisTemplates = hypothesisTemplates.getMutableSetCopy();
-			}
-			TemplateToTree givenTemplateConverter = null;
-			Set<RuleWithConfidenceAndDescription<Info, BasicNode>> setRules =
-				new LinkedHashSet<RuleWithConfidenceAndDescription<Info,BasicNode>>();
-
-			// The right hand side of the rule can be represented as the template of the right-hand-side, and the rule's score.
-			Set<TemplateAndScore> rhsResults;  
-			if (cache.containsKey(template)) // If the right-hand-side is already cached, use the cached right-hand-side.
-			{
-				rhsResults = cache.get(template);
-				if (logger.isDebugEnabled()){logger.debug(""+rhsResults.size()+" templates loaded from cache for template: "+template);}
+				notYetHyothesisTemplates.remove(templateAndScore.getTemplate());
 			}
-			else
+			
+			if (logger.isDebugEnabled()){logger.debug("Examining rule: "+template+" => "+templateAndScore.getTemplate());}
+			
+			// Here we filter the rules such that only rules with right-hand-side that matched the hypothesis-parse-tree
+			// are used.
+			boolean useThisTemplate = true;
+			if (Constants.DIRT_LIKE_FILTER_BY_HYPOTHESIS_TEMPLATES)
 			{
-				rhsResults = new LinkedHashSet<TemplateAndScore>();
-				
-				// Execute a query which returns all right-hand-sides of rules that have the given template as "left-hand-side".
-				// Remember that in the data-base the "right-hand-side" is stored in "left" column, and "left-hand-side" is stored
-				// in "right" column.
-				statementRuleForId.setInt(1, id);
-				ResultSet resultSet = statementRuleForId.executeQuery();
-				while (resultSet.next())
+				if (!hypothesisTemplates.contains(templateAndScore.getTemplate()))
 				{
-					// Get the template of the "right-hand-side"
-					String description = resultSet.getString("description");
-					// description = description.trim();
-					
-					// Get the score of the rule.
-					double score = resultSet.getDouble("score");
-					rhsResults.add(new TemplateAndScore(description, score));
+					if (logger.isDebugEnabled()){logger.debug("Filtered: "+templateAndScore.getTemplate());}
+					useThisTemplate = false;
 				}
-				cache.put(template, rhsResults);
-				if (logger.isDebugEnabled()){logger.debug(""+rhsResults.size()+" templates loaded from data-base for template"+template);}
 			}
-			
-			// For each "right-hand-side" and "score" - we can build a rule, since we know the left-hand-side - it is the given template.
-			// So we have left-hand-side, we have right-hand-side, and we have a score.
-			for (TemplateAndScore templateAndScore : rhsResults)
+			if (useThisTemplate)
 			{
-				if (Constants.DIRT_LIKE_QUERY_RULE_ALSO_BY_HYPOTHESIS_TEMPLATES)
-				{
-					notYetHyothesisTemplates.remove(templateAndScore.getTemplate());
-				}
-				
-				if (logger.isDebugEnabled()){logger.debug("Examining rule: "+template+" => "+templateAndScore.getTemplate());}
+				// Now, we will convert the left-hand-side template into a sub-parse-tree,
+				// and do the same for the right-hand-side template,
+				// and create a rule.
 				
-				// Here we filter the rules such that only rules with right-hand-side that matched the hypothesis-parse-tree
-				// are used.
-				boolean useThisTemplate = true;
-				if (Constants.DIRT_LIKE_FILTER_BY_HYPOTHESIS_TEMPLATES)
+				if (null==givenTemplateConverter) // Converting the left-hand-side can be done only once for all rules, since all of the rules have the same left-hand-side (which is the given template) 
 				{
-					if (!hypothesisTemplates.contains(templateAndScore.getTemplate()))
-					{
-						if (logger.isDebugEnabled()){logger.debug("Filtered: "+templateAndScore.getTemplate());}
-						useThisTemplate = false;
-					}
+					givenTemplateConverter=new TemplateToTree(template,parser);
+					givenTemplateConverter.createTree();
 				}
-				if (useThisTemplate)
+				// convert the right-hand-side template into a sub-parse-tree 
+				TemplateToTree entailedTemplateConverter = new TemplateToTree(templateAndScore.getTemplate(),parser);
+				entailedTemplateConverter.createTree();
+				
+				// Based on the constant, we might want to filter the rules such that only rules which have root-of-right-hand-side
+				// contained in the hypothesis will be used.
+				boolean useThisTemplate2 = true; // default- no filter by words.
+				if (Constants.DIRT_LIKE_FILTER_BY_HYPOTHESIS_WORDS)
 				{
-					// Now, we will convert the left-hand-side template into a sub-parse-tree,
-					// and do the same for the right-hand-side template,
-					// and create a rule.
-					
-					if (null==givenTemplateConverter) // Converting the left-hand-side can be done only once for all rules, since all of the rules have the same left-hand-side (which is the given template) 
-					{
-						givenTemplateConverter=new TemplateToTree(template,parser);
-						givenTemplateConverter.createTree();
-					}
-					// convert the right-hand-side template into a sub-parse-tree 
-					TemplateToTree entailedTemplateConverter = new TemplateToTree(templateAndScore.getTemplate(),parser);
-					entailedTemplateConverter.createTree();
-					
-					// Based on the constant, we might want to filter the rules such that only rules which have root-of-right-hand-side
-					// contained in the hypothesis will be used.
-					boolean useThisTemplate2 = true; // default- no filter by words.
-					if (Constants.DIRT_LIKE_FILTER_BY_HYPOTHESIS_WORDS)
-					{
-						String lemmaOfMainPredicateInRhsTemplate = getHighestLemmaOfTemplate(entailedTemplateConverter.getTree()); //was: = InfoGetFields.getLemma(entailedTemplateConverter.getTree().getInfo());
-						if (StringUtil.setContainsIgnoreCase(hypothesisWords, lemmaOfMainPredicateInRhsTemplate))
-						{
-							useThisTemplate2 = true;
-						}
-						else
-						{
-							useThisTemplate2 = false;
-						}
-					}
-					if (useThisTemplate2)
+					String lemmaOfMainPredicateInRhsTemplate = getHighestLemmaOfTemplate(entailedTemplateConverter.getTree()); //was: = InfoGetFields.getLemma(entailedTemplateConverter.getTree().getInfo());
+					if (StringUtil.setContainsIgnoreCase(hypothesisWords, lemmaOfMainPredicateInRhsTemplate))
 					{
-						logger.debug("YES! Template is relevant for the hypothesis");
-						setRules.add(
-								ruleFromTemplates(givenTemplateConverter,entailedTemplateConverter,templateAndScore.getScore()));
+						useThisTemplate2 = true;
 					}
 					else
 					{
-						logger.debug("NO! Template is irrelevant for the hypothesis");
+						useThisTemplate2 = false;
 					}
 				}
-			}
-			
-			// Get the top-K of the hypothesis-template.
-			if (Constants.DIRT_LIKE_QUERY_RULE_ALSO_BY_HYPOTHESIS_TEMPLATES)
-			{
-				if (null==givenTemplateConverter)
+				if (useThisTemplate2)
 				{
-					givenTemplateConverter=new TemplateToTree(template,parser);
-					givenTemplateConverter.createTree();
+					logger.debug("YES! Template is relevant for the hypothesis");
+					setRules.add(
+							ruleFromTemplates(givenTemplateConverter,entailedTemplateConverter,templateAndScore.getScore()));
+				}
+				else
+				{
+					logger.debug("NO! Template is irrelevant for the hypothesis");
 				}
-				setRules.addAll(getRulesByHypothesisTemplates(template, id, givenTemplateConverter, notYetHyothesisTemplates));
 			}
-
-			return setRules;
 		}
+		
+		// Get the top-K of the hypothesis-template.
+		if (Constants.DIRT_LIKE_QUERY_RULE_ALSO_BY_HYPOTHESIS_TEMPLATES)
+		{
+			if (null==givenTemplateConverter)
+			{
+				givenTemplateConverter=new TemplateToTree(template,parser);
+				givenTemplateConverter.createTree();
+			}
+			setRules.addAll(getRulesByHypothesisTemplates(template, id, givenTemplateConverter, notYetHyothesisTemplates));
+		}
+
+		return setRules;
 	}
 	
 	
@@ -517,88 +600,6 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 			return false;
 	}
 	
-	// Not used
-	protected Set<RuleWithConfidenceAndDescription<Info, BasicNode>> getRulesOfIdUsingPreloadedRules(String template, int id, ImmutableSet<String> hypothesisTemplates, Iterable<String> hypothesisWords) throws SQLException, TemplateToTreeException, RuleBaseException
-	{
-		
-		
-		TemplateToTree givenTemplateConverter = null;
-		Set<RuleWithConfidenceAndDescription<Info, BasicNode>> setRules =
-			new LinkedHashSet<RuleWithConfidenceAndDescription<Info,BasicNode>>();
-
-		if (!mapAllRules.containsKey(id))
-		{
-			// do nothing
-		}
-		else
-		{
-
-			Set<Integer> hypothesisTemplatesIds = new LinkedHashSet<Integer>();
-			for (String hypothesisTemplate : hypothesisTemplates)
-			{
-				if (mapTemplateToId.leftContains(hypothesisTemplate))
-				{
-					hypothesisTemplatesIds.add(mapTemplateToId.leftGet(hypothesisTemplate));
-				}
-			}
-
-			Set<IdAndScore> rightHandSidesFilteredByHypothesis = new LinkedHashSet<IdAndScore>();
-			if (Constants.DIRT_LIKE_FILTER_BY_HYPOTHESIS_TEMPLATES)
-			{
-				for (IdAndScore idAndScore : mapAllRules.get(id))
-				{
-					if (hypothesisTemplatesIds.contains(idAndScore.getId()))
-					{
-						rightHandSidesFilteredByHypothesis.add(idAndScore);
-					}
-				}
-			}
-			else
-			{
-				for (IdAndScore idAndScore : mapAllRules.get(id))
-				{
-					rightHandSidesFilteredByHypothesis.add(idAndScore);
-				}
-			}
-
-			for (IdAndScore idAndScore : rightHandSidesFilteredByHypothesis)
-			{
-				if (!mapTemplateToId.rightContains(idAndScore.getId())) throw new RuleBaseException("BUG in rule base "+this.ruleBaseName);
-				String rightHandSideTemplate = mapTemplateToId.rightGet(idAndScore.getId());
-				if (null==givenTemplateConverter)
-				{
-					givenTemplateConverter=new TemplateToTree(template,parser);
-					givenTemplateConverter.createTree();
-				}
-				if (logger.isDebugEnabled()){logger.debug("Found rule: "+template+" => "+rightHandSideTemplate);}
-				TemplateToTree entailedTemplateConverter = new TemplateToTree(rightHandSideTemplate,parser);
-				entailedTemplateConverter.createTree();
-
-				boolean useThisTemplate2 = true;
-				if (Constants.DIRT_LIKE_FILTER_BY_HYPOTHESIS_WORDS)
-				{
-					String lemmaOfMainPredicateInRhsTemplate = InfoGetFields.getLemma(entailedTemplateConverter.getTree().getInfo());
-					if (StringUtil.setContainsIgnoreCase(hypothesisWords, lemmaOfMainPredicateInRhsTemplate))
-					{
-						useThisTemplate2 = true;
-					}
-					else
-					{
-						useThisTemplate2 = false;
-					}
-				}
-				if (useThisTemplate2)
-				{
-					setRules.add(
-							ruleFromTemplates(givenTemplateConverter,entailedTemplateConverter,idAndScore.getScore()));
-				}
-			}
-		}
-		
-		return setRules;
-	}
-	
-	
 	/**
 	 * Gets two {@link TemplateToTree} objects that represent the left-hand-side and the
 	 * right-hand-side, and builds a rule.
@@ -641,46 +642,54 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 		return new RuleWithConfidenceAndDescription<Info, BasicNode>(rule,actualScore,description);
 	}
 	
-	protected void prepareStatements() throws SQLException
+	/**
+	 * Loads the templates, and optionally the rules, of the data-base into {@link #ruleTable}.
+	 */
+	protected void createRuleTable(boolean withRules) throws SQLException, RuleBaseException
 	{
-		// This query: Given a template - return its ID.
-		String queryIdForTemplate = "SELECT id FROM "+dbParameters.getTemplatesTableName()+" WHERE description = ?";
-		statementIdForTemplate = connection.prepareStatement(queryIdForTemplate);
-		
-		// This query: Given an ID - return all templates that are entailed by it (i.e. by the template whose ID is the given ID).
-		// The assumption is that "right" in the data-base entails "left".
-		// (Note: This query is complex, and might take long run-time.)
-		String queryRuleForId = "SELECT "+dbParameters.getTemplatesTableName()+".description, "+dbParameters.getRulesTableName()+".score " +
-				"FROM "+dbParameters.getTemplatesTableName()+", "+dbParameters.getRulesTableName()+" " +
-						"WHERE "+dbParameters.getRulesTableName()+".right_element_id=? AND "+dbParameters.getRulesTableName()+".left_element_id="+dbParameters.getTemplatesTableName()+".id " +
-								"ORDER BY "+dbParameters.getRulesTableName()+".score DESC LIMIT "+String.valueOf(dbParameters.getLimitNumberOfRules());
-		
-		statementRuleForId = connection.prepareStatement(queryRuleForId);
-		
-		if (Constants.DIRT_LIKE_QUERY_RULE_ALSO_BY_HYPOTHESIS_TEMPLATES)
+		DirtDBConnectionPool.PooledConnection pooledConnection = connectionPool.acquire();
+		try
 		{
-			String queryIdRightGivenIdLeft = "SELECT "+dbParameters.getRulesTableName()+".right_element_id, " + dbParameters.getRulesTableName()+".score " +
-					"FROM "+dbParameters.getRulesTableName()+" " +
-					"WHERE "+dbParameters.getRulesTableName()+".left_element_id=? " +
-					"ORDER BY "+dbParameters.getRulesTableName()+".score DESC LIMIT "+String.valueOf(dbParameters.getLimitNumberOfRules());
-
-			statementRightElementIdForGivenLeftElementId = connection.prepareStatement(queryIdRightGivenIdLeft);
+			WholeDBLoader loader = new WholeDBLoader(pooledConnection.getConnection(), this.dbParameters);
+			loader.createRuleTable(withRules);
+			this.ruleTable = loader.getRuleTable();
+		}
+		finally
+		{
+			connectionPool.release(pooledConnection);
 		}
 	}
 	
-	protected void createMapTemplateToId() throws SQLException, RuleBaseException
-	{
-		WholeDBLoader loader = new WholeDBLoader(this.connection, this.dbParameters);
-		loader.createMapTemplateToId();
-		this.mapTemplateToId = loader.getMapTemplateToId();
-	}
-	
-	// Not used
-	protected void createMapAllRules() throws SQLException
+	/**
+	 * Returns the right-hand-sides, and the scores, of the rules whose left-hand-side is the given template.
+	 * @param template a template.
+	 * @param id the ID of the given template.
+	 * @return the right-hand-sides of the rules whose left-hand-side is the given template.
+	 * @throws SQLException
+	 */
+	private Set<TemplateAndScore> getEntailedTemplates(String template, int id) throws SQLException
 	{
-		WholeDBLoader loader = new WholeDBLoader(this.connection, this.dbParameters);
-		loader.createMapAllRules();
-		this.mapAllRules = loader.getMapAllRules();
+		Set<TemplateAndScore> ret;
+		if ( (ruleTable!=null) && (ruleTable.hasRules()) )
+		{
+			ret = new LinkedHashSet<TemplateAndScore>();
+			int index = ruleTable.indexOf(template);
+			if (index>=0)
+			{
+				DirtRuleTable.Rules entailed = ruleTable.getEntailed(index);
+				for (int position=0;position<entailed.size();++position)
+				{
+					ret.add(new TemplateAndScore(ruleTable.getTemplate(entailed.getTemplateIndex(position)), entailed.getScore(position)));
+				}
+			}
+		}
+		else
+		{
+			// If the right-hand-side is already cached, use the cached right-hand-side.
+			ret = cache.get(id, queryForEntailedTemplates);
+		}
+		if (logger.isDebugEnabled()){logger.debug(""+ret.size()+" templates loaded for template: "+template);}
+		return ret;
 	}
 	
 	/**
@@ -741,44 +750,103 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 	 */
 	protected Set<IdAndScore> queryAllRulesForGivenHypothesisTemplate(String hypothesisTemplate) throws SQLException
 	{
-		Set<IdAndScore> results = null;  
-		if (cacheForHypothesisTemplates.containsKey(hypothesisTemplate))
+		return cacheForHypothesisTemplates.get(hypothesisTemplate, queryForHypothesisTemplate);
+	}
+	
+	/**
+	 * Returns a description of the hit-rate of the cache of hypothesis templates.
+	 * @return a description of the hit-rate of the cache of hypothesis templates.
+	 */
+	public String getHypothesisTemplatesCacheStatistics()
+	{
+		return cacheForHypothesisTemplates.getStatistics();
+	}
+	
+	private Set<IdAndScore> doQueryAllRulesForGivenHypothesisTemplate(String hypothesisTemplate) throws SQLException
+	{
+		Set<IdAndScore> results = new LinkedHashSet<IdAndScore>();
+		if ( (ruleTable!=null) && (ruleTable.hasRules()) )
 		{
-			results = cacheForHypothesisTemplates.get(hypothesisTemplate);
+			int index = ruleTable.indexOf(hypothesisTemplate);
+			if (index>=0)
+			{
+				DirtRuleTable.Rules entailing = ruleTable.getEntailing(index);
+				for (int position=0;position<entailing.size();++position)
+				{
+					results.add(new IdAndScore(ruleTable.getId(entailing.getTemplateIndex(position)), entailing.getScore(position)));
+				}
+			}
 		}
 		else
 		{
-			results = new LinkedHashSet<IdAndScore>();
 			Integer id = getIdForTemplate(hypothesisTemplate);
 			if (id != null)
 			{
-				statementRightElementIdForGivenLeftElementId.setInt(1, id);
-				ResultSet resultSet = statementRightElementIdForGivenLeftElementId.executeQuery();
-				while (resultSet.next())
+				DirtDBConnectionPool.PooledConnection pooledConnection = connectionPool.acquire();
+				try
+				{
+					PreparedStatement statementRightElementIdForGivenLeftElementId = pooledConnection.getStatementRightElementIdForGivenLeftElementId();
+					statementRightElementIdForGivenLeftElementId.setInt(1, id);
+					ResultSet resultSet = statementRightElementIdForGivenLeftElementId.executeQuery();
+					while (resultSet.next())
+					{
+						int idRightColumn = resultSet.getInt("right_element_id");
+						double score = resultSet.getDouble("score");
+						results.add(new IdAndScore(idRightColumn, score));
+					}
+				}
+				finally
 				{
-					int idRightColumn = resultSet.getInt("right_element_id");
-					double score = resultSet.getDouble("score");
-					results.add(new IdAndScore(idRightColumn, score));
+					connectionPool.release(pooledConnection);
 				}
 			}
-
-			cacheForHypothesisTemplates.put(hypothesisTemplate, results);
 		}
-		return results;
+		return Collections.unmodifiableSet(results);
 	}
-
-	private boolean constantsOK()
+	
+	/**
+	 * Executes a query which returns all right-hand-sides of rules that have the given template as "left-hand-side".
+	 */
+	private Set<TemplateAndScore> doQueryEntailedTemplates(int id) throws SQLException
 	{
-		boolean ret = true;
+		Set<TemplateAndScore> rhsResults = new LinkedHashSet<TemplateAndScore>();
 		
-		if (Constants.DIRT_LIKE_QUERY_RULE_ALSO_BY_HYPOTHESIS_TEMPLATES)
+		// Remember that in the data-base the "right-hand-side" is stored in "left" column, and "left-hand-side" is stored
+		// in "right" column.
+		DirtDBConnectionPool.PooledConnection pooledConnection = connectionPool.acquire();
+		try
 		{
-			if (Constants.DIRT_LIKE_LOAD_ALL_RULES_IN_ADVANCE)
+			PreparedStatement statementRuleForId = pooledConnection.getStatementRuleForId();
+			statementRuleForId.setInt(1, id);
+			ResultSet resultSet = statementRuleForId.executeQuery();
+			while (resultSet.next())
 			{
-				ret = false;
+				// Get the template of the "right-hand-side"
+				String description = resultSet.getString("description");
+				// description = description.trim();
+				
+				// Get the score of the rule.
+				double score = resultSet.getDouble("score");
+				rhsResults.add(new TemplateAndScore(description, score));
 			}
 		}
-		return ret;
+		finally
+		{
+			connectionPool.release(pooledConnection);
+		}
+		return Collections.unmodifiableSet(rhsResults);
+	}
+	
+	private static DirtDBConnectionPool createPool(Connection connection, String ruleBaseName, DistSimParameters dbParameters) throws RuleBaseException
+	{
+		try
+		{
+			return new DirtDBConnectionPool(connection, dbParameters);
+		}
+		catch (SQLException e)
+		{
+			throw new RuleBaseException("Data Base problem for rule base \""+ruleBaseName+"\"",e);
+		}
 	}
 	
 
@@ -812,35 +880,65 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 	/////////////////////// Fields //////////////////////////
 
 	protected final PARSER parser;
-	protected PreparedStatement statementIdForTemplate = null;
-	protected PreparedStatement statementRuleForId = null;
-	protected PreparedStatement statementRightElementIdForGivenLeftElementId = null;
 	
-	protected Connection connection=null;
+	/**
+	 * The connections to the data-base. <code>null</code> if the rules are taken from {@link #ruleTable}.
+	 */
+	protected DirtDBConnectionPool connectionPool=null;
 	protected String ruleBaseName=null;
 	protected DistSimParameters dbParameters=null;
 	
 	/**
-	 * Map from a template to its ID.
+	 * The templates (map from a template to its ID), and, if {@link DirtRuleTable#hasRules()}, also the rules.
+	 * <code>null</code> if neither is loaded in advance.
 	 */
-	protected BidirectionalMap<String, Integer> mapTemplateToId = null;
-	
-	protected ValueSetMap<Integer, IdAndScore> mapAllRules = null;
+	protected DirtRuleTable ruleTable = null;
 	
 	/**
-	 * A cache that stores sets of right-hand-sides for given left-hand-sides
+	 * A cache that stores sets of right-hand-sides for given left-hand-sides (given by their IDs).
+	 * Used only when the rules are taken from the data-base.
 	 */
-	private Cache<String, Set<TemplateAndScore>> cache =
-		new CacheFactory<String, Set<TemplateAndScore>>().getCache(Constants.DEFAULT_DIRT_LIKE_RESOURCES_CACHE_SIZE);
+	private final ComputeOnceCache<Integer, Set<TemplateAndScore>> cache =
+		new ComputeOnceCache<Integer, Set<TemplateAndScore>>(Constants.DEFAULT_DIRT_LIKE_RESOURCES_CACHE_SIZE);
+	
+	private final ComputeOnceCache.Computation<Integer, Set<TemplateAndScore>, SQLException> queryForEntailedTemplates =
+		new ComputeOnceCache.Computation<Integer, Set<TemplateAndScore>, SQLException>()
+		{
+			@Override
+			public Set<TemplateAndScore> compute(Integer id) throws SQLException
+			{
+				return doQueryEntailedTemplates(id);
+			}
+		};
 
 	
 	/**
-	 * A cache that stores sets of left-hand-sides for given right-hand-sides
+	 * A cache that stores sets of left-hand-sides for given right-hand-sides.
+	 * Each hypothesis template is queried only once, even if several threads
+	 * ask for it at the same time.
 	 */
-	private Cache<String, Set<IdAndScore>> cacheForHypothesisTemplates =
-		new CacheFactory<String, Set<IdAndScore>>().getCache(Constants.DEFAULT_DIRT_LIKE_RESOURCES_CACHE_SIZE);
+	private final ComputeOnceCache<String, Set<IdAndScore>> cacheForHypothesisTemplates =
+		new ComputeOnceCache<String, Set<IdAndScore>>(Constants.DEFAULT_DIRT_LIKE_RESOURCES_CACHE_SIZE);
+	
+	private final ComputeOnceCache.Computation<String, Set<IdAndScore>, SQLException> queryForHypothesisTemplate =
+		new ComputeOnceCache.Computation<String, Set<IdAndScore>, SQLException>()
+		{
+			@Override
+			public Set<IdAndScore> compute(String hypothesisTemplate) throws SQLException
+			{
+				return doQueryAllRulesForGivenHypothesisTemplate(hypothesisTemplate);
+			}
+		};
 
 	
+	/**
+	 * Set by {@link #getShared(String, ConfigurationParams, PARSER)}. Both fields are guarded by {@link #sharedRuleBases}.
+	 */
+	private String sharedKey = null;
+	private int referenceCount = 1;
+	
+	private static final Map<String, DirtDBRuleBase> sharedRuleBases = new LinkedHashMap<String, DirtDBRuleBase>();
+	
 	private static final Set<RuleWithConfidenceAndDescription<Info,BasicNode>> emptySetRules = new DummySet<RuleWithConfidenceAndDescription<Info,BasicNode>>();
 
 	private static final double CONSTANT_SCORE = Math.exp(-1.0);
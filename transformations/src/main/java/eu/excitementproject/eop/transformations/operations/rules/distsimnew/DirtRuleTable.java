@@ -0,0 +1,446 @@
+package eu.excitementproject.eop.transformations.operations.rules.distsimnew;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import eu.excitementproject.eop.common.codeannotations.ThreadSafe;
+import eu.excitementproject.eop.transformations.operations.rules.RuleBaseException;
+
+
+/**
+ * A read-only, in-memory representation of a DIRT-like data-base, stored in primitive arrays.
+ * <P>
+ * The templates are stored, sorted by their UTF-8 bytes, in one byte array, such that a template
+ * is found by binary search. Each template has an index (its position in the sorted order) and
+ * an ID (its ID in the data-base).
+ * The rules are stored twice, in compressed-sparse-row form: once grouped by the entailing
+ * template (the "right" column in the data-base), and once grouped by the entailed template (the
+ * "left" column in the data-base). Each group is sorted by descending score, and contains at most
+ * the top-K rules, where K is the limit-number-of-rules of the rule base.
+ * A table may contain only the templates, without the rules (see {@link #hasRules()}).
+ * <P>
+ * The table can be written to a binary snapshot file ({@link #writeSnapshot(File, int, String)}), and
+ * later be memory-mapped from that file ({@link #mapSnapshot(File, int, String)}), such that no data-base
+ * query and no de-serialization is required on startup. The header of the snapshot file records the
+ * limit-number-of-rules and the data-base (see {@link #dataBaseIdentity(String, String, String)}) from
+ * which the table was loaded, and a snapshot is mapped only for the same limit and data-base.
+ * <P>
+ * Since the table is never changed, one table can be used concurrently by all threads.
+ *
+ * @see DirtRuleTableBuilder
+ * @see DirtDBRuleBase
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+@ThreadSafe
+public class DirtRuleTable
+{
+	/**
+	 * The rules of one template: a list of other templates (given as indexes in the table) and scores.
+	 */
+	public static final class Rules
+	{
+		public int size()
+		{
+			return end-begin;
+		}
+
+		public int getTemplateIndex(int position)
+		{
+			return targets.get(begin+position);
+		}
+
+		public float getScore(int position)
+		{
+			return scores.get(begin+position);
+		}
+
+		private Rules(IntBuffer targets, FloatBuffer scores, int begin, int end)
+		{
+			this.targets = targets;
+			this.scores = scores;
+			this.begin = begin;
+			this.end = end;
+		}
+
+		private final IntBuffer targets;
+		private final FloatBuffer scores;
+		private final int begin;
+		private final int end;
+	}
+
+
+	/**
+	 * Returns a string that identifies the data-base from which a table is loaded.
+	 * @param dbUrl the URL of the data-base.
+	 * @param templatesTableName the name of the templates-table.
+	 * @param rulesTableName the name of the rules-table.
+	 */
+	public static String dataBaseIdentity(String dbUrl, String templatesTableName, String rulesTableName)
+	{
+		return dbUrl+"\n"+templatesTableName+"\n"+rulesTableName;
+	}
+
+	/**
+	 * Memory-maps a table from a snapshot file that was written by {@link #writeSnapshot(File, int, String)}.
+	 * @param snapshotFile the snapshot file.
+	 * @param limitNumberOfRules the limit-number-of-rules of the rule base. It must be equal to
+	 * the limit given when the snapshot was written.
+	 * @param dataBaseIdentity the data-base of the rule base (see {@link #dataBaseIdentity(String, String, String)}).
+	 * It must be equal to the data-base given when the snapshot was written.
+	 * @return the table.
+	 * @throws RuleBaseException if the file is not a valid snapshot file, or if it was
+	 * written for another limit-number-of-rules or another data-base.
+	 * @throws IOException
+	 */
+	public static DirtRuleTable mapSnapshot(File snapshotFile, int limitNumberOfRules, String dataBaseIdentity) throws RuleBaseException, IOException
+	{
+		RandomAccessFile randomAccessFile = new RandomAccessFile(snapshotFile, "r");
+		try
+		{
+			FileChannel channel = randomAccessFile.getChannel();
+			if (channel.size()<HEADER_SIZE) throw new RuleBaseException("Malformed snapshot file: "+snapshotFile.getPath());
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt()!=MAGIC) throw new RuleBaseException("Not a snapshot file of a DIRT-like rule base: "+snapshotFile.getPath());
+			int version = header.getInt();
+			if (version!=VERSION) throw new RuleBaseException("Unsupported version of snapshot file: "+version+" in file "+snapshotFile.getPath());
+			int snapshotLimitNumberOfRules = header.getInt();
+			int numberOfIdentityBytes = header.getInt();
+			int numberOfTemplates = header.getInt();
+			int numberOfTemplateBytes = header.getInt();
+			boolean withRules = (header.getInt()!=0);
+			int numberOfEntailedRules = header.getInt();
+			int numberOfEntailingRules = header.getInt();
+
+			SectionMapper mapper = new SectionMapper(channel, HEADER_SIZE, snapshotFile);
+			ByteBuffer identityBuffer = mapper.mapBytes(numberOfIdentityBytes);
+			byte[] identityBytes = new byte[numberOfIdentityBytes];
+			identityBuffer.get(identityBytes);
+			String snapshotDataBaseIdentity = new String(identityBytes, UTF8);
+			if (snapshotLimitNumberOfRules!=limitNumberOfRules)
+				throw new RuleBaseException("The snapshot file "+snapshotFile.getPath()+" was written with limit-number-of-rules "+snapshotLimitNumberOfRules+", but the rule base is configured with "+limitNumberOfRules+".");
+			if (!snapshotDataBaseIdentity.equals(dataBaseIdentity))
+				throw new RuleBaseException("The snapshot file "+snapshotFile.getPath()+" was written from another data-base than the data-base configured for the rule base.");
+
+			IntBuffer templateOffsets = mapper.mapInts(numberOfTemplates+1);
+			IntBuffer ids = mapper.mapInts(numberOfTemplates);
+			IntBuffer entailedOffsets = null;
+			IntBuffer entailedTargets = null;
+			FloatBuffer entailedScores = null;
+			IntBuffer entailingOffsets = null;
+			IntBuffer entailingTargets = null;
+			FloatBuffer entailingScores = null;
+			if (withRules)
+			{
+				entailedOffsets = mapper.mapInts(numberOfTemplates+1);
+				entailedTargets = mapper.mapInts(numberOfEntailedRules);
+				entailedScores = mapper.mapFloats(numberOfEntailedRules);
+				entailingOffsets = mapper.mapInts(numberOfTemplates+1);
+				entailingTargets = mapper.mapInts(numberOfEntailingRules);
+				entailingScores = mapper.mapFloats(numberOfEntailingRules);
+			}
+			ByteBuffer templateBytes = mapper.mapBytes(numberOfTemplateBytes);
+			if (mapper.getPosition()!=channel.size()) throw new RuleBaseException("Malformed snapshot file: "+snapshotFile.getPath());
+
+			// The mapping remains valid after the channel is closed.
+			return new DirtRuleTable(numberOfTemplates, templateBytes, templateOffsets, ids,
+					entailedOffsets, entailedTargets, entailedScores,
+					entailingOffsets, entailingTargets, entailingScores);
+		}
+		finally
+		{
+			randomAccessFile.close();
+		}
+	}
+
+
+	/**
+	 * Constructor used by {@link DirtRuleTableBuilder} and {@link #mapSnapshot(File, int, String)}.
+	 * The rule arrays are <code>null</code> if the table contains only templates.
+	 */
+	DirtRuleTable(int numberOfTemplates, ByteBuffer templateBytes,
+			IntBuffer templateOffsets, IntBuffer ids,
+			IntBuffer entailedOffsets, IntBuffer entailedTargets, FloatBuffer entailedScores,
+			IntBuffer entailingOffsets, IntBuffer entailingTargets, FloatBuffer entailingScores)
+	{
+		super();
+		this.numberOfTemplates = numberOfTemplates;
+		this.templateBytes = templateBytes;
+		this.templateOffsets = templateOffsets;
+		this.ids = ids;
+		this.entailedOffsets = entailedOffsets;
+		this.entailedTargets = entailedTargets;
+		this.entailedScores = entailedScores;
+		this.entailingOffsets = entailingOffsets;
+		this.entailingTargets = entailingTargets;
+		this.entailingScores = entailingScores;
+	}
+
+
+	/**
+	 * Returns the number of templates in the table.
+	 */
+	public int size()
+	{
+		return numberOfTemplates;
+	}
+
+	/**
+	 * Returns <code>true</code> if the table contains the rules, or <code>false</code>
+	 * if it contains only the templates.
+	 */
+	public boolean hasRules()
+	{
+		return (entailedOffsets!=null);
+	}
+
+	public int getNumberOfRules()
+	{
+		if (!hasRules()) return 0;
+		return entailedOffsets.get(numberOfTemplates);
+	}
+
+	/**
+	 * Returns the index of the given template in the table, or -1 if the table
+	 * does not contain it.
+	 * @param template a template.
+	 * @return the index of the given template in the table, or -1.
+	 */
+	public int indexOf(String template)
+	{
+		byte[] key = template.getBytes(UTF8);
+		int low = 0;
+		int high = numberOfTemplates-1;
+		while (low<=high)
+		{
+			int middle = (low+high)>>>1;
+			int comparison = compareTemplate(middle, key);
+			if (comparison<0)
+			{
+				low = middle+1;
+			}
+			else if (comparison>0)
+			{
+				high = middle-1;
+			}
+			else
+			{
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the template at the given index.
+	 */
+	public String getTemplate(int index)
+	{
+		int begin = templateOffsets.get(index);
+		int length = templateOffsets.get(index+1)-begin;
+		byte[] bytes = new byte[length];
+		for (int i=0;i<length;++i)
+		{
+			bytes[i] = templateBytes.get(begin+i);
+		}
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * Returns the data-base ID of the template at the given index.
+	 */
+	public int getId(int index)
+	{
+		return ids.get(index);
+	}
+
+	/**
+	 * Returns the templates entailed by the template at the given index, i.e., the
+	 * right-hand-sides of the rules whose left-hand-side is that template
+	 * (the rules in which it appears in the "right" column of the data-base).
+	 * @param index an index of a template.
+	 * @return the entailed templates and the scores of the rules, sorted by descending score.
+	 */
+	public Rules getEntailed(int index)
+	{
+		checkRules();
+		return new Rules(entailedTargets, entailedScores, entailedOffsets.get(index), entailedOffsets.get(index+1));
+	}
+
+	/**
+	 * Returns the templates that entail the template at the given index, i.e., the
+	 * left-hand-sides of the rules whose right-hand-side is that template
+	 * (the rules in which it appears in the "left" column of the data-base).
+	 * @param index an index of a template.
+	 * @return the entailing templates and the scores of the rules, sorted by descending score.
+	 */
+	public Rules getEntailing(int index)
+	{
+		checkRules();
+		return new Rules(entailingTargets, entailingScores, entailingOffsets.get(index), entailingOffsets.get(index+1));
+	}
+
+	/**
+	 * Writes this table to the given file, such that it can be loaded later by
+	 * {@link #mapSnapshot(File, int, String)}.
+	 * @param snapshotFile the file to write.
+	 * @param limitNumberOfRules the limit-number-of-rules with which this table was built.
+	 * @param dataBaseIdentity the data-base from which this table was loaded (see {@link #dataBaseIdentity(String, String, String)}).
+	 * @throws IOException
+	 */
+	public void writeSnapshot(File snapshotFile, int limitNumberOfRules, String dataBaseIdentity) throws IOException
+	{
+		byte[] identityBytes = dataBaseIdentity.getBytes(UTF8);
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(snapshotFile)));
+		try
+		{
+			int numberOfTemplateBytes = templateOffsets.get(numberOfTemplates);
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(limitNumberOfRules);
+			output.writeInt(identityBytes.length);
+			output.writeInt(numberOfTemplates);
+			output.writeInt(numberOfTemplateBytes);
+			output.writeInt(hasRules()?1:0);
+			output.writeInt(hasRules()?entailedOffsets.get(numberOfTemplates):0);
+			output.writeInt(hasRules()?entailingOffsets.get(numberOfTemplates):0);
+			output.write(identityBytes);
+
+			writeInts(output, templateOffsets, numberOfTemplates+1);
+			writeInts(output, ids, numberOfTemplates);
+			if (hasRules())
+			{
+				writeInts(output, entailedOffsets, numberOfTemplates+1);
+				writeInts(output, entailedTargets, entailedOffsets.get(numberOfTemplates));
+				writeFloats(output, entailedScores, entailedOffsets.get(numberOfTemplates));
+				writeInts(output, entailingOffsets, numberOfTemplates+1);
+				writeInts(output, entailingTargets, entailingOffsets.get(numberOfTemplates));
+				writeFloats(output, entailingScores, entailingOffsets.get(numberOfTemplates));
+			}
+			for (int index=0;index<numberOfTemplateBytes;++index)
+			{
+				output.writeByte(templateBytes.get(index));
+			}
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+
+
+
+	//////////////////////// PRIVATE ////////////////////////
+
+	/**
+	 * Maps consecutive sections of a snapshot file.
+	 * A section that exceeds the end of the file (or has a negative length) means that the file is malformed.
+	 */
+	private static final class SectionMapper
+	{
+		public SectionMapper(FileChannel channel, long position, File snapshotFile)
+		{
+			this.channel = channel;
+			this.position = position;
+			this.snapshotFile = snapshotFile;
+		}
+
+		public IntBuffer mapInts(int length) throws IOException, RuleBaseException
+		{
+			return map(((long)length)*4).asIntBuffer();
+		}
+
+		public FloatBuffer mapFloats(int length) throws IOException, RuleBaseException
+		{
+			return map(((long)length)*4).asFloatBuffer();
+		}
+
+		public ByteBuffer mapBytes(int length) throws IOException, RuleBaseException
+		{
+			return map(length);
+		}
+
+		public long getPosition()
+		{
+			return position;
+		}
+
+		private ByteBuffer map(long size) throws IOException, RuleBaseException
+		{
+			if ( (size<0) || (position+size>channel.size()) ) throw new RuleBaseException("Malformed snapshot file: "+snapshotFile.getPath());
+			ByteBuffer ret = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+			position += size;
+			return ret;
+		}
+
+		private final FileChannel channel;
+		private final File snapshotFile;
+		private long position;
+	}
+
+	/**
+	 * Compares the template at the given index with the given UTF-8 bytes, as unsigned bytes.
+	 */
+	private int compareTemplate(int index, byte[] key)
+	{
+		int begin = templateOffsets.get(index);
+		int length = templateOffsets.get(index+1)-begin;
+		int commonLength = Math.min(length, key.length);
+		for (int i=0;i<commonLength;++i)
+		{
+			int difference = (templateBytes.get(begin+i)&0xff)-(key[i]&0xff);
+			if (difference!=0) return difference;
+		}
+		return length-key.length;
+	}
+
+	private void checkRules()
+	{
+		if (!hasRules()) throw new IllegalStateException("The table contains only templates, without rules.");
+	}
+
+	private static void writeInts(DataOutputStream output, IntBuffer buffer, int length) throws IOException
+	{
+		for (int index=0;index<length;++index)
+		{
+			output.writeInt(buffer.get(index));
+		}
+	}
+
+	private static void writeFloats(DataOutputStream output, FloatBuffer buffer, int length) throws IOException
+	{
+		for (int index=0;index<length;++index)
+		{
+			output.writeFloat(buffer.get(index));
+		}
+	}
+
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final int MAGIC = 0x44495254; // "DIRT"
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 9*4;
+
+	// Only absolute get() methods are used, so the buffers can be read concurrently.
+	private final int numberOfTemplates;
+	private final ByteBuffer templateBytes;
+	private final IntBuffer templateOffsets;
+	private final IntBuffer ids;
+	private final IntBuffer entailedOffsets;
+	private final IntBuffer entailedTargets;
+	private final FloatBuffer entailedScores;
+	private final IntBuffer entailingOffsets;
+	private final IntBuffer entailingTargets;
+	private final FloatBuffer entailingScores;
+}
@@ -0,0 +1,288 @@
+package eu.excitementproject.eop.transformations.operations.rules.distsimnew;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.log4j.Logger;
+
+import eu.excitementproject.eop.common.codeannotations.NotThreadSafe;
+import eu.excitementproject.eop.transformations.operations.rules.RuleBaseException;
+
+
+/**
+ * Builds a {@link DirtRuleTable} from the rows of the templates-table and the rules-table
+ * of a DIRT-like data-base.
+ * <P>
+ * Usage: call {@link #addTemplate(int, String)} for each row of the templates-table, and
+ * {@link #addRule(int, int, double)} for each row of the rules-table (in any order), and
+ * then call {@link #build(boolean)}.
+ *
+ * @see WholeDBLoader#createRuleTable(boolean)
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+@NotThreadSafe
+public class DirtRuleTableBuilder
+{
+	/**
+	 * @param limitNumberOfRules the maximum number of rules stored for each template, in
+	 * each direction (like the "LIMIT" of the queries of {@link DirtDBRuleBase}).
+	 */
+	public DirtRuleTableBuilder(int limitNumberOfRules)
+	{
+		super();
+		this.limitNumberOfRules = limitNumberOfRules;
+	}
+
+	/**
+	 * Adds a row of the templates-table. Rows with an empty description are ignored, since they
+	 * represent duplicates of another row (see {@link WholeDBLoader#createMapTemplateToId()}).
+	 */
+	public void addTemplate(int id, String description)
+	{
+		if (description.isEmpty()) return;
+		if (numberOfTemplates==templateIds.length)
+		{
+			templateIds = Arrays.copyOf(templateIds, 2*templateIds.length);
+			templateBytes = Arrays.copyOf(templateBytes, 2*templateBytes.length);
+		}
+		templateIds[numberOfTemplates] = id;
+		templateBytes[numberOfTemplates] = description.getBytes(DirtRuleTable.UTF8);
+		++numberOfTemplates;
+	}
+
+	/**
+	 * Adds a row of the rules-table. Note that in the data-base the template in the "right" column
+	 * entails the template in the "left" column.
+	 */
+	public void addRule(int leftElementId, int rightElementId, double score)
+	{
+		if (numberOfRules==ruleLeftIds.length)
+		{
+			ruleLeftIds = Arrays.copyOf(ruleLeftIds, 2*ruleLeftIds.length);
+			ruleRightIds = Arrays.copyOf(ruleRightIds, 2*ruleRightIds.length);
+			ruleScores = Arrays.copyOf(ruleScores, 2*ruleScores.length);
+		}
+		ruleLeftIds[numberOfRules] = leftElementId;
+		ruleRightIds[numberOfRules] = rightElementId;
+		ruleScores[numberOfRules] = (float)score;
+		++numberOfRules;
+	}
+
+	/**
+	 * Builds the table.
+	 * @param withRules if <code>false</code>, the table contains only the templates.
+	 * @return the table.
+	 * @throws RuleBaseException if a template appears more than once.
+	 */
+	public DirtRuleTable build(boolean withRules) throws RuleBaseException
+	{
+		// Sort the templates by their UTF-8 bytes.
+		Integer[] order = new Integer[numberOfTemplates];
+		for (int index=0;index<numberOfTemplates;++index) {order[index]=index;}
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer o1, Integer o2)
+			{
+				return compareBytes(templateBytes[o1], templateBytes[o2]);
+			}
+		});
+
+		int totalBytes = 0;
+		for (int index=0;index<numberOfTemplates;++index)
+		{
+			if ( (index>0) && (0==compareBytes(templateBytes[order[index-1]],templateBytes[order[index]])) )
+				throw new RuleBaseException("Malformed rule base. Template "+new String(templateBytes[order[index]],DirtRuleTable.UTF8)+" appears more than once.");
+			totalBytes += templateBytes[order[index]].length;
+		}
+
+		byte[] bytes = new byte[totalBytes];
+		int[] templateOffsets = new int[numberOfTemplates+1];
+		int[] ids = new int[numberOfTemplates];
+		// Each element is an ID (high 32 bits) and an index (low 32 bits), such that sorting gives a map from IDs to indexes.
+		long[] idsAndIndexes = new long[numberOfTemplates];
+		int offset = 0;
+		for (int index=0;index<numberOfTemplates;++index)
+		{
+			byte[] template = templateBytes[order[index]];
+			System.arraycopy(template, 0, bytes, offset, template.length);
+			templateOffsets[index] = offset;
+			offset += template.length;
+			ids[index] = templateIds[order[index]];
+			idsAndIndexes[index] = (((long)ids[index])<<32) | index;
+		}
+		templateOffsets[numberOfTemplates] = offset;
+		Arrays.sort(idsAndIndexes);
+
+		Rows entailed = null;
+		Rows entailing = null;
+		if (withRules)
+		{
+			int[] rights = new int[numberOfRules];
+			int[] lefts = new int[numberOfRules];
+			int numberOfKnownRules = 0;
+			for (int ruleIndex=0;ruleIndex<numberOfRules;++ruleIndex)
+			{
+				int left = indexOfId(idsAndIndexes, ruleLeftIds[ruleIndex]);
+				int right = indexOfId(idsAndIndexes, ruleRightIds[ruleIndex]);
+				lefts[ruleIndex] = left;
+				rights[ruleIndex] = right;
+				if ( (left>=0) && (right>=0) ) ++numberOfKnownRules;
+			}
+			if (numberOfKnownRules<numberOfRules)
+			{
+				logger.warn((numberOfRules-numberOfKnownRules)+" rules refer to templates that do not exist in the templates-table. They are ignored.");
+			}
+
+			entailed = buildRows(rights, lefts);
+			entailing = buildRows(lefts, rights);
+		}
+
+		DirtRuleTable ret = new DirtRuleTable(numberOfTemplates, ByteBuffer.wrap(bytes),
+				IntBuffer.wrap(templateOffsets), IntBuffer.wrap(ids),
+				withRules?IntBuffer.wrap(entailed.offsets):null, withRules?IntBuffer.wrap(entailed.targets):null, withRules?FloatBuffer.wrap(entailed.scores):null,
+				withRules?IntBuffer.wrap(entailing.offsets):null, withRules?IntBuffer.wrap(entailing.targets):null, withRules?FloatBuffer.wrap(entailing.scores):null);
+		if (logger.isDebugEnabled()){logger.debug("Rule table built: "+ret.size()+" templates, "+ret.getNumberOfRules()+" rules.");}
+		return ret;
+	}
+
+
+
+	//////////////////////// PRIVATE ////////////////////////
+
+	private static final class Rows
+	{
+		public Rows(int[] offsets, int[] targets, float[] scores)
+		{
+			this.offsets = offsets;
+			this.targets = targets;
+			this.scores = scores;
+		}
+		private final int[] offsets;
+		private final int[] targets;
+		private final float[] scores;
+	}
+
+	/**
+	 * Builds compressed-sparse-rows, in which the rows are the given keys, and each row contains
+	 * the top-K values, sorted by descending score. Rules with an unknown key or value (-1) are ignored.
+	 */
+	private Rows buildRows(int[] keys, final int[] values)
+	{
+		int[] counts = new int[numberOfTemplates+1];
+		for (int ruleIndex=0;ruleIndex<numberOfRules;++ruleIndex)
+		{
+			if ( (keys[ruleIndex]>=0) && (values[ruleIndex]>=0) )
+			{
+				counts[keys[ruleIndex]+1]++;
+			}
+		}
+		for (int index=0;index<numberOfTemplates;++index)
+		{
+			counts[index+1] += counts[index];
+		}
+		Integer[] rulesByKey = new Integer[counts[numberOfTemplates]];
+		int[] next = Arrays.copyOf(counts, numberOfTemplates);
+		for (int ruleIndex=0;ruleIndex<numberOfRules;++ruleIndex)
+		{
+			if ( (keys[ruleIndex]>=0) && (values[ruleIndex]>=0) )
+			{
+				rulesByKey[next[keys[ruleIndex]]++] = ruleIndex;
+			}
+		}
+
+		Comparator<Integer> byDescendingScore = new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer o1, Integer o2)
+			{
+				int ret = Float.compare(ruleScores[o2], ruleScores[o1]);
+				if (0==ret)
+				{
+					ret = Integer.compare(values[o1], values[o2]);
+				}
+				return ret;
+			}
+		};
+
+		int[] offsets = new int[numberOfTemplates+1];
+		int total = 0;
+		for (int index=0;index<numberOfTemplates;++index)
+		{
+			offsets[index] = total;
+			total += Math.min(counts[index+1]-counts[index], limitNumberOfRules);
+		}
+		offsets[numberOfTemplates] = total;
+
+		int[] targets = new int[total];
+		float[] scores = new float[total];
+		for (int index=0;index<numberOfTemplates;++index)
+		{
+			Arrays.sort(rulesByKey, counts[index], counts[index+1], byDescendingScore);
+			int length = offsets[index+1]-offsets[index];
+			for (int position=0;position<length;++position)
+			{
+				int ruleIndex = rulesByKey[counts[index]+position];
+				targets[offsets[index]+position] = values[ruleIndex];
+				scores[offsets[index]+position] = ruleScores[ruleIndex];
+			}
+		}
+		return new Rows(offsets, targets, scores);
+	}
+
+	private static int indexOfId(long[] idsAndIndexes, int id)
+	{
+		int low = 0;
+		int high = idsAndIndexes.length-1;
+		while (low<=high)
+		{
+			int middle = (low+high)>>>1;
+			int middleId = (int)(idsAndIndexes[middle]>>32);
+			if (middleId<id)
+			{
+				low = middle+1;
+			}
+			else if (middleId>id)
+			{
+				high = middle-1;
+			}
+			else
+			{
+				return (int)(idsAndIndexes[middle]&0xffffffffL);
+			}
+		}
+		return -1;
+	}
+
+	private static int compareBytes(byte[] bytes1, byte[] bytes2)
+	{
+		int commonLength = Math.min(bytes1.length, bytes2.length);
+		for (int index=0;index<commonLength;++index)
+		{
+			int difference = (bytes1[index]&0xff)-(bytes2[index]&0xff);
+			if (difference!=0) return difference;
+		}
+		return bytes1.length-bytes2.length;
+	}
+
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final int limitNumberOfRules;
+
+	private int numberOfTemplates = 0;
+	private int[] templateIds = new int[INITIAL_CAPACITY];
+	private byte[][] templateBytes = new byte[INITIAL_CAPACITY][];
+
+	private int numberOfRules = 0;
+	private int[] ruleLeftIds = new int[INITIAL_CAPACITY];
+	private int[] ruleRightIds = new int[INITIAL_CAPACITY];
+	private float[] ruleScores = new float[INITIAL_CAPACITY];
+
+	private static final Logger logger = Logger.getLogger(DirtRuleTableBuilder.class);
+}
@@ -30,13 +30,17 @@ import eu.excitementproject.eop.common.utilities.log4j.BasicVerySimpleLoggerInit
 import eu.excitementproject.eop.transformations.operations.rules.RuleBaseException;
 import eu.excitementproject.eop.transformations.operations.rules.distsim.DistSimParameters;
 import eu.excitementproject.eop.transformations.utilities.Constants;
+import eu.excitementproject.eop.transformations.utilities.TransformationsConfigurationParametersNames;
 
 /**
  * Loads the whole data-base of a DIRT-like rules.
  * <P>
- * <B> !!! Note that it is no longer used !!! </B><BR>
+ * <B> !!! Note that the maps ({@link #createMapTemplateToId()} and {@link #createMapAllRules()}) are no longer used !!! </B><BR>
  * It takes a very long time to load the whole DB.
  * I wrote it just to test whether it improves performance.
+ * <BR>
+ * {@link DirtDBRuleBase} uses {@link #createRuleTable(boolean)}, which loads the DB into a compact
+ * {@link DirtRuleTable}.
  * 
  * @author Asher Stern
  * @since Dec 6, 2011
@@ -127,6 +131,42 @@ public class WholeDBLoader
 		}
 	}
 	
+	/**
+	 * Loads the templates-table, and optionally also the rules-table, into a {@link DirtRuleTable}.
+	 * Unlike {@link #createMapAllRules()}, the rules-table is read by one query.
+	 * @param withRules if <code>false</code>, only the templates-table is loaded.
+	 * @throws SQLException
+	 * @throws RuleBaseException
+	 */
+	public void createRuleTable(boolean withRules) throws SQLException, RuleBaseException
+	{
+		DirtRuleTableBuilder builder = new DirtRuleTableBuilder(dbParameters.getLimitNumberOfRules());
+		Statement statement = connection.createStatement();
+		try
+		{
+			logger.debug("Loading all templates...");
+			ResultSet resultSet = statement.executeQuery("SELECT id,description FROM "+dbParameters.getTemplatesTableName());
+			while (resultSet.next())
+			{
+				builder.addTemplate(resultSet.getInt("id"), resultSet.getString("description"));
+			}
+			if (withRules)
+			{
+				logger.debug("Loading all rules...");
+				resultSet = statement.executeQuery("SELECT left_element_id,right_element_id,score FROM "+dbParameters.getRulesTableName());
+				while (resultSet.next())
+				{
+					builder.addRule(resultSet.getInt("left_element_id"), resultSet.getInt("right_element_id"), resultSet.getDouble("score"));
+				}
+			}
+		}
+		finally
+		{
+			statement.close();
+		}
+		ruleTable = builder.build(withRules);
+	}
+	
 	public BidirectionalMap<String, Integer> getMapTemplateToId()
 	{
 		return mapTemplateToId;
@@ -135,10 +175,16 @@ public class WholeDBLoader
 	{
 		return mapAllRules;
 	}
+	public DirtRuleTable getRuleTable()
+	{
+		return ruleTable;
+	}
 	
 	/**
-	 * Stores DB in one serialization file
-	 * @param args
+	 * Stores DB in one serialization file, or, if the fourth argument is "binary", in
+	 * a binary snapshot file of {@link DirtRuleTable}, which can be given to {@link DirtDBRuleBase}
+	 * by the configuration parameter {@link TransformationsConfigurationParametersNames#DIRT_LIKE_BINARY_SNAPSHOT_PARAMETER_NAME}.
+	 * @param args configuration-file module output-file [binary]
 	 */
 	public static void main(String[] args)
 	{
@@ -162,6 +208,12 @@ public class WholeDBLoader
 			DistSimParameters distSimParameters = new DistSimParameters(templates, rules, limit, Constants.DEFAULT_DIRT_LIKE_RESOURCES_CACHE_SIZE, Constants.DEFAULT_DIRT_LIKE_RESOURCES_CACHE_SIZE);
 
 			WholeDBLoader loader = new WholeDBLoader(connection, distSimParameters);
+			if ( (args.length>3) && (args[3].equals("binary")) )
+			{
+				loader.createRuleTable(true);
+				loader.getRuleTable().writeSnapshot(new File(serFileName), limit, DirtRuleTable.dataBaseIdentity(dbUrl, templates, rules));
+				return;
+			}
 			loader.createMapTemplateToId();
 			loader.createMapAllRules();
 			
@@ -193,6 +245,7 @@ public class WholeDBLoader
 	
 	protected BidirectionalMap<String, Integer> mapTemplateToId = null;
 	protected ValueSetMap<Integer, IdAndScore> mapAllRules;
+	protected DirtRuleTable ruleTable = null;
 	
 	private static final Logger logger = Logger.getLogger(WholeDBLoader.class);
 }
@@ -1,15 +1,23 @@
 package eu.excitementproject.eop.transformations.operations.rules.lexical;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPosQuery;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceCloseException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceUtils;
 import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
 import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
 import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSetWrapper;
 import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.transformations.datastructures.LemmaAndPos;
 import eu.excitementproject.eop.transformations.operations.rules.ByLemmaPosLexicalRuleBase;
 import eu.excitementproject.eop.transformations.operations.rules.ByLemmaPosLexicalRuleBaseWithCache;
 import eu.excitementproject.eop.transformations.operations.rules.LexicalRule;
@@ -24,6 +32,8 @@ import eu.excitementproject.eop.transformations.utilities.Constants;
  * While the "common" project defines {@link LexicalResource}, BIUTEE uses another
  * interface, {@link ByLemmaPosLexicalRuleBase}.
  * This class wraps a {@link LexicalResource} as a {@link ByLemmaPosLexicalRuleBase}.
+ * Rules of many left-hand-sides are retrieved by one call to the {@link BulkLexicalResource}
+ * methods, if the resource implements them.
  * 
  * @author Asher Stern
  * @since Mar 1, 2012
@@ -49,29 +59,35 @@ public class LexicalResourceWrapper extends ByLemmaPosLexicalRuleBaseWithCache<L
 	{
 		try
 		{
-			List<? extends eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>> rulesFromResource =
-					realLexicalResource.getRulesForLeft(lhsLemma, lhsPos);
-			Set<LexicalRule> ret = new LinkedHashSet<LexicalRule>();
-			if (rulesFromResource!=null)
+			return convertRules(realLexicalResource.getRulesForLeft(lhsLemma, lhsPos));
+		}
+		catch (LexicalResourceException e)
+		{
+			throw new RuleBaseException("Lexical resource failure. See nested exception.",e);
+		}
+	}
+	
+	@Override
+	protected Map<LemmaAndPos, ImmutableSet<LexicalRule>> getRulesNotInCache(Collection<LemmaAndPos> lhsLemmasAndPoses) throws RuleBaseException
+	{
+		try
+		{
+			List<LemmaPosQuery> queries = new ArrayList<LemmaPosQuery>(lhsLemmasAndPoses.size());
+			for (LemmaAndPos lemmaAndPos : lhsLemmasAndPoses)
 			{
-				for (eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo> ruleFromResource : rulesFromResource)
-				{
-					double confidence = 0.0;
-					if (Constants.LEXICAL_RESOURCES_USE_CONSTANT_SCORE_FOR_ALL_RULES)
-					{
-						confidence = Constants.LEXICAL_RESOURCE_CONSTANT_SCORE_WHEN_USING_CONSTANT_SCORE;
-					}
-					else
-					{
-						confidence = ruleFromResource.getConfidence();
-					}
-					if ( (confidence<=0) || (confidence >= 1) ) throw new RuleBaseException("Bad confidence for rule from "+this.realLexicalResource.getClass().getSimpleName()+". The confidene is: "+String.format("%-4.4f", confidence));
-					
-					ret.add(new LexicalRule(ruleFromResource.getLLemma(), ruleFromResource.getLPos(), ruleFromResource.getRLemma(), ruleFromResource.getRPos(), confidence));
-				}
+				queries.add(new LemmaPosQuery(lemmaAndPos.getLemma(), lemmaAndPos.getPartOfSpeech()));
 			}
+			Map<LemmaPosQuery, ? extends List<? extends eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>>> rulesFromResource =
+					getRulesForLeft(realLexicalResource, queries);
 			
-			return new ImmutableSetWrapper<LexicalRule>(ret);
+			Map<LemmaAndPos, ImmutableSet<LexicalRule>> ret = new LinkedHashMap<LemmaAndPos, ImmutableSet<LexicalRule>>();
+			int index = 0;
+			for (LemmaAndPos lemmaAndPos : lhsLemmasAndPoses)
+			{
+				ret.put(lemmaAndPos, convertRules(rulesFromResource.get(queries.get(index))));
+				++index;
+			}
+			return ret;
 		}
 		catch (LexicalResourceException e)
 		{
@@ -79,5 +95,35 @@ public class LexicalResourceWrapper extends ByLemmaPosLexicalRuleBaseWithCache<L
 		}
 	}
 	
+	private static <I extends RuleInfo> Map<LemmaPosQuery, List<eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends I>>> getRulesForLeft(LexicalResource<I> lexicalResource, List<LemmaPosQuery> queries) throws LexicalResourceException
+	{
+		return LexicalResourceUtils.getRulesForLeft(lexicalResource, queries);
+	}
+	
+	private ImmutableSet<LexicalRule> convertRules(List<? extends eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>> rulesFromResource) throws RuleBaseException
+	{
+		Set<LexicalRule> ret = new LinkedHashSet<LexicalRule>();
+		if (rulesFromResource!=null)
+		{
+			for (eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo> ruleFromResource : rulesFromResource)
+			{
+				double confidence = 0.0;
+				if (Constants.LEXICAL_RESOURCES_USE_CONSTANT_SCORE_FOR_ALL_RULES)
+				{
+					confidence = Constants.LEXICAL_RESOURCE_CONSTANT_SCORE_WHEN_USING_CONSTANT_SCORE;
+				}
+				else
+				{
+					confidence = ruleFromResource.getConfidence();
+				}
+				if ( (confidence<=0) || (confidence >= 1) ) throw new RuleBaseException("Bad confidence for rule from "+this.realLexicalResource.getClass().getSimpleName()+". The confidene is: "+String.format("%-4.4f", confidence));
+				
+				ret.add(new LexicalRule(ruleFromResource.getLLemma(), ruleFromResource.getLPos(), ruleFromResource.getRLemma(), ruleFromResource.getRPos(), confidence));
+			}
+		}
+		
+		return new ImmutableSetWrapper<LexicalRule>(ret);
+	}
+	
 	protected LexicalResource<? extends RuleInfo> realLexicalResource;
 }
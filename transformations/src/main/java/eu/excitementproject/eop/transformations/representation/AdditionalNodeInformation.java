@@ -9,6 +9,7 @@ import eu.excitementproject.eop.transformations.representation.annotations.Predi
 import eu.excitementproject.eop.transformations.representation.srl_informations.SemanticRoleLabelSet;
 import eu.excitementproject.eop.transformations.representation.srl_informations.SrlPredicateId;
 import eu.excitementproject.eop.transformations.utilities.parsetreeutils.ContentAncestorSetter;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TraceAndContentAncestorSetter;
 
 /**
  * 
@@ -32,6 +33,8 @@ import eu.excitementproject.eop.transformations.utilities.parsetreeutils.Content
  * <LI>Add it to the copy constructor</LI>
  * <LI>Add a special constructor for setting this field only</LI>
  * <LI>Add a set method to {@link AdditionalInformationServices}</LI>
+ * <LI>Add it to {@link #hashCode()} and to {@link #equalsIgnoringContentAncestorAndTrace(AdditionalNodeInformation)}
+ * (which is used by {@link #equals(Object)})</LI>
  * </OL>
  * 
  * 
@@ -373,14 +376,42 @@ public class AdditionalNodeInformation implements Serializable
 		if (getClass() != obj.getClass())
 			return false;
 		AdditionalNodeInformation other = (AdditionalNodeInformation) obj;
-		if (clauseTruth != other.clauseTruth)
-			return false;
 		if (contentAncestor == null)
 		{
 			if (other.contentAncestor != null)
 				return false;
 		} else if (!contentAncestor.equals(other.contentAncestor))
 			return false;
+		if (originalInfoTrace == null)
+		{
+			if (other.originalInfoTrace != null)
+				return false;
+		} else if (!originalInfoTrace.equals(other.originalInfoTrace))
+			return false;
+		return equalsIgnoringContentAncestorAndTrace(other);
+	}
+	
+	/**
+	 * Returns true if the given {@link AdditionalNodeInformation} is equal to this one
+	 * in all the fields, except the content-ancestor and the {@link OriginalInfoTrace}.
+	 * <P>
+	 * These two fields refer to other nodes, and are set to a generated tree after
+	 * it is created (see {@link TraceAndContentAncestorSetter}), so they are ignored
+	 * when comparing the contents of the nodes.
+	 * 
+	 * @param other an {@link AdditionalNodeInformation}, or <code>null</code>
+	 * @return true if all the other fields are equal
+	 */
+	public boolean equalsIgnoringContentAncestorAndTrace(AdditionalNodeInformation other)
+	{
+		if (this == other)
+			return true;
+		if (other == null)
+			return false;
+		if (getClass() != other.getClass())
+			return false;
+		if (clauseTruth != other.clauseTruth)
+			return false;
 		if (corefGroupId == null)
 		{
 			if (other.corefGroupId != null)
@@ -391,12 +422,6 @@ public class AdditionalNodeInformation implements Serializable
 			return false;
 		if (negationAndUncertainty != other.negationAndUncertainty)
 			return false;
-		if (originalInfoTrace == null)
-		{
-			if (other.originalInfoTrace != null)
-				return false;
-		} else if (!originalInfoTrace.equals(other.originalInfoTrace))
-			return false;
 		if (predTruth != other.predTruth)
 			return false;
 		if (predicateSignature != other.predicateSignature)
@@ -48,6 +48,12 @@ public class Constants
 
 	public static final int DEFAULT_LEXICAL_RESOURCES_CACHE_SIZE = 100000;
 	public static final int DEFAULT_DIRT_LIKE_RESOURCES_CACHE_SIZE = 100000;
+	
+	/**
+	 * The maximum number of data-base connections opened by a DIRT-like rule base, unless
+	 * specified otherwise in the configuration file.
+	 */
+	public static final int DEFAULT_DIRT_LIKE_NUMBER_OF_CONNECTIONS = 4;
 
 	
 	public static final int TEMPLATES_FROM_TREE_CACHE_SIZE = 1000;
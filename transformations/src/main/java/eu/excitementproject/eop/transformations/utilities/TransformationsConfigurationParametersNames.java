@@ -82,6 +82,10 @@ public class TransformationsConfigurationParametersNames
 	public static final String LIMIT_NUMBER_OF_RULES = "limit_number_of_rules";
 	@ConfigurationDirtParameterAnnotation(mandatoryLevel=MandatoryLevel.IGNORE)
 	public static final String DIRT_LIKE_SER_FILE_PARAMETER_NAME = "serialization_file";
+	@ConfigurationDirtParameterAnnotation(mandatoryLevel=MandatoryLevel.OPTIONAL)
+	public static final String DIRT_LIKE_BINARY_SNAPSHOT_PARAMETER_NAME = "binary_snapshot_file";
+	@ConfigurationDirtParameterAnnotation(mandatoryLevel=MandatoryLevel.OPTIONAL)
+	public static final String DIRT_LIKE_NUMBER_OF_CONNECTIONS_PARAMETER_NAME = "number_of_connections";
 	
 	@ConfigurationKnowledgeParameterAnnotation(knowledgeResources=KnowledgeResource.SYNTACTIC)
 	public static final String SYNTACTIC_RULES_FILE = "syntactic_rules_file";
@@ -135,7 +135,11 @@ public class ContentAncestorSetter
 		}
 	}
 	
-	private boolean isContent(ExtendedNode node)
+	/**
+	 * Returns <tt>true</tt> if the given node is a content-word, i.e., its part-of-speech
+	 * is one of {@link #contentPoses}.
+	 */
+	public static boolean isContent(ExtendedNode node)
 	{
 		return contentPoses.contains(
 				SimplerPosTagConvertor.simplerPos(
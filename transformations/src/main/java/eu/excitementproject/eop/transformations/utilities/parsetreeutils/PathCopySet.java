@@ -0,0 +1,126 @@
+package eu.excitementproject.eop.transformations.utilities.parsetreeutils;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import eu.excitementproject.eop.common.representation.parse.tree.AbstractNode;
+
+
+/**
+ * Given a tree, and some of its nodes which are about to be changed, this class
+ * calculates which nodes have to be copied in order to create the changed tree,
+ * such that all the other nodes can be shared by the original tree and the changed tree.
+ * <P>
+ * A node has to be copied if:
+ * <OL>
+ * <LI>It is one of the changed nodes, or</LI>
+ * <LI>One of its children has to be copied (i.e., all the nodes in the path from
+ * the root to a changed node are copied), or</LI>
+ * <LI>Its antecedent has to be copied (since the antecedent of the copy should
+ * refer to a node in the new tree).</LI>
+ * </OL>
+ * Consequently, each node that does not have to be copied is the root of a sub-tree
+ * that is identical in the original tree and in the changed tree.
+ * <P>
+ * Note that the shared sub-trees must not be changed. The nodes of the generated
+ * trees should be treated as immutable.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ * @param <T>
+ * @param <S>
+ */
+public class PathCopySet<T, S extends AbstractNode<T, S>>
+{
+	public PathCopySet(S tree, Collection<S> changedNodes)
+	{
+		this.tree = tree;
+		this.nodesToCopy = new LinkedHashSet<S>();
+		for (S changedNode : changedNodes)
+		{
+			if (changedNode!=null)
+			{
+				nodesToCopy.add(changedNode);
+			}
+		}
+
+		// The first pass marks all the paths from the root to the changed nodes.
+		// Antecedents might refer to any node in the tree, so if there are
+		// antecedents, the marking is repeated until no new node is marked.
+		boolean changed = mark(tree);
+		while (changed && antecedentsExist)
+		{
+			changed = mark(tree);
+		}
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the given node has to be copied.
+	 * @param node a node in the tree given in the constructor
+	 * @return <tt>true</tt> if the given node has to be copied.
+	 */
+	public boolean mustCopy(S node)
+	{
+		return nodesToCopy.contains(node);
+	}
+
+	/**
+	 * Returns the set of nodes that have to be copied.
+	 * @return the set of nodes that have to be copied.
+	 */
+	public Set<S> getNodesToCopy()
+	{
+		return nodesToCopy;
+	}
+
+	public S getTree()
+	{
+		return tree;
+	}
+
+
+	/**
+	 * Marks the nodes of the given subtree that have to be copied.
+	 * @return <tt>true</tt> if a node that was not marked before is marked now.
+	 */
+	private boolean mark(S subtree)
+	{
+		boolean ret = false;
+		boolean copySubtreeRoot = nodesToCopy.contains(subtree);
+		if (subtree.getChildren()!=null)
+		{
+			for (S child : subtree.getChildren())
+			{
+				if (mark(child))
+				{
+					ret = true;
+				}
+				if (nodesToCopy.contains(child))
+				{
+					copySubtreeRoot = true;
+				}
+			}
+		}
+		if (subtree.getAntecedent()!=null)
+		{
+			antecedentsExist = true;
+			if (nodesToCopy.contains(subtree.getAntecedent()))
+			{
+				copySubtreeRoot = true;
+			}
+		}
+		if (copySubtreeRoot)
+		{
+			if (nodesToCopy.add(subtree))
+			{
+				ret = true;
+			}
+		}
+		return ret;
+	}
+
+	private final S tree;
+	private final Set<S> nodesToCopy;
+	private boolean antecedentsExist = false;
+}
@@ -0,0 +1,252 @@
+package eu.excitementproject.eop.transformations.utilities.parsetreeutils;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
+import eu.excitementproject.eop.common.datastructures.SimpleBidirectionalMap;
+import eu.excitementproject.eop.common.datastructures.ValueSetMap;
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
+import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
+import eu.excitementproject.eop.transformations.representation.AdditionalNodeInformation;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfoGetFields;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.representation.OriginalInfoTrace;
+import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
+
+
+/**
+ * Sets the {@link OriginalInfoTrace} and the content-ancestor of the nodes of a
+ * generated tree. The result is as if {@link OriginalInfoTraceSetter} and then
+ * {@link ContentAncestorSetter} were applied on the tree, but:
+ * <UL>
+ * <LI>Both are done in one pass</LI>
+ * <LI>Only the nodes whose information is changed are copied, together with
+ * their ancestors (see {@link PathCopySet}). All the other sub-trees are shared by the
+ * given tree and the new tree.</LI>
+ * </UL>
+ * Since most of the nodes of a tree generated by an operation already have the
+ * correct trace and content-ancestor, usually only a small part of the tree is copied.
+ * <P>
+ * A node keeps its content-ancestor if its current content-ancestor has the same
+ * contents as the new one. The content-ancestor's own content-ancestor and trace are
+ * not compared, since they are not used.
+ *
+ * @see OperationPostProcess
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class TraceAndContentAncestorSetter
+{
+	public TraceAndContentAncestorSetter(ExtendedNode generatedTree,
+			ValueSetMap<ExtendedNode, ExtendedNode> mapOriginalToGenerated,
+			boolean setTrace, boolean setContentAncestor)
+	{
+		super();
+		this.inputGeneratedTree = generatedTree;
+		this.mapOriginalToGenerated = mapOriginalToGenerated;
+		this.setTrace = setTrace;
+		this.setContentAncestor = setContentAncestor;
+	}
+
+	public void set() throws TeEngineMlException
+	{
+		newInfos = new LinkedHashMap<ExtendedNode, ExtendedInfo>();
+		if (setTrace)
+		{
+			calculateTraces(inputGeneratedTree);
+		}
+		if (setContentAncestor)
+		{
+			calculateContentAncestors(inputGeneratedTree, null);
+		}
+
+		PathCopySet<ExtendedInfo, ExtendedNode> pathCopySet = new PathCopySet<ExtendedInfo, ExtendedNode>(inputGeneratedTree, newInfos.keySet());
+		mapInputToNew = new SimpleBidirectionalMap<ExtendedNode, ExtendedNode>();
+		newGeneratedTree = copy(inputGeneratedTree, pathCopySet);
+		for (ExtendedNode copiedNode : pathCopySet.getNodesToCopy())
+		{
+			if (copiedNode.getAntecedent()!=null)
+			{
+				mapInputToNew.leftGet(copiedNode).setAntecedent(mapInputToNew.leftGet(copiedNode.getAntecedent()));
+			}
+		}
+	}
+
+	public ExtendedNode getNewGeneratedTree() throws TeEngineMlException
+	{
+		if (null == newGeneratedTree) throw new TeEngineMlException("set() was not called");
+		return newGeneratedTree;
+	}
+
+	/**
+	 * Returns a map from the nodes of the given tree to the nodes of the new tree.
+	 * Nodes that were not copied are mapped to themselves.
+	 * @return a map from the nodes of the given tree to the nodes of the new tree.
+	 * @throws TeEngineMlException
+	 */
+	public BidirectionalMap<ExtendedNode, ExtendedNode> getMapInputToNew() throws TeEngineMlException
+	{
+		if (null == mapInputToNew) throw new TeEngineMlException("set() was not called");
+		return mapInputToNew;
+	}
+
+
+
+	///////////////////////////// PRIVATE /////////////////////////////
+
+	/**
+	 * Returns the info of the given node, as updated so far (i.e., with the new trace,
+	 * if it was changed).
+	 */
+	private ExtendedInfo currentInfo(ExtendedNode node)
+	{
+		ExtendedInfo ret = newInfos.get(node);
+		if (null==ret)
+		{
+			ret = node.getInfo();
+		}
+		return ret;
+	}
+
+	/**
+	 * Same logic as {@link OriginalInfoTraceSetter}, but stores a new info only for
+	 * nodes whose trace is changed.
+	 */
+	private void calculateTraces(ExtendedNode subtree) throws TeEngineMlException
+	{
+		OriginalInfoTrace currentTrace = ExtendedInfoGetFields.getOriginalInfoTrace(subtree.getInfo());
+		OriginalInfoTrace newTrace = null;
+		if (mapOriginalToGenerated.containsValue(subtree))
+		{
+			ImmutableSet<ExtendedNode> fromWhich = mapOriginalToGenerated.getKeysOf(subtree);
+			if (fromWhich.size()!=1)
+				throw new TeEngineMlException("Wrong mapping. fromWhich.size() = "+fromWhich.size()+
+						"\nIt seems that mapOriginalToGenerated, which is actually given from some subclass of GenerationOperation" +
+						"was build incorrectly. It cannot happen that a generated node was build from two different nodes." +
+						"Only one source (a node in the original tree) is permitted.");
+			newTrace = ExtendedInfoGetFields.getOriginalInfoTrace(fromWhich.iterator().next().getInfo());
+		}
+		if (null==newTrace)
+		{
+			newTrace = new OriginalInfoTrace(subtree.getInfo(),null);
+		}
+		if (newTrace!=currentTrace)
+		{
+			AdditionalNodeInformation originalAdditionalInfo = null;
+			if (subtree.getInfo()!=null){originalAdditionalInfo=subtree.getInfo().getAdditionalNodeInformation();}
+			newInfos.put(subtree, new ExtendedInfo(subtree.getInfo(), AdditionalInformationServices.setOriginalInfoTrace(originalAdditionalInfo, newTrace)));
+		}
+
+		if (subtree.getChildren()!=null)
+		{
+			for (ExtendedNode child : subtree.getChildren())
+			{
+				calculateTraces(child);
+			}
+		}
+	}
+
+	/**
+	 * Same logic as {@link ContentAncestorSetter}, but stores a new info only for
+	 * nodes whose content-ancestor is changed.
+	 */
+	private void calculateContentAncestors(ExtendedNode subtree, ExtendedNode currentKnownAncestor)
+	{
+		// The content-ancestor's info is taken as it is after setting the trace, but before
+		// setting its own content-ancestor, as done by ContentAncestorSetter when applied
+		// after OriginalInfoTraceSetter.
+		ExtendedInfo infoOfSubtree = currentInfo(subtree);
+		ExtendedInfo newContentAncestor = (null==currentKnownAncestor)?null:currentInfo(currentKnownAncestor);
+		ExtendedInfo currentContentAncestor = ExtendedInfoGetFields.getContentAncestor(subtree.getInfo());
+		boolean changed = newInfos.containsKey(subtree) || (!sameContents(currentContentAncestor, newContentAncestor));
+
+		if (ContentAncestorSetter.isContent(subtree))
+		{
+			currentKnownAncestor = subtree;
+		}
+		if (subtree.getChildren()!=null)
+		{
+			for (ExtendedNode child : subtree.getChildren())
+			{
+				calculateContentAncestors(child, currentKnownAncestor);
+			}
+		}
+
+		// Note that the new info is stored only after the children were handled, since
+		// the children's content-ancestor should not include this node's content-ancestor.
+		if (changed)
+		{
+			newInfos.put(subtree, new ExtendedInfo(infoOfSubtree, AdditionalInformationServices.setContentAncestor(infoOfSubtree.getAdditionalNodeInformation(), newContentAncestor)));
+		}
+	}
+
+	private ExtendedNode copy(ExtendedNode subtree, PathCopySet<ExtendedInfo, ExtendedNode> pathCopySet)
+	{
+		if (!pathCopySet.mustCopy(subtree))
+		{
+			mapToItself(subtree);
+			return subtree;
+		}
+		ExtendedNode ret = new ExtendedNode(currentInfo(subtree));
+		if (subtree.getChildren()!=null)
+		{
+			for (ExtendedNode child : subtree.getChildren())
+			{
+				ret.addChild(copy(child, pathCopySet));
+			}
+		}
+		mapInputToNew.put(subtree, ret);
+		return ret;
+	}
+
+	private void mapToItself(ExtendedNode subtree)
+	{
+		mapInputToNew.put(subtree, subtree);
+		if (subtree.getChildren()!=null)
+		{
+			for (ExtendedNode child : subtree.getChildren())
+			{
+				mapToItself(child);
+			}
+		}
+	}
+
+	/**
+	 * Compares two infos, ignoring their content-ancestor and trace
+	 * (see {@link AdditionalNodeInformation#equalsIgnoringContentAncestorAndTrace(AdditionalNodeInformation)}).
+	 */
+	static boolean sameContents(ExtendedInfo info1, ExtendedInfo info2)
+	{
+		if (info1==info2) return true;
+		if ( (null==info1) || (null==info2) ) return false;
+		if (!equalObjects(info1.getId(), info2.getId())) return false;
+		if (!equalObjects(info1.getNodeInfo(), info2.getNodeInfo())) return false;
+		if (!equalObjects(info1.getEdgeInfo(), info2.getEdgeInfo())) return false;
+
+		AdditionalNodeInformation additional1 = info1.getAdditionalNodeInformation();
+		AdditionalNodeInformation additional2 = info2.getAdditionalNodeInformation();
+		if (additional1==additional2) return true;
+		if (null==additional1) return false;
+		return additional1.equalsIgnoringContentAncestorAndTrace(additional2);
+	}
+
+	private static boolean equalObjects(Object o1, Object o2)
+	{
+		if (o1==o2) return true;
+		if ( (null==o1) || (null==o2) ) return false;
+		return o1.equals(o2);
+	}
+
+
+	private final ExtendedNode inputGeneratedTree;
+	private final ValueSetMap<ExtendedNode, ExtendedNode> mapOriginalToGenerated;
+	private final boolean setTrace;
+	private final boolean setContentAncestor;
+
+	private Map<ExtendedNode, ExtendedInfo> newInfos = null;
+	private ExtendedNode newGeneratedTree = null;
+	private BidirectionalMap<ExtendedNode, ExtendedNode> mapInputToNew = null;
+}
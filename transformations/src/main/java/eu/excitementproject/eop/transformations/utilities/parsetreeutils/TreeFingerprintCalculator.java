@@ -0,0 +1,279 @@
+package eu.excitementproject.eop.transformations.utilities.parsetreeutils;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfoGetFields;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+
+
+/**
+ * Calculates a 64-bit structural fingerprint of a parse tree. Two trees that have
+ * the same structure, and the same lemmas, words, parts-of-speech, named-entities, relations and
+ * truth / negation / monotonicity annotations have the same fingerprint, regardless
+ * of the operations (and their order) by which they were created.
+ * The order of siblings is ignored.
+ * <P>
+ * The fingerprint of each sub-tree is cached, by node identity. Since a tree generated
+ * by a {@link eu.excitementproject.eop.transformations.operations.operations.GenerationOperation}
+ * shares all of its unchanged sub-trees with the tree it was generated from (see {@link PathCopySet}),
+ * calculating the fingerprint of a generated tree requires visiting only the nodes that were
+ * created by the operation. Thus, a single calculator should be used for the whole search.
+ * The nodes are weakly referenced by the cache, so the sub-trees of discarded states
+ * are removed from it once they are garbage-collected.
+ * <P>
+ * Different trees might have the same fingerprint, but the probability of such a collision
+ * is negligible. Where a collision must be ruled out (e.g., in a persistent storage), the
+ * trees should be compared by {@link #getOrderedDescription(ExtendedNode)}.
+ * <P>
+ * This class is not thread-safe.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class TreeFingerprintCalculator
+{
+	/**
+	 * Returns the fingerprint of the given tree.
+	 * @param tree a parse tree. It must not be changed after calling this method.
+	 * @return the fingerprint of the given tree.
+	 */
+	public long getFingerprint(ExtendedNode tree)
+	{
+		expungeCollectedNodes();
+		Long ret = cache.get(new NodeKey(tree, null));
+		if (null==ret)
+		{
+			long fingerprint = nodeFingerprint(tree);
+			if (tree.getAntecedent()!=null)
+			{
+				fingerprint = mix(fingerprint ^ (ANTECEDENT_SEED+nodeFingerprint(tree.getAntecedent())));
+			}
+			if (tree.getChildren()!=null)
+			{
+				long[] childrenFingerprints = new long[tree.getChildren().size()];
+				int index=0;
+				for (ExtendedNode child : tree.getChildren())
+				{
+					childrenFingerprints[index] = getFingerprint(child);
+					++index;
+				}
+				// Sorting makes the fingerprint independent of the order of the children.
+				Arrays.sort(childrenFingerprints);
+				for (long childFingerprint : childrenFingerprints)
+				{
+					fingerprint = mix(fingerprint*PRIME + childFingerprint);
+				}
+			}
+			ret = fingerprint;
+			cache.put(new NodeKey(tree, collectedNodes), ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns a fingerprint of the given tree which, unlike {@link #getFingerprint(ExtendedNode)},
+	 * depends also on the order of siblings. It is not cached.
+	 * <P>
+	 * Since the fingerprint does not depend on object identities, it is the same in different
+	 * runs of the system, so it can be used to identify a tree in a persistent storage.
+	 * @param tree a parse tree.
+	 * @return the ordered fingerprint of the given tree.
+	 */
+	public static long getOrderedFingerprint(ExtendedNode tree)
+	{
+		long fingerprint = nodeFingerprint(tree);
+		if (tree.getAntecedent()!=null)
+		{
+			fingerprint = mix(fingerprint ^ (ANTECEDENT_SEED+nodeFingerprint(tree.getAntecedent())));
+		}
+		if (tree.getChildren()!=null)
+		{
+			for (ExtendedNode child : tree.getChildren())
+			{
+				fingerprint = mix(fingerprint*PRIME + getOrderedFingerprint(child));
+			}
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Returns a string that describes the given tree, including all the fields used by
+	 * {@link #getOrderedFingerprint(ExtendedNode)}, such that two trees have the same description
+	 * if and only if they have the same structure, order of siblings and fields.
+	 * It is not cached.
+	 * @param tree a parse tree.
+	 * @return the ordered description of the given tree.
+	 */
+	public static String getOrderedDescription(ExtendedNode tree)
+	{
+		StringBuilder sb = new StringBuilder();
+		appendOrderedDescription(sb, tree);
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the number of sub-trees whose fingerprints are cached.
+	 * @return the number of sub-trees whose fingerprints are cached.
+	 */
+	public int getCacheSize()
+	{
+		expungeCollectedNodes();
+		return cache.size();
+	}
+
+
+	/**
+	 * Returns a fingerprint of the given node itself, ignoring its children.
+	 */
+	private static long nodeFingerprint(ExtendedNode node)
+	{
+		long ret = OFFSET_BASIS;
+		for (String field : nodeFields(node))
+		{
+			ret = addString(ret, field);
+		}
+		return mix(ret);
+	}
+
+	/**
+	 * Returns the fields of the given node that are used by the fingerprints and the description.
+	 */
+	private static String[] nodeFields(ExtendedNode node)
+	{
+		ExtendedInfo info = node.getInfo();
+		return new String[]{
+				InfoGetFields.getLemma(info, ""),
+				InfoGetFields.getWord(info, ""),
+				InfoGetFields.getPartOfSpeech(info, ""),
+				getNamedEntity(info),
+				InfoGetFields.getRelation(info, ""),
+				ExtendedInfoGetFields.getPredTruth(info, ""),
+				ExtendedInfoGetFields.getClauseTruth(info, ""),
+				ExtendedInfoGetFields.getNegationAndUncertainty(info, ""),
+				ExtendedInfoGetFields.getMonotonicity(info, "")
+		};
+	}
+
+	private static String getNamedEntity(ExtendedInfo info)
+	{
+		if ( (info!=null) && (info.getNodeInfo()!=null) && (info.getNodeInfo().getNamedEntityAnnotation()!=null) )
+		{
+			return info.getNodeInfo().getNamedEntityAnnotation().name();
+		}
+		return "";
+	}
+
+	private static void appendOrderedDescription(StringBuilder sb, ExtendedNode subtree)
+	{
+		appendNodeDescription(sb, subtree);
+		if (subtree.getAntecedent()!=null)
+		{
+			sb.append(ANTECEDENT_MARK);
+			appendNodeDescription(sb, subtree.getAntecedent());
+		}
+		sb.append(BEGIN_CHILDREN_MARK);
+		if (subtree.getChildren()!=null)
+		{
+			for (ExtendedNode child : subtree.getChildren())
+			{
+				appendOrderedDescription(sb, child);
+			}
+		}
+		sb.append(END_CHILDREN_MARK);
+	}
+
+	private static void appendNodeDescription(StringBuilder sb, ExtendedNode node)
+	{
+		for (String field : nodeFields(node))
+		{
+			sb.append(field).append(SEPARATOR);
+		}
+	}
+
+	/**
+	 * Removes from the cache the entries of nodes that have been garbage-collected.
+	 */
+	private void expungeCollectedNodes()
+	{
+		Reference<? extends ExtendedNode> collected;
+		while ((collected = collectedNodes.poll()) != null)
+		{
+			cache.remove(collected);
+		}
+	}
+
+	/**
+	 * FNV-1a over the characters of the string, followed by a separator.
+	 */
+	private static long addString(long hash, String str)
+	{
+		for (int index=0;index<str.length();++index)
+		{
+			hash ^= str.charAt(index);
+			hash *= FNV_PRIME;
+		}
+		hash ^= SEPARATOR;
+		hash *= FNV_PRIME;
+		return hash;
+	}
+
+	/**
+	 * The finalizer of SplitMix64, which spreads the bits of the given value.
+	 */
+	private static long mix(long value)
+	{
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+
+	private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private static final long PRIME = 31L;
+	private static final long ANTECEDENT_SEED = 0x9e3779b97f4a7c15L;
+	private static final char SEPARATOR = '\u0000';
+	private static final char ANTECEDENT_MARK = '\u0001';
+	private static final char BEGIN_CHILDREN_MARK = '\u0002';
+	private static final char END_CHILDREN_MARK = '\u0003';
+
+	/**
+	 * A weak reference to a node, compared by the identity of the node.
+	 */
+	private static final class NodeKey extends WeakReference<ExtendedNode>
+	{
+		public NodeKey(ExtendedNode node, ReferenceQueue<ExtendedNode> queue)
+		{
+			super(node, queue);
+			this.hashCode = System.identityHashCode(node);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if ( (obj == null) || (getClass() != obj.getClass()) )
+				return false;
+			ExtendedNode node = get();
+			return (node != null) && (node == ((NodeKey) obj).get());
+		}
+
+		private final int hashCode;
+	}
+
+	private final Map<NodeKey, Long> cache = new HashMap<NodeKey, Long>();
+	private final ReferenceQueue<ExtendedNode> collectedNodes = new ReferenceQueue<ExtendedNode>();
+}
@@ -0,0 +1,231 @@
+package eu.excitementproject.eop.transformations.operations.finders;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.component.syntacticknowledge.RuleWithConfidenceAndDescription;
+import eu.excitementproject.eop.common.component.syntacticknowledge.SyntacticRule;
+import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
+import eu.excitementproject.eop.common.datastructures.SimpleBidirectionalMap;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeIterator;
+import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
+import eu.excitementproject.eop.common.representation.parse.tree.match.AllEmbeddedMatcher;
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.WildcardPartOfSpeech;
+import eu.excitementproject.eop.core.component.syntacticknowledge.BasicMatchCriteria;
+import eu.excitementproject.eop.transformations.operations.rules.BagOfRulesRuleBase;
+import eu.excitementproject.eop.transformations.operations.rules.SetBagOfRulesRuleBase;
+import eu.excitementproject.eop.transformations.operations.specifications.RuleSpecification;
+import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedMatchCriteria;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+
+/**
+ * Tests that {@link RulesByBagOfRulesRuleBaseFinder}, which tries only the rules and the nodes given by
+ * its index, finds the matches found by trying all the rules in all the nodes.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class RulesByBagOfRulesRuleBaseFinderTest
+{
+	@Test
+	public void testIndexedEqualsUnindexed() throws Exception
+	{
+		// eat/V (Dog/NP (the/ART), bone/NN, quickly/ADV, node with no lemma/OTHER)
+		ExtendedNode tree = textNode("eat", "V", null);
+		ExtendedNode subject = textNode("Dog", "NP", "nsubj");
+		tree.addChild(subject);
+		subject.addChild(textNode("the", "ART", "det"));
+		tree.addChild(textNode("bone", "NN", "dobj"));
+		tree.addChild(textNode("quickly", "ADV", "advmod"));
+		tree.addChild(textNode(null, null, "dep"));
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(tree);
+
+		Set<RuleWithConfidenceAndDescription<Info, BasicNode>> rules = new LinkedHashSet<RuleWithConfidenceAndDescription<Info, BasicNode>>();
+		// single-node rules: a simpler part-of-speech, any part-of-speech, another case, variables, and no lemma
+		addRule(rules, "dog/N", ruleNode("dog", "N", null));
+		addRule(rules, "DOG/*", ruleNode("DOG", "*", null));
+		addRule(rules, "dog/V", ruleNode("dog", "V", null));
+		addRule(rules, "x/V", variable("V", null));
+		addRule(rules, "x/*", variable("*", null));
+		addRule(rules, "cat/N", ruleNode("cat", "N", null));
+		addRule(rules, "no lemma/OTHER", ruleNode(null, "OTHER", null));
+		addRule(rules, "no lemma/*", ruleNode(null, "*", null));
+		// trees: children relations, including wildcard relations, under lemma, variable and any part-of-speech roots
+		BasicNode lhs = ruleNode("eat", "V", null);
+		lhs.addChild(variable("N", "nsubj"));
+		addRule(rules, "eat/V (x/N nsubj)", lhs);
+		lhs = variable("V", null);
+		lhs.addChild(variable("N", "nsubj"));
+		lhs.addChild(variable("N", "dobj"));
+		addRule(rules, "x/V (y/N nsubj, z/N dobj)", lhs);
+		lhs = ruleNode("Eat", "*", null);
+		lhs.addChild(ruleNode("bone", "N", BasicMatchCriteria.WILDCARD_RELATION));
+		addRule(rules, "Eat/* (bone/N *)", lhs);
+		lhs = variable("*", null);
+		lhs.addChild(ruleNode("the", "ART", "det"));
+		addRule(rules, "x/* (the/ART det)", lhs);
+		lhs = ruleNode("bone", "N", null);
+		lhs.addChild(variable("ADJ", "amod"));
+		addRule(rules, "bone/N (x/ADJ amod)", lhs);
+		lhs = ruleNode("eat", "V", null);
+		lhs.addChild(variable("N", "nsubjpass"));
+		addRule(rules, "eat/V (x/N nsubjpass)", lhs);
+		BagOfRulesRuleBase<Info, BasicNode> ruleBase = SetBagOfRulesRuleBase.fromSetWithConfidenceAndDescription(rules);
+
+		List<String> expected = unindexedMatches(textTree, ruleBase);
+		assertTrue(expected.size()>10);
+		for (String description : new String[]{"dog/N","DOG/*","x/V","x/*","no lemma/OTHER","no lemma/*","eat/V (x/N nsubj)","x/V (y/N nsubj, z/N dobj)","Eat/* (bone/N *)","x/* (the/ART det)"})
+		{
+			assertTrue(description, expected.toString().contains(description+":"));
+		}
+
+		RulesByBagOfRulesRuleBaseFinder finder = new RulesByBagOfRulesRuleBaseFinder(textTree, ruleBase, "test");
+		finder.find();
+		assertEquals(expected, matches(finder.getSpecs()));
+		assertEquals(4, finder.getNumberOfRulesFilteredByIndex());
+
+		// the index is reused
+		finder = new RulesByBagOfRulesRuleBaseFinder(textTree, ruleBase, "test");
+		finder.find();
+		assertEquals(expected, matches(finder.getSpecs()));
+	}
+
+	/**
+	 * Tries every rule in every node of the text tree.
+	 */
+	private static List<String> unindexedMatches(TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree, BagOfRulesRuleBase<Info, BasicNode> ruleBase) throws Exception
+	{
+		ExtendedMatchCriteria matchCriteria = new ExtendedMatchCriteria();
+		List<String> ret = new ArrayList<String>();
+		for (RuleWithConfidenceAndDescription<Info, BasicNode> rule : ruleBase.getRules())
+		{
+			BasicNode lhs = rule.getRule().getLeftHandSide();
+			if (!lhs.hasChildren())
+			{
+				for (ExtendedNode node : TreeIterator.iterableTree(textTree.getTree()))
+				{
+					if (matchCriteria.nodesMatch(node, lhs))
+					{
+						BidirectionalMap<BasicNode, ExtendedNode> map = new SimpleBidirectionalMap<BasicNode, ExtendedNode>();
+						map.put(lhs, node);
+						ret.add(match(rule, map));
+					}
+				}
+			}
+			else
+			{
+				AllEmbeddedMatcher<ExtendedInfo, Info, ExtendedNode, BasicNode> matcher = new AllEmbeddedMatcher<ExtendedInfo, Info, ExtendedNode, BasicNode>(matchCriteria);
+				matcher.setTrees(textTree.getTree(), lhs);
+				matcher.findMatches();
+				List<String> matchesOfRule = new ArrayList<String>();
+				for (BidirectionalMap<ExtendedNode, BasicNode> singleLhsMatch : matcher.getMatches())
+				{
+					BidirectionalMap<BasicNode, ExtendedNode> map = new SimpleBidirectionalMap<BasicNode, ExtendedNode>();
+					for (ExtendedNode node : singleLhsMatch.leftSet())
+					{
+						map.put(singleLhsMatch.leftGet(node), node);
+					}
+					matchesOfRule.add(match(rule, map));
+				}
+				Collections.sort(matchesOfRule);
+				ret.addAll(matchesOfRule);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the matches of the given specifications, with the matches of each rule in a canonical order.
+	 */
+	private static List<String> matches(Set<RuleSpecification> specs)
+	{
+		List<String> ret = new ArrayList<String>();
+		List<String> matchesOfRule = new ArrayList<String>();
+		RuleWithConfidenceAndDescription<Info, BasicNode> rule = null;
+		for (RuleSpecification spec : specs)
+		{
+			if ( (rule!=spec.getRule()) || (!spec.getRule().getRule().getLeftHandSide().hasChildren()) )
+			{
+				Collections.sort(matchesOfRule);
+				ret.addAll(matchesOfRule);
+				matchesOfRule.clear();
+				rule = spec.getRule();
+			}
+			matchesOfRule.add(match(spec.getRule(), spec.getMapLhsToTree()));
+		}
+		Collections.sort(matchesOfRule);
+		ret.addAll(matchesOfRule);
+		return ret;
+	}
+
+	private static String match(RuleWithConfidenceAndDescription<Info, BasicNode> rule, BidirectionalMap<BasicNode, ExtendedNode> mapLhsToTree)
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(rule.getDescription()).append(":");
+		for (BasicNode lhsNode : TreeIterator.iterableTree(rule.getRule().getLeftHandSide()))
+		{
+			ExtendedNode textNode = mapLhsToTree.leftGet(lhsNode);
+			sb.append(" ").append((null==textNode)?"-":textNode.getInfo().getId());
+		}
+		return sb.toString();
+	}
+
+	private static void addRule(Set<RuleWithConfidenceAndDescription<Info, BasicNode>> rules, String description, BasicNode lhs)
+	{
+		rules.add(new RuleWithConfidenceAndDescription<Info, BasicNode>(
+				new SyntacticRule<Info, BasicNode>(lhs, new BasicNode(lhs.getInfo()), new SimpleBidirectionalMap<BasicNode, BasicNode>()),
+				0.5, description));
+	}
+
+	private static ExtendedNode textNode(String lemma, String pos, String relation) throws Exception
+	{
+		++textNodes;
+		return new ExtendedNode(new ExtendedInfo(String.valueOf(textNodes),
+				new DefaultNodeInfo(lemma, lemma, textNodes, null, new DefaultSyntacticInfo(null==pos ? null : new ByCanonicalPartOfSpeech(pos))),
+				new DefaultEdgeInfo(null==relation ? null : new DependencyRelation(relation, null)),
+				AdditionalInformationServices.emptyInformation()));
+	}
+
+	private static BasicNode ruleNode(String lemma, String pos, String relation) throws Exception
+	{
+		return new BasicNode(new DefaultInfo(lemma, new DefaultNodeInfo(lemma, lemma, 0, null, new DefaultSyntacticInfo(rulePos(pos))), edgeInfo(relation)));
+	}
+
+	private static BasicNode variable(String pos, String relation) throws Exception
+	{
+		++variables;
+		return new BasicNode(new DefaultInfo("x"+variables, DefaultNodeInfo.newVariableDefaultNodeInfo(variables, new DefaultSyntacticInfo(rulePos(pos))), edgeInfo(relation)));
+	}
+
+	private static PartOfSpeech rulePos(String pos) throws Exception
+	{
+		return WildcardPartOfSpeech.WILDCARD_POS_STR.equals(pos) ? WildcardPartOfSpeech.getWildcardPOS() : new ByCanonicalPartOfSpeech(pos);
+	}
+
+	private static DefaultEdgeInfo edgeInfo(String relation)
+	{
+		return new DefaultEdgeInfo(null==relation ? null : new DependencyRelation(relation, null));
+	}
+
+	private static int textNodes = 0;
+	private static int variables = 0;
+}
@@ -0,0 +1,113 @@
+package eu.excitementproject.eop.transformations.operations.finders;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeIterator;
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.transformations.operations.rules.ByLemmaPosLexicalRuleBase;
+import eu.excitementproject.eop.transformations.operations.rules.LexicalRule;
+import eu.excitementproject.eop.transformations.operations.rules.lexical.LexicalResourceWrapper;
+import eu.excitementproject.eop.transformations.operations.rules.lexical.LexicalResourceWrapperTest.BulkMapLexicalResource;
+import eu.excitementproject.eop.transformations.operations.rules.lexical.LexicalResourceWrapperTest.MapLexicalResource;
+import eu.excitementproject.eop.transformations.operations.specifications.RuleSubstituteNodeSpecification;
+import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.utilities.ParserSpecificConfigurations;
+
+/**
+ * Tests that {@link SubstitutionLexicalRuleByLemmaPosFinder}, which retrieves the rules of all
+ * the nodes at once, finds the specifications found by retrieving the rules of each node.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class SubstitutionLexicalRuleByLemmaPosFinderTest
+{
+	@Test
+	public void testBulkEqualsPerNode() throws Exception
+	{
+		// "dog" appears twice, and "the" and the second "cat" have no part-of-speech
+		ExtendedNode tree = node("walk", "V", null);
+		ExtendedNode subject = node("dog", "N", "nsubj");
+		tree.addChild(subject);
+		subject.addChild(node("the", null, "det"));
+		ExtendedNode object = node("cat", "N", "dobj");
+		tree.addChild(object);
+		object.addChild(node("dog", "N", "nn"));
+		tree.addChild(node("cat", null, "advmod"));
+		tree.addChild(node("eat", "V", "conj"));
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> treeAndParentMap = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(tree);
+
+		List<String> expected = perNodeSpecs(tree, new LexicalResourceWrapper(new MapLexicalResource()));
+		assertTrue(expected.size()>5);
+
+		BulkMapLexicalResource resource = new BulkMapLexicalResource();
+		assertEquals(expected, findSpecs(treeAndParentMap, new LexicalResourceWrapper(resource)));
+		assertEquals(1, resource.getBulkCallSizes().size());
+		assertEquals(expected, findSpecs(treeAndParentMap, new LexicalResourceWrapper(new MapLexicalResource())));
+	}
+
+	/**
+	 * @return the specifications of the rules of each node, which are not identity rules,
+	 * and, unless they are applied, not multi-word rules
+	 */
+	private static List<String> perNodeSpecs(ExtendedNode tree, ByLemmaPosLexicalRuleBase<LexicalRule> ruleBase) throws Exception
+	{
+		List<String> ret = new ArrayList<String>();
+		for (ExtendedNode node : TreeIterator.iterableTree(tree))
+		{
+			String lemma = InfoGetFields.getLemma(node.getInfo());
+			PartOfSpeech pos = InfoGetFields.getPartOfSpeechObject(node.getInfo());
+			for (LexicalRule rule : ruleBase.getRules(lemma, pos))
+			{
+				boolean identity = rule.getRhsLemma().equals(lemma) && rule.getRhsPos().equals(rule.getLhsPos());
+				boolean multiWord = rule.getRhsLemma().contains(" ") && ParserSpecificConfigurations.doNotApplyLexicallyLexicalMultiWordRules();
+				if ( (!identity) && (!multiWord) )
+				{
+					ret.add(spec(node, rule));
+				}
+			}
+		}
+		return ret;
+	}
+
+	private static List<String> findSpecs(TreeAndParentMap<ExtendedInfo, ExtendedNode> treeAndParentMap, ByLemmaPosLexicalRuleBase<LexicalRule> ruleBase) throws Exception
+	{
+		SubstitutionLexicalRuleByLemmaPosFinder<LexicalRule> finder = new SubstitutionLexicalRuleByLemmaPosFinder<LexicalRule>(treeAndParentMap, ruleBase, "test", false, false, null);
+		finder.find();
+		List<String> ret = new ArrayList<String>();
+		for (RuleSubstituteNodeSpecification<LexicalRule> spec : finder.getSpecs())
+		{
+			assertEquals(spec.getRule().getRhsLemma(), InfoGetFields.getLemma(spec.getNewNodeInfo()));
+			ret.add(spec(spec.getTextNodeToBeSubstituted(), spec.getRule()));
+		}
+		return ret;
+	}
+
+	private static String spec(ExtendedNode node, LexicalRule rule)
+	{
+		return System.identityHashCode(node)+": "+rule.getLhsLemma()+"/"+rule.getLhsPos()+" -> "+rule.getRhsLemma()+"/"+rule.getRhsPos()+" "+rule.getConfidence();
+	}
+
+	private static ExtendedNode node(String lemma, String pos, String relation) throws Exception
+	{
+		return new ExtendedNode(new ExtendedInfo(lemma,
+				new DefaultNodeInfo(lemma, lemma, 0, null, new DefaultSyntacticInfo(null==pos ? null : new ByCanonicalPartOfSpeech(pos))),
+				new DefaultEdgeInfo(null==relation ? null : new DependencyRelation(relation, null)),
+				AdditionalInformationServices.emptyInformation()));
+	}
+}
@@ -0,0 +1,171 @@
+package eu.excitementproject.eop.transformations.operations.rules.distsimnew;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.transformations.operations.rules.RuleBaseException;
+
+/**
+ * Tests the binary snapshot format of {@link DirtRuleTable}.
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class DirtRuleTableTest
+{
+	@Test
+	public void testSnapshotRoundTrip() throws Exception
+	{
+		DirtRuleTable table = buildTable(true);
+		File file = File.createTempFile("dirtRuleTable", ".snapshot");
+		try
+		{
+			table.writeSnapshot(file, LIMIT, IDENTITY);
+			assertSameTables(table, DirtRuleTable.mapSnapshot(file, LIMIT, IDENTITY));
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testSnapshotRoundTripWithoutRules() throws Exception
+	{
+		DirtRuleTable table = buildTable(false);
+		File file = File.createTempFile("dirtRuleTable", ".snapshot");
+		try
+		{
+			table.writeSnapshot(file, LIMIT, IDENTITY);
+			DirtRuleTable mapped = DirtRuleTable.mapSnapshot(file, LIMIT, IDENTITY);
+			assertFalse(mapped.hasRules());
+			assertSameTables(table, mapped);
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testSnapshotOfAnotherLimitOrDataBaseIsRejected() throws Exception
+	{
+		File file = File.createTempFile("dirtRuleTable", ".snapshot");
+		try
+		{
+			buildTable(true).writeSnapshot(file, LIMIT, IDENTITY);
+			assertRejected(file, LIMIT+1, IDENTITY);
+			assertRejected(file, LIMIT, DirtRuleTable.dataBaseIdentity("jdbc:mysql://localhost/other", "templates", "rules"));
+			assertRejected(file, LIMIT, DirtRuleTable.dataBaseIdentity("jdbc:mysql://localhost/dirt", "templates", "other_rules"));
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testTruncatedSnapshotIsRejected() throws Exception
+	{
+		File file = File.createTempFile("dirtRuleTable", ".snapshot");
+		try
+		{
+			buildTable(true).writeSnapshot(file, LIMIT, IDENTITY);
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try
+			{
+				randomAccessFile.setLength(randomAccessFile.length()-1);
+			}
+			finally
+			{
+				randomAccessFile.close();
+			}
+			assertRejected(file, LIMIT, IDENTITY);
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+
+	private static DirtRuleTable buildTable(boolean withRules) throws RuleBaseException
+	{
+		DirtRuleTableBuilder builder = new DirtRuleTableBuilder(LIMIT);
+		builder.addTemplate(1, "X buy Y");
+		builder.addTemplate(2, "X purchase Y");
+		builder.addTemplate(3, "X acquire Y");
+		builder.addTemplate(4, "X erwerben Y ä");
+		builder.addTemplate(5, "");
+		// "right" entails "left"
+		builder.addRule(2, 1, 0.9);
+		builder.addRule(3, 1, 0.5);
+		builder.addRule(4, 1, 0.1);
+		builder.addRule(1, 2, 0.8);
+		builder.addRule(3, 2, 0.3);
+		return builder.build(withRules);
+	}
+
+	private static void assertSameTables(DirtRuleTable expected, DirtRuleTable actual)
+	{
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.hasRules(), actual.hasRules());
+		assertEquals(expected.getNumberOfRules(), actual.getNumberOfRules());
+		for (int index=0;index<expected.size();++index)
+		{
+			String template = expected.getTemplate(index);
+			assertEquals(template, actual.getTemplate(index));
+			assertEquals(index, actual.indexOf(template));
+			assertEquals(expected.getId(index), actual.getId(index));
+			if (expected.hasRules())
+			{
+				assertSameRules(expected.getEntailed(index), actual.getEntailed(index));
+				assertSameRules(expected.getEntailing(index), actual.getEntailing(index));
+			}
+		}
+		assertEquals(-1, actual.indexOf("X sell Y"));
+		if (expected.hasRules())
+		{
+			// The limit of 2 keeps only the two best rules of "X buy Y".
+			DirtRuleTable.Rules entailed = actual.getEntailed(actual.indexOf("X buy Y"));
+			assertEquals(2, entailed.size());
+			assertEquals("X purchase Y", actual.getTemplate(entailed.getTemplateIndex(0)));
+			assertEquals(0.9f, entailed.getScore(0), 0.0f);
+			assertEquals("X acquire Y", actual.getTemplate(entailed.getTemplateIndex(1)));
+		}
+	}
+
+	private static void assertSameRules(DirtRuleTable.Rules expected, DirtRuleTable.Rules actual)
+	{
+		assertEquals(expected.size(), actual.size());
+		for (int position=0;position<expected.size();++position)
+		{
+			assertEquals(expected.getTemplateIndex(position), actual.getTemplateIndex(position));
+			assertEquals(expected.getScore(position), actual.getScore(position), 0.0f);
+		}
+	}
+
+	private static void assertRejected(File file, int limitNumberOfRules, String dataBaseIdentity) throws Exception
+	{
+		try
+		{
+			DirtRuleTable.mapSnapshot(file, limitNumberOfRules, dataBaseIdentity);
+			fail("The snapshot was mapped for limit "+limitNumberOfRules+" and data-base "+dataBaseIdentity);
+		}
+		catch (RuleBaseException e)
+		{
+			assertTrue(e.getMessage().contains(file.getPath()));
+		}
+	}
+
+	private static final int LIMIT = 2;
+	private static final String IDENTITY = DirtRuleTable.dataBaseIdentity("jdbc:mysql://localhost/dirt", "templates", "rules");
+}
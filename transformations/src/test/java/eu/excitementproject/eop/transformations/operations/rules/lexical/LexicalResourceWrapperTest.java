@@ -0,0 +1,254 @@
+package eu.excitementproject.eop.transformations.operations.rules.lexical;
+
+import static eu.excitementproject.eop.common.representation.partofspeech.SimplerPosTagConvertor.simplerPos;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.BulkLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPosQuery;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceCloseException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.transformations.datastructures.LemmaAndPos;
+import eu.excitementproject.eop.transformations.operations.rules.ByLemmaPosLexicalRuleBase;
+import eu.excitementproject.eop.transformations.operations.rules.ByLemmaPosLexicalRuleBaseWrapper;
+import eu.excitementproject.eop.transformations.operations.rules.LexicalRule;
+
+/**
+ * Tests that the rules of many left-hand-sides, retrieved at once by {@link LexicalResourceWrapper}
+ * and {@link ByLemmaPosLexicalRuleBaseWrapper}, are the rules retrieved for each of them.
+ *
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class LexicalResourceWrapperTest
+{
+	@Test
+	public void testBulkEqualsPerQuery() throws Exception
+	{
+		for (MapLexicalResource resource : new MapLexicalResource[]{new MapLexicalResource(), new BulkMapLexicalResource()})
+		{
+			List<LemmaAndPos> queries = queries();
+			Map<LemmaAndPos, ImmutableSet<LexicalRule>> bulkRules = new LexicalResourceWrapper(resource).getRules(queries);
+			assertEquals(new ArrayList<LemmaAndPos>(new LinkedHashSet<LemmaAndPos>(queries)), new ArrayList<LemmaAndPos>(bulkRules.keySet()));
+			assertSameRules(perQuery(new LexicalResourceWrapper(new MapLexicalResource()), queries), bulkRules);
+			if (resource instanceof BulkMapLexicalResource)
+			{
+				// one bulk call retrieves the distinct left-hand-sides
+				assertEquals(0, resource.singleCalls);
+				assertEquals(Arrays.asList(new LinkedHashSet<LemmaAndPos>(queries).size()), ((BulkMapLexicalResource)resource).bulkCallSizes);
+			}
+		}
+	}
+
+	@Test
+	public void testBulkWithCache() throws Exception
+	{
+		BulkMapLexicalResource resource = new BulkMapLexicalResource();
+		LexicalResourceWrapper wrapper = new LexicalResourceWrapper(resource);
+		List<LemmaAndPos> queries = queries();
+		wrapper.getRules("dog", pos("N"));
+		wrapper.getRules("cat", pos("OTHER"));
+		assertEquals(2, resource.singleCalls);
+
+		// only the left-hand-sides which are not in the cache are retrieved
+		Map<LemmaAndPos, ImmutableSet<LexicalRule>> bulkRules = wrapper.getRules(queries);
+		assertEquals(Arrays.asList(new LinkedHashSet<LemmaAndPos>(queries).size()-2), resource.bulkCallSizes);
+		assertSameRules(perQuery(new LexicalResourceWrapper(new MapLexicalResource()), queries), bulkRules);
+
+		// and now all of them are in the cache, so the resource is not called
+		assertSameRules(bulkRules, wrapper.getRules(queries));
+		assertSameRules(perQuery(wrapper, queries), bulkRules);
+		assertEquals(1, resource.bulkCallSizes.size());
+		assertEquals(2, resource.singleCalls);
+	}
+
+	@Test
+	public void testSubTypeWrapper() throws Exception
+	{
+		List<LemmaAndPos> queries = queries();
+		ByLemmaPosLexicalRuleBase<LexicalRule> wrapper = new ByLemmaPosLexicalRuleBaseWrapper<LexicalRule, LexicalRule>(new LexicalResourceWrapper(new BulkMapLexicalResource()));
+		ByLemmaPosLexicalRuleBase<LexicalRule> perQueryWrapper = new ByLemmaPosLexicalRuleBaseWrapper<LexicalRule, LexicalRule>(new LexicalResourceWrapper(new MapLexicalResource()));
+		Map<LemmaAndPos, ImmutableSet<LexicalRule>> bulkRules = wrapper.getRules(queries);
+		assertEquals(new ArrayList<LemmaAndPos>(new LinkedHashSet<LemmaAndPos>(queries)), new ArrayList<LemmaAndPos>(bulkRules.keySet()));
+		assertSameRules(perQuery(perQueryWrapper, queries), bulkRules);
+	}
+
+	/**
+	 * @return left-hand-sides, with duplicates, the part-of-speech given to nodes that have none, and a left-hand-side with no rules
+	 */
+	private static List<LemmaAndPos> queries() throws Exception
+	{
+		return Arrays.asList(
+				new LemmaAndPos("dog", pos("N")),
+				new LemmaAndPos("dog", pos("OTHER")),
+				new LemmaAndPos("cat", pos("N")),
+				new LemmaAndPos("dog", pos("N")),
+				new LemmaAndPos("bird", pos("V")),
+				new LemmaAndPos("cat", pos("OTHER")),
+				new LemmaAndPos("walk", pos("V")),
+				new LemmaAndPos("dog", pos("V")),
+				new LemmaAndPos("cat", pos("OTHER")));
+	}
+
+	private static Map<LemmaAndPos, ImmutableSet<LexicalRule>> perQuery(ByLemmaPosLexicalRuleBase<LexicalRule> ruleBase, List<LemmaAndPos> queries) throws Exception
+	{
+		Map<LemmaAndPos, ImmutableSet<LexicalRule>> ret = new LinkedHashMap<LemmaAndPos, ImmutableSet<LexicalRule>>();
+		for (LemmaAndPos query : queries)
+		{
+			ret.put(query, ruleBase.getRules(query.getLemma(), query.getPartOfSpeech()));
+		}
+		return ret;
+	}
+
+	/**
+	 * Asserts the same rules, in the same order, for each left-hand-side.
+	 */
+	public static <T extends LexicalRule> void assertSameRules(Map<LemmaAndPos, ImmutableSet<T>> expected, Map<LemmaAndPos, ImmutableSet<T>> actual)
+	{
+		assertEquals(expected.keySet(), actual.keySet());
+		for (Map.Entry<LemmaAndPos, ImmutableSet<T>> rules : expected.entrySet())
+		{
+			assertEquals(rules.getKey().toString(), list(rules.getValue()), list(actual.get(rules.getKey())));
+		}
+	}
+
+	private static <T extends LexicalRule> List<T> list(ImmutableSet<T> rules)
+	{
+		List<T> ret = new ArrayList<T>();
+		for (T rule : rules)
+		{
+			ret.add(rule);
+		}
+		return ret;
+	}
+
+	private static PartOfSpeech pos(String pos) throws Exception
+	{
+		return new ByCanonicalPartOfSpeech(pos);
+	}
+
+	/**
+	 * A {@link LexicalResource} of a few rules, which retrieves the rules of one left-hand-side at a time.
+	 * A null part-of-speech matches any part-of-speech.
+	 */
+	public static class MapLexicalResource implements LexicalResource<RuleInfo>
+	{
+		public MapLexicalResource() throws Exception
+		{
+			rules = new ArrayList<eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>>();
+			addRule("dog", "N", "animal", "N", 0.8);
+			addRule("dog", "N", "canine", "N", 0.6);
+			addRule("dog", "N", "dog", "N", 0.5);
+			addRule("dog", "V", "follow", "V", 0.4);
+			addRule("dog", "OTHER", "hound", "OTHER", 0.4);
+			addRule("dog", "N", "pet", "N", 0.7);
+			addRule("cat", "N", "animal", "N", 0.8);
+			addRule("cat", "N", "feline", "N", 0.9);
+			addRule("cat", "V", "vomit", "V", 0.2);
+			addRule("cat", "OTHER", "kitty", "N", 0.6);
+			addRule("walk", "V", "stroll", "V", 0.5);
+			addRule("walk", "V", "go by foot", "V", 0.3);
+			addRule("eat", "V", "consume", "V", 0.6);
+			addRule("bone", "N", "skeleton part", "N", 0.3);
+		}
+
+		@Override
+		public List<eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>> getRulesForLeft(String lemma, PartOfSpeech pos) throws LexicalResourceException
+		{
+			++singleCalls;
+			return rulesForLeft(lemma, pos);
+		}
+
+		@Override
+		public List<eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>> getRulesForRight(String lemma, PartOfSpeech pos) throws LexicalResourceException
+		{
+			throw new LexicalResourceException("Not used by the tests");
+		}
+
+		@Override
+		public List<eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>> getRules(String leftLemma, PartOfSpeech leftPos, String rightLemma, PartOfSpeech rightPos) throws LexicalResourceException
+		{
+			throw new LexicalResourceException("Not used by the tests");
+		}
+
+		@Override
+		public void close() throws LexicalResourceCloseException
+		{
+		}
+
+		protected List<eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>> rulesForLeft(String lemma, PartOfSpeech pos)
+		{
+			List<eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>> ret = new ArrayList<eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>>();
+			for (eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo> rule : rules)
+			{
+				if (rule.getLLemma().equals(lemma) && ( (null==pos) || (simplerPos(pos.getCanonicalPosTag())==simplerPos(rule.getLPos().getCanonicalPosTag())) ))
+				{
+					ret.add(rule);
+				}
+			}
+			return ret;
+		}
+
+		private void addRule(String leftLemma, String leftPos, String rightLemma, String rightPos, double confidence) throws Exception
+		{
+			rules.add(new eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<RuleInfo>(leftLemma, pos(leftPos), rightLemma, pos(rightPos), confidence, null, "test", INFO));
+		}
+
+		protected int singleCalls = 0;
+		private final List<eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>> rules;
+	}
+
+	/**
+	 * A {@link MapLexicalResource} which retrieves the rules of many left-hand-sides at once.
+	 */
+	public static class BulkMapLexicalResource extends MapLexicalResource implements BulkLexicalResource<RuleInfo>
+	{
+		public BulkMapLexicalResource() throws Exception
+		{
+			super();
+		}
+
+		@Override
+		public Map<LemmaPosQuery, List<eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>>> getRulesForLeft(Collection<LemmaPosQuery> queries) throws LexicalResourceException
+		{
+			bulkCallSizes.add(queries.size());
+			Map<LemmaPosQuery, List<eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>>> ret = new LinkedHashMap<LemmaPosQuery, List<eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>>>();
+			for (LemmaPosQuery query : queries)
+			{
+				ret.put(query, rulesForLeft(query.getLemma(), query.getPos()));
+			}
+			return ret;
+		}
+
+		@Override
+		public Map<LemmaPosQuery, List<eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule<? extends RuleInfo>>> getRulesForRight(Collection<LemmaPosQuery> queries) throws LexicalResourceException
+		{
+			throw new LexicalResourceException("Not used by the tests");
+		}
+
+		public List<Integer> getBulkCallSizes()
+		{
+			return bulkCallSizes;
+		}
+
+		protected List<Integer> bulkCallSizes = new ArrayList<Integer>();
+	}
+
+	@SuppressWarnings("serial")
+	private static final RuleInfo INFO = new RuleInfo(){};
+}
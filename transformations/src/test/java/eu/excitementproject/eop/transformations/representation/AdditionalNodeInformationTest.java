@@ -0,0 +1,47 @@
+package eu.excitementproject.eop.transformations.representation;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.transformations.representation.annotations.PredTruth;
+
+/**
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class AdditionalNodeInformationTest
+{
+	@Test
+	public void testEqualsIgnoringContentAncestorAndTrace() throws Exception
+	{
+		AdditionalNodeInformation information = AdditionalInformationServices.setPredTruth(
+				AdditionalInformationServices.generateFromCorefGroup(1, 2), PredTruth.P);
+		ExtendedInfo ancestor = new ExtendedInfo("1", new DefaultNodeInfo("dog", "dog", 1, null, new DefaultSyntacticInfo(new ByCanonicalPartOfSpeech("N"))), null, information);
+		AdditionalNodeInformation withAncestor = AdditionalInformationServices.setContentAncestor(information, ancestor);
+		AdditionalNodeInformation withTrace = AdditionalInformationServices.setOriginalInfoTrace(information, new OriginalInfoTrace(ancestor, null));
+
+		// the content-ancestor and the trace are ignored
+		assertTrue(information.equalsIgnoringContentAncestorAndTrace(withAncestor));
+		assertTrue(withAncestor.equalsIgnoringContentAncestorAndTrace(withTrace));
+		assertFalse(information.equals(withAncestor));
+		assertFalse(withAncestor.equals(withTrace));
+
+		// the other fields are not
+		AdditionalNodeInformation otherTruth = AdditionalInformationServices.setPredTruth(withAncestor, PredTruth.N);
+		assertFalse(withAncestor.equalsIgnoringContentAncestorAndTrace(otherTruth));
+		AdditionalNodeInformation otherCoref = new AdditionalNodeInformation(3, 2, withAncestor);
+		assertFalse(withAncestor.equalsIgnoringContentAncestorAndTrace(otherCoref));
+		assertFalse(information.equalsIgnoringContentAncestorAndTrace(null));
+
+		// equals() compares all the fields
+		assertEquals(withAncestor, AdditionalInformationServices.setContentAncestor(information, ancestor));
+		assertEquals(withAncestor.hashCode(), AdditionalInformationServices.setContentAncestor(information, ancestor).hashCode());
+		assertFalse(information.equals(otherTruth));
+	}
+}
@@ -0,0 +1,54 @@
+package eu.excitementproject.eop.transformations.utilities.parsetreeutils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.NodeInfo;
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
+import eu.excitementproject.eop.transformations.representation.AdditionalNodeInformation;
+import eu.excitementproject.eop.transformations.representation.AdditionalNodeInformation.Monotonicity;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.OriginalInfoTrace;
+
+/**
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class TraceAndContentAncestorSetterTest
+{
+	@Test
+	public void testSameContents() throws Exception
+	{
+		NodeInfo nodeInfo = new DefaultNodeInfo("dogs", "dog", 1, null, new DefaultSyntacticInfo(new ByCanonicalPartOfSpeech("N")));
+		DefaultEdgeInfo edgeInfo = new DefaultEdgeInfo(new DependencyRelation("nsubj", null));
+		AdditionalNodeInformation information = AdditionalInformationServices.setMonotonicity(
+				AdditionalInformationServices.emptyInformation(), Monotonicity.UP);
+		ExtendedInfo info = new ExtendedInfo("1", nodeInfo, edgeInfo, information);
+
+		// a different content-ancestor or trace does not change the contents
+		ExtendedInfo withAncestor = new ExtendedInfo("1", nodeInfo, edgeInfo,
+				AdditionalInformationServices.setContentAncestor(information, info));
+		ExtendedInfo withTrace = new ExtendedInfo("1", nodeInfo, edgeInfo,
+				AdditionalInformationServices.setOriginalInfoTrace(information, new OriginalInfoTrace(info, null)));
+		assertTrue(TraceAndContentAncestorSetter.sameContents(info, withAncestor));
+		assertTrue(TraceAndContentAncestorSetter.sameContents(withAncestor, withTrace));
+		assertTrue(TraceAndContentAncestorSetter.sameContents(null, null));
+
+		// any other field does
+		assertFalse(TraceAndContentAncestorSetter.sameContents(info, null));
+		assertFalse(TraceAndContentAncestorSetter.sameContents(info, new ExtendedInfo("2", nodeInfo, edgeInfo, information)));
+		assertFalse(TraceAndContentAncestorSetter.sameContents(info, new ExtendedInfo("1", nodeInfo, edgeInfo,
+				AdditionalInformationServices.setMonotonicity(information, Monotonicity.DOWN))));
+		assertFalse(TraceAndContentAncestorSetter.sameContents(info, new ExtendedInfo("1", nodeInfo, edgeInfo,
+				AdditionalInformationServices.generateFromCorefGroup(5, 6))));
+		assertFalse(TraceAndContentAncestorSetter.sameContents(info, new ExtendedInfo("1", nodeInfo, edgeInfo, null)));
+	}
+}
@@ -0,0 +1,145 @@
+package eu.excitementproject.eop.transformations.utilities.parsetreeutils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.NamedEntity;
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+
+/**
+ * 
+ * @author agent
+ * @since Oct 18, 2026
+ *
+ */
+public class TreeFingerprintCalculatorTest
+{
+	@Test
+	public void testFingerprint() throws Exception
+	{
+		TreeFingerprintCalculator calculator = new TreeFingerprintCalculator();
+		ExtendedNode tree = tree("eat", "dog", "bone");
+		ExtendedNode sameTree = tree("eat", "dog", "bone");
+		ExtendedNode reorderedTree = node("eat", "V", null);
+		reorderedTree.addChild(node("bone", "N", "dobj"));
+		reorderedTree.addChild(node("dog", "N", "nsubj"));
+		ExtendedNode otherTree = tree("eat", "cat", "bone");
+
+		// equal trees have equal fingerprints, regardless of the order of siblings
+		long fingerprint = calculator.getFingerprint(tree);
+		assertEquals(fingerprint, calculator.getFingerprint(sameTree));
+		assertEquals(fingerprint, calculator.getFingerprint(reorderedTree));
+		assertFalse(fingerprint == calculator.getFingerprint(otherTree));
+		assertEquals(fingerprint, calculator.getFingerprint(tree));
+		assertEquals(fingerprint, new TreeFingerprintCalculator().getFingerprint(sameTree));
+
+		// the ordered fingerprint depends on the order of siblings
+		assertEquals(TreeFingerprintCalculator.getOrderedFingerprint(tree), TreeFingerprintCalculator.getOrderedFingerprint(sameTree));
+		assertFalse(TreeFingerprintCalculator.getOrderedFingerprint(tree) == TreeFingerprintCalculator.getOrderedFingerprint(reorderedTree));
+
+		// a different relation or part-of-speech changes the fingerprint
+		ExtendedNode otherRelation = tree("eat", "dog", "bone");
+		otherRelation.addChild(node("often", "ADV", "advmod"));
+		ExtendedNode otherPos = tree("eat", "dog", "bone");
+		otherPos.addChild(node("often", "ADJ", "advmod"));
+		ExtendedNode otherRelationName = tree("eat", "dog", "bone");
+		otherRelationName.addChild(node("often", "ADV", "amod"));
+		assertFalse(calculator.getFingerprint(otherRelation) == calculator.getFingerprint(otherPos));
+		assertFalse(calculator.getFingerprint(otherRelation) == calculator.getFingerprint(otherRelationName));
+		assertFalse(calculator.getFingerprint(otherRelation) == fingerprint);
+	}
+
+	@Test
+	public void testWordAndNamedEntity() throws Exception
+	{
+		TreeFingerprintCalculator calculator = new TreeFingerprintCalculator();
+		ExtendedNode tree = node("eat", "V", null);
+		tree.addChild(node("dog", "dog", null, "N", "nsubj"));
+		ExtendedNode otherWord = node("eat", "V", null);
+		otherWord.addChild(node("dogs", "dog", null, "N", "nsubj"));
+		ExtendedNode otherNamedEntity = node("eat", "V", null);
+		otherNamedEntity.addChild(node("dog", "dog", NamedEntity.PERSON, "N", "nsubj"));
+
+		// the word and the named-entity change the fingerprints and the description
+		for (ExtendedNode other : new ExtendedNode[]{otherWord,otherNamedEntity})
+		{
+			assertFalse(calculator.getFingerprint(tree) == calculator.getFingerprint(other));
+			assertFalse(TreeFingerprintCalculator.getOrderedFingerprint(tree) == TreeFingerprintCalculator.getOrderedFingerprint(other));
+			assertFalse(TreeFingerprintCalculator.getOrderedDescription(tree).equals(TreeFingerprintCalculator.getOrderedDescription(other)));
+		}
+	}
+
+	@Test
+	public void testOrderedDescription() throws Exception
+	{
+		ExtendedNode tree = tree("eat", "dog", "bone");
+		ExtendedNode reorderedTree = node("eat", "V", null);
+		reorderedTree.addChild(node("bone", "N", "dobj"));
+		reorderedTree.addChild(node("dog", "N", "nsubj"));
+		assertEquals(TreeFingerprintCalculator.getOrderedDescription(tree), TreeFingerprintCalculator.getOrderedDescription(tree("eat", "dog", "bone")));
+		assertFalse(TreeFingerprintCalculator.getOrderedDescription(tree).equals(TreeFingerprintCalculator.getOrderedDescription(reorderedTree)));
+
+		// the same nodes in a different structure
+		ExtendedNode chain = node("eat", "V", null);
+		ExtendedNode subject = node("dog", "N", "nsubj");
+		chain.addChild(subject);
+		subject.addChild(node("bone", "N", "dobj"));
+		assertFalse(TreeFingerprintCalculator.getOrderedDescription(tree).equals(TreeFingerprintCalculator.getOrderedDescription(chain)));
+
+		// the antecedent is part of the description
+		ExtendedNode withAntecedent = tree("eat", "dog", "bone");
+		withAntecedent.setAntecedent(node("cat", "N", null));
+		assertFalse(TreeFingerprintCalculator.getOrderedDescription(tree).equals(TreeFingerprintCalculator.getOrderedDescription(withAntecedent)));
+	}
+
+	@Test
+	public void testCacheOfCollectedTrees() throws Exception
+	{
+		TreeFingerprintCalculator calculator = new TreeFingerprintCalculator();
+		ExtendedNode tree = tree("eat", "dog", "bone");
+		calculator.getFingerprint(tree);
+		assertEquals(3, calculator.getCacheSize());
+		for (int index=0;index<100;++index)
+		{
+			calculator.getFingerprint(tree("eat", "dog", "bone"+index));
+		}
+
+		// the discarded trees are removed from the cache once they are garbage-collected
+		for (int attempt=0; (attempt<100) && (calculator.getCacheSize()>3); ++attempt)
+		{
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertEquals(3, calculator.getCacheSize());
+		assertEquals(calculator.getFingerprint(tree("eat", "dog", "bone")), calculator.getFingerprint(tree));
+	}
+
+	private static ExtendedNode tree(String root, String subject, String object) throws Exception
+	{
+		ExtendedNode tree = node(root, "V", null);
+		tree.addChild(node(subject, "N", "nsubj"));
+		tree.addChild(node(object, "N", "dobj"));
+		return tree;
+	}
+
+	private static ExtendedNode node(String lemma, String pos, String relation) throws Exception
+	{
+		return node(lemma, lemma, null, pos, relation);
+	}
+
+	private static ExtendedNode node(String word, String lemma, NamedEntity namedEntity, String pos, String relation) throws Exception
+	{
+		return new ExtendedNode(new ExtendedInfo(lemma,
+				new DefaultNodeInfo(word, lemma, 0, namedEntity, new DefaultSyntacticInfo(new ByCanonicalPartOfSpeech(pos))),
+				new DefaultEdgeInfo(null==relation ? null : new DependencyRelation(relation, null)),
+				AdditionalInformationServices.emptyInformation()));
+	}
+}